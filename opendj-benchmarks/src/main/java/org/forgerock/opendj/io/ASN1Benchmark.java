@@ -0,0 +1,154 @@
+/*
+ * The contents of this file are subject to the terms of the Common Development and
+ * Distribution License (the License). You may not use this file except in compliance with the
+ * License.
+ *
+ * You can obtain a copy of the License at legal/CDDLv1.0.txt. See the License for the
+ * specific language governing permission and limitations under the License.
+ *
+ * When distributing Covered Software, include this CDDL Header Notice in each file and include
+ * the License file at legal/CDDLv1.0.txt. If applicable, add the following below the CDDL
+ * Header, with the fields enclosed by brackets [] replaced by your own identifying
+ * information: "Portions Copyright [year] [name of copyright owner]".
+ *
+ * Copyright 2026 ForgeRock AS.
+ */
+package org.forgerock.opendj.io;
+
+import java.io.IOException;
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+
+import org.forgerock.opendj.ldap.ByteString;
+import org.forgerock.opendj.ldap.ByteStringBuilder;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+/** Measures the ASN.1 reader and writer with messages shaped like LDAP search result entries. */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(value = 2, jvmArgsAppend = { "-Xms1g", "-Xmx1g" })
+@State(Scope.Thread)
+public class ASN1Benchmark
+{
+  private static final byte TYPE_SEARCH_RESULT_ENTRY = 0x64;
+
+  /** The number of attributes in each message. */
+  @Param({ "4", "32" })
+  public int nbAttributes;
+
+  /** The number of values of each attribute. */
+  @Param({ "1", "8" })
+  public int nbValues;
+
+  private String[] attributeNames;
+  private ByteString[] values;
+  private final ByteStringBuilder buffer = new ByteStringBuilder();
+  private ByteString message;
+
+  /**
+   * Generates the attributes and encodes a message.
+   *
+   * @throws IOException
+   *           if the message cannot be encoded
+   */
+  @Setup
+  public void setup() throws IOException
+  {
+    final Random random = new Random(0);
+    attributeNames = new String[nbAttributes];
+    for (int i = 0; i < nbAttributes; i++)
+    {
+      attributeNames[i] = "attribute" + i;
+    }
+    values = new ByteString[nbValues];
+    for (int i = 0; i < nbValues; i++)
+    {
+      final byte[] value = new byte[8 + random.nextInt(56)];
+      random.nextBytes(value);
+      values[i] = ByteString.wrap(value);
+    }
+    message = write().toByteString();
+  }
+
+  /**
+   * Writes a message.
+   *
+   * @return the encoded message
+   * @throws IOException
+   *           if the message cannot be encoded
+   */
+  @Benchmark
+  public ByteStringBuilder write() throws IOException
+  {
+    buffer.clear();
+    final ASN1Writer writer = ASN1.getWriter(buffer);
+    writer.writeStartSequence();
+    writer.writeInteger(42);
+    writer.writeStartSequence(TYPE_SEARCH_RESULT_ENTRY);
+    writer.writeOctetString("uid=user.42,ou=People,dc=example,dc=com");
+    writer.writeStartSequence();
+    for (String attributeName : attributeNames)
+    {
+      writer.writeStartSequence();
+      writer.writeOctetString(attributeName);
+      writer.writeStartSet();
+      for (ByteString value : values)
+      {
+        writer.writeOctetString(value);
+      }
+      writer.writeEndSet();
+      writer.writeEndSequence();
+    }
+    writer.writeEndSequence();
+    writer.writeEndSequence();
+    writer.writeEndSequence();
+    return buffer;
+  }
+
+  /**
+   * Reads a message.
+   *
+   * @return the total length of the values read
+   * @throws IOException
+   *           if the message cannot be decoded
+   */
+  @Benchmark
+  public long read() throws IOException
+  {
+    long length = 0;
+    final ASN1Reader reader = ASN1.getReader(message);
+    reader.readStartSequence();
+    length += reader.readInteger();
+    reader.readStartSequence(TYPE_SEARCH_RESULT_ENTRY);
+    length += reader.readOctetStringAsString().length();
+    reader.readStartSequence();
+    while (reader.hasNextElement())
+    {
+      reader.readStartSequence();
+      length += reader.readOctetStringAsString().length();
+      reader.readStartSet();
+      while (reader.hasNextElement())
+      {
+        length += reader.readOctetString().length();
+      }
+      reader.readEndSet();
+      reader.readEndSequence();
+    }
+    reader.readEndSequence();
+    reader.readEndSequence();
+    reader.readEndSequence();
+    return length;
+  }
+}
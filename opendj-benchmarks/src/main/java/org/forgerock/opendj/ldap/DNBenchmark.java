@@ -0,0 +1,128 @@
+/*
+ * The contents of this file are subject to the terms of the Common Development and
+ * Distribution License (the License). You may not use this file except in compliance with the
+ * License.
+ *
+ * You can obtain a copy of the License at legal/CDDLv1.0.txt. See the License for the
+ * specific language governing permission and limitations under the License.
+ *
+ * When distributing Covered Software, include this CDDL Header Notice in each file and include
+ * the License file at legal/CDDLv1.0.txt. If applicable, add the following below the CDDL
+ * Header, with the fields enclosed by brackets [] replaced by your own identifying
+ * information: "Portions Copyright [year] [name of copyright owner]".
+ *
+ * Copyright 2026 ForgeRock AS.
+ */
+package org.forgerock.opendj.ldap;
+
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * Measures the parsing, normalization and comparison of DNs.
+ * <p>
+ * More distinct DN strings are used than the size of the DN cache, so that parsing is actually measured.
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(value = 2, jvmArgsAppend = { "-Xms1g", "-Xmx1g" })
+@State(Scope.Thread)
+public class DNBenchmark
+{
+  private static final int NB_DNS = 4096;
+  private static final DN SUFFIX = DN.valueOf("ou=People,dc=example,dc=com");
+
+  private String[] dnStrings;
+  private DN[] dns;
+  private int next;
+
+  /** Generates the DNs. */
+  @Setup
+  public void setup()
+  {
+    final Random random = new Random(0);
+    dnStrings = new String[NB_DNS];
+    dns = new DN[NB_DNS];
+    for (int i = 0; i < NB_DNS; i++)
+    {
+      // Mix single-valued, escaped and multi-valued RDNs
+      switch (random.nextInt(3))
+      {
+      case 0:
+        dnStrings[i] = "uid=user." + random.nextInt(1000000) + ",ou=People,dc=example,dc=com";
+        break;
+      case 1:
+        dnStrings[i] = "cn=Last\\, First " + random.nextInt(1000000) + ",ou=People,dc=example,dc=com";
+        break;
+      default:
+        dnStrings[i] = "CN=User " + random.nextInt(1000000) + "+UID=u" + i + ",OU=People,DC=Example,DC=Com";
+        break;
+      }
+      dns[i] = DN.valueOf(dnStrings[i]);
+    }
+  }
+
+  private int nextIndex()
+  {
+    next = (next + 1) & (NB_DNS - 1);
+    return next;
+  }
+
+  /**
+   * Parses a DN.
+   *
+   * @return the parsed DN
+   */
+  @Benchmark
+  public DN valueOf()
+  {
+    return DN.valueOf(dnStrings[nextIndex()]);
+  }
+
+  /**
+   * Parses and normalizes a DN, as done for the keys of the dn2id tree.
+   *
+   * @return the normalized DN
+   */
+  @Benchmark
+  public ByteString valueOfAndNormalize()
+  {
+    return DN.valueOf(dnStrings[nextIndex()]).toNormalizedByteString();
+  }
+
+  /**
+   * Compares two parsed DNs.
+   *
+   * @return the result of the comparison
+   */
+  @Benchmark
+  public int compareTo()
+  {
+    final int index = nextIndex();
+    return dns[index].compareTo(dns[(index + 1) & (NB_DNS - 1)]);
+  }
+
+  /**
+   * Checks whether a parsed DN is below the suffix.
+   *
+   * @return whether the DN is below the suffix
+   */
+  @Benchmark
+  public boolean isSubordinateOrEqualTo()
+  {
+    return dns[nextIndex()].isSubordinateOrEqualTo(SUFFIX);
+  }
+}
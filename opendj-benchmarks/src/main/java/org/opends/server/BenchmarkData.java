@@ -0,0 +1,151 @@
+/*
+ * The contents of this file are subject to the terms of the Common Development and
+ * Distribution License (the License). You may not use this file except in compliance with the
+ * License.
+ *
+ * You can obtain a copy of the License at legal/CDDLv1.0.txt. See the License for the
+ * specific language governing permission and limitations under the License.
+ *
+ * When distributing Covered Software, include this CDDL Header Notice in each file and include
+ * the License file at legal/CDDLv1.0.txt. If applicable, add the following below the CDDL
+ * Header, with the fields enclosed by brackets [] replaced by your own identifying
+ * information: "Portions Copyright [year] [name of copyright owner]".
+ *
+ * Copyright 2026 ForgeRock AS.
+ */
+package org.opends.server;
+
+import java.io.StringReader;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+
+import org.opends.server.api.CompressedSchema;
+import org.opends.server.core.DirectoryServer;
+import org.opends.server.types.Entry;
+import org.opends.server.types.LDIFImportConfig;
+import org.opends.server.util.LDIFReader;
+
+/**
+ * Builds the data shared by the microbenchmarks.
+ * <p>
+ * All the data is generated from fixed seeds, without any configuration or server instance, so that results are
+ * reproducible offline and comparable across commits.
+ */
+public final class BenchmarkData
+{
+  /** The base DN of all the generated entries. */
+  public static final String SUFFIX = "ou=People,dc=example,dc=com";
+
+  private static final String[] FIRST_NAMES = { "Aaron", "Abigail", "Bernard", "Carla", "Dmitri", "Elena", "Farid",
+    "Gwen", "Hiroshi", "Ines", "Jules", "Katarzyna", "Luca", "Mei", "Nuno", "Olga", "Pierre", "Quentin", "Rosa",
+    "Sven" };
+  private static final String[] LAST_NAMES = { "Anderson", "Bertrand", "Castillo", "Dubois", "Eriksen", "Fontaine",
+    "Garcia", "Hughes", "Ivanov", "Jensen", "Kowalski", "Laurent", "Moreau", "Nakamura", "Okafor", "Petit", "Rossi",
+    "Schmidt", "Tanaka", "Vasquez" };
+  private static final String[] DEPARTMENTS = { "Accounting", "Engineering", "Human Resources", "Marketing",
+    "Product Development", "Sales", "Support" };
+
+  private static boolean bootstrapped;
+
+  private BenchmarkData()
+  {
+    // Prevent instantiation.
+  }
+
+  /** Bootstraps the client side structures of the Directory Server, including the default schema. */
+  public static synchronized void bootstrap()
+  {
+    if (!bootstrapped)
+    {
+      DirectoryServer.bootstrapClient();
+      bootstrapped = true;
+    }
+  }
+
+  /**
+   * Returns a new in-memory compressed schema using the default schema.
+   *
+   * @return a new in-memory compressed schema
+   */
+  public static CompressedSchema newCompressedSchema()
+  {
+    bootstrap();
+    return new CompressedSchema(DirectoryServer.getInstance().getServerContext());
+  }
+
+  /**
+   * Returns the DN of the generated user entry having the provided number.
+   *
+   * @param userNumber
+   *          the number of the user entry
+   * @return the DN of the generated user entry
+   */
+  public static String userDN(int userNumber)
+  {
+    return "uid=user." + userNumber + "," + SUFFIX;
+  }
+
+  /**
+   * Generates inetOrgPerson entries similar to the ones created by make-ldif.
+   *
+   * @param count
+   *          the number of entries to generate
+   * @param seed
+   *          the seed of the random values
+   * @return the generated entries
+   * @throws Exception
+   *           if the generated LDIF cannot be parsed
+   */
+  public static List<Entry> newUserEntries(int count, long seed) throws Exception
+  {
+    bootstrap();
+    final Random random = new Random(seed);
+    final StringBuilder ldif = new StringBuilder();
+    for (int i = 0; i < count; i++)
+    {
+      final String firstName = FIRST_NAMES[random.nextInt(FIRST_NAMES.length)];
+      final String lastName = LAST_NAMES[random.nextInt(LAST_NAMES.length)];
+      final String uid = "user." + i;
+      ldif.append("dn: ").append(userDN(i)).append('\n')
+          .append("objectClass: top\n")
+          .append("objectClass: person\n")
+          .append("objectClass: organizationalPerson\n")
+          .append("objectClass: inetOrgPerson\n")
+          .append("uid: ").append(uid).append('\n')
+          .append("cn: ").append(firstName).append(' ').append(lastName).append('\n')
+          .append("sn: ").append(lastName).append('\n')
+          .append("givenName: ").append(firstName).append('\n')
+          .append("initials: ").append(firstName.charAt(0)).append(lastName.charAt(0)).append('\n')
+          .append("employeeNumber: ").append(i).append('\n')
+          .append("mail: ").append(uid).append("@example.com\n")
+          .append("userPassword: password").append(random.nextInt(1000000)).append('\n')
+          .append("telephoneNumber: +1 ").append(100 + random.nextInt(900)).append(' ')
+          .append(1000000 + random.nextInt(9000000)).append('\n')
+          .append("homePhone: +1 ").append(100 + random.nextInt(900)).append(' ')
+          .append(1000000 + random.nextInt(9000000)).append('\n')
+          .append("street: ").append(random.nextInt(10000)).append(" Main Street\n")
+          .append("l: Grenoble\n")
+          .append("st: CA\n")
+          .append("postalCode: ").append(10000 + random.nextInt(90000)).append('\n')
+          .append("departmentNumber: ").append(random.nextInt(10000)).append('\n')
+          .append("ou: ").append(DEPARTMENTS[random.nextInt(DEPARTMENTS.length)]).append('\n')
+          .append("description: This is the description for ").append(firstName).append(' ').append(lastName)
+          .append(".\n")
+          .append('\n');
+    }
+
+    final LDIFImportConfig importConfig = new LDIFImportConfig(new StringReader(ldif.toString()));
+    importConfig.setValidateSchema(false);
+    try (LDIFReader reader = new LDIFReader(importConfig))
+    {
+      final List<Entry> entries = new ArrayList<>(count);
+      Entry entry;
+      while ((entry = reader.readEntry(false)) != null)
+      {
+        entries.add(entry);
+      }
+      return entries;
+    }
+  }
+}
@@ -0,0 +1,175 @@
+/*
+ * The contents of this file are subject to the terms of the Common Development and
+ * Distribution License (the License). You may not use this file except in compliance with the
+ * License.
+ *
+ * You can obtain a copy of the License at legal/CDDLv1.0.txt. See the License for the
+ * specific language governing permission and limitations under the License.
+ *
+ * When distributing Covered Software, include this CDDL Header Notice in each file and include
+ * the License file at legal/CDDLv1.0.txt. If applicable, add the following below the CDDL
+ * Header, with the fields enclosed by brackets [] replaced by your own identifying
+ * information: "Portions Copyright [year] [name of copyright owner]".
+ *
+ * Copyright 2026 ForgeRock AS.
+ */
+package org.opends.server.backends.pluggable;
+
+import java.util.Arrays;
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+
+import org.forgerock.opendj.ldap.ByteString;
+import org.opends.server.backends.pluggable.EntryIDSet.EntryIDSetCodec;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * Measures the {@link EntryIDSet} codecs and the set operations performed when evaluating indexed search filters.
+ * <p>
+ * The set operations start from encoded sets, as read from the index trees.
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(value = 2, jvmArgsAppend = { "-Xms2g", "-Xmx2g" })
+@State(Scope.Thread)
+public class EntryIDSetBenchmark
+{
+  private static final ByteString KEY = ByteString.valueOfUtf8("key");
+
+  /** The codec used to encode the sets: V1 (raw), V2 (compacted) or V4 (bitmap). */
+  @Param({ "V1", "V2", "V4" })
+  public String codec;
+
+  /** The number of entry IDs in each set. */
+  @Param({ "100", "10000", "1000000" })
+  public int size;
+
+  /** The ratio between the number of entry IDs in each set and the range they are picked from. */
+  @Param({ "0.01", "0.5" })
+  public double density;
+
+  private EntryIDSetCodec entryIDSetCodec;
+  private EntryIDSet set1;
+  private ByteString encodedSet1;
+  private ByteString encodedSet2;
+  private EntryID[] probes;
+  private int next;
+
+  /** Generates and encodes two sets of random entry IDs. */
+  @Setup
+  public void setup()
+  {
+    switch (codec)
+    {
+    case "V1":
+      entryIDSetCodec = EntryIDSet.CODEC_V1;
+      break;
+    case "V2":
+      entryIDSetCodec = EntryIDSet.CODEC_V2;
+      break;
+    case "V4":
+      entryIDSetCodec = EntryIDSet.CODEC_V4;
+      break;
+    default:
+      throw new IllegalArgumentException("Unknown codec " + codec);
+    }
+
+    final Random random = new Random(0);
+    final long range = (long) (size / density);
+    set1 = EntryIDSet.newDefinedSet(randomIDs(random, range));
+    encodedSet1 = entryIDSetCodec.encode(set1);
+    encodedSet2 = entryIDSetCodec.encode(EntryIDSet.newDefinedSet(randomIDs(random, range)));
+
+    probes = new EntryID[1024];
+    for (int i = 0; i < probes.length; i++)
+    {
+      probes[i] = new EntryID(1 + (long) (random.nextDouble() * range));
+    }
+  }
+
+  private long[] randomIDs(Random random, long range)
+  {
+    final long[] ids = new long[size];
+    int count = 0;
+    // Selection sampling returns distinct IDs in ascending order
+    for (long id = 1; id <= range && count < size; id++)
+    {
+      if (random.nextDouble() * (range - id + 1) < size - count)
+      {
+        ids[count++] = id;
+      }
+    }
+    return count == size ? ids : Arrays.copyOf(ids, count);
+  }
+
+  /**
+   * Encodes a set.
+   *
+   * @return the encoded set
+   */
+  @Benchmark
+  public ByteString encode()
+  {
+    return entryIDSetCodec.encode(set1);
+  }
+
+  /**
+   * Decodes a set.
+   *
+   * @return the size of the decoded set
+   */
+  @Benchmark
+  public long decode()
+  {
+    return entryIDSetCodec.decode(KEY, encodedSet1).size();
+  }
+
+  /**
+   * Decodes two sets and computes their intersection, as done for AND filters.
+   *
+   * @return the size of the intersection
+   */
+  @Benchmark
+  public long decodeAndIntersect()
+  {
+    final EntryIDSet result = entryIDSetCodec.decode(KEY, encodedSet1);
+    result.retainAll(entryIDSetCodec.decode(KEY, encodedSet2));
+    return result.size();
+  }
+
+  /**
+   * Decodes two sets and computes their union, as done for OR filters.
+   *
+   * @return the size of the union
+   */
+  @Benchmark
+  public long decodeAndUnion()
+  {
+    return EntryIDSet.newSetFromUnion(Arrays.asList(
+        entryIDSetCodec.decode(KEY, encodedSet1), entryIDSetCodec.decode(KEY, encodedSet2))).size();
+  }
+
+  /**
+   * Looks up an entry ID in a decoded set.
+   *
+   * @return whether the set contains the entry ID
+   */
+  @Benchmark
+  public boolean contains()
+  {
+    next = (next + 1) & (probes.length - 1);
+    return set1.contains(probes[next]);
+  }
+}
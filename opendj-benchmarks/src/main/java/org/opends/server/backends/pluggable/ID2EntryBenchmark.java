@@ -0,0 +1,153 @@
+/*
+ * The contents of this file are subject to the terms of the Common Development and
+ * Distribution License (the License). You may not use this file except in compliance with the
+ * License.
+ *
+ * You can obtain a copy of the License at legal/CDDLv1.0.txt. See the License for the
+ * specific language governing permission and limitations under the License.
+ *
+ * When distributing Covered Software, include this CDDL Header Notice in each file and include
+ * the License file at legal/CDDLv1.0.txt. If applicable, add the following below the CDDL
+ * Header, with the fields enclosed by brackets [] replaced by your own identifying
+ * information: "Portions Copyright [year] [name of copyright owner]".
+ *
+ * Copyright 2026 ForgeRock AS.
+ */
+package org.opends.server.backends.pluggable;
+
+import java.lang.reflect.InvocationHandler;
+import java.lang.reflect.Method;
+import java.lang.reflect.Proxy;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+import org.forgerock.opendj.ldap.ByteString;
+import org.opends.server.BenchmarkData;
+import org.opends.server.api.CompressedSchema;
+import org.opends.server.backends.pluggable.spi.TreeName;
+import org.opends.server.backends.pluggable.spi.WriteableTransaction;
+import org.opends.server.types.Entry;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+/** Measures the conversion of entries to and from the id2entry tree format, for each entry compression option. */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(value = 2, jvmArgsAppend = { "-Xms1g", "-Xmx1g" })
+@State(Scope.Thread)
+public class ID2EntryBenchmark
+{
+  /** Enough entries to train a compression dictionary during the setup. */
+  private static final int NB_ENTRIES = 4096;
+
+  /** The compression of the entries: none, or deflate or lz with or without a trained dictionary. */
+  @Param({ "none", "deflate", "lz", "deflate-dictionary", "lz-dictionary" })
+  public String compression;
+
+  private Entry[] entries;
+  private ByteString[] encodedEntries;
+  private CompressedSchema compressedSchema;
+  private DataConfig dataConfig;
+  private ID2Entry id2entry;
+  private int next;
+
+  /**
+   * Generates the entries, trains the dictionary if needed and encodes the entries.
+   *
+   * @throws Exception
+   *           if the entries cannot be generated or encoded
+   */
+  @Setup
+  public void setup() throws Exception
+  {
+    compressedSchema = BenchmarkData.newCompressedSchema();
+    dataConfig = new DataConfig.Builder()
+        .encode(true)
+        .schema(compressedSchema)
+        .compress(!"none".equals(compression))
+        .compressionCodec(compression.startsWith("lz") ? EntryCompressionCodec.LZ : EntryCompressionCodec.DEFLATE)
+        .compressionDictionary(compression.endsWith("-dictionary"))
+        .build();
+
+    final TreeName treeName = new TreeName("ou=People,dc=example,dc=com", "id2entry");
+    final CompressionDictionaries dictionaries =
+        new CompressionDictionaries(new TreeName(treeName.getBaseDN(), SuffixContainer.COMPRESSION_DICTIONARIES_NAME));
+    id2entry = new ID2Entry(treeName, dataConfig, dictionaries);
+
+    final List<Entry> generated = BenchmarkData.newUserEntries(NB_ENTRIES, 0);
+    entries = generated.toArray(new Entry[NB_ENTRIES]);
+    final WriteableTransaction txn = newDiscardingTransaction();
+    for (int i = 0; i < NB_ENTRIES; i++)
+    {
+      // Samples the entries and trains the dictionary, like an import does
+      id2entry.importPut(txn, new EntryID(i + 1), entries[i]);
+    }
+
+    encodedEntries = new ByteString[NB_ENTRIES];
+    for (int i = 0; i < NB_ENTRIES; i++)
+    {
+      encodedEntries[i] = id2entry.entryToDatabase(entries[i], dataConfig);
+    }
+  }
+
+  /** Returns a transaction ignoring all the writes: the benchmark does not measure the storage. */
+  private static WriteableTransaction newDiscardingTransaction()
+  {
+    return (WriteableTransaction) Proxy.newProxyInstance(WriteableTransaction.class.getClassLoader(),
+        new Class<?>[] { WriteableTransaction.class }, new InvocationHandler()
+        {
+          @Override
+          public Object invoke(Object proxy, Method method, Object[] args)
+          {
+            if ("put".equals(method.getName()))
+            {
+              return null;
+            }
+            throw new UnsupportedOperationException(method.getName());
+          }
+        });
+  }
+
+  private int nextIndex()
+  {
+    next = (next + 1) & (NB_ENTRIES - 1);
+    return next;
+  }
+
+  /**
+   * Encodes and compresses an entry.
+   *
+   * @return the id2entry record
+   * @throws Exception
+   *           if the entry cannot be encoded
+   */
+  @Benchmark
+  public ByteString entryToDatabase() throws Exception
+  {
+    return id2entry.entryToDatabase(entries[nextIndex()], dataConfig);
+  }
+
+  /**
+   * Decompresses and decodes an entry.
+   *
+   * @return the decoded entry
+   * @throws Exception
+   *           if the entry cannot be decoded
+   */
+  @Benchmark
+  public Entry entryFromDatabase() throws Exception
+  {
+    return id2entry.entryFromDatabase(encodedEntries[nextIndex()], compressedSchema);
+  }
+}
@@ -0,0 +1,115 @@
+/*
+ * The contents of this file are subject to the terms of the Common Development and
+ * Distribution License (the License). You may not use this file except in compliance with the
+ * License.
+ *
+ * You can obtain a copy of the License at legal/CDDLv1.0.txt. See the License for the
+ * specific language governing permission and limitations under the License.
+ *
+ * When distributing Covered Software, include this CDDL Header Notice in each file and include
+ * the License file at legal/CDDLv1.0.txt. If applicable, add the following below the CDDL
+ * Header, with the fields enclosed by brackets [] replaced by your own identifying
+ * information: "Portions Copyright [year] [name of copyright owner]".
+ *
+ * Copyright 2026 ForgeRock AS.
+ */
+package org.opends.server.types;
+
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+import org.forgerock.opendj.ldap.ByteString;
+import org.forgerock.opendj.ldap.ByteStringBuilder;
+import org.opends.server.BenchmarkData;
+import org.opends.server.api.CompressedSchema;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+/** Measures the encoding and decoding of entries, with and without compressed attribute descriptions. */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(value = 2, jvmArgsAppend = { "-Xms1g", "-Xmx1g" })
+@State(Scope.Thread)
+public class EntryCodecBenchmark
+{
+  private static final int NB_ENTRIES = 1024;
+
+  /** Whether attribute descriptions and object classes are replaced by their compressed schema token. */
+  @Param({ "true", "false" })
+  public boolean compressSchema;
+
+  private Entry[] entries;
+  private ByteString[] encodedEntries;
+  private CompressedSchema compressedSchema;
+  private EntryEncodeConfig encodeConfig;
+  private final ByteStringBuilder buffer = new ByteStringBuilder();
+  private int next;
+
+  /**
+   * Generates and encodes the entries.
+   *
+   * @throws Exception
+   *           if the entries cannot be generated
+   */
+  @Setup
+  public void setup() throws Exception
+  {
+    compressedSchema = BenchmarkData.newCompressedSchema();
+    encodeConfig = new EntryEncodeConfig(false, compressSchema, compressSchema, compressedSchema);
+
+    final List<Entry> generated = BenchmarkData.newUserEntries(NB_ENTRIES, 0);
+    entries = generated.toArray(new Entry[NB_ENTRIES]);
+    encodedEntries = new ByteString[NB_ENTRIES];
+    for (int i = 0; i < NB_ENTRIES; i++)
+    {
+      final ByteStringBuilder builder = new ByteStringBuilder();
+      entries[i].encode(builder, encodeConfig);
+      encodedEntries[i] = builder.toByteString();
+    }
+  }
+
+  private int nextIndex()
+  {
+    next = (next + 1) & (NB_ENTRIES - 1);
+    return next;
+  }
+
+  /**
+   * Encodes an entry.
+   *
+   * @return the encoded entry
+   * @throws DirectoryException
+   *           if the entry cannot be encoded
+   */
+  @Benchmark
+  public ByteStringBuilder encode() throws DirectoryException
+  {
+    buffer.clear();
+    entries[nextIndex()].encode(buffer, encodeConfig);
+    return buffer;
+  }
+
+  /**
+   * Decodes an entry.
+   *
+   * @return the decoded entry
+   * @throws DirectoryException
+   *           if the entry cannot be decoded
+   */
+  @Benchmark
+  public Entry decode() throws DirectoryException
+  {
+    return Entry.decode(encodedEntries[nextIndex()].asReader(), compressedSchema);
+  }
+}
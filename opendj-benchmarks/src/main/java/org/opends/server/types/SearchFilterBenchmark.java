@@ -0,0 +1,98 @@
+/*
+ * The contents of this file are subject to the terms of the Common Development and
+ * Distribution License (the License). You may not use this file except in compliance with the
+ * License.
+ *
+ * You can obtain a copy of the License at legal/CDDLv1.0.txt. See the License for the
+ * specific language governing permission and limitations under the License.
+ *
+ * When distributing Covered Software, include this CDDL Header Notice in each file and include
+ * the License file at legal/CDDLv1.0.txt. If applicable, add the following below the CDDL
+ * Header, with the fields enclosed by brackets [] replaced by your own identifying
+ * information: "Portions Copyright [year] [name of copyright owner]".
+ *
+ * Copyright 2026 ForgeRock AS.
+ */
+package org.opends.server.types;
+
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+import org.opends.server.BenchmarkData;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+/** Measures the parsing of search filters and their evaluation against entries. */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(value = 2, jvmArgsAppend = { "-Xms1g", "-Xmx1g" })
+@State(Scope.Thread)
+public class SearchFilterBenchmark
+{
+  private static final int NB_ENTRIES = 1024;
+
+  /** The search filter evaluated against the entries. */
+  @Param({
+    "(uid=user.42)",
+    "(&(objectClass=inetOrgPerson)(sn=Garcia))",
+    "(|(givenName=Mei)(givenName=Luca)(givenName=Olga))",
+    "(cn=*Nakamura)",
+    "(&(employeeNumber>=500)(!(ou=Sales)))" })
+  public String filter;
+
+  private Entry[] entries;
+  private SearchFilter searchFilter;
+  private int next;
+
+  /**
+   * Generates the entries and parses the search filter.
+   *
+   * @throws Exception
+   *           if the entries cannot be generated or the filter is invalid
+   */
+  @Setup
+  public void setup() throws Exception
+  {
+    final List<Entry> generated = BenchmarkData.newUserEntries(NB_ENTRIES, 0);
+    entries = generated.toArray(new Entry[NB_ENTRIES]);
+    searchFilter = SearchFilter.createFilterFromString(filter);
+  }
+
+  /**
+   * Parses the search filter.
+   *
+   * @return the parsed search filter
+   * @throws DirectoryException
+   *           if the search filter is invalid
+   */
+  @Benchmark
+  public SearchFilter parse() throws DirectoryException
+  {
+    return SearchFilter.createFilterFromString(filter);
+  }
+
+  /**
+   * Evaluates the search filter against an entry.
+   *
+   * @return whether the entry matches the search filter
+   * @throws DirectoryException
+   *           if the search filter cannot be evaluated
+   */
+  @Benchmark
+  public boolean matchesEntry() throws DirectoryException
+  {
+    next = (next + 1) & (NB_ENTRIES - 1);
+    return searchFilter.matchesEntry(entries[next]);
+  }
+}
@@ -16,6 +16,7 @@
  */
 package org.opends.server.api;
 
+import java.util.Collection;
 import java.util.List;
 import java.util.Set;
 import java.util.concurrent.atomic.AtomicReference;
@@ -212,6 +213,27 @@ public abstract class Group<T extends GroupImplementationCfg>
    */
   public abstract List<DN> getNestedGroupDNs();
 
+  /**
+   * Retrieves the DNs explicitly listed as members of this group,
+   * including the DNs of nested groups.  The group manager relies on
+   * them to maintain its reverse membership index, by considering
+   * that the members of any listed group are also members of this
+   * group.  Note that this is a point-in-time determination, and the
+   * caller must not cache the result.
+   * <BR><BR>
+   * The default implementation returns {@code null}, which indicates
+   * that the members of this group cannot be enumerated from its
+   * definition (e.g., dynamic groups), so that membership must be
+   * determined with the {@code isMember} methods instead.
+   *
+   * @return  The DNs explicitly listed as members of this group, or
+   *          {@code null} if they cannot be enumerated.
+   */
+  public Collection<DN> getDirectMemberDNs()
+  {
+    return null;
+  }
+
   /**
    * Attempts to add the provided group DN as a nested group within
    * this group.  The change should be committed to persistent storage
@@ -40,6 +40,7 @@ import org.opends.server.core.ModifyDNOperation;
 import org.opends.server.core.ModifyOperation;
 import org.opends.server.core.PersistentSearch;
 import org.opends.server.core.PersistentSearch.CancellationCallback;
+import org.opends.server.core.PersistentSearchNotifier;
 import org.opends.server.core.SearchOperation;
 import org.opends.server.core.ServerContext;
 import org.opends.server.monitors.LocalBackendMonitor;
@@ -80,6 +81,9 @@ public abstract class LocalBackend<C extends Configuration> extends Backend<C>
   /** The set of persistent searches registered with this backend. */
   private final ConcurrentLinkedQueue<PersistentSearch> persistentSearches = new ConcurrentLinkedQueue<>();
 
+  /** Notifies the persistent searches registered with this backend of the changes made to its entries. */
+  private final PersistentSearchNotifier persistentSearchNotifier = new PersistentSearchNotifier(this);
+
   /** The backend monitor associated with this backend. */
   private LocalBackendMonitor backendMonitor;
 
@@ -105,6 +109,7 @@ public abstract class LocalBackend<C extends Configuration> extends Backend<C>
       psearch.cancel();
     }
     persistentSearches.clear();
+    persistentSearchNotifier.shutdown();
     closeBackend();
   }
 
@@ -668,6 +673,7 @@ public abstract class LocalBackend<C extends Configuration> extends Backend<C>
   public void registerPersistentSearch(PersistentSearch persistentSearch) throws DirectoryException
   {
     persistentSearches.add(persistentSearch);
+    persistentSearchNotifier.register(persistentSearch);
 
     persistentSearch.registerCancellationCallback(new CancellationCallback()
     {
@@ -675,6 +681,7 @@ public abstract class LocalBackend<C extends Configuration> extends Backend<C>
       public void persistentSearchCancelled(PersistentSearch psearch)
       {
         persistentSearches.remove(psearch);
+        persistentSearchNotifier.deregister(psearch);
       }
     });
   }
@@ -691,6 +698,17 @@ public abstract class LocalBackend<C extends Configuration> extends Backend<C>
     return persistentSearches;
   }
 
+  /**
+   * Returns the notifier which the operations performed against this local
+   * backend use to notify the persistent searches of their changes.
+   *
+   * @return the persistent search notifier of this local backend
+   */
+  public PersistentSearchNotifier getPersistentSearchNotifier()
+  {
+    return persistentSearchNotifier;
+  }
+
   /**
    * Retrieves the total number of entries contained in this backend,
    * if that information is available.
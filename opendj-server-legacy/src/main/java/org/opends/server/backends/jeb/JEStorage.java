@@ -11,7 +11,7 @@
  * Header, with the fields enclosed by brackets [] replaced by your own identifying
  * information: "Portions Copyright [year] [name of copyright owner]".
  *
- * Copyright 2015-2016 ForgeRock AS.
+ * Copyright 2015-2026 ForgeRock AS.
  */
 package org.opends.server.backends.jeb;
 
@@ -938,6 +938,13 @@ public final class JEStorage implements Storage, Backupable, ConfigurationChange
     return true;
   }
 
+  @Override
+  public boolean supportsSharedReadTransactions()
+  {
+    // Reads are not transactional and the trees are opened in a concurrent map.
+    return true;
+  }
+
   @Override
   public File getDirectory()
   {
@@ -11,7 +11,7 @@
  * Header, with the fields enclosed by brackets [] replaced by your own identifying
  * information: "Portions Copyright [year] [name of copyright owner]".
  *
- * Copyright 2014-2016 ForgeRock AS.
+ * Copyright 2014-2026 ForgeRock AS.
  */
 package org.opends.server.backends.pdb;
 
@@ -1081,6 +1081,13 @@ public final class PDBStorage implements Storage, Backupable, ConfigurationChang
     return true;
   }
 
+  @Override
+  public boolean supportsSharedReadTransactions()
+  {
+    // Persistit transactions and exchanges are bound to the thread which uses them.
+    return false;
+  }
+
   @Override
   public File getDirectory()
   {
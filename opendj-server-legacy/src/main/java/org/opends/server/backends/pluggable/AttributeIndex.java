@@ -52,6 +52,8 @@ import org.forgerock.opendj.ldap.spi.Indexer;
 import org.forgerock.opendj.ldap.spi.IndexingOptions;
 import org.forgerock.opendj.server.config.meta.BackendIndexCfgDefn.IndexType;
 import org.forgerock.opendj.server.config.server.BackendIndexCfg;
+import org.opends.server.backends.pluggable.State.IndexFlag;
+import org.opends.server.backends.pluggable.spi.Storage;
 import org.opends.server.backends.pluggable.spi.StorageRuntimeException;
 import org.opends.server.backends.pluggable.spi.TreeName;
 import org.opends.server.backends.pluggable.spi.WriteOperation;
@@ -113,19 +115,36 @@ class AttributeIndex implements ConfigurationChangeListener<BackendIndexCfg>, Cl
 
   static final String PROTECTED_INDEX_ID = ":hash";
 
+  /**
+   * Suffix of the index ID of the shadow tree of an index.
+   * <p>
+   * An index rebuilt online is built in the tree it is not stored in, then the trees are swapped: the content of an
+   * index alternates between its primary tree and its shadow tree.
+   */
+  private static final String SHADOW_TREE_SUFFIX = "#shadow";
+
   /** This class implements an attribute indexer for matching rules in a Backend. */
   static final class MatchingRuleIndex extends DefaultIndex
   {
     private final AttributeType attributeType;
     private final Indexer indexer;
+    private final boolean inShadowTree;
 
     private MatchingRuleIndex(EntryContainer entryContainer, AttributeType attributeType, State state, Indexer indexer,
-        int indexEntryLimit, CryptoSuite cryptoSuite)
+        int indexEntryLimit, CryptoSuite cryptoSuite, boolean inShadowTree)
     {
-      super(getIndexName(entryContainer, attributeType, indexer.getIndexID()),
+      super(getIndexName(entryContainer, attributeType, indexer.getIndexID(), inShadowTree),
           state, indexEntryLimit, entryContainer, cryptoSuite);
       this.attributeType = attributeType;
       this.indexer = indexer;
+      this.inShadowTree = inShadowTree;
+    }
+
+    /** Returns the name of the primary tree of this index, where the index records its location. */
+    TreeName getPrimaryTreeName()
+    {
+      final TreeName name = getName();
+      return inShadowTree ? new TreeName(name.getBaseDN(), getIndexId(name)) : name;
     }
 
     Set<ByteString> indexEntry(Entry entry)
@@ -391,7 +410,7 @@ class AttributeIndex implements ConfigurationChangeListener<BackendIndexCfg>, Cl
       {
         indexes.put(indexID,
             new MatchingRuleIndex(entryContainer, attributeType, state, indexerEntry.getKey(),
-                indexEntryLimit, cryptoSuite));
+                indexEntryLimit, cryptoSuite, false));
       }
     }
     return indexes;
@@ -426,9 +445,33 @@ class AttributeIndex implements ConfigurationChangeListener<BackendIndexCfg>, Cl
     return indexers;
   }
 
-  private static TreeName getIndexName(EntryContainer entryContainer, AttributeType attrType, String indexID)
+  private static TreeName getIndexName(EntryContainer entryContainer, AttributeType attrType, String indexID,
+      boolean shadowTree)
+  {
+    return new TreeName(entryContainer.getTreePrefix(),
+        attrType.getNameOrOID() + "." + indexID + (shadowTree ? SHADOW_TREE_SUFFIX : ""));
+  }
+
+  /**
+   * Returns the ID of the index stored in the provided tree, whether it is the primary or the shadow tree of the
+   * index.
+   *
+   * @param treeName
+   *          the name of a tree
+   * @return the ID of the index stored in the tree
+   */
+  static String getIndexId(TreeName treeName)
+  {
+    final String indexId = treeName.getIndexId();
+    return indexId.endsWith(SHADOW_TREE_SUFFIX)
+        ? indexId.substring(0, indexId.length() - SHADOW_TREE_SUFFIX.length())
+        : indexId;
+  }
+
+  private MatchingRuleIndex newIndex(MatchingRuleIndex index, boolean inShadowTree)
   {
-    return new TreeName(entryContainer.getTreePrefix(), attrType.getNameOrOID() + "." + indexID);
+    return new MatchingRuleIndex(entryContainer, index.attributeType, state, index.indexer,
+        index.getIndexEntryLimit(), cryptoSuite, inShadowTree);
   }
 
   /**
@@ -440,6 +483,16 @@ class AttributeIndex implements ConfigurationChangeListener<BackendIndexCfg>, Cl
    */
   void open(WriteableTransaction txn, boolean createOnDemand) throws StorageRuntimeException
   {
+    final Map<String, MatchingRuleIndex> indexes = new HashMap<>(indexIdToIndexes.size());
+    for (Map.Entry<String, MatchingRuleIndex> entry : indexIdToIndexes.entrySet())
+    {
+      // Indexes last rebuilt online may be stored in their shadow tree
+      final MatchingRuleIndex index = entry.getValue();
+      final boolean inShadowTree = state.getIndexFlags(txn, index.getPrimaryTreeName()).contains(IndexFlag.SHADOW);
+      indexes.put(entry.getKey(), inShadowTree != index.inShadowTree ? newIndex(index, inShadowTree) : index);
+    }
+    indexIdToIndexes = Collections.unmodifiableMap(indexes);
+
     for (Index index : indexIdToIndexes.values())
     {
       index.open(txn, createOnDemand);
@@ -447,6 +500,153 @@ class AttributeIndex implements ConfigurationChangeListener<BackendIndexCfg>, Cl
     config.addChangeListener(this);
   }
 
+  /**
+   * Records again which indexes are stored in their shadow tree, after the state of the entry container was deleted.
+   *
+   * @param txn
+   *          a non null transaction
+   */
+  void writeLocations(WriteableTransaction txn)
+  {
+    for (MatchingRuleIndex index : indexIdToIndexes.values())
+    {
+      if (index.inShadowTree)
+      {
+        state.addFlagsToIndex(txn, index.getPrimaryTreeName(), IndexFlag.SHADOW);
+      }
+    }
+  }
+
+  /**
+   * Creates an empty copy of the provided index in the tree where it is not stored, so that it can be rebuilt online
+   * while the index is still in use. The copy is not used until it is committed.
+   *
+   * @param storage
+   *          the storage where the index is stored
+   * @param index
+   *          the index to rebuild, which must belong to this attribute index
+   * @return the empty copy of the index
+   * @throws Exception
+   *           if a problem occurs with the storage
+   */
+  MatchingRuleIndex createRebuildTarget(Storage storage, MatchingRuleIndex index) throws Exception
+  {
+    final MatchingRuleIndex target = newIndex(index, !index.inShadowTree);
+    // Delete what an interrupted rebuild may have left in the tree before reopening it
+    storage.write(new WriteOperation()
+    {
+      @Override
+      public void run(WriteableTransaction txn) throws Exception
+      {
+        target.open(txn, true);
+      }
+    });
+    storage.write(new WriteOperation()
+    {
+      @Override
+      public void run(WriteableTransaction txn) throws Exception
+      {
+        deleteRebuildTarget(txn, target);
+      }
+    });
+    storage.write(new WriteOperation()
+    {
+      @Override
+      public void run(WriteableTransaction txn) throws Exception
+      {
+        target.open(txn, true);
+      }
+    });
+    return target;
+  }
+
+  /**
+   * Deletes a copy of an index which has not been committed.
+   *
+   * @param txn
+   *          a non null transaction
+   * @param target
+   *          the copy of the index created by {@link #createRebuildTarget(Storage, MatchingRuleIndex)}
+   */
+  void deleteRebuildTarget(WriteableTransaction txn, MatchingRuleIndex target)
+  {
+    target.delete(txn);
+    if (target.inShadowTree)
+    {
+      state.deleteRecord(txn, target.getName());
+    }
+    else
+    {
+      // The state of the primary tree also records that the index is stored in its shadow tree
+      state.removeFlagsFromIndex(txn, target.getName(), IndexFlag.TRUSTED);
+    }
+  }
+
+  /**
+   * Records that the rebuilt copy of an index replaces the index. Writes to the index must be blocked until
+   * {@link #replaceIndex(MatchingRuleIndex, MatchingRuleIndex)} is called.
+   *
+   * @param txn
+   *          a non null transaction
+   * @param index
+   *          the index in use
+   * @param target
+   *          the rebuilt copy of the index
+   */
+  void commitRebuildTarget(WriteableTransaction txn, MatchingRuleIndex index, MatchingRuleIndex target)
+  {
+    target.setTrusted(txn, true);
+    final TreeName primaryTreeName = index.getPrimaryTreeName();
+    if (target.inShadowTree)
+    {
+      state.addFlagsToIndex(txn, primaryTreeName, IndexFlag.SHADOW);
+      state.removeFlagsFromIndex(txn, primaryTreeName, IndexFlag.TRUSTED);
+    }
+    else
+    {
+      state.removeFlagsFromIndex(txn, primaryTreeName, IndexFlag.SHADOW);
+    }
+  }
+
+  /**
+   * Replaces an index by its rebuilt copy, once committed.
+   *
+   * @param index
+   *          the index in use
+   * @param target
+   *          the rebuilt copy of the index
+   * @return {@code false} if the index was removed from the configuration meanwhile
+   */
+  synchronized boolean replaceIndex(MatchingRuleIndex index, MatchingRuleIndex target)
+  {
+    final String indexId = index.indexer.getIndexID();
+    if (indexIdToIndexes.get(indexId) != index)
+    {
+      return false;
+    }
+    final Map<String, MatchingRuleIndex> indexes = new HashMap<>(indexIdToIndexes);
+    indexes.put(indexId, target);
+    indexIdToIndexes = Collections.unmodifiableMap(indexes);
+    return true;
+  }
+
+  /**
+   * Deletes the tree of an index which has been replaced by its rebuilt copy.
+   *
+   * @param txn
+   *          a non null transaction
+   * @param index
+   *          the replaced index
+   */
+  void deleteReplacedIndex(WriteableTransaction txn, MatchingRuleIndex index)
+  {
+    index.delete(txn);
+    if (index.inShadowTree)
+    {
+      state.deleteRecord(txn, index.getName());
+    }
+  }
+
   @Override
   public void close()
   {
@@ -765,7 +965,30 @@ class AttributeIndex implements ConfigurationChangeListener<BackendIndexCfg>, Cl
     }
   }
 
-  private static IndexQuery getIndexQuery(IndexQueryFactory<IndexQuery> indexQueryFactory,
+  /**
+   * Estimates the number of entry IDs which would be returned by evaluating a filter against the indexes.
+   *
+   * @param estimator the estimator to use, which knows about the statistics of the indexes
+   * @param indexFilterType the index type filter
+   * @param filter The filter.
+   * @return The estimated number of candidate entries, or {@link IndexStatistics#UNKNOWN} if no estimate is available.
+   */
+  static long estimateFilter(IndexCardinalityEstimator estimator, IndexFilterType indexFilterType,
+      SearchFilter filter)
+  {
+    try
+    {
+      return getIndexQuery(estimator, indexFilterType, filter);
+    }
+    catch (DecodeException e)
+    {
+      // The filter will be evaluated to an empty set, see evaluateFilter()
+      logger.traceException(e);
+      return 0;
+    }
+  }
+
+  private static <T> T getIndexQuery(IndexQueryFactory<T> indexQueryFactory,
       IndexFilterType indexFilterType, SearchFilter filter) throws DecodeException
   {
     MatchingRule rule;
@@ -952,7 +1175,7 @@ class AttributeIndex implements ConfigurationChangeListener<BackendIndexCfg>, Cl
           {
             for (MatchingRuleIndex removedIndex : removedIndexes.values())
             {
-              deleteIndex(txn, entryContainer, removedIndex);
+              deleteIndex(txn, removedIndex);
             }
           }
         });
@@ -1016,12 +1239,16 @@ class AttributeIndex implements ConfigurationChangeListener<BackendIndexCfg>, Cl
     }
   }
 
-  private static void deleteIndex(WriteableTransaction txn, EntryContainer entryContainer, Index index)
+  private void deleteIndex(WriteableTransaction txn, MatchingRuleIndex index)
   {
     entryContainer.exclusiveLock.lock();
     try
     {
       entryContainer.deleteTree(txn, index);
+      if (index.inShadowTree)
+      {
+        state.deleteRecord(txn, index.getPrimaryTreeName());
+      }
     }
     finally
     {
@@ -1171,10 +1398,14 @@ class AttributeIndex implements ConfigurationChangeListener<BackendIndexCfg>, Cl
   void closeAndDelete(WriteableTransaction txn)
   {
     close();
-    for (Index index : indexIdToIndexes.values())
+    for (MatchingRuleIndex index : indexIdToIndexes.values())
     {
       index.delete(txn);
       state.deleteRecord(txn, index.getName());
+      if (index.inShadowTree)
+      {
+        state.deleteRecord(txn, index.getPrimaryTreeName());
+      }
     }
   }
 }
@@ -36,6 +36,7 @@ import org.forgerock.i18n.slf4j.LocalizedLogger;
 import org.forgerock.opendj.config.server.ConfigChangeResult;
 import org.forgerock.opendj.config.server.ConfigException;
 import org.forgerock.opendj.config.server.ConfigurationChangeListener;
+import org.forgerock.opendj.ldap.ByteString;
 import org.forgerock.opendj.ldap.ConditionResult;
 import org.forgerock.opendj.ldap.DN;
 import org.forgerock.opendj.ldap.ResultCode;
@@ -456,6 +457,45 @@ public abstract class BackendImpl<C extends PluggableBackendCfg> extends LocalBa
     }
   }
 
+  /**
+   * Retrieves the DNs of the entries below the provided base DN having the provided value for an attribute,
+   * by probing the equality index of the attribute rather than by processing a search operation.
+   *
+   * @param baseDN
+   *          the DN of the entry below which matching entries are looked for, which must be handled by this backend
+   * @param attributeType
+   *          the attribute type
+   * @param value
+   *          the assertion value
+   * @param excludedDN
+   *          the DN of an entry to ignore, may be {@code null}
+   * @param maxEntries
+   *          the maximum number of DNs to return
+   * @return the DNs of at most {@code maxEntries} matching entries, or {@code null} if the equality index of
+   *         the attribute cannot be used to answer, in which case a search operation must be processed instead
+   * @throws DirectoryException
+   *           If a problem occurs while trying to retrieve the entries.
+   */
+  public List<DN> getEntryDNsByEqualityIndex(DN baseDN, AttributeType attributeType, ByteString value, DN excludedDN,
+      int maxEntries) throws DirectoryException
+  {
+    EntryContainer ec = accessBegin(null, baseDN);
+    ec.sharedLock.lock();
+    try
+    {
+      return ec.getEntryDNsByEqualityIndex(baseDN, attributeType, value, excludedDN, maxEntries);
+    }
+    catch (StorageRuntimeException e)
+    {
+      throw createDirectoryException(e);
+    }
+    finally
+    {
+      ec.sharedLock.unlock();
+      accessEnd();
+    }
+  }
+
   @Override
   public void addEntry(Entry entry, AddOperation addOperation) throws DirectoryException, CanceledOperationException
   {
@@ -759,6 +799,8 @@ public abstract class BackendImpl<C extends PluggableBackendCfg> extends LocalBa
       if (openRootContainer)
       {
         rootContainer = newRootContainer(AccessMode.READ_WRITE);
+        // Nothing else uses the backend: the faster offline rebuild can be used.
+        rebuildConfig.setOnline(false);
       }
       getImportStrategy(rootContainer).rebuildIndex(rebuildConfig);
     }
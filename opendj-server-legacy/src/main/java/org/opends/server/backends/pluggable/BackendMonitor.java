@@ -102,7 +102,7 @@ class BackendMonitor extends MonitorProvider<MonitorProviderCfg>
   @Override
   public MonitorData getMonitorData()
   {
-    MonitorData monitorAttrs = new MonitorData(5);
+    MonitorData monitorAttrs = new MonitorData(8);
 
     Collection<String> needReindexValues = createNeedReindexValues();
     if (!needReindexValues.isEmpty())
@@ -118,6 +118,22 @@ class BackendMonitor extends MonitorProvider<MonitorProviderCfg>
       monitorAttrs.add("filter-use-unindexed", unindexedSearchCount);
     }
 
+    final GroupCommitWriter groupCommitWriter = rootContainer.getGroupCommitWriter();
+    if (groupCommitWriter.isEnabled())
+    {
+      monitorAttrs.add("group-commit-groups", groupCommitWriter.getGroupsCommitted());
+      monitorAttrs.add("group-commit-grouped-writes", groupCommitWriter.getGroupedWritesCommitted());
+      monitorAttrs.add("group-commit-groups-rolled-back", groupCommitWriter.getGroupsRolledBack());
+    }
+
+    final EntryIDSorter entryIDSorter = rootContainer.getEntryIDSorter();
+    monitorAttrs.add("unindexed-sort-count", entryIDSorter.getSortCount());
+    monitorAttrs.add("unindexed-sort-top-keys-count", entryIDSorter.getTopKeysSortCount());
+    monitorAttrs.add("unindexed-sort-spilled-count", entryIDSorter.getSpilledSortCount());
+    monitorAttrs.add("unindexed-sort-spill-files", entryIDSorter.getSpillFileCount());
+    monitorAttrs.add("unindexed-sort-spilled-keys", entryIDSorter.getSpilledKeyCount());
+    monitorAttrs.add("unindexed-sort-memory-used", entryIDSorter.getMemoryUsed());
+
     return monitorAttrs;
   }
 
@@ -0,0 +1,136 @@
+/*
+ * The contents of this file are subject to the terms of the Common Development and
+ * Distribution License (the License). You may not use this file except in compliance with the
+ * License.
+ *
+ * You can obtain a copy of the License at legal/CDDLv1.0.txt. See the License for the
+ * specific language governing permission and limitations under the License.
+ *
+ * When distributing Covered Software, include this CDDL Header Notice in each file and include
+ * the License file at legal/CDDLv1.0.txt. If applicable, add the following below the CDDL
+ * Header, with the fields enclosed by brackets [] replaced by your own identifying
+ * information: "Portions Copyright [year] [name of copyright owner]".
+ *
+ * Copyright 2026 ForgeRock AS.
+ */
+package org.opends.server.backends.pluggable;
+
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+import org.forgerock.opendj.ldap.ByteString;
+import org.forgerock.util.Reject;
+import org.opends.server.backends.pluggable.spi.Cursor;
+import org.opends.server.backends.pluggable.spi.StorageRuntimeException;
+import org.opends.server.backends.pluggable.spi.TreeName;
+import org.opends.server.backends.pluggable.spi.WriteableTransaction;
+
+/**
+ * Stores the dictionaries used to compress the entries of the id2entry tree.
+ * <p>
+ * The key is the dictionary identifier and the value is the dictionary content. Dictionaries are never modified once
+ * written, because the entries compressed against them must remain readable. All the dictionaries are kept in memory:
+ * there are only a few of them and they are needed to decode every compressed entry.
+ */
+final class CompressionDictionaries extends AbstractTree
+{
+  private final Map<Integer, CompressionDictionary> dictionaries = new ConcurrentHashMap<>();
+  /** The dictionary to use for compressing new entries, {@code null} if no dictionary has been trained yet. */
+  private volatile CompressionDictionary current;
+
+  CompressionDictionaries(TreeName name)
+  {
+    super(name);
+  }
+
+  @Override
+  void afterOpen(WriteableTransaction txn, boolean createOnDemand) throws StorageRuntimeException
+  {
+    dictionaries.clear();
+    current = null;
+    try (final Cursor<ByteString, ByteString> cursor = txn.openCursor(getName()))
+    {
+      while (cursor.next())
+      {
+        register(new CompressionDictionary(cursor.getKey().toInt(), cursor.getValue().toByteArray()));
+      }
+    }
+  }
+
+  @Override
+  void beforeDelete(WriteableTransaction txn) throws StorageRuntimeException
+  {
+    dictionaries.clear();
+    current = null;
+  }
+
+  /**
+   * Returns the dictionary having the provided identifier.
+   *
+   * @param id
+   *          the dictionary identifier
+   * @return the dictionary, or {@code null} if there is no such dictionary
+   */
+  CompressionDictionary get(int id)
+  {
+    return dictionaries.get(id);
+  }
+
+  CompressionDictionary getCurrent()
+  {
+    return current;
+  }
+
+  /**
+   * Stores a new dictionary which becomes the current dictionary.
+   *
+   * @param txn
+   *          a non null transaction
+   * @param content
+   *          the dictionary content
+   * @return the new dictionary
+   * @throws StorageRuntimeException
+   *           If an error occurs in the storage.
+   */
+  synchronized CompressionDictionary add(WriteableTransaction txn, byte[] content) throws StorageRuntimeException
+  {
+    Reject.ifNull(txn, "txn must not be null.");
+    final CompressionDictionary dictionary = new CompressionDictionary(current != null ? current.getId() + 1 : 0,
+        content);
+    txn.put(getName(), toKey(dictionary.getId()), ByteString.wrap(content));
+    register(dictionary);
+    return dictionary;
+  }
+
+  private void register(CompressionDictionary dictionary)
+  {
+    dictionaries.put(dictionary.getId(), dictionary);
+    if (current == null || current.getId() < dictionary.getId())
+    {
+      current = dictionary;
+    }
+  }
+
+  private static ByteString toKey(int id)
+  {
+    return ByteString.valueOfInt(id);
+  }
+
+  @Override
+  public String keyToString(ByteString key)
+  {
+    return String.valueOf(key.toInt());
+  }
+
+  @Override
+  public String valueToString(ByteString value)
+  {
+    return value.length() + " bytes";
+  }
+
+  @Override
+  public ByteString generateKey(String key)
+  {
+    return toKey(Integer.parseInt(key));
+  }
+}
@@ -0,0 +1,70 @@
+/*
+ * The contents of this file are subject to the terms of the Common Development and
+ * Distribution License (the License). You may not use this file except in compliance with the
+ * License.
+ *
+ * You can obtain a copy of the License at legal/CDDLv1.0.txt. See the License for the
+ * specific language governing permission and limitations under the License.
+ *
+ * When distributing Covered Software, include this CDDL Header Notice in each file and include
+ * the License file at legal/CDDLv1.0.txt. If applicable, add the following below the CDDL
+ * Header, with the fields enclosed by brackets [] replaced by your own identifying
+ * information: "Portions Copyright [year] [name of copyright owner]".
+ *
+ * Copyright 2026 ForgeRock AS.
+ */
+package org.opends.server.backends.pluggable;
+
+import org.forgerock.util.Reject;
+
+/**
+ * A dictionary shared by all the entries of an id2entry tree, used to prime entry compression.
+ * <p>
+ * Dictionaries are immutable and identified by a small integer stored along with each entry compressed against them.
+ */
+final class CompressionDictionary
+{
+  private final int id;
+  private final byte[] content;
+  /** State precomputed by a codec for this dictionary, lazily created. */
+  private volatile Object codecState;
+
+  CompressionDictionary(int id, byte[] content)
+  {
+    Reject.ifTrue(id < 0, "id must be positive");
+    Reject.ifNull(content, "content must not be null");
+    this.id = id;
+    this.content = content;
+  }
+
+  int getId()
+  {
+    return id;
+  }
+
+  /**
+   * Returns the content of this dictionary. The returned array must not be modified.
+   *
+   * @return the content of this dictionary
+   */
+  byte[] getContent()
+  {
+    return content;
+  }
+
+  Object getCodecState()
+  {
+    return codecState;
+  }
+
+  void setCodecState(Object codecState)
+  {
+    this.codecState = codecState;
+  }
+
+  @Override
+  public String toString()
+  {
+    return "CompressionDictionary(id=" + id + ", size=" + content.length + ")";
+  }
+}
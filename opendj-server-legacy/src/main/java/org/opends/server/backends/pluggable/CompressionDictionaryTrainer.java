@@ -0,0 +1,223 @@
+/*
+ * The contents of this file are subject to the terms of the Common Development and
+ * Distribution License (the License). You may not use this file except in compliance with the
+ * License.
+ *
+ * You can obtain a copy of the License at legal/CDDLv1.0.txt. See the License for the
+ * specific language governing permission and limitations under the License.
+ *
+ * When distributing Covered Software, include this CDDL Header Notice in each file and include
+ * the License file at legal/CDDLv1.0.txt. If applicable, add the following below the CDDL
+ * Header, with the fields enclosed by brackets [] replaced by your own identifying
+ * information: "Portions Copyright [year] [name of copyright owner]".
+ *
+ * Copyright 2026 ForgeRock AS.
+ */
+package org.opends.server.backends.pluggable;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.PriorityQueue;
+
+import org.forgerock.opendj.ldap.ByteSequence;
+import org.forgerock.opendj.ldap.ByteStringBuilder;
+
+/**
+ * Builds a compression dictionary from a sample of encoded entries.
+ * <p>
+ * The trainer counts in how many samples each small sequence of bytes appears, then greedily selects the fixed size
+ * segments of the samples covering the most frequent sequences not yet covered by the dictionary. Segments are laid
+ * out in the dictionary in reverse order of selection, so that the most valuable content is at the end of the
+ * dictionary, where it can be referenced with the smallest offsets. This class is thread safe.
+ */
+final class CompressionDictionaryTrainer
+{
+  /** Maximum size of a dictionary, which is the deflate window size. */
+  static final int MAX_DICTIONARY_SIZE = 32 * 1024;
+  /** Number of entries to sample before training a dictionary. */
+  static final int DEFAULT_SAMPLE_COUNT = 2000;
+
+  private static final int MAX_SAMPLES_SIZE = 4 * 1024 * 1024;
+  private static final int KMER_LENGTH = 8;
+  private static final int SEGMENT_LENGTH = 64;
+  private static final int SEGMENT_STEP = 16;
+  private static final int COUNTS_LOG = 18;
+
+  private final int sampleCount;
+  private final int dictionarySize;
+  private final List<byte[]> samples = new ArrayList<>();
+  private int samplesSize;
+
+  CompressionDictionaryTrainer()
+  {
+    this(DEFAULT_SAMPLE_COUNT, MAX_DICTIONARY_SIZE);
+  }
+
+  CompressionDictionaryTrainer(int sampleCount, int dictionarySize)
+  {
+    this.sampleCount = sampleCount;
+    this.dictionarySize = Math.min(dictionarySize, MAX_DICTIONARY_SIZE);
+  }
+
+  /**
+   * Adds an encoded entry to the samples.
+   *
+   * @param encodedEntry
+   *          the uncompressed encoded entry
+   * @return {@code true} if enough samples have been collected to train a dictionary
+   */
+  synchronized boolean addSample(ByteSequence encodedEntry)
+  {
+    if (!isComplete())
+    {
+      samples.add(encodedEntry.toByteArray());
+      samplesSize += encodedEntry.length();
+    }
+    return isComplete();
+  }
+
+  synchronized int getSampleCount()
+  {
+    return samples.size();
+  }
+
+  private boolean isComplete()
+  {
+    return samples.size() >= sampleCount || samplesSize >= MAX_SAMPLES_SIZE;
+  }
+
+  /**
+   * Trains a dictionary from the samples collected so far.
+   *
+   * @return the dictionary content, which may be empty if the samples do not share any content
+   */
+  synchronized byte[] train()
+  {
+    final int[] counts = countKmers();
+
+    // Initial score of every candidate segment
+    final PriorityQueue<Segment> candidates = new PriorityQueue<>();
+    for (byte[] sample : samples)
+    {
+      for (int start = 0; start + KMER_LENGTH <= sample.length; start += SEGMENT_STEP)
+      {
+        final Segment segment = new Segment(sample, start, Math.min(SEGMENT_LENGTH, sample.length - start));
+        segment.score = score(segment, counts);
+        if (segment.score > 0)
+        {
+          candidates.add(segment);
+        }
+      }
+    }
+
+    // Lazy greedy selection: once a segment is selected, its sequences do not improve other segments anymore
+    final List<Segment> selected = new ArrayList<>();
+    int size = 0;
+    while (size < dictionarySize && !candidates.isEmpty())
+    {
+      final Segment best = candidates.poll();
+      final long score = score(best, counts);
+      if (score <= 0)
+      {
+        continue;
+      }
+      final Segment next = candidates.peek();
+      if (next != null && score < next.score)
+      {
+        best.score = score;
+        candidates.add(best);
+        continue;
+      }
+      selected.add(best);
+      size += best.length;
+      for (int i = best.start; i + KMER_LENGTH <= best.start + best.length; i++)
+      {
+        counts[hash(best.sample, i)] = 0;
+      }
+    }
+
+    final ByteStringBuilder dictionary = new ByteStringBuilder(Math.min(size, dictionarySize));
+    for (int i = selected.size() - 1; i >= 0; i--)
+    {
+      final Segment segment = selected.get(i);
+      dictionary.appendBytes(segment.sample, segment.start, segment.length);
+    }
+    final byte[] content = dictionary.toByteArray();
+    return content.length > dictionarySize
+        ? Arrays.copyOfRange(content, content.length - dictionarySize, content.length)
+        : content;
+  }
+
+  /** Counts in how many samples each k-mer appears. Collisions are ignored. */
+  private int[] countKmers()
+  {
+    final int[] counts = new int[1 << COUNTS_LOG];
+    final int[] lastSample = new int[1 << COUNTS_LOG];
+    Arrays.fill(lastSample, -1);
+    for (int s = 0; s < samples.size(); s++)
+    {
+      final byte[] sample = samples.get(s);
+      for (int i = 0; i + KMER_LENGTH <= sample.length; i++)
+      {
+        final int hash = hash(sample, i);
+        if (lastSample[hash] != s)
+        {
+          lastSample[hash] = s;
+          counts[hash]++;
+        }
+      }
+    }
+    // Sequences appearing in a single sample are not worth adding to the dictionary
+    for (int i = 0; i < counts.length; i++)
+    {
+      if (counts[i] < 2)
+      {
+        counts[i] = 0;
+      }
+    }
+    return counts;
+  }
+
+  private static long score(Segment segment, int[] counts)
+  {
+    long score = 0;
+    for (int i = segment.start; i + KMER_LENGTH <= segment.start + segment.length; i++)
+    {
+      score += counts[hash(segment.sample, i)];
+    }
+    return score;
+  }
+
+  private static int hash(byte[] buffer, int position)
+  {
+    long kmer = 0;
+    for (int i = 0; i < KMER_LENGTH; i++)
+    {
+      kmer = kmer << 8 | (buffer[position + i] & 0xFF);
+    }
+    return (int) ((kmer * 0x9E3779B97F4A7C15L) >>> (64 - COUNTS_LOG));
+  }
+
+  /** A candidate segment of a sample, ordered by decreasing score. */
+  private static final class Segment implements Comparable<Segment>
+  {
+    private final byte[] sample;
+    private final int start;
+    private final int length;
+    private long score;
+
+    private Segment(byte[] sample, int start, int length)
+    {
+      this.sample = sample;
+      this.start = start;
+      this.length = length;
+    }
+
+    @Override
+    public int compareTo(Segment o)
+    {
+      return Long.compare(o.score, score);
+    }
+  }
+}
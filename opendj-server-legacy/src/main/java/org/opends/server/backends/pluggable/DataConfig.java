@@ -33,6 +33,8 @@ final class DataConfig
   static final class Builder
   {
     private boolean compressed;
+    private EntryCompressionCodec compressionCodec = EntryCompressionCodec.DEFLATE;
+    private boolean compressionDictionary;
     private boolean encrypted;
     private boolean compactEncoding;
     private CompressedSchema compressedSchema;
@@ -55,6 +57,18 @@ final class DataConfig
       return this;
     }
 
+    public Builder compressionCodec(EntryCompressionCodec codec)
+    {
+      this.compressionCodec = codec;
+      return this;
+    }
+
+    public Builder compressionDictionary(boolean enabled)
+    {
+      this.compressionDictionary = enabled;
+      return this;
+    }
+
     public Builder encrypt(boolean enabled)
     {
       this.encrypted = enabled;
@@ -81,6 +95,12 @@ final class DataConfig
   /** Indicates whether data should be compressed before writing to the storage. */
   private final boolean compressed;
 
+  /** The codec used to compress data. */
+  private final EntryCompressionCodec compressionCodec;
+
+  /** Indicates whether data should be compressed against a shared dictionary. */
+  private final boolean compressionDictionary;
+
   /** The configuration to use when encoding entries in the tree. */
   private final EntryEncodeConfig encodeConfig;
 
@@ -95,6 +115,8 @@ final class DataConfig
   private DataConfig(Builder builder)
   {
     this.compressed = builder.compressed;
+    this.compressionCodec = builder.compressionCodec;
+    this.compressionDictionary = builder.compressionDictionary;
     this.encrypted = builder.encrypted;
     this.cryptoSuite = builder.cryptoSuite;
 
@@ -115,6 +137,16 @@ final class DataConfig
     return compressed;
   }
 
+  EntryCompressionCodec getCompressionCodec()
+  {
+    return compressionCodec;
+  }
+
+  boolean isCompressionDictionaryEnabled()
+  {
+    return compressionDictionary;
+  }
+
   boolean isEncrypted()
   {
     return encrypted;
@@ -136,6 +168,13 @@ final class DataConfig
     final StringBuilder builder = new StringBuilder();
     builder.append("DataConfig(compressed=");
     builder.append(compressed);
+    if (compressed)
+    {
+      builder.append(", compressionCodec=");
+      builder.append(compressionCodec);
+      builder.append(", compressionDictionary=");
+      builder.append(compressionDictionary);
+    }
     builder.append(", encrypted=");
     builder.append(encrypted);
     builder.append(", ");
@@ -96,7 +96,14 @@ class DefaultIndex extends AbstractTree implements Index
   final void afterOpen(WriteableTransaction txn, boolean createOnDemand)
   {
     final EnumSet<IndexFlag> flags = state.getIndexFlags(txn, getName());
-    codec = flags.contains(COMPACTED) ? CODEC_V2 : CODEC_V1;
+    if (flags.contains(BITMAP))
+    {
+      codec = CODEC_V4;
+    }
+    else
+    {
+      codec = flags.contains(COMPACTED) ? CODEC_V2 : CODEC_V1;
+    }
     if (cryptoSuite.isEncrypted())
     {
       codec = new EntryIDSet.EntryIDSetCodecV3(codec, cryptoSuite);
@@ -226,9 +233,38 @@ class DefaultIndex extends AbstractTree implements Index
     return entryIDSet != null && entryIDSet.size() > 0;
   }
 
+  /**
+   * Updates this index while it is rebuilt online, before it is used. Unlike {@link #update}, missing keys are
+   * created whatever the trust state of this index and deleting IDs which are not indexed is not an error.
+   */
+  final void rebuildUpdate(final WriteableTransaction txn, final ByteString key, final EntryIDSet deletedIDs,
+      final EntryIDSet addedIDs) throws StorageRuntimeException
+  {
+    if (isNullOrEmpty(deletedIDs) && isNullOrEmpty(addedIDs))
+    {
+      return;
+    }
+
+    txn.update(getName(), key, new UpdateFunction()
+    {
+      @Override
+      public ByteSequence computeNewValue(final ByteSequence oldValue)
+      {
+        final EntryIDSet entryIDSet = computeEntryIDSet(key,
+            oldValue != null ? decodeValue(key, oldValue.toByteString()) : newDefinedSet(), deletedIDs, addedIDs);
+        return entryIDSet.size() == 0 ? null : toValue(entryIDSet);
+      }
+    });
+  }
+
   private EntryIDSet computeEntryIDSet(ByteString key, ByteString value, EntryIDSet deletedIDs, EntryIDSet addedIDs)
   {
-    EntryIDSet entryIDSet = decodeValue(key, value);
+    return computeEntryIDSet(key, decodeValue(key, value), deletedIDs, addedIDs);
+  }
+
+  private EntryIDSet computeEntryIDSet(ByteString key, EntryIDSet entryIDSet, EntryIDSet deletedIDs,
+      EntryIDSet addedIDs)
+  {
     if (addedIDs != null)
     {
       if (entryIDSet.isDefined() && indexEntryLimit > 0)
@@ -0,0 +1,111 @@
+/*
+ * The contents of this file are subject to the terms of the Common Development and
+ * Distribution License (the License). You may not use this file except in compliance with the
+ * License.
+ *
+ * You can obtain a copy of the License at legal/CDDLv1.0.txt. See the License for the
+ * specific language governing permission and limitations under the License.
+ *
+ * When distributing Covered Software, include this CDDL Header Notice in each file and include
+ * the License file at legal/CDDLv1.0.txt. If applicable, add the following below the CDDL
+ * Header, with the fields enclosed by brackets [] replaced by your own identifying
+ * information: "Portions Copyright [year] [name of copyright owner]".
+ *
+ * Copyright 2026 ForgeRock AS.
+ */
+package org.opends.server.backends.pluggable;
+
+import java.io.IOException;
+import java.util.zip.DataFormatException;
+import java.util.zip.Deflater;
+import java.util.zip.Inflater;
+
+import org.forgerock.opendj.ldap.ByteStringBuilder;
+
+/**
+ * Compresses entries with the deflate algorithm, using the zlib format.
+ * <p>
+ * Without dictionary, the output is identical to the one produced by a {@link java.util.zip.DeflaterOutputStream}.
+ * With a dictionary, the dictionary is used as preset dictionary of the zlib stream.
+ */
+final class DeflateCompressionCodec implements EntryCompressionCodec
+{
+  private static final int BUFFER_SIZE = 4096;
+
+  /** Deflater and inflater are expensive to create, so reuse them per thread. */
+  private static final ThreadLocal<DeflateCodecState> STATE_CACHE = new ThreadLocal<DeflateCodecState>()
+  {
+    @Override
+    protected DeflateCodecState initialValue()
+    {
+      return new DeflateCodecState();
+    }
+  };
+
+  /** Per thread compression state. */
+  private static final class DeflateCodecState
+  {
+    private final Deflater deflater = new Deflater();
+    private final Inflater inflater = new Inflater();
+    private final byte[] buffer = new byte[BUFFER_SIZE];
+  }
+
+  @Override
+  public void compress(byte[] input, int length, CompressionDictionary dictionary, ByteStringBuilder output)
+  {
+    final DeflateCodecState state = STATE_CACHE.get();
+    final Deflater deflater = state.deflater;
+    deflater.reset();
+    if (dictionary != null)
+    {
+      deflater.setDictionary(dictionary.getContent());
+    }
+    deflater.setInput(input, 0, length);
+    deflater.finish();
+    while (!deflater.finished())
+    {
+      final int count = deflater.deflate(state.buffer);
+      output.appendBytes(state.buffer, 0, count);
+    }
+  }
+
+  @Override
+  public void decompress(byte[] input, int offset, int length, CompressionDictionary dictionary, byte[] output)
+      throws IOException
+  {
+    final Inflater inflater = STATE_CACHE.get().inflater;
+    inflater.reset();
+    inflater.setInput(input, offset, length);
+    try
+    {
+      int position = 0;
+      while (position < output.length)
+      {
+        final int count = inflater.inflate(output, position, output.length - position);
+        if (count == 0)
+        {
+          if (inflater.needsDictionary() && dictionary != null)
+          {
+            inflater.setDictionary(dictionary.getContent());
+          }
+          else if (inflater.finished() || inflater.needsInput() || inflater.needsDictionary())
+          {
+            throw new IOException("Truncated or corrupted compressed data");
+          }
+        }
+        position += count;
+      }
+    }
+    catch (DataFormatException | IllegalArgumentException e)
+    {
+      // IllegalArgumentException is thrown when setting the wrong dictionary
+      throw new IOException(e);
+    }
+  }
+
+  @Override
+  public String toString()
+  {
+    return "deflate";
+  }
+}
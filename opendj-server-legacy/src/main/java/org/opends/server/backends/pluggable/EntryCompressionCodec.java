@@ -0,0 +1,71 @@
+/*
+ * The contents of this file are subject to the terms of the Common Development and
+ * Distribution License (the License). You may not use this file except in compliance with the
+ * License.
+ *
+ * You can obtain a copy of the License at legal/CDDLv1.0.txt. See the License for the
+ * specific language governing permission and limitations under the License.
+ *
+ * When distributing Covered Software, include this CDDL Header Notice in each file and include
+ * the License file at legal/CDDLv1.0.txt. If applicable, add the following below the CDDL
+ * Header, with the fields enclosed by brackets [] replaced by your own identifying
+ * information: "Portions Copyright [year] [name of copyright owner]".
+ *
+ * Copyright 2026 ForgeRock AS.
+ */
+package org.opends.server.backends.pluggable;
+
+import java.io.IOException;
+
+import org.forgerock.opendj.ldap.ByteStringBuilder;
+
+/**
+ * Compresses and decompresses the encoded form of the entries stored in the id2entry tree.
+ * <p>
+ * Implementations are block oriented: the whole encoded entry is available when compressing and the size of the
+ * decompressed data is known when decompressing, since the id2entry format stores it in clear before the compressed
+ * data. Implementations must be thread safe.
+ */
+interface EntryCompressionCodec
+{
+  /** Compresses entries using the deflate algorithm, optionally with a preset dictionary. */
+  EntryCompressionCodec DEFLATE = new DeflateCompressionCodec();
+  /** Compresses entries using a fast LZ77 based algorithm, optionally with a preset dictionary. */
+  EntryCompressionCodec LZ = new LZCompressionCodec();
+
+  /**
+   * Compresses the provided data and appends the result to the provided builder.
+   *
+   * @param input
+   *          the buffer containing the data to compress, starting at index 0
+   * @param length
+   *          the number of bytes to compress
+   * @param dictionary
+   *          the dictionary to compress against, may be {@code null}
+   * @param output
+   *          the builder where the compressed data will be appended
+   * @throws IOException
+   *           if the data cannot be compressed
+   */
+  void compress(byte[] input, int length, CompressionDictionary dictionary, ByteStringBuilder output)
+      throws IOException;
+
+  /**
+   * Decompresses the provided data into the provided buffer, which must be exactly as large as the decompressed data.
+   *
+   * @param input
+   *          the buffer containing the compressed data
+   * @param offset
+   *          the index of the first compressed byte
+   * @param length
+   *          the number of compressed bytes
+   * @param dictionary
+   *          the dictionary which has been used to compress the data, may be {@code null}
+   * @param output
+   *          the buffer where the decompressed data will be written
+   * @throws IOException
+   *           if the data is corrupted or was compressed against another dictionary
+   */
+  void decompress(byte[] input, int offset, int length, CompressionDictionary dictionary, byte[] output)
+      throws IOException;
+}
@@ -27,6 +27,8 @@ import static org.opends.server.protocols.ldap.LDAPResultCode.*;
 import static org.opends.server.types.AdditionalLogItem.*;
 import static org.opends.server.util.StaticUtils.*;
 
+import java.io.IOException;
+import java.util.ArrayDeque;
 import java.util.ArrayList;
 import java.util.Arrays;
 import java.util.Collection;
@@ -36,7 +38,7 @@ import java.util.List;
 import java.util.Map;
 import java.util.NoSuchElementException;
 import java.util.Objects;
-import java.util.TreeMap;
+import java.util.concurrent.ExecutorService;
 import java.util.concurrent.locks.Lock;
 import java.util.concurrent.locks.ReentrantReadWriteLock;
 
@@ -56,6 +58,7 @@ import org.forgerock.opendj.ldap.ResultCode;
 import org.forgerock.opendj.ldap.SearchScope;
 import org.forgerock.opendj.ldap.SortKey;
 import org.forgerock.opendj.ldap.schema.AttributeType;
+import org.forgerock.opendj.server.config.meta.PluggableBackendCfgDefn.EntriesCompressionAlgorithm;
 import org.forgerock.opendj.server.config.server.BackendIndexCfg;
 import org.forgerock.opendj.server.config.server.BackendVLVIndexCfg;
 import org.forgerock.opendj.server.config.server.PluggableBackendCfg;
@@ -66,6 +69,9 @@ import org.opends.server.api.EntryCache;
 import org.opends.server.api.VirtualAttributeProvider;
 import org.opends.server.api.plugin.PluginResult.SubordinateDelete;
 import org.opends.server.api.plugin.PluginResult.SubordinateModifyDN;
+import org.opends.server.backends.pluggable.AttributeIndex.IndexFilterType;
+import org.opends.server.backends.pluggable.EntryIDSorter.SortBuffer;
+import org.opends.server.backends.pluggable.EntryIDSorter.SortedKeys;
 import org.opends.server.backends.pluggable.spi.AccessMode;
 import org.opends.server.backends.pluggable.spi.Cursor;
 import org.opends.server.backends.pluggable.spi.ReadOperation;
@@ -96,6 +102,7 @@ import org.opends.server.types.CanceledOperationException;
 import org.opends.server.types.Control;
 import org.opends.server.types.DirectoryException;
 import org.opends.server.types.Entry;
+import org.opends.server.types.IndexType;
 import org.opends.server.types.Modification;
 import org.opends.server.types.Operation;
 import org.opends.server.types.Privilege;
@@ -124,6 +131,10 @@ public class EntryContainer
   private static final String REFERRAL_TREE_NAME = REFERRAL_INDEX_NAME;
   /** The name of the state tree. */
   private static final String STATE_TREE_NAME = STATE_INDEX_NAME;
+  /** The name of the compression dictionaries tree. */
+  private static final String COMPRESSION_DICTIONARIES_TREE_NAME = COMPRESSION_DICTIONARIES_NAME;
+  /** The name of the index statistics tree. */
+  private static final String INDEX_STATISTICS_TREE_NAME = INDEX_STATISTICS_NAME;
 
   /** The attribute index configuration manager. */
   private final AttributeIndexCfgManager attributeIndexCfgManager;
@@ -145,12 +156,16 @@ public class EntryContainer
   private final DN2ID dn2id;
   /** The entry tree maps an entry ID (8 bytes) to a complete encoded entry. */
   private ID2Entry id2entry;
+  /** The dictionaries used to compress the entries of the entry tree. */
+  private final CompressionDictionaries compressionDictionaries;
   /** Store the number of children for each entry. */
   private final ID2ChildrenCount id2childrenCount;
   /** The referral tree maps a normalized DN string to labeled URIs. */
   private final DN2URI dn2uri;
   /** The state tree maps a config DN to config entries. */
   private final State state;
+  /** The statistics of the attribute indexes, used for planning searches. */
+  private final IndexStatistics indexStatistics;
 
   /** The set of attribute indexes. */
   private final Map<AttributeType, AttributeIndex> attrIndexMap = new HashMap<>();
@@ -347,6 +362,12 @@ public class EntryContainer
   final Lock sharedLock = lock.readLock();
   final Lock exclusiveLock = lock.writeLock();
 
+  /**
+   * The online rebuild of indexes in progress, if any. Only changed while holding the exclusive lock, so that the
+   * changes of all the updates holding the shared lock are recorded.
+   */
+  private volatile OnlineIndexRebuilder onlineIndexRebuilder;
+
   EntryContainer(DN baseDN, String backendID, PluggableBackendCfg config, Storage storage, RootContainer rootContainer,
       ServerContext serverContext) throws ConfigException
   {
@@ -361,6 +382,9 @@ public class EntryContainer
     this.dn2id = new DN2ID(getIndexName(DN2ID_TREE_NAME), baseDN);
     this.dn2uri = new DN2URI(getIndexName(REFERRAL_TREE_NAME), this);
     this.state = new State(getIndexName(STATE_TREE_NAME));
+    this.compressionDictionaries = new CompressionDictionaries(getIndexName(COMPRESSION_DICTIONARIES_TREE_NAME));
+    this.indexStatistics = new IndexStatistics(getIndexName(INDEX_STATISTICS_TREE_NAME), this);
+    this.indexStatistics.setEnabled(config.isIndexStatisticsEnabled());
 
     config.addPluggableChangeListener(this);
 
@@ -388,6 +412,9 @@ public class EntryContainer
   {
     return new DataConfig.Builder()
         .compress(config.isEntriesCompressed())
+        .compressionCodec(config.getEntriesCompressionAlgorithm() == EntriesCompressionAlgorithm.LZ
+            ? EntryCompressionCodec.LZ : EntryCompressionCodec.DEFLATE)
+        .compressionDictionary(config.isEntriesCompressionDictionaryEnabled())
         .encode(config.isCompactEncoding())
         .encrypt(config.isConfidentialityEnabled())
         .cryptoSuite(serverContext.getCryptoManager().newCryptoSuite(config.getCipherTransformation(),
@@ -414,12 +441,14 @@ public class EntryContainer
     boolean shouldCreate = accessMode.isWriteable();
     try
     {
-      id2entry = new ID2Entry(getIndexName(ID2ENTRY_TREE_NAME), newDataConfig(config));
+      compressionDictionaries.open(txn, shouldCreate);
+      id2entry = new ID2Entry(getIndexName(ID2ENTRY_TREE_NAME), newDataConfig(config), compressionDictionaries);
       id2entry.open(txn, shouldCreate);
       id2childrenCount.open(txn, shouldCreate);
       dn2id.open(txn, shouldCreate);
       state.open(txn, shouldCreate);
       dn2uri.open(txn, shouldCreate);
+      indexStatistics.open(txn, shouldCreate);
 
       final boolean isNotEmpty = !isEmpty(txn);
       for (String idx : config.listBackendIndexes())
@@ -539,6 +568,27 @@ public class EntryContainer
     return id2childrenCount;
   }
 
+  /**
+   * Get the compression dictionaries tree used by this entry container.
+   * The entryContainer must have been opened.
+   *
+   * @return The compression dictionaries tree.
+   */
+  CompressionDictionaries getCompressionDictionaries()
+  {
+    return compressionDictionaries;
+  }
+
+  /**
+   * Get the statistics of the attribute indexes of this entry container.
+   *
+   * @return The index statistics tree.
+   */
+  IndexStatistics getIndexStatistics()
+  {
+    return indexStatistics;
+  }
+
   /**
    * Look for an attribute index for the given attribute type.
    *
@@ -1251,6 +1301,17 @@ public class EntryContainer
     return entry;
   }
 
+  /** Returns a prefetcher of the candidate entries of a search, or {@code null} to fetch them one at a time. */
+  private EntryPrefetcher newEntryPrefetcher(ReadableTransaction txn, long[] entryIDs, int startIndex)
+  {
+    final ExecutorService executor = rootContainer.getEntryDecodingExecutor();
+    if (executor == null || entryIDs.length - startIndex <= 1)
+    {
+      return null;
+    }
+    return new EntryPrefetcher(txn, id2entry, getEntryCache(), backendID, executor, entryIDs, startIndex);
+  }
+
   /**
    * We were able to obtain a set of candidate entry IDs for the search from the indexes.
    * <p>
@@ -1319,40 +1380,44 @@ public class EntryContainer
     if (continueSearch)
     {
       final SearchFilter filter = searchOperation.getFilter();
-      for (int i = findStartIndex(beginEntryID, entryIDReorderedSet); i < entryIDReorderedSet.length; i++)
+      final int startIndex = findStartIndex(beginEntryID, entryIDReorderedSet);
+      try (EntryPrefetcher prefetcher = newEntryPrefetcher(txn, entryIDReorderedSet, startIndex))
       {
-        EntryID entryID = new EntryID(entryIDReorderedSet[i]);
-        Entry entry;
-        try
-        {
-          entry = getEntry(txn, entryID);
-        }
-        catch (Exception e)
+        for (int i = startIndex; i < entryIDReorderedSet.length; i++)
         {
-          logger.traceException(e);
-          continue;
-        }
-
-        // Process the candidate entry.
-        if (entry != null
-              && isInScope(candidatesAreInScope, searchScope, aBaseDN, entry)
-              && (manageDsaIT || entry.getReferralURLs() == null)
-              && filter.matchesEntry(entry))
+          EntryID entryID = new EntryID(entryIDReorderedSet[i]);
+          Entry entry;
+          try
           {
-            if (isPageFull(searchOperation, pageRequest))
-            {
-              // Set the cookie to remember where we were.
-              addPagedResultsControl(searchOperation, pageRequest, entryID.toByteString());
-              return;
-            }
+            entry = prefetcher != null ? prefetcher.next() : getEntry(txn, entryID);
+          }
+          catch (Exception e)
+          {
+            logger.traceException(e);
+            continue;
+          }
 
-            if (!searchOperation.returnEntry(entry, null))
+          // Process the candidate entry.
+          if (entry != null
+                && isInScope(candidatesAreInScope, searchScope, aBaseDN, entry)
+                && (manageDsaIT || entry.getReferralURLs() == null)
+                && filter.matchesEntry(entry))
             {
-              // We have been told to discontinue processing of the search.
-              // This could be due to size limit exceeded or operation cancelled
-              break;
+              if (isPageFull(searchOperation, pageRequest))
+              {
+                // Set the cookie to remember where we were.
+                addPagedResultsControl(searchOperation, pageRequest, entryID.toByteString());
+                return;
+              }
+
+              if (!searchOperation.returnEntry(entry, null))
+              {
+                // We have been told to discontinue processing of the search.
+                // This could be due to size limit exceeded or operation cancelled
+                break;
+              }
             }
-          }
+        }
       }
       searchOperation.checkIfCanceled(false);
     }
@@ -1453,7 +1518,7 @@ public class EntryContainer
 
     try
     {
-      storage.write(new WriteOperation()
+      rootContainer.getGroupCommitWriter().write(new WriteOperation()
       {
         @Override
         public void run(WriteableTransaction txn) throws Exception
@@ -1516,6 +1581,7 @@ public class EntryContainer
       writeTrustState(indexBuffer);
       throwAllowedExceptionTypes(e, DirectoryException.class, CanceledOperationException.class);
     }
+    recordIndexChanges(indexBuffer);
 
     final EntryCache<?> entryCache = DirectoryServer.getEntryCache();
     if (entryCache != null)
@@ -1524,6 +1590,16 @@ public class EntryContainer
     }
   }
 
+  /** Forwards committed index changes to the online rebuild of indexes in progress, if any. */
+  private void recordIndexChanges(final IndexBuffer indexBuffer)
+  {
+    final OnlineIndexRebuilder rebuilder = onlineIndexRebuilder;
+    if (rebuilder != null)
+    {
+      rebuilder.recordChanges(indexBuffer);
+    }
+  }
+
   private void writeTrustState(final IndexBuffer indexBuffer)
   {
     // Transaction modifying the index has been rolled back.
@@ -1552,7 +1628,7 @@ public class EntryContainer
     final IndexBuffer indexBuffer = IndexBuffer.newImportIndexBuffer(txn, entryID);
     insertEntryIntoIndexes(indexBuffer, entry, entryID);
     dn2id.put(txn, entry.getName(), entryID);
-    id2entry.put(txn, entryID, id2entry.encode(entry));
+    id2entry.importPut(txn, entryID, entry);
     dn2uri.addEntry(txn, entry);
     indexBuffer.flush(txn);
   }
@@ -1577,14 +1653,21 @@ public class EntryContainer
           throws DirectoryException, StorageRuntimeException, CanceledOperationException
   {
     final IndexBuffer indexBuffer = new IndexBuffer();
+    // Delete the subordinate entries in dn2id if requested.
+    final boolean isSubtreeDelete = deleteOperation.getRequestControl(SubtreeDeleteControl.DECODER) != null;
+    // The write may be run several times: the side effects are only applied once it is committed,
+    // and the subordinate delete plugins are only invoked once per entry.
+    final List<DN> deletedDNs = new ArrayList<>();
+    final Map<DN, Boolean> subordinateDeletesAllowed = new HashMap<>();
     try
     {
-      storage.write(new WriteOperation()
+      rootContainer.getGroupCommitWriter().write(new WriteOperation()
       {
         @Override
         public void run(WriteableTransaction txn) throws Exception
         {
           indexBuffer.reset();
+          deletedDNs.clear();
           try
           {
             // Check for referral entries above the target entry.
@@ -1606,9 +1689,6 @@ public class EntryContainer
               }
             }
 
-            // Delete the subordinate entries in dn2id if requested.
-            final boolean isSubtreeDelete = deleteOperation.getRequestControl(SubtreeDeleteControl.DECODER) != null;
-
             /* draft-armijo-ldap-treedelete, 4.1 Tree Delete Semantics: The server MUST NOT chase referrals stored in
              * the tree. If information about referrals is stored in this section of the tree, this pointer will be
              * deleted.
@@ -1651,7 +1731,6 @@ public class EntryContainer
 
             // Now update id2entry, dn2uri, and id2childrenCount in key order.
             id2childrenCount.updateCount(txn, parentID, -1);
-            final EntryCache<?> entryCache = DirectoryServer.getEntryCache();
             boolean isBaseEntry = true;
             try (final Cursor<EntryID, Entry> cursor = id2entry.openCursor(txn))
             {
@@ -1676,10 +1755,7 @@ public class EntryContainer
                 {
                   invokeSubordinateDeletePlugins(entry);
                 }
-                if (entryCache != null)
-                {
-                  entryCache.removeEntry(entry.getName());
-                }
+                deletedDNs.add(entry.getName());
                 isBaseEntry = false;
                 deleteOperation.checkIfCanceled(false);
               }
@@ -1687,11 +1763,6 @@ public class EntryContainer
             id2childrenCount.updateTotalCount(txn, -entriesToBeDeleted.size());
             indexBuffer.flush(txn);
             deleteOperation.checkIfCanceled(true);
-            if (isSubtreeDelete)
-            {
-              deleteOperation.addAdditionalLogItem(unquotedKeyValue(getClass(), "deletedEntries",
-                                                                    entriesToBeDeleted.size()));
-            }
           }
           catch (StorageRuntimeException | DirectoryException | CanceledOperationException e)
           {
@@ -1713,9 +1784,15 @@ public class EntryContainer
         {
           if (!deleteOperation.isSynchronizationOperation())
           {
-            SubordinateDelete pluginResult =
-                    getPluginConfigManager().invokeSubordinateDeletePlugins(deleteOperation, entry);
-            if (!pluginResult.continueProcessing())
+            Boolean continueProcessing = subordinateDeletesAllowed.get(entry.getName());
+            if (continueProcessing == null)
+            {
+              SubordinateDelete pluginResult =
+                      getPluginConfigManager().invokeSubordinateDeletePlugins(deleteOperation, entry);
+              continueProcessing = pluginResult.continueProcessing();
+              subordinateDeletesAllowed.put(entry.getName(), continueProcessing);
+            }
+            if (!continueProcessing)
             {
               throw new DirectoryException(DirectoryServer.getCoreConfigManager().getServerErrorResultCode(),
                                            ERR_DELETE_ABORTED_BY_SUBORDINATE_PLUGIN.get(entry.getName()));
@@ -1729,6 +1806,20 @@ public class EntryContainer
       writeTrustState(indexBuffer);
       throwAllowedExceptionTypes(e, DirectoryException.class, CanceledOperationException.class);
     }
+    recordIndexChanges(indexBuffer);
+
+    final EntryCache<?> entryCache = DirectoryServer.getEntryCache();
+    if (entryCache != null)
+    {
+      for (DN deletedDN : deletedDNs)
+      {
+        entryCache.removeEntry(deletedDN);
+      }
+    }
+    if (isSubtreeDelete)
+    {
+      deleteOperation.addAdditionalLogItem(unquotedKeyValue(getClass(), "deletedEntries", deletedDNs.size()));
+    }
   }
 
   /**
@@ -1812,6 +1903,90 @@ public class EntryContainer
     }
   }
 
+  /**
+   * Retrieves the DNs of the entries below the provided base DN having the provided value for an attribute,
+   * by probing the equality index of the attribute rather than by processing a search. Like a whole subtree search
+   * without any control, subentries and referral entries are ignored.
+   *
+   * @param baseDN
+   *          the DN of the entry below which matching entries are looked for
+   * @param attributeType
+   *          the attribute type
+   * @param value
+   *          the assertion value
+   * @param excludedDN
+   *          the DN of an entry to ignore, may be {@code null}
+   * @param maxEntries
+   *          the maximum number of DNs to return
+   * @return the DNs of at most {@code maxEntries} matching entries, or {@code null} if the attribute has no
+   *         equality index or if the index entry limit of the value has been exceeded
+   * @throws DirectoryException
+   *           If a problem occurs while trying to retrieve the entries.
+   * @throws StorageRuntimeException
+   *           An error occurred during a storage operation.
+   */
+  List<DN> getEntryDNsByEqualityIndex(final DN baseDN, final AttributeType attributeType, final ByteString value,
+      final DN excludedDN, final int maxEntries) throws StorageRuntimeException, DirectoryException
+  {
+    final AttributeIndex attributeIndex = getAttributeIndex(attributeType);
+    if (attributeIndex == null || !attributeIndex.isIndexed(IndexType.EQUALITY))
+    {
+      return null;
+    }
+
+    try
+    {
+      return storage.read(new ReadOperation<List<DN>>()
+      {
+        @Override
+        public List<DN> run(ReadableTransaction txn) throws Exception
+        {
+          final SearchFilter filter = SearchFilter.createEqualityFilter(attributeType, value);
+          final EntryIDSet entryIDs = attributeIndex.evaluateFilter(new IndexQueryFactoryImpl(txn, attributeIndex),
+              IndexFilterType.EQUALITY, filter, null, getMonitorProvider());
+          if (!entryIDs.isDefined())
+          {
+            return null;
+          }
+
+          final List<DN> entryDNs = new ArrayList<>(maxEntries);
+          for (EntryID entryID : entryIDs)
+          {
+            // Index keys may be hashed, and the index may not be up to date yet: check the entry itself
+            final Entry entry = getEntry(txn, entryID);
+            if (entry != null
+                && !entry.getName().equals(excludedDN)
+                && entry.getName().isSubordinateOrEqualTo(baseDN)
+                && isReturnedBySubtreeSearch(entry)
+                && filter.matchesEntry(entry))
+            {
+              entryDNs.add(entry.getName());
+              if (entryDNs.size() >= maxEntries)
+              {
+                break;
+              }
+            }
+          }
+          return entryDNs;
+        }
+      });
+    }
+    catch (Exception e)
+    {
+      throwAllowedExceptionTypes(e, DirectoryException.class, DirectoryException.class);
+      return null; // it can never happen
+    }
+  }
+
+  /**
+   * Returns whether a whole subtree search without any control would return the provided entry: subentries are only
+   * returned when explicitly requested, and referral entries are returned as search result references.
+   */
+  private static boolean isReturnedBySubtreeSearch(Entry entry)
+  {
+    return !entry.isSubentry() && !entry.isLDAPSubentry() && entry.getReferralURLs() == null;
+  }
+
   private Entry getEntry0(ReadableTransaction txn, final DN entryDN) throws StorageRuntimeException, DirectoryException
   {
     final EntryCache<?> entryCache = DirectoryServer.getEntryCache();
@@ -1860,9 +2035,11 @@ public class EntryContainer
   {
     final IndexBuffer indexBuffer = new IndexBuffer();
     final ByteString encodedNewEntry = id2entry.encode(newEntry);
+    // The entry cache is only updated once the write is committed.
+    final EntryID[] modifiedEntryID = new EntryID[1];
     try
     {
-      storage.write(new WriteOperation()
+      rootContainer.getGroupCommitWriter().write(new WriteOperation()
       {
         @Override
         public void run(WriteableTransaction txn) throws Exception
@@ -1896,13 +2073,7 @@ public class EntryContainer
 
             // One last check before committing
             modifyOperation.checkIfCanceled(true);
-
-            // Update the entry cache.
-            EntryCache<?> entryCache = DirectoryServer.getEntryCache();
-            if (entryCache != null)
-            {
-              entryCache.putEntry(newEntry, backendID, entryID.longValue());
-            }
+            modifiedEntryID[0] = entryID;
           }
           catch (StorageRuntimeException | DirectoryException | CanceledOperationException e)
           {
@@ -1926,6 +2097,14 @@ public class EntryContainer
       writeTrustState(indexBuffer);
       throwAllowedExceptionTypes(e, DirectoryException.class, CanceledOperationException.class);
     }
+    recordIndexChanges(indexBuffer);
+
+    // Update the entry cache.
+    final EntryCache<?> entryCache = DirectoryServer.getEntryCache();
+    if (entryCache != null)
+    {
+      entryCache.putEntry(newEntry, backendID, modifiedEntryID[0].longValue());
+    }
   }
 
   /**
@@ -1952,14 +2131,19 @@ public class EntryContainer
       throws StorageRuntimeException, DirectoryException, CanceledOperationException
   {
     final IndexBuffer indexBuffer = new IndexBuffer();
+    // The write may be run several times: the side effects are only applied once it is committed,
+    // and the subordinate modify DN plugins are only invoked once per entry.
+    final List<DN> renamedDNs = new ArrayList<>();
+    final Map<DN, Boolean> subordinateRenamesAllowed = new HashMap<>();
     try
     {
-      storage.write(new WriteOperation()
+      rootContainer.getGroupCommitWriter().write(new WriteOperation()
       {
         @Override
         public void run(WriteableTransaction txn) throws Exception
         {
           indexBuffer.reset();
+          renamedDNs.clear();
           try
           {
             // Validate the request.
@@ -2115,12 +2299,7 @@ public class EntryContainer
             // Fast-path: the entryID has not changed so we only need to re-index the mods.
             indexModifications(indexBuffer, oldEntry, newEntry, oldEntryID, modifications);
           }
-
-          final EntryCache<?> entryCache = DirectoryServer.getEntryCache();
-          if (entryCache != null)
-          {
-            entryCache.removeEntry(oldEntry.getName());
-          }
+          renamedDNs.add(oldEntry.getName());
         }
 
         private List<Modification> invokeSubordinateModifyDNPlugins(
@@ -2137,10 +2316,16 @@ public class EntryContainer
           //          these plugins should be invoked for synchronization operations.
           if (!modifyDNOperation.isSynchronizationOperation())
           {
-            SubordinateModifyDN pluginResult = getPluginConfigManager().invokeSubordinateModifyDNPlugins(
-                    modifyDNOperation, oldEntry, newEntry, modifications);
+            Boolean continueProcessing = subordinateRenamesAllowed.get(oldEntry.getName());
+            if (continueProcessing == null)
+            {
+              SubordinateModifyDN pluginResult = getPluginConfigManager().invokeSubordinateModifyDNPlugins(
+                      modifyDNOperation, oldEntry, newEntry, modifications);
+              continueProcessing = pluginResult.continueProcessing();
+              subordinateRenamesAllowed.put(oldEntry.getName(), continueProcessing);
+            }
 
-            if (!pluginResult.continueProcessing())
+            if (!continueProcessing)
             {
               throw new DirectoryException(DirectoryServer.getCoreConfigManager().getServerErrorResultCode(),
                                            ERR_MODIFYDN_ABORTED_BY_SUBORDINATE_PLUGIN.get(oldEntry.getName(),
@@ -2168,6 +2353,16 @@ public class EntryContainer
       writeTrustState(indexBuffer);
       throwAllowedExceptionTypes(e, DirectoryException.class, CanceledOperationException.class);
     }
+    recordIndexChanges(indexBuffer);
+
+    final EntryCache<?> entryCache = DirectoryServer.getEntryCache();
+    if (entryCache != null)
+    {
+      for (DN renamedDN : renamedDNs)
+      {
+        entryCache.removeEntry(renamedDN);
+      }
+    }
   }
 
   /**
@@ -2421,6 +2616,7 @@ public class EntryContainer
         {
           id2entry.setDataConfig(newDataConfig(cfg));
           EntryContainer.this.config = cfg;
+          indexStatistics.setEnabled(cfg.isIndexStatisticsEnabled());
         }
       });
       for (CryptoSuite indexCrypto : attrCryptoMap.values())
@@ -2474,9 +2670,11 @@ public class EntryContainer
     final List<Tree> allTrees = new ArrayList<>();
     allTrees.add(dn2id);
     allTrees.add(id2entry);
+    allTrees.add(compressionDictionaries);
     allTrees.add(dn2uri);
     allTrees.add(id2childrenCount);
     allTrees.add(state);
+    allTrees.add(indexStatistics);
 
     for (AttributeIndex index : attrIndexMap.values())
     {
@@ -2548,94 +2746,114 @@ public class EntryContainer
     final SearchScope scope = searchOperation.getScope();
     final SearchFilter filter = searchOperation.getFilter();
 
-    final TreeMap<ByteString, EntryID> sortMap = new TreeMap<>();
-    for (EntryID id : entryIDSet)
+    try (SortBuffer sortBuffer = rootContainer.getEntryIDSorter().newSortBuffer(getMaxSortedEntries(vlvRequest)))
     {
-      try
+      for (EntryID id : entryIDSet)
       {
-        Entry e = getEntry(txn, id);
-        if (e.matchesBaseAndScope(baseDN, scope) && filter.matchesEntry(e))
+        final ByteString sortKey;
+        try
         {
-          sortMap.put(encodeVLVKey(sortKeys, e, id.longValue()), id);
+          Entry e = getEntry(txn, id);
+          if (!e.matchesBaseAndScope(baseDN, scope) || !filter.matchesEntry(e))
+          {
+            continue;
+          }
+          sortKey = encodeVLVKey(sortKeys, e, id.longValue());
+        }
+        catch (Exception e)
+        {
+          LocalizableMessage message = ERR_ENTRYIDSORTER_CANNOT_EXAMINE_ENTRY.get(id, getExceptionMessage(e));
+          throw new DirectoryException(DirectoryServer.getCoreConfigManager().getServerErrorResultCode(), message, e);
         }
+        sortBuffer.add(sortKey);
       }
-      catch (Exception e)
+
+      // See if there is a VLV request to further pare down the set of results, and if there is where it should be
+      // processed by offset or assertion value.
+      if (vlvRequest == null)
       {
-        LocalizableMessage message = ERR_ENTRYIDSORTER_CANNOT_EXAMINE_ENTRY.get(id, getExceptionMessage(e));
-        throw new DirectoryException(DirectoryServer.getCoreConfigManager().getServerErrorResultCode(), message, e);
+        // Pages need all the sorted entries: searchIndexed() checks them against the lookthrough limit, and skips the
+        // entries which are not returned, like subentries or entries hidden by access control, while filling a page.
+        return sortBuffer.toEntryIDs();
       }
-    }
 
-    // See if there is a VLV request to further pare down the set of results, and if there is where it should be
-    // processed by offset or assertion value.
-    if (vlvRequest == null)
-    {
-      return toArray(sortMap.values());
+      if (vlvRequest.getTargetType() == VLVRequestControl.TYPE_TARGET_BYOFFSET)
+      {
+        return sortByOffset(searchOperation, vlvRequest, sortBuffer.toEntryIDs(), sortBuffer.size());
+      }
+      return sortByGreaterThanOrEqualAssertion(searchOperation, vlvRequest, sortKeys, sortBuffer);
     }
-
-    if (vlvRequest.getTargetType() == VLVRequestControl.TYPE_TARGET_BYOFFSET)
+    catch (IOException e)
     {
-      return sortByOffset(searchOperation, vlvRequest, sortMap);
+      throw new DirectoryException(DirectoryServer.getCoreConfigManager().getServerErrorResultCode(),
+          ERR_ENTRYIDSORTER_CANNOT_SPILL_SORT_KEYS.get(getExceptionMessage(e)), e);
     }
-    return sortByGreaterThanOrEqualAssertion(searchOperation, vlvRequest, sortKeys, sortMap);
   }
 
-  private static final long[] toArray(Collection<EntryID> entryIDs)
+  /**
+   * Returns the number of sorted entries needed by the virtual list view, or 0 if all of them are needed. A virtual
+   * list view by offset only needs the entries up to the last requested entry.
+   */
+  private static int getMaxSortedEntries(VLVRequestControl vlvRequest)
   {
-    final long[] array = new long[entryIDs.size()];
-    int i = 0;
-    for (EntryID entryID : entryIDs)
+    if (vlvRequest == null || vlvRequest.getTargetType() != VLVRequestControl.TYPE_TARGET_BYOFFSET)
     {
-      array[i++] = entryID.longValue();
+      return 0;
     }
-    return array;
+    final long maxSortedEntries = Math.max(vlvRequest.getOffset(), 1) + (long) vlvRequest.getAfterCount();
+    return (int) Math.min(maxSortedEntries, Integer.MAX_VALUE);
   }
 
   private static final long[] sortByGreaterThanOrEqualAssertion(SearchOperation searchOperation,
-      VLVRequestControl vlvRequest, List<SortKey> sortKeys, final TreeMap<ByteString, EntryID> sortMap)
-      throws DirectoryException
+      VLVRequestControl vlvRequest, List<SortKey> sortKeys, SortBuffer sortBuffer)
+      throws DirectoryException, IOException
   {
+    final int contentCount = sortBuffer.size();
     ByteString assertionValue = vlvRequest.getGreaterThanOrEqualAssertion();
     ByteSequence encodedTargetAssertion =
-        encodeTargetAssertion(sortKeys, assertionValue, searchOperation, sortMap.size());
+        encodeTargetAssertion(sortKeys, assertionValue, searchOperation, contentCount);
 
     boolean targetFound = false;
-    int index = 0;
     int targetIndex = 0;
-    int startIndex = 0;
     int includedAfterCount = 0;
-    long[] idSet = new long[sortMap.size()];
-    for (Map.Entry<ByteString, EntryID> entry : sortMap.entrySet())
+    // Only the entries preceding the target which are returned are kept.
+    final ArrayDeque<Long> entryIDs = new ArrayDeque<>();
+    try (SortedKeys sortedKeys = sortBuffer.openSortedKeys())
     {
-      ByteString vlvKey = entry.getKey();
-      EntryID id = entry.getValue();
-      idSet[index++] = id.longValue();
-
-      if (targetFound)
+      while (sortedKeys.next())
       {
-        includedAfterCount++;
-        if (includedAfterCount >= vlvRequest.getAfterCount())
+        ByteString vlvKey = sortedKeys.getKey();
+        entryIDs.add(EntryIDSorter.toEntryID(vlvKey));
+
+        if (targetFound)
         {
-          break;
+          includedAfterCount++;
+          if (includedAfterCount >= vlvRequest.getAfterCount())
+          {
+            break;
+          }
         }
-      }
-      else
-      {
-        targetFound = vlvKey.compareTo(encodedTargetAssertion) >= 0;
-        if (targetFound)
+        else
         {
-          startIndex = Math.max(0, targetIndex - vlvRequest.getBeforeCount());
+          targetFound = vlvKey.compareTo(encodedTargetAssertion) >= 0;
+          if (!targetFound && entryIDs.size() > vlvRequest.getBeforeCount())
+          {
+            entryIDs.removeFirst();
+          }
+          targetIndex++;
         }
-        targetIndex++;
       }
     }
 
     final long[] result;
     if (targetFound)
     {
-      final long[] array = new long[index - startIndex];
-      System.arraycopy(idSet, startIndex, array, 0, array.length);
-      result = array;
+      result = new long[entryIDs.size()];
+      int i = 0;
+      for (Long entryID : entryIDs)
+      {
+        result[i++] = entryID;
+      }
     }
     else
     {
@@ -2643,21 +2861,29 @@ public class EntryContainer
        * No entry was found to be greater than or equal to the sort key, so the target offset will
        * be one greater than the content count.
        */
-      targetIndex = sortMap.size() + 1;
+      targetIndex = contentCount + 1;
       result = new long[0];
     }
-    addVLVResponseControl(searchOperation, targetIndex, sortMap.size(), SUCCESS);
+    addVLVResponseControl(searchOperation, targetIndex, contentCount, SUCCESS);
     return result;
   }
 
+  /**
+   * Returns the entries of the requested virtual list view.
+   *
+   * @param sortedEntryIDs
+   *          the first sorted entries, up to the last requested entry
+   * @param contentCount
+   *          the number of sorted entries
+   */
   private static final long[] sortByOffset(SearchOperation searchOperation, VLVRequestControl vlvRequest,
-      TreeMap<ByteString, EntryID> sortMap) throws DirectoryException
+      long[] sortedEntryIDs, int contentCount) throws DirectoryException
   {
     int targetOffset = vlvRequest.getOffset();
     if (targetOffset < 0)
     {
       // The client specified a negative target offset. This should never be allowed.
-      addVLVResponseControl(searchOperation, targetOffset, sortMap.size(), OFFSET_RANGE_ERROR);
+      addVLVResponseControl(searchOperation, targetOffset, contentCount, OFFSET_RANGE_ERROR);
 
       LocalizableMessage message = ERR_ENTRYIDSORTER_NEGATIVE_START_POS.get();
       throw new DirectoryException(ResultCode.VIRTUAL_LIST_VIEW_ERROR, message);
@@ -2678,41 +2904,23 @@ public class EntryContainer
       startPos = 0;
       beforeCount = listOffset;
     }
-    else if (startPos >= sortMap.size())
+    else if (startPos >= contentCount)
     {
       // The start position is beyond the end of the list. In this case, we'll assume that the start position was
       // one greater than the size of the list and will only return the beforeCount entries.
-      targetOffset = sortMap.size() + 1;
-      listOffset = sortMap.size();
+      targetOffset = contentCount + 1;
+      listOffset = contentCount;
       startPos = listOffset - beforeCount;
       afterCount = 0;
     }
 
-    int count = 1 + beforeCount + afterCount;
-    long[] sortedIDs = new long[count];
-    int treePos = 0;
-    int arrayPos = 0;
-    for (EntryID id : sortMap.values())
-    {
-      if (treePos++ < startPos)
-      {
-        continue;
-      }
-
-      sortedIDs[arrayPos++] = id.longValue();
-      if (arrayPos >= count)
-      {
-        break;
-      }
-    }
-
-    if (arrayPos < count)
-    {
-      // We don't have enough entries in the set to meet the requested page size, so we'll need to shorten the array.
-      sortedIDs = Arrays.copyOf(sortedIDs, arrayPos);
-    }
+    // We may not have enough entries in the set to meet the requested page size, so we may need to shorten the array.
+    final int count = 1 + beforeCount + afterCount;
+    final int from = Math.min(Math.max(startPos, 0), sortedEntryIDs.length);
+    final int to = (int) Math.min((long) from + count, sortedEntryIDs.length);
+    final long[] sortedIDs = Arrays.copyOfRange(sortedEntryIDs, from, to);
 
-    addVLVResponseControl(searchOperation, targetOffset, sortMap.size(), SUCCESS);
+    addVLVResponseControl(searchOperation, targetOffset, contentCount, SUCCESS);
     return sortedIDs;
   }
 
@@ -2722,6 +2930,28 @@ public class EntryContainer
     searchOp.addResponseControl(new VLVResponseControl(targetPosition, contentCount, vlvResultCode));
   }
 
+  /**
+   * Sets the online rebuild of indexes to which committed index changes are forwarded. The exclusive lock must be
+   * held.
+   *
+   * @param rebuilder
+   *          the online rebuild of indexes, or {@code null} to stop forwarding changes
+   */
+  void setOnlineIndexRebuilder(OnlineIndexRebuilder rebuilder)
+  {
+    onlineIndexRebuilder = rebuilder;
+  }
+
+  /**
+   * Returns the online rebuild of indexes in progress.
+   *
+   * @return the online rebuild of indexes in progress, or {@code null} if there is none
+   */
+  OnlineIndexRebuilder getOnlineIndexRebuilder()
+  {
+    return onlineIndexRebuilder;
+  }
+
   /** Get the exclusive lock. */
   void lock()
   {
@@ -0,0 +1,1007 @@
+/*
+ * The contents of this file are subject to the terms of the Common Development and
+ * Distribution License (the License). You may not use this file except in compliance with the
+ * License.
+ *
+ * You can obtain a copy of the License at legal/CDDLv1.0.txt. See the License for the
+ * specific language governing permission and limitations under the License.
+ *
+ * When distributing Covered Software, include this CDDL Header Notice in each file and include
+ * the License file at legal/CDDLv1.0.txt. If applicable, add the following below the CDDL
+ * Header, with the fields enclosed by brackets [] replaced by your own identifying
+ * information: "Portions Copyright [year] [name of copyright owner]".
+ *
+ * Copyright 2026 ForgeRock AS.
+ */
+package org.opends.server.backends.pluggable;
+
+import java.util.Arrays;
+import java.util.Iterator;
+import java.util.NoSuchElementException;
+
+import org.forgerock.opendj.ldap.ByteSequenceReader;
+import org.forgerock.opendj.ldap.ByteStringBuilder;
+
+import com.forgerock.opendj.util.PackedLong;
+
+/**
+ * Compressed bitmap of entry IDs organized in the spirit of Roaring bitmaps.
+ * <p>
+ * The ID space is split into chunks of 2<sup>16</sup> IDs sharing the same high bits. Each non-empty chunk is
+ * stored in a container which is either a sorted array of the low bits of its IDs when the chunk is sparse, or a
+ * plain 8KB bitmap when the chunk is dense. Set algebra is performed container by container, and dense containers
+ * are combined one 64 bits word at a time.
+ * <p>
+ * This class is not thread safe.
+ */
+final class EntryIDBitmap implements Iterable<EntryID>
+{
+  /** Number of low bits of an ID stored inside a container. */
+  private static final int CHUNK_BITS = 16;
+  private static final long CHUNK_MASK = (1L << CHUNK_BITS) - 1;
+  /** Number of IDs which can be stored in a container. */
+  private static final int CHUNK_SIZE = 1 << CHUNK_BITS;
+  /** Above this cardinality, a bitmap container is smaller than an array container. */
+  static final int MAX_ARRAY_CARDINALITY = 4096;
+  private static final int BITMAP_WORDS = CHUNK_SIZE / Long.SIZE;
+
+  private static final byte ARRAY_CONTAINER = 0x00;
+  private static final byte BITMAP_CONTAINER = 0x01;
+  private static final byte FULL_CONTAINER = 0x02;
+
+  /** High bits of the IDs stored in the container at the same position, in ascending order. */
+  private long[] keys;
+  private Container[] containers;
+  private int nbContainers;
+  private long cardinality;
+
+  /** Creates a new empty bitmap. */
+  EntryIDBitmap()
+  {
+    this(4);
+  }
+
+  private EntryIDBitmap(int initialCapacity)
+  {
+    keys = new long[initialCapacity];
+    containers = new Container[initialCapacity];
+  }
+
+  /**
+   * Creates a new bitmap containing the provided IDs.
+   *
+   * @param sortedIDs
+   *          IDs to store in the bitmap, sorted in ascending order and without duplicates.
+   * @return A new bitmap containing the provided IDs.
+   */
+  static EntryIDBitmap valueOf(long... sortedIDs)
+  {
+    final EntryIDBitmap bitmap = new EntryIDBitmap(4);
+    int start = 0;
+    while (start < sortedIDs.length)
+    {
+      final long key = sortedIDs[start] >>> CHUNK_BITS;
+      int end = start + 1;
+      while (end < sortedIDs.length && (sortedIDs[end] >>> CHUNK_BITS) == key)
+      {
+        end++;
+      }
+      bitmap.appendContainer(key, newContainer(sortedIDs, start, end));
+      start = end;
+    }
+    return bitmap;
+  }
+
+  private static Container newContainer(long[] sortedIDs, int start, int end)
+  {
+    final int count = end - start;
+    if (count > MAX_ARRAY_CARDINALITY)
+    {
+      final BitmapContainer container = new BitmapContainer();
+      for (int i = start; i < end; i++)
+      {
+        container.set(low(sortedIDs[i]));
+      }
+      container.cardinality = count;
+      return container;
+    }
+    final char[] values = new char[count];
+    for (int i = start; i < end; i++)
+    {
+      values[i - start] = (char) low(sortedIDs[i]);
+    }
+    return new ArrayContainer(values, count);
+  }
+
+  private static int low(long id)
+  {
+    return (int) (id & CHUNK_MASK);
+  }
+
+  /**
+   * Returns the number of IDs stored in this bitmap.
+   *
+   * @return The number of IDs stored in this bitmap.
+   */
+  long cardinality()
+  {
+    return cardinality;
+  }
+
+  /**
+   * Returns the smallest ID of this bitmap.
+   *
+   * @return The smallest ID of this bitmap.
+   * @throws NoSuchElementException
+   *           If this bitmap is empty
+   */
+  long first()
+  {
+    if (nbContainers == 0)
+    {
+      throw new NoSuchElementException();
+    }
+    return keys[0] << CHUNK_BITS | containers[0].first();
+  }
+
+  /**
+   * Returns the greatest ID of this bitmap.
+   *
+   * @return The greatest ID of this bitmap.
+   * @throws NoSuchElementException
+   *           If this bitmap is empty
+   */
+  long last()
+  {
+    if (nbContainers == 0)
+    {
+      throw new NoSuchElementException();
+    }
+    final int last = nbContainers - 1;
+    return keys[last] << CHUNK_BITS | containers[last].last();
+  }
+
+  boolean contains(long id)
+  {
+    final int index = indexOfKey(id >>> CHUNK_BITS);
+    return index >= 0 && containers[index].contains(low(id));
+  }
+
+  boolean add(long id)
+  {
+    final long key = id >>> CHUNK_BITS;
+    final int index = indexOfKey(key);
+    if (index < 0)
+    {
+      insertContainer(-(index + 1), key, new ArrayContainer(new char[] { (char) low(id) }, 1));
+      return true;
+    }
+    final Container container = containers[index];
+    final int before = container.cardinality();
+    containers[index] = container.add(low(id));
+    if (containers[index].cardinality() != before)
+    {
+      cardinality++;
+      return true;
+    }
+    return false;
+  }
+
+  boolean remove(long id)
+  {
+    final int index = indexOfKey(id >>> CHUNK_BITS);
+    if (index < 0)
+    {
+      return false;
+    }
+    final Container container = containers[index];
+    final int before = container.cardinality();
+    final Container updated = container.remove(low(id));
+    if (updated.cardinality() == before)
+    {
+      return false;
+    }
+    cardinality--;
+    if (updated.cardinality() == 0)
+    {
+      removeContainer(index);
+    }
+    else
+    {
+      containers[index] = updated;
+    }
+    return true;
+  }
+
+  /**
+   * Returns the IDs of this bitmap in a new array, sorted in ascending order.
+   *
+   * @return The IDs of this bitmap in a new array, sorted in ascending order.
+   */
+  long[] toArray()
+  {
+    final long[] ids = new long[(int) cardinality];
+    int offset = 0;
+    for (int i = 0; i < nbContainers; i++)
+    {
+      offset = containers[i].toArray(keys[i] << CHUNK_BITS, ids, offset);
+    }
+    return ids;
+  }
+
+  /**
+   * Returns a deep copy of this bitmap.
+   *
+   * @return A deep copy of this bitmap.
+   */
+  EntryIDBitmap copy()
+  {
+    final EntryIDBitmap copy = new EntryIDBitmap(Math.max(1, nbContainers));
+    for (int i = 0; i < nbContainers; i++)
+    {
+      copy.appendContainer(keys[i], containers[i].copy());
+    }
+    return copy;
+  }
+
+  /**
+   * Returns a new bitmap holding the IDs present in both provided bitmaps.
+   *
+   * @param a
+   *          The first bitmap
+   * @param b
+   *          The second bitmap
+   * @return A new bitmap holding the intersection of the provided bitmaps.
+   */
+  static EntryIDBitmap and(EntryIDBitmap a, EntryIDBitmap b)
+  {
+    final EntryIDBitmap result = new EntryIDBitmap(Math.max(1, Math.min(a.nbContainers, b.nbContainers)));
+    int i = 0, j = 0;
+    while (i < a.nbContainers && j < b.nbContainers)
+    {
+      if (a.keys[i] < b.keys[j])
+      {
+        i++;
+      }
+      else if (a.keys[i] > b.keys[j])
+      {
+        j++;
+      }
+      else
+      {
+        result.appendContainer(a.keys[i], a.containers[i++].and(b.containers[j++]));
+      }
+    }
+    return result;
+  }
+
+  /**
+   * Returns a new bitmap holding the IDs present in any of the provided bitmaps.
+   *
+   * @param a
+   *          The first bitmap
+   * @param b
+   *          The second bitmap
+   * @return A new bitmap holding the union of the provided bitmaps.
+   */
+  static EntryIDBitmap or(EntryIDBitmap a, EntryIDBitmap b)
+  {
+    final EntryIDBitmap result = new EntryIDBitmap(Math.max(1, a.nbContainers + b.nbContainers));
+    int i = 0, j = 0;
+    while (i < a.nbContainers || j < b.nbContainers)
+    {
+      if (j == b.nbContainers || (i < a.nbContainers && a.keys[i] < b.keys[j]))
+      {
+        result.appendContainer(a.keys[i], a.containers[i++].copy());
+      }
+      else if (i == a.nbContainers || a.keys[i] > b.keys[j])
+      {
+        result.appendContainer(b.keys[j], b.containers[j++].copy());
+      }
+      else
+      {
+        result.appendContainer(a.keys[i], a.containers[i++].or(b.containers[j++]));
+      }
+    }
+    return result;
+  }
+
+  /**
+   * Returns a new bitmap holding the IDs present in the first bitmap but not in the second one.
+   *
+   * @param a
+   *          The bitmap from which IDs are removed
+   * @param b
+   *          The IDs to remove
+   * @return A new bitmap holding the difference of the provided bitmaps.
+   */
+  static EntryIDBitmap andNot(EntryIDBitmap a, EntryIDBitmap b)
+  {
+    final EntryIDBitmap result = new EntryIDBitmap(Math.max(1, a.nbContainers));
+    int i = 0, j = 0;
+    while (i < a.nbContainers)
+    {
+      if (j == b.nbContainers || a.keys[i] < b.keys[j])
+      {
+        result.appendContainer(a.keys[i], a.containers[i++].copy());
+      }
+      else if (a.keys[i] > b.keys[j])
+      {
+        j++;
+      }
+      else
+      {
+        result.appendContainer(a.keys[i], a.containers[i++].andNot(b.containers[j++]));
+      }
+    }
+    return result;
+  }
+
+  /**
+   * Returns the number of bytes written by {@link #writeTo(ByteStringBuilder)}.
+   *
+   * @return The number of bytes written by {@link #writeTo(ByteStringBuilder)}.
+   */
+  int getSerializedSize()
+  {
+    int size = PackedLong.getEncodedSize(nbContainers);
+    long previousKey = 0;
+    for (int i = 0; i < nbContainers; i++)
+    {
+      size += PackedLong.getEncodedSize(keys[i] - previousKey) + containers[i].getSerializedSize();
+      previousKey = keys[i];
+    }
+    return size;
+  }
+
+  /**
+   * Appends the serialized form of this bitmap to the provided builder.
+   *
+   * @param builder
+   *          The builder where to write this bitmap
+   * @return The provided builder.
+   */
+  ByteStringBuilder writeTo(ByteStringBuilder builder)
+  {
+    builder.appendCompactUnsigned(nbContainers);
+    long previousKey = 0;
+    for (int i = 0; i < nbContainers; i++)
+    {
+      builder.appendCompactUnsigned(keys[i] - previousKey);
+      containers[i].writeTo(builder);
+      previousKey = keys[i];
+    }
+    return builder;
+  }
+
+  /**
+   * Reads a bitmap previously serialized with {@link #writeTo(ByteStringBuilder)}.
+   *
+   * @param reader
+   *          The reader positioned at the beginning of the serialized bitmap
+   * @return The decoded bitmap.
+   */
+  static EntryIDBitmap readFrom(ByteSequenceReader reader)
+  {
+    final int nbContainers = reader.readCompactUnsignedInt();
+    final EntryIDBitmap bitmap = new EntryIDBitmap(Math.max(1, nbContainers));
+    long key = 0;
+    for (int i = 0; i < nbContainers; i++)
+    {
+      key += reader.readCompactUnsignedLong();
+      bitmap.appendContainer(key, readContainer(reader));
+    }
+    return bitmap;
+  }
+
+  private static Container readContainer(ByteSequenceReader reader)
+  {
+    final byte type = reader.readByte();
+    switch (type)
+    {
+    case ARRAY_CONTAINER:
+      final int count = reader.readCompactUnsignedInt();
+      final char[] values = new char[count];
+      int value = 0;
+      for (int i = 0; i < count; i++)
+      {
+        value += reader.readCompactUnsignedInt();
+        values[i] = (char) value;
+      }
+      return new ArrayContainer(values, count);
+    case BITMAP_CONTAINER:
+      final BitmapContainer bitmap = new BitmapContainer();
+      for (int i = 0; i < BITMAP_WORDS; i++)
+      {
+        bitmap.words[i] = reader.readLong();
+      }
+      bitmap.computeCardinality();
+      return bitmap;
+    case FULL_CONTAINER:
+      final BitmapContainer full = new BitmapContainer();
+      Arrays.fill(full.words, -1L);
+      full.cardinality = CHUNK_SIZE;
+      return full;
+    default:
+      throw new IllegalStateException("Unknown bitmap container type " + type);
+    }
+  }
+
+  @Override
+  public Iterator<EntryID> iterator()
+  {
+    return new BitmapIterator();
+  }
+
+  private int indexOfKey(long key)
+  {
+    // Fast path for IDs added or looked-up in ascending order
+    if (nbContainers > 0 && keys[nbContainers - 1] == key)
+    {
+      return nbContainers - 1;
+    }
+    return Arrays.binarySearch(keys, 0, nbContainers, key);
+  }
+
+  private void appendContainer(long key, Container container)
+  {
+    if (container.cardinality() > 0)
+    {
+      insertContainer(nbContainers, key, container);
+    }
+  }
+
+  private void insertContainer(int index, long key, Container container)
+  {
+    if (nbContainers == keys.length)
+    {
+      final int newCapacity = Math.max(4, nbContainers * 2);
+      keys = Arrays.copyOf(keys, newCapacity);
+      containers = Arrays.copyOf(containers, newCapacity);
+    }
+    System.arraycopy(keys, index, keys, index + 1, nbContainers - index);
+    System.arraycopy(containers, index, containers, index + 1, nbContainers - index);
+    keys[index] = key;
+    containers[index] = container;
+    nbContainers++;
+    cardinality += container.cardinality();
+  }
+
+  private void removeContainer(int index)
+  {
+    System.arraycopy(keys, index + 1, keys, index, nbContainers - index - 1);
+    System.arraycopy(containers, index + 1, containers, index, nbContainers - index - 1);
+    containers[--nbContainers] = null;
+  }
+
+  /** Iterates over the IDs of the bitmap, one container at a time. */
+  private final class BitmapIterator implements Iterator<EntryID>
+  {
+    private long[] buffer = new long[0];
+    private int bufferSize;
+    private int bufferIndex;
+    private int nextContainer;
+
+    @Override
+    public boolean hasNext()
+    {
+      if (bufferIndex < bufferSize)
+      {
+        return true;
+      }
+      if (nextContainer < nbContainers)
+      {
+        if (buffer.length < containers[nextContainer].cardinality())
+        {
+          buffer = new long[containers[nextContainer].cardinality()];
+        }
+        bufferSize = containers[nextContainer].toArray(keys[nextContainer] << CHUNK_BITS, buffer, 0);
+        bufferIndex = 0;
+        nextContainer++;
+        return true;
+      }
+      return false;
+    }
+
+    @Override
+    public EntryID next()
+    {
+      if (hasNext())
+      {
+        return new EntryID(buffer[bufferIndex++]);
+      }
+      throw new NoSuchElementException();
+    }
+
+    @Override
+    public void remove()
+    {
+      throw new UnsupportedOperationException();
+    }
+  }
+
+  /** Holds the low bits of the IDs sharing the same high bits. */
+  private abstract static class Container
+  {
+    abstract int cardinality();
+
+    abstract boolean contains(int value);
+
+    /** Returns this container or a new container holding the provided value in addition to current ones. */
+    abstract Container add(int value);
+
+    /** Returns this container or a new container holding current values except the provided one. */
+    abstract Container remove(int value);
+
+    abstract Container and(Container other);
+
+    abstract Container or(Container other);
+
+    abstract Container andNot(Container other);
+
+    abstract int first();
+
+    abstract int last();
+
+    /** Copies the IDs of this container in the provided array and returns the offset following the last copy. */
+    abstract int toArray(long high, long[] ids, int offset);
+
+    abstract Container copy();
+
+    abstract int getSerializedSize();
+
+    abstract void writeTo(ByteStringBuilder builder);
+  }
+
+  /** Container storing the low bits of its IDs in a sorted array. */
+  private static final class ArrayContainer extends Container
+  {
+    private char[] values;
+    private int cardinality;
+
+    ArrayContainer(char[] values, int cardinality)
+    {
+      this.values = values;
+      this.cardinality = cardinality;
+    }
+
+    @Override
+    int cardinality()
+    {
+      return cardinality;
+    }
+
+    @Override
+    boolean contains(int value)
+    {
+      return Arrays.binarySearch(values, 0, cardinality, (char) value) >= 0;
+    }
+
+    @Override
+    Container add(int value)
+    {
+      int pos = Arrays.binarySearch(values, 0, cardinality, (char) value);
+      if (pos >= 0)
+      {
+        return this;
+      }
+      if (cardinality >= MAX_ARRAY_CARDINALITY)
+      {
+        return toBitmapContainer().add(value);
+      }
+      pos = -(pos + 1);
+      if (cardinality == values.length)
+      {
+        values = Arrays.copyOf(values, Math.min(MAX_ARRAY_CARDINALITY, Math.max(4, cardinality * 2)));
+      }
+      System.arraycopy(values, pos, values, pos + 1, cardinality - pos);
+      values[pos] = (char) value;
+      cardinality++;
+      return this;
+    }
+
+    @Override
+    Container remove(int value)
+    {
+      final int pos = Arrays.binarySearch(values, 0, cardinality, (char) value);
+      if (pos >= 0)
+      {
+        System.arraycopy(values, pos + 1, values, pos, cardinality - pos - 1);
+        cardinality--;
+      }
+      return this;
+    }
+
+    @Override
+    Container and(Container other)
+    {
+      final char[] result = new char[cardinality];
+      int count = 0;
+      if (other instanceof ArrayContainer)
+      {
+        final ArrayContainer that = (ArrayContainer) other;
+        int i = 0, j = 0;
+        while (i < cardinality && j < that.cardinality)
+        {
+          if (values[i] < that.values[j])
+          {
+            i++;
+          }
+          else if (values[i] > that.values[j])
+          {
+            j++;
+          }
+          else
+          {
+            result[count++] = values[i++];
+            j++;
+          }
+        }
+      }
+      else
+      {
+        for (int i = 0; i < cardinality; i++)
+        {
+          if (other.contains(values[i]))
+          {
+            result[count++] = values[i];
+          }
+        }
+      }
+      return new ArrayContainer(result, count);
+    }
+
+    @Override
+    Container or(Container other)
+    {
+      if (other instanceof BitmapContainer)
+      {
+        return other.or(this);
+      }
+      final ArrayContainer that = (ArrayContainer) other;
+      if (cardinality + that.cardinality > MAX_ARRAY_CARDINALITY)
+      {
+        final BitmapContainer bitmap = toBitmapContainer();
+        for (int i = 0; i < that.cardinality; i++)
+        {
+          bitmap.set(that.values[i]);
+        }
+        bitmap.computeCardinality();
+        return bitmap.cardinality <= MAX_ARRAY_CARDINALITY ? bitmap.toArrayContainer() : bitmap;
+      }
+      final char[] result = new char[cardinality + that.cardinality];
+      int i = 0, j = 0, count = 0;
+      while (i < cardinality && j < that.cardinality)
+      {
+        if (values[i] < that.values[j])
+        {
+          result[count++] = values[i++];
+        }
+        else if (values[i] > that.values[j])
+        {
+          result[count++] = that.values[j++];
+        }
+        else
+        {
+          result[count++] = values[i++];
+          j++;
+        }
+      }
+      while (i < cardinality)
+      {
+        result[count++] = values[i++];
+      }
+      while (j < that.cardinality)
+      {
+        result[count++] = that.values[j++];
+      }
+      return new ArrayContainer(result, count);
+    }
+
+    @Override
+    Container andNot(Container other)
+    {
+      final char[] result = new char[cardinality];
+      int count = 0;
+      for (int i = 0; i < cardinality; i++)
+      {
+        if (!other.contains(values[i]))
+        {
+          result[count++] = values[i];
+        }
+      }
+      return new ArrayContainer(result, count);
+    }
+
+    @Override
+    int first()
+    {
+      return values[0];
+    }
+
+    @Override
+    int last()
+    {
+      return values[cardinality - 1];
+    }
+
+    @Override
+    int toArray(long high, long[] ids, int offset)
+    {
+      for (int i = 0; i < cardinality; i++)
+      {
+        ids[offset++] = high | values[i];
+      }
+      return offset;
+    }
+
+    @Override
+    Container copy()
+    {
+      return new ArrayContainer(Arrays.copyOf(values, cardinality), cardinality);
+    }
+
+    @Override
+    int getSerializedSize()
+    {
+      int size = 1 + PackedLong.getEncodedSize(cardinality);
+      int previous = 0;
+      for (int i = 0; i < cardinality; i++)
+      {
+        size += PackedLong.getEncodedSize(values[i] - previous);
+        previous = values[i];
+      }
+      return size;
+    }
+
+    @Override
+    void writeTo(ByteStringBuilder builder)
+    {
+      builder.appendByte(ARRAY_CONTAINER);
+      builder.appendCompactUnsigned(cardinality);
+      int previous = 0;
+      for (int i = 0; i < cardinality; i++)
+      {
+        builder.appendCompactUnsigned(values[i] - previous);
+        previous = values[i];
+      }
+    }
+
+    private BitmapContainer toBitmapContainer()
+    {
+      final BitmapContainer bitmap = new BitmapContainer();
+      for (int i = 0; i < cardinality; i++)
+      {
+        bitmap.set(values[i]);
+      }
+      bitmap.cardinality = cardinality;
+      return bitmap;
+    }
+  }
+
+  /** Container storing its IDs as bits in a fixed size bitmap. */
+  private static final class BitmapContainer extends Container
+  {
+    private final long[] words;
+    private int cardinality;
+
+    BitmapContainer()
+    {
+      this(new long[BITMAP_WORDS]);
+    }
+
+    private BitmapContainer(long[] words)
+    {
+      this.words = words;
+    }
+
+    /** Sets the bit without maintaining the cardinality. */
+    void set(int value)
+    {
+      words[value >>> 6] |= 1L << value;
+    }
+
+    void computeCardinality()
+    {
+      int count = 0;
+      for (long word : words)
+      {
+        count += Long.bitCount(word);
+      }
+      cardinality = count;
+    }
+
+    @Override
+    int cardinality()
+    {
+      return cardinality;
+    }
+
+    @Override
+    boolean contains(int value)
+    {
+      return (words[value >>> 6] & (1L << value)) != 0;
+    }
+
+    @Override
+    Container add(int value)
+    {
+      if (!contains(value))
+      {
+        set(value);
+        cardinality++;
+      }
+      return this;
+    }
+
+    @Override
+    Container remove(int value)
+    {
+      if (contains(value))
+      {
+        words[value >>> 6] &= ~(1L << value);
+        cardinality--;
+        if (cardinality <= MAX_ARRAY_CARDINALITY)
+        {
+          return toArrayContainer();
+        }
+      }
+      return this;
+    }
+
+    @Override
+    Container and(Container other)
+    {
+      if (other instanceof ArrayContainer)
+      {
+        return other.and(this);
+      }
+      final long[] otherWords = ((BitmapContainer) other).words;
+      final BitmapContainer result = new BitmapContainer();
+      for (int i = 0; i < BITMAP_WORDS; i++)
+      {
+        result.words[i] = words[i] & otherWords[i];
+      }
+      return result.optimize();
+    }
+
+    @Override
+    Container or(Container other)
+    {
+      final BitmapContainer result = new BitmapContainer(Arrays.copyOf(words, BITMAP_WORDS));
+      if (other instanceof ArrayContainer)
+      {
+        final ArrayContainer that = (ArrayContainer) other;
+        for (int i = 0; i < that.cardinality; i++)
+        {
+          result.set(that.values[i]);
+        }
+      }
+      else
+      {
+        final long[] otherWords = ((BitmapContainer) other).words;
+        for (int i = 0; i < BITMAP_WORDS; i++)
+        {
+          result.words[i] |= otherWords[i];
+        }
+      }
+      result.computeCardinality();
+      return result;
+    }
+
+    @Override
+    Container andNot(Container other)
+    {
+      final BitmapContainer result = new BitmapContainer(Arrays.copyOf(words, BITMAP_WORDS));
+      if (other instanceof ArrayContainer)
+      {
+        final ArrayContainer that = (ArrayContainer) other;
+        for (int i = 0; i < that.cardinality; i++)
+        {
+          result.words[that.values[i] >>> 6] &= ~(1L << that.values[i]);
+        }
+      }
+      else
+      {
+        final long[] otherWords = ((BitmapContainer) other).words;
+        for (int i = 0; i < BITMAP_WORDS; i++)
+        {
+          result.words[i] &= ~otherWords[i];
+        }
+      }
+      return result.optimize();
+    }
+
+    private Container optimize()
+    {
+      computeCardinality();
+      return cardinality <= MAX_ARRAY_CARDINALITY ? toArrayContainer() : this;
+    }
+
+    @Override
+    int first()
+    {
+      for (int i = 0; i < BITMAP_WORDS; i++)
+      {
+        if (words[i] != 0)
+        {
+          return i * Long.SIZE + Long.numberOfTrailingZeros(words[i]);
+        }
+      }
+      throw new NoSuchElementException();
+    }
+
+    @Override
+    int last()
+    {
+      for (int i = BITMAP_WORDS - 1; i >= 0; i--)
+      {
+        if (words[i] != 0)
+        {
+          return i * Long.SIZE + Long.SIZE - 1 - Long.numberOfLeadingZeros(words[i]);
+        }
+      }
+      throw new NoSuchElementException();
+    }
+
+    @Override
+    int toArray(long high, long[] ids, int offset)
+    {
+      for (int i = 0; i < BITMAP_WORDS; i++)
+      {
+        long word = words[i];
+        while (word != 0)
+        {
+          ids[offset++] = high | (i * Long.SIZE + Long.numberOfTrailingZeros(word));
+          word &= word - 1;
+        }
+      }
+      return offset;
+    }
+
+    @Override
+    Container copy()
+    {
+      final BitmapContainer copy = new BitmapContainer(Arrays.copyOf(words, BITMAP_WORDS));
+      copy.cardinality = cardinality;
+      return copy;
+    }
+
+    @Override
+    int getSerializedSize()
+    {
+      return cardinality == CHUNK_SIZE ? 1 : 1 + BITMAP_WORDS * Long.BYTES;
+    }
+
+    @Override
+    void writeTo(ByteStringBuilder builder)
+    {
+      if (cardinality == CHUNK_SIZE)
+      {
+        builder.appendByte(FULL_CONTAINER);
+        return;
+      }
+      builder.appendByte(BITMAP_CONTAINER);
+      for (long word : words)
+      {
+        builder.appendLong(word);
+      }
+    }
+
+    private ArrayContainer toArrayContainer()
+    {
+      final char[] values = new char[cardinality];
+      int count = 0;
+      for (int i = 0; i < BITMAP_WORDS; i++)
+      {
+        long word = words[i];
+        while (word != 0)
+        {
+          values[count++] = (char) (i * Long.SIZE + Long.numberOfTrailingZeros(word));
+          word &= word - 1;
+        }
+      }
+      return new ArrayContainer(values, count);
+    }
+  }
+}
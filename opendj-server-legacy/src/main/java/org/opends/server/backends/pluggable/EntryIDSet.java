@@ -43,6 +43,7 @@ final class EntryIDSet implements Iterable<EntryID>
 {
   public static final EntryIDSetCodec CODEC_V1 = new EntryIDSetCodecV1();
   public static final EntryIDSetCodec CODEC_V2 = new EntryIDSetCodecV2();
+  public static final EntryIDSetCodec CODEC_V4 = new EntryIDSetCodecV4();
 
   private static final ByteSequence NO_KEY = ByteString.valueOfUtf8("<none>");
   private static final long[] EMPTY_LONG_ARRAY = new long[0];
@@ -272,6 +273,114 @@ final class EntryIDSet implements Iterable<EntryID>
     }
   }
 
+  /**
+   * Concrete implementation representing a set of EntryIDs stored in a compressed bitmap. Used for large sets, whose
+   * sorted array representation would take too much memory and would be too slow to intersect.
+   */
+  private static final class BitmapImpl implements EntryIDSetImplementor
+  {
+    private EntryIDBitmap bitmap;
+
+    BitmapImpl(EntryIDBitmap bitmap)
+    {
+      this.bitmap = checkNotNull(bitmap, "bitmap must not be null");
+    }
+
+    @Override
+    public long size()
+    {
+      return bitmap.cardinality();
+    }
+
+    @Override
+    public void toString(StringBuilder buffer)
+    {
+      buffer.append("[COUNT:").append(size()).append("]");
+    }
+
+    @Override
+    public boolean isDefined()
+    {
+      return true;
+    }
+
+    @Override
+    public boolean add(EntryID entryID)
+    {
+      return bitmap.add(entryID.longValue());
+    }
+
+    @Override
+    public boolean remove(EntryID entryID)
+    {
+      return bitmap.remove(entryID.longValue());
+    }
+
+    @Override
+    public boolean contains(EntryID entryID)
+    {
+      return bitmap.contains(entryID.longValue());
+    }
+
+    @Override
+    public void addAll(EntryIDSet that)
+    {
+      final EntryIDBitmap thatBitmap = that.getBitmap();
+      if (thatBitmap != null)
+      {
+        bitmap = EntryIDBitmap.or(bitmap, thatBitmap);
+      }
+      else if (that.size() > EntryIDBitmap.MAX_ARRAY_CARDINALITY)
+      {
+        bitmap = EntryIDBitmap.or(bitmap, EntryIDBitmap.valueOf(that.getIDs()));
+      }
+      else
+      {
+        for (long id : that.getIDs())
+        {
+          bitmap.add(id);
+        }
+      }
+    }
+
+    @Override
+    public void removeAll(EntryIDSet that)
+    {
+      final EntryIDBitmap thatBitmap = that.getBitmap();
+      if (thatBitmap != null)
+      {
+        bitmap = EntryIDBitmap.andNot(bitmap, thatBitmap);
+        return;
+      }
+      for (long id : that.getIDs())
+      {
+        bitmap.remove(id);
+      }
+    }
+
+    @Override
+    public Iterator<EntryID> iterator()
+    {
+      return bitmap.iterator();
+    }
+
+    @Override
+    public long[] getRange()
+    {
+      if (bitmap.cardinality() != 0)
+      {
+        return new long[] { bitmap.first(), bitmap.last() };
+      }
+      return NO_ENTRY_IDS_RANGE;
+    }
+
+    @Override
+    public long[] getIDs()
+    {
+      return bitmap.toArray();
+    }
+  }
+
   /**
    * Concrete implementation where the EntryIDs are not defined, for example when the index entry
    * limit has been exceeded.
@@ -539,7 +648,53 @@ final class EntryIDSet implements Iterable<EntryID>
   }
 
   /**
-   * Decorate a V1 or V2 codec with encryption. When writing EntryIDSets to disk,
+   * Compressed bitmap EntryIDSet codec implementation. Small or sparse sets are encoded exactly like
+   * {@link EntryIDSetCodecV2} does, whereas large sets are encoded as an {@link EntryIDBitmap} prefixed with a tag
+   * which cannot start a V2 encoded value. This codec is therefore able to decode all values written by the V2 codec.
+   */
+  private static final class EntryIDSetCodecV4 implements EntryIDSetCodec
+  {
+    /** Starts a compact unsigned long requiring 8 bytes, which is never used for encoding the size of a V2 set. */
+    private static final byte BITMAP_SET = (byte) 0xFE;
+    /** Sets smaller than this are always encoded with the V2 format. */
+    private static final int MIN_BITMAP_SET_SIZE = 256;
+
+    @Override
+    public ByteString encode(EntryIDSet idSet)
+    {
+      checkNotNull(idSet, "idSet must not be null");
+      if (idSet.isDefined() && idSet.size() >= MIN_BITMAP_SET_SIZE)
+      {
+        final EntryIDBitmap bitmap = idSet.toBitmap();
+        final int bitmapSize = 1 + bitmap.getSerializedSize();
+        // The V2 format requires at least one byte per ID
+        if (bitmapSize <= idSet.size())
+        {
+          final ByteStringBuilder builder = new ByteStringBuilder(bitmapSize);
+          builder.appendByte(BITMAP_SET);
+          return bitmap.writeTo(builder).toByteString();
+        }
+      }
+      return CODEC_V2.encode(idSet);
+    }
+
+    @Override
+    public EntryIDSet decode(ByteSequence key, ByteString value)
+    {
+      checkNotNull(key, "key must not be null");
+      checkNotNull(value, "value must not be null");
+      if (value.byteAt(0) == BITMAP_SET)
+      {
+        final ByteSequenceReader reader = value.asReader();
+        reader.skip(1);
+        return new EntryIDSet(new BitmapImpl(EntryIDBitmap.readFrom(reader)));
+      }
+      return CODEC_V2.decode(key, value);
+    }
+  }
+
+  /**
+   * Decorate a V1, V2 or V4 codec with encryption. When writing EntryIDSets to disk,
    * prepend two bytes, {0, 1} to mark them as encrypted.
    * The first is tag zero (unused in other encodings), followed by a byte
    * indicating version 1 of encryption.
@@ -689,6 +844,16 @@ final class EntryIDSet implements Iterable<EntryID>
       return newUndefinedSet();
     }
 
+    if (containsBitmapSet(sets))
+    {
+      EntryIDBitmap union = new EntryIDBitmap();
+      for (EntryIDSet l : sets)
+      {
+        union = EntryIDBitmap.or(union, l.toBitmap());
+      }
+      return new EntryIDSet(new BitmapImpl(union));
+    }
+
     boolean needSort = false;
     long[] n = new long[count];
     int pos = 0;
@@ -723,6 +888,18 @@ final class EntryIDSet implements Iterable<EntryID>
     return newDefinedSet(Arrays.copyOf(n1, j));
   }
 
+  private static boolean containsBitmapSet(List<EntryIDSet> sets)
+  {
+    for (EntryIDSet l : sets)
+    {
+      if (l.getBitmap() != null)
+      {
+        return true;
+      }
+    }
+    return false;
+  }
+
   private EntryIDSetImplementor concreteImpl;
 
   private EntryIDSet(EntryIDSetImplementor concreteImpl)
@@ -873,6 +1050,10 @@ final class EntryIDSet implements Iterable<EntryID>
   {
     checkNotNull(that, "that must not be null");
     Reject.ifFalse(that.isDefined(), "that must be defined");
+    if (that.getBitmap() != null && concreteImpl instanceof DefinedImpl)
+    {
+      concreteImpl = new BitmapImpl(toBitmap());
+    }
     concreteImpl.addAll(that);
   }
 
@@ -889,7 +1070,9 @@ final class EntryIDSet implements Iterable<EntryID>
     checkNotNull(that, "that must not be null");
     if (!concreteImpl.isDefined())
     {
-      if ( that.isDefined() ) {
+      if ( that.getBitmap() != null ) {
+        concreteImpl = new BitmapImpl(that.getBitmap().copy());
+      } else if ( that.isDefined() ) {
         // NOTE: It's ok to share the same array instance here thanks to the copy-on-write
         // performed by the implementation.
         concreteImpl = new DefinedImpl(that.getIDs());
@@ -903,6 +1086,24 @@ final class EntryIDSet implements Iterable<EntryID>
       return;
     }
 
+    final EntryIDBitmap thisBitmap = getBitmap();
+    final EntryIDBitmap thatBitmap = that.getBitmap();
+    if (thisBitmap != null && thatBitmap != null)
+    {
+      concreteImpl = new BitmapImpl(EntryIDBitmap.and(thisBitmap, thatBitmap));
+      return;
+    }
+    else if (thisBitmap != null)
+    {
+      concreteImpl = new DefinedImpl(filter(that.getIDs(), thisBitmap, true));
+      return;
+    }
+    else if (thatBitmap != null)
+    {
+      concreteImpl = new DefinedImpl(filter(concreteImpl.getIDs(), thatBitmap, true));
+      return;
+    }
+
     final boolean thatSetOverlap = compareForOverlap(getRange(), that.getRange()) == 0;
     if (thatSetOverlap)
     {
@@ -928,6 +1129,11 @@ final class EntryIDSet implements Iterable<EntryID>
   {
     checkNotNull(that, "that must not be null");
     Reject.ifFalse(that.isDefined(), "that must be defined");
+    if (that.getBitmap() != null && concreteImpl instanceof DefinedImpl)
+    {
+      concreteImpl = new DefinedImpl(filter(concreteImpl.getIDs(), that.getBitmap(), false));
+      return;
+    }
     concreteImpl.removeAll(that);
   }
 
@@ -952,6 +1158,34 @@ final class EntryIDSet implements Iterable<EntryID>
     return concreteImpl.getRange();
   }
 
+  /** Returns the bitmap holding the IDs of this set or null if this set is not backed by a bitmap. */
+  private EntryIDBitmap getBitmap()
+  {
+    return concreteImpl instanceof BitmapImpl ? ((BitmapImpl) concreteImpl).bitmap : null;
+  }
+
+  /** Returns the IDs of this defined set as a bitmap, which must not be modified. */
+  private EntryIDBitmap toBitmap()
+  {
+    final EntryIDBitmap bitmap = getBitmap();
+    return bitmap != null ? bitmap : EntryIDBitmap.valueOf(concreteImpl.getIDs());
+  }
+
+  /** Returns the IDs from the sorted array which are (or are not) present in the bitmap. */
+  private static long[] filter(long[] ids, EntryIDBitmap bitmap, boolean retain)
+  {
+    final long[] result = new long[ids.length];
+    int count = 0;
+    for (long id : ids)
+    {
+      if (bitmap.contains(id) == retain)
+      {
+        result[count++] = id;
+      }
+    }
+    return count == ids.length ? result : Arrays.copyOf(result, count);
+  }
+
   private static long[] mergeOverlappingEntryIDSet(long set1[], long set2[])
   {
     final long[] a, b;
@@ -0,0 +1,681 @@
+/*
+ * The contents of this file are subject to the terms of the Common Development and
+ * Distribution License (the License). You may not use this file except in compliance with the
+ * License.
+ *
+ * You can obtain a copy of the License at legal/CDDLv1.0.txt. See the License for the
+ * specific language governing permission and limitations under the License.
+ *
+ * When distributing Covered Software, include this CDDL Header Notice in each file and include
+ * the License file at legal/CDDLv1.0.txt. If applicable, add the following below the CDDL
+ * Header, with the fields enclosed by brackets [] replaced by your own identifying
+ * information: "Portions Copyright [year] [name of copyright owner]".
+ *
+ * Copyright 2026 ForgeRock AS.
+ */
+package org.opends.server.backends.pluggable;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.Closeable;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.InterruptedIOException;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.Iterator;
+import java.util.List;
+import java.util.PriorityQueue;
+import java.util.concurrent.atomic.AtomicLong;
+
+import org.forgerock.i18n.slf4j.LocalizedLogger;
+import org.forgerock.opendj.ldap.ByteString;
+import org.opends.server.util.StaticUtils;
+
+/**
+ * Sorts the candidate entries of searches which cannot be sorted by a VLV index.
+ * <p>
+ * The entries are sorted by their VLV keys, which end with the entry ID and are thus unique. When only the first keys
+ * are needed, like for a virtual list view by offset, only these keys are kept in memory. The sorts in progress share
+ * a memory budget: once it is exhausted, the keys of a sort are otherwise sorted and spilled to temporary files in the
+ * directory of the sorter, then merged back.
+ */
+final class EntryIDSorter
+{
+  private static final LocalizedLogger logger = LocalizedLogger.getLoggerForThisClass();
+
+  /** Estimated memory used by a key in addition to its bytes: the objects, the array header and the reference. */
+  private static final int KEY_OVERHEAD = 64;
+  private static final int SPILL_BUFFER_SIZE = 64 * 1024;
+  /**
+   * Minimum share of the memory budget of a sort, so that the runs of keys it spills are not too small. Sorts wait for
+   * their minimum share when the other sorts in progress use all the memory.
+   */
+  private static final long MIN_SORT_MEMORY = 64 * 1024;
+  /** Maximum number of runs of keys merged at once, bounding the number of temporary files open by a sort. */
+  static final int MAX_MERGE_FAN_IN = 64;
+  /** Marks the end of a run of keys in a temporary file, in place of the length of a key. */
+  private static final int END_OF_RUN = -1;
+
+  /** The directory of the temporary files. */
+  private final File tempDir;
+  /** Memory budget shared by all the sorts in progress, in bytes. */
+  private volatile long memorySize;
+  /** Memory used by the keys of all the sorts in progress, in bytes. */
+  private final AtomicLong memoryUsed = new AtomicLong();
+
+  private final AtomicLong sortCount = new AtomicLong();
+  private final AtomicLong topKeysSortCount = new AtomicLong();
+  private final AtomicLong spilledSortCount = new AtomicLong();
+  private final AtomicLong spillFileCount = new AtomicLong();
+  private final AtomicLong spilledKeyCount = new AtomicLong();
+
+  /**
+   * Creates a new sorter, deleting the temporary files left in its directory by a previous sorter.
+   *
+   * @param tempDir
+   *          the directory of the temporary files, created when keys are first spilled
+   * @param memorySize
+   *          the memory budget shared by all the sorts in progress, in bytes
+   */
+  EntryIDSorter(File tempDir, long memorySize)
+  {
+    this.tempDir = tempDir;
+    this.memorySize = memorySize;
+    StaticUtils.recursiveDelete(tempDir);
+  }
+
+  /**
+   * Sets the memory budget shared by all the sorts in progress.
+   *
+   * @param memorySize
+   *          the memory budget shared by all the sorts in progress, in bytes
+   */
+  void setMemorySize(long memorySize)
+  {
+    this.memorySize = memorySize;
+  }
+
+  /**
+   * Returns a new buffer collecting the keys to sort, waiting for its minimum share of the memory budget if needed. The
+   * buffer must be closed in order to delete its temporary files and to release its memory.
+   *
+   * @param maxKeys
+   *          the number of smallest keys to return, or 0 to return all the keys
+   * @return a new buffer collecting the keys to sort
+   * @throws InterruptedIOException
+   *           if the thread is interrupted while waiting for memory
+   */
+  SortBuffer newSortBuffer(int maxKeys) throws InterruptedIOException
+  {
+    final long minMemory = Math.min(MIN_SORT_MEMORY, memorySize);
+    if (!reserveMemory(minMemory))
+    {
+      synchronized (this)
+      {
+        while (!reserveMemory(minMemory))
+        {
+          try
+          {
+            wait();
+          }
+          catch (InterruptedException e)
+          {
+            Thread.currentThread().interrupt();
+            throw new InterruptedIOException("Interrupted while waiting for sort memory");
+          }
+        }
+      }
+    }
+    sortCount.incrementAndGet();
+    if (maxKeys > 0)
+    {
+      topKeysSortCount.incrementAndGet();
+    }
+    return new SortBuffer(maxKeys, minMemory);
+  }
+
+  /** Gives back memory to the budget of the sorts in progress, waking up the sorts waiting for their minimum share. */
+  private void releaseMemory(long size)
+  {
+    if (size > 0)
+    {
+      memoryUsed.addAndGet(-size);
+      synchronized (this)
+      {
+        notifyAll();
+      }
+    }
+  }
+
+  /**
+   * Returns the memory used by the keys of all the sorts in progress.
+   *
+   * @return the memory used by the keys of all the sorts in progress, in bytes
+   */
+  long getMemoryUsed()
+  {
+    return memoryUsed.get();
+  }
+
+  /** Reserves memory, unless this would exceed the memory budget of the sorts in progress. */
+  private boolean reserveMemory(long size)
+  {
+    long used;
+    do
+    {
+      used = memoryUsed.get();
+      if (used + size > memorySize)
+      {
+        return false;
+      }
+    }
+    while (!memoryUsed.compareAndSet(used, used + size));
+    return true;
+  }
+
+  /**
+   * Returns the number of sorts performed.
+   *
+   * @return the number of sorts performed
+   */
+  long getSortCount()
+  {
+    return sortCount.get();
+  }
+
+  /**
+   * Returns the number of sorts which only kept the first keys.
+   *
+   * @return the number of sorts which only kept the first keys
+   */
+  long getTopKeysSortCount()
+  {
+    return topKeysSortCount.get();
+  }
+
+  /**
+   * Returns the number of sorts which exceeded their memory budget and spilled keys to temporary files.
+   *
+   * @return the number of sorts which spilled keys to temporary files
+   */
+  long getSpilledSortCount()
+  {
+    return spilledSortCount.get();
+  }
+
+  /**
+   * Returns the number of temporary files written.
+   *
+   * @return the number of temporary files written
+   */
+  long getSpillFileCount()
+  {
+    return spillFileCount.get();
+  }
+
+  /**
+   * Returns the number of keys written to temporary files.
+   *
+   * @return the number of keys written to temporary files
+   */
+  long getSpilledKeyCount()
+  {
+    return spilledKeyCount.get();
+  }
+
+  /**
+   * Returns the ID of the entry from its VLV key.
+   *
+   * @param key
+   *          the VLV key of the entry
+   * @return the ID of the entry
+   */
+  static long toEntryID(ByteString key)
+  {
+    return key.subSequence(key.length() - 8, key.length()).toLong();
+  }
+
+  /** Iterates over sorted keys. */
+  interface SortedKeys extends Closeable
+  {
+    /**
+     * Moves to the next key.
+     *
+     * @return {@code true} if there is a next key
+     * @throws IOException
+     *           if the key cannot be read from a temporary file
+     */
+    boolean next() throws IOException;
+
+    /**
+     * Returns the current key.
+     *
+     * @return the current key
+     */
+    ByteString getKey();
+
+    @Override
+    void close();
+  }
+
+  /** Collects the keys of one sort, not thread safe. */
+  final class SortBuffer implements Closeable
+  {
+    private final int maxKeys;
+    /** The smallest keys collected when only the first keys are needed, largest first. */
+    private final PriorityQueue<ByteString> topKeys;
+    /** The keys collected when all the keys are needed, unsorted. */
+    private final List<ByteString> keys;
+    /** The memory reserved by this buffer, never less than its minimum share until it is closed. */
+    private long memoryReserved;
+    /** The minimum share of the memory budget reserved by this buffer. */
+    private final long minMemory;
+    /** The memory used by the keys held by this buffer. */
+    private long keysMemory;
+    private int size;
+    /** The sorted runs of keys spilled to temporary files. */
+    private final List<File> spillFiles = new ArrayList<>();
+
+    private SortBuffer(int maxKeys, long minMemory)
+    {
+      this.maxKeys = maxKeys;
+      this.minMemory = minMemory;
+      this.memoryReserved = minMemory;
+      this.topKeys = maxKeys > 0 ? new PriorityQueue<ByteString>(11, Collections.<ByteString> reverseOrder()) : null;
+      this.keys = maxKeys > 0 ? null : new ArrayList<ByteString>();
+    }
+
+    /**
+     * Adds a key to sort.
+     *
+     * @param key
+     *          the key to sort
+     * @throws IOException
+     *           if keys cannot be spilled to a temporary file
+     */
+    void add(ByteString key) throws IOException
+    {
+      size++;
+      if (topKeys != null && topKeys.size() == maxKeys)
+      {
+        if (key.compareTo(topKeys.peek()) >= 0)
+        {
+          return;
+        }
+        keysMemory -= memorySize(topKeys.poll());
+      }
+
+      final long keySize = memorySize(key);
+      if (!reserveMemoryFor(keySize))
+      {
+        // The sorts in progress use all the memory: spill the keys of this sort, which fill at least its minimum share
+        if (keysMemory > 0)
+        {
+          spill();
+        }
+        if (!reserveMemoryFor(keySize))
+        {
+          // The key alone exceeds the minimum share of this sort
+          spill(Collections.singletonList(key));
+          return;
+        }
+      }
+      keysMemory += keySize;
+      if (topKeys != null)
+      {
+        topKeys.add(key);
+      }
+      else
+      {
+        keys.add(key);
+      }
+    }
+
+    /**
+     * Returns the number of keys added, including the keys which will not be returned.
+     *
+     * @return the number of keys added
+     */
+    int size()
+    {
+      return size;
+    }
+
+    /**
+     * Returns the IDs of the entries in the order of their keys.
+     *
+     * @return the IDs of the entries in the order of their keys
+     * @throws IOException
+     *           if keys cannot be read from a temporary file
+     */
+    long[] toEntryIDs() throws IOException
+    {
+      final long[] entryIDs = new long[maxKeys > 0 ? Math.min(maxKeys, size) : size];
+      try (SortedKeys sortedKeys = openSortedKeys())
+      {
+        for (int i = 0; i < entryIDs.length && sortedKeys.next(); i++)
+        {
+          entryIDs[i] = toEntryID(sortedKeys.getKey());
+        }
+      }
+      return entryIDs;
+    }
+
+    /**
+     * Returns the sorted keys. The keys must no longer be added once this method has been called.
+     * <p>
+     * When there are more temporary files than can be merged at once, they are first merged by groups into
+     * intermediate temporary files.
+     *
+     * @return the sorted keys
+     * @throws IOException
+     *           if a temporary file cannot be read or written
+     */
+    SortedKeys openSortedKeys() throws IOException
+    {
+      // Keep one input for the keys held in memory
+      while (spillFiles.size() > MAX_MERGE_FAN_IN - 1)
+      {
+        final List<File> mergedFiles = new ArrayList<>(spillFiles.subList(0, MAX_MERGE_FAN_IN));
+        try (SortedKeys mergedKeys = new MergedKeys(openSpillFiles(mergedFiles), maxKeys))
+        {
+          writeRun(mergedKeys);
+        }
+        spillFiles.removeAll(mergedFiles);
+        deleteSpillFiles(mergedFiles);
+      }
+
+      final List<SortedKeys> runs = openSpillFiles(spillFiles);
+      runs.add(new InMemoryKeys(drainSorted()));
+      return runs.size() == 1 ? runs.get(0) : new MergedKeys(runs, maxKeys);
+    }
+
+    @Override
+    public void close()
+    {
+      try
+      {
+        deleteSpillFiles(spillFiles);
+      }
+      finally
+      {
+        spillFiles.clear();
+        if (topKeys != null)
+        {
+          topKeys.clear();
+        }
+        else
+        {
+          keys.clear();
+        }
+        keysMemory = 0;
+        releaseMemory(memoryReserved);
+        memoryReserved = 0;
+      }
+    }
+
+    /** Makes sure the memory reserved by this buffer can hold a new key, reserving more memory if needed. */
+    private boolean reserveMemoryFor(long keySize)
+    {
+      final long missingMemory = keysMemory + keySize - memoryReserved;
+      if (missingMemory > 0)
+      {
+        if (!reserveMemory(missingMemory))
+        {
+          return false;
+        }
+        memoryReserved += missingMemory;
+      }
+      return true;
+    }
+
+    /** Writes the keys held in memory to a temporary file, and gives back the memory beyond the minimum share. */
+    private void spill() throws IOException
+    {
+      final List<ByteString> sortedKeys = drainSorted();
+      releaseMemory(memoryReserved - minMemory);
+      memoryReserved = minMemory;
+      spill(sortedKeys);
+    }
+
+    private void spill(List<ByteString> sortedKeys) throws IOException
+    {
+      if (spillFiles.isEmpty())
+      {
+        spilledSortCount.incrementAndGet();
+      }
+      spilledKeyCount.addAndGet(writeRun(new InMemoryKeys(sortedKeys)));
+    }
+
+    /** Writes sorted keys to a new temporary file, which is deleted by close() even if it cannot be written. */
+    private int writeRun(SortedKeys sortedKeys) throws IOException
+    {
+      if (!tempDir.isDirectory() && !tempDir.mkdirs())
+      {
+        throw new IOException("Unable to create the sort temporary directory " + tempDir);
+      }
+      final File spillFile = File.createTempFile("sort-", ".tmp", tempDir);
+      spillFiles.add(spillFile);
+      spillFileCount.incrementAndGet();
+      int nbKeys = 0;
+      try (DataOutputStream out =
+          new DataOutputStream(new BufferedOutputStream(new FileOutputStream(spillFile), SPILL_BUFFER_SIZE)))
+      {
+        while (sortedKeys.next())
+        {
+          final ByteString key = sortedKeys.getKey();
+          out.writeInt(key.length());
+          key.copyTo(out);
+          nbKeys++;
+        }
+        out.writeInt(END_OF_RUN);
+      }
+      return nbKeys;
+    }
+
+    /** Removes and returns the collected keys, sorted. */
+    private List<ByteString> drainSorted()
+    {
+      final List<ByteString> sortedKeys;
+      if (topKeys != null)
+      {
+        sortedKeys = new ArrayList<>(topKeys);
+        topKeys.clear();
+      }
+      else
+      {
+        sortedKeys = new ArrayList<>(keys);
+        keys.clear();
+      }
+      keysMemory = 0;
+      Collections.sort(sortedKeys);
+      return sortedKeys;
+    }
+  }
+
+  private static List<SortedKeys> openSpillFiles(List<File> spillFiles) throws IOException
+  {
+    final List<SortedKeys> runs = new ArrayList<>(spillFiles.size() + 1);
+    try
+    {
+      for (File spillFile : spillFiles)
+      {
+        runs.add(new SpilledKeys(spillFile));
+      }
+    }
+    catch (IOException e)
+    {
+      closeSortedKeys(runs);
+      throw e;
+    }
+    return runs;
+  }
+
+  private static void deleteSpillFiles(List<File> spillFiles)
+  {
+    for (File spillFile : spillFiles)
+    {
+      if (!spillFile.delete())
+      {
+        logger.trace("Unable to delete the sort temporary file %s", spillFile);
+      }
+    }
+  }
+
+  private static long memorySize(ByteString key)
+  {
+    return key.length() + KEY_OVERHEAD;
+  }
+
+  private static void closeSortedKeys(List<SortedKeys> sortedKeys)
+  {
+    for (SortedKeys keys : sortedKeys)
+    {
+      keys.close();
+    }
+  }
+
+  /** Keys sorted in memory. */
+  private static final class InMemoryKeys implements SortedKeys
+  {
+    private final Iterator<ByteString> iterator;
+    private ByteString key;
+
+    private InMemoryKeys(List<ByteString> sortedKeys)
+    {
+      this.iterator = sortedKeys.iterator();
+    }
+
+    @Override
+    public boolean next()
+    {
+      key = iterator.hasNext() ? iterator.next() : null;
+      return key != null;
+    }
+
+    @Override
+    public ByteString getKey()
+    {
+      return key;
+    }
+
+    @Override
+    public void close()
+    {
+      // Nothing to do
+    }
+  }
+
+  /** Keys read from a sorted run spilled to a temporary file. */
+  private static final class SpilledKeys implements SortedKeys
+  {
+    private final DataInputStream in;
+    private ByteString key;
+
+    private SpilledKeys(File spillFile) throws IOException
+    {
+      this.in = new DataInputStream(new BufferedInputStream(new FileInputStream(spillFile), SPILL_BUFFER_SIZE));
+    }
+
+    @Override
+    public boolean next() throws IOException
+    {
+      final int length = in.readInt();
+      if (length == END_OF_RUN)
+      {
+        key = null;
+        return false;
+      }
+      final byte[] bytes = new byte[length];
+      in.readFully(bytes);
+      key = ByteString.wrap(bytes);
+      return true;
+    }
+
+    @Override
+    public ByteString getKey()
+    {
+      return key;
+    }
+
+    @Override
+    public void close()
+    {
+      StaticUtils.close(in);
+    }
+  }
+
+  /** Merges sorted runs of keys. */
+  private static final class MergedKeys implements SortedKeys
+  {
+    private final List<SortedKeys> runs;
+    /** The runs which have a current key, by current key. */
+    private final PriorityQueue<SortedKeys> heads;
+    private final int maxKeys;
+    private SortedKeys current;
+    private int nbKeys;
+
+    private MergedKeys(List<SortedKeys> runs, int maxKeys) throws IOException
+    {
+      this.runs = runs;
+      this.maxKeys = maxKeys;
+      this.heads = new PriorityQueue<>(runs.size(), new Comparator<SortedKeys>()
+      {
+        @Override
+        public int compare(SortedKeys run1, SortedKeys run2)
+        {
+          return run1.getKey().compareTo(run2.getKey());
+        }
+      });
+      try
+      {
+        for (SortedKeys run : runs)
+        {
+          if (run.next())
+          {
+            heads.add(run);
+          }
+        }
+      }
+      catch (IOException e)
+      {
+        close();
+        throw e;
+      }
+    }
+
+    @Override
+    public boolean next() throws IOException
+    {
+      if (current != null && current.next())
+      {
+        heads.add(current);
+      }
+      current = maxKeys > 0 && nbKeys >= maxKeys ? null : heads.poll();
+      if (current == null)
+      {
+        return false;
+      }
+      nbKeys++;
+      return true;
+    }
+
+    @Override
+    public ByteString getKey()
+    {
+      return current != null ? current.getKey() : null;
+    }
+
+    @Override
+    public void close()
+    {
+      closeSortedKeys(runs);
+    }
+  }
+}
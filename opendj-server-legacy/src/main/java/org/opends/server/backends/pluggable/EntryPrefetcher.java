@@ -0,0 +1,349 @@
+/*
+ * The contents of this file are subject to the terms of the Common Development and
+ * Distribution License (the License). You may not use this file except in compliance with the
+ * License.
+ *
+ * You can obtain a copy of the License at legal/CDDLv1.0.txt. See the License for the
+ * specific language governing permission and limitations under the License.
+ *
+ * When distributing Covered Software, include this CDDL Header Notice in each file and include
+ * the License file at legal/CDDLv1.0.txt. If applicable, add the following below the CDDL
+ * Header, with the fields enclosed by brackets [] replaced by your own identifying
+ * information: "Portions Copyright [year] [name of copyright owner]".
+ *
+ * Copyright 2026 ForgeRock AS.
+ */
+package org.opends.server.backends.pluggable;
+
+import static org.opends.messages.BackendMessages.*;
+
+import java.util.ArrayDeque;
+import java.util.Arrays;
+import java.util.Comparator;
+import java.util.Queue;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Future;
+import java.util.concurrent.FutureTask;
+import java.util.concurrent.RejectedExecutionException;
+
+import org.forgerock.opendj.ldap.ByteString;
+import org.opends.server.api.EntryCache;
+import org.opends.server.backends.pluggable.spi.ReadableTransaction;
+import org.opends.server.core.DirectoryServer;
+import org.opends.server.types.DirectoryException;
+import org.opends.server.types.Entry;
+
+/**
+ * Fetches the candidate entries of a search ahead of their processing by the search thread.
+ * <p>
+ * The entries are fetched by batches: the records missing from the entry cache are read in key order by the search
+ * thread, which owns the read transaction, then decoded by the threads of a shared executor while the search thread
+ * evaluates the filter on the entries of the previous batch and returns them. The entries are still provided in the
+ * order of the candidate entry IDs. Batches grow from a few entries, so that searches returning few entries do not
+ * read much more than they need.
+ */
+final class EntryPrefetcher implements AutoCloseable
+{
+  private static final int FIRST_BATCH_SIZE = 8;
+  private static final int MAX_BATCH_SIZE = 64;
+  /** The number of entries decoded by a single task. */
+  private static final int ENTRIES_PER_DECODING_TASK = 16;
+  /** The number of batches fetched ahead of the entries being processed, including the current batch. */
+  private static final int BATCHES_AHEAD = 2;
+
+  /** The entries of consecutive candidate entry IDs. */
+  private final class Batch
+  {
+    private final int firstIndex;
+    private final Entry[] entries;
+    private final DirectoryException[] errors;
+    /** The task decoding each entry, {@code null} for entries found in the entry cache. */
+    private final Future<?>[] decodings;
+    /** The entries not found in the entry cache, which are put in it once returned. */
+    private final boolean[] fromStorage;
+    private int position;
+
+    private Batch(int firstIndex, int size)
+    {
+      this.firstIndex = firstIndex;
+      this.entries = new Entry[size];
+      this.errors = new DirectoryException[size];
+      this.decodings = new Future<?>[size];
+      this.fromStorage = new boolean[size];
+    }
+
+    private void read()
+    {
+      final ByteString[] values = new ByteString[entries.length];
+      final Integer[] missingIndexes = new Integer[entries.length];
+      int nbMissing = 0;
+      for (int i = 0; i < entries.length; i++)
+      {
+        entries[i] = entryCache.getEntry(backendID, getEntryID(i));
+        if (entries[i] == null)
+        {
+          missingIndexes[nbMissing++] = i;
+          fromStorage[i] = true;
+        }
+      }
+
+      // Read the records missing from the entry cache in key order
+      Arrays.sort(missingIndexes, 0, nbMissing, new Comparator<Integer>()
+      {
+        @Override
+        public int compare(Integer index1, Integer index2)
+        {
+          return Long.compare(getEntryID(index1), getEntryID(index2));
+        }
+      });
+      for (int i = 0; i < nbMissing; i++)
+      {
+        final int index = missingIndexes[i];
+        final EntryID entryID = new EntryID(getEntryID(index));
+        try
+        {
+          values[index] = txn.read(id2entry.getName(), entryID.toByteString());
+        }
+        catch (Exception e)
+        {
+          errors[index] = newCorruptEntryException(entryID, e);
+          fromStorage[index] = false;
+        }
+      }
+
+      FutureTask<Void> decoding = null;
+      int nbEntriesInTask = 0;
+      for (int i = 0; i < entries.length; i++)
+      {
+        if (fromStorage[i])
+        {
+          if (decoding == null)
+          {
+            decoding = newDecodingTask(values, i);
+            nbEntriesInTask = 0;
+          }
+          decodings[i] = decoding;
+          if (++nbEntriesInTask == ENTRIES_PER_DECODING_TASK)
+          {
+            submit(decoding);
+            decoding = null;
+          }
+        }
+      }
+      if (decoding != null)
+      {
+        submit(decoding);
+      }
+    }
+
+    private long getEntryID(int index)
+    {
+      return entryIDs[firstIndex + index];
+    }
+
+    /** Returns a task decoding the entries read from storage, starting at the provided index. */
+    private FutureTask<Void> newDecodingTask(final ByteString[] values, final int startIndex)
+    {
+      return new FutureTask<>(new Runnable()
+      {
+        @Override
+        public void run()
+        {
+          int nbDecoded = 0;
+          for (int i = startIndex; i < entries.length && nbDecoded < ENTRIES_PER_DECODING_TASK; i++)
+          {
+            if (fromStorage[i])
+            {
+              try
+              {
+                entries[i] = id2entry.decode(new EntryID(getEntryID(i)), values[i]);
+              }
+              catch (DirectoryException e)
+              {
+                errors[i] = e;
+              }
+              nbDecoded++;
+            }
+          }
+        }
+      }, null);
+    }
+
+    private boolean hasNext()
+    {
+      return position < entries.length;
+    }
+
+    private Entry next() throws DirectoryException
+    {
+      final int index = position++;
+      if (decodings[index] != null)
+      {
+        waitFor(decodings[index], getEntryID(index));
+        decodings[index] = null;
+      }
+      if (errors[index] != null)
+      {
+        throw errors[index];
+      }
+      final Entry entry = entries[index];
+      entries[index] = null;
+      if (entry != null && fromStorage[index])
+      {
+        // Put the entry in the cache making sure not to overwrite a newer copy
+        // that may have been inserted since the time we read the cache.
+        entryCache.putEntryIfAbsent(entry, backendID, getEntryID(index));
+      }
+      return entry;
+    }
+
+    private void cancel()
+    {
+      for (Future<?> decoding : decodings)
+      {
+        if (decoding != null)
+        {
+          decoding.cancel(false);
+        }
+      }
+    }
+  }
+
+  private final ReadableTransaction txn;
+  private final ID2Entry id2entry;
+  private final EntryCache<?> entryCache;
+  private final String backendID;
+  private final ExecutorService executor;
+  private final long[] entryIDs;
+  private final Queue<Batch> batches = new ArrayDeque<>(BATCHES_AHEAD);
+  /** The index of the first entry ID which has not been read yet. */
+  private int nextIndexToRead;
+  private int batchSize = FIRST_BATCH_SIZE;
+
+  /**
+   * Creates a new prefetcher of entries.
+   *
+   * @param txn
+   *          the transaction of the search
+   * @param id2entry
+   *          the entry tree
+   * @param entryCache
+   *          the entry cache
+   * @param backendID
+   *          the ID of the backend in the entry cache
+   * @param executor
+   *          the executor decoding the entries
+   * @param entryIDs
+   *          the candidate entry IDs
+   * @param startIndex
+   *          the index of the first candidate entry ID to fetch
+   */
+  EntryPrefetcher(ReadableTransaction txn, ID2Entry id2entry, EntryCache<?> entryCache, String backendID,
+      ExecutorService executor, long[] entryIDs, int startIndex)
+  {
+    this.txn = txn;
+    this.id2entry = id2entry;
+    this.entryCache = entryCache;
+    this.backendID = backendID;
+    this.executor = executor;
+    this.entryIDs = entryIDs;
+    this.nextIndexToRead = startIndex;
+  }
+
+  /**
+   * Returns the entry of the next candidate entry ID.
+   *
+   * @return the entry of the next candidate entry ID, or {@code null} if it does not exist
+   * @throws DirectoryException
+   *           if the entry cannot be read or decoded
+   */
+  Entry next() throws DirectoryException
+  {
+    Batch batch = batches.peek();
+    if (batch != null && !batch.hasNext())
+    {
+      batches.remove();
+      batch = batches.peek();
+    }
+    while (batches.size() < BATCHES_AHEAD && nextIndexToRead < entryIDs.length)
+    {
+      readNextBatch();
+    }
+    if (batch == null)
+    {
+      batch = batches.peek();
+    }
+    return batch.next();
+  }
+
+  @Override
+  public void close()
+  {
+    for (Batch batch : batches)
+    {
+      batch.cancel();
+    }
+    batches.clear();
+  }
+
+  private void readNextBatch()
+  {
+    final Batch batch = new Batch(nextIndexToRead, Math.min(batchSize, entryIDs.length - nextIndexToRead));
+    nextIndexToRead += batch.entries.length;
+    batchSize = Math.min(batchSize * 2, MAX_BATCH_SIZE);
+    batch.read();
+    batches.add(batch);
+  }
+
+  private void submit(FutureTask<Void> decoding)
+  {
+    try
+    {
+      executor.execute(decoding);
+    }
+    catch (RejectedExecutionException e)
+    {
+      // The executor has been replaced by a configuration change
+      decoding.run();
+    }
+  }
+
+  private static DirectoryException newCorruptEntryException(EntryID entryID, Throwable cause)
+  {
+    return new DirectoryException(DirectoryServer.getCoreConfigManager().getServerErrorResultCode(),
+        ERR_ENTRY_DATABASE_CORRUPT.get(entryID), cause);
+  }
+
+  private static void waitFor(Future<?> decoding, long entryID) throws DirectoryException
+  {
+    boolean interrupted = false;
+    try
+    {
+      while (true)
+      {
+        try
+        {
+          decoding.get();
+          return;
+        }
+        catch (InterruptedException e)
+        {
+          // Decoding a few entries is short: finish the entry before letting the search handle the interrupt
+          interrupted = true;
+        }
+      }
+    }
+    catch (ExecutionException e)
+    {
+      throw newCorruptEntryException(new EntryID(entryID), e.getCause());
+    }
+    finally
+    {
+      if (interrupted)
+      {
+        Thread.currentThread().interrupt();
+      }
+    }
+  }
+}
@@ -0,0 +1,303 @@
+/*
+ * The contents of this file are subject to the terms of the Common Development and
+ * Distribution License (the License). You may not use this file except in compliance with the
+ * License.
+ *
+ * You can obtain a copy of the License at legal/CDDLv1.0.txt. See the License for the
+ * specific language governing permission and limitations under the License.
+ *
+ * When distributing Covered Software, include this CDDL Header Notice in each file and include
+ * the License file at legal/CDDLv1.0.txt. If applicable, add the following below the CDDL
+ * Header, with the fields enclosed by brackets [] replaced by your own identifying
+ * information: "Portions Copyright [year] [name of copyright owner]".
+ *
+ * Copyright 2026 ForgeRock AS.
+ */
+package org.opends.server.backends.pluggable;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Queue;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.atomic.AtomicLong;
+
+import org.forgerock.i18n.slf4j.LocalizedLogger;
+import org.opends.server.backends.pluggable.spi.Storage;
+import org.opends.server.backends.pluggable.spi.StorageRuntimeException;
+import org.opends.server.backends.pluggable.spi.WriteOperation;
+import org.opends.server.backends.pluggable.spi.WriteableTransaction;
+
+/**
+ * Coalesces concurrent entry updates into shared storage transactions.
+ * <p>
+ * The first thread to submit a write while no group is being committed becomes the leader: it runs all the pending
+ * writes, in arrival order, in one storage transaction and thus pays for a single durable commit. Writes submitted
+ * meanwhile wait for the next group. Every submitting thread blocks until its own write is committed, so the entry
+ * locks it holds are only released once the update is durable.
+ * <p>
+ * Write operations must tolerate being run several times, as they already do for storage level retries: if any write
+ * of a group fails, the whole transaction is rolled back and each write of the group is run again in its own
+ * transaction, so that only the failing writes report an error. Hence write operations must only change the storage:
+ * their other side effects, such as entry cache updates, must be applied by the caller once the write has returned,
+ * and the plugins they invoke must only be invoked once per entry.
+ */
+final class GroupCommitWriter
+{
+  private static final LocalizedLogger logger = LocalizedLogger.getLoggerForThisClass();
+
+  /** A write waiting to be committed. */
+  private static final class PendingWrite
+  {
+    private final WriteOperation writeOperation;
+    /** Guarded by {@link GroupCommitWriter#lock}. */
+    private boolean done;
+    private Exception error;
+
+    private PendingWrite(WriteOperation writeOperation)
+    {
+      this.writeOperation = writeOperation;
+    }
+  }
+
+  private final Storage storage;
+  private final Queue<PendingWrite> pendingWrites = new ConcurrentLinkedQueue<>();
+  private final Object lock = new Object();
+  /** Whether a leader is committing a group. Guarded by {@link #lock}. */
+  private boolean committing;
+  /** Maximum number of writes per transaction, 1 disables grouping. */
+  private volatile int maxOperations;
+
+  private final AtomicLong groupsCommitted = new AtomicLong();
+  private final AtomicLong groupedWritesCommitted = new AtomicLong();
+  private final AtomicLong groupsRolledBack = new AtomicLong();
+
+  /**
+   * Creates a new group commit writer.
+   *
+   * @param storage
+   *          the storage where to write
+   * @param maxOperations
+   *          the maximum number of writes per transaction, 1 disables grouping
+   */
+  GroupCommitWriter(Storage storage, int maxOperations)
+  {
+    this.storage = storage;
+    this.maxOperations = maxOperations;
+  }
+
+  /**
+   * Sets the maximum number of writes per transaction.
+   *
+   * @param maxOperations
+   *          the maximum number of writes per transaction, 1 disables grouping
+   */
+  void setMaxOperations(int maxOperations)
+  {
+    this.maxOperations = maxOperations;
+  }
+
+  /**
+   * Returns whether writes are grouped.
+   *
+   * @return {@code true} if writes are grouped
+   */
+  boolean isEnabled()
+  {
+    return maxOperations > 1;
+  }
+
+  /**
+   * Runs the provided write operation, possibly in a transaction shared with concurrent writes, and waits for it to
+   * be committed.
+   *
+   * @param writeOperation
+   *          the write operation to run
+   * @throws Exception
+   *           the exception thrown by {@link Storage#write(WriteOperation)} when the write operation is run on its own
+   */
+  void write(WriteOperation writeOperation) throws Exception
+  {
+    if (!isEnabled())
+    {
+      storage.write(writeOperation);
+      return;
+    }
+
+    final PendingWrite pendingWrite = new PendingWrite(writeOperation);
+    pendingWrites.add(pendingWrite);
+    boolean interrupted = false;
+    try
+    {
+      while (true)
+      {
+        synchronized (lock)
+        {
+          while (committing && !pendingWrite.done)
+          {
+            try
+            {
+              lock.wait();
+            }
+            catch (InterruptedException e)
+            {
+              // The write may already be part of the group being committed: wait for its outcome.
+              interrupted = true;
+            }
+          }
+          if (pendingWrite.done)
+          {
+            break;
+          }
+          committing = true;
+        }
+
+        try
+        {
+          commitPendingWrites();
+        }
+        finally
+        {
+          synchronized (lock)
+          {
+            committing = false;
+            lock.notifyAll();
+          }
+        }
+      }
+    }
+    finally
+    {
+      if (interrupted)
+      {
+        Thread.currentThread().interrupt();
+      }
+    }
+
+    if (pendingWrite.error != null)
+    {
+      throw pendingWrite.error;
+    }
+  }
+
+  private void commitPendingWrites()
+  {
+    final List<PendingWrite> group = new ArrayList<>();
+    final int max = Math.max(1, maxOperations);
+    PendingWrite pendingWrite;
+    while (group.size() < max && (pendingWrite = pendingWrites.poll()) != null)
+    {
+      group.add(pendingWrite);
+    }
+    if (group.isEmpty())
+    {
+      return;
+    }
+
+    Throwable failure = null;
+    try
+    {
+      if (group.size() == 1)
+      {
+        writeAlone(group.get(0));
+      }
+      else
+      {
+        writeGroup(group);
+      }
+    }
+    catch (Throwable t)
+    {
+      failure = t;
+      throw t;
+    }
+    finally
+    {
+      // The writes have been removed from the queue: whatever happened, their threads must not wait for them forever.
+      for (PendingWrite write : group)
+      {
+        if (!write.done)
+        {
+          write.error = new StorageRuntimeException(failure);
+          write.done = true;
+        }
+      }
+    }
+  }
+
+  private void writeGroup(final List<PendingWrite> group)
+  {
+    try
+    {
+      storage.write(new WriteOperation()
+      {
+        @Override
+        public void run(WriteableTransaction txn) throws Exception
+        {
+          for (PendingWrite write : group)
+          {
+            write.writeOperation.run(txn);
+          }
+        }
+      });
+      groupsCommitted.incrementAndGet();
+      groupedWritesCommitted.addAndGet(group.size());
+      for (PendingWrite write : group)
+      {
+        write.done = true;
+      }
+    }
+    catch (Exception e)
+    {
+      // Nothing has been committed, isolate the failing writes.
+      logger.traceException(e);
+      groupsRolledBack.incrementAndGet();
+      for (PendingWrite write : group)
+      {
+        writeAlone(write);
+      }
+    }
+  }
+
+  private void writeAlone(PendingWrite pendingWrite)
+  {
+    try
+    {
+      storage.write(pendingWrite.writeOperation);
+    }
+    catch (Exception e)
+    {
+      pendingWrite.error = e;
+    }
+    pendingWrite.done = true;
+  }
+
+  /**
+   * Returns the number of transactions committed for groups of several writes.
+   *
+   * @return the number of transactions committed for groups of several writes
+   */
+  long getGroupsCommitted()
+  {
+    return groupsCommitted.get();
+  }
+
+  /**
+   * Returns the number of writes committed as part of a group.
+   *
+   * @return the number of writes committed as part of a group
+   */
+  long getGroupedWritesCommitted()
+  {
+    return groupedWritesCommitted.get();
+  }
+
+  /**
+   * Returns the number of groups rolled back because one of their writes failed.
+   *
+   * @return the number of groups rolled back because one of their writes failed
+   */
+  long getGroupsRolledBack()
+  {
+    return groupsRolledBack.get();
+  }
+}
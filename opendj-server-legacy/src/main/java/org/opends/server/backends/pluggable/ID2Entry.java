@@ -81,6 +81,12 @@ class ID2Entry extends AbstractTree
 
   /** Parameters for compression and encryption. */
   private DataConfig dataConfig;
+  /** The dictionaries used to compress entries, {@code null} if dictionary compression is not supported. */
+  private final CompressionDictionaries dictionaries;
+  /** Collects samples of the imported entries until a compression dictionary can be trained. */
+  private CompressionDictionaryTrainer dictionaryTrainer;
+  /** Whether a dictionary has already been trained since this tree has been opened or deleted. */
+  private volatile boolean dictionaryTrained;
 
   /** Cached encoding buffers. */
   private static final ThreadLocal<EntryCodec> ENTRY_CODEC_CACHE = new ThreadLocal<EntryCodec>()
@@ -119,6 +125,8 @@ class ID2Entry extends AbstractTree
     private static final byte PLAIN_ENTRY = 0x00;
     private static final byte COMPRESS_ENTRY = 0x01;
     private static final byte ENCRYPT_ENTRY = 0x02;
+    private static final byte COMPRESS_ENTRY_LZ = 0x04;
+    private static final byte DICTIONARY = 0x08;
 
     /** The format version for entry encoding. */
     static final byte FORMAT_VERSION_V2 = 0x02;
@@ -140,7 +148,7 @@ class ID2Entry extends AbstractTree
       compressedEntryBuffer.clearAndTruncate(maxBufferSize, BUFFER_INIT_SIZE);
     }
 
-    private Entry decode(ByteString bytes, CompressedSchema compressedSchema)
+    private Entry decode(ByteString bytes, CompressedSchema compressedSchema, CompressionDictionaries dictionaries)
         throws DirectoryException, DecodeException, IOException
     {
       final byte formatVersion = bytes.byteAt(0);
@@ -149,7 +157,7 @@ class ID2Entry extends AbstractTree
       case FORMAT_VERSION:
         return decodeV1(bytes, compressedSchema);
       case FORMAT_VERSION_V2:
-        return decodeV2(bytes, compressedSchema);
+        return decodeV2(bytes, compressedSchema, dictionaries);
       default:
         throw DecodeException.error(ERR_INCOMPATIBLE_ENTRY_VERSION.get(formatVersion));
       }
@@ -228,24 +236,30 @@ class ID2Entry extends AbstractTree
     /**
      * Decodes an entry in the new extensible format.
      * Enties are encoded according to the sequence
-     *   {VERSION_BYTE, FLAG_BYTE, COMPACT_INTEGER_LENGTH, ID2ENTRY_VALUE}
+     *   {VERSION_BYTE, FLAG_BYTE, COMPACT_INTEGER_LENGTH, [COMPACT_DICTIONARY_ID], ID2ENTRY_VALUE}
      * where
      *
      * ID2ENTRY_VALUE = encoding of Entry as in decodeV1()
      * VERSION_BYTE = 0x2
      * FLAG_BYTE = bit field of OR'ed values indicating post-encoding processing.
-     *     possible meaningful flags are COMPRESS_ENTRY and ENCRYPT_ENTRY.
+     *     possible meaningful flags are COMPRESS_ENTRY, COMPRESS_ENTRY_LZ, DICTIONARY and ENCRYPT_ENTRY.
      * COMPACT_INTEGER_LENGTH = length of ID2ENTRY_VALUE
+     * COMPACT_DICTIONARY_ID = identifier of the compression dictionary, only present with the DICTIONARY flag
+     *
+     * COMPRESS_ENTRY alone means the value has been compressed with a DeflaterOutputStream. Otherwise, when
+     * COMPRESS_ENTRY_LZ or DICTIONARY is set, the value has been compressed as a single block by the corresponding
+     * {@link EntryCompressionCodec}.
      *
      * @param bytes A byte array containing the encoded tree value.
      * @param compressedSchema The compressed schema manager to use when decoding.
+     * @param dictionaries The dictionaries which may have been used to compress the entry.
      * @return The decoded entry.
      * @throws DecodeException If the data is not in the expected ASN.1 encoding
      * format or a decryption error occurs.
      * @throws DirectoryException If a Directory Server error occurs.
      * @throws IOException if an error occurs while reading the ASN1 sequence.
      */
-    private Entry decodeV2(ByteString bytes, CompressedSchema compressedSchema)
+    private Entry decodeV2(ByteString bytes, CompressedSchema compressedSchema, CompressionDictionaries dictionaries)
         throws DirectoryException, DecodeException, IOException
     {
       ByteSequenceReader reader = bytes.asReader();
@@ -253,6 +267,16 @@ class ID2Entry extends AbstractTree
       reader.position(1);
       int format = reader.readByte();
       int encodedEntryLen = reader.readCompactUnsignedInt();
+      CompressionDictionary dictionary = null;
+      if ((format & DICTIONARY) == DICTIONARY)
+      {
+        final int dictionaryId = reader.readCompactUnsignedInt();
+        dictionary = dictionaries != null ? dictionaries.get(dictionaryId) : null;
+        if (dictionary == null)
+        {
+          throw DecodeException.error(ERR_COMPRESSION_DICTIONARY_NOT_FOUND.get(dictionaryId));
+        }
+      }
       try
       {
         if (format == PLAIN_ENTRY)
@@ -264,6 +288,10 @@ class ID2Entry extends AbstractTree
         {
           is = getCryptoManager().getCipherInputStream(is);
         }
+        if ((format & (COMPRESS_ENTRY_LZ | DICTIONARY)) != 0)
+        {
+          return decodeBlockCompressed(is, format, encodedEntryLen, dictionary, compressedSchema);
+        }
         if ((format & COMPRESS_ENTRY) == COMPRESS_ENTRY)
         {
           is = new InflaterInputStream(is);
@@ -291,13 +319,31 @@ class ID2Entry extends AbstractTree
       }
     }
 
-    private ByteString encode(Entry entry, DataConfig dataConfig) throws DirectoryException
+    private Entry decodeBlockCompressed(InputStream is, int format, int encodedEntryLen,
+        CompressionDictionary dictionary, CompressedSchema compressedSchema) throws DirectoryException, IOException
+    {
+      // Block codecs need the whole compressed data
+      while (compressedEntryBuffer.appendBytes(is, BUFFER_INIT_SIZE) != -1)
+      {
+        // Keep reading
+      }
+      final EntryCompressionCodec codec =
+          (format & COMPRESS_ENTRY_LZ) == COMPRESS_ENTRY_LZ ? EntryCompressionCodec.LZ : EntryCompressionCodec.DEFLATE;
+      byte[] data = new byte[encodedEntryLen];
+      codec.decompress(
+          compressedEntryBuffer.getBackingArray(), 0, compressedEntryBuffer.length(), dictionary, data);
+      return Entry.decode(ByteString.wrap(data).asReader(), compressedSchema);
+    }
+
+    private ByteString encode(Entry entry, DataConfig dataConfig, CompressionDictionary dictionary)
+        throws DirectoryException
     {
-      encodeVolatile(entry, dataConfig);
+      encodeVolatile(entry, dataConfig, dictionary);
       return encodedBuffer.toByteString();
     }
 
-    private void encodeVolatile(Entry entry, DataConfig dataConfig) throws DirectoryException
+    private void encodeVolatile(Entry entry, DataConfig dataConfig, CompressionDictionary dictionary)
+        throws DirectoryException
     {
       entry.encode(entryBuffer, dataConfig.getEntryEncodeConfig());
 
@@ -307,10 +353,28 @@ class ID2Entry extends AbstractTree
         byte[] formatFlags = { FORMAT_VERSION_V2, 0};
         os.write(formatFlags);
         encodedBuffer.appendCompactUnsigned(entryBuffer.length());
+        ByteSequence data = entryBuffer;
         if (dataConfig.isCompressed())
         {
-          os = new DeflaterOutputStream(os);
-          formatFlags[1] = COMPRESS_ENTRY;
+          final EntryCompressionCodec compressionCodec = dataConfig.getCompressionCodec();
+          if (compressionCodec == EntryCompressionCodec.DEFLATE && dictionary == null)
+          {
+            // Keep the historical stream format
+            os = new DeflaterOutputStream(os);
+            formatFlags[1] = COMPRESS_ENTRY;
+          }
+          else
+          {
+            formatFlags[1] = compressionCodec == EntryCompressionCodec.LZ ? COMPRESS_ENTRY_LZ : COMPRESS_ENTRY;
+            if (dictionary != null)
+            {
+              formatFlags[1] |= DICTIONARY;
+              encodedBuffer.appendCompactUnsigned(dictionary.getId());
+            }
+            compressionCodec.compress(entryBuffer.getBackingArray(), entryBuffer.length(), dictionary,
+                compressedEntryBuffer);
+            data = compressedEntryBuffer;
+          }
         }
         if (dataConfig.isEncrypted())
         {
@@ -319,7 +383,7 @@ class ID2Entry extends AbstractTree
         }
         encodedBuffer.setByte(1, formatFlags[1]);
 
-        entryBuffer.copyTo(os);
+        data.copyTo(os);
         os.flush();
       }
       catch(CryptoManagerException | IOException e)
@@ -350,9 +414,25 @@ class ID2Entry extends AbstractTree
    * @throws StorageRuntimeException If an error occurs in the storage.
    */
   ID2Entry(TreeName name, DataConfig dataConfig) throws StorageRuntimeException
+  {
+    this(name, dataConfig, null);
+  }
+
+  /**
+   * Create a new ID2Entry object supporting dictionary compression.
+   *
+   * @param name The name of the entry tree.
+   * @param dataConfig The desired compression and encryption options for data
+   * stored in the entry tree.
+   * @param dictionaries The tree storing the compression dictionaries, which
+   * must be opened before this tree.
+   * @throws StorageRuntimeException If an error occurs in the storage.
+   */
+  ID2Entry(TreeName name, DataConfig dataConfig, CompressionDictionaries dictionaries) throws StorageRuntimeException
   {
     super(name);
     this.dataConfig = dataConfig;
+    this.dictionaries = dictionaries;
   }
 
   @Override
@@ -364,6 +444,19 @@ class ID2Entry extends AbstractTree
     {
       cursor.next();
     }
+    resetDictionaryTraining();
+  }
+
+  @Override
+  void beforeDelete(WriteableTransaction txn) throws StorageRuntimeException
+  {
+    resetDictionaryTraining();
+  }
+
+  private synchronized void resetDictionaryTraining()
+  {
+    dictionaryTrainer = null;
+    dictionaryTrained = false;
   }
 
   /**
@@ -388,7 +481,7 @@ class ID2Entry extends AbstractTree
     EntryCodec codec = acquireEntryCodec();
     try
     {
-      return codec.decode(bytes, compressedSchema);
+      return codec.decode(bytes, compressedSchema, dictionaries);
     }
     finally
     {
@@ -411,7 +504,7 @@ class ID2Entry extends AbstractTree
     EntryCodec codec = acquireEntryCodec();
     try
     {
-      return codec.encode(entry, dataConfig);
+      return codec.encode(entry, dataConfig, getCompressionDictionary(dataConfig));
     }
     finally
     {
@@ -423,6 +516,80 @@ class ID2Entry extends AbstractTree
     return entryToDatabase(entry, dataConfig);
   }
 
+  private CompressionDictionary getCompressionDictionary(DataConfig dataConfig)
+  {
+    return isDictionaryCompressed(dataConfig) ? dictionaries.getCurrent() : null;
+  }
+
+  private boolean isDictionaryCompressed(DataConfig dataConfig)
+  {
+    return dictionaries != null && dataConfig.isCompressed() && dataConfig.isCompressionDictionaryEnabled();
+  }
+
+  /**
+   * Write a record in the entry tree during an import.
+   * <p>
+   * When dictionary compression is enabled and no dictionary exists yet, the first imported entries are sampled in
+   * order to train a dictionary, which is then used to compress all the following entries.
+   *
+   * @param txn a non null transaction
+   * @param entryID The entry ID which forms the key.
+   * @param entry The LDAP entry.
+   * @throws StorageRuntimeException If an error occurs in the storage.
+   * @throws  DirectoryException  If a problem occurs while attempting to encode
+   *                              the entry.
+   */
+  void importPut(WriteableTransaction txn, EntryID entryID, Entry entry)
+      throws StorageRuntimeException, DirectoryException
+  {
+    if (!dictionaryTrained && isDictionaryCompressed(dataConfig) && dictionaries.getCurrent() == null)
+    {
+      sampleForDictionary(txn, entry);
+    }
+    put(txn, entryID, encode(entry));
+  }
+
+  private void sampleForDictionary(WriteableTransaction txn, Entry entry) throws DirectoryException
+  {
+    final CompressionDictionaryTrainer trainer = getDictionaryTrainer();
+    if (trainer == null)
+    {
+      return;
+    }
+    final ByteStringBuilder sample = new ByteStringBuilder();
+    entry.encode(sample, dataConfig.getEntryEncodeConfig());
+    if (trainer.addSample(sample))
+    {
+      trainDictionary(txn, trainer);
+    }
+  }
+
+  private synchronized CompressionDictionaryTrainer getDictionaryTrainer()
+  {
+    if (dictionaryTrainer == null && !dictionaryTrained)
+    {
+      dictionaryTrainer = new CompressionDictionaryTrainer();
+    }
+    return dictionaryTrainer;
+  }
+
+  private synchronized void trainDictionary(WriteableTransaction txn, CompressionDictionaryTrainer trainer)
+  {
+    if (trainer != dictionaryTrainer)
+    {
+      // Another thread already trained the dictionary
+      return;
+    }
+    dictionaryTrainer = null;
+    dictionaryTrained = true;
+    final byte[] content = trainer.train();
+    if (content.length > 0)
+    {
+      dictionaries.add(txn, content);
+      logger.info(NOTE_COMPRESSION_DICTIONARY_TRAINED, content.length, trainer.getSampleCount(), getName());
+    }
+  }
+
   /**
    * Write a record in the entry tree.
    *
@@ -469,6 +636,27 @@ class ID2Entry extends AbstractTree
     }
   }
 
+  /**
+   * Decodes a record read from the entry tree. Unlike reading the record, decoding it can be done by any thread.
+   *
+   * @param entryID The entry ID which forms the key of the record.
+   * @param value The value of the record, may be {@code null}.
+   * @return The decoded entry, or null if there is no such record.
+   * @throws DirectoryException If a problem occurs while decoding the entry.
+   */
+  Entry decode(EntryID entryID, ByteString value) throws DirectoryException
+  {
+    try
+    {
+      return get0(value);
+    }
+    catch (Exception e)
+    {
+      throw new DirectoryException(
+          DirectoryServer.getCoreConfigManager().getServerErrorResultCode(), ERR_ENTRY_DATABASE_CORRUPT.get(entryID));
+    }
+  }
+
   Cursor<EntryID, Entry> openCursor(ReadableTransaction txn)
   {
     return transformKeysAndValues(txn.openCursor(getName()), TO_ENTRY_ID, TO_ENTRY);
@@ -15,17 +15,25 @@
  */
 package org.opends.server.backends.pluggable;
 
+import static org.forgerock.util.Utils.*;
 import static org.opends.messages.UtilityMessages.*;
 import static org.opends.server.util.StaticUtils.*;
 import static org.opends.messages.BackendMessages.ERR_IMPORT_DUPLICATE_ENTRY;
 
 import java.io.IOException;
+import java.io.InterruptedIOException;
+import java.util.ArrayList;
 import java.util.HashMap;
 import java.util.LinkedList;
 import java.util.List;
 import java.util.Map;
+import java.util.Queue;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
 import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentLinkedQueue;
 import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.atomic.AtomicLong;
 
 import org.forgerock.i18n.LocalizableMessage;
 import org.forgerock.i18n.LocalizableMessageBuilder;
@@ -43,9 +51,24 @@ import org.opends.server.types.LDIFImportConfig;
 import org.opends.server.util.LDIFException;
 import org.opends.server.util.LDIFReader;
 
-/** This class specializes the LDIFReader for imports. */
+/**
+ * This class specializes the LDIFReader for imports.
+ * <p>
+ * Reading is pipelined: a dedicated thread reads the LDIF source, decompressing it if needed, and
+ * splits it into chunks of records. The import threads calling {@link #readEntry(Map)} take the
+ * chunks in turn and parse their DNs concurrently. Then they register the records of each chunk
+ * strictly in the order of the LDIF source: this is where entry IDs are assigned and entries are
+ * marked as pending, so that an entry can always wait for its parent. Registered records are handed
+ * out in the same order, and their attributes are parsed concurrently by the import threads.
+ */
 final class ImportLDIFReader extends LDIFReader
 {
+  /** The number of records handed over at once to the import threads. */
+  private static final int RECORDS_PER_CHUNK = 64;
+  /** The number of chunks which can be read ahead of the import threads. */
+  private static final int CHUNKS_READ_AHEAD = 32;
+  private static final String LDIF_READER_THREAD_NAME = "PHASE1-LDIF-READER-%d";
+
   private final ConcurrentHashMap<DN, CountDownLatch> pendingMap = new ConcurrentHashMap<>();
 
   /**
@@ -81,10 +104,59 @@ final class ImportLDIFReader extends LDIFReader
     }
   }
 
+  /** The lines of an entry read from the LDIF source, and what was found out about it so far. */
+  private static final class Record
+  {
+    private final LinkedList<StringBuilder> lines;
+    private final LinkedList<StringBuilder> headerLines = new LinkedList<>();
+    private final long lineNumber;
+    private DN entryDN;
+    private EntryID entryID;
+    private EntryContainer entryContainer;
+
+    private Record(LinkedList<StringBuilder> lines, long lineNumber)
+    {
+      this.lines = lines;
+      this.lineNumber = lineNumber;
+    }
+  }
+
+  /** Consecutive records of the LDIF source, or the end of the LDIF source if there are no records. */
+  private static final class Chunk
+  {
+    private final long sequenceNumber;
+    private final List<Record> records;
+    /** The failure which ended reading the LDIF source, if any. */
+    private final Exception failure;
+
+    private Chunk(long sequenceNumber, List<Record> records, Exception failure)
+    {
+      this.sequenceNumber = sequenceNumber;
+      this.records = records;
+      this.failure = failure;
+    }
+
+    private boolean isEndOfData()
+    {
+      return records == null;
+    }
+  }
+
   private static final LocalizedLogger logger = LocalizedLogger.getLoggerForThisClass();
 
   private final RootContainer rootContainer;
 
+  /** The chunks read ahead by the LDIF reader thread, in the order of the LDIF source. */
+  private final BlockingQueue<Chunk> chunks = new ArrayBlockingQueue<>(CHUNKS_READ_AHEAD);
+  /** The registered records, in the order of the LDIF source. */
+  private final Queue<Record> registeredRecords = new ConcurrentLinkedQueue<>();
+  /** The sequence number of the next chunk to register, guarded by itself. */
+  private final AtomicLong nextChunkToRegister = new AtomicLong();
+  /** Whether an import thread gave up waiting to register its chunk, guarded by nextChunkToRegister. */
+  private boolean registrationCancelled;
+  /** The thread reading the LDIF source, started by the first call to {@link #readEntry(Map)}. */
+  private Thread ldifReaderThread;
+
   /**
    * Creates a new LDIF reader that will read information from the specified file.
    *
@@ -117,80 +189,277 @@ final class ImportLDIFReader extends LDIFReader
   public final EntryInformation readEntry(Map<DN, EntryContainer> suffixesMap) throws IOException, LDIFException
   {
     final boolean checkSchema = importConfig.validateSchema();
+    Record record;
+    while ((record = nextRecord(suffixesMap)) != null)
+    {
+      // Create the entry and see if it is one that should be included in the import
+      final Entry entry = createEntry(record.lines, record.entryDN, checkSchema);
+      if (entry == null
+          || !isIncludedInImport(entry, record.lines)
+          || !invokeImportPlugins(entry, record.lines)
+          || (checkSchema && !isValidAgainstSchema(entry, record.lines)))
+      {
+        removePending(record.entryDN);
+        continue;
+      }
+      return new EntryInformation(entry, record.entryID, record.entryContainer);
+    }
+    return null;
+  }
+
+  @Override
+  public void close()
+  {
+    synchronized (this)
+    {
+      if (ldifReaderThread != null)
+      {
+        // Unblock the LDIF reader thread if the import threads stopped reading.
+        ldifReaderThread.interrupt();
+      }
+    }
+    super.close();
+  }
+
+  /** Returns the next registered record, registering the next chunk if needed. */
+  private Record nextRecord(Map<DN, EntryContainer> suffixesMap) throws IOException, LDIFException
+  {
+    startLDIFReaderThreadIfNeeded();
     while (true)
     {
-      LinkedList<StringBuilder> lines;
-      DN entryDN;
-      EntryID entryID;
-      final EntryContainer entryContainer;
-      synchronized (this)
+      Record record = registeredRecords.poll();
+      if (record != null)
       {
-        // Read the set of lines that make up the next entry.
-        lines = readEntryLines();
-        if (lines == null)
+        return record;
+      }
+
+      final Chunk chunk = takeChunk();
+      if (chunk.isEndOfData())
+      {
+        // Let the other import threads see the end of data too.
+        chunks.offer(chunk);
+        // Chunks taken by the other import threads may still be registering.
+        awaitTurnToRegister(chunk);
+        record = registeredRecords.poll();
+        if (record != null)
         {
-          return null;
+          return record;
         }
-        lastEntryBodyLines = lines;
-        lastEntryHeaderLines = new LinkedList<>();
+        rethrowFailure(chunk);
+        return null;
+      }
 
-        // Read the DN of the entry and see if it is one that should be included
-        // in the import.
-        try
+      readDNs(chunk);
+      register(chunk, suffixesMap);
+      // Report the failure as soon as the records read before it have been registered.
+      rethrowFailure(chunk);
+    }
+  }
+
+  private synchronized void startLDIFReaderThreadIfNeeded()
+  {
+    if (ldifReaderThread == null)
+    {
+      ldifReaderThread = newThreadFactory(null, LDIF_READER_THREAD_NAME, true).newThread(new Runnable()
+      {
+        @Override
+        public void run()
         {
-          entryDN = readDN(lines);
+          readChunks();
         }
-        catch (LDIFException e)
+      });
+      ldifReaderThread.start();
+    }
+  }
+
+  /** Runs in the LDIF reader thread: splits the LDIF source into chunks of records. */
+  private void readChunks()
+  {
+    long sequenceNumber = 0;
+    List<Record> records = new ArrayList<>(RECORDS_PER_CHUNK);
+    Exception failure = null;
+    try
+    {
+      LinkedList<StringBuilder> lines;
+      while (!importConfig.isCancelled() && (lines = readEntryLines()) != null)
+      {
+        records.add(new Record(lines, lastEntryLineNumber));
+        if (records.size() == RECORDS_PER_CHUNK)
         {
-          logger.traceException(e);
-          continue;
+          chunks.put(new Chunk(sequenceNumber++, records, null));
+          records = new ArrayList<>(RECORDS_PER_CHUNK);
         }
+      }
+    }
+    catch (InterruptedException e)
+    {
+      // The reader is being closed.
+      Thread.currentThread().interrupt();
+      return;
+    }
+    catch (IOException | LDIFException e)
+    {
+      logger.traceException(e);
+      failure = e;
+    }
+    catch (RuntimeException e)
+    {
+      logger.traceException(e);
+      failure = new IOException(e);
+    }
 
-        if (entryDN == null)
+    try
+    {
+      if (!records.isEmpty() || failure != null)
+      {
+        // The records read before the failure are registered before it is reported.
+        chunks.put(new Chunk(sequenceNumber++, records, failure));
+      }
+      // The end of data reports the failure again to the import threads which did not register the failing chunk.
+      chunks.put(new Chunk(sequenceNumber, null, failure));
+    }
+    catch (InterruptedException e)
+    {
+      Thread.currentThread().interrupt();
+    }
+  }
+
+  private Chunk takeChunk() throws InterruptedIOException
+  {
+    try
+    {
+      return chunks.take();
+    }
+    catch (InterruptedException e)
+    {
+      Thread.currentThread().interrupt();
+      throw new InterruptedIOException();
+    }
+  }
+
+  /** Reads the DNs of the records in the chunk, concurrently with the other import threads. */
+  private void readDNs(Chunk chunk)
+  {
+    for (Record record : chunk.records)
+    {
+      try
+      {
+        record.entryDN = readDN(record.lines, record.headerLines, record.lineNumber);
+      }
+      catch (LDIFException | RuntimeException e)
+      {
+        logger.traceException(e);
+        // Leave the DN null so that the entry is skipped, registration must go on for the next chunks.
+      }
+    }
+  }
+
+  /**
+   * Registers the records of the chunk, in the order of the LDIF source, and makes them available to
+   * the import threads.
+   */
+  private void register(Chunk chunk, Map<DN, EntryContainer> suffixesMap) throws InterruptedIOException
+  {
+    awaitTurnToRegister(chunk);
+    try
+    {
+      for (Record record : chunk.records)
+      {
+        if (register(record, suffixesMap))
         {
-          // This should only happen if the LDIF starts with the "version:" line
-          // and has a blank line immediately after that. In that case, simply
-          // read and return the next entry.
-          continue;
+          registeredRecords.add(record);
         }
+      }
+    }
+    finally
+    {
+      synchronized (nextChunkToRegister)
+      {
+        nextChunkToRegister.incrementAndGet();
+        nextChunkToRegister.notifyAll();
+      }
+    }
+  }
 
-        entriesRead.incrementAndGet();
-
-        final Pair<Boolean, LocalizableMessage> includeResult = importConfig.includeEntry(entryDN);
-        if (!includeResult.getFirst())
+  private void awaitTurnToRegister(Chunk chunk) throws InterruptedIOException
+  {
+    synchronized (nextChunkToRegister)
+    {
+      while (nextChunkToRegister.get() != chunk.sequenceNumber)
+      {
+        if (registrationCancelled)
         {
-          logToSkipWriter(lines, includeResult.getSecond());
-          continue;
+          throw new InterruptedIOException();
         }
-        entryContainer = getEntryContainer(entryDN, suffixesMap);
-        if (entryContainer == null)
+        try
         {
-          logger.trace("Skipping entry %s because the DN is not one that "
-              + "should be included based on a suffix match check.", entryDN);
-          logToSkipWriter(lines, ERR_LDIF_SKIP.get(entryDN));
-          continue;
+          nextChunkToRegister.wait();
         }
-        entryID = rootContainer.getNextEntryID();
-
-        if (!addPending(entryDN))
+        catch (InterruptedException e)
         {
-          logger.trace("Skipping entry %s because the DN already exists.", entryDN);
-          logToSkipWriter(lines, ERR_IMPORT_DUPLICATE_ENTRY.get(entryDN));
-          continue;
+          Thread.currentThread().interrupt();
+          // This chunk will never be registered: wake up and fail the threads waiting for the next chunks.
+          registrationCancelled = true;
+          nextChunkToRegister.notifyAll();
+          throw new InterruptedIOException();
         }
       }
+    }
+  }
 
-      // Create the entry and see if it is one that should be included in the import
-      final Entry entry = createEntry(lines, entryDN, checkSchema);
-      if (entry == null
-          || !isIncludedInImport(entry, lines)
-          || !invokeImportPlugins(entry, lines)
-          || (checkSchema && !isValidAgainstSchema(entry, lines)))
-      {
-        removePending(entryDN);
-        continue;
-      }
-      return new EntryInformation(entry, entryID, entryContainer);
+  /**
+   * Checks whether the record should be imported, in which case assigns it an entry ID and marks it
+   * as pending. Only one import thread at a time calls this method.
+   */
+  private boolean register(Record record, Map<DN, EntryContainer> suffixesMap)
+  {
+    final DN entryDN = record.entryDN;
+    if (entryDN == null)
+    {
+      // Either the DN could not be read, which was already reported, or the LDIF starts with the
+      // "version:" line and has a blank line immediately after that.
+      return false;
+    }
+
+    lastEntryBodyLines = record.lines;
+    lastEntryHeaderLines = record.headerLines;
+    entriesRead.incrementAndGet();
+
+    // See if the DN is one that should be included in the import.
+    final Pair<Boolean, LocalizableMessage> includeResult = importConfig.includeEntry(entryDN);
+    if (!includeResult.getFirst())
+    {
+      logToSkipWriter(record.lines, includeResult.getSecond());
+      return false;
+    }
+    record.entryContainer = getEntryContainer(entryDN, suffixesMap);
+    if (record.entryContainer == null)
+    {
+      logger.trace("Skipping entry %s because the DN is not one that "
+          + "should be included based on a suffix match check.", entryDN);
+      logToSkipWriter(record.lines, ERR_LDIF_SKIP.get(entryDN));
+      return false;
+    }
+    record.entryID = rootContainer.getNextEntryID();
+
+    if (!addPending(entryDN))
+    {
+      logger.trace("Skipping entry %s because the DN already exists.", entryDN);
+      logToSkipWriter(record.lines, ERR_IMPORT_DUPLICATE_ENTRY.get(entryDN));
+      return false;
+    }
+    return true;
+  }
+
+  private void rethrowFailure(Chunk chunk) throws IOException, LDIFException
+  {
+    if (chunk.failure instanceof LDIFException)
+    {
+      throw (LDIFException) chunk.failure;
+    }
+    else if (chunk.failure != null)
+    {
+      throw (IOException) chunk.failure;
     }
   }
 
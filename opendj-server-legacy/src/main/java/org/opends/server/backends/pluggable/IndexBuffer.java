@@ -40,6 +40,24 @@ import org.opends.server.types.DirectoryException;
  */
 class IndexBuffer
 {
+  /** Visitor of the changes buffered for the indexes. */
+  interface IndexChangeVisitor
+  {
+    /**
+     * Visits the changes buffered for a key of an index.
+     *
+     * @param index
+     *          the changed index
+     * @param key
+     *          the changed key
+     * @param deletedIDs
+     *          the IDs deleted from the key, may be {@code null}
+     * @param addedIDs
+     *          the IDs added to the key, may be {@code null}
+     */
+    void visitChange(Index index, ByteString key, EntryIDSet deletedIDs, EntryIDSet addedIDs);
+  }
+
   /** Internal interface for IndexBuffer implementor. */
   private interface IndexBufferImplementor
   {
@@ -55,6 +73,8 @@ class IndexBuffer
 
     void remove(Index index, ByteString key, EntryID entryID);
 
+    void visitChanges(IndexChangeVisitor visitor);
+
     void reset();
   }
 
@@ -256,6 +276,19 @@ class IndexBuffer
       }
     }
 
+    @Override
+    public void visitChanges(IndexChangeVisitor visitor)
+    {
+      for (Entry<Index, SortedMap<ByteString, BufferedIndexValues>> entry : bufferedIndexes.entrySet())
+      {
+        for (Entry<ByteString, BufferedIndexValues> change : entry.getValue().entrySet())
+        {
+          final BufferedIndexValues values = change.getValue();
+          visitor.visitChange(entry.getKey(), change.getKey(), values.deletedEntryIDs, values.addedEntryIDs);
+        }
+      }
+    }
+
     @Override
     public void reset()
     {
@@ -316,6 +349,12 @@ class IndexBuffer
       throw new UnsupportedOperationException();
     }
 
+    @Override
+    public void visitChanges(IndexChangeVisitor visitor)
+    {
+      throw new UnsupportedOperationException();
+    }
+
     @Override
     public void reset()
     {
@@ -388,6 +427,17 @@ class IndexBuffer
     impl.remove(index, key, entryID);
   }
 
+  /**
+   * Visits the changes buffered for the indexes, excluding VLV indexes.
+   *
+   * @param visitor
+   *          the visitor of the changes
+   */
+  void visitChanges(IndexChangeVisitor visitor)
+  {
+    impl.visitChanges(visitor);
+  }
+
   void reset()
   {
     impl.reset();
@@ -0,0 +1,136 @@
+/*
+ * The contents of this file are subject to the terms of the Common Development and
+ * Distribution License (the License). You may not use this file except in compliance with the
+ * License.
+ *
+ * You can obtain a copy of the License at legal/CDDLv1.0.txt. See the License for the
+ * specific language governing permission and limitations under the License.
+ *
+ * When distributing Covered Software, include this CDDL Header Notice in each file and include
+ * the License file at legal/CDDLv1.0.txt. If applicable, add the following below the CDDL
+ * Header, with the fields enclosed by brackets [] replaced by your own identifying
+ * information: "Portions Copyright [year] [name of copyright owner]".
+ *
+ * Copyright 2026 ForgeRock AS.
+ */
+package org.opends.server.backends.pluggable;
+
+import static org.opends.server.backends.pluggable.IndexStatistics.*;
+
+import java.util.Collection;
+
+import org.forgerock.opendj.ldap.ByteSequence;
+import org.forgerock.opendj.ldap.DecodeException;
+import org.forgerock.opendj.ldap.spi.IndexQueryFactory;
+import org.forgerock.opendj.ldap.spi.IndexingOptions;
+import org.opends.server.backends.pluggable.IndexStatistics.Statistics;
+import org.opends.server.backends.pluggable.spi.ReadableTransaction;
+
+/**
+ * {@link IndexQueryFactory} implementation which estimates the number of candidate entries of queries from the index
+ * statistics instead of creating them. Estimates are {@link IndexStatistics#UNKNOWN} when an index has no statistics,
+ * and otherwise follow the same index selection rules as {@link IndexQueryFactoryImpl}.
+ */
+final class IndexCardinalityEstimator implements IndexQueryFactory<Long>
+{
+  private static final String PRESENCE_INDEX_KEY = "presence";
+
+  private final ReadableTransaction txn;
+  private final AttributeIndex attributeIndex;
+  private final IndexStatistics indexStatistics;
+
+  IndexCardinalityEstimator(ReadableTransaction txn, AttributeIndex attributeIndex, IndexStatistics indexStatistics)
+  {
+    this.txn = txn;
+    this.attributeIndex = attributeIndex;
+    this.indexStatistics = indexStatistics;
+  }
+
+  @Override
+  public Long createExactMatchQuery(String indexID, ByteSequence key)
+  {
+    Index index = attributeIndex.getNameToIndexes().get(indexID);
+    ByteSequence indexKey = key;
+    if (index == null)
+    {
+      index = attributeIndex.getNameToIndexes().get(indexID + AttributeIndex.PROTECTED_INDEX_ID);
+      if (index == null)
+      {
+        return createMatchAllQuery();
+      }
+      try
+      {
+        indexKey = attributeIndex.getCryptoSuite().hash48(key);
+      }
+      catch (DecodeException e)
+      {
+        return createMatchAllQuery();
+      }
+    }
+    final Statistics statistics = indexStatistics.getStatistics(txn, index);
+    return statistics != null ? statistics.estimateExactMatch(indexKey) : UNKNOWN;
+  }
+
+  @Override
+  public Long createRangeMatchQuery(String indexID, ByteSequence lowerBound, ByteSequence upperBound,
+      boolean includeLowerBound, boolean includeUpperBound)
+  {
+    final Index index = attributeIndex.getNameToIndexes().get(indexID);
+    if (index == null)
+    {
+      return createMatchAllQuery();
+    }
+    final Statistics statistics = indexStatistics.getStatistics(txn, index);
+    if (statistics == null)
+    {
+      return UNKNOWN;
+    }
+    final long estimate = statistics.estimateRange(lowerBound, upperBound);
+    // Reading a range stops being worth it beyond this limit, see IndexQueryFactoryImpl.
+    return estimate <= IndexFilter.CURSOR_ENTRY_LIMIT ? estimate : UNKNOWN;
+  }
+
+  @Override
+  public Long createIntersectionQuery(Collection<Long> subqueries)
+  {
+    long estimate = UNKNOWN;
+    for (Long subquery : subqueries)
+    {
+      estimate = Math.min(estimate, subquery);
+    }
+    return estimate;
+  }
+
+  @Override
+  public Long createUnionQuery(Collection<Long> subqueries)
+  {
+    long estimate = 0;
+    for (Long subquery : subqueries)
+    {
+      if (subquery == UNKNOWN)
+      {
+        return UNKNOWN;
+      }
+      estimate += subquery;
+    }
+    return estimate;
+  }
+
+  @Override
+  public Long createMatchAllQuery()
+  {
+    final Index index = attributeIndex.getNameToIndexes().get(PRESENCE_INDEX_KEY);
+    if (index == null)
+    {
+      return UNKNOWN;
+    }
+    final Statistics statistics = indexStatistics.getStatistics(txn, index);
+    return statistics != null ? statistics.getIdCount() : UNKNOWN;
+  }
+
+  @Override
+  public IndexingOptions getIndexingOptions()
+  {
+    return attributeIndex.getIndexingOptions();
+  }
+}
@@ -18,13 +18,25 @@ package org.opends.server.backends.pluggable;
 
 import static org.opends.messages.BackendMessages.*;
 import static org.opends.server.backends.pluggable.EntryIDSet.*;
+import static org.opends.server.backends.pluggable.IndexStatistics.*;
 
 import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Comparator;
 import java.util.HashMap;
+import java.util.List;
 import java.util.Map;
+import java.util.concurrent.Callable;
+import java.util.concurrent.CompletionService;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorCompletionService;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Future;
+import java.util.concurrent.RejectedExecutionException;
 
 import org.opends.server.backends.pluggable.AttributeIndex.IndexFilterType;
 import org.opends.server.backends.pluggable.spi.ReadableTransaction;
+import org.opends.server.backends.pluggable.spi.StorageRuntimeException;
 import org.opends.server.core.SearchOperation;
 import org.forgerock.opendj.ldap.schema.AttributeType;
 import org.opends.server.types.FilterType;
@@ -45,6 +57,62 @@ class IndexFilter
   /** Limit on the number of entry IDs that may be retrieved by cursoring through an index. */
   static final int CURSOR_ENTRY_LIMIT = 100000;
 
+  /**
+   * Rough cost of reading and matching a candidate entry, relative to the cost of reading one entry ID from an index.
+   * Used to decide whether an AND component is selective enough to be worth reading its index.
+   */
+  private static final int ENTRY_READ_COST = 64;
+
+  /** Orders candidate sets from the smallest to the largest, undefined sets last. */
+  private static final Comparator<EntryIDSet> BY_CARDINALITY = new Comparator<EntryIDSet>()
+  {
+    @Override
+    public int compare(EntryIDSet set1, EntryIDSet set2)
+    {
+      return Long.compare(cardinality(set1), cardinality(set2));
+    }
+
+    private long cardinality(EntryIDSet set)
+    {
+      return set.isDefined() ? set.size() : Long.MAX_VALUE;
+    }
+  };
+
+  /** A component of an AND filter, with its estimated number of candidate entries. */
+  private static final class PlannedComponent implements Comparable<PlannedComponent>
+  {
+    /** The attribute of a range component pair, {@code null} for a single component. */
+    private final AttributeType rangeAttributeType;
+    private final List<SearchFilter> filters;
+    private final long estimate;
+
+    private PlannedComponent(SearchFilter filter, long estimate)
+    {
+      this(null, Collections.singletonList(filter), estimate);
+    }
+
+    private PlannedComponent(AttributeType rangeAttributeType, List<SearchFilter> filters, long estimate)
+    {
+      this.rangeAttributeType = rangeAttributeType;
+      this.filters = filters;
+      this.estimate = estimate;
+    }
+
+    @Override
+    public int compareTo(PlannedComponent other)
+    {
+      return Long.compare(estimate, other.estimate);
+    }
+
+    private void toString(StringBuilder buffer)
+    {
+      for (SearchFilter filter : filters)
+      {
+        filter.toString(buffer);
+      }
+    }
+  }
+
   /** The entry container holding the attribute indexes. */
   private final EntryContainer entryContainer;
   private final ReadableTransaction txn;
@@ -61,6 +129,10 @@ class IndexFilter
    */
   private final StringBuilder buffer;
   private final BackendMonitor monitor;
+  /** Reads the indexes of the AND filter components concurrently, null for sequential evaluation. */
+  private final ExecutorService executor;
+  /** The index statistics used to plan the evaluation of AND filters, null if the plan is not cost based. */
+  private final IndexStatistics indexStatistics;
 
   /**
    * Construct an index filter for a search operation.
@@ -75,12 +147,23 @@ class IndexFilter
    */
   IndexFilter(EntryContainer entryContainer, ReadableTransaction txn, SearchOperation searchOp,
       StringBuilder debugBuilder, BackendMonitor monitor)
+  {
+    // The diagnostic string must reflect the evaluation order, do not evaluate in parallel.
+    this(entryContainer, txn, searchOp, debugBuilder, monitor,
+        debugBuilder == null ? entryContainer.getRootContainer().getIndexFilterExecutor() : null);
+  }
+
+  private IndexFilter(EntryContainer entryContainer, ReadableTransaction txn, SearchOperation searchOp,
+      StringBuilder debugBuilder, BackendMonitor monitor, ExecutorService executor)
   {
     this.entryContainer = entryContainer;
     this.txn = txn;
     this.searchOp = searchOp;
     this.buffer = debugBuilder;
     this.monitor = monitor;
+    this.executor = executor;
+    final IndexStatistics statistics = entryContainer.getIndexStatistics();
+    this.indexStatistics = statistics.isEnabled() ? statistics : null;
   }
 
   /**
@@ -205,11 +288,34 @@ class IndexFilter
       }
     }
 
+    if (indexStatistics != null)
+    {
+      final List<PlannedComponent> plan = newPlan(fastComps, otherComps, rangeComps);
+      return executor != null && plan.size() > 1 ? applyPlanInParallel(plan) : applyPlan(plan);
+    }
+
     EntryIDSet results = newUndefinedSet();
-    // First, process the fast components.
-    results = applyFiltersUntilThreshold(results, fastComps);
-    // Next, process the other (non-range) components.
-    results = applyFiltersUntilThreshold(results, otherComps);
+    if (executor != null && fastComps.size() + otherComps.size() > 1)
+    {
+      // Process the fast and the other (non-range) components concurrently.
+      final List<PlannedComponent> comps = new ArrayList<>(fastComps.size() + otherComps.size());
+      for (SearchFilter filter : fastComps)
+      {
+        comps.add(new PlannedComponent(filter, UNKNOWN));
+      }
+      for (SearchFilter filter : otherComps)
+      {
+        comps.add(new PlannedComponent(filter, UNKNOWN));
+      }
+      results = applyComponentsInParallelUntilThreshold(results, comps);
+    }
+    else
+    {
+      // First, process the fast components.
+      results = applyFiltersUntilThreshold(results, fastComps);
+      // Next, process the other (non-range) components.
+      results = applyFiltersUntilThreshold(results, otherComps);
+    }
 
     if ( isBelowFilterThreshold(results) || rangeComps.isEmpty() ) {
       return results;
@@ -222,26 +328,11 @@ class IndexFilter
       ArrayList<SearchFilter> rangeList = rangeEntry.getValue();
       if (rangeList.size() == 2)
       {
-        SearchFilter filter1 = rangeList.get(0);
-        SearchFilter filter2 = rangeList.get(1);
-
-        AttributeIndex attributeIndex = entryContainer.getAttributeIndex(rangeEntry.getKey());
-        if (attributeIndex == null)
+        EntryIDSet set = evaluateBoundedRange(rangeEntry.getKey(), rangeList);
+        if (set == null)
         {
-          if(monitor.isFilterUseEnabled())
-          {
-            monitor.updateStats(SearchFilter.createANDFilter(rangeList),
-                INFO_INDEX_FILTER_INDEX_TYPE_DISABLED.get("ordering", rangeEntry.getKey().getNameOrOID()));
-          }
           continue;
         }
-
-        final IndexQueryFactoryImpl indexQueryFactory = new IndexQueryFactoryImpl(txn, attributeIndex);
-        EntryIDSet set = attributeIndex.evaluateBoundedRange(indexQueryFactory, filter1, filter2, buffer, monitor);
-        if(monitor.isFilterUseEnabled() && set.isDefined())
-        {
-          monitor.updateStats(SearchFilter.createANDFilter(rangeList), set.size());
-        }
         results.retainAll(set);
         if (isBelowFilterThreshold(results))
         {
@@ -259,7 +350,266 @@ class IndexFilter
     return applyFiltersUntilThreshold(results, remainComps);
   }
 
-  private EntryIDSet applyFiltersUntilThreshold(EntryIDSet results, ArrayList<SearchFilter> filters)
+  /**
+   * Evaluates a range component pair like (cn>=A)(cn<=B).
+   *
+   * @return the candidate entries, or {@code null} if the attribute is not indexed
+   */
+  private EntryIDSet evaluateBoundedRange(AttributeType attributeType, List<SearchFilter> rangeList)
+  {
+    AttributeIndex attributeIndex = entryContainer.getAttributeIndex(attributeType);
+    if (attributeIndex == null)
+    {
+      if(monitor.isFilterUseEnabled())
+      {
+        monitor.updateStats(SearchFilter.createANDFilter(rangeList),
+            INFO_INDEX_FILTER_INDEX_TYPE_DISABLED.get("ordering", attributeType.getNameOrOID()));
+      }
+      return null;
+    }
+
+    final IndexQueryFactoryImpl indexQueryFactory = new IndexQueryFactoryImpl(txn, attributeIndex);
+    EntryIDSet set =
+        attributeIndex.evaluateBoundedRange(indexQueryFactory, rangeList.get(0), rangeList.get(1), buffer, monitor);
+    if(monitor.isFilterUseEnabled() && set.isDefined())
+    {
+      monitor.updateStats(SearchFilter.createANDFilter(rangeList), set.size());
+    }
+    return set;
+  }
+
+  /**
+   * Builds the cost based plan of an AND filter: its components sorted by increasing estimated number of candidates.
+   * Components without estimates keep the order used when there are no statistics: the fast components, the other
+   * (non-range) components, the range component pairs, and finally the remaining range components.
+   */
+  private List<PlannedComponent> newPlan(List<SearchFilter> fastComps, List<SearchFilter> otherComps,
+      Map<AttributeType, ArrayList<SearchFilter>> rangeComps)
+  {
+    final List<PlannedComponent> plan = new ArrayList<>();
+    final List<PlannedComponent> remainComps = new ArrayList<>();
+    for (SearchFilter filter : fastComps)
+    {
+      plan.add(new PlannedComponent(filter, estimateFilter(filter)));
+    }
+    for (SearchFilter filter : otherComps)
+    {
+      plan.add(new PlannedComponent(filter, estimateFilter(filter)));
+    }
+    for (Map.Entry<AttributeType, ArrayList<SearchFilter>> rangeEntry : rangeComps.entrySet())
+    {
+      final ArrayList<SearchFilter> rangeList = rangeEntry.getValue();
+      if (rangeList.size() == 2)
+      {
+        plan.add(new PlannedComponent(rangeEntry.getKey(), rangeList,
+            estimateIntersection(estimateFilter(rangeList.get(0)), estimateFilter(rangeList.get(1)))));
+      }
+      else
+      {
+        for (SearchFilter filter : rangeList)
+        {
+          remainComps.add(new PlannedComponent(filter, estimateFilter(filter)));
+        }
+      }
+    }
+    plan.addAll(remainComps);
+    // The sort is stable.
+    Collections.sort(plan);
+    return plan;
+  }
+
+  private EntryIDSet applyPlan(List<PlannedComponent> plan)
+  {
+    appendPlanToDebugBuffer(plan);
+    EntryIDSet results = newUndefinedSet();
+    for (PlannedComponent component : plan)
+    {
+      if (isBelowFilterThreshold(results))
+      {
+        break;
+      }
+      if (!isWorthEvaluating(component, results.isDefined() ? results.size() : UNKNOWN))
+      {
+        if (buffer != null)
+        {
+          component.toString(buffer);
+          buffer.append("[SKIPPED]");
+        }
+        continue;
+      }
+      final EntryIDSet set = evaluateComponent(component);
+      if (set != null)
+      {
+        results.retainAll(set);
+      }
+    }
+    return results;
+  }
+
+  /**
+   * Applies the plan with concurrent evaluations. The candidate sets of the components are not known before they are
+   * all evaluated, so whether a component is worth evaluating is decided from the estimates of the components before
+   * it in the plan.
+   */
+  private EntryIDSet applyPlanInParallel(List<PlannedComponent> plan)
+  {
+    final List<PlannedComponent> selectedComps = new ArrayList<>(plan.size());
+    long expectedResults = UNKNOWN;
+    for (PlannedComponent component : plan)
+    {
+      if (isWorthEvaluating(component, expectedResults))
+      {
+        selectedComps.add(component);
+        expectedResults = estimateRemaining(expectedResults, component.estimate);
+      }
+    }
+    return applyComponentsInParallelUntilThreshold(newUndefinedSet(), selectedComps);
+  }
+
+  /**
+   * Returns whether reading the index of a component costs less than reading and matching the candidate entries it is
+   * expected to eliminate. Skipped components are still checked when matching the candidate entries.
+   *
+   * @param resultsSize
+   *          the number of candidate entries before evaluating the component, or {@link IndexStatistics#UNKNOWN}
+   */
+  private boolean isWorthEvaluating(PlannedComponent component, long resultsSize)
+  {
+    final long entryCount = indexStatistics.getEntryCount();
+    if (resultsSize == UNKNOWN || component.estimate == UNKNOWN || entryCount <= 0)
+    {
+      return true;
+    }
+    final double selectivity = Math.min(1.0, (double) component.estimate / entryCount);
+    final double eliminatedEntries = resultsSize * (1.0 - selectivity);
+    return component.estimate <= eliminatedEntries * ENTRY_READ_COST;
+  }
+
+  /**
+   * Estimates the number of candidate entries left after intersecting them with the candidates of a component,
+   * assuming the components are independent.
+   */
+  private long estimateRemaining(long resultsSize, long estimate)
+  {
+    final long entryCount = indexStatistics.getEntryCount();
+    if (resultsSize == UNKNOWN)
+    {
+      return estimate;
+    }
+    if (estimate == UNKNOWN || entryCount <= 0)
+    {
+      return resultsSize;
+    }
+    return (long) (resultsSize * Math.min(1.0, (double) estimate / entryCount));
+  }
+
+  /**
+   * Evaluates a component of an AND filter.
+   *
+   * @return the candidate entries, or {@code null} if the attribute of a range component pair is not indexed
+   */
+  private EntryIDSet evaluateComponent(PlannedComponent component)
+  {
+    return component.rangeAttributeType != null
+        ? evaluateBoundedRange(component.rangeAttributeType, component.filters)
+        : evaluateFilter(component.filters.get(0));
+  }
+
+  /**
+   * Estimates the number of candidate entries of a filter from the index statistics.
+   *
+   * @return the estimated number of candidate entries, or {@link IndexStatistics#UNKNOWN}
+   */
+  private long estimateFilter(SearchFilter filter)
+  {
+    switch (filter.getFilterType())
+    {
+    case AND:
+      long andEstimate = UNKNOWN;
+      for (SearchFilter component : filter.getFilterComponents())
+      {
+        andEstimate = Math.min(andEstimate, estimateFilter(component));
+      }
+      return andEstimate;
+
+    case OR:
+      long orEstimate = 0;
+      for (SearchFilter component : filter.getFilterComponents())
+      {
+        final long estimate = estimateFilter(component);
+        if (estimate == UNKNOWN)
+        {
+          return UNKNOWN;
+        }
+        orEstimate += estimate;
+      }
+      return orEstimate;
+
+    case EQUALITY:
+      return estimateFilter(IndexFilterType.EQUALITY, filter);
+
+    case GREATER_OR_EQUAL:
+      return estimateFilter(IndexFilterType.GREATER_OR_EQUAL, filter);
+
+    case SUBSTRING:
+      return estimateFilter(IndexFilterType.SUBSTRING, filter);
+
+    case LESS_OR_EQUAL:
+      return estimateFilter(IndexFilterType.LESS_OR_EQUAL, filter);
+
+    case PRESENT:
+      return estimateFilter(IndexFilterType.PRESENCE, filter);
+
+    case APPROXIMATE_MATCH:
+      return estimateFilter(IndexFilterType.APPROXIMATE, filter);
+
+    default:
+      return UNKNOWN;
+    }
+  }
+
+  private long estimateFilter(IndexFilterType indexFilterType, SearchFilter filter)
+  {
+    final AttributeIndex attributeIndex = entryContainer.getAttributeIndex(filter.getAttributeType());
+    if (attributeIndex == null)
+    {
+      return UNKNOWN;
+    }
+    final IndexCardinalityEstimator estimator = new IndexCardinalityEstimator(txn, attributeIndex, indexStatistics);
+    return AttributeIndex.estimateFilter(estimator, indexFilterType, filter);
+  }
+
+  /** Estimates the intersection of two ranges of the same attribute, which together cover all the entries. */
+  private long estimateIntersection(long estimate1, long estimate2)
+  {
+    final long entryCount = indexStatistics.getEntryCount();
+    if (estimate1 == UNKNOWN || estimate2 == UNKNOWN || entryCount <= 0)
+    {
+      return Math.min(estimate1, estimate2);
+    }
+    return Math.min(Math.max(estimate1 + estimate2 - entryCount, 0), Math.min(estimate1, estimate2));
+  }
+
+  private void appendPlanToDebugBuffer(List<PlannedComponent> plan)
+  {
+    if (buffer != null)
+    {
+      buffer.append("[PLAN:");
+      for (int i = 0; i < plan.size(); i++)
+      {
+        if (i > 0)
+        {
+          buffer.append(" ");
+        }
+        final PlannedComponent component = plan.get(i);
+        component.toString(buffer);
+        buffer.append("~").append(component.estimate != UNKNOWN ? String.valueOf(component.estimate) : "?");
+      }
+      buffer.append("]");
+    }
+  }
+
+  private EntryIDSet applyFiltersUntilThreshold(EntryIDSet results, List<SearchFilter> filters)
   {
     for(SearchFilter filter : filters) {
       if (isBelowFilterThreshold(results)) {
@@ -270,6 +620,119 @@ class IndexFilter
     return results;
   }
 
+  /**
+   * Evaluates the provided components concurrently in the read transaction of the search, and intersects their
+   * candidate sets from the smallest to the largest. Evaluations which have not started yet are cancelled as soon as
+   * a small enough candidate set is found.
+   */
+  private EntryIDSet applyComponentsInParallelUntilThreshold(EntryIDSet results, List<PlannedComponent> comps)
+  {
+    final CompletionService<EntryIDSet> completionService = new ExecutorCompletionService<>(executor);
+    final List<Future<EntryIDSet>> futures = new ArrayList<>(comps.size());
+    try
+    {
+      for (final PlannedComponent component : comps)
+      {
+        futures.add(completionService.submit(new Callable<EntryIDSet>()
+        {
+          @Override
+          public EntryIDSet call() throws Exception
+          {
+            return evaluateComponentInSharedTransaction(component);
+          }
+        }));
+      }
+    }
+    catch (RejectedExecutionException e)
+    {
+      // The executor has been shut down by a configuration change.
+      cancelAll(futures);
+      return applyComponentsUntilThreshold(results, comps);
+    }
+
+    try
+    {
+      final List<EntryIDSet> candidateSets = new ArrayList<>(comps.size());
+      for (int i = 0; i < futures.size(); i++)
+      {
+        final EntryIDSet set = completionService.take().get();
+        if (set == null)
+        {
+          // The attribute of a range component pair is not indexed.
+          continue;
+        }
+        if (isBelowFilterThreshold(set))
+        {
+          // No need to wait for the other components.
+          results.retainAll(set);
+          return results;
+        }
+        candidateSets.add(set);
+      }
+
+      Collections.sort(candidateSets, BY_CARDINALITY);
+      for (EntryIDSet set : candidateSets)
+      {
+        if (isBelowFilterThreshold(results))
+        {
+          break;
+        }
+        results.retainAll(set);
+      }
+      return results;
+    }
+    catch (InterruptedException e)
+    {
+      Thread.currentThread().interrupt();
+      throw new StorageRuntimeException(e);
+    }
+    catch (ExecutionException e)
+    {
+      final Throwable cause = e.getCause();
+      throw cause instanceof RuntimeException ? (RuntimeException) cause : new StorageRuntimeException(cause);
+    }
+    finally
+    {
+      cancelAll(futures);
+    }
+  }
+
+  private EntryIDSet applyComponentsUntilThreshold(EntryIDSet results, List<PlannedComponent> comps)
+  {
+    for (PlannedComponent component : comps)
+    {
+      if (isBelowFilterThreshold(results))
+      {
+        return results;
+      }
+      final EntryIDSet set = evaluateComponent(component);
+      if (set != null)
+      {
+        results.retainAll(set);
+      }
+    }
+    return results;
+  }
+
+  /**
+   * Evaluates the provided component from an executor thread. The storage supports sharing the read transaction of
+   * the search between threads, otherwise no executor would be available, so all the components read the same data.
+   */
+  private EntryIDSet evaluateComponentInSharedTransaction(PlannedComponent component)
+  {
+    // Nested filters are evaluated sequentially so that evaluations never wait on each other.
+    return new IndexFilter(entryContainer, txn, searchOp, null, monitor, null).evaluateComponent(component);
+  }
+
+  private static void cancelAll(List<Future<EntryIDSet>> futures)
+  {
+    for (Future<EntryIDSet> future : futures)
+    {
+      // Do not interrupt index reads in progress.
+      future.cancel(false);
+    }
+  }
+
   static boolean isBelowFilterThreshold(EntryIDSet set)
   {
     return set.isDefined() && set.size() <= FILTER_CANDIDATE_THRESHOLD;
@@ -0,0 +1,658 @@
+/*
+ * The contents of this file are subject to the terms of the Common Development and
+ * Distribution License (the License). You may not use this file except in compliance with the
+ * License.
+ *
+ * You can obtain a copy of the License at legal/CDDLv1.0.txt. See the License for the
+ * specific language governing permission and limitations under the License.
+ *
+ * When distributing Covered Software, include this CDDL Header Notice in each file and include
+ * the License file at legal/CDDLv1.0.txt. If applicable, add the following below the CDDL
+ * Header, with the fields enclosed by brackets [] replaced by your own identifying
+ * information: "Portions Copyright [year] [name of copyright owner]".
+ *
+ * Copyright 2026 ForgeRock AS.
+ */
+package org.opends.server.backends.pluggable;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.List;
+import java.util.PriorityQueue;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.TimeUnit;
+
+import org.forgerock.i18n.slf4j.LocalizedLogger;
+import org.forgerock.opendj.ldap.ByteSequence;
+import org.forgerock.opendj.ldap.ByteSequenceReader;
+import org.forgerock.opendj.ldap.ByteString;
+import org.forgerock.opendj.ldap.ByteStringBuilder;
+import org.opends.server.backends.pluggable.spi.Cursor;
+import org.opends.server.backends.pluggable.spi.ReadOperation;
+import org.opends.server.backends.pluggable.spi.ReadableTransaction;
+import org.opends.server.backends.pluggable.spi.Storage;
+import org.opends.server.backends.pluggable.spi.StorageRuntimeException;
+import org.opends.server.backends.pluggable.spi.TreeName;
+import org.opends.server.backends.pluggable.spi.WriteOperation;
+import org.opends.server.backends.pluggable.spi.WriteableTransaction;
+import org.opends.server.util.StaticUtils;
+
+/**
+ * Stores statistics about the keys of the attribute indexes of an entry container, used to estimate the number of
+ * candidate entries of search filter components without reading the indexes.
+ * <p>
+ * The key is the name of the index tree and the value holds the number of keys and entry IDs of the index, together
+ * with an equi-depth histogram of its keys and the keys having the most entry IDs. Statistics are gathered by
+ * scanning the index in the background the first time they are needed, and gathered again once the number of entries
+ * in the entry container has changed by more than 10%. They are only approximations: no attempt is made to keep them
+ * up to date with each entry update.
+ */
+final class IndexStatistics extends AbstractTree
+{
+  private static final LocalizedLogger logger = LocalizedLogger.getLoggerForThisClass();
+
+  /** Estimate returned when no statistics are available: the component may match any number of entries. */
+  static final long UNKNOWN = Long.MAX_VALUE;
+
+  private static final byte FORMAT_VERSION = 1;
+  /** The histograms have between {@code MAX_BUCKETS} and twice this number of buckets. */
+  private static final int MAX_BUCKETS = 32;
+  private static final int MAX_FREQUENT_KEYS = 16;
+  private static final int STALE_RATIO_PERCENT = 10;
+  private static final long STALE_CHECK_INTERVAL_MS = TimeUnit.MINUTES.toMillis(1);
+
+  /** Statistics of an index, as gathered at a given point in time. */
+  static final class Statistics
+  {
+    private final long entryCount;
+    private final long keyCount;
+    private final long idCount;
+    /** The greatest key of each bucket of the histogram. */
+    private final ByteString[] upperKeys;
+    private final long[] bucketKeyCounts;
+    private final long[] bucketIdCounts;
+    /** The keys having the most entry IDs, in ascending order. */
+    private final ByteString[] frequentKeys;
+    private final long[] frequentKeyIdCounts;
+    /** Not persisted: the time after which the statistics must be checked for staleness. */
+    private volatile long nextCheckTime;
+
+    private Statistics(long entryCount, long keyCount, long idCount, ByteString[] upperKeys, long[] bucketKeyCounts,
+        long[] bucketIdCounts, ByteString[] frequentKeys, long[] frequentKeyIdCounts)
+    {
+      this.entryCount = entryCount;
+      this.keyCount = keyCount;
+      this.idCount = idCount;
+      this.upperKeys = upperKeys;
+      this.bucketKeyCounts = bucketKeyCounts;
+      this.bucketIdCounts = bucketIdCounts;
+      this.frequentKeys = frequentKeys;
+      this.frequentKeyIdCounts = frequentKeyIdCounts;
+    }
+
+    /**
+     * Returns the number of entries in the entry container when the statistics were gathered.
+     *
+     * @return the number of entries in the entry container when the statistics were gathered
+     */
+    long getEntryCount()
+    {
+      return entryCount;
+    }
+
+    long getKeyCount()
+    {
+      return keyCount;
+    }
+
+    /**
+     * Returns the number of entry IDs referenced by the index. Keys which have exceeded the index entry limit count for
+     * all the entries of the entry container.
+     *
+     * @return the number of entry IDs referenced by the index
+     */
+    long getIdCount()
+    {
+      return idCount;
+    }
+
+    int getBucketCount()
+    {
+      return upperKeys.length;
+    }
+
+    /**
+     * Estimates the number of entry IDs associated to a key of the index.
+     *
+     * @param key
+     *          the index key
+     * @return the estimated number of entry IDs associated to the key
+     */
+    long estimateExactMatch(ByteSequence key)
+    {
+      for (int i = 0; i < frequentKeys.length; i++)
+      {
+        if (frequentKeys[i].compareTo(key) == 0)
+        {
+          return frequentKeyIdCounts[i];
+        }
+      }
+      final int bucket = findBucket(key);
+      if (bucket < 0)
+      {
+        // The key was not present when the statistics were gathered.
+        return ceilDiv(idCount, keyCount);
+      }
+      // Do not let the frequent keys of the bucket skew the estimate for the other keys.
+      long bucketKeys = bucketKeyCounts[bucket];
+      long bucketIds = bucketIdCounts[bucket];
+      for (int i = 0; i < frequentKeys.length; i++)
+      {
+        if (findBucket(frequentKeys[i]) == bucket)
+        {
+          bucketKeys--;
+          bucketIds -= frequentKeyIdCounts[i];
+        }
+      }
+      return bucketKeys > 0 ? ceilDiv(bucketIds, bucketKeys) : ceilDiv(idCount, keyCount);
+    }
+
+    /**
+     * Estimates the number of entry IDs associated to a range of keys of the index. The bounds are assumed to fall in
+     * the middle of their bucket, so whether they are included or not makes no difference.
+     *
+     * @param lower
+     *          the lower bound of the range, or an empty sequence if the range is not bounded below
+     * @param upper
+     *          the upper bound of the range, or an empty sequence if the range is not bounded above
+     * @return the estimated number of entry IDs associated to the range of keys
+     */
+    long estimateRange(ByteSequence lower, ByteSequence upper)
+    {
+      final boolean hasLower = lower.length() > 0;
+      final boolean hasUpper = upper.length() > 0;
+      final int first = hasLower ? findBucket(lower) : 0;
+      if (first < 0 || upperKeys.length == 0)
+      {
+        return 0;
+      }
+      final int upperBucket = hasUpper ? findBucket(upper) : -1;
+      final int last = upperBucket >= 0 ? upperBucket : upperKeys.length - 1;
+      if (last < first)
+      {
+        return 0;
+      }
+      if (first == last)
+      {
+        return hasLower || upperBucket >= 0 ? ceilDiv(bucketIdCounts[first], 2) : bucketIdCounts[first];
+      }
+      long ids = 0;
+      for (int i = first; i <= last; i++)
+      {
+        ids += bucketIdCounts[i];
+      }
+      if (hasLower)
+      {
+        ids -= bucketIdCounts[first] / 2;
+      }
+      if (upperBucket >= 0)
+      {
+        ids -= bucketIdCounts[last] / 2;
+      }
+      return Math.min(ids, entryCount);
+    }
+
+    private static long ceilDiv(long dividend, long divisor)
+    {
+      return divisor > 0 ? (dividend + divisor - 1) / divisor : 0;
+    }
+
+    /** Returns the index of the first bucket whose upper key is greater than or equal to the key, or -1. */
+    private int findBucket(ByteSequence key)
+    {
+      int low = 0;
+      int high = upperKeys.length - 1;
+      while (low <= high)
+      {
+        final int mid = (low + high) >>> 1;
+        if (upperKeys[mid].compareTo(key) < 0)
+        {
+          low = mid + 1;
+        }
+        else
+        {
+          high = mid - 1;
+        }
+      }
+      return low < upperKeys.length ? low : -1;
+    }
+
+    private boolean isStale(long currentEntryCount)
+    {
+      return Math.abs(currentEntryCount - entryCount) * 100 > Math.max(entryCount, 1) * STALE_RATIO_PERCENT;
+    }
+
+    ByteString encode()
+    {
+      final ByteStringBuilder builder = new ByteStringBuilder();
+      builder.appendByte(FORMAT_VERSION);
+      builder.appendCompactUnsigned(entryCount);
+      builder.appendCompactUnsigned(keyCount);
+      builder.appendCompactUnsigned(idCount);
+      builder.appendCompactUnsigned(upperKeys.length);
+      for (int i = 0; i < upperKeys.length; i++)
+      {
+        builder.appendCompactUnsigned(bucketKeyCounts[i]);
+        builder.appendCompactUnsigned(bucketIdCounts[i]);
+        builder.appendCompactUnsigned(upperKeys[i].length());
+        builder.appendBytes(upperKeys[i]);
+      }
+      builder.appendCompactUnsigned(frequentKeys.length);
+      for (int i = 0; i < frequentKeys.length; i++)
+      {
+        builder.appendCompactUnsigned(frequentKeyIdCounts[i]);
+        builder.appendCompactUnsigned(frequentKeys[i].length());
+        builder.appendBytes(frequentKeys[i]);
+      }
+      return builder.toByteString();
+    }
+
+    static Statistics decode(ByteString value)
+    {
+      final ByteSequenceReader reader = value.asReader();
+      if (reader.readByte() != FORMAT_VERSION)
+      {
+        // Written by another version, gather them again.
+        return null;
+      }
+      final long entryCount = reader.readCompactUnsignedLong();
+      final long keyCount = reader.readCompactUnsignedLong();
+      final long idCount = reader.readCompactUnsignedLong();
+      final int bucketCount = reader.readCompactUnsignedInt();
+      final ByteString[] upperKeys = new ByteString[bucketCount];
+      final long[] bucketKeyCounts = new long[bucketCount];
+      final long[] bucketIdCounts = new long[bucketCount];
+      for (int i = 0; i < bucketCount; i++)
+      {
+        bucketKeyCounts[i] = reader.readCompactUnsignedLong();
+        bucketIdCounts[i] = reader.readCompactUnsignedLong();
+        upperKeys[i] = reader.readByteString(reader.readCompactUnsignedInt());
+      }
+      final int frequentKeyCount = reader.readCompactUnsignedInt();
+      final ByteString[] frequentKeys = new ByteString[frequentKeyCount];
+      final long[] frequentKeyIdCounts = new long[frequentKeyCount];
+      for (int i = 0; i < frequentKeyCount; i++)
+      {
+        frequentKeyIdCounts[i] = reader.readCompactUnsignedLong();
+        frequentKeys[i] = reader.readByteString(reader.readCompactUnsignedInt());
+      }
+      return new Statistics(entryCount, keyCount, idCount, upperKeys, bucketKeyCounts, bucketIdCounts,
+          frequentKeys, frequentKeyIdCounts);
+    }
+
+    @Override
+    public String toString()
+    {
+      return "entries=" + entryCount + " keys=" + keyCount + " ids=" + idCount + " buckets=" + upperKeys.length;
+    }
+  }
+
+  /** Builds the statistics of an index from its keys, provided in ascending order. */
+  static final class StatisticsBuilder
+  {
+    /** A key with its number of entry IDs. */
+    private static final class FrequentKey
+    {
+      private final ByteString key;
+      private final long idCount;
+
+      private FrequentKey(ByteString key, long idCount)
+      {
+        this.key = key;
+        this.idCount = idCount;
+      }
+    }
+
+    private static final Comparator<FrequentKey> BY_ID_COUNT = new Comparator<FrequentKey>()
+    {
+      @Override
+      public int compare(FrequentKey key1, FrequentKey key2)
+      {
+        return Long.compare(key1.idCount, key2.idCount);
+      }
+    };
+
+    private static final Comparator<FrequentKey> BY_KEY = new Comparator<FrequentKey>()
+    {
+      @Override
+      public int compare(FrequentKey key1, FrequentKey key2)
+      {
+        return key1.key.compareTo(key2.key);
+      }
+    };
+
+    private final long entryCount;
+    /** The keys having the most entry IDs so far, the one with the fewest entry IDs first. */
+    private final PriorityQueue<FrequentKey> frequentKeys = new PriorityQueue<>(MAX_FREQUENT_KEYS + 1, BY_ID_COUNT);
+    private final List<ByteString> upperKeys = new ArrayList<>();
+    private final List<long[]> bucketCounts = new ArrayList<>();
+    private long keyCount;
+    private long idCount;
+    /** Number of entry IDs after which the current bucket is closed. */
+    private long bucketIdCountTarget = 1;
+    private ByteString currentUpperKey;
+    private long currentKeyCount;
+    private long currentIdCount;
+
+    StatisticsBuilder(long entryCount)
+    {
+      this.entryCount = entryCount;
+    }
+
+    /**
+     * Accounts for a key of the index.
+     *
+     * @param key
+     *          the key, greater than all the keys added so far
+     * @param ids
+     *          the entry IDs associated to the key
+     * @return this builder
+     */
+    StatisticsBuilder add(ByteString key, EntryIDSet ids)
+    {
+      // Keys which have exceeded the index entry limit may match any entry.
+      final long count = ids.isDefined() ? ids.size() : entryCount;
+      keyCount++;
+      idCount += count;
+      if (count > 1 && (frequentKeys.size() < MAX_FREQUENT_KEYS || count > frequentKeys.peek().idCount))
+      {
+        frequentKeys.add(new FrequentKey(key, count));
+        if (frequentKeys.size() > MAX_FREQUENT_KEYS)
+        {
+          frequentKeys.poll();
+        }
+      }
+      currentUpperKey = key;
+      currentKeyCount++;
+      currentIdCount += count;
+      if (currentIdCount >= bucketIdCountTarget)
+      {
+        closeCurrentBucket();
+        if (upperKeys.size() >= 2 * MAX_BUCKETS)
+        {
+          mergeBuckets();
+        }
+      }
+      return this;
+    }
+
+    private void closeCurrentBucket()
+    {
+      upperKeys.add(currentUpperKey);
+      bucketCounts.add(new long[] { currentKeyCount, currentIdCount });
+      currentKeyCount = 0;
+      currentIdCount = 0;
+    }
+
+    /** Halves the number of buckets by merging them two by two, so that the histogram keeps a bounded size. */
+    private void mergeBuckets()
+    {
+      for (int i = 0; i < upperKeys.size() / 2; i++)
+      {
+        final long[] counts1 = bucketCounts.get(2 * i);
+        final long[] counts2 = bucketCounts.get(2 * i + 1);
+        upperKeys.set(i, upperKeys.get(2 * i + 1));
+        bucketCounts.set(i, new long[] { counts1[0] + counts2[0], counts1[1] + counts2[1] });
+      }
+      final int newSize = upperKeys.size() / 2;
+      upperKeys.subList(newSize, upperKeys.size()).clear();
+      bucketCounts.subList(newSize, bucketCounts.size()).clear();
+      bucketIdCountTarget *= 2;
+    }
+
+    Statistics build()
+    {
+      if (currentKeyCount > 0)
+      {
+        closeCurrentBucket();
+      }
+      final int bucketCount = upperKeys.size();
+      final long[] bucketKeyCounts = new long[bucketCount];
+      final long[] bucketIdCounts = new long[bucketCount];
+      for (int i = 0; i < bucketCount; i++)
+      {
+        bucketKeyCounts[i] = bucketCounts.get(i)[0];
+        bucketIdCounts[i] = bucketCounts.get(i)[1];
+      }
+      final List<FrequentKey> sortedFrequentKeys = new ArrayList<>(frequentKeys);
+      Collections.sort(sortedFrequentKeys, BY_KEY);
+      final ByteString[] frequentKeyArray = new ByteString[sortedFrequentKeys.size()];
+      final long[] frequentKeyIdCounts = new long[sortedFrequentKeys.size()];
+      for (int i = 0; i < frequentKeyArray.length; i++)
+      {
+        frequentKeyArray[i] = sortedFrequentKeys.get(i).key;
+        frequentKeyIdCounts[i] = sortedFrequentKeys.get(i).idCount;
+      }
+      return new Statistics(entryCount, keyCount, idCount, upperKeys.toArray(new ByteString[bucketCount]),
+          bucketKeyCounts, bucketIdCounts, frequentKeyArray, frequentKeyIdCounts);
+    }
+  }
+
+  private final EntryContainer entryContainer;
+  private final ConcurrentMap<TreeName, Statistics> statistics = new ConcurrentHashMap<>();
+  /** The indexes whose statistics are being checked or gathered. */
+  private final Set<TreeName> pendingRefreshes = Collections.newSetFromMap(new ConcurrentHashMap<TreeName, Boolean>());
+  private volatile boolean enabled;
+  /** The number of entries in the entry container the last time it was read, 0 if unknown. */
+  private volatile long entryCount;
+
+  IndexStatistics(TreeName name, EntryContainer entryContainer)
+  {
+    super(name);
+    this.entryContainer = entryContainer;
+  }
+
+  @Override
+  void afterOpen(WriteableTransaction txn, boolean createOnDemand) throws StorageRuntimeException
+  {
+    statistics.clear();
+  }
+
+  @Override
+  void beforeDelete(WriteableTransaction txn) throws StorageRuntimeException
+  {
+    statistics.clear();
+  }
+
+  void setEnabled(boolean enabled)
+  {
+    this.enabled = enabled;
+  }
+
+  boolean isEnabled()
+  {
+    return enabled;
+  }
+
+  /**
+   * Returns the number of entries in the entry container, as known from the last statistics read or gathered.
+   *
+   * @return the number of entries in the entry container, or 0 if it is unknown
+   */
+  long getEntryCount()
+  {
+    return entryCount;
+  }
+
+  /**
+   * Returns the statistics of an index. Statistics which are missing or may be stale are gathered in the background,
+   * so that the search being planned is never delayed.
+   *
+   * @param txn
+   *          a non null transaction
+   * @param index
+   *          the index
+   * @return the statistics of the index, or {@code null} if they are not available
+   * @throws StorageRuntimeException
+   *           If an error occurs in the storage.
+   */
+  Statistics getStatistics(ReadableTransaction txn, Index index) throws StorageRuntimeException
+  {
+    if (!enabled || !index.isTrusted())
+    {
+      return null;
+    }
+    final TreeName indexName = index.getName();
+    Statistics stats = statistics.get(indexName);
+    if (stats == null)
+    {
+      final ByteString value = txn.read(getName(), keyForIndex(indexName));
+      stats = value != null ? Statistics.decode(value) : null;
+      if (stats != null)
+      {
+        setEntryCount(stats.entryCount);
+        statistics.putIfAbsent(indexName, stats);
+      }
+    }
+    if (stats == null || stats.nextCheckTime <= System.currentTimeMillis())
+    {
+      scheduleRefresh(index);
+    }
+    return stats;
+  }
+
+  private void scheduleRefresh(final Index index)
+  {
+    final TreeName indexName = index.getName();
+    if (!pendingRefreshes.add(indexName))
+    {
+      return;
+    }
+    try
+    {
+      entryContainer.getRootContainer().getIndexStatisticsExecutor().execute(new Runnable()
+      {
+        @Override
+        public void run()
+        {
+          try
+          {
+            refresh(index);
+          }
+          catch (Exception e)
+          {
+            logger.traceException(e);
+          }
+          finally
+          {
+            pendingRefreshes.remove(indexName);
+          }
+        }
+      });
+    }
+    catch (RejectedExecutionException e)
+    {
+      // The backend is being closed.
+      pendingRefreshes.remove(indexName);
+    }
+  }
+
+  private void refresh(final Index index) throws Exception
+  {
+    final RootContainer rootContainer = entryContainer.getRootContainer();
+    if (rootContainer.isIndexStatisticsStopped())
+    {
+      return;
+    }
+    final Storage storage = rootContainer.getStorage();
+    final Statistics gathered = storage.read(new ReadOperation<Statistics>()
+    {
+      @Override
+      public Statistics run(ReadableTransaction txn) throws Exception
+      {
+        final long currentEntryCount = entryContainer.getNumberOfEntriesInBaseDN0(txn);
+        setEntryCount(currentEntryCount);
+        final Statistics current = statistics.get(index.getName());
+        if (current != null && !current.isStale(currentEntryCount))
+        {
+          current.nextCheckTime = System.currentTimeMillis() + STALE_CHECK_INTERVAL_MS;
+          return null;
+        }
+        return gather(txn, index, currentEntryCount, rootContainer);
+      }
+    });
+    if (gathered == null || rootContainer.isIndexStatisticsStopped())
+    {
+      return;
+    }
+    gathered.nextCheckTime = System.currentTimeMillis() + STALE_CHECK_INTERVAL_MS;
+    statistics.put(index.getName(), gathered);
+    try
+    {
+      storage.write(new WriteOperation()
+      {
+        @Override
+        public void run(WriteableTransaction txn) throws Exception
+        {
+          txn.put(getName(), keyForIndex(index.getName()), gathered.encode());
+        }
+      });
+    }
+    catch (Exception e)
+    {
+      // The storage may be read-only: the statistics are still usable until the backend is closed.
+      logger.traceException(e);
+    }
+  }
+
+  private void setEntryCount(long entryCount)
+  {
+    this.entryCount = entryCount;
+  }
+
+  /**
+   * Gathers the statistics of an index by scanning all its keys.
+   *
+   * @param txn
+   *          a non null transaction
+   * @param index
+   *          the index
+   * @param entryCount
+   *          the number of entries in the entry container
+   * @param rootContainer
+   *          the root container of the index, which stops the scan when it is closed
+   * @return the statistics of the index, or {@code null} if the root container has been closed during the scan
+   */
+  static Statistics gather(ReadableTransaction txn, Index index, long entryCount, RootContainer rootContainer)
+  {
+    final StatisticsBuilder builder = new StatisticsBuilder(entryCount);
+    try (Cursor<ByteString, EntryIDSet> cursor = index.openCursor(txn))
+    {
+      for (long keyCount = 0; cursor.next(); keyCount++)
+      {
+        if ((keyCount & 0x3FF) == 0 && rootContainer.isIndexStatisticsStopped())
+        {
+          return null;
+        }
+        builder.add(cursor.getKey(), cursor.getValue());
+      }
+    }
+    return builder.build();
+  }
+
+  private static ByteString keyForIndex(TreeName indexTreeName)
+  {
+    return ByteString.wrap(StaticUtils.getBytes(indexTreeName.toString()));
+  }
+
+  @Override
+  public String valueToString(ByteString value)
+  {
+    final Statistics stats = Statistics.decode(value);
+    return stats != null ? stats.toString() : value.toHexString();
+  }
+}
@@ -0,0 +1,255 @@
+/*
+ * The contents of this file are subject to the terms of the Common Development and
+ * Distribution License (the License). You may not use this file except in compliance with the
+ * License.
+ *
+ * You can obtain a copy of the License at legal/CDDLv1.0.txt. See the License for the
+ * specific language governing permission and limitations under the License.
+ *
+ * When distributing Covered Software, include this CDDL Header Notice in each file and include
+ * the License file at legal/CDDLv1.0.txt. If applicable, add the following below the CDDL
+ * Header, with the fields enclosed by brackets [] replaced by your own identifying
+ * information: "Portions Copyright [year] [name of copyright owner]".
+ *
+ * Copyright 2026 ForgeRock AS.
+ */
+package org.opends.server.backends.pluggable;
+
+import java.io.IOException;
+import java.util.Arrays;
+
+import org.forgerock.opendj.ldap.ByteStringBuilder;
+
+/**
+ * Compresses entries with a fast byte oriented LZ77 algorithm, similar to LZ4 block format.
+ * <p>
+ * The compressed data is a list of sequences. Each sequence starts with a token byte whose 4 high bits are the number
+ * of literals and 4 low bits are the match length minus {@value #MIN_MATCH}. A value of 15 means that the length
+ * continues on the following bytes, each byte being added to the length until a byte different from 255 is read. The
+ * literals follow, then the match offset on 2 bytes (little endian), then the match length continuation bytes. The
+ * last sequence only contains literals: decoding stops as soon as the output is full after copying the literals.
+ * <p>
+ * When a dictionary is provided, the dictionary is logically prepended to the data: matches can reference bytes from
+ * the end of the dictionary.
+ */
+final class LZCompressionCodec implements EntryCompressionCodec
+{
+  private static final int MIN_MATCH = 4;
+  private static final int MAX_OFFSET = 0xFFFF;
+  private static final int HASH_LOG = 12;
+  private static final int HASH_TABLE_SIZE = 1 << HASH_LOG;
+  private static final int RUN_MASK = 0x0F;
+  private static final int NO_POSITION = -1;
+
+  @Override
+  public void compress(byte[] input, int length, CompressionDictionary dictionary, ByteStringBuilder output)
+  {
+    // Matches are searched in a window made of the end of the dictionary followed by the input
+    final byte[] window;
+    final int start;
+    final int[] hashTable;
+    if (dictionary != null)
+    {
+      final byte[] content = dictionary.getContent();
+      start = Math.min(content.length, MAX_OFFSET);
+      window = new byte[start + length];
+      System.arraycopy(content, content.length - start, window, 0, start);
+      System.arraycopy(input, 0, window, start, length);
+      hashTable = getDictionaryHashTable(dictionary, start).clone();
+    }
+    else
+    {
+      start = 0;
+      window = input;
+      hashTable = new int[HASH_TABLE_SIZE];
+      Arrays.fill(hashTable, NO_POSITION);
+    }
+
+    final int end = start + length;
+    final int matchLimit = end - MIN_MATCH;
+    int anchor = start;
+    int position = start;
+    while (position <= matchLimit)
+    {
+      final int sequence = readInt(window, position);
+      final int hash = hash(sequence);
+      final int reference = hashTable[hash];
+      hashTable[hash] = position;
+      if (reference == NO_POSITION || position - reference > MAX_OFFSET || readInt(window, reference) != sequence)
+      {
+        position++;
+        continue;
+      }
+
+      int matchLength = MIN_MATCH;
+      while (position + matchLength < end && window[reference + matchLength] == window[position + matchLength])
+      {
+        matchLength++;
+      }
+      writeSequence(output, window, anchor, position - anchor, position - reference, matchLength);
+      position += matchLength;
+      anchor = position;
+    }
+    writeLastLiterals(output, window, anchor, end - anchor);
+  }
+
+  @Override
+  public void decompress(byte[] input, int offset, int length, CompressionDictionary dictionary, byte[] output)
+      throws IOException
+  {
+    final byte[] content = dictionary != null ? dictionary.getContent() : null;
+    final int dictionaryLength = content != null ? Math.min(content.length, MAX_OFFSET) : 0;
+    final int end = offset + length;
+    int in = offset;
+    int out = 0;
+    while (true)
+    {
+      checkAvailable(in, 1, end);
+      final int token = input[in++] & 0xFF;
+
+      int literalsLength = token >>> 4;
+      if (literalsLength == RUN_MASK)
+      {
+        int b;
+        do
+        {
+          checkAvailable(in, 1, end);
+          b = input[in++] & 0xFF;
+          literalsLength += b;
+        }
+        while (b == 0xFF);
+      }
+      checkAvailable(in, literalsLength, end);
+      if (out + literalsLength > output.length)
+      {
+        throw new IOException("Corrupted compressed data: literals overflow output");
+      }
+      System.arraycopy(input, in, output, out, literalsLength);
+      in += literalsLength;
+      out += literalsLength;
+      if (out == output.length)
+      {
+        break;
+      }
+
+      checkAvailable(in, 2, end);
+      final int matchOffset = (input[in++] & 0xFF) | (input[in++] & 0xFF) << 8;
+      int matchLength = token & RUN_MASK;
+      if (matchLength == RUN_MASK)
+      {
+        int b;
+        do
+        {
+          checkAvailable(in, 1, end);
+          b = input[in++] & 0xFF;
+          matchLength += b;
+        }
+        while (b == 0xFF);
+      }
+      matchLength += MIN_MATCH;
+
+      int source = out - matchOffset;
+      if (matchOffset == 0 || source < -dictionaryLength || out + matchLength > output.length)
+      {
+        throw new IOException("Corrupted compressed data: invalid match");
+      }
+      for (; source < 0 && matchLength > 0; source++, matchLength--)
+      {
+        output[out++] = content[content.length + source];
+      }
+      // Byte per byte copy because source and destination may overlap
+      for (; matchLength > 0; matchLength--)
+      {
+        output[out++] = output[source++];
+      }
+    }
+    if (in != end)
+    {
+      throw new IOException("Corrupted compressed data: trailing bytes");
+    }
+  }
+
+  private static void checkAvailable(int position, int length, int end) throws IOException
+  {
+    if (position + length > end)
+    {
+      throw new IOException("Corrupted compressed data: unexpected end of data");
+    }
+  }
+
+  private static int[] getDictionaryHashTable(CompressionDictionary dictionary, int length)
+  {
+    int[] hashTable = (int[]) dictionary.getCodecState();
+    if (hashTable == null)
+    {
+      final byte[] content = dictionary.getContent();
+      final int offset = content.length - length;
+      hashTable = new int[HASH_TABLE_SIZE];
+      Arrays.fill(hashTable, NO_POSITION);
+      for (int i = 0; i <= length - MIN_MATCH; i++)
+      {
+        hashTable[hash(readInt(content, offset + i))] = i;
+      }
+      dictionary.setCodecState(hashTable);
+    }
+    return hashTable;
+  }
+
+  private static void writeSequence(ByteStringBuilder output, byte[] window, int literalsOffset, int literalsLength,
+      int matchOffset, int matchLength)
+  {
+    final int matchLengthCode = matchLength - MIN_MATCH;
+    output.appendByte(Math.min(literalsLength, RUN_MASK) << 4 | Math.min(matchLengthCode, RUN_MASK));
+    writeLiterals(output, window, literalsOffset, literalsLength);
+    output.appendByte(matchOffset & 0xFF);
+    output.appendByte(matchOffset >>> 8);
+    if (matchLengthCode >= RUN_MASK)
+    {
+      writeLengthContinuation(output, matchLengthCode - RUN_MASK);
+    }
+  }
+
+  private static void writeLastLiterals(ByteStringBuilder output, byte[] window, int literalsOffset,
+      int literalsLength)
+  {
+    output.appendByte(Math.min(literalsLength, RUN_MASK) << 4);
+    writeLiterals(output, window, literalsOffset, literalsLength);
+  }
+
+  private static void writeLiterals(ByteStringBuilder output, byte[] window, int literalsOffset, int literalsLength)
+  {
+    if (literalsLength >= RUN_MASK)
+    {
+      writeLengthContinuation(output, literalsLength - RUN_MASK);
+    }
+    output.appendBytes(window, literalsOffset, literalsLength);
+  }
+
+  private static void writeLengthContinuation(ByteStringBuilder output, int remaining)
+  {
+    for (; remaining >= 0xFF; remaining -= 0xFF)
+    {
+      output.appendByte(0xFF);
+    }
+    output.appendByte(remaining);
+  }
+
+  private static int readInt(byte[] buffer, int position)
+  {
+    return (buffer[position] & 0xFF)
+        | (buffer[position + 1] & 0xFF) << 8
+        | (buffer[position + 2] & 0xFF) << 16
+        | (buffer[position + 3] & 0xFF) << 24;
+  }
+
+  private static int hash(int sequence)
+  {
+    return (sequence * -1640531535) >>> (32 - HASH_LOG);
+  }
+
+  @Override
+  public String toString()
+  {
+    return "lz";
+  }
+}
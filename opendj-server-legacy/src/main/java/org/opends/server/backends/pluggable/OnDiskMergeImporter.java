@@ -314,12 +314,38 @@ final class OnDiskMergeImporter
         clearDegradedState(entryContainer, indexesToRebuild);
         logger.info(NOTE_REBUILD_CLEARDEGRADEDSTATE_FINAL_STATUS, rebuildConfig.getRebuildList());
       }
+      else if (rebuildConfig.isOnline())
+      {
+        rebuildIndexOnline(entryContainer, indexesToRebuild);
+      }
       else
       {
         rebuildIndex(entryContainer, rebuildConfig.getTmpDirectory(), indexesToRebuild, totalEntries);
       }
     }
 
+    private void rebuildIndexOnline(final EntryContainer entryContainer, final Set<String> indexIds)
+        throws InitializationException, ExecutionException
+    {
+      if (indexIds.isEmpty())
+      {
+        return;
+      }
+      final OnlineIndexRebuilder rebuilder = new OnlineIndexRebuilder(entryContainer, indexIds);
+      try
+      {
+        rebuilder.rebuild();
+      }
+      catch (InitializationException e)
+      {
+        throw e;
+      }
+      catch (Exception e)
+      {
+        throw new ExecutionException(e);
+      }
+    }
+
     private void clearDegradedState(final EntryContainer entryContainer, final Set<String> indexIds)
         throws ExecutionException
     {
@@ -1097,7 +1123,12 @@ final class OnDiskMergeImporter
 
     void beforePhaseOne(EntryContainer entryContainer)
     {
-      entryContainer.delete(asWriteableTransaction(importer));
+      final WriteableTransaction txn = asWriteableTransaction(importer);
+      entryContainer.delete(txn);
+      for (AttributeIndex attributeIndex : entryContainer.getAttributeIndexes())
+      {
+        attributeIndex.writeLocations(txn);
+      }
       visitIndexes(entryContainer, setTrust(false, importer));
     }
 
@@ -1178,10 +1209,16 @@ final class OnDiskMergeImporter
     @Override
     public Chunk newChunk(TreeName treeName) throws Exception
     {
-      if (isID2Entry(entryContainers.get(treeName.getBaseDN()), treeName))
+      final EntryContainer entryContainer = entryContainers.get(treeName.getBaseDN());
+      if (isID2Entry(entryContainer, treeName))
       {
         return new MostlyOrderedChunk(asChunk(treeName, importer));
       }
+      else if (isCompressionDictionaries(entryContainer, treeName))
+      {
+        // Only a few large records: write them directly
+        return asChunk(treeName, importer);
+      }
       return newExternalSortChunk(treeName);
     }
 
@@ -1191,7 +1228,7 @@ final class OnDiskMergeImporter
     {
       final EntryContainer entryContainer = entryContainers.get(treeName.getBaseDN());
 
-      if (isID2Entry(entryContainer, treeName))
+      if (isID2Entry(entryContainer, treeName) || isCompressionDictionaries(entryContainer, treeName))
       {
         return newFlushTask(source);
       }
@@ -1235,7 +1272,7 @@ final class OnDiskMergeImporter
     @Override
     public Chunk newChunk(TreeName treeName) throws Exception
     {
-      if (indexesToRebuild.contains(treeName.getIndexId()))
+      if (indexesToRebuild.contains(AttributeIndex.getIndexId(treeName)))
       {
         return newExternalSortChunk(treeName);
       }
@@ -1248,7 +1285,7 @@ final class OnDiskMergeImporter
     {
       final EntryContainer entryContainer = entryContainers.get(treeName.getBaseDN());
 
-      if (!indexesToRebuild.contains(treeName.getIndexId()))
+      if (!indexesToRebuild.contains(AttributeIndex.getIndexId(treeName)))
       {
         // Do nothing (flush null chunk)
         return newFlushTask(source);
@@ -3152,6 +3189,11 @@ final class OnDiskMergeImporter
     return entryContainer.getID2Entry().getName().equals(treeName);
   }
 
+  private static boolean isCompressionDictionaries(final EntryContainer entryContainer, final TreeName treeName)
+  {
+    return entryContainer.getCompressionDictionaries().getName().equals(treeName);
+  }
+
   private static boolean isID2ChildrenCount(final EntryContainer entryContainer, final TreeName treeName)
   {
     return entryContainer.getID2ChildrenCount().getName().equals(treeName);
@@ -3720,7 +3762,7 @@ final class OnDiskMergeImporter
 
     private void addIndex(Tree index)
     {
-      indexNames.add(index.getName().getIndexId());
+      indexNames.add(AttributeIndex.getIndexId(index.getName()));
     }
   }
 
@@ -3740,7 +3782,7 @@ final class OnDiskMergeImporter
       @Override
       public boolean matches(final Tree tree, final Void p)
       {
-        return indexNames.contains(tree.getName().getIndexId().toLowerCase());
+        return indexNames.contains(AttributeIndex.getIndexId(tree.getName()).toLowerCase());
       }
     };
   }
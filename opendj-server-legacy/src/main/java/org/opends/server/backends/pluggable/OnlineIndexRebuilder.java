@@ -0,0 +1,474 @@
+/*
+ * The contents of this file are subject to the terms of the Common Development and
+ * Distribution License (the License). You may not use this file except in compliance with the
+ * License.
+ *
+ * You can obtain a copy of the License at legal/CDDLv1.0.txt. See the License for the
+ * specific language governing permission and limitations under the License.
+ *
+ * When distributing Covered Software, include this CDDL Header Notice in each file and include
+ * the License file at legal/CDDLv1.0.txt. If applicable, add the following below the CDDL
+ * Header, with the fields enclosed by brackets [] replaced by your own identifying
+ * information: "Portions Copyright [year] [name of copyright owner]".
+ *
+ * Copyright 2026 ForgeRock AS.
+ */
+package org.opends.server.backends.pluggable;
+
+import static org.opends.messages.BackendMessages.*;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Queue;
+import java.util.Set;
+import java.util.SortedMap;
+import java.util.TreeMap;
+import java.util.TreeSet;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.atomic.AtomicLong;
+
+import org.forgerock.i18n.slf4j.LocalizedLogger;
+import org.forgerock.opendj.ldap.ByteString;
+import org.forgerock.util.Utils;
+import org.opends.server.api.CompressedSchema;
+import org.opends.server.backends.pluggable.AttributeIndex.MatchingRuleIndex;
+import org.opends.server.backends.pluggable.IndexBuffer.IndexChangeVisitor;
+import org.opends.server.backends.pluggable.spi.Cursor;
+import org.opends.server.backends.pluggable.spi.ReadOperation;
+import org.opends.server.backends.pluggable.spi.ReadableTransaction;
+import org.opends.server.backends.pluggable.spi.Storage;
+import org.opends.server.backends.pluggable.spi.WriteOperation;
+import org.opends.server.backends.pluggable.spi.WriteableTransaction;
+import org.opends.server.types.Entry;
+import org.opends.server.types.InitializationException;
+
+/**
+ * Rebuilds attribute indexes while the backend stays online.
+ * <p>
+ * Searches and updates keep using the indexes while each of them is rebuilt in the tree where it is not stored, see
+ * {@link AttributeIndex#createRebuildTarget(Storage, MatchingRuleIndex)}. The rebuild goes through these steps:
+ * <ol>
+ * <li>the index changes committed by updates start being recorded,</li>
+ * <li>the rebuilt indexes are built from the entries read from id2entry, by batches,</li>
+ * <li>the recorded changes are replayed on the rebuilt indexes until few of them are left,</li>
+ * <li>updates are blocked while the last changes are replayed and the rebuilt indexes replace the indexes in use.</li>
+ * </ol>
+ * An entry read from id2entry while it is updated may be indexed as it was either before or after the update: in both
+ * cases, replaying the changes of the update brings its keys up to date. Replaying changes in the order they were
+ * recorded is enough, since the updates of an entry are recorded while holding its lock.
+ */
+final class OnlineIndexRebuilder
+{
+  private static final LocalizedLogger logger = LocalizedLogger.getLoggerForThisClass();
+
+  /** The number of entries read from id2entry in a single transaction. */
+  private static final int ENTRIES_PER_TRANSACTION = 1000;
+  /** The number of recorded changes replayed in a single transaction. */
+  private static final int CHANGES_PER_TRANSACTION = 1000;
+  /** Updates are only blocked once fewer changes than this are left to replay. */
+  private static final int MAX_CHANGES_REPLAYED_WHILE_BLOCKED = 10000;
+  /** The maximum number of replays while updates go on, in case updates are faster than replays. */
+  private static final int MAX_CATCH_UP_ROUNDS = 10;
+
+  /** A change of an index key committed while the index is rebuilt. */
+  private static final class IndexChange
+  {
+    private final Index index;
+    private final ByteString key;
+    private final EntryIDSet deletedIDs;
+    private final EntryIDSet addedIDs;
+
+    private IndexChange(Index index, ByteString key, EntryIDSet deletedIDs, EntryIDSet addedIDs)
+    {
+      this.index = index;
+      this.key = key;
+      this.deletedIDs = deletedIDs;
+      this.addedIDs = addedIDs;
+    }
+  }
+
+  /** The keys of a batch of entries read from id2entry. */
+  private static final class EntryBatch
+  {
+    private final Map<MatchingRuleIndex, SortedMap<ByteString, EntryIDSet>> keys = new HashMap<>();
+    private int nbEntries;
+    /** The key of the first entry of the next batch, {@code null} if this batch is the last one. */
+    private ByteString nextKey;
+  }
+
+  private final EntryContainer entryContainer;
+  private final Storage storage;
+  /** The rebuilt indexes in use, mapped to their attribute index. */
+  private final Map<MatchingRuleIndex, AttributeIndex> attributeIndexes = new LinkedHashMap<>();
+  /** The rebuilt indexes in use, mapped to the copies rebuilt in their place. */
+  private final Map<MatchingRuleIndex, MatchingRuleIndex> targets = new LinkedHashMap<>();
+  /** The index changes committed since the rebuild started, in commit order for each entry. */
+  private final Queue<IndexChange> changes = new ConcurrentLinkedQueue<>();
+  private final AtomicLong nbPendingChanges = new AtomicLong();
+  private long nbReplayedChanges;
+
+  private final IndexChangeVisitor changeRecorder = new IndexChangeVisitor()
+  {
+    @Override
+    public void visitChange(Index index, ByteString key, EntryIDSet deletedIDs, EntryIDSet addedIDs)
+    {
+      if (attributeIndexes.containsKey(index))
+      {
+        changes.add(new IndexChange(index, key, deletedIDs, addedIDs));
+        nbPendingChanges.incrementAndGet();
+      }
+    }
+  };
+
+  /**
+   * Creates a new online rebuild of indexes.
+   *
+   * @param entryContainer
+   *          the entry container of the indexes
+   * @param indexIds
+   *          the IDs of the indexes to rebuild
+   * @throws InitializationException
+   *           if some of the indexes are not attribute indexes
+   */
+  OnlineIndexRebuilder(EntryContainer entryContainer, Collection<String> indexIds) throws InitializationException
+  {
+    this.entryContainer = entryContainer;
+    this.storage = entryContainer.getRootContainer().getStorage();
+
+    final Set<String> notFound = new TreeSet<>(String.CASE_INSENSITIVE_ORDER);
+    notFound.addAll(indexIds);
+    for (AttributeIndex attributeIndex : entryContainer.getAttributeIndexes())
+    {
+      for (MatchingRuleIndex index : attributeIndex.getNameToIndexes().values())
+      {
+        if (notFound.remove(AttributeIndex.getIndexId(index.getName())))
+        {
+          attributeIndexes.put(index, attributeIndex);
+        }
+      }
+    }
+    if (!notFound.isEmpty())
+    {
+      throw new InitializationException(ERR_REBUILD_ONLINE_UNSUPPORTED_INDEX.get(notFound.iterator().next()));
+    }
+  }
+
+  /**
+   * Rebuilds the indexes. If the rebuild fails, the indexes in use are left untouched.
+   *
+   * @throws Exception
+   *           if the rebuild fails
+   */
+  void rebuild() throws Exception
+  {
+    final long startTime = System.currentTimeMillis();
+    startRecordingChanges();
+    boolean committed = false;
+    try
+    {
+      for (Map.Entry<MatchingRuleIndex, AttributeIndex> entry : attributeIndexes.entrySet())
+      {
+        targets.put(entry.getKey(), entry.getValue().createRebuildTarget(storage, entry.getKey()));
+      }
+
+      final long nbEntries = buildFromID2Entry();
+      logger.info(NOTE_REBUILD_ONLINE_CATCH_UP, getIndexNames(), nbEntries, nbPendingChanges.get());
+      for (int i = 0; i < MAX_CATCH_UP_ROUNDS && nbPendingChanges.get() > MAX_CHANGES_REPLAYED_WHILE_BLOCKED; i++)
+      {
+        replayChanges();
+      }
+
+      final List<MatchingRuleIndex> replacedIndexes = commit();
+      committed = true;
+      deleteReplacedIndexes(replacedIndexes);
+      logger.info(NOTE_REBUILD_ONLINE_FINAL_STATUS, nbEntries, nbReplayedChanges,
+          (System.currentTimeMillis() - startTime) / 1000, getIndexNames());
+    }
+    finally
+    {
+      if (!committed)
+      {
+        stopRecordingChanges();
+        deleteTargets(targets.keySet());
+      }
+    }
+  }
+
+  /**
+   * Records the committed changes of the rebuilt indexes.
+   *
+   * @param indexBuffer
+   *          the index changes of a committed update
+   */
+  void recordChanges(IndexBuffer indexBuffer)
+  {
+    indexBuffer.visitChanges(changeRecorder);
+  }
+
+  private void startRecordingChanges() throws InitializationException
+  {
+    // Wait for the updates in progress, which will not record their changes
+    entryContainer.lock();
+    try
+    {
+      if (entryContainer.getOnlineIndexRebuilder() != null)
+      {
+        throw new InitializationException(ERR_REBUILD_ONLINE_ALREADY_IN_PROGRESS.get(entryContainer.getBaseDN()));
+      }
+      entryContainer.setOnlineIndexRebuilder(this);
+    }
+    finally
+    {
+      entryContainer.unlock();
+    }
+  }
+
+  private void stopRecordingChanges()
+  {
+    entryContainer.lock();
+    try
+    {
+      if (entryContainer.getOnlineIndexRebuilder() == this)
+      {
+        entryContainer.setOnlineIndexRebuilder(null);
+      }
+    }
+    finally
+    {
+      entryContainer.unlock();
+    }
+  }
+
+  /** Builds the rebuilt indexes from id2entry, returns the number of entries processed. */
+  private long buildFromID2Entry() throws Exception
+  {
+    long nbEntries = 0;
+    ByteString nextKey = ByteString.empty();
+    while (nextKey != null)
+    {
+      final EntryBatch batch = readEntryBatch(nextKey);
+      storage.write(new WriteOperation()
+      {
+        @Override
+        public void run(WriteableTransaction txn) throws Exception
+        {
+          for (Map.Entry<MatchingRuleIndex, SortedMap<ByteString, EntryIDSet>> target : batch.keys.entrySet())
+          {
+            for (Map.Entry<ByteString, EntryIDSet> key : target.getValue().entrySet())
+            {
+              target.getKey().rebuildUpdate(txn, key.getKey(), null, key.getValue());
+            }
+          }
+        }
+      });
+      nbEntries += batch.nbEntries;
+      nextKey = batch.nextKey;
+    }
+    return nbEntries;
+  }
+
+  /** Reads a batch of entries from id2entry, starting with the provided key, and computes their keys. */
+  private EntryBatch readEntryBatch(final ByteString startKey) throws Exception
+  {
+    final ID2Entry id2entry = entryContainer.getID2Entry();
+    final CompressedSchema schema = entryContainer.getRootContainer().getCompressedSchema();
+    return storage.read(new ReadOperation<EntryBatch>()
+    {
+      @Override
+      public EntryBatch run(ReadableTransaction txn) throws Exception
+      {
+        final EntryBatch batch = new EntryBatch();
+        try (final Cursor<ByteString, ByteString> cursor = txn.openCursor(id2entry.getName()))
+        {
+          boolean found = cursor.positionToKeyOrNext(startKey);
+          for (; found && batch.nbEntries < ENTRIES_PER_TRANSACTION; found = cursor.next())
+          {
+            final EntryID entryID = new EntryID(cursor.getKey());
+            final Entry entry = id2entry.entryFromDatabase(cursor.getValue(), schema);
+            for (MatchingRuleIndex target : targets.values())
+            {
+              for (ByteString key : target.indexEntry(entry))
+              {
+                getOrCreateEntryIDSet(batch, target, key).add(entryID);
+              }
+            }
+            batch.nbEntries++;
+          }
+          batch.nextKey = found ? cursor.getKey() : null;
+        }
+        return batch;
+      }
+    });
+  }
+
+  private static EntryIDSet getOrCreateEntryIDSet(EntryBatch batch, MatchingRuleIndex target, ByteString key)
+  {
+    SortedMap<ByteString, EntryIDSet> keys = batch.keys.get(target);
+    if (keys == null)
+    {
+      keys = new TreeMap<>();
+      batch.keys.put(target, keys);
+    }
+    EntryIDSet entryIDs = keys.get(key);
+    if (entryIDs == null)
+    {
+      entryIDs = EntryIDSet.newDefinedSet();
+      keys.put(key, entryIDs);
+    }
+    return entryIDs;
+  }
+
+  /** Replays the changes recorded so far on the rebuilt indexes. */
+  private void replayChanges() throws Exception
+  {
+    for (long nbChanges = nbPendingChanges.get(); nbChanges > 0;)
+    {
+      final List<IndexChange> batch = new ArrayList<>(CHANGES_PER_TRANSACTION);
+      IndexChange change;
+      while (batch.size() < CHANGES_PER_TRANSACTION && (change = changes.poll()) != null)
+      {
+        batch.add(change);
+      }
+      if (batch.isEmpty())
+      {
+        return;
+      }
+
+      storage.write(new WriteOperation()
+      {
+        @Override
+        public void run(WriteableTransaction txn) throws Exception
+        {
+          for (IndexChange change : batch)
+          {
+            targets.get(change.index).rebuildUpdate(txn, change.key, change.deletedIDs, change.addedIDs);
+          }
+        }
+      });
+      nbPendingChanges.addAndGet(-batch.size());
+      nbReplayedChanges += batch.size();
+      nbChanges -= batch.size();
+    }
+  }
+
+  /**
+   * Replays the last changes then replaces the indexes in use by the rebuilt indexes, while updates are blocked.
+   * Returns the replaced indexes.
+   */
+  private List<MatchingRuleIndex> commit() throws Exception
+  {
+    entryContainer.lock();
+    try
+    {
+      replayChanges();
+      entryContainer.setOnlineIndexRebuilder(null);
+
+      final Map<MatchingRuleIndex, AttributeIndex> inUse = new LinkedHashMap<>();
+      for (Map.Entry<MatchingRuleIndex, AttributeIndex> entry : attributeIndexes.entrySet())
+      {
+        final AttributeIndex attributeIndex = entry.getValue();
+        if (entryContainer.getAttributeIndexes().contains(attributeIndex)
+            && attributeIndex.getNameToIndexes().containsValue(entry.getKey()))
+        {
+          inUse.put(entry.getKey(), attributeIndex);
+        }
+        else
+        {
+          logger.warn(WARN_REBUILD_ONLINE_INDEX_REMOVED, entry.getKey().getName());
+        }
+      }
+
+      storage.write(new WriteOperation()
+      {
+        @Override
+        public void run(WriteableTransaction txn) throws Exception
+        {
+          for (Map.Entry<MatchingRuleIndex, AttributeIndex> entry : inUse.entrySet())
+          {
+            entry.getValue().commitRebuildTarget(txn, entry.getKey(), targets.get(entry.getKey()));
+          }
+        }
+      });
+
+      final List<MatchingRuleIndex> replacedIndexes = new ArrayList<>(inUse.size());
+      for (Map.Entry<MatchingRuleIndex, AttributeIndex> entry : inUse.entrySet())
+      {
+        if (entry.getValue().replaceIndex(entry.getKey(), targets.get(entry.getKey())))
+        {
+          replacedIndexes.add(entry.getKey());
+        }
+        else
+        {
+          logger.warn(WARN_REBUILD_ONLINE_INDEX_REMOVED, entry.getKey().getName());
+        }
+      }
+
+      final List<MatchingRuleIndex> discardedIndexes = new ArrayList<>(attributeIndexes.keySet());
+      discardedIndexes.removeAll(inUse.keySet());
+      deleteTargets(discardedIndexes);
+      return replacedIndexes;
+    }
+    finally
+    {
+      entryContainer.unlock();
+    }
+  }
+
+  /** Deletes the trees of the replaced indexes, once they are no longer in use. */
+  private void deleteReplacedIndexes(final List<MatchingRuleIndex> replacedIndexes) throws Exception
+  {
+    storage.write(new WriteOperation()
+    {
+      @Override
+      public void run(WriteableTransaction txn) throws Exception
+      {
+        for (MatchingRuleIndex index : replacedIndexes)
+        {
+          attributeIndexes.get(index).deleteReplacedIndex(txn, index);
+        }
+      }
+    });
+  }
+
+  /** Deletes the copies rebuilt in place of the provided indexes. */
+  private void deleteTargets(final Collection<MatchingRuleIndex> indexes)
+  {
+    try
+    {
+      storage.write(new WriteOperation()
+      {
+        @Override
+        public void run(WriteableTransaction txn) throws Exception
+        {
+          for (MatchingRuleIndex index : indexes)
+          {
+            final MatchingRuleIndex target = targets.get(index);
+            if (target != null)
+            {
+              attributeIndexes.get(index).deleteRebuildTarget(txn, target);
+            }
+          }
+        }
+      });
+    }
+    catch (Exception e)
+    {
+      // Do not hide the failure of the rebuild: the next rebuild deletes the copies anyway.
+      logger.traceException(e);
+    }
+  }
+
+  private String getIndexNames()
+  {
+    final List<String> indexNames = new ArrayList<>(attributeIndexes.size());
+    for (MatchingRuleIndex index : attributeIndexes.keySet())
+    {
+      indexNames.add(AttributeIndex.getIndexId(index.getName()));
+    }
+    return Utils.joinAsString(", ", indexNames);
+  }
+}
@@ -12,13 +12,15 @@
  * information: "Portions Copyright [year] [name of copyright owner]".
  *
  * Copyright 2006-2010 Sun Microsystems, Inc.
- * Portions Copyright 2011-2016 ForgeRock AS.
+ * Portions Copyright 2011-2026 ForgeRock AS.
  */
 package org.opends.server.backends.pluggable;
 
+import static org.forgerock.util.Utils.*;
 import static org.opends.messages.BackendMessages.*;
 import static org.opends.server.util.StaticUtils.*;
 
+import java.io.File;
 import java.util.ArrayList;
 import java.util.Collection;
 import java.util.Collections;
@@ -26,6 +28,9 @@ import java.util.List;
 import java.util.Set;
 import java.util.concurrent.ConcurrentHashMap;
 import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
 import java.util.concurrent.atomic.AtomicLong;
 
 import org.forgerock.i18n.LocalizableMessage;
@@ -61,8 +66,25 @@ public class RootContainer implements ConfigurationChangeListener<PluggableBacke
 {
   private static final LocalizedLogger logger = LocalizedLogger.getLoggerForThisClass();
 
+  /** The directory of the temporary files of the sorts, relative to the server instance. */
+  private static final String SORT_TMP_DIR = "sort-tmp";
+
   /** The tree storage. */
   private final Storage storage;
+  /** Groups the concurrent entry updates in shared transactions. */
+  private final GroupCommitWriter groupCommitWriter;
+  /** Sorts the search results which cannot be sorted by a VLV index. */
+  private final EntryIDSorter entryIDSorter;
+  /** Reads the indexes of search filter components concurrently, null when disabled or not supported. */
+  private volatile ExecutorService indexFilterExecutor;
+  private int indexFilterParallelism = 1;
+  /** Decodes the entries fetched ahead by indexed searches, null when disabled. */
+  private volatile ExecutorService entryDecodingExecutor;
+  private int entryDecodingParallelism = 1;
+  /** Gathers the statistics of the attribute indexes in the background. */
+  private final ExecutorService indexStatisticsExecutor;
+  /** Set when this root container is closed, so that the index scans in progress stop. */
+  private volatile boolean indexStatisticsStopped;
 
   /** The ID of the backend to which this entry root container belongs. */
   private final String backendId;
@@ -99,6 +121,13 @@ public class RootContainer implements ConfigurationChangeListener<PluggableBacke
     this.serverContext = serverContext;
     this.storage = storage;
     this.config = config;
+    this.groupCommitWriter = new GroupCommitWriter(storage, getGroupCommitMaxOperations(config));
+    this.entryIDSorter =
+        new EntryIDSorter(new File(getFileForPath(SORT_TMP_DIR), backendID), config.getSortMemorySize());
+    setIndexFilterParallelism(config.getIndexFilterParallelism());
+    setEntryDecodingParallelism(config.getEntryDecodingParallelism());
+    this.indexStatisticsExecutor =
+        Executors.newSingleThreadExecutor(newThreadFactory(null, backendID + " index statistics %d", true));
 
     getMonitorProvider().enableFilterUseStats(config.isIndexFilterAnalyzerEnabled());
     getMonitorProvider().setMaxEntries(config.getIndexFilterAnalyzerMaxFilters());
@@ -116,6 +145,117 @@ public class RootContainer implements ConfigurationChangeListener<PluggableBacke
     return storage;
   }
 
+  /**
+   * Returns the writer to use for entry updates, which commits concurrent updates together when group commit is
+   * enabled.
+   *
+   * @return the writer to use for entry updates
+   */
+  GroupCommitWriter getGroupCommitWriter()
+  {
+    return groupCommitWriter;
+  }
+
+  /**
+   * Returns the sorter of the search results which cannot be sorted by a VLV index.
+   *
+   * @return the sorter of the search results which cannot be sorted by a VLV index
+   */
+  EntryIDSorter getEntryIDSorter()
+  {
+    return entryIDSorter;
+  }
+
+  private static int getGroupCommitMaxOperations(PluggableBackendCfg config)
+  {
+    return config.isGroupCommitEnabled() ? config.getGroupCommitMaxOperations() : 1;
+  }
+
+  /**
+   * Returns the executor to use for reading the indexes of search filter components concurrently.
+   *
+   * @return the executor to use for reading the indexes of search filter components concurrently, or {@code null} if
+   *         the search filters must be evaluated sequentially
+   */
+  ExecutorService getIndexFilterExecutor()
+  {
+    return indexFilterExecutor;
+  }
+
+  /**
+   * Returns the executor to use for decoding the entries fetched ahead by indexed searches.
+   *
+   * @return the executor to use for decoding the entries fetched ahead by indexed searches, or {@code null} if the
+   *         entries must be fetched one at a time by the search thread
+   */
+  ExecutorService getEntryDecodingExecutor()
+  {
+    return entryDecodingExecutor;
+  }
+
+  /**
+   * Returns the executor to use for gathering the statistics of the attribute indexes.
+   *
+   * @return the executor to use for gathering the statistics of the attribute indexes
+   */
+  ExecutorService getIndexStatisticsExecutor()
+  {
+    return indexStatisticsExecutor;
+  }
+
+  /**
+   * Indicates whether gathering the statistics of the attribute indexes must stop because this root container
+   * is being closed.
+   *
+   * @return {@code true} if gathering the statistics of the attribute indexes must stop
+   */
+  boolean isIndexStatisticsStopped()
+  {
+    return indexStatisticsStopped;
+  }
+
+  private synchronized void setIndexFilterParallelism(int parallelism)
+  {
+    if (parallelism == indexFilterParallelism)
+    {
+      return;
+    }
+    // The components are evaluated concurrently in the transaction of the search.
+    final boolean isParallel = parallelism > 1 && storage.supportsSharedReadTransactions();
+    if (parallelism > 1 && !isParallel)
+    {
+      logger.warn(WARN_INDEX_FILTER_PARALLELISM_NOT_SUPPORTED, backendId);
+    }
+    final ExecutorService oldExecutor = indexFilterExecutor;
+    indexFilterExecutor = isParallel
+        ? Executors.newFixedThreadPool(parallelism, newThreadFactory(null, backendId + " index filter %d", true))
+        : null;
+    indexFilterParallelism = parallelism;
+    if (oldExecutor != null)
+    {
+      // Searches still using it fall back to sequential evaluation.
+      oldExecutor.shutdown();
+    }
+  }
+
+  private synchronized void setEntryDecodingParallelism(int parallelism)
+  {
+    if (parallelism == entryDecodingParallelism)
+    {
+      return;
+    }
+    final ExecutorService oldExecutor = entryDecodingExecutor;
+    entryDecodingExecutor = parallelism > 1
+        ? Executors.newFixedThreadPool(parallelism, newThreadFactory(null, backendId + " entry decoding %d", true))
+        : null;
+    entryDecodingParallelism = parallelism;
+    if (oldExecutor != null)
+    {
+      // Searches still using it decode their remaining entries themselves.
+      oldExecutor.shutdown();
+    }
+  }
+
   /**
    * Opens the root container.
    *
@@ -319,6 +459,7 @@ public class RootContainer implements ConfigurationChangeListener<PluggableBacke
    */
   void close() throws StorageRuntimeException
   {
+    stopIndexStatistics();
     for (DN baseDN : entryContainers.keySet())
     {
       EntryContainer ec = unregisterEntryContainer(baseDN);
@@ -333,12 +474,36 @@ public class RootContainer implements ConfigurationChangeListener<PluggableBacke
       }
     }
     config.removePluggableChangeListener(this);
+    setIndexFilterParallelism(1);
+    setEntryDecodingParallelism(1);
     if (storage != null)
     {
       storage.close();
     }
   }
 
+  /**
+   * Stops gathering the statistics of the attribute indexes, and waits for the index scan in progress, if any,
+   * so that it does not use the indexes or the storage while they are being closed.
+   */
+  private void stopIndexStatistics()
+  {
+    indexStatisticsStopped = true;
+    indexStatisticsExecutor.shutdown();
+    try
+    {
+      if (!indexStatisticsExecutor.awaitTermination(30, TimeUnit.SECONDS))
+      {
+        logger.trace("Timed out waiting for the index statistics of backend %s to stop", backendId);
+      }
+    }
+    catch (InterruptedException e)
+    {
+      logger.traceException(e);
+      Thread.currentThread().interrupt();
+    }
+  }
+
   /**
    * Return all the entry containers in this root container.
    *
@@ -452,6 +617,10 @@ public class RootContainer implements ConfigurationChangeListener<PluggableBacke
     config = configuration;
     getMonitorProvider().enableFilterUseStats(config.isIndexFilterAnalyzerEnabled());
     getMonitorProvider().setMaxEntries(config.getIndexFilterAnalyzerMaxFilters());
+    groupCommitWriter.setMaxOperations(getGroupCommitMaxOperations(config));
+    entryIDSorter.setMemorySize(config.getSortMemorySize());
+    setIndexFilterParallelism(config.getIndexFilterParallelism());
+    setEntryDecodingParallelism(config.getEntryDecodingParallelism());
 
     return new ConfigChangeResult();
   }
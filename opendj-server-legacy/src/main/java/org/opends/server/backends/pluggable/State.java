@@ -40,11 +40,12 @@ import org.opends.server.util.StaticUtils;
 class State extends AbstractTree
 {
   /**
-   * Use COMPACTED serialization for new indexes.
+   * Use COMPACTED and BITMAP serialization for new indexes.
    * @see {@link EntryIDSet.EntryIDSetCodecV2}
+   * @see {@link EntryIDSet.EntryIDSetCodecV4}
    */
   private static final Collection<IndexFlag> DEFAULT_FLAGS = Collections.unmodifiableCollection(Arrays
-      .asList(IndexFlag.COMPACTED));
+      .asList(IndexFlag.COMPACTED, IndexFlag.BITMAP));
 
   /**
    * Bit-field containing possible flags that an index can have
@@ -55,7 +56,16 @@ class State extends AbstractTree
     TRUSTED(0x01),
 
     /** Use compact encoding for indexes' ID storage. */
-    COMPACTED(0x02);
+    COMPACTED(0x02),
+
+    /** Use compressed bitmaps for storing the IDs of large index keys. */
+    BITMAP(0x04),
+
+    /**
+     * The content of the index is stored in its shadow tree since it was last rebuilt online.
+     * Only set on the state of the index's primary tree.
+     */
+    SHADOW(0x08);
 
     static final EnumSet<IndexFlag> ALL_FLAGS = EnumSet.allOf(IndexFlag.class);
 
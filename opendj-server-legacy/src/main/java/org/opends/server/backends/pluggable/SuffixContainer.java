@@ -55,6 +55,10 @@ public interface SuffixContainer extends Closeable
    * does the index needs to be rebuilt ?
    */
   String STATE_INDEX_NAME = "state";
+  /** The name of the index associating dictionary ids to the dictionaries used to compress entries. */
+  String COMPRESSION_DICTIONARIES_NAME = "compressiondictionaries";
+  /** The name of the index associating attribute indexes with statistics about their keys. */
+  String INDEX_STATISTICS_NAME = "indexstatistics";
   /** The attribute used to return a search index debug string to the client. */
   String ATTR_DEBUG_SEARCH_INDEX = "debugsearchindex";
 
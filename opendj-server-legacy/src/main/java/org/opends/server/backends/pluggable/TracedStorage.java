@@ -11,7 +11,7 @@
  * Header, with the fields enclosed by brackets [] replaced by your own identifying
  * information: "Portions Copyright [year] [name of copyright owner]".
  *
- * Copyright 2015 ForgeRock AS.
+ * Copyright 2015-2026 ForgeRock AS.
  */
 package org.opends.server.backends.pluggable;
 
@@ -519,6 +519,12 @@ final class TracedStorage implements Storage
     return storage.supportsBackupAndRestore();
   }
 
+  @Override
+  public boolean supportsSharedReadTransactions()
+  {
+    return storage.supportsSharedReadTransactions();
+  }
+
   @Override
   public void write(final WriteOperation writeOperation) throws Exception
   {
@@ -11,7 +11,7 @@
  * Header, with the fields enclosed by brackets [] replaced by your own identifying
  * information: "Portions Copyright [year] [name of copyright owner]".
  *
- * Copyright 2014-2015 ForgeRock AS.
+ * Copyright 2014-2026 ForgeRock AS.
  */
 package org.opends.server.backends.pluggable.spi;
 
@@ -101,6 +101,14 @@ public interface Storage extends Closeable
    */
   boolean supportsBackupAndRestore();
 
+  /**
+   * Returns {@code true} if the transaction passed to a {@link ReadOperation} can be read by several threads
+   * concurrently while the operation runs.
+   *
+   * @return {@code true} if the read transactions of this storage can be shared between threads.
+   */
+  boolean supportsSharedReadTransactions();
+
   /**
    * Creates a backup for this storage.
    *
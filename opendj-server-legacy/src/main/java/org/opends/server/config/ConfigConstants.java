@@ -4329,6 +4329,13 @@ public final class ConfigConstants
   public static final String ATTR_REBUILD_TMP_DIRECTORY =
        NAME_PREFIX_TASK + "rebuild-tmp-directory";
 
+  /**
+   * The name of the attribute in an rebuild task definition that specifies
+   * whether the indexes are rebuilt while the backend stays online.
+   */
+  public static final String ATTR_REBUILD_ONLINE =
+       NAME_PREFIX_TASK + "rebuild-online";
+
   /**
    * Used to specify that the rebuild all boolean should be set.
    */
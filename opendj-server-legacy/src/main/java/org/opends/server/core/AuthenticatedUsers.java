@@ -12,7 +12,7 @@
  * information: "Portions Copyright [year] [name of copyright owner]".
  *
  * Copyright 2008-2010 Sun Microsystems, Inc.
- * Portions Copyright 2011-2016 ForgeRock AS.
+ * Portions Copyright 2011-2026 ForgeRock AS.
  */
 package org.opends.server.core;
 
@@ -47,7 +47,8 @@ import static org.opends.server.api.plugin.PluginType.*;
  * <BR><BR>
  * This class also provides a mechanism for detecting changes to authenticated
  * user entries and notifying the corresponding client connections so that they
- * can update their cached versions.
+ * can update their cached versions. The same changes invalidate the passwords
+ * recorded in the verified credentials cache.
  */
 public class AuthenticatedUsers extends InternalDirectoryServerPlugin
 {
@@ -169,10 +170,24 @@ public class AuthenticatedUsers extends InternalDirectoryServerPlugin
     }
   }
 
+  /** Removes the password recently verified for the provided user, if any. */
+  private static void invalidateVerifiedCredentials(DN userDN)
+  {
+    final CoreConfigManager config = DirectoryServer.getCoreConfigManager();
+    if (config != null)
+    {
+      config.getVerifiedCredentialsCache().invalidate(userDN);
+    }
+  }
+
   @Override
   public PostResponse doPostResponse(PostResponseDeleteOperation op)
   {
     final DN entryDN = op.getEntryDN();
+    if (op.getResultCode() == ResultCode.SUCCESS)
+    {
+      invalidateVerifiedCredentials(entryDN);
+    }
     if (op.getResultCode() != ResultCode.SUCCESS || operationDoesNotTargetAuthenticatedUser(entryDN))
     {
       return PostResponse.continueOperationProcessing();
@@ -219,6 +234,10 @@ public class AuthenticatedUsers extends InternalDirectoryServerPlugin
   public PostResponse doPostResponse(PostResponseModifyOperation op)
   {
     final Entry oldEntry = op.getCurrentEntry();
+    if (op.getResultCode() == ResultCode.SUCCESS && oldEntry != null)
+    {
+      invalidateVerifiedCredentials(oldEntry.getName());
+    }
     if (op.getResultCode() != ResultCode.SUCCESS || oldEntry == null
             ||  operationDoesNotTargetAuthenticatedUser(oldEntry.getName()))
     {
@@ -258,6 +277,10 @@ public class AuthenticatedUsers extends InternalDirectoryServerPlugin
   {
     final Entry oldEntry = op.getOriginalEntry();
     final Entry newEntry = op.getUpdatedEntry();
+    if (op.getResultCode() == ResultCode.SUCCESS && oldEntry != null)
+    {
+      invalidateVerifiedCredentials(oldEntry.getName());
+    }
     if (op.getResultCode() != ResultCode.SUCCESS || oldEntry == null || newEntry == null
             || operationDoesNotTargetAuthenticatedUser(oldEntry.getName()))
     {
@@ -12,7 +12,7 @@
  * information: "Portions Copyright [year] [name of copyright owner]".
  *
  * Copyright 2006-2010 Sun Microsystems, Inc.
- * Portions Copyright 2011-2016 ForgeRock AS.
+ * Portions Copyright 2011-2026 ForgeRock AS.
  */
 package org.opends.server.core;
 
@@ -27,6 +27,7 @@ import org.forgerock.opendj.config.server.ConfigurationChangeListener;
 import org.forgerock.opendj.server.config.meta.GlobalCfgDefn;
 import org.forgerock.opendj.server.config.meta.GlobalCfgDefn.DisabledPrivilege;
 import org.forgerock.opendj.server.config.meta.GlobalCfgDefn.InvalidAttributeSyntaxBehavior;
+import org.forgerock.opendj.server.config.meta.GlobalCfgDefn.PsearchSlowConsumerPolicy;
 import org.forgerock.opendj.server.config.meta.GlobalCfgDefn.SingleStructuralObjectclassBehavior;
 import org.forgerock.opendj.server.config.server.GlobalCfg;
 import org.opends.server.api.AuthenticationPolicy;
@@ -55,6 +56,8 @@ public class CoreConfigManager implements ConfigurationChangeListener<GlobalCfg>
 
   /** The core attributes. */
   private volatile CoreAttributes coreAttributes = new CoreAttributes();
+  /** The passwords recently verified by simple binds. */
+  private final VerifiedCredentialsCache verifiedCredentialsCache = new VerifiedCredentialsCache();
 
   /**
    * Creates a new instance of this core config manager.
@@ -136,6 +139,10 @@ public class CoreConfigManager implements ConfigurationChangeListener<GlobalCfg>
     private long maxAllowedConnections;
     /** The maximum number of concurrent persistent searches. */
     private int maxPSearches;
+    /** The maximum number of changes waiting to be sent to the persistent searches of a client connection. */
+    private int psearchNotificationQueueSize;
+    /** The policy applied to client connections which do not read persistent search changes fast enough. */
+    private PsearchSlowConsumerPolicy psearchSlowConsumerPolicy = PsearchSlowConsumerPolicy.BLOCK;
     /** The maximum size that internal buffers will be allowed to grow to until they are trimmed. */
     private int maxInternalBufferSize = DEFAULT_MAX_INTERNAL_BUFFER_SIZE;
   }
@@ -179,9 +186,16 @@ public class CoreConfigManager implements ConfigurationChangeListener<GlobalCfg>
     applyGlobalConfiguration(globalConfig, coreAttrs);
     applySubordinateDNsChange(globalConfig, coreAttrs);
     coreAttributes = coreAttrs;
+    applyVerifiedCredentialsCacheConfiguration(globalConfig);
     DirectoryServer.resetDefaultPasswordPolicy();
   }
 
+  private void applyVerifiedCredentialsCacheConfiguration(final GlobalCfg globalConfig)
+  {
+    verifiedCredentialsCache.setConfiguration(
+        globalConfig.getVerifiedCredentialsCacheSize(), globalConfig.getVerifiedCredentialsCacheExpiration());
+  }
+
   /**
    * Applies the settings in the provided configuration to the Directory Server.
    *
@@ -218,6 +232,8 @@ public class CoreConfigManager implements ConfigurationChangeListener<GlobalCfg>
     long maxAllowedConnections = globalConfig.getMaxAllowedClientConnections();
     core.maxAllowedConnections = (maxAllowedConnections > 0) ? maxAllowedConnections : -1;
     core.maxPSearches = globalConfig.getMaxPsearches();
+    core.psearchNotificationQueueSize = globalConfig.getPsearchNotificationQueueSize();
+    core.psearchSlowConsumerPolicy = globalConfig.getPsearchSlowConsumerPolicy();
     core.maxInternalBufferSize = (int) globalConfig.getMaxInternalBufferSize();
 
     // For tools, common audit may not be available
@@ -517,6 +533,7 @@ public class CoreConfigManager implements ConfigurationChangeListener<GlobalCfg>
     if (changeResult.getResultCode() == ResultCode.SUCCESS)
     {
       coreAttributes = coreAttrs;
+      applyVerifiedCredentialsCacheConfiguration(configuration);
       DirectoryServer.resetDefaultPasswordPolicy();
     }
     return changeResult;
@@ -624,6 +641,40 @@ public class CoreConfigManager implements ConfigurationChangeListener<GlobalCfg>
     return coreAttributes.maxPSearches;
   }
 
+  /**
+   * Retrieves the maximum number of changes which may wait to be sent to the persistent searches
+   * of a client connection.
+   *
+   * @return the maximum number of changes waiting for a client connection, or 0 if the changes
+   *         must be sent synchronously by the thread which performed the update
+   */
+  public int getPSearchNotificationQueueSize()
+  {
+    return coreAttributes.psearchNotificationQueueSize;
+  }
+
+  /**
+   * Retrieves the policy applied to client connections which do not read the changes sent to
+   * their persistent searches fast enough.
+   *
+   * @return the slow consumer policy of persistent searches
+   */
+  public PsearchSlowConsumerPolicy getPSearchSlowConsumerPolicy()
+  {
+    return coreAttributes.psearchSlowConsumerPolicy;
+  }
+
+  /**
+   * Retrieves the cache of the passwords recently verified by simple binds,
+   * configured with the current global configuration.
+   *
+   * @return the verified credentials cache
+   */
+  public VerifiedCredentialsCache getVerifiedCredentialsCache()
+  {
+    return verifiedCredentialsCache;
+  }
+
   /**
    * Retrieves the DN of the configuration entry for the identity mapper that
    * should be used in conjunction with proxied authorization V2 controls.
@@ -130,6 +130,7 @@ import org.opends.server.loggers.RotationPolicy;
 import org.opends.server.loggers.TextErrorLogPublisher;
 import org.opends.server.loggers.TextWriter;
 import org.opends.server.monitors.ConnectionHandlerMonitor;
+import org.opends.server.monitors.LockManagerMonitor;
 import org.opends.server.protocols.internal.InternalClientConnection;
 import org.opends.server.protocols.internal.InternalConnectionHandler;
 import org.opends.server.schema.SchemaHandler;
@@ -532,7 +533,7 @@ public final class DirectoryServer
   private final DiskSpaceMonitor diskSpaceMonitor;
 
   /** The lock manager which will be used for coordinating access to LDAP entries. */
-  private final LockManager lockManager = new LockManager();
+  private final LockManager lockManager = newLockManager();
 
   /** The default timeout used to start the server in detach mode. */
   public static final int DEFAULT_TIMEOUT = 200;
@@ -1485,6 +1486,7 @@ public final class DirectoryServer
 
       monitorConfigManager = new MonitorConfigManager(serverContext);
       monitorConfigManager.initializeMonitorProviders();
+      registerLockManagerMonitor();
 
       pluginConfigManager.initializeUserPlugins(null);
 
@@ -5277,4 +5279,26 @@ public final class DirectoryServer
   {
     return directoryServer.lockManager;
   }
+
+  /**
+   * Creates the lock manager, using a striped lock table if a number of stripes
+   * is provided with the {@code org.opends.server.LockManagerStripes} system property.
+   */
+  private static LockManager newLockManager()
+  {
+    final int numberOfStripes = Integer.getInteger(PROPERTY_LOCK_MANAGER_STRIPES, 0);
+    if (numberOfStripes > 0)
+    {
+      return LockManager.newStripedLockManager(numberOfStripes);
+    }
+    return new LockManager();
+  }
+
+  /** Registers the monitor publishing the lock wait histogram of the lock manager. */
+  private void registerLockManagerMonitor() throws ConfigException, InitializationException
+  {
+    final LockManagerMonitor monitor = new LockManagerMonitor(lockManager);
+    monitor.initializeMonitorProvider(null);
+    registerMonitorProvider(monitor);
+  }
 }
@@ -12,7 +12,7 @@
  * information: "Portions Copyright [year] [name of copyright owner]".
  *
  * Copyright 2007-2010 Sun Microsystems, Inc.
- * Portions Copyright 2011-2016 ForgeRock AS.
+ * Portions Copyright 2011-2026 ForgeRock AS.
  */
 package org.opends.server.core;
 
@@ -23,10 +23,16 @@ import static org.opends.server.protocols.internal.Requests.*;
 import static org.opends.server.util.ServerConstants.*;
 import static org.opends.server.util.StaticUtils.*;
 
+import java.util.ArrayDeque;
 import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.Deque;
 import java.util.EnumSet;
+import java.util.HashMap;
 import java.util.HashSet;
 import java.util.Iterator;
+import java.util.LinkedHashSet;
 import java.util.List;
 import java.util.Map;
 import java.util.Set;
@@ -39,8 +45,11 @@ import org.forgerock.i18n.LocalizableMessage;
 import org.forgerock.i18n.slf4j.LocalizedLogger;
 import org.forgerock.opendj.config.server.ConfigChangeResult;
 import org.forgerock.opendj.config.server.ConfigException;
+import org.forgerock.opendj.ldap.ByteString;
 import org.forgerock.opendj.ldap.ResultCode;
 import org.forgerock.opendj.ldap.SearchScope;
+import org.forgerock.opendj.ldap.schema.AttributeType;
+import org.forgerock.opendj.ldap.schema.CoreSchema;
 import org.forgerock.util.Utils;
 import org.forgerock.opendj.config.ClassPropertyDefinition;
 import org.forgerock.opendj.config.server.ConfigurationAddListener;
@@ -108,6 +117,18 @@ public class GroupManager extends InternalDirectoryServerPlugin
   /** A mapping between the DNs of all group entries and the corresponding group instances. */
   private DITCacheMap<Group<?>> groupInstances;
 
+  /**
+   * The reverse membership index: a mapping between the normalized DNs explicitly listed as members
+   * of group instances, including nested groups, and the group instances listing them.
+   */
+  private final Map<ByteString, List<Group<?>>> groupsByMember = new HashMap<>();
+
+  /** The keys under which each group instance is listed in the reverse membership index. */
+  private final Map<Group<?>, Set<ByteString>> memberKeysByGroup = new HashMap<>();
+
+  /** The group instances whose members cannot be enumerated, such as dynamic groups. */
+  private final Set<Group<?>> unindexedGroups = new HashSet<>();
+
   /** Lock to protect internal data structures. */
   private final ReadWriteLock lock;
 
@@ -510,6 +531,215 @@ public class GroupManager extends InternalDirectoryServerPlugin
     }
   }
 
+  /**
+   * Retrieves the group instances which the provided user is a member
+   * of, either directly or through nested groups.  The cost of this
+   * determination is proportional to the number of groups the user
+   * belongs to, rather than to the number of groups defined in the
+   * server.  Note that this is a point-in-time determination and the
+   * caller must not cache the result.
+   *
+   * @param  userEntry  The entry of the user.
+   *
+   * @return  The group instances which the provided user is a member
+   *          of.
+   */
+  public Set<Group<?>> getGroupInstancesForMember(Entry userEntry)
+  {
+    return getGroupInstancesForMember(userEntry.getName(), userEntry);
+  }
+
+  /**
+   * Retrieves the group instances which the user with the specified DN
+   * is a member of, either directly or through nested groups.  The cost
+   * of this determination is proportional to the number of groups the
+   * user belongs to, rather than to the number of groups defined in the
+   * server.  Note that this is a point-in-time determination and the
+   * caller must not cache the result.
+   *
+   * @param  userDN  The DN of the user, which may be {@code null}.
+   *
+   * @return  The group instances which the specified user is a member
+   *          of.
+   */
+  public Set<Group<?>> getGroupInstancesForMember(DN userDN)
+  {
+    if (userDN == null)
+    {
+      return Collections.emptySet();
+    }
+    return getGroupInstancesForMember(userDN, null);
+  }
+
+  private Set<Group<?>> getGroupInstancesForMember(DN userDN, Entry userEntry)
+  {
+    final Set<Group<?>> groups = new LinkedHashSet<>();
+    final Deque<Group<?>> groupsToExpand = new ArrayDeque<>();
+
+    // Groups which cannot be indexed must be evaluated, outside of the lock as it may involve reading the user entry
+    for (Group<?> group : getUnindexedGroups())
+    {
+      try
+      {
+        if (userEntry != null ? group.isMember(userEntry) : group.isMember(userDN))
+        {
+          groups.add(group);
+          groupsToExpand.add(group);
+        }
+      }
+      catch (DirectoryException e)
+      {
+        logger.traceException(e);
+      }
+    }
+
+    lock.readLock().lock();
+    try
+    {
+      addGroupsListingMember(userDN, groups, groupsToExpand);
+      // Members of a group are members of the groups nesting it
+      while (!groupsToExpand.isEmpty())
+      {
+        addGroupsListingMember(groupsToExpand.poll().getGroupDN(), groups, groupsToExpand);
+      }
+      return groups;
+    }
+    finally
+    {
+      lock.readLock().unlock();
+    }
+  }
+
+  /**
+   * Indicates whether the provided user is a member of the provided
+   * group, either directly or through nested groups.  The membership
+   * of static groups is determined from the reverse membership index,
+   * only evaluating the dynamic groups nested in them, whereas groups
+   * which do not support nesting, such as dynamic and virtual static
+   * groups, determine it themselves.
+   *
+   * @param  group      The group instance.
+   * @param  userEntry  The entry of the user.
+   *
+   * @return  {@code true} if the user is a member of the group, or
+   *          {@code false} if not.
+   *
+   * @throws  DirectoryException  If a problem occurs while attempting
+   *                              to make the determination.
+   */
+  public boolean isMember(Group<?> group, Entry userEntry) throws DirectoryException
+  {
+    return isMember(group, userEntry.getName(), userEntry);
+  }
+
+  /**
+   * Indicates whether the user with the specified DN is a member of the
+   * provided group, either directly or through nested groups.  The
+   * membership of static groups is determined from the reverse
+   * membership index, only evaluating the dynamic groups nested in
+   * them, whereas groups which do not support nesting, such as dynamic
+   * and virtual static groups, determine it themselves.
+   *
+   * @param  group   The group instance.
+   * @param  userDN  The DN of the user, which may be {@code null}.
+   *
+   * @return  {@code true} if the user is a member of the group, or
+   *          {@code false} if not.
+   *
+   * @throws  DirectoryException  If a problem occurs while attempting
+   *                              to make the determination.
+   */
+  public boolean isMember(Group<?> group, DN userDN) throws DirectoryException
+  {
+    return userDN != null && isMember(group, userDN, null);
+  }
+
+  private boolean isMember(Group<?> group, DN userDN, Entry userEntry) throws DirectoryException
+  {
+    final List<Group<?>> groupsToEvaluate = new ArrayList<>();
+    lock.readLock().lock();
+    try
+    {
+      if (!group.supportsNestedGroups() || unindexedGroups.contains(group))
+      {
+        groupsToEvaluate.add(group);
+      }
+      else if (isListedMember(userDN, group))
+      {
+        return true;
+      }
+      else
+      {
+        // The user may still be a member of the dynamic groups nested in the group
+        for (Group<?> unindexedGroup : unindexedGroups)
+        {
+          if (isListedMember(unindexedGroup.getGroupDN(), group))
+          {
+            groupsToEvaluate.add(unindexedGroup);
+          }
+        }
+      }
+    }
+    finally
+    {
+      lock.readLock().unlock();
+    }
+
+    // Evaluated outside of the lock as it may involve reading the user entry
+    for (Group<?> groupToEvaluate : groupsToEvaluate)
+    {
+      if (userEntry != null ? groupToEvaluate.isMember(userEntry) : groupToEvaluate.isMember(userDN))
+      {
+        return true;
+      }
+    }
+    return false;
+  }
+
+  /**
+   * Indicates whether the provided DN is listed as a member of the provided group, either directly
+   * or through the groups nested in it. Must be called with the read lock held.
+   */
+  private boolean isListedMember(DN memberDN, Group<?> group)
+  {
+    final Set<Group<?>> groups = new HashSet<>();
+    final Deque<Group<?>> groupsToExpand = new ArrayDeque<>();
+    addGroupsListingMember(memberDN, groups, groupsToExpand);
+    while (!groups.contains(group) && !groupsToExpand.isEmpty())
+    {
+      addGroupsListingMember(groupsToExpand.poll().getGroupDN(), groups, groupsToExpand);
+    }
+    return groups.contains(group);
+  }
+
+  private List<Group<?>> getUnindexedGroups()
+  {
+    lock.readLock().lock();
+    try
+    {
+      return unindexedGroups.isEmpty() ? Collections.<Group<?>> emptyList() : new ArrayList<>(unindexedGroups);
+    }
+    finally
+    {
+      lock.readLock().unlock();
+    }
+  }
+
+  private void addGroupsListingMember(DN memberDN, Set<Group<?>> groups, Deque<Group<?>> groupsToExpand)
+  {
+    final List<Group<?>> groupsListingMember = groupsByMember.get(memberDN.toNormalizedByteString());
+    if (groupsListingMember != null)
+    {
+      for (Group<?> group : groupsListingMember)
+      {
+        if (groups.add(group))
+        {
+          groupsToExpand.add(group);
+        }
+      }
+    }
+  }
+
   /**
    * {@inheritDoc}  In this case, the server will search the backend to find
    * all group instances that it may contain and register them with this group
@@ -572,6 +802,7 @@ public class GroupManager extends InternalDirectoryServerPlugin
           continue;
         }
 
+        List<Group<?>> replacedGroups = new ArrayList<>();
         lock.writeLock().lock();
         try
         {
@@ -580,8 +811,11 @@ public class GroupManager extends InternalDirectoryServerPlugin
             try
             {
               Group<?> groupInstance = groupImplementation.newInstance(serverContext, entry);
-              groupInstances.put(entry.getName(), groupInstance);
-              refreshToken++;
+              Group<?> replacedGroup = registerGroup(entry.getName(), groupInstance, getMemberKeys(groupInstance));
+              if (replacedGroup != null)
+              {
+                replacedGroups.add(replacedGroup);
+              }
             }
             catch (DirectoryException e)
             {
@@ -594,6 +828,7 @@ public class GroupManager extends InternalDirectoryServerPlugin
         {
           lock.writeLock().unlock();
         }
+        unindexGroups(replacedGroups);
       }
     }
   }
@@ -605,6 +840,7 @@ public class GroupManager extends InternalDirectoryServerPlugin
   @Override
   public void performBackendPostFinalizationProcessing(LocalBackend<?> backend)
   {
+    List<Group<?>> removedGroups = new ArrayList<>();
     lock.writeLock().lock();
     try
     {
@@ -615,6 +851,7 @@ public class GroupManager extends InternalDirectoryServerPlugin
         DN groupEntryDN = mapEntry.getKey();
         if (backend.handlesEntry(groupEntryDN))
         {
+          removedGroups.add(mapEntry.getValue());
           iterator.remove();
         }
       }
@@ -623,6 +860,7 @@ public class GroupManager extends InternalDirectoryServerPlugin
     {
       lock.writeLock().unlock();
     }
+    unindexGroups(removedGroups);
   }
 
   @Override
@@ -677,10 +915,11 @@ public class GroupManager extends InternalDirectoryServerPlugin
       return;
     }
 
+    List<Group<?>> removedGroups = new ArrayList<>();
     lock.writeLock().lock();
     try
     {
-      if (groupInstances.removeSubtree(entry.getName(), null))
+      if (groupInstances.removeSubtree(entry.getName(), removedGroups))
       {
         refreshToken++;
       }
@@ -689,6 +928,7 @@ public class GroupManager extends InternalDirectoryServerPlugin
     {
       lock.writeLock().unlock();
     }
+    unindexGroups(removedGroups);
   }
 
   /**
@@ -723,6 +963,11 @@ public class GroupManager extends InternalDirectoryServerPlugin
   {
     if (hasGroupMembershipUpdateControl(modifyOperation))
     {
+      // The group instance is updating its own members, only the reverse membership index needs updating
+      if (updatesMemberAttribute(modifications))
+      {
+        updateMembershipIndex(oldEntry.getName());
+      }
       return;
     }
 
@@ -741,6 +986,7 @@ public class GroupManager extends InternalDirectoryServerPlugin
       lock.readLock().unlock();
     }
 
+    Group<?> removedGroup = null;
     lock.writeLock().lock();
     try
     {
@@ -751,13 +997,17 @@ public class GroupManager extends InternalDirectoryServerPlugin
             || !group.mayAlterMemberList()
             || updatesObjectClass(modifications))
         {
-          groupInstances.remove(oldEntry.getName());
+          removedGroup = groupInstances.remove(oldEntry.getName());
           // This updates the refreshToken
           createAndRegisterGroup(newEntry);
         }
         else
         {
           group.updateMembers(modifications);
+          if (updatesMemberAttribute(modifications))
+          {
+            updateMembershipIndex(group);
+          }
         }
       }
     }
@@ -769,6 +1019,82 @@ public class GroupManager extends InternalDirectoryServerPlugin
     {
       lock.writeLock().unlock();
     }
+    if (removedGroup != null)
+    {
+      unindexGroups(Collections.<Group<?>> singletonList(removedGroup));
+    }
+  }
+
+  /**
+   * Updates the reverse membership index of the group defined in the entry with the provided DN,
+   * if any, after it has updated its own members.
+   */
+  private void updateMembershipIndex(DN groupDN)
+  {
+    lock.writeLock().lock();
+    try
+    {
+      Group<?> group = groupInstances.get(groupDN);
+      if (group != null && group.mayAlterMemberList())
+      {
+        updateMembershipIndex(group);
+      }
+    }
+    finally
+    {
+      lock.writeLock().unlock();
+    }
+  }
+
+  /**
+   * Updates the reverse membership index of the provided group after its members have been
+   * updated, by comparing the keys of its current members with the keys under which it is listed.
+   * A member DN is therefore only removed from the index once the group no longer lists it,
+   * whatever the member attribute values which have been removed. Must be called with the write
+   * lock held.
+   */
+  private void updateMembershipIndex(Group<?> group)
+  {
+    Set<ByteString> oldMemberKeys = memberKeysByGroup.get(group);
+    if (oldMemberKeys == null)
+    {
+      // Not indexed, such as a group whose members cannot be enumerated
+      return;
+    }
+    Set<ByteString> newMemberKeys = getMemberKeys(group);
+    if (newMemberKeys == null)
+    {
+      newMemberKeys = Collections.emptySet();
+    }
+    for (ByteString memberKey : oldMemberKeys)
+    {
+      if (!newMemberKeys.contains(memberKey))
+      {
+        removeMembership(memberKey, group);
+      }
+    }
+    for (ByteString memberKey : newMemberKeys)
+    {
+      if (!oldMemberKeys.contains(memberKey))
+      {
+        addMembership(memberKey, group);
+      }
+    }
+    memberKeysByGroup.put(group, newMemberKeys);
+  }
+
+  private static boolean updatesMemberAttribute(List<Modification> modifications)
+  {
+    for (Modification mod : modifications)
+    {
+      AttributeType attributeType = mod.getAttribute().getAttributeDescription().getAttributeType();
+      if (attributeType.equals(CoreSchema.getMemberAttributeType())
+          || attributeType.equals(CoreSchema.getUniqueMemberAttributeType()))
+      {
+        return true;
+      }
+    }
+    return false;
   }
 
   /**
@@ -938,17 +1264,22 @@ public class GroupManager extends InternalDirectoryServerPlugin
         if (groupImplementation.isGroupDefinition(entry))
         {
           Group<?> groupInstance = groupImplementation.newInstance(serverContext, entry);
+          Set<ByteString> memberKeys = getMemberKeys(groupInstance);
 
+          Group<?> replacedGroup;
           lock.writeLock().lock();
           try
           {
-            groupInstances.put(entry.getName(), groupInstance);
-            refreshToken++;
+            replacedGroup = registerGroup(entry.getName(), groupInstance, memberKeys);
           }
           finally
           {
             lock.writeLock().unlock();
           }
+          if (replacedGroup != null)
+          {
+            unindexGroups(Collections.<Group<?>> singletonList(replacedGroup));
+          }
         }
       }
       catch (DirectoryException e)
@@ -958,6 +1289,105 @@ public class GroupManager extends InternalDirectoryServerPlugin
     }
   }
 
+  /**
+   * Registers the provided group instance and adds it to the reverse membership index.
+   * Must be called with the write lock held.
+   *
+   * @return the group instance previously registered with the same DN, which must be
+   *         removed from the reverse membership index by the caller, or {@code null}
+   */
+  private Group<?> registerGroup(DN groupDN, Group<?> groupInstance, Set<ByteString> memberKeys)
+  {
+    Group<?> replacedGroup = groupInstances.put(groupDN, groupInstance);
+    refreshToken++;
+    if (memberKeys != null)
+    {
+      memberKeysByGroup.put(groupInstance, memberKeys);
+      for (ByteString memberKey : memberKeys)
+      {
+        addMembership(memberKey, groupInstance);
+      }
+    }
+    else
+    {
+      unindexedGroups.add(groupInstance);
+    }
+    return replacedGroup;
+  }
+
+  /**
+   * Removes the provided group instances, which must already be deregistered, from the reverse
+   * membership index.
+   */
+  private void unindexGroups(Collection<Group<?>> groups)
+  {
+    if (groups.isEmpty())
+    {
+      return;
+    }
+    lock.writeLock().lock();
+    try
+    {
+      for (Group<?> group : groups)
+      {
+        Set<ByteString> memberKeys = memberKeysByGroup.remove(group);
+        if (memberKeys != null)
+        {
+          for (ByteString memberKey : memberKeys)
+          {
+            removeMembership(memberKey, group);
+          }
+        }
+        unindexedGroups.remove(group);
+      }
+    }
+    finally
+    {
+      lock.writeLock().unlock();
+    }
+  }
+
+  /**
+   * Returns the keys of the reverse membership index under which the provided group instance
+   * must be indexed, or {@code null} if its members cannot be enumerated.
+   */
+  private static Set<ByteString> getMemberKeys(Group<?> group)
+  {
+    Collection<DN> memberDNs = group.getDirectMemberDNs();
+    if (memberDNs == null)
+    {
+      return null;
+    }
+    Set<ByteString> memberKeys = new HashSet<>(memberDNs.size() * 2);
+    for (DN memberDN : memberDNs)
+    {
+      memberKeys.add(memberDN.toNormalizedByteString());
+    }
+    return memberKeys;
+  }
+
+  /** Must be called with the write lock held, the group must not be listed under the key yet. */
+  private void addMembership(ByteString memberKey, Group<?> group)
+  {
+    List<Group<?>> groups = groupsByMember.get(memberKey);
+    if (groups == null)
+    {
+      groups = new ArrayList<>(1);
+      groupsByMember.put(memberKey, groups);
+    }
+    groups.add(group);
+  }
+
+  /** Must be called with the write lock held. */
+  private void removeMembership(ByteString memberKey, Group<?> group)
+  {
+    List<Group<?>> groups = groupsByMember.get(memberKey);
+    if (groups != null && groups.remove(group) && groups.isEmpty())
+    {
+      groupsByMember.remove(memberKey);
+    }
+  }
+
   /**
    * Removes all group instances that might happen to be registered with the
    * group manager.  This method is only intended for testing purposes and
@@ -969,6 +1399,9 @@ public class GroupManager extends InternalDirectoryServerPlugin
     try
     {
       groupInstances.clear();
+      groupsByMember.clear();
+      memberKeysByGroup.clear();
+      unindexedGroups.clear();
     }
     finally
     {
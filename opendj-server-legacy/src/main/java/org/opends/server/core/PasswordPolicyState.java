@@ -12,7 +12,7 @@
  * information: "Portions Copyright [year] [name of copyright owner]".
  *
  * Copyright 2006-2010 Sun Microsystems, Inc.
- * Portions Copyright 2011-2016 ForgeRock AS.
+ * Portions Copyright 2011-2026 ForgeRock AS.
  */
 package org.opends.server.core;
 
@@ -1963,6 +1963,7 @@ public final class PasswordPolicyState extends AuthenticationPolicyState
       return false;
     }
 
+    final VerifiedCredentialsCache verifiedCredentials = getVerifiedCredentialsCache();
     for (Attribute a : attrList)
     {
       for (ByteString v : a)
@@ -1983,8 +1984,23 @@ public final class PasswordPolicyState extends AuthenticationPolicyState
             continue;
           }
 
+          if (verifiedCredentials != null && verifiedCredentials.isVerified(userEntry.getName(), password, v))
+          {
+            if (logger.isTraceEnabled())
+            {
+              logger.trace("Returning true for user %s because the provided password has recently been verified " +
+                      "against a value encoded with scheme %s", userDNString, schemeName);
+            }
+
+            return true;
+          }
+
           if (passwordMatches(password, pwComponents, scheme))
           {
+            if (verifiedCredentials != null)
+            {
+              verifiedCredentials.putVerified(userEntry.getName(), password, v);
+            }
             if (logger.isTraceEnabled())
             {
               logger.trace("Returning true for user %s because the provided password matches a value " +
@@ -2009,6 +2025,21 @@ public final class PasswordPolicyState extends AuthenticationPolicyState
     return false;
   }
 
+  /** Returns the verified credentials cache if it is enabled, {@code null} otherwise. */
+  private static VerifiedCredentialsCache getVerifiedCredentialsCache()
+  {
+    final CoreConfigManager config = DirectoryServer.getCoreConfigManager();
+    if (config != null)
+    {
+      final VerifiedCredentialsCache cache = config.getVerifiedCredentialsCache();
+      if (cache.isEnabled())
+      {
+        return cache;
+      }
+    }
+    return null;
+  }
+
   /**
    * Get the broken-down components of the given password value.
    *
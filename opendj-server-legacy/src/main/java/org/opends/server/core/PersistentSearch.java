@@ -12,7 +12,7 @@
  * information: "Portions Copyright [year] [name of copyright owner]".
  *
  * Copyright 2006-2010 Sun Microsystems, Inc.
- * Portions Copyright 2014-2016 ForgeRock AS.
+ * Portions Copyright 2014-2026 ForgeRock AS.
  */
 package org.opends.server.core;
 
@@ -119,7 +119,7 @@ public final class PersistentSearch
   private final Set<PersistentSearchChangeType> changeTypes;
 
   /** Indicates whether this persistent search has already been aborted. */
-  private boolean isCancelled;
+  private volatile boolean isCancelled;
 
   /** Indicates whether entries returned should include the entry change notification control. */
   private final boolean returnECs;
@@ -226,17 +226,82 @@ public final class PersistentSearch
    *
    * @param entry
    *          The entry that was added.
+   * @deprecated The changes made to a local backend are notified by its {@link PersistentSearchNotifier}.
    */
+  @Deprecated
   public void processAdd(Entry entry)
   {
-    if (changeTypes.contains(ADD)
-        && isInScope(entry.getName())
+    if (isInterestedIn(ADD, entry.getName(), null)
         && matchesFilter(entry))
     {
       sendEntry(entry, createControls(ADD, null));
     }
   }
 
+  /**
+   * Indicates whether this persistent search must be notified of the provided change, before
+   * its filter is evaluated.
+   *
+   * @param changeType
+   *          The type of the change.
+   * @param dn
+   *          The DN of the entry after the change.
+   * @param oldDN
+   *          The DN of the entry before it was renamed, or {@code null} if the change is not
+   *          a modify DN.
+   * @return {@code true} if the change type is requested by this persistent search and the
+   *         changed entry is in its scope
+   */
+  boolean isInterestedIn(PersistentSearchChangeType changeType, DN dn, DN oldDN)
+  {
+    if (!changeTypes.contains(changeType))
+    {
+      return false;
+    }
+    switch (changeType)
+    {
+    case ADD:
+    case DELETE:
+      return isInScope(dn);
+    case MODIFY:
+      return isInScopeForModify(dn);
+    case MODIFY_DN:
+      return isInScopeForModify(oldDN) || isInScopeForModify(dn);
+    default:
+      return false;
+    }
+  }
+
+  /**
+   * Indicates whether this persistent search has been cancelled.
+   *
+   * @return {@code true} if this persistent search has been cancelled
+   */
+  boolean isCancelled()
+  {
+    return isCancelled;
+  }
+
+  /**
+   * Sends a change matching this persistent search to the client, unless this persistent
+   * search has been cancelled in the meantime.
+   *
+   * @param changeType
+   *          The type of the change.
+   * @param entry
+   *          The entry after the change.
+   * @param previousDN
+   *          The DN of the entry before it was renamed, or {@code null} if the change is not
+   *          a modify DN.
+   */
+  void sendChange(PersistentSearchChangeType changeType, Entry entry, DN previousDN)
+  {
+    if (!isCancelled)
+    {
+      sendEntry(entry, createControls(changeType, previousDN));
+    }
+  }
+
   private boolean isInScope(final DN dn)
   {
     final DN baseDN = searchOperation.getBaseDN();
@@ -281,11 +346,12 @@ public final class PersistentSearch
    *
    * @param entry
    *          The entry that was deleted.
+   * @deprecated The changes made to a local backend are notified by its {@link PersistentSearchNotifier}.
    */
+  @Deprecated
   public void processDelete(Entry entry)
   {
-    if (changeTypes.contains(DELETE)
-        && isInScope(entry.getName())
+    if (isInterestedIn(DELETE, entry.getName(), null)
         && matchesFilter(entry))
     {
       sendEntry(entry, createControls(DELETE, null));
@@ -297,7 +363,9 @@ public final class PersistentSearch
    *
    * @param entry
    *          The entry after it was modified.
+   * @deprecated The changes made to a local backend are notified by its {@link PersistentSearchNotifier}.
    */
+  @Deprecated
   public void processModify(Entry entry)
   {
     processModify(entry, entry);
@@ -310,11 +378,12 @@ public final class PersistentSearch
    *          The entry after it was modified.
    * @param oldEntry
    *          The entry before it was modified.
+   * @deprecated The changes made to a local backend are notified by its {@link PersistentSearchNotifier}.
    */
+  @Deprecated
   public void processModify(Entry entry, Entry oldEntry)
   {
-    if (changeTypes.contains(MODIFY)
-        && isInScopeForModify(oldEntry.getName())
+    if (isInterestedIn(MODIFY, oldEntry.getName(), null)
         && anyMatchesFilter(entry, oldEntry))
     {
       sendEntry(entry, createControls(MODIFY, null));
@@ -351,22 +420,18 @@ public final class PersistentSearch
    *          The entry after it was modified.
    * @param oldDN
    *          The DN of the entry before it was renamed.
+   * @deprecated The changes made to a local backend are notified by its {@link PersistentSearchNotifier}.
    */
+  @Deprecated
   public void processModifyDN(Entry entry, DN oldDN)
   {
-    if (changeTypes.contains(MODIFY_DN)
-        && isAnyInScopeForModify(entry, oldDN)
+    if (isInterestedIn(MODIFY_DN, entry.getName(), oldDN)
         && matchesFilter(entry))
     {
       sendEntry(entry, createControls(MODIFY_DN, oldDN));
     }
   }
 
-  private boolean isAnyInScopeForModify(Entry entry, DN oldDN)
-  {
-    return isInScopeForModify(oldDN) || isInScopeForModify(entry.getName());
-  }
-
   /**
    * The entry is one that should be sent to the client. See if we also need to
    * construct an entry change notification control.
@@ -0,0 +1,478 @@
+/*
+ * The contents of this file are subject to the terms of the Common Development and
+ * Distribution License (the License). You may not use this file except in compliance with the
+ * License.
+ *
+ * You can obtain a copy of the License at legal/CDDLv1.0.txt. See the License for the
+ * specific language governing permission and limitations under the License.
+ *
+ * When distributing Covered Software, include this CDDL Header Notice in each file and include
+ * the License file at legal/CDDLv1.0.txt. If applicable, add the following below the CDDL
+ * Header, with the fields enclosed by brackets [] replaced by your own identifying
+ * information: "Portions Copyright [year] [name of copyright owner]".
+ *
+ * Copyright 2026 ForgeRock AS.
+ */
+package org.opends.server.core;
+
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Queue;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import org.forgerock.i18n.slf4j.LocalizedLogger;
+import org.forgerock.opendj.ldap.DN;
+import org.forgerock.opendj.ldap.ResultCode;
+import org.forgerock.opendj.server.config.meta.GlobalCfgDefn.PsearchSlowConsumerPolicy;
+import org.opends.server.api.ClientConnection;
+import org.opends.server.api.LocalBackend;
+import org.opends.server.controls.PersistentSearchChangeType;
+import org.opends.server.types.DirectoryException;
+import org.opends.server.types.Entry;
+import org.opends.server.types.SearchFilter;
+
+import static org.forgerock.util.Utils.*;
+import static org.opends.messages.CoreMessages.*;
+import static org.opends.server.controls.PersistentSearchChangeType.*;
+
+/**
+ * Notifies the persistent searches registered with a local backend of the changes made to its entries.
+ * <p>
+ * Persistent searches are indexed by base DN, so that only the persistent searches based on the changed
+ * entry or one of its ancestors are examined. Each distinct filter is evaluated once per change, whatever
+ * the number of persistent searches sharing it.
+ * <p>
+ * Unless the {@code psearch-notification-queue-size} global property is 0, the thread which performed the
+ * update only queues the change to the client connections owning a persistent search in its scope, without
+ * ever waiting. The changes queued to a client connection are matched against the filters of its persistent
+ * searches and sent in batches by a delivery thread, one batch at a time per client connection, so that they
+ * are received in the order of the updates. Sending a change blocks until the client connection accepts it,
+ * hence delivery threads are never shared between client connections with pending changes: a new delivery
+ * thread is started when all the idle ones are busy, and is discarded after being idle for a minute. When
+ * the queue of a client connection is full, the {@code psearch-slow-consumer-policy} global property decides
+ * whether the changes keep being queued until the client catches up, or whether the persistent search is
+ * cancelled. A slow client never delays the updates nor the notification of the other persistent searches.
+ */
+public final class PersistentSearchNotifier
+{
+  private static final LocalizedLogger logger = LocalizedLogger.getLoggerForThisClass();
+
+  /** The backend whose changes are notified. */
+  private final LocalBackend<?> backend;
+
+  /** The persistent searches registered with the backend, by base DN. */
+  private final ConcurrentMap<DN, List<PersistentSearch>> searchesByBaseDN = new ConcurrentHashMap<>();
+
+  /** The queues of changes waiting to be sent, by client connection. */
+  private final ConcurrentMap<ClientConnection, Subscriber> subscribers = new ConcurrentHashMap<>();
+
+  /** Sends the matching changes to the client connections. */
+  private volatile ExecutorService deliverer;
+
+  /**
+   * Creates a new persistent search notifier for the provided backend.
+   *
+   * @param backend
+   *          The backend whose changes are notified.
+   */
+  public PersistentSearchNotifier(LocalBackend<?> backend)
+  {
+    this.backend = backend;
+  }
+
+  /**
+   * Registers a persistent search so that it gets notified of the changes made to the backend.
+   *
+   * @param psearch
+   *          The persistent search to register.
+   */
+  public synchronized void register(PersistentSearch psearch)
+  {
+    final DN baseDN = psearch.getSearchOperation().getBaseDN();
+    List<PersistentSearch> searches = searchesByBaseDN.get(baseDN);
+    if (searches == null)
+    {
+      searches = new CopyOnWriteArrayList<>();
+      searchesByBaseDN.put(baseDN, searches);
+    }
+    searches.add(psearch);
+  }
+
+  /**
+   * Deregisters a persistent search, which will no longer be notified of the changes made to the backend.
+   *
+   * @param psearch
+   *          The persistent search to deregister.
+   */
+  public synchronized void deregister(PersistentSearch psearch)
+  {
+    final DN baseDN = psearch.getSearchOperation().getBaseDN();
+    final List<PersistentSearch> searches = searchesByBaseDN.get(baseDN);
+    if (searches != null && searches.remove(psearch) && searches.isEmpty())
+    {
+      searchesByBaseDN.remove(baseDN);
+    }
+    final ClientConnection connection = psearch.getSearchOperation().getClientConnection();
+    if (connection.getPersistentSearches().isEmpty())
+    {
+      // Any change still queued is for a cancelled persistent search, it will not be sent
+      subscribers.remove(connection);
+    }
+  }
+
+  /**
+   * Notifies the persistent searches that an entry has been added.
+   *
+   * @param entry
+   *          The entry that was added.
+   */
+  public void processAdd(Entry entry)
+  {
+    notify(new Change(ADD, entry, null, null));
+  }
+
+  /**
+   * Notifies the persistent searches that an entry has been deleted.
+   *
+   * @param entry
+   *          The entry that was deleted.
+   */
+  public void processDelete(Entry entry)
+  {
+    notify(new Change(DELETE, entry, null, null));
+  }
+
+  /**
+   * Notifies the persistent searches that an entry has been modified.
+   *
+   * @param entry
+   *          The entry after it was modified.
+   * @param oldEntry
+   *          The entry before it was modified.
+   */
+  public void processModify(Entry entry, Entry oldEntry)
+  {
+    notify(new Change(MODIFY, entry, oldEntry, null));
+  }
+
+  /**
+   * Notifies the persistent searches that an entry has been renamed.
+   *
+   * @param entry
+   *          The entry after it was renamed.
+   * @param oldDN
+   *          The DN of the entry before it was renamed.
+   */
+  public void processModifyDN(Entry entry, DN oldDN)
+  {
+    notify(new Change(MODIFY_DN, entry, null, oldDN));
+  }
+
+  /**
+   * Stops the threads of this notifier. The changes which have not been sent yet are discarded.
+   * This notifier restarts its threads if it is notified of changes afterwards.
+   */
+  public void shutdown()
+  {
+    final ExecutorService oldDeliverer;
+    synchronized (this)
+    {
+      oldDeliverer = deliverer;
+      deliverer = null;
+    }
+    if (oldDeliverer != null)
+    {
+      oldDeliverer.shutdownNow();
+    }
+    subscribers.clear();
+  }
+
+  private void notify(final Change change)
+  {
+    if (searchesByBaseDN.isEmpty())
+    {
+      return;
+    }
+
+    final CoreConfigManager config = DirectoryServer.getCoreConfigManager();
+    final int queueSize = config.getPSearchNotificationQueueSize();
+    if (queueSize == 0)
+    {
+      dispatch(change, 0, null);
+      return;
+    }
+
+    if (deliverer == null)
+    {
+      synchronized (this)
+      {
+        startThreads();
+      }
+    }
+    dispatch(change, queueSize, config.getPSearchSlowConsumerPolicy());
+  }
+
+  /** Starts the threads of this notifier, if they are not started yet. Must be called while holding the lock. */
+  private void startThreads()
+  {
+    if (deliverer == null)
+    {
+      // A stalled client connection must only hold its own delivery thread, so the pool is not bounded.
+      // There are at most as many delivery threads as client connections with persistent searches.
+      deliverer = Executors.newCachedThreadPool(
+          newThreadFactory(null, backend.getBackendID() + " psearch delivery %d", true));
+    }
+  }
+
+  /**
+   * Matches the provided change against the persistent searches and sends it if the queue size is 0,
+   * otherwise queues it for matching and delivery by the delivery threads.
+   */
+  private void dispatch(Change change, int queueSize, PsearchSlowConsumerPolicy policy)
+  {
+    for (PersistentSearch psearch : getCandidates(change))
+    {
+      if (!psearch.isCancelled()
+          && psearch.isInterestedIn(change.changeType, change.entry.getName(), change.oldDN))
+      {
+        if (queueSize != 0)
+        {
+          deliver(psearch, change, queueSize, policy);
+        }
+        else if (change.matches(psearch))
+        {
+          change.sendTo(psearch);
+        }
+      }
+    }
+  }
+
+  /** Returns the persistent searches based on the changed entry or one of its ancestors. */
+  private Set<PersistentSearch> getCandidates(Change change)
+  {
+    final Set<PersistentSearch> candidates = new LinkedHashSet<>();
+    addCandidates(change.entry.getName(), candidates);
+    if (change.oldDN != null)
+    {
+      addCandidates(change.oldDN, candidates);
+    }
+    return candidates;
+  }
+
+  private void addCandidates(DN dn, Set<PersistentSearch> candidates)
+  {
+    for (DN baseDN = dn; baseDN != null; baseDN = baseDN.parent())
+    {
+      final List<PersistentSearch> searches = searchesByBaseDN.get(baseDN);
+      if (searches != null)
+      {
+        candidates.addAll(searches);
+      }
+    }
+  }
+
+  private static boolean matchesFilter(SearchFilter filter, Entry entry)
+  {
+    try
+    {
+      return filter.matchesEntry(entry);
+    }
+    catch (DirectoryException de)
+    {
+      logger.traceException(de);
+      return false;
+    }
+  }
+
+  /** Queues the change for delivery to the client connection of the persistent search, without waiting. */
+  private void deliver(PersistentSearch psearch, Change change, int queueSize, PsearchSlowConsumerPolicy policy)
+  {
+    final ClientConnection connection = psearch.getSearchOperation().getClientConnection();
+    Subscriber subscriber = subscribers.get(connection);
+    if (subscriber == null)
+    {
+      final Subscriber newSubscriber = new Subscriber(connection);
+      subscriber = subscribers.putIfAbsent(connection, newSubscriber);
+      if (subscriber == null)
+      {
+        subscriber = newSubscriber;
+      }
+    }
+
+    // With the block policy, the changes keep being queued until the client connection catches up
+    final int maxSize = policy == PsearchSlowConsumerPolicy.CANCEL ? queueSize : Integer.MAX_VALUE;
+    if (!subscriber.offer(new Notification(psearch, change), maxSize))
+    {
+      cancelSlowConsumer(psearch, queueSize);
+      return;
+    }
+    subscriber.schedule();
+  }
+
+  private void cancelSlowConsumer(final PersistentSearch psearch, int queueSize)
+  {
+    final SearchOperation searchOperation = psearch.getSearchOperation();
+    if (logger.isTraceEnabled())
+    {
+      logger.trace("Cancelling slow persistent search " + psearch);
+    }
+    psearch.cancel();
+    searchOperation.setResultCode(ResultCode.ADMIN_LIMIT_EXCEEDED);
+    searchOperation.appendErrorMessage(ERR_PSEARCH_SLOW_CONSUMER_CANCELLED.get(queueSize));
+    // Do not wait for the slow client here
+    executeDelivery(new Runnable()
+    {
+      @Override
+      public void run()
+      {
+        searchOperation.sendSearchResultDone();
+      }
+    });
+  }
+
+  private void executeDelivery(Runnable task)
+  {
+    final ExecutorService executor = deliverer;
+    if (executor != null)
+    {
+      try
+      {
+        executor.execute(task);
+      }
+      catch (RuntimeException e)
+      {
+        // The notifier has been shutdown concurrently
+        logger.traceException(e);
+      }
+    }
+  }
+
+  /** A change made to an entry of the backend. */
+  private static final class Change
+  {
+    private final PersistentSearchChangeType changeType;
+    /** The entry after the change. */
+    private final Entry entry;
+    /** The entry before it was modified, only for modify changes. */
+    private final Entry oldEntry;
+    /** The DN of the entry before it was renamed, only for modify DN changes. */
+    private final DN oldDN;
+    /** The outcome of the filters already evaluated against this change, by any of the delivery threads. */
+    private final ConcurrentMap<SearchFilter, Boolean> matchedFilters = new ConcurrentHashMap<>();
+
+    private Change(PersistentSearchChangeType changeType, Entry entry, Entry oldEntry, DN oldDN)
+    {
+      this.changeType = changeType;
+      this.entry = entry;
+      this.oldEntry = oldEntry;
+      this.oldDN = oldDN;
+    }
+
+    /** Evaluates the filter of the persistent search, reusing the outcome of identical filters already evaluated. */
+    private boolean matches(PersistentSearch psearch)
+    {
+      final SearchFilter filter = psearch.getSearchOperation().getFilter();
+      Boolean matches = matchedFilters.get(filter);
+      if (matches == null)
+      {
+        matches = matchesFilter(filter, entry) || (oldEntry != null && matchesFilter(filter, oldEntry));
+        matchedFilters.put(filter, matches);
+      }
+      return matches;
+    }
+
+    private void sendTo(PersistentSearch psearch)
+    {
+      psearch.sendChange(changeType, entry, oldDN);
+    }
+  }
+
+  /** A change waiting to be sent to a persistent search. */
+  private static final class Notification
+  {
+    private final PersistentSearch psearch;
+    private final Change change;
+
+    private Notification(PersistentSearch psearch, Change change)
+    {
+      this.psearch = psearch;
+      this.change = change;
+    }
+  }
+
+  /** The changes waiting to be sent to the persistent searches of a client connection. */
+  private final class Subscriber implements Runnable
+  {
+    private final ClientConnection connection;
+    private final Queue<Notification> notifications = new ConcurrentLinkedQueue<>();
+    /** The number of queued changes. */
+    private final AtomicInteger size = new AtomicInteger();
+    /** Whether a delivery of the queued changes is scheduled or running. */
+    private final AtomicBoolean isScheduled = new AtomicBoolean();
+
+    private Subscriber(ClientConnection connection)
+    {
+      this.connection = connection;
+    }
+
+    /** Queues the change, unless there are already the provided maximum number of queued changes. */
+    private boolean offer(Notification notification, int maxSize)
+    {
+      int n;
+      do
+      {
+        n = size.get();
+        if (n >= maxSize)
+        {
+          return false;
+        }
+      }
+      while (!size.compareAndSet(n, n + 1));
+      notifications.add(notification);
+      return true;
+    }
+
+    private void schedule()
+    {
+      if (isScheduled.compareAndSet(false, true))
+      {
+        executeDelivery(this);
+      }
+    }
+
+    @Override
+    public void run()
+    {
+      do
+      {
+        Notification notification;
+        while ((notification = notifications.poll()) != null)
+        {
+          size.decrementAndGet();
+          final PersistentSearch psearch = notification.psearch;
+          if (!psearch.isCancelled() && notification.change.matches(psearch))
+          {
+            notification.change.sendTo(psearch);
+          }
+        }
+        isScheduled.set(false);
+        // Changes may have been queued after the last poll and before resetting the flag
+      }
+      while (!notifications.isEmpty() && isScheduled.compareAndSet(false, true));
+
+      if (connection.getPersistentSearches().isEmpty())
+      {
+        // A change queued concurrently remains deliverable: it scheduled this subscriber again
+        subscribers.remove(connection, this);
+      }
+    }
+  }
+}
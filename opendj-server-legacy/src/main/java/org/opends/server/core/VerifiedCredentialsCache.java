@@ -0,0 +1,332 @@
+/*
+ * The contents of this file are subject to the terms of the Common Development and
+ * Distribution License (the License). You may not use this file except in compliance with the
+ * License.
+ *
+ * You can obtain a copy of the License at legal/CDDLv1.0.txt. See the License for the
+ * specific language governing permission and limitations under the License.
+ *
+ * When distributing Covered Software, include this CDDL Header Notice in each file and include
+ * the License file at legal/CDDLv1.0.txt. If applicable, add the following below the CDDL
+ * Header, with the fields enclosed by brackets [] replaced by your own identifying
+ * information: "Portions Copyright [year] [name of copyright owner]".
+ *
+ * Copyright 2026 ForgeRock AS.
+ */
+package org.opends.server.core;
+
+import java.security.GeneralSecurityException;
+import java.security.MessageDigest;
+import java.security.SecureRandom;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.Map.Entry;
+
+import javax.crypto.Mac;
+import javax.crypto.spec.SecretKeySpec;
+
+import org.forgerock.i18n.slf4j.LocalizedLogger;
+import org.forgerock.opendj.ldap.ByteString;
+import org.forgerock.opendj.ldap.DN;
+import org.forgerock.util.time.TimeService;
+
+/**
+ * A bounded and time-limited cache of the passwords which have been successfully verified against
+ * the password stored in user entries.
+ * <p>
+ * Verifying a password against a salted or iterated storage scheme is deliberately expensive. This
+ * cache remembers, for each user, a keyed hash of the last successfully verified password combined
+ * with the stored password value it matched. A later bind with the same password against the same
+ * stored value can then skip the storage scheme, while all the other bind checks still run.
+ * <p>
+ * The hash key is randomly generated for each server instance and is never persisted, so that
+ * the content of the cache cannot be used to find passwords offline. Since the stored password
+ * value is part of the hash, changing the password of a user invalidates the cached verification
+ * on its own: explicit invalidations only release the memory used by stale users.
+ * <p>
+ * Concurrent binds do not contend on a single lock: the users are spread over stripes, each of them
+ * guarded by its own lock and evicting its least recently used users when full.
+ */
+public final class VerifiedCredentialsCache
+{
+  private static final LocalizedLogger logger = LocalizedLogger.getLoggerForThisClass();
+
+  private static final String MAC_ALGORITHM = "HmacSHA256";
+  /** The default number of stripes of the cache, each of them guarded by its own lock. */
+  private static final int DEFAULT_NUMBER_OF_STRIPES = 16;
+
+  /** A verified password of a user. */
+  private static final class VerifiedCredential
+  {
+    private final byte[] digest;
+    private final long expirationTime;
+
+    private VerifiedCredential(final byte[] digest, final long expirationTime)
+    {
+      this.digest = digest;
+      this.expirationTime = expirationTime;
+    }
+  }
+
+  /** A part of the verified credentials, in least recently used order. Guarded by its own monitor. */
+  private static final class Stripe
+  {
+    private final LinkedHashMap<DN, VerifiedCredential> credentials = new LinkedHashMap<>(16, 0.75f, true);
+    private final int maxEntries;
+
+    private Stripe(final int maxEntries)
+    {
+      this.maxEntries = maxEntries;
+    }
+
+    /** Must be called while holding the monitor of this stripe. */
+    private void put(final DN userDN, final VerifiedCredential credential)
+    {
+      credentials.put(userDN, credential);
+      if (credentials.size() > maxEntries)
+      {
+        final Iterator<VerifiedCredential> it = credentials.values().iterator();
+        it.next();
+        it.remove();
+      }
+    }
+  }
+
+  private static final Stripe[] NO_STRIPES = new Stripe[0];
+
+  private final SecretKeySpec key;
+  private final TimeService timeService;
+  private final int numberOfStripes;
+  /** The macs are not thread safe and costly to create. */
+  private final ThreadLocal<Mac> macs = new ThreadLocal<Mac>()
+  {
+    @Override
+    protected Mac initialValue()
+    {
+      try
+      {
+        final Mac mac = Mac.getInstance(MAC_ALGORITHM);
+        mac.init(key);
+        return mac;
+      }
+      catch (GeneralSecurityException e)
+      {
+        logger.traceException(e);
+        return null;
+      }
+    }
+  };
+
+  /**
+   * The stripes sharing the maximum number of users of the cache, selected by the hash code of the
+   * user DNs. Empty if the cache is disabled, replaced when the maximum number of users changes.
+   */
+  private volatile Stripe[] stripes = NO_STRIPES;
+  private volatile long expiration;
+  /** The maximum number of users of the cache. Guarded by this. */
+  private int maxEntries;
+
+  /** Creates a new disabled verified credentials cache. */
+  public VerifiedCredentialsCache()
+  {
+    this(TimeService.SYSTEM, DEFAULT_NUMBER_OF_STRIPES);
+  }
+
+  /**
+   * Creates a new disabled verified credentials cache using the provided time service.
+   *
+   * @param timeService
+   *          the time service used to expire the verified credentials
+   * @param numberOfStripes
+   *          the maximum number of stripes of the cache
+   */
+  VerifiedCredentialsCache(final TimeService timeService, final int numberOfStripes)
+  {
+    final byte[] keyBytes = new byte[32];
+    new SecureRandom().nextBytes(keyBytes);
+    this.key = new SecretKeySpec(keyBytes, MAC_ALGORITHM);
+    this.timeService = timeService;
+    this.numberOfStripes = numberOfStripes;
+  }
+
+  /**
+   * Sets the limits of this cache, evicting verified credentials as needed.
+   *
+   * @param maxEntries
+   *          the maximum number of users in this cache, or 0 to disable the cache
+   * @param expiration
+   *          the time in milliseconds during which a verified password is cached
+   */
+  public synchronized void setConfiguration(final int maxEntries, final long expiration)
+  {
+    this.expiration = expiration;
+    if (this.maxEntries == maxEntries)
+    {
+      return;
+    }
+    this.maxEntries = maxEntries;
+
+    // Spread the users over fewer stripes than users, so that each stripe can hold at least one user
+    final int nbStripes = Math.min(numberOfStripes, Math.max(maxEntries, 0));
+    final Stripe[] newStripes = new Stripe[nbStripes];
+    for (int i = 0; i < nbStripes; i++)
+    {
+      newStripes[i] = new Stripe(maxEntries / nbStripes + (i < maxEntries % nbStripes ? 1 : 0));
+    }
+    for (Stripe stripe : stripes)
+    {
+      synchronized (stripe)
+      {
+        if (nbStripes > 0)
+        {
+          for (Entry<DN, VerifiedCredential> entry : stripe.credentials.entrySet())
+          {
+            getStripe(newStripes, entry.getKey()).put(entry.getKey(), entry.getValue());
+          }
+        }
+        stripe.credentials.clear();
+      }
+    }
+    stripes = newStripes;
+  }
+
+  /**
+   * Indicates whether this cache is enabled.
+   *
+   * @return {@code true} if this cache is enabled
+   */
+  public boolean isEnabled()
+  {
+    return stripes.length > 0;
+  }
+
+  /**
+   * Indicates whether the provided password has recently been verified against the provided stored
+   * password value of the user.
+   *
+   * @param userDN
+   *          the DN of the user
+   * @param password
+   *          the password supplied by the client
+   * @param storedPassword
+   *          the encoded password value stored in the user entry
+   * @return {@code true} if the password has been verified against the stored password value and this
+   *         verification has not expired yet
+   */
+  public boolean isVerified(final DN userDN, final ByteString password, final ByteString storedPassword)
+  {
+    final Stripe[] currentStripes = stripes;
+    if (currentStripes.length == 0)
+    {
+      return false;
+    }
+    final Stripe stripe = getStripe(currentStripes, userDN);
+    final VerifiedCredential credential;
+    synchronized (stripe)
+    {
+      credential = stripe.credentials.get(userDN);
+      if (credential == null)
+      {
+        return false;
+      }
+      if (credential.expirationTime - timeService.now() <= 0)
+      {
+        stripe.credentials.remove(userDN);
+        return false;
+      }
+    }
+    // Computing the digest is cheap compared to the storage scheme, but do it outside the lock nonetheless
+    final byte[] digest = digest(password, storedPassword);
+    return digest != null && MessageDigest.isEqual(digest, credential.digest);
+  }
+
+  /**
+   * Records that the provided password has been successfully verified against the provided stored
+   * password value of the user.
+   *
+   * @param userDN
+   *          the DN of the user
+   * @param password
+   *          the password supplied by the client
+   * @param storedPassword
+   *          the encoded password value stored in the user entry
+   */
+  public void putVerified(final DN userDN, final ByteString password, final ByteString storedPassword)
+  {
+    final Stripe[] currentStripes = stripes;
+    if (currentStripes.length == 0)
+    {
+      return;
+    }
+    final byte[] digest = digest(password, storedPassword);
+    if (digest == null)
+    {
+      return;
+    }
+    final Stripe stripe = getStripe(currentStripes, userDN);
+    synchronized (stripe)
+    {
+      stripe.put(userDN, new VerifiedCredential(digest, timeService.now() + expiration));
+    }
+  }
+
+  /**
+   * Removes the verified password of the provided user, if any.
+   *
+   * @param userDN
+   *          the DN of the user whose entry has been modified, renamed or deleted
+   */
+  public void invalidate(final DN userDN)
+  {
+    final Stripe[] currentStripes = stripes;
+    if (currentStripes.length == 0)
+    {
+      return;
+    }
+    final Stripe stripe = getStripe(currentStripes, userDN);
+    synchronized (stripe)
+    {
+      stripe.credentials.remove(userDN);
+    }
+  }
+
+  /**
+   * Returns the number of users whose verified password is cached.
+   *
+   * @return the number of users whose verified password is cached
+   */
+  int size()
+  {
+    int size = 0;
+    for (Stripe stripe : stripes)
+    {
+      synchronized (stripe)
+      {
+        size += stripe.credentials.size();
+      }
+    }
+    return size;
+  }
+
+  private static Stripe getStripe(final Stripe[] stripes, final DN userDN)
+  {
+    final int hashCode = userDN.hashCode();
+    return stripes[((hashCode ^ (hashCode >>> 16)) & Integer.MAX_VALUE) % stripes.length];
+  }
+
+  /** Returns the keyed hash of the supplied password and of the stored value, or {@code null} if unavailable. */
+  private byte[] digest(final ByteString password, final ByteString storedPassword)
+  {
+    final Mac mac = macs.get();
+    if (mac == null)
+    {
+      return null;
+    }
+    // Prefix with the length of the password so that the boundary between both values is not ambiguous
+    final int length = password.length();
+    mac.update(new byte[] { (byte) (length >>> 24), (byte) (length >>> 16), (byte) (length >>> 8), (byte) length });
+    mac.update(password.toByteArray());
+    mac.update(storedPassword.toByteArray());
+    return mac.doFinal();
+  }
+}
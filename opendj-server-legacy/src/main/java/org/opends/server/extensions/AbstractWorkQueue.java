@@ -0,0 +1,526 @@
+/*
+ * The contents of this file are subject to the terms of the Common Development and
+ * Distribution License (the License). You may not use this file except in compliance with the
+ * License.
+ *
+ * You can obtain a copy of the License at legal/CDDLv1.0.txt. See the License for the
+ * specific language governing permission and limitations under the License.
+ *
+ * When distributing Covered Software, include this CDDL Header Notice in each file and include
+ * the License file at legal/CDDLv1.0.txt. If applicable, add the following below the CDDL
+ * Header, with the fields enclosed by brackets [] replaced by your own identifying
+ * information: "Portions Copyright [year] [name of copyright owner]".
+ *
+ * Copyright 2026 ForgeRock AS.
+ */
+package org.opends.server.extensions;
+
+import static org.opends.messages.ConfigMessages.*;
+import static org.opends.messages.CoreMessages.*;
+
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+
+import org.forgerock.i18n.LocalizableMessage;
+import org.forgerock.i18n.slf4j.LocalizedLogger;
+import org.forgerock.opendj.ldap.ResultCode;
+import org.forgerock.opendj.server.config.server.WorkQueueCfg;
+import org.opends.server.api.WorkQueue;
+import org.opends.server.types.CancelRequest;
+import org.opends.server.types.DirectoryException;
+import org.opends.server.types.Operation;
+
+/**
+ * A work queue holding the pending operations until one of its worker threads picks them up.
+ * <p>
+ * This class implements what the work queues have in common: the maximum capacity is enforced with a single counter
+ * of pending operations, and connection handlers are blocked until a worker thread picks up an operation when the work
+ * queue is full. It also cancels the pending operations and stops the worker threads on shutdown, and lets worker
+ * threads retry a few times when they fail to get their next operation.
+ *
+ * @param <T>
+ *          The type of configuration handled by this work queue.
+ * @param <W>
+ *          The type of worker threads servicing this work queue.
+ */
+public abstract class AbstractWorkQueue<T extends WorkQueueCfg, W extends AbstractWorkQueue.WorkerThread>
+    extends WorkQueue<T>
+{
+  /** A worker thread servicing a work queue. */
+  interface WorkerThread
+  {
+    /**
+     * Returns the name of this worker thread.
+     *
+     * @return the name of this worker thread
+     */
+    String getName();
+
+    /**
+     * Indicates whether this worker thread is actively processing a request.
+     *
+     * @return {@code true} if this worker thread is actively processing a request, or {@code false} if it is idle.
+     */
+    boolean isActive();
+
+    /**
+     * Indicates that the Directory Server has received a request to stop running and that this thread should stop
+     * running as soon as possible.
+     */
+    void shutDown();
+  }
+
+  private static final LocalizedLogger logger = LocalizedLogger.getLoggerForThisClass();
+
+  /**
+   * The maximum number of times to retry getting the next operation from the
+   * queue if an unexpected failure occurs.
+   */
+  private static final int MAX_RETRY_COUNT = 5;
+
+  /** How long a blocked connection handler waits before checking whether the server is shutting down. */
+  private static final long FULL_WAIT_MILLIS = TimeUnit.SECONDS.toMillis(1);
+
+  /** The number of pending operations, including the ones being added to the queue. */
+  private final AtomicInteger pendingOperations = new AtomicInteger();
+
+  /** The number of operations that have been submitted to the work queue for processing. */
+  private final AtomicLong opsSubmitted = new AtomicLong();
+
+  /**
+   * The number of times that an attempt to submit a new request has been
+   * rejected because the work queue is already at its maximum capacity.
+   */
+  private final AtomicLong queueFullRejects = new AtomicLong();
+
+  /** Used by connection handlers to wait for available capacity when the work queue is full. */
+  private final Object capacityLock = new Object();
+
+  /** The number of connection handlers waiting for available capacity, only modified with capacityLock held. */
+  private volatile int blockedSubmitters;
+
+  /**
+   * The maximum number of pending requests that this work queue will allow
+   * before it will start blocking them, or zero if there is no limit.
+   */
+  private volatile int maxCapacity;
+
+  /** Indicates whether the Directory Server is shutting down. */
+  private volatile boolean shutdownRequested;
+
+  /** The request sent to the pending operations when the Directory Server is shutting down, set before the flag. */
+  private volatile CancelRequest shutdownCancelRequest;
+
+  /**
+   * Adds an operation for which capacity has been reserved to the pending operations, and makes sure a worker thread
+   * will pick it up.
+   *
+   * @param operation
+   *          The operation to be processed.
+   * @throws DirectoryException
+   *           If the operation cannot be accepted, for example because the server is shutting down.
+   */
+  protected abstract void enqueueOperation(Operation operation) throws DirectoryException;
+
+  /**
+   * Removes one of the pending operations, without waiting for one to be submitted.
+   *
+   * @return a pending operation, or {@code null} if there are none
+   */
+  protected abstract Operation pollPendingOperation();
+
+  /**
+   * Waits for the next operation to be processed by the provided worker thread. Implementations must call
+   * {@link #releaseCapacity()} for each operation they pick up.
+   *
+   * @param workerThread
+   *          The worker thread that is requesting the operation.
+   * @return The next operation that should be processed, or {@code null} if the server is shutting down or if the
+   *         worker thread must exit.
+   * @throws Exception
+   *           If a problem occurs while waiting for the next operation. The worker thread will retry a few times.
+   */
+  protected abstract Operation waitForNextOperation(W workerThread) throws Exception;
+
+  /**
+   * Returns a snapshot of the worker threads servicing this work queue.
+   *
+   * @return a snapshot of the worker threads servicing this work queue
+   */
+  protected abstract List<W> getWorkerThreads();
+
+  /**
+   * Indicates that the provided worker thread is about to exit after too many consecutive failures to get its next
+   * operation. Does nothing by default.
+   *
+   * @param workerThread
+   *          The worker thread which is about to exit.
+   */
+  protected void workerThreadFailed(W workerThread)
+  {
+    // Nothing to do by default
+  }
+
+  /**
+   * Sets the maximum number of pending operations, waking up blocked connection handlers if it has changed.
+   *
+   * @param maxCapacity
+   *          The maximum number of pending operations, or zero if there is no limit.
+   */
+  protected void setMaxCapacity(int maxCapacity)
+  {
+    if (this.maxCapacity != maxCapacity)
+    {
+      this.maxCapacity = maxCapacity;
+      synchronized (capacityLock)
+      {
+        capacityLock.notifyAll();
+      }
+    }
+  }
+
+  /**
+   * Sets the flag indicating that the Directory Server is shutting down. Subclasses may override it to exclude
+   * concurrent submissions while setting it.
+   */
+  protected void requestShutdown()
+  {
+    shutdownRequested = true;
+  }
+
+  /**
+   * Clears the flag indicating that the Directory Server is shutting down, when this work queue is initialized.
+   */
+  protected void clearShutdownRequest()
+  {
+    shutdownRequested = false;
+  }
+
+  @Override
+  public void finalizeWorkQueue(LocalizableMessage reason)
+  {
+    shutdownCancelRequest = new CancelRequest(true, reason);
+    requestShutdown();
+
+    // From now on no more operations can be enqueued.
+    synchronized (capacityLock)
+    {
+      capacityLock.notifyAll();
+    }
+
+    cancelPendingOperations();
+
+    // Notify all the worker threads of the shutdown.
+    for (W t : getWorkerThreads())
+    {
+      try
+      {
+        t.shutDown();
+      }
+      catch (Exception e)
+      {
+        logger.traceException(e);
+        logger.warn(WARN_QUEUE_UNABLE_TO_NOTIFY_THREAD, t.getName(), e);
+      }
+    }
+  }
+
+  /**
+   * Sends responses to any operations in the pending queue to indicate that they won't be processed because the server
+   * is shutting down.
+   */
+  private void cancelPendingOperations()
+  {
+    final CancelRequest cancelRequest = shutdownCancelRequest;
+    Operation o;
+    while ((o = pollPendingOperation()) != null)
+    {
+      pendingOperations.decrementAndGet();
+      try
+      {
+        // The operation has no chance of responding to the cancel
+        // request so avoid waiting for a cancel response.
+        if (o.getCancelResult() == null)
+        {
+          o.abort(cancelRequest);
+        }
+      }
+      catch (Exception e)
+      {
+        logger.traceException(e);
+        logger.warn(WARN_QUEUE_UNABLE_TO_CANCEL, o, e);
+      }
+    }
+  }
+
+  /**
+   * Indicates whether this work queue has received a request to shut down.
+   *
+   * @return <CODE>true</CODE> if the work queue has recieved a request to shut
+   *         down, or <CODE>false</CODE> if not.
+   */
+  public boolean shutdownRequested()
+  {
+    return shutdownRequested;
+  }
+
+  /**
+   * Throws an exception if this work queue has received a request to shut down.
+   *
+   * @throws DirectoryException
+   *           If this work queue has received a request to shut down.
+   */
+  protected void checkShutdownNotRequested() throws DirectoryException
+  {
+    if (shutdownRequested)
+    {
+      throw new DirectoryException(ResultCode.UNAVAILABLE, WARN_OP_REJECTED_BY_SHUTDOWN.get());
+    }
+  }
+
+  @Override
+  public void submitOperation(Operation operation) throws DirectoryException
+  {
+    submitOperation(operation, true);
+  }
+
+  @Override
+  public boolean trySubmitOperation(Operation operation) throws DirectoryException
+  {
+    try
+    {
+      submitOperation(operation, false);
+      return true;
+    }
+    catch (DirectoryException e)
+    {
+      if (ResultCode.BUSY == e.getResultCode())
+      {
+        return false;
+      }
+      throw e;
+    }
+  }
+
+  private void submitOperation(Operation operation, boolean blockEnqueuingWhenFull) throws DirectoryException
+  {
+    checkShutdownNotRequested();
+
+    if (!tryReserveCapacity())
+    {
+      if (!blockEnqueuingWhenFull)
+      {
+        queueFullRejects.incrementAndGet();
+        throw new DirectoryException(ResultCode.BUSY, WARN_OP_REJECTED_BY_QUEUE_FULL.get(maxCapacity));
+      }
+      waitForCapacity();
+    }
+
+    boolean enqueued = false;
+    try
+    {
+      enqueueOperation(operation);
+      enqueued = true;
+    }
+    finally
+    {
+      if (!enqueued)
+      {
+        releaseCapacity();
+      }
+    }
+    opsSubmitted.incrementAndGet();
+
+    // The shutdown may have been requested while the operation was enqueued, after the pending operations have been
+    // cancelled and with no worker thread left to pick it up: cancel it now rather than leaving it stranded.
+    if (shutdownRequested)
+    {
+      cancelPendingOperations();
+    }
+  }
+
+  private boolean tryReserveCapacity()
+  {
+    final int capacity = maxCapacity;
+    if (capacity <= 0)
+    {
+      // No limit on the number of pending operations
+      pendingOperations.incrementAndGet();
+      return true;
+    }
+
+    int pending;
+    do
+    {
+      pending = pendingOperations.get();
+      if (pending >= capacity)
+      {
+        return false;
+      }
+    }
+    while (!pendingOperations.compareAndSet(pending, pending + 1));
+    return true;
+  }
+
+  private void waitForCapacity() throws DirectoryException
+  {
+    synchronized (capacityLock)
+    {
+      // Worker threads check this counter after releasing capacity,
+      // so it must be incremented before checking the capacity again.
+      blockedSubmitters++;
+      try
+      {
+        while (!tryReserveCapacity())
+        {
+          checkShutdownNotRequested();
+          capacityLock.wait(FULL_WAIT_MILLIS);
+        }
+      }
+      catch (InterruptedException e)
+      {
+        // We cannot handle the interruption here. Reject the request and
+        // re-interrupt this thread.
+        Thread.currentThread().interrupt();
+
+        queueFullRejects.incrementAndGet();
+        throw new DirectoryException(ResultCode.BUSY, WARN_OP_REJECTED_BY_QUEUE_INTERRUPT.get());
+      }
+      finally
+      {
+        blockedSubmitters--;
+      }
+    }
+  }
+
+  /**
+   * Releases the capacity reserved for an operation which has been picked up by a worker thread, waking up a blocked
+   * connection handler if any.
+   */
+  protected void releaseCapacity()
+  {
+    pendingOperations.decrementAndGet();
+    if (blockedSubmitters > 0)
+    {
+      synchronized (capacityLock)
+      {
+        capacityLock.notify();
+      }
+    }
+  }
+
+  /**
+   * Retrieves the next operation that should be processed by one of the worker
+   * threads, blocking if necessary until a new request arrives. A maximum of
+   * five consecutive failures will be allowed before returning
+   * <CODE>null</CODE>, which will cause the associated thread to exit.
+   *
+   * @param workerThread
+   *          The worker thread that is requesting the operation.
+   * @return The next operation that should be processed, or <CODE>null</CODE>
+   *         if the server is shutting down, if the worker thread must exit, or
+   *         if there have been too many consecutive failures.
+   */
+  Operation retryNextOperation(W workerThread)
+  {
+    for (int numFailures = 0;; numFailures++)
+    {
+      if (shutdownRequested)
+      {
+        return null;
+      }
+
+      if (numFailures > MAX_RETRY_COUNT)
+      {
+        logger.error(ERR_CONFIG_WORK_QUEUE_TOO_MANY_FAILURES, Thread.currentThread().getName(), numFailures,
+            MAX_RETRY_COUNT);
+        workerThreadFailed(workerThread);
+        return null;
+      }
+
+      try
+      {
+        return waitForNextOperation(workerThread);
+      }
+      catch (InterruptedException ie)
+      {
+        // If this occurs, then the worker thread must have been interrupted for
+        // some reason. This could be because the Directory Server is shutting
+        // down, in which case we should return null.
+        if (shutdownRequested)
+        {
+          return null;
+        }
+
+        // If we've gotten here, then the worker thread was interrupted for some
+        // other reason. This should not happen, and we need to log a message.
+        logger.warn(WARN_WORKER_INTERRUPTED_WITHOUT_SHUTDOWN, Thread.currentThread().getName(), ie);
+      }
+      catch (Exception e)
+      {
+        logger.traceException(e);
+
+        // This should not happen. The only recourse we have is to log a message
+        // and try again.
+        logger.warn(WARN_WORKER_WAITING_UNCAUGHT_EXCEPTION, Thread.currentThread().getName(), e);
+      }
+    }
+  }
+
+  /**
+   * Indicates whether one of the worker threads is actively processing a request.
+   *
+   * @return {@code true} if one of the worker threads is actively processing a request
+   */
+  protected boolean isAnyWorkerThreadActive()
+  {
+    for (W t : getWorkerThreads())
+    {
+      if (t.isActive())
+      {
+        return true;
+      }
+    }
+    return false;
+  }
+
+  /**
+   * Retrieves the total number of operations that have been successfully
+   * submitted to this work queue for processing since server startup. This does
+   * not include operations that have been rejected for some reason like the
+   * queue already at its maximum capacity.
+   *
+   * @return The total number of operations that have been successfully
+   *         submitted to this work queue since startup.
+   */
+  public long getOpsSubmitted()
+  {
+    return opsSubmitted.get();
+  }
+
+  /**
+   * Retrieves the total number of operations that have been rejected because
+   * the work queue was already at its maximum capacity.
+   *
+   * @return The total number of operations that have been rejected because the
+   *         work queue was already at its maximum capacity.
+   */
+  public long getOpsRejectedDueToQueueFull()
+  {
+    return queueFullRejects.get();
+  }
+
+  /**
+   * Retrieves the number of pending operations in the queue that have not yet
+   * been picked up for processing. This is a constant-time operation.
+   *
+   * @return The number of pending operations in the queue that have not yet
+   *         been picked up for processing.
+   */
+  public int size()
+  {
+    return pendingOperations.get();
+  }
+}
@@ -0,0 +1,780 @@
+/*
+ * The contents of this file are subject to the terms of the Common Development and
+ * Distribution License (the License). You may not use this file except in compliance with the
+ * License.
+ *
+ * You can obtain a copy of the License at legal/CDDLv1.0.txt. See the License for the
+ * specific language governing permission and limitations under the License.
+ *
+ * When distributing Covered Software, include this CDDL Header Notice in each file and include
+ * the License file at legal/CDDLv1.0.txt. If applicable, add the following below the CDDL
+ * Header, with the fields enclosed by brackets [] replaced by your own identifying
+ * information: "Portions Copyright [year] [name of copyright owner]".
+ *
+ * Copyright 2026 ForgeRock AS.
+ */
+package org.opends.server.extensions;
+
+import static org.opends.messages.ExtensionMessages.*;
+
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.concurrent.locks.ReentrantLock;
+
+import org.forgerock.i18n.LocalizableMessage;
+import org.forgerock.i18n.slf4j.LocalizedLogger;
+import org.forgerock.opendj.config.server.ConfigChangeResult;
+import org.forgerock.opendj.config.server.ConfigException;
+import org.forgerock.opendj.config.server.ConfigurationChangeListener;
+import org.forgerock.opendj.ldap.DN;
+import org.forgerock.opendj.server.config.server.ConcurrentFIFOEntryCacheCfg;
+import org.forgerock.opendj.server.config.server.EntryCacheCfg;
+import org.forgerock.util.Utils;
+import org.opends.server.api.EntryCache;
+import org.opends.server.api.MonitorData;
+import org.opends.server.core.DirectoryServer;
+import org.opends.server.core.ServerContext;
+import org.opends.server.types.CacheEntry;
+import org.opends.server.types.Entry;
+import org.opends.server.types.InitializationException;
+import org.opends.server.types.SearchFilter;
+import org.opends.server.util.ServerConstants;
+
+/**
+ * This class defines a Directory Server entry cache that spreads the cached
+ * entries over segments according to their DN.  Each segment keeps its entries
+ * in a concurrent map, so that cache reads never take any lock, and tracks the
+ * order in which they were added in a FIFO queue guarded by a segment lock, so
+ * that only writes to the same segment contend with each other.
+ * <BR><BR>
+ * Entries that have been in a segment the longest are the most likely
+ * candidates for purging if space is needed.  A read only sets a reference bit
+ * on the entry: when an entry with the reference bit set reaches the head of
+ * the queue, the bit is cleared and the entry is moved back to the tail instead
+ * of being purged (second chance, or CLOCK, eviction).
+ * <BR><BR>
+ * Cache sizing follows the {@link FIFOEntryCache}: entries are only added while
+ * the JVM memory in use is below the configured percentage, and the maximum
+ * number of entries is shared evenly between the segments, which makes both
+ * the eviction order and the number of cached entries approximate.  Hits,
+ * misses and evictions are counted per segment and published by the monitor.
+ */
+public class ConcurrentFIFOEntryCache
+       extends EntryCache<ConcurrentFIFOEntryCacheCfg>
+       implements ConfigurationChangeListener<ConcurrentFIFOEntryCacheCfg>
+{
+  private static final LocalizedLogger logger = LocalizedLogger.getLoggerForThisClass();
+
+  /** The reference to the Java runtime used to determine the amount of memory currently in use. */
+  private static final Runtime runtime = Runtime.getRuntime();
+
+  /** The maximum number of segments. */
+  private static final int MAX_SEGMENTS = 1024;
+
+  /** An entry held by a segment. */
+  private static final class Node
+  {
+    private final CacheEntry cacheEntry;
+
+    /** Set when the entry is read, cleared when the entry is given a second chance. */
+    private volatile boolean referenced;
+
+    /**
+     * Set when the entry is removed from the segment map. Such nodes are dropped
+     * from the queue lazily, when they reach its head or when the queue is compacted.
+     */
+    private boolean removed;
+
+    private Node(CacheEntry cacheEntry)
+    {
+      this.cacheEntry = cacheEntry;
+    }
+  }
+
+  /** A segment of the cache. */
+  private final class Segment
+  {
+    /** The mapping between DNs and entries, read without locking. */
+    private final ConcurrentMap<DN, Node> dnMap = new ConcurrentHashMap<>();
+
+    /** The insertion order of the entries, guarded by the segment lock. */
+    private final ArrayDeque<Node> queue = new ArrayDeque<>();
+
+    /** The lock serializing the changes to this segment. */
+    private final ReentrantLock lock = new ReentrantLock();
+
+    private final LongAdder hits = new LongAdder();
+    private final LongAdder misses = new LongAdder();
+    private final LongAdder evictions = new LongAdder();
+
+    /** Adds or replaces an entry, the segment lock must be held. */
+    private void add(CacheEntry cacheEntry)
+    {
+      final Node node = new Node(cacheEntry);
+      final Node previous = dnMap.put(cacheEntry.getDN(), node);
+      if (previous != null)
+      {
+        previous.removed = true;
+        removeFromIdMap(previous.cacheEntry);
+      }
+      queue.addLast(node);
+      addToIdMap(cacheEntry);
+      compactQueueIfNeeded();
+    }
+
+    /** Removes an entry, the segment lock must be held. */
+    private Node remove(DN entryDN)
+    {
+      final Node node = dnMap.remove(entryDN);
+      if (node != null)
+      {
+        node.removed = true;
+        removeFromIdMap(node.cacheEntry);
+        compactQueueIfNeeded();
+      }
+      return node;
+    }
+
+    /**
+     * Evicts the oldest entry which was not read since it was last considered
+     * for eviction, the segment lock must be held.
+     *
+     * @return {@code true} if an entry was evicted, {@code false} if the
+     *         segment is empty.
+     */
+    private boolean evict()
+    {
+      Node node;
+      while ((node = queue.pollFirst()) != null)
+      {
+        if (node.removed)
+        {
+          continue;
+        }
+        if (node.referenced)
+        {
+          // Second chance.
+          node.referenced = false;
+          queue.addLast(node);
+          continue;
+        }
+        node.removed = true;
+        dnMap.remove(node.cacheEntry.getDN(), node);
+        removeFromIdMap(node.cacheEntry);
+        evictions.increment();
+        return true;
+      }
+      return false;
+    }
+
+    /** Removes all the entries, the segment lock must be held. */
+    private void clear()
+    {
+      dnMap.clear();
+      queue.clear();
+    }
+
+    /** Drops the removed nodes once they make up most of the queue, the segment lock must be held. */
+    private void compactQueueIfNeeded()
+    {
+      if (queue.size() > 2 * dnMap.size() + 64)
+      {
+        final Iterator<Node> iterator = queue.iterator();
+        while (iterator.hasNext())
+        {
+          if (iterator.next().removed)
+          {
+            iterator.remove();
+          }
+        }
+      }
+    }
+  }
+
+  /** The segments of this cache, their number is a power of 2. */
+  private Segment[] segments;
+
+  /** The mapping between entry backends/IDs and entries. */
+  private final ConcurrentMap<String, ConcurrentMap<Long, CacheEntry>> idMap = new ConcurrentHashMap<>();
+
+  /**
+   * The maximum amount of memory in bytes that the JVM will be allowed to use
+   * before we need to start purging entries.
+   */
+  private volatile long maxAllowedMemory;
+
+  /** The maximum number of entries that may be held in the cache. */
+  private volatile long maxEntries;
+
+  /** The maximum number of entries that may be held in a segment. */
+  private volatile long maxEntriesPerSegment;
+
+  /** Currently registered configuration object. */
+  private ConcurrentFIFOEntryCacheCfg registeredConfiguration;
+
+  /** The maximum length of time to try to obtain a segment lock before giving up. */
+  private volatile long lockTimeout = 2000;
+
+  /** Creates a new instance of this concurrent FIFO entry cache. */
+  public ConcurrentFIFOEntryCache()
+  {
+    super();
+    // All initialization should be performed in the initializeEntryCache.
+  }
+
+  @Override
+  public void initializeEntryCache(ServerContext serverContext, ConcurrentFIFOEntryCacheCfg configuration)
+      throws ConfigException, InitializationException
+  {
+    registeredConfiguration = configuration;
+    configuration.addConcurrentFIFOChangeListener(this);
+
+    // Initialize the cache structures. The number of segments cannot be changed afterwards.
+    final Integer segmentCount = configuration.getSegmentCount();
+    segments = new Segment[getNumberOfSegments(
+        segmentCount != null ? segmentCount : runtime.availableProcessors() * 4)];
+    for (int i = 0; i < segments.length; i++)
+    {
+      segments[i] = new Segment();
+    }
+
+    // Read configuration and apply changes.
+    boolean applyChanges = true;
+    List<LocalizableMessage> errorMessages = new ArrayList<>();
+    EntryCacheCommon.ConfigErrorHandler errorHandler =
+      EntryCacheCommon.getConfigErrorHandler (
+          EntryCacheCommon.ConfigPhase.PHASE_INIT, null, errorMessages
+          );
+    if (!processEntryCacheConfig(configuration, applyChanges, errorHandler)) {
+      String buffer = Utils.joinAsString(".  ", errorMessages);
+      throw new ConfigException(ERR_CONCURRENTFIFOCACHE_CANNOT_INITIALIZE.get(buffer));
+    }
+  }
+
+  @Override
+  public void finalizeEntryCache()
+  {
+    registeredConfiguration.removeConcurrentFIFOChangeListener(this);
+
+    // Release all memory currently in use by this cache.
+    clear();
+  }
+
+  @Override
+  public boolean containsEntry(DN entryDN)
+  {
+    return entryDN != null && getSegment(entryDN).dnMap.containsKey(entryDN);
+  }
+
+  @Override
+  public Entry getEntry(DN entryDN)
+  {
+    if (entryDN == null)
+    {
+      cacheMisses.getAndIncrement();
+      return null;
+    }
+
+    final Segment segment = getSegment(entryDN);
+    final Node node = segment.dnMap.get(entryDN);
+    if (node == null)
+    {
+      // Indicate cache miss.
+      segment.misses.increment();
+      return null;
+    }
+    // Avoid writing to shared memory when the entry was already referenced.
+    if (!node.referenced)
+    {
+      node.referenced = true;
+    }
+    // Indicate cache hit.
+    segment.hits.increment();
+    return node.cacheEntry.getEntry();
+  }
+
+  @Override
+  public long getEntryID(DN entryDN)
+  {
+    final Node node = entryDN != null ? getSegment(entryDN).dnMap.get(entryDN) : null;
+    return node != null ? node.cacheEntry.getEntryID() : -1;
+  }
+
+  @Override
+  public DN getEntryDN(String backendID, long entryID)
+  {
+    // Locate specific backend map and return the entry DN by ID.
+    final Map<Long, CacheEntry> backendMap = idMap.get(backendID);
+    if (backendMap != null)
+    {
+      final CacheEntry e = backendMap.get(entryID);
+      if (e != null)
+      {
+        return e.getDN();
+      }
+    }
+    return null;
+  }
+
+  @Override
+  public void putEntry(Entry entry, String backendID, long entryID)
+  {
+    put(new CacheEntry(entry, backendID, entryID), false);
+  }
+
+  @Override
+  public boolean putEntryIfAbsent(Entry entry, String backendID, long entryID)
+  {
+    return put(new CacheEntry(entry, backendID, entryID), true);
+  }
+
+  private boolean put(CacheEntry cacheEntry, boolean onlyIfAbsent)
+  {
+    final DN entryDN = cacheEntry.getDN();
+    final Segment segment = getSegment(entryDN);
+
+    // Obtain the segment lock.  If this fails, then don't do anything.
+    try
+    {
+      if (!segment.lock.tryLock(lockTimeout, TimeUnit.MILLISECONDS))
+      {
+        // We can't rule out the possibility of a conflict, so return false.
+        return false;
+      }
+    }
+    catch (InterruptedException e)
+    {
+      logger.traceException(e);
+      Thread.currentThread().interrupt();
+
+      // We can't rule out the possibility of a conflict, so return false.
+      return false;
+    }
+
+    try
+    {
+      if (onlyIfAbsent && segment.dnMap.containsKey(entryDN))
+      {
+        return false;
+      }
+
+      // See if the current memory usage is within acceptable constraints.  If
+      // so, then add the entry to the segment (or replace it if it is already
+      // present).  If not, then remove the current or an existing entry of the
+      // segment and don't add the new entry.
+      long usedMemory = runtime.totalMemory() - runtime.freeMemory();
+      if (usedMemory > maxAllowedMemory)
+      {
+        if (segment.remove(entryDN) == null)
+        {
+          segment.evict();
+        }
+      }
+      else
+      {
+        segment.add(cacheEntry);
+        while (segment.dnMap.size() > maxEntriesPerSegment && segment.evict())
+        {
+          // Keep evicting until the segment is within its share of the limit.
+        }
+      }
+
+      // We'll always return true in this case, even if we didn't actually add
+      // the entry due to memory constraints.
+      return true;
+    }
+    catch (Exception e)
+    {
+      logger.traceException(e);
+
+      // We can't be sure there wasn't a conflict, so return false.
+      return false;
+    }
+    finally
+    {
+      segment.lock.unlock();
+    }
+  }
+
+  @Override
+  public void removeEntry(DN entryDN)
+  {
+    // We should not return until the entry is removed, so block until we can
+    // obtain the segment lock.
+    final Segment segment = getSegment(entryDN);
+    segment.lock.lock();
+    try
+    {
+      segment.remove(entryDN);
+    }
+    finally
+    {
+      segment.lock.unlock();
+    }
+  }
+
+  @Override
+  public void clear()
+  {
+    // Lock all the segments, always in the same order, so that the DN and ID
+    // maps are cleared consistently.
+    for (Segment segment : segments)
+    {
+      segment.lock.lock();
+    }
+    try
+    {
+      for (Segment segment : segments)
+      {
+        segment.clear();
+      }
+      idMap.clear();
+    }
+    finally
+    {
+      for (Segment segment : segments)
+      {
+        segment.lock.unlock();
+      }
+    }
+  }
+
+  @Override
+  public void clearBackend(String backendID)
+  {
+    // Remove all references to entries for this backend from the ID cache.
+    final Map<Long, CacheEntry> map = idMap.remove(backendID);
+    if (map == null)
+    {
+      // No entries were in the cache for this backend, so we can return
+      // without doing anything.
+      return;
+    }
+
+    // Then remove the entries from their segments, one segment lock at a time
+    // so that this doesn't become a stop-the-world event for the cache.
+    for (CacheEntry cacheEntry : map.values())
+    {
+      final DN entryDN = cacheEntry.getDN();
+      final Segment segment = getSegment(entryDN);
+      segment.lock.lock();
+      try
+      {
+        final Node node = segment.dnMap.get(entryDN);
+        if (node != null && node.cacheEntry == cacheEntry)
+        {
+          segment.remove(entryDN);
+        }
+      }
+      finally
+      {
+        segment.lock.unlock();
+      }
+    }
+  }
+
+  @Override
+  public void handleLowMemory()
+  {
+    // See how many entries are in the cache.  If there are less than 1000,
+    // then we'll dump all of them.  Otherwise, we'll dump 10% of the entries.
+    if (getCacheCount() < 1000)
+    {
+      clear();
+      return;
+    }
+
+    for (Segment segment : segments)
+    {
+      segment.lock.lock();
+      try
+      {
+        int numToDrop = segment.dnMap.size() / 10;
+        while (numToDrop > 0 && segment.evict())
+        {
+          numToDrop--;
+        }
+      }
+      finally
+      {
+        segment.lock.unlock();
+      }
+    }
+  }
+
+  @Override
+  public boolean isConfigurationAcceptable(EntryCacheCfg configuration,
+                                           List<LocalizableMessage> unacceptableReasons)
+  {
+    ConcurrentFIFOEntryCacheCfg config = (ConcurrentFIFOEntryCacheCfg) configuration;
+    return isConfigurationChangeAcceptable(config, unacceptableReasons);
+  }
+
+  @Override
+  public boolean isConfigurationChangeAcceptable(
+      ConcurrentFIFOEntryCacheCfg configuration,
+      List<LocalizableMessage> unacceptableReasons
+      )
+  {
+    boolean applyChanges = false;
+    EntryCacheCommon.ConfigErrorHandler errorHandler =
+      EntryCacheCommon.getConfigErrorHandler (
+          EntryCacheCommon.ConfigPhase.PHASE_ACCEPTABLE,
+          unacceptableReasons,
+          null
+        );
+    processEntryCacheConfig (configuration, applyChanges, errorHandler);
+
+    return errorHandler.getIsAcceptable();
+  }
+
+  @Override
+  public ConfigChangeResult applyConfigurationChange(ConcurrentFIFOEntryCacheCfg configuration)
+  {
+    boolean applyChanges = true;
+    List<LocalizableMessage> errorMessages = new ArrayList<>();
+    EntryCacheCommon.ConfigErrorHandler errorHandler =
+      EntryCacheCommon.getConfigErrorHandler (
+          EntryCacheCommon.ConfigPhase.PHASE_APPLY, null, errorMessages
+          );
+
+    // Do not apply changes unless this cache is enabled.
+    if (configuration.isEnabled()) {
+      processEntryCacheConfig (configuration, applyChanges, errorHandler);
+    }
+
+    final ConfigChangeResult changeResult = new ConfigChangeResult();
+    changeResult.setResultCode(errorHandler.getResultCode());
+    changeResult.setAdminActionRequired(errorHandler.getIsAdminActionRequired());
+    changeResult.getMessages().addAll(errorHandler.getErrorMessages());
+    return changeResult;
+  }
+
+  /**
+   * Parses the provided configuration and configure the entry cache.
+   *
+   * @param configuration  The new configuration containing the changes.
+   * @param applyChanges   If true then take into account the new configuration.
+   * @param errorHandler   An handler used to report errors.
+   *
+   * @return  <CODE>true</CODE> if configuration is acceptable,
+   *          or <CODE>false</CODE> otherwise.
+   */
+  private boolean processEntryCacheConfig(
+      ConcurrentFIFOEntryCacheCfg         configuration,
+      boolean                             applyChanges,
+      EntryCacheCommon.ConfigErrorHandler errorHandler
+      )
+  {
+    // Local variables to read configuration.
+    Set<SearchFilter> newIncludeFilters = null;
+    Set<SearchFilter> newExcludeFilters = null;
+
+    // Read configuration.
+    DN newConfigEntryDN = configuration.dn();
+    long newLockTimeout = configuration.getLockTimeout();
+    long newMaxEntries  = configuration.getMaxEntries();
+
+    // Maximum memory the cache can use.
+    int newMaxMemoryPercent  = configuration.getMaxMemoryPercent();
+    long maxJvmHeapSize      = Runtime.getRuntime().maxMemory();
+    long newMaxAllowedMemory = (maxJvmHeapSize / 100) * newMaxMemoryPercent;
+
+    // Get include and exclude filters.
+    switch (errorHandler.getConfigPhase())
+    {
+    case PHASE_INIT:
+    case PHASE_ACCEPTABLE:
+    case PHASE_APPLY:
+      newIncludeFilters = EntryCacheCommon.getFilters (
+          configuration.getIncludeFilter(),
+          ERR_CACHE_INVALID_INCLUDE_FILTER,
+          errorHandler,
+          newConfigEntryDN
+          );
+      newExcludeFilters = EntryCacheCommon.getFilters (
+          configuration.getExcludeFilter(),
+          ERR_CACHE_INVALID_EXCLUDE_FILTER,
+          errorHandler,
+          newConfigEntryDN
+          );
+      break;
+    }
+
+    if (applyChanges && errorHandler.getIsAcceptable())
+    {
+      maxEntries       = newMaxEntries;
+      // A limit of 0 means no limit.
+      maxEntriesPerSegment = newMaxEntries > 0
+          ? (newMaxEntries + segments.length - 1) / segments.length
+          : Long.MAX_VALUE;
+      maxAllowedMemory = newMaxAllowedMemory;
+      lockTimeout = newLockTimeout;
+      setIncludeFilters(newIncludeFilters);
+      setExcludeFilters(newExcludeFilters);
+      registeredConfiguration = configuration;
+    }
+
+    return errorHandler.getIsAcceptable();
+  }
+
+  @Override
+  public long getCacheHits()
+  {
+    long hits = cacheHits.longValue();
+    for (Segment segment : segments)
+    {
+      hits += segment.hits.sum();
+    }
+    return hits;
+  }
+
+  @Override
+  public long getCacheMisses()
+  {
+    long misses = cacheMisses.longValue();
+    for (Segment segment : segments)
+    {
+      misses += segment.misses.sum();
+    }
+    return misses;
+  }
+
+  @Override
+  public MonitorData getMonitorData()
+  {
+    try {
+      MonitorData monitorData = EntryCacheCommon.getGenericMonitorData(
+        getCacheHits(),
+        // If cache misses is maintained by default cache
+        // get it from there and if not point to itself.
+        DirectoryServer.getEntryCache().getCacheMisses(),
+        null,
+        maxAllowedMemory,
+        getCacheCount(),
+        Long.valueOf(
+            (maxEntries != Integer.MAX_VALUE && maxEntries != Long.MAX_VALUE) ? maxEntries : 0)
+        );
+      long evictions = 0;
+      for (int i = 0; i < segments.length; i++)
+      {
+        final Segment segment = segments[i];
+        final String prefix = "entryCacheSegment" + i;
+        monitorData.add(prefix + "Hits", segment.hits.sum());
+        monitorData.add(prefix + "Misses", segment.misses.sum());
+        monitorData.add(prefix + "Evictions", segment.evictions.sum());
+        monitorData.add(prefix + "Count", segment.dnMap.size());
+        evictions += segment.evictions.sum();
+      }
+      monitorData.add("entryCacheEvictions", evictions);
+      return monitorData;
+    } catch (Exception e) {
+      logger.traceException(e);
+      return new MonitorData(0);
+    }
+  }
+
+  @Override
+  public Long getCacheCount()
+  {
+    long count = 0;
+    for (Segment segment : segments)
+    {
+      count += segment.dnMap.size();
+    }
+    return count;
+  }
+
+  @Override
+  public String toVerboseString()
+  {
+    StringBuilder sb = new StringBuilder();
+
+    // The maps are concurrent, so they can be examined without locking, the
+    // result being weakly consistent.
+    for (Segment segment : segments)
+    {
+      for (Node node : segment.dnMap.values())
+      {
+        final CacheEntry cacheEntry = node.cacheEntry;
+        sb.append(cacheEntry.getDN());
+        sb.append(":");
+        sb.append(cacheEntry.getEntryID());
+        sb.append(":");
+        sb.append(cacheEntry.getBackendID());
+        sb.append(ServerConstants.EOL);
+      }
+    }
+
+    // See if there is anything on idMap that is not reflected on
+    // dnMap in case maps went out of sync.
+    for (Map.Entry<String, ConcurrentMap<Long, CacheEntry>> backendCache : idMap.entrySet()) {
+      final String backendID = backendCache.getKey();
+      for (Map.Entry<Long, CacheEntry> entry : backendCache.getValue().entrySet()) {
+        final CacheEntry cacheEntry = entry.getValue();
+        if (!containsEntry(cacheEntry.getDN())) {
+          sb.append(cacheEntry.getDN());
+          sb.append(":");
+          sb.append(entry.getKey());
+          sb.append(":");
+          sb.append(backendID);
+          sb.append(ServerConstants.EOL);
+        }
+      }
+    }
+
+    String verboseString = sb.toString();
+    return verboseString.length() > 0 ? verboseString : null;
+  }
+
+  private Segment getSegment(DN entryDN)
+  {
+    final int hashCode = entryDN.hashCode();
+    return segments[(hashCode ^ (hashCode >>> 16)) & (segments.length - 1)];
+  }
+
+  private void addToIdMap(CacheEntry cacheEntry)
+  {
+    ConcurrentMap<Long, CacheEntry> map = idMap.get(cacheEntry.getBackendID());
+    if (map == null)
+    {
+      final ConcurrentMap<Long, CacheEntry> newMap = new ConcurrentHashMap<>();
+      map = idMap.putIfAbsent(cacheEntry.getBackendID(), newMap);
+      if (map == null)
+      {
+        map = newMap;
+      }
+    }
+    map.put(cacheEntry.getEntryID(), cacheEntry);
+  }
+
+  /** Removes the entry from the ID map, unless the ID was reused for another entry. */
+  private void removeFromIdMap(CacheEntry cacheEntry)
+  {
+    final Map<Long, CacheEntry> map = idMap.get(cacheEntry.getBackendID());
+    if (map != null)
+    {
+      map.remove(cacheEntry.getEntryID(), cacheEntry);
+    }
+  }
+
+  /** Rounds the number of segments up to a power of 2 in order to easily map hash codes to segments. */
+  private static int getNumberOfSegments(int segmentCount)
+  {
+    final int maxSegmentCount = Math.min(Math.max(segmentCount, 1), MAX_SEGMENTS);
+    int powerOf2 = 1;
+    while (powerOf2 < maxSegmentCount)
+    {
+      powerOf2 <<= 1;
+    }
+    return powerOf2;
+  }
+}
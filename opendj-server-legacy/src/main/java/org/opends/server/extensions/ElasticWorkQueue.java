@@ -0,0 +1,413 @@
+/*
+ * The contents of this file are subject to the terms of the Common Development and
+ * Distribution License (the License). You may not use this file except in compliance with the
+ * License.
+ *
+ * You can obtain a copy of the License at legal/CDDLv1.0.txt. See the License for the
+ * specific language governing permission and limitations under the License.
+ *
+ * When distributing Covered Software, include this CDDL Header Notice in each file and include
+ * the License file at legal/CDDLv1.0.txt. If applicable, add the following below the CDDL
+ * Header, with the fields enclosed by brackets [] replaced by your own identifying
+ * information: "Portions Copyright [year] [name of copyright owner]".
+ *
+ * Copyright 2026 ForgeRock AS.
+ */
+package org.opends.server.extensions;
+
+import static org.opends.messages.ConfigMessages.*;
+
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+
+import org.forgerock.i18n.LocalizableMessage;
+import org.forgerock.i18n.slf4j.LocalizedLogger;
+import org.forgerock.opendj.config.server.ConfigChangeResult;
+import org.forgerock.opendj.config.server.ConfigException;
+import org.forgerock.opendj.config.server.ConfigurationChangeListener;
+import org.forgerock.opendj.server.config.server.ElasticWorkQueueCfg;
+import org.opends.server.core.DirectoryServer;
+import org.opends.server.monitors.ElasticWorkQueueMonitor;
+import org.opends.server.types.InitializationException;
+import org.opends.server.types.Operation;
+
+/**
+ * A work queue which starts additional worker threads when all the worker threads are busy, up to a maximum number
+ * of concurrent operations.
+ * <p>
+ * With the {@link TraditionalWorkQueue}, operations blocked in a backend or waiting for a remote server, like
+ * pass-through authentication binds, hold one of a fixed number of worker threads and can starve unrelated fast
+ * operations. This work queue keeps {@code num-worker-threads} threads alive and starts a new worker thread whenever an
+ * operation is submitted while no worker thread is idle, so that each operation gets its own thread as long as
+ * {@code max-concurrent-operations} is not reached. The additional worker threads exit once they have been idle for
+ * {@code worker-thread-keep-alive}.
+ */
+public class ElasticWorkQueue extends AbstractWorkQueue<ElasticWorkQueueCfg, ElasticWorkerThread>
+    implements ConfigurationChangeListener<ElasticWorkQueueCfg>
+{
+  private static final LocalizedLogger logger = LocalizedLogger.getLoggerForThisClass();
+
+  /** The queue of operations waiting for a worker thread. */
+  private final LinkedBlockingQueue<Operation> opQueue = new LinkedBlockingQueue<>();
+
+  /** The set of worker threads currently alive. */
+  private final Set<ElasticWorkerThread> workerThreads = new HashSet<>();
+
+  /** The number of worker threads currently alive, including the ones being started. */
+  private final AtomicInteger numThreads = new AtomicInteger();
+
+  /** The number of worker threads waiting for an operation. */
+  private final AtomicInteger numIdleThreads = new AtomicInteger();
+
+  /** The number of worker threads processing an operation. */
+  private final AtomicInteger numBusyThreads = new AtomicInteger();
+
+  /** The highest number of worker threads alive at the same time since startup. */
+  private final AtomicInteger peakThreads = new AtomicInteger();
+
+  /** The number of worker threads started since startup. */
+  private final AtomicLong threadsStarted = new AtomicLong();
+
+  /** The thread number used for the last worker thread that was created. */
+  private final AtomicInteger lastThreadNumber = new AtomicInteger();
+
+  /** The number of worker threads kept alive even when they are idle. */
+  private volatile int numWorkerThreads;
+
+  /** The maximum number of worker threads, which is never lower than the number of worker threads. */
+  private volatile int maxThreads;
+
+  /** How long, in milliseconds, the worker threads in excess wait for an operation before exiting. */
+  private volatile long keepAliveMillis;
+
+  /**
+   * Creates a new instance of this work queue. All initialization should be
+   * performed in the <CODE>initializeWorkQueue</CODE> method.
+   */
+  public ElasticWorkQueue()
+  {
+    // No implementation should be performed here.
+  }
+
+  @Override
+  public void initializeWorkQueue(ElasticWorkQueueCfg configuration)
+      throws ConfigException, InitializationException
+  {
+    clearShutdownRequest();
+
+    // Register to be notified of any configuration changes.
+    configuration.addElasticChangeListener(this);
+
+    // Get the necessary configuration from the provided entry.
+    applyConfiguration(configuration);
+
+    // Create the worker threads that are kept alive even when idle.
+    startWorkerThreads(numWorkerThreads);
+
+    // Create and register a monitor provider for the work queue.
+    try
+    {
+      ElasticWorkQueueMonitor monitor = new ElasticWorkQueueMonitor(this);
+      monitor.initializeMonitorProvider(null);
+      DirectoryServer.registerMonitorProvider(monitor);
+    }
+    catch (Exception e)
+    {
+      logger.traceException(e);
+      logger.error(ERR_CONFIG_WORK_QUEUE_CANNOT_CREATE_MONITOR, ElasticWorkQueueMonitor.class, e);
+    }
+  }
+
+  private void applyConfiguration(ElasticWorkQueueCfg configuration)
+  {
+    numWorkerThreads = computeNumWorkerThreads(configuration.getNumWorkerThreads());
+    maxThreads = Math.max(numWorkerThreads, configuration.getMaxConcurrentOperations());
+    keepAliveMillis = configuration.getWorkerThreadKeepAlive();
+    setMaxCapacity(configuration.getMaxWorkQueueCapacity());
+  }
+
+  /** Starts worker threads until the provided number of worker threads are alive. */
+  private void startWorkerThreads(int minThreads)
+  {
+    while (tryReserveWorkerThread(minThreads))
+    {
+      startWorkerThread();
+    }
+  }
+
+  /** Starts a new worker thread if all the worker threads are busy and the maximum is not reached. */
+  private void startWorkerThreadIfNeeded()
+  {
+    if (numIdleThreads.get() == 0 && tryReserveWorkerThread(maxThreads))
+    {
+      startWorkerThread();
+    }
+  }
+
+  private boolean tryReserveWorkerThread(int limit)
+  {
+    int n;
+    do
+    {
+      n = numThreads.get();
+      if (n >= limit || shutdownRequested())
+      {
+        return false;
+      }
+    }
+    while (!numThreads.compareAndSet(n, n + 1));
+
+    int peak;
+    while ((peak = peakThreads.get()) < n + 1 && !peakThreads.compareAndSet(peak, n + 1))
+    {
+      // Try again
+    }
+    return true;
+  }
+
+  private void startWorkerThread()
+  {
+    try
+    {
+      ElasticWorkerThread t = new ElasticWorkerThread(this, lastThreadNumber.getAndIncrement());
+      synchronized (workerThreads)
+      {
+        workerThreads.add(t);
+      }
+      t.start();
+      threadsStarted.incrementAndGet();
+    }
+    catch (RuntimeException | OutOfMemoryError e)
+    {
+      // The thread could not be created: give up the slot, the remaining threads will process the operations
+      numThreads.decrementAndGet();
+      logger.traceException(e);
+    }
+  }
+
+  /**
+   * Removes the provided worker thread if there are more worker threads than the provided limit.
+   *
+   * @return {@code true} if the worker thread must exit
+   */
+  private boolean tryRetireWorkerThread(ElasticWorkerThread workerThread, int limit)
+  {
+    int n;
+    do
+    {
+      n = numThreads.get();
+      if (n <= limit)
+      {
+        return false;
+      }
+    }
+    while (!numThreads.compareAndSet(n, n - 1));
+
+    synchronized (workerThreads)
+    {
+      workerThreads.remove(workerThread);
+    }
+    workerThread.setStoppedByReducedThreadNumber();
+    return true;
+  }
+
+  @Override
+  protected Operation pollPendingOperation()
+  {
+    return opQueue.poll();
+  }
+
+  @Override
+  protected List<ElasticWorkerThread> getWorkerThreads()
+  {
+    synchronized (workerThreads)
+    {
+      return new ArrayList<>(workerThreads);
+    }
+  }
+
+  @Override
+  protected void enqueueOperation(Operation operation)
+  {
+    opQueue.offer(operation);
+    startWorkerThreadIfNeeded();
+  }
+
+  /**
+   * Retrieves the next operation that should be processed by one of the worker
+   * threads, blocking if necessary until a new request arrives. This method
+   * should only be called by a worker thread associated with this work queue.
+   *
+   * @param workerThread
+   *          The worker thread that is requesting the operation.
+   * @return The next operation that should be processed, or <CODE>null</CODE>
+   *         if the server is shutting down or if the worker thread must exit.
+   */
+  Operation nextOperation(ElasticWorkerThread workerThread)
+  {
+    return retryNextOperation(workerThread);
+  }
+
+  @Override
+  protected Operation waitForNextOperation(ElasticWorkerThread workerThread) throws InterruptedException
+  {
+    // Worker threads above the maximum exit as soon as they have completed
+    // their operation. This happens when the maximum has been decreased.
+    if (tryRetireWorkerThread(workerThread, maxThreads))
+    {
+      return null;
+    }
+
+    while (true)
+    {
+      numIdleThreads.incrementAndGet();
+      Operation nextOperation;
+      try
+      {
+        nextOperation = opQueue.poll(keepAliveMillis, TimeUnit.MILLISECONDS);
+      }
+      finally
+      {
+        numIdleThreads.decrementAndGet();
+      }
+
+      if (nextOperation != null)
+      {
+        releaseCapacity();
+        // Other operations may be waiting if the idle worker thread seen by
+        // their submitter has picked up this operation instead.
+        if (!opQueue.isEmpty())
+        {
+          startWorkerThreadIfNeeded();
+        }
+        return nextOperation;
+      }
+
+      // There was no work to do in the specified length of time. See if we
+      // should exit or check again.
+      if (shutdownRequested())
+      {
+        return null;
+      }
+      if (tryRetireWorkerThread(workerThread, numWorkerThreads))
+      {
+        // An operation may have been submitted while this thread was still seen as idle
+        if (!opQueue.isEmpty())
+        {
+          startWorkerThreadIfNeeded();
+        }
+        return null;
+      }
+    }
+  }
+
+  @Override
+  protected void workerThreadFailed(ElasticWorkerThread workerThread)
+  {
+    numThreads.decrementAndGet();
+    synchronized (workerThreads)
+    {
+      workerThreads.remove(workerThread);
+    }
+  }
+
+  /**
+   * Notifies this work queue that a worker thread has started or completed the processing of an operation.
+   *
+   * @param busy
+   *          {@code true} if the worker thread has started processing an operation, {@code false} if it has
+   *          completed the processing of an operation
+   */
+  void setBusy(boolean busy)
+  {
+    if (busy)
+    {
+      numBusyThreads.incrementAndGet();
+    }
+    else
+    {
+      numBusyThreads.decrementAndGet();
+    }
+  }
+
+  /**
+   * Retrieves the number of worker threads currently alive.
+   *
+   * @return The number of worker threads currently alive.
+   */
+  public int getCurrentWorkerThreads()
+  {
+    return numThreads.get();
+  }
+
+  /**
+   * Retrieves the number of worker threads currently processing an operation.
+   *
+   * @return The number of worker threads currently processing an operation.
+   */
+  public int getBusyWorkerThreads()
+  {
+    return numBusyThreads.get();
+  }
+
+  /**
+   * Retrieves the highest number of worker threads alive at the same time since startup.
+   *
+   * @return The highest number of worker threads alive at the same time since startup.
+   */
+  public int getPeakWorkerThreads()
+  {
+    return peakThreads.get();
+  }
+
+  /**
+   * Retrieves the number of worker threads started since startup.
+   *
+   * @return The number of worker threads started since startup.
+   */
+  public long getWorkerThreadsStarted()
+  {
+    return threadsStarted.get();
+  }
+
+  @Override
+  public boolean isConfigurationChangeAcceptable(
+      ElasticWorkQueueCfg configuration, List<LocalizableMessage> unacceptableReasons)
+  {
+    return true;
+  }
+
+  @Override
+  public ConfigChangeResult applyConfigurationChange(ElasticWorkQueueCfg configuration)
+  {
+    applyConfiguration(configuration);
+
+    // Worker threads in excess exit by themselves, but missing worker threads
+    // must be started now.
+    startWorkerThreads(numWorkerThreads);
+    return new ConfigChangeResult();
+  }
+
+  @Override
+  public boolean isIdle()
+  {
+    return size() == 0 && numBusyThreads.get() == 0;
+  }
+
+  /**
+   * Return the number of worker threads used by this WorkQueue.
+   *
+   * @return the number of worker threads used by this WorkQueue
+   */
+  @Override
+  public int getNumWorkerThreads()
+  {
+    return numWorkerThreads;
+  }
+}
@@ -63,21 +63,10 @@ public class IsMemberOfVirtualAttributeProvider
   @Override
   public Attribute getValues(Entry entry, VirtualAttributeRule rule)
   {
-	// FIXME -- This probably isn't the most efficient implementation.
     AttributeBuilder builder = new AttributeBuilder(rule.getAttributeType());
-    for (Group<?> g : DirectoryServer.getGroupManager().getGroupInstances())
+    for (Group<?> g : DirectoryServer.getGroupManager().getGroupInstancesForMember(entry))
     {
-      try
-      {
-        if (!builder.contains(ByteString.valueOfUtf8(g.getGroupDN().toString())) && g.isMember(entry))
-        {
-          builder.add(g.getGroupDN().toString());
-        }
-      }
-      catch (Exception e)
-      {
-        logger.traceException(e);
-      }
+      builder.add(g.getGroupDN().toString());
     }
     return builder.toAttribute();
   }
@@ -85,23 +74,7 @@ public class IsMemberOfVirtualAttributeProvider
   @Override
   public boolean hasValue(Entry entry, VirtualAttributeRule rule)
   {
-    // FIXME -- This probably isn't the most efficient implementation.
-    for (Group<?> g : DirectoryServer.getGroupManager().getGroupInstances())
-    {
-      try
-      {
-        if (g.isMember(entry))
-        {
-          return true;
-        }
-      }
-      catch (Exception e)
-      {
-        logger.traceException(e);
-      }
-    }
-
-    return false;
+    return !DirectoryServer.getGroupManager().getGroupInstancesForMember(entry).isEmpty();
   }
 
   @Override
@@ -112,7 +85,7 @@ public class IsMemberOfVirtualAttributeProvider
     {
       DN groupDN = DN.valueOf(value);
       Group<?> g = DirectoryServer.getGroupManager().getGroupInstance(groupDN);
-      return g != null && g.isMember(entry);
+      return g != null && DirectoryServer.getGroupManager().isMember(g, entry);
     }
     catch (Exception e)
     {
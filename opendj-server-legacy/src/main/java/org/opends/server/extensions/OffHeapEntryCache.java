@@ -0,0 +1,1197 @@
+/*
+ * The contents of this file are subject to the terms of the Common Development and
+ * Distribution License (the License). You may not use this file except in compliance with the
+ * License.
+ *
+ * You can obtain a copy of the License at legal/CDDLv1.0.txt. See the License for the
+ * specific language governing permission and limitations under the License.
+ *
+ * When distributing Covered Software, include this CDDL Header Notice in each file and include
+ * the License file at legal/CDDLv1.0.txt. If applicable, add the following below the CDDL
+ * Header, with the fields enclosed by brackets [] replaced by your own identifying
+ * information: "Portions Copyright [year] [name of copyright owner]".
+ *
+ * Copyright 2026 ForgeRock AS.
+ */
+package org.opends.server.extensions;
+
+import static org.opends.messages.ExtensionMessages.*;
+import static org.opends.server.util.StaticUtils.*;
+
+import java.nio.ByteBuffer;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.locks.ReentrantLock;
+
+import org.forgerock.i18n.LocalizableMessage;
+import org.forgerock.i18n.slf4j.LocalizedLogger;
+import org.forgerock.opendj.config.server.ConfigChangeResult;
+import org.forgerock.opendj.config.server.ConfigException;
+import org.forgerock.opendj.config.server.ConfigurationChangeListener;
+import org.forgerock.opendj.ldap.ByteString;
+import org.forgerock.opendj.ldap.ByteStringBuilder;
+import org.forgerock.opendj.ldap.DN;
+import org.forgerock.opendj.ldap.ResultCode;
+import org.forgerock.opendj.server.config.server.EntryCacheCfg;
+import org.forgerock.opendj.server.config.server.OffHeapEntryCacheCfg;
+import org.forgerock.util.Utils;
+import org.opends.server.api.CompressedSchema;
+import org.opends.server.api.EntryCache;
+import org.opends.server.api.MonitorData;
+import org.opends.server.core.DirectoryServer;
+import org.opends.server.core.ServerContext;
+import org.opends.server.types.Entry;
+import org.opends.server.types.EntryEncodeConfig;
+import org.opends.server.types.InitializationException;
+import org.opends.server.types.SearchFilter;
+import org.opends.server.util.ServerConstants;
+
+/**
+ * This class defines a Directory Server entry cache that keeps the cached
+ * entries outside of the JVM heap.
+ * <BR><BR>
+ * Entries are encoded with the compressed schema and copied into fixed size
+ * blocks of direct memory. An entry spans as many blocks as needed, which do
+ * not have to be contiguous, so the memory never gets fragmented and the cache
+ * never uses more than the configured amount of memory. Only the DN to blocks
+ * mapping remains on the heap.
+ * <BR><BR>
+ * Eviction follows the W-TinyLFU policy. New entries are added to a small LRU
+ * admission window. An entry leaving the window enters the main area, itself
+ * split between a probation and a protected LRU segment, only if it has been
+ * accessed more frequently than the main area entry that would be evicted to
+ * make room for it. Access frequencies are approximated by a count-min sketch
+ * which is periodically halved so that it reflects recent accesses. Entries
+ * read while on probation are promoted to the protected segment. This keeps
+ * the frequently accessed entries in the cache when large searches read
+ * entries only once.
+ */
+public class OffHeapEntryCache
+       extends EntryCache<OffHeapEntryCacheCfg>
+       implements ConfigurationChangeListener<OffHeapEntryCacheCfg>
+{
+  private static final LocalizedLogger logger = LocalizedLogger.getLoggerForThisClass();
+
+  /** The maximum size of each direct memory segment. */
+  private static final int MAX_SEGMENT_SIZE = 64 * 1024 * 1024;
+
+  /** The percentage of the cache memory used by the admission window. */
+  private static final int WINDOW_PERCENT = 1;
+
+  /** The percentage of the main area memory used by the protected segment. */
+  private static final int PROTECTED_PERCENT = 80;
+
+  /** The mapping between DNs and cached entries. */
+  private final Map<DN, Node> dnMap = new HashMap<>();
+
+  /** The mapping between entry backends/IDs and cached entries. */
+  private final Map<String, Map<Long, Node>> idMap = new HashMap<>();
+
+  /** Recently added entries, in LRU order. */
+  private final NodeList window = new NodeList();
+
+  /** Entries of the main area accessed only once since they were admitted, in LRU order. */
+  private final NodeList probation = new NodeList();
+
+  /** Entries of the main area accessed several times, in LRU order. */
+  private final NodeList protectedSegment = new NodeList();
+
+  /** The lock used to provide threadsafe access to the cache contents. */
+  private final ReentrantLock cacheLock = new ReentrantLock();
+
+  /** The direct memory holding the encoded entries. */
+  private BlockStore blockStore;
+
+  /** The access frequencies used to decide which entries are admitted. */
+  private FrequencySketch sketch;
+
+  /** The configuration used to encode the cached entries. */
+  private EntryEncodeConfig encodeConfig;
+
+  /** The compressed schema used to decode the cached entries. */
+  private CompressedSchema compressedSchema;
+
+  /** The number of entries evicted to make room for other entries. */
+  private long evictions;
+
+  /** The number of entries that were not admitted in the main area. */
+  private long admissionsRejected;
+
+  /** The maximum amount of memory used by the cache. */
+  private long maxMemorySize;
+
+  /** The maximum length of time to try to obtain a lock before giving up. */
+  private long lockTimeout = 2000;
+
+  /** Currently registered configuration object. */
+  private OffHeapEntryCacheCfg registeredConfiguration;
+
+  /** Creates a new instance of this off-heap entry cache. */
+  public OffHeapEntryCache()
+  {
+    super();
+    // All initialization should be performed in the initializeEntryCache.
+  }
+
+  @Override
+  public void initializeEntryCache(ServerContext serverContext, OffHeapEntryCacheCfg configuration)
+      throws ConfigException, InitializationException
+  {
+    registeredConfiguration = configuration;
+    configuration.addOffHeapChangeListener(this);
+
+    compressedSchema = DirectoryServer.getDefaultCompressedSchema();
+    encodeConfig = new EntryEncodeConfig(false, true, true, compressedSchema);
+
+    // Read configuration and apply changes.
+    boolean applyChanges = true;
+    List<LocalizableMessage> errorMessages = new ArrayList<>();
+    EntryCacheCommon.ConfigErrorHandler errorHandler =
+      EntryCacheCommon.getConfigErrorHandler (
+          EntryCacheCommon.ConfigPhase.PHASE_INIT, null, errorMessages
+          );
+    if (!processEntryCacheConfig(configuration, applyChanges, errorHandler)) {
+      String buffer = Utils.joinAsString(".  ", errorMessages);
+      throw new ConfigException(ERR_OFFHEAPCACHE_CANNOT_INITIALIZE.get(buffer));
+    }
+  }
+
+  @Override
+  public void finalizeEntryCache()
+  {
+    cacheLock.lock();
+    try
+    {
+      registeredConfiguration.removeOffHeapChangeListener(this);
+
+      // Drop the references to the direct memory so that it can be reclaimed.
+      clearContents();
+      blockStore = null;
+    }
+    finally
+    {
+      cacheLock.unlock();
+    }
+  }
+
+  @Override
+  public boolean containsEntry(DN entryDN)
+  {
+    if (entryDN == null) {
+      return false;
+    }
+
+    cacheLock.lock();
+    try
+    {
+      return dnMap.containsKey(entryDN);
+    }
+    finally
+    {
+      cacheLock.unlock();
+    }
+  }
+
+  @Override
+  public Entry getEntry(DN entryDN)
+  {
+    final Node node;
+    final byte[] encodedEntry;
+    cacheLock.lock();
+    try
+    {
+      // Misses are recorded as well, so that an entry read often
+      // gets admitted as soon as it is put in the cache.
+      final int hash = hash(entryDN);
+      sketch.increment(hash);
+
+      node = dnMap.get(entryDN);
+      if (node == null)
+      {
+        cacheMisses.getAndIncrement();
+        return null;
+      }
+      onAccess(node);
+      encodedEntry = blockStore.read(node);
+    }
+    finally
+    {
+      cacheLock.unlock();
+    }
+
+    // Decode outside of the lock: this is the expensive part.
+    try
+    {
+      Entry entry = Entry.decode(ByteString.wrap(encodedEntry).asReader(), compressedSchema);
+      cacheHits.getAndIncrement();
+      return entry;
+    }
+    catch (Exception e)
+    {
+      logger.traceException(e);
+
+      // The cached entry cannot be used, get rid of it.
+      removeNodeIfCached(node);
+      cacheMisses.getAndIncrement();
+      return null;
+    }
+  }
+
+  /**
+   * Removes the provided node, unless it has been replaced or removed meanwhile: the entry put concurrently for the
+   * same DN must be kept.
+   */
+  private void removeNodeIfCached(Node node)
+  {
+    cacheLock.lock();
+    try
+    {
+      if (dnMap.get(node.dn) == node)
+      {
+        removeNode(node);
+      }
+    }
+    finally
+    {
+      cacheLock.unlock();
+    }
+  }
+
+  @Override
+  public long getEntryID(DN entryDN)
+  {
+    cacheLock.lock();
+    try
+    {
+      Node node = dnMap.get(entryDN);
+      return node != null ? node.entryID : -1;
+    }
+    finally
+    {
+      cacheLock.unlock();
+    }
+  }
+
+  @Override
+  public DN getEntryDN(String backendID, long entryID)
+  {
+    cacheLock.lock();
+    try
+    {
+      Map<Long, Node> backendMap = idMap.get(backendID);
+      if (backendMap != null)
+      {
+        Node node = backendMap.get(entryID);
+        if (node != null)
+        {
+          return node.dn;
+        }
+      }
+      return null;
+    }
+    finally
+    {
+      cacheLock.unlock();
+    }
+  }
+
+  @Override
+  public void putEntry(Entry entry, String backendID, long entryID)
+  {
+    putEntry(entry, backendID, entryID, false);
+  }
+
+  @Override
+  public boolean putEntryIfAbsent(Entry entry, String backendID, long entryID)
+  {
+    return putEntry(entry, backendID, entryID, true);
+  }
+
+  /**
+   * Stores the provided entry in the cache.
+   *
+   * @param entry      The entry to store in the cache.
+   * @param backendID  ID of the backend with which the entry is associated.
+   * @param entryID    The entry ID within the provided backend that uniquely
+   *                   identifies the specified entry.
+   * @param ifAbsent   Indicates whether the entry must not replace an entry
+   *                   already in the cache.
+   * @return  {@code false} if the entry was not stored because another entry
+   *          with the same DN is already cached or if a conflict cannot be
+   *          ruled out, {@code true} otherwise, even if the entry was not
+   *          admitted in the cache.
+   */
+  private boolean putEntry(Entry entry, String backendID, long entryID, boolean ifAbsent)
+  {
+    // Encode outside of the lock.
+    ByteStringBuilder buffer = new ByteStringBuilder();
+    try
+    {
+      entry.encode(buffer, encodeConfig);
+    }
+    catch (Exception e)
+    {
+      logger.traceException(e);
+      return !ifAbsent;
+    }
+
+    // Obtain a lock on the cache.  If this fails, then don't do anything.
+    try
+    {
+      if (!cacheLock.tryLock(lockTimeout, TimeUnit.MILLISECONDS))
+      {
+        return false;
+      }
+    }
+    catch (InterruptedException e)
+    {
+      logger.traceException(e);
+      Thread.currentThread().interrupt();
+      return false;
+    }
+
+    try
+    {
+      final DN entryDN = entry.getName();
+      Node node = dnMap.get(entryDN);
+      if (node != null)
+      {
+        if (ifAbsent)
+        {
+          return false;
+        }
+        removeNode(node);
+      }
+
+      final int hash = hash(entryDN);
+      sketch.increment(hash);
+
+      final int nbBlocks = blockStore.blocksFor(buffer.length());
+      if (nbBlocks > getMainMaxBlocks())
+      {
+        // This entry would evict most of the cache, do not even try.
+        return true;
+      }
+
+      makeRoom(nbBlocks);
+      int[] blocks = blockStore.allocate(nbBlocks);
+      if (blocks == null)
+      {
+        return true;
+      }
+      blockStore.write(blocks, buffer.getBackingArray(), buffer.length());
+
+      node = new Node(entryDN, hash, backendID, entryID, blocks, buffer.length());
+      dnMap.put(entryDN, node);
+      Map<Long, Node> backendMap = idMap.get(backendID);
+      if (backendMap == null)
+      {
+        backendMap = new HashMap<>();
+        idMap.put(backendID, backendMap);
+      }
+      backendMap.put(entryID, node);
+      node.region = Region.WINDOW;
+      window.addLast(node);
+      return true;
+    }
+    catch (Exception e)
+    {
+      logger.traceException(e);
+
+      // We can't be sure there wasn't a conflict, so return false.
+      return false;
+    }
+    finally
+    {
+      cacheLock.unlock();
+    }
+  }
+
+  @Override
+  public void removeEntry(DN entryDN)
+  {
+    // We should not return until the entry is removed, so block until we get the lock.
+    cacheLock.lock();
+    try
+    {
+      Node node = dnMap.get(entryDN);
+      if (node != null)
+      {
+        removeNode(node);
+      }
+    }
+    finally
+    {
+      cacheLock.unlock();
+    }
+  }
+
+  @Override
+  public void clear()
+  {
+    cacheLock.lock();
+    try
+    {
+      clearContents();
+    }
+    finally
+    {
+      cacheLock.unlock();
+    }
+  }
+
+  @Override
+  public void clearBackend(String backendID)
+  {
+    cacheLock.lock();
+    try
+    {
+      Map<Long, Node> backendMap = idMap.get(backendID);
+      if (backendMap != null)
+      {
+        // removeNode() updates the backend map, so iterate over a copy.
+        for (Node node : new ArrayList<>(backendMap.values()))
+        {
+          removeNode(node);
+        }
+        idMap.remove(backendID);
+      }
+    }
+    finally
+    {
+      cacheLock.unlock();
+    }
+  }
+
+  @Override
+  public void handleLowMemory()
+  {
+    // The cached entries do not use heap memory, but their DNs and the
+    // blocks indexes do. Drop 10% of the entries, or all of them if there
+    // are less than 1000, starting with the least valuable ones.
+    cacheLock.lock();
+    try
+    {
+      int numEntries = dnMap.size();
+      if (numEntries < 1000)
+      {
+        clearContents();
+        return;
+      }
+
+      for (int numToDrop = numEntries / 10; numToDrop > 0; numToDrop--)
+      {
+        evict(nextVictim());
+      }
+    }
+    finally
+    {
+      cacheLock.unlock();
+    }
+  }
+
+  @Override
+  public boolean isConfigurationAcceptable(EntryCacheCfg configuration,
+                                           List<LocalizableMessage> unacceptableReasons)
+  {
+    OffHeapEntryCacheCfg config = (OffHeapEntryCacheCfg) configuration;
+    return isConfigurationChangeAcceptable(config, unacceptableReasons);
+  }
+
+  @Override
+  public boolean isConfigurationChangeAcceptable(
+      OffHeapEntryCacheCfg configuration,
+      List<LocalizableMessage> unacceptableReasons
+      )
+  {
+    boolean applyChanges = false;
+    EntryCacheCommon.ConfigErrorHandler errorHandler =
+      EntryCacheCommon.getConfigErrorHandler (
+          EntryCacheCommon.ConfigPhase.PHASE_ACCEPTABLE,
+          unacceptableReasons,
+          null
+        );
+    processEntryCacheConfig (configuration, applyChanges, errorHandler);
+
+    return errorHandler.getIsAcceptable();
+  }
+
+  @Override
+  public ConfigChangeResult applyConfigurationChange(OffHeapEntryCacheCfg configuration)
+  {
+    boolean applyChanges = true;
+    List<LocalizableMessage> errorMessages = new ArrayList<>();
+    EntryCacheCommon.ConfigErrorHandler errorHandler =
+      EntryCacheCommon.getConfigErrorHandler (
+          EntryCacheCommon.ConfigPhase.PHASE_APPLY, null, errorMessages
+          );
+
+    // Do not apply changes unless this cache is enabled.
+    if (configuration.isEnabled()) {
+      processEntryCacheConfig (configuration, applyChanges, errorHandler);
+    }
+
+    final ConfigChangeResult changeResult = new ConfigChangeResult();
+    changeResult.setResultCode(errorHandler.getResultCode());
+    changeResult.setAdminActionRequired(errorHandler.getIsAdminActionRequired());
+    changeResult.getMessages().addAll(errorHandler.getErrorMessages());
+    return changeResult;
+  }
+
+  /**
+   * Parses the provided configuration and configure the entry cache.
+   *
+   * @param configuration  The new configuration containing the changes.
+   * @param applyChanges   If true then take into account the new configuration.
+   * @param errorHandler   An handler used to report errors.
+   *
+   * @return  <CODE>true</CODE> if configuration is acceptable,
+   *          or <CODE>false</CODE> otherwise.
+   */
+  private boolean processEntryCacheConfig(
+      OffHeapEntryCacheCfg                configuration,
+      boolean                             applyChanges,
+      EntryCacheCommon.ConfigErrorHandler errorHandler
+      )
+  {
+    // Local variables to read configuration.
+    Set<SearchFilter> newIncludeFilters = null;
+    Set<SearchFilter> newExcludeFilters = null;
+
+    // Read configuration.
+    DN newConfigEntryDN = configuration.dn();
+    long newLockTimeout = configuration.getLockTimeout();
+    long newMaxMemorySize = configuration.getMaxMemorySize();
+    int newBlockSize = (int) configuration.getMemoryBlockSize();
+
+    long newMaxBlocks = newMaxMemorySize / newBlockSize;
+    if (newMaxBlocks > Integer.MAX_VALUE)
+    {
+      errorHandler.reportError(
+          ERR_OFFHEAPCACHE_TOO_MANY_BLOCKS.get(newConfigEntryDN, newMaxMemorySize, newBlockSize, Integer.MAX_VALUE),
+          false, ResultCode.UNWILLING_TO_PERFORM);
+    }
+
+    // Get include and exclude filters.
+    switch (errorHandler.getConfigPhase())
+    {
+    case PHASE_INIT:
+    case PHASE_ACCEPTABLE:
+    case PHASE_APPLY:
+      newIncludeFilters = EntryCacheCommon.getFilters (
+          configuration.getIncludeFilter(),
+          ERR_CACHE_INVALID_INCLUDE_FILTER,
+          errorHandler,
+          newConfigEntryDN
+          );
+      newExcludeFilters = EntryCacheCommon.getFilters (
+          configuration.getExcludeFilter(),
+          ERR_CACHE_INVALID_EXCLUDE_FILTER,
+          errorHandler,
+          newConfigEntryDN
+          );
+      break;
+    }
+
+    if (applyChanges && errorHandler.getIsAcceptable())
+    {
+      cacheLock.lock();
+      try
+      {
+        if (blockStore == null
+            || blockStore.blockSize != newBlockSize
+            || maxMemorySize != newMaxMemorySize)
+        {
+          // The cached entries cannot be moved to the new memory layout.
+          clearContents();
+          blockStore = new BlockStore(newConfigEntryDN, newBlockSize, (int) newMaxBlocks);
+          sketch = new FrequencySketch(newMaxBlocks);
+          maxMemorySize = newMaxMemorySize;
+        }
+        lockTimeout = newLockTimeout;
+        setIncludeFilters(newIncludeFilters);
+        setExcludeFilters(newExcludeFilters);
+        registeredConfiguration = configuration;
+      }
+      finally
+      {
+        cacheLock.unlock();
+      }
+    }
+
+    return errorHandler.getIsAcceptable();
+  }
+
+  @Override
+  public MonitorData getMonitorData()
+  {
+    try {
+      cacheLock.lock();
+      try
+      {
+        MonitorData monitorData = EntryCacheCommon.getGenericMonitorData(
+            cacheHits.longValue(),
+            // If cache misses is maintained by default cache
+            // get it from there and if not point to itself.
+            DirectoryServer.getEntryCache().getCacheMisses(),
+            blockStore.getUsedBytes(),
+            maxMemorySize,
+            Long.valueOf(dnMap.size()),
+            null);
+        monitorData.add("entryCacheEvictions", evictions);
+        monitorData.add("entryCacheAdmissionsRejected", admissionsRejected);
+        return monitorData;
+      }
+      finally
+      {
+        cacheLock.unlock();
+      }
+    } catch (Exception e) {
+      logger.traceException(e);
+      return new MonitorData(0);
+    }
+  }
+
+  @Override
+  public Long getCacheCount()
+  {
+    cacheLock.lock();
+    try
+    {
+      return Long.valueOf(dnMap.size());
+    }
+    finally
+    {
+      cacheLock.unlock();
+    }
+  }
+
+  @Override
+  public String toVerboseString()
+  {
+    StringBuilder sb = new StringBuilder();
+
+    cacheLock.lock();
+    try
+    {
+      for (Node node : dnMap.values())
+      {
+        sb.append(node.dn);
+        sb.append(":");
+        sb.append(node.entryID);
+        sb.append(":");
+        sb.append(node.backendID);
+        sb.append(ServerConstants.EOL);
+      }
+    }
+    finally
+    {
+      cacheLock.unlock();
+    }
+
+    String verboseString = sb.toString();
+    return verboseString.length() > 0 ? verboseString : null;
+  }
+
+  /**
+   * Returns the number of bytes of direct memory currently used to store entries.
+   *
+   * @return the number of bytes of direct memory currently used to store entries
+   */
+  long getUsedMemorySize()
+  {
+    cacheLock.lock();
+    try
+    {
+      return blockStore.getUsedBytes();
+    }
+    finally
+    {
+      cacheLock.unlock();
+    }
+  }
+
+  /** Maintains the LRU orders and promotes entries on probation. Must be called with the lock held. */
+  private void onAccess(Node node)
+  {
+    switch (node.region)
+    {
+    case WINDOW:
+      window.moveToLast(node);
+      break;
+
+    case PROBATION:
+      probation.remove(node);
+      node.region = Region.PROTECTED;
+      protectedSegment.addLast(node);
+      final long maxProtectedBlocks = getMainMaxBlocks() * PROTECTED_PERCENT / 100;
+      while (protectedSegment.blocks > maxProtectedBlocks)
+      {
+        Node demoted = protectedSegment.first;
+        protectedSegment.remove(demoted);
+        demoted.region = Region.PROBATION;
+        probation.addLast(demoted);
+      }
+      break;
+
+    case PROTECTED:
+      protectedSegment.moveToLast(node);
+      break;
+
+    default:
+      break;
+    }
+  }
+
+  /**
+   * Makes room for a new entry of the provided size, moving the window
+   * overflow into the main area and evicting entries as needed. Must be
+   * called with the lock held.
+   */
+  private void makeRoom(int nbBlocks)
+  {
+    final long maxWindowBlocks = getWindowMaxBlocks();
+    while (window.first != null && window.blocks + nbBlocks > maxWindowBlocks)
+    {
+      Node candidate = window.first;
+      window.remove(candidate);
+      candidate.region = Region.NONE;
+      admit(candidate);
+    }
+
+    while (blockStore.getAvailableBlocks() < nbBlocks)
+    {
+      Node victim = nextVictim();
+      if (victim == null)
+      {
+        break;
+      }
+      evict(victim);
+    }
+  }
+
+  /**
+   * Moves the provided entry evicted from the window into the main area if it
+   * is accessed more frequently than the entries it would replace, or evicts
+   * it. Must be called with the lock held.
+   */
+  private void admit(Node candidate)
+  {
+    final long maxMainBlocks = getMainMaxBlocks();
+    final int candidateFrequency = sketch.frequency(candidate.hash);
+    while (probation.blocks + protectedSegment.blocks + candidate.blocks.length > maxMainBlocks)
+    {
+      Node victim = probation.first != null ? probation.first : protectedSegment.first;
+      if (victim == null)
+      {
+        break;
+      }
+      if (candidateFrequency <= sketch.frequency(victim.hash))
+      {
+        admissionsRejected++;
+        evict(candidate);
+        return;
+      }
+      evict(victim);
+    }
+    candidate.region = Region.PROBATION;
+    probation.addLast(candidate);
+  }
+
+  /** Returns the least valuable cached entry, or {@code null} if the cache is empty. */
+  private Node nextVictim()
+  {
+    if (probation.first != null)
+    {
+      return probation.first;
+    }
+    return window.first != null ? window.first : protectedSegment.first;
+  }
+
+  private void evict(Node node)
+  {
+    evictions++;
+    removeNode(node);
+  }
+
+  /** Removes the provided entry from the cache and releases its memory. Must be called with the lock held. */
+  private void removeNode(Node node)
+  {
+    switch (node.region)
+    {
+    case WINDOW:
+      window.remove(node);
+      break;
+    case PROBATION:
+      probation.remove(node);
+      break;
+    case PROTECTED:
+      protectedSegment.remove(node);
+      break;
+    default:
+      break;
+    }
+    node.region = Region.NONE;
+
+    dnMap.remove(node.dn);
+    Map<Long, Node> backendMap = idMap.get(node.backendID);
+    if (backendMap != null)
+    {
+      backendMap.remove(node.entryID);
+      if (backendMap.isEmpty())
+      {
+        idMap.remove(node.backendID);
+      }
+    }
+    blockStore.free(node.blocks);
+  }
+
+  /** Removes all the cached entries. Must be called with the lock held. */
+  private void clearContents()
+  {
+    dnMap.clear();
+    idMap.clear();
+    window.clear();
+    probation.clear();
+    protectedSegment.clear();
+    if (blockStore != null)
+    {
+      blockStore.clear();
+    }
+  }
+
+  private long getWindowMaxBlocks()
+  {
+    return Math.max(1, (long) blockStore.maxBlocks * WINDOW_PERCENT / 100);
+  }
+
+  private long getMainMaxBlocks()
+  {
+    return blockStore.maxBlocks - getWindowMaxBlocks();
+  }
+
+  private static int hash(DN dn)
+  {
+    int h = dn.hashCode();
+    h = ((h >>> 16) ^ h) * 0x45d9f3b;
+    h = ((h >>> 16) ^ h) * 0x45d9f3b;
+    return (h >>> 16) ^ h;
+  }
+
+  /** The cache areas an entry can belong to. */
+  private enum Region
+  {
+    NONE, WINDOW, PROBATION, PROTECTED
+  }
+
+  /** A cached entry: its keys and the location of its encoded form in direct memory. */
+  private static final class Node
+  {
+    private final DN dn;
+    private final int hash;
+    private final String backendID;
+    private final long entryID;
+    private final int[] blocks;
+    private final int length;
+    private Region region = Region.NONE;
+    private Node previous;
+    private Node next;
+
+    private Node(DN dn, int hash, String backendID, long entryID, int[] blocks, int length)
+    {
+      this.dn = dn;
+      this.hash = hash;
+      this.backendID = backendID;
+      this.entryID = entryID;
+      this.blocks = blocks;
+      this.length = length;
+    }
+  }
+
+  /** A doubly linked list of nodes, from the least to the most recently used, tracking their number of blocks. */
+  private static final class NodeList
+  {
+    private Node first;
+    private Node last;
+    private long blocks;
+
+    private void addLast(Node node)
+    {
+      node.previous = last;
+      node.next = null;
+      if (last == null)
+      {
+        first = node;
+      }
+      else
+      {
+        last.next = node;
+      }
+      last = node;
+      blocks += node.blocks.length;
+    }
+
+    private void remove(Node node)
+    {
+      if (node.previous == null)
+      {
+        first = node.next;
+      }
+      else
+      {
+        node.previous.next = node.next;
+      }
+      if (node.next == null)
+      {
+        last = node.previous;
+      }
+      else
+      {
+        node.next.previous = node.previous;
+      }
+      node.previous = null;
+      node.next = null;
+      blocks -= node.blocks.length;
+    }
+
+    private void moveToLast(Node node)
+    {
+      if (node != last)
+      {
+        remove(node);
+        addLast(node);
+      }
+    }
+
+    private void clear()
+    {
+      first = null;
+      last = null;
+      blocks = 0;
+    }
+  }
+
+  /**
+   * Fixed size blocks of direct memory. The memory is allocated by segments
+   * the first time their blocks are needed, and is then reused until the
+   * cache is reconfigured or finalized.
+   */
+  private static final class BlockStore
+  {
+    private final DN configEntryDN;
+    private final int blockSize;
+    private final int blocksPerSegment;
+    private final List<ByteBuffer> segments = new ArrayList<>();
+    /** The maximum number of blocks, lowered if direct memory runs out. */
+    private int maxBlocks;
+    /** The number of blocks which have been used at least once. */
+    private int nextBlock;
+    /** Released blocks, available for reuse. */
+    private int[] freeBlocks = new int[16];
+    private int nbFreeBlocks;
+
+    private BlockStore(DN configEntryDN, int blockSize, int maxBlocks)
+    {
+      this.configEntryDN = configEntryDN;
+      this.blockSize = blockSize;
+      this.maxBlocks = maxBlocks;
+      this.blocksPerSegment = Math.min(Math.max(1, MAX_SEGMENT_SIZE / blockSize), maxBlocks);
+    }
+
+    private int blocksFor(int length)
+    {
+      return Math.max(1, (length + blockSize - 1) / blockSize);
+    }
+
+    private int getAvailableBlocks()
+    {
+      return maxBlocks - nextBlock + nbFreeBlocks;
+    }
+
+    private long getUsedBytes()
+    {
+      return (long) (nextBlock - nbFreeBlocks) * blockSize;
+    }
+
+    /** Returns the allocated blocks, or {@code null} if the direct memory could not be allocated. */
+    private int[] allocate(int nbBlocks)
+    {
+      if (getAvailableBlocks() < nbBlocks)
+      {
+        return null;
+      }
+      int[] blocks = new int[nbBlocks];
+      int i = 0;
+      while (i < nbBlocks && nbFreeBlocks > 0)
+      {
+        blocks[i++] = freeBlocks[--nbFreeBlocks];
+      }
+      while (i < nbBlocks)
+      {
+        if (nextBlock == segments.size() * (long) blocksPerSegment && !allocateSegment())
+        {
+          free(Arrays.copyOf(blocks, i));
+          return null;
+        }
+        blocks[i++] = nextBlock++;
+      }
+      return blocks;
+    }
+
+    private boolean allocateSegment()
+    {
+      final int segmentBlocks = Math.min(blocksPerSegment, maxBlocks - nextBlock);
+      final long segmentSize = (long) segmentBlocks * blockSize;
+      try
+      {
+        segments.add(ByteBuffer.allocateDirect((int) segmentSize));
+        return true;
+      }
+      catch (OutOfMemoryError e)
+      {
+        // Keep working with the memory which has been allocated so far.
+        logger.error(ERR_OFFHEAPCACHE_CANNOT_ALLOCATE_MEMORY, configEntryDN, segmentSize,
+            stackTraceToSingleLineString(e));
+        maxBlocks = nextBlock;
+        return false;
+      }
+    }
+
+    private void free(int[] blocks)
+    {
+      if (nbFreeBlocks + blocks.length > freeBlocks.length)
+      {
+        freeBlocks = Arrays.copyOf(freeBlocks, Math.max(freeBlocks.length * 2, nbFreeBlocks + blocks.length));
+      }
+      for (int block : blocks)
+      {
+        freeBlocks[nbFreeBlocks++] = block;
+      }
+    }
+
+    private void clear()
+    {
+      nextBlock = 0;
+      nbFreeBlocks = 0;
+      freeBlocks = new int[16];
+    }
+
+    private void write(int[] blocks, byte[] data, int length)
+    {
+      int offset = 0;
+      for (int block : blocks)
+      {
+        final int chunk = Math.min(blockSize, length - offset);
+        final ByteBuffer segment = segments.get(block / blocksPerSegment);
+        segment.position((block % blocksPerSegment) * blockSize);
+        segment.put(data, offset, chunk);
+        offset += chunk;
+      }
+    }
+
+    private byte[] read(Node node)
+    {
+      final byte[] data = new byte[node.length];
+      int offset = 0;
+      for (int block : node.blocks)
+      {
+        final int chunk = Math.min(blockSize, node.length - offset);
+        final ByteBuffer segment = segments.get(block / blocksPerSegment);
+        segment.position((block % blocksPerSegment) * blockSize);
+        segment.get(data, offset, chunk);
+        offset += chunk;
+      }
+      return data;
+    }
+  }
+
+  /**
+   * A count-min sketch of the entries access frequencies, using four 4-bit
+   * counters per entry. All the counters are halved once the number of
+   * recorded accesses reaches ten times the sketch width, so that the
+   * frequencies reflect recent accesses.
+   */
+  private static final class FrequencySketch
+  {
+    private static final long[] SEEDS = {
+      0xc3a5c85c97cb3127L, 0xb492b66fbe98f273L, 0x9ae16a3b2f90404fL, 0xcbf29ce484222325L };
+    private static final long RESET_MASK = 0x7777777777777777L;
+    /** Assumes most entries need at least this number of blocks. */
+    private static final int BLOCKS_PER_ENTRY = 4;
+    private static final int MAX_TABLE_SIZE = 1 << 22;
+
+    private final long[] table;
+    private final int tableMask;
+    private final int sampleSize;
+    private int size;
+
+    private FrequencySketch(long maxBlocks)
+    {
+      final long maxEntries = Math.max(16, Math.min(maxBlocks / BLOCKS_PER_ENTRY, MAX_TABLE_SIZE));
+      final int tableSize = Integer.highestOneBit((int) maxEntries - 1) << 1;
+      table = new long[tableSize];
+      tableMask = tableSize - 1;
+      sampleSize = 10 * tableSize;
+    }
+
+    private void increment(int hash)
+    {
+      // Each hash uses one counter among the 16 of four different longs.
+      final int start = (hash & 3) << 2;
+      boolean added = false;
+      for (int i = 0; i < 4; i++)
+      {
+        added |= incrementAt(indexOf(hash, i), start + i);
+      }
+      if (added && ++size == sampleSize)
+      {
+        reset();
+      }
+    }
+
+    private int frequency(int hash)
+    {
+      final int start = (hash & 3) << 2;
+      int frequency = Integer.MAX_VALUE;
+      for (int i = 0; i < 4; i++)
+      {
+        final int count = (int) ((table[indexOf(hash, i)] >>> ((start + i) << 2)) & 0xfL);
+        frequency = Math.min(frequency, count);
+      }
+      return frequency;
+    }
+
+    private boolean incrementAt(int index, int counter)
+    {
+      final int offset = counter << 2;
+      final long mask = 0xfL << offset;
+      if ((table[index] & mask) != mask)
+      {
+        table[index] += 1L << offset;
+        return true;
+      }
+      return false;
+    }
+
+    private int indexOf(int hash, int i)
+    {
+      long h = (hash + SEEDS[i]) * SEEDS[i];
+      h += h >>> 32;
+      return (int) h & tableMask;
+    }
+
+    private void reset()
+    {
+      for (int i = 0; i < table.length; i++)
+      {
+        table[i] = (table[i] >>> 1) & RESET_MASK;
+      }
+      size >>>= 1;
+    }
+  }
+}
@@ -0,0 +1,408 @@
+/*
+ * The contents of this file are subject to the terms of the Common Development and
+ * Distribution License (the License). You may not use this file except in compliance with the
+ * License.
+ *
+ * You can obtain a copy of the License at legal/CDDLv1.0.txt. See the License for the
+ * specific language governing permission and limitations under the License.
+ *
+ * When distributing Covered Software, include this CDDL Header Notice in each file and include
+ * the License file at legal/CDDLv1.0.txt. If applicable, add the following below the CDDL
+ * Header, with the fields enclosed by brackets [] replaced by your own identifying
+ * information: "Portions Copyright [year] [name of copyright owner]".
+ *
+ * Copyright 2026 ForgeRock AS.
+ */
+package org.opends.server.extensions;
+
+import static org.opends.messages.ConfigMessages.*;
+import static org.opends.messages.CoreMessages.*;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ConcurrentLinkedDeque;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.locks.LockSupport;
+
+import org.forgerock.i18n.LocalizableMessage;
+import org.forgerock.i18n.slf4j.LocalizedLogger;
+import org.forgerock.opendj.config.server.ConfigChangeResult;
+import org.forgerock.opendj.config.server.ConfigException;
+import org.forgerock.opendj.config.server.ConfigurationChangeListener;
+import org.forgerock.opendj.server.config.server.ShardedWorkQueueCfg;
+import org.opends.server.core.DirectoryServer;
+import org.opends.server.monitors.ShardedWorkQueueMonitor;
+import org.opends.server.types.InitializationException;
+import org.opends.server.types.Operation;
+
+/**
+ * A work queue which spreads pending operations over one lock-free queue per worker thread.
+ * <p>
+ * Connection handlers place new operations in a randomly chosen queue. Worker threads first poll their own queue and
+ * steal operations from the other queues when their own queue is empty, so that no operation is left behind. Idle
+ * worker threads are parked and woken up one at a time when new operations are submitted. Contrary to the
+ * {@link TraditionalWorkQueue}, there is no lock shared by all the connection handlers and worker threads, but
+ * operations are only processed in FIFO order within each queue.
+ */
+public class ShardedWorkQueue extends AbstractWorkQueue<ShardedWorkQueueCfg, ShardedWorkerThread>
+    implements ConfigurationChangeListener<ShardedWorkQueueCfg>
+{
+  private static final LocalizedLogger logger = LocalizedLogger.getLoggerForThisClass();
+
+  /** How long an idle worker thread waits before checking whether it should exit. */
+  private static final long IDLE_WAIT_NANOS = TimeUnit.SECONDS.toNanos(5);
+
+  /** The set of worker threads that will be used to process this work queue. */
+  private final List<ShardedWorkerThread> workerThreads = new ArrayList<>();
+
+  /** The worker threads waiting for work, the most recently idle first. */
+  private final ConcurrentLinkedDeque<ShardedWorkerThread> idleWorkerThreads = new ConcurrentLinkedDeque<>();
+
+  /** The queues holding the pending operations, one per worker thread at startup. */
+  private ConcurrentLinkedQueue<Operation>[] shards;
+
+  /** The number of operations picked up by a worker thread from the queue of another worker thread. */
+  private final AtomicLong opsStolen = new AtomicLong();
+
+  /**
+   * Indicates whether one or more of the worker threads needs to be killed at
+   * the next convenient opportunity.
+   */
+  private volatile boolean killThreads;
+
+  /** The thread number used for the last worker thread that was created. */
+  private int lastThreadNumber;
+
+  /**
+   * The number of worker threads that should be active (or will be shortly if a
+   * configuration change has not been completely applied).
+   */
+  private volatile int numWorkerThreads;
+
+  /**
+   * Creates a new instance of this work queue. All initialization should be
+   * performed in the <CODE>initializeWorkQueue</CODE> method.
+   */
+  public ShardedWorkQueue()
+  {
+    // No implementation should be performed here.
+  }
+
+  @SuppressWarnings("unchecked")
+  @Override
+  public void initializeWorkQueue(ShardedWorkQueueCfg configuration)
+      throws ConfigException, InitializationException
+  {
+    clearShutdownRequest();
+    killThreads = false;
+
+    // Register to be notified of any configuration changes.
+    configuration.addShardedChangeListener(this);
+
+    // Get the necessary configuration from the provided entry.
+    numWorkerThreads = computeNumWorkerThreads(configuration.getNumWorkerThreads());
+    setMaxCapacity(configuration.getMaxWorkQueueCapacity());
+
+    // Create one queue per worker thread. Their number does not change when worker threads are added or removed.
+    shards = new ConcurrentLinkedQueue[numWorkerThreads];
+    for (int i = 0; i < shards.length; i++)
+    {
+      shards[i] = new ConcurrentLinkedQueue<>();
+    }
+
+    // Create the set of worker threads that should be used to service the work queue.
+    synchronized (workerThreads)
+    {
+      for (lastThreadNumber = 0; lastThreadNumber < numWorkerThreads; lastThreadNumber++)
+      {
+        startWorkerThread(lastThreadNumber);
+      }
+    }
+
+    // Create and register a monitor provider for the work queue.
+    try
+    {
+      ShardedWorkQueueMonitor monitor = new ShardedWorkQueueMonitor(this);
+      monitor.initializeMonitorProvider(null);
+      DirectoryServer.registerMonitorProvider(monitor);
+    }
+    catch (Exception e)
+    {
+      logger.traceException(e);
+      logger.error(ERR_CONFIG_WORK_QUEUE_CANNOT_CREATE_MONITOR, ShardedWorkQueueMonitor.class, e);
+    }
+  }
+
+  private void startWorkerThread(int threadNumber)
+  {
+    ShardedWorkerThread t = new ShardedWorkerThread(this, threadNumber, threadNumber % shards.length);
+    workerThreads.add(t);
+    t.start();
+  }
+
+  @Override
+  protected Operation pollPendingOperation()
+  {
+    for (ConcurrentLinkedQueue<Operation> shard : shards)
+    {
+      Operation o = shard.poll();
+      if (o != null)
+      {
+        return o;
+      }
+    }
+    return null;
+  }
+
+  @Override
+  protected List<ShardedWorkerThread> getWorkerThreads()
+  {
+    synchronized (workerThreads)
+    {
+      return new ArrayList<>(workerThreads);
+    }
+  }
+
+  @Override
+  protected void enqueueOperation(Operation operation)
+  {
+    shards[ThreadLocalRandom.current().nextInt(shards.length)].offer(operation);
+    wakeUpIdleWorkerThread();
+  }
+
+  private void wakeUpIdleWorkerThread()
+  {
+    final ShardedWorkerThread idleWorkerThread = idleWorkerThreads.poll();
+    if (idleWorkerThread != null)
+    {
+      LockSupport.unpark(idleWorkerThread);
+    }
+  }
+
+  /**
+   * Retrieves the next operation that should be processed by one of the worker
+   * threads, blocking if necessary until a new request arrives. This method
+   * should only be called by a worker thread associated with this work queue.
+   *
+   * @param workerThread
+   *          The worker thread that is requesting the operation.
+   * @return The next operation that should be processed, or <CODE>null</CODE>
+   *         if the server is shutting down and no more operations will be
+   *         processed.
+   */
+  Operation nextOperation(ShardedWorkerThread workerThread)
+  {
+    return retryNextOperation(workerThread);
+  }
+
+  @Override
+  protected Operation waitForNextOperation(ShardedWorkerThread workerThread)
+  {
+    while (true)
+    {
+      // See if we should kill off this thread. This could be necessary if the
+      // number of worker threads has been decreased with the server online. If
+      // so, then return null and the thread will exit.
+      if (killThreads && tryKillThisWorkerThread(workerThread))
+      {
+        return null;
+      }
+
+      Operation nextOperation = pollOperation(workerThread.getShardIndex());
+      if (nextOperation == null)
+      {
+        nextOperation = waitForOperation(workerThread);
+      }
+      if (nextOperation != null)
+      {
+        return nextOperation;
+      }
+
+      // There was no work to do in the specified length of time. See if we
+      // should give up or check again.
+      if (shutdownRequested())
+      {
+        return null;
+      }
+    }
+  }
+
+  /**
+   * Polls the queue of the provided index, then steals from the other queues if it is empty.
+   *
+   * @param shardIndex
+   *          the index of the queue owned by the calling worker thread
+   * @return the next operation to process, or {@code null} if all the queues are empty
+   */
+  private Operation pollOperation(int shardIndex)
+  {
+    Operation operation = shards[shardIndex].poll();
+    if (operation == null)
+    {
+      for (int i = 1; i < shards.length && operation == null; i++)
+      {
+        operation = shards[(shardIndex + i) % shards.length].poll();
+      }
+      if (operation == null)
+      {
+        return null;
+      }
+      opsStolen.incrementAndGet();
+    }
+    releaseCapacity();
+
+    // The worker thread woken up for this operation may have picked up another one:
+    // make sure remaining operations do not wait for a worker thread to become idle.
+    if (!idleWorkerThreads.isEmpty() && size() > 0)
+    {
+      wakeUpIdleWorkerThread();
+    }
+    return operation;
+  }
+
+  /**
+   * Parks the provided worker thread until an operation is submitted or the idle timeout expires.
+   *
+   * @param workerThread
+   *          the calling worker thread
+   * @return the next operation to process, or {@code null} if none has been submitted
+   */
+  private Operation waitForOperation(ShardedWorkerThread workerThread)
+  {
+    idleWorkerThreads.push(workerThread);
+    try
+    {
+      // An operation may have been submitted before this worker thread was seen as idle
+      Operation operation = pollOperation(workerThread.getShardIndex());
+      if (operation != null)
+      {
+        return operation;
+      }
+
+      LockSupport.parkNanos(this, IDLE_WAIT_NANOS);
+      if (Thread.interrupted() && !shutdownRequested())
+      {
+        logger.warn(WARN_WORKER_INTERRUPTED_WITHOUT_SHUTDOWN, workerThread.getName(),
+            new InterruptedException());
+      }
+      return pollOperation(workerThread.getShardIndex());
+    }
+    finally
+    {
+      idleWorkerThreads.removeFirstOccurrence(workerThread);
+    }
+  }
+
+  /**
+   * Kills this worker thread if needed.
+   *
+   * @param workerThread
+   *          The worker thread associated with this thread.
+   * @return {@code true} if this thread was killed or is about to be killed as
+   *         a result of shutdown.
+   */
+  private boolean tryKillThisWorkerThread(ShardedWorkerThread workerThread)
+  {
+    synchronized (workerThreads)
+    {
+      if (shutdownRequested())
+      {
+        return true;
+      }
+
+      int currentThreads = workerThreads.size();
+      if (currentThreads > numWorkerThreads)
+      {
+        if (workerThreads.remove(workerThread))
+        {
+          currentThreads--;
+        }
+
+        if (currentThreads <= numWorkerThreads)
+        {
+          killThreads = false;
+        }
+
+        workerThread.setStoppedByReducedThreadNumber();
+        return true;
+      }
+      return false;
+    }
+  }
+
+  /**
+   * Retrieves the total number of operations that have been picked up by a
+   * worker thread from the queue of another worker thread.
+   *
+   * @return The total number of operations that have been stolen by worker
+   *         threads since startup.
+   */
+  public long getOpsStolen()
+  {
+    return opsStolen.get();
+  }
+
+  @Override
+  public boolean isConfigurationChangeAcceptable(
+      ShardedWorkQueueCfg configuration, List<LocalizableMessage> unacceptableReasons)
+  {
+    return true;
+  }
+
+  @Override
+  public ConfigChangeResult applyConfigurationChange(ShardedWorkQueueCfg configuration)
+  {
+    int newNumThreads = computeNumWorkerThreads(configuration.getNumWorkerThreads());
+
+    // Apply a change to the number of worker threads if appropriate.
+    synchronized (workerThreads)
+    {
+      int threadsToAdd = newNumThreads - workerThreads.size();
+      if (threadsToAdd > 0)
+      {
+        try
+        {
+          for (int i = 0; i < threadsToAdd; i++)
+          {
+            startWorkerThread(lastThreadNumber++);
+          }
+        }
+        catch (Exception e)
+        {
+          logger.traceException(e);
+        }
+        killThreads = false;
+      }
+      else if (threadsToAdd < 0)
+      {
+        killThreads = true;
+      }
+      numWorkerThreads = newNumThreads;
+    }
+
+    // The capacity is only enforced by the pending operations counter, so it can be changed on the fly.
+    setMaxCapacity(configuration.getMaxWorkQueueCapacity());
+
+    return new ConfigChangeResult();
+  }
+
+  @Override
+  public boolean isIdle()
+  {
+    return size() == 0 && !isAnyWorkerThreadActive();
+  }
+
+  /**
+   * Return the number of worker threads used by this WorkQueue.
+   *
+   * @return the number of worker threads used by this WorkQueue
+   */
+  @Override
+  public int getNumWorkerThreads()
+  {
+    return numWorkerThreads;
+  }
+}
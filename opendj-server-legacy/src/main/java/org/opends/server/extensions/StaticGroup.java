@@ -12,14 +12,16 @@
  * information: "Portions Copyright [year] [name of copyright owner]".
  *
  * Copyright 2008-2010 Sun Microsystems, Inc.
- * Portions Copyright 2011-2016 ForgeRock AS.
+ * Portions Copyright 2011-2026 ForgeRock AS.
  */
 package org.opends.server.extensions;
 
 import static com.forgerock.opendj.util.StaticUtils.getBytes;
 
 import java.io.UnsupportedEncodingException;
+import java.util.ArrayList;
 import java.util.Arrays;
+import java.util.Collection;
 import java.util.Collections;
 import java.util.HashSet;
 import java.util.LinkedHashSet;
@@ -313,6 +315,25 @@ public class StaticGroup extends Group<StaticGroupImplementationCfg>
     }
   }
 
+  @Override
+  public Collection<DN> getDirectMemberDNs()
+  {
+    lock.readLock().lock();
+    try
+    {
+      List<DN> dns = new ArrayList<>(memberDNs.size());
+      for (CompactDn compactDn : memberDNs)
+      {
+        dns.add(compactDn.toDn(serverContext));
+      }
+      return dns;
+    }
+    finally
+    {
+      lock.readLock().unlock();
+    }
+  }
+
   @Override
   public void addNestedGroup(DN nestedGroupDN)
          throws UnsupportedOperationException, DirectoryException
@@ -328,10 +349,17 @@ public class StaticGroup extends Group<StaticGroupImplementationCfg>
         throw new DirectoryException(ResultCode.ATTRIBUTE_OR_VALUE_EXISTS, msg);
       }
 
+      //Add it to the member DN list, which the group manager indexes while the modify operation completes.
+      HashSet<CompactDn> oldMemberDNs = memberDNs;
+      HashSet<CompactDn> newMemberDNs = new HashSet<>(memberDNs);
+      newMemberDNs.add(new CompactDn(nestedGroupDN));
+      memberDNs = newMemberDNs;
+
       ModifyOperation modifyOperation = newModifyOperation(ModificationType.ADD, nestedGroupDN);
       modifyOperation.run();
       if (modifyOperation.getResultCode() != ResultCode.SUCCESS)
       {
+        memberDNs = oldMemberDNs;
         LocalizableMessage msg = ERR_STATICGROUP_ADD_MEMBER_UPDATE_FAILED.get(
             nestedGroupDN, groupEntryDN, modifyOperation.getErrorMessage());
         throw new DirectoryException(modifyOperation.getResultCode(), msg);
@@ -340,10 +368,6 @@ public class StaticGroup extends Group<StaticGroupImplementationCfg>
       LinkedList<DN> newNestedGroups = new LinkedList<>(nestedGroups);
       newNestedGroups.add(nestedGroupDN);
       nestedGroups = newNestedGroups;
-      //Add it to the member DN list.
-      HashSet<CompactDn> newMemberDNs = new HashSet<>(memberDNs);
-      newMemberDNs.add(new CompactDn(nestedGroupDN));
-      memberDNs = newMemberDNs;
     }
     finally
     {
@@ -366,10 +390,17 @@ public class StaticGroup extends Group<StaticGroupImplementationCfg>
                 ERR_STATICGROUP_REMOVE_NESTED_GROUP_NO_SUCH_GROUP.get(nestedGroupDN, groupEntryDN));
       }
 
+      //Remove it from the member DN list, which the group manager indexes while the modify operation completes.
+      HashSet<CompactDn> oldMemberDNs = memberDNs;
+      LinkedHashSet<CompactDn> newMemberDNs = new LinkedHashSet<>(memberDNs);
+      newMemberDNs.remove(new CompactDn(nestedGroupDN));
+      memberDNs = newMemberDNs;
+
       ModifyOperation modifyOperation = newModifyOperation(ModificationType.DELETE, nestedGroupDN);
       modifyOperation.run();
       if (modifyOperation.getResultCode() != ResultCode.SUCCESS)
       {
+        memberDNs = oldMemberDNs;
         LocalizableMessage message = ERR_STATICGROUP_REMOVE_MEMBER_UPDATE_FAILED.get(
             nestedGroupDN, groupEntryDN, modifyOperation.getErrorMessage());
         throw new DirectoryException(modifyOperation.getResultCode(), message);
@@ -378,10 +409,6 @@ public class StaticGroup extends Group<StaticGroupImplementationCfg>
       LinkedList<DN> newNestedGroups = new LinkedList<>(nestedGroups);
       newNestedGroups.remove(nestedGroupDN);
       nestedGroups = newNestedGroups;
-      //Remove it from the member DN list.
-      LinkedHashSet<CompactDn> newMemberDNs = new LinkedHashSet<>(memberDNs);
-      newMemberDNs.remove(new CompactDn(nestedGroupDN));
-      memberDNs = newMemberDNs;
     }
     finally
     {
@@ -625,17 +652,20 @@ public class StaticGroup extends Group<StaticGroupImplementationCfg>
         throw new DirectoryException(ResultCode.ATTRIBUTE_OR_VALUE_EXISTS, message);
       }
 
+      // The group manager indexes the new members while the modify operation completes
+      HashSet<CompactDn> oldMemberDNs = memberDNs;
+      LinkedHashSet<CompactDn> newMemberDNs = new LinkedHashSet<CompactDn>(memberDNs);
+      newMemberDNs.add(compactUserDN);
+      memberDNs = newMemberDNs;
+
       ModifyOperation modifyOperation = newModifyOperation(ModificationType.ADD, userDN);
       modifyOperation.run();
       if (modifyOperation.getResultCode() != ResultCode.SUCCESS)
       {
+        memberDNs = oldMemberDNs;
         throw new DirectoryException(modifyOperation.getResultCode(),
             ERR_STATICGROUP_ADD_MEMBER_UPDATE_FAILED.get(userDN, groupEntryDN, modifyOperation.getErrorMessage()));
       }
-
-      LinkedHashSet<CompactDn> newMemberDNs = new LinkedHashSet<CompactDn>(memberDNs);
-      newMemberDNs.add(compactUserDN);
-      memberDNs = newMemberDNs;
     }
     finally
     {
@@ -658,17 +688,20 @@ public class StaticGroup extends Group<StaticGroupImplementationCfg>
         throw new DirectoryException(ResultCode.NO_SUCH_ATTRIBUTE, message);
       }
 
+      // The group manager indexes the new members while the modify operation completes
+      HashSet<CompactDn> oldMemberDNs = memberDNs;
+      LinkedHashSet<CompactDn> newMemberDNs = new LinkedHashSet<>(memberDNs);
+      newMemberDNs.remove(compactUserDN);
+      memberDNs = newMemberDNs;
+
       ModifyOperation modifyOperation = newModifyOperation(ModificationType.DELETE, userDN);
       modifyOperation.run();
       if (modifyOperation.getResultCode() != ResultCode.SUCCESS)
       {
+        memberDNs = oldMemberDNs;
         throw new DirectoryException(modifyOperation.getResultCode(),
             ERR_STATICGROUP_REMOVE_MEMBER_UPDATE_FAILED.get(userDN, groupEntryDN, modifyOperation.getErrorMessage()));
       }
-
-      LinkedHashSet<CompactDn> newMemberDNs = new LinkedHashSet<>(memberDNs);
-      newMemberDNs.remove(compactUserDN);
-      memberDNs = newMemberDNs;
       //If it is in the nested group list remove it.
       if (nestedGroups.contains(userDN))
       {
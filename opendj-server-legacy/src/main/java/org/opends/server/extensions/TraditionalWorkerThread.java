@@ -35,6 +35,7 @@ import static org.opends.server.util.StaticUtils.*;
  */
 public class TraditionalWorkerThread
        extends DirectoryThread
+       implements AbstractWorkQueue.WorkerThread
 {
   private static final LocalizedLogger logger = LocalizedLogger.getLoggerForThisClass();
 
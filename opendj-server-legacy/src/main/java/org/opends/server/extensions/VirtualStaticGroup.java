@@ -16,6 +16,7 @@
  */
 package org.opends.server.extensions;
 
+import java.util.Collection;
 import java.util.Collections;
 import java.util.HashSet;
 import java.util.List;
@@ -185,6 +186,13 @@ public class VirtualStaticGroup
     return targetGroupDN;
   }
 
+  @Override
+  public Collection<DN> getDirectMemberDNs()
+  {
+    // The members of the target group are the members of this group.
+    return Collections.singletonList(targetGroupDN);
+  }
+
   @Override
   public boolean supportsNestedGroups()
   {
@@ -0,0 +1,124 @@
+/*
+ * The contents of this file are subject to the terms of the Common Development and
+ * Distribution License (the License). You may not use this file except in compliance with the
+ * License.
+ *
+ * You can obtain a copy of the License at legal/CDDLv1.0.txt. See the License for the
+ * specific language governing permission and limitations under the License.
+ *
+ * When distributing Covered Software, include this CDDL Header Notice in each file and include
+ * the License file at legal/CDDLv1.0.txt. If applicable, add the following below the CDDL
+ * Header, with the fields enclosed by brackets [] replaced by your own identifying
+ * information: "Portions Copyright [year] [name of copyright owner]".
+ *
+ * Copyright 2026 ForgeRock AS.
+ */
+package org.opends.server.monitors;
+
+import static org.opends.server.monitors.TraditionalWorkQueueMonitor.*;
+
+import java.util.concurrent.TimeUnit;
+
+import org.forgerock.opendj.config.server.ConfigException;
+import org.forgerock.opendj.server.config.server.MonitorProviderCfg;
+import org.opends.server.api.MonitorData;
+import org.opends.server.api.MonitorProvider;
+import org.opends.server.extensions.ElasticWorkQueue;
+import org.opends.server.types.InitializationException;
+
+/**
+ * This class defines a Directory Server monitor that can be used to provide
+ * information about the state of the elastic work queue. It publishes the same
+ * attributes as the {@link TraditionalWorkQueueMonitor}, plus the number of
+ * worker threads.
+ */
+public class ElasticWorkQueueMonitor
+       extends MonitorProvider<MonitorProviderCfg>
+       implements Runnable
+{
+  /** The name to use for the monitor attribute that provides the number of worker threads currently alive. */
+  public static final String ATTR_CURRENT_THREADS = "currentWorkerThreads";
+  /** The name to use for the monitor attribute that provides the number of worker threads processing a request. */
+  public static final String ATTR_BUSY_THREADS = "busyWorkerThreads";
+  /**
+   * The name to use for the monitor attribute that provides the highest number
+   * of worker threads alive at the same time.
+   */
+  public static final String ATTR_PEAK_THREADS = "peakWorkerThreads";
+  /** The name to use for the monitor attribute that provides the total number of worker threads started. */
+  public static final String ATTR_THREADS_STARTED = "workerThreadsStarted";
+
+  /** The maximum backlog observed by polling the queue. */
+  private int maxBacklog;
+  /** The total number of times the backlog has been polled. */
+  private long numPolls;
+  /** The total backlog observed from periodic polling. */
+  private long totalBacklog;
+  /** The elastic work queue instance with which this monitor is associated. */
+  private final ElasticWorkQueue workQueue;
+
+  /**
+   * Initializes this monitor provider.  Note that no initialization should be
+   * done here, since it should be performed in the
+   * <CODE>initializeMonitorProvider</CODE> class.
+   *
+   * @param  workQueue  The work queue with which this monitor is associated.
+   */
+  public ElasticWorkQueueMonitor(ElasticWorkQueue workQueue)
+  {
+    this.workQueue = workQueue;
+  }
+
+  @Override
+  public void initializeMonitorProvider(MonitorProviderCfg configuration)
+         throws ConfigException, InitializationException
+  {
+    maxBacklog   = 0;
+    totalBacklog = 0;
+    numPolls     = 0;
+    scheduleUpdate(this, 0, 10, TimeUnit.SECONDS);
+  }
+
+  @Override
+  public String getMonitorInstanceName()
+  {
+    return "Work Queue";
+  }
+
+  @Override
+  public synchronized void run()
+  {
+    updateBacklog();
+  }
+
+  private int updateBacklog()
+  {
+    int backlog = workQueue.size();
+    totalBacklog += backlog;
+    numPolls++;
+    if (backlog > maxBacklog)
+    {
+      maxBacklog = backlog;
+    }
+    return backlog;
+  }
+
+  @Override
+  public synchronized MonitorData getMonitorData()
+  {
+    int backlog = updateBacklog();
+    long averageBacklog = (long) (1.0 * totalBacklog / numPolls);
+
+    final MonitorData monitorAttrs = new MonitorData(9);
+    monitorAttrs.add(ATTR_CURRENT_BACKLOG, backlog);
+    monitorAttrs.add(ATTR_AVERAGE_BACKLOG, averageBacklog);
+    monitorAttrs.add(ATTR_MAX_BACKLOG, maxBacklog);
+    monitorAttrs.add(ATTR_OPS_SUBMITTED, workQueue.getOpsSubmitted());
+    monitorAttrs.add(ATTR_OPS_REJECTED_QUEUE_FULL, workQueue.getOpsRejectedDueToQueueFull());
+    monitorAttrs.add(ATTR_CURRENT_THREADS, workQueue.getCurrentWorkerThreads());
+    monitorAttrs.add(ATTR_BUSY_THREADS, workQueue.getBusyWorkerThreads());
+    monitorAttrs.add(ATTR_PEAK_THREADS, workQueue.getPeakWorkerThreads());
+    monitorAttrs.add(ATTR_THREADS_STARTED, workQueue.getWorkerThreadsStarted());
+    return monitorAttrs;
+  }
+}
@@ -0,0 +1,86 @@
+/*
+ * The contents of this file are subject to the terms of the Common Development and
+ * Distribution License (the License). You may not use this file except in compliance with the
+ * License.
+ *
+ * You can obtain a copy of the License at legal/CDDLv1.0.txt. See the License for the
+ * specific language governing permission and limitations under the License.
+ *
+ * When distributing Covered Software, include this CDDL Header Notice in each file and include
+ * the License file at legal/CDDLv1.0.txt. If applicable, add the following below the CDDL
+ * Header, with the fields enclosed by brackets [] replaced by your own identifying
+ * information: "Portions Copyright [year] [name of copyright owner]".
+ *
+ * Copyright 2026 ForgeRock AS.
+ */
+package org.opends.server.monitors;
+
+import org.forgerock.opendj.config.server.ConfigException;
+import org.forgerock.opendj.server.config.server.MonitorProviderCfg;
+import org.opends.server.api.MonitorData;
+import org.opends.server.api.MonitorProvider;
+import org.opends.server.types.InitializationException;
+import org.opends.server.types.LockManager;
+
+/**
+ * This class defines a Directory Server monitor that can be used to provide
+ * information about the lock manager: the lock table mode, and a histogram of
+ * the time spent by operations waiting for entry and subtree locks.
+ */
+public class LockManagerMonitor extends MonitorProvider<MonitorProviderCfg>
+{
+  /** The name of the monitor attribute providing the number of stripes, 0 if locks are kept per DN. */
+  public static final String ATTR_LOCK_STRIPES = "lockStripes";
+
+  /** The name of the monitor attribute providing the number of lock attempts which timed out. */
+  public static final String ATTR_LOCK_TIMEOUTS = "lockTimeouts";
+
+  /** The name of the monitor attribute providing the number of lock attempts failed by a lock ordering conflict. */
+  public static final String ATTR_LOCK_CONFLICTS = "lockConflicts";
+
+  /** The names of the monitor attributes providing the buckets of the lock wait histogram. */
+  private static final String[] ATTR_LOCK_WAITS = {
+    "lockWaitsUnder10us", "lockWaitsUnder100us", "lockWaitsUnder1ms", "lockWaitsUnder10ms",
+    "lockWaitsUnder100ms", "lockWaitsUnder1s", "lockWaitsOver1s" };
+
+  /** The lock manager with which this monitor is associated. */
+  private final LockManager lockManager;
+
+  /**
+   * Creates a new monitor for the provided lock manager.
+   *
+   * @param  lockManager  The lock manager with which this monitor is associated.
+   */
+  public LockManagerMonitor(LockManager lockManager)
+  {
+    this.lockManager = lockManager;
+  }
+
+  @Override
+  public void initializeMonitorProvider(MonitorProviderCfg configuration)
+         throws ConfigException, InitializationException
+  {
+    // No initialization is required.
+  }
+
+  @Override
+  public String getMonitorInstanceName()
+  {
+    return "Lock Manager";
+  }
+
+  @Override
+  public MonitorData getMonitorData()
+  {
+    final long[] lockWaits = lockManager.getLockWaitHistogram();
+    final MonitorData monitorAttrs = new MonitorData(3 + lockWaits.length);
+    monitorAttrs.add(ATTR_LOCK_STRIPES, lockManager.getNumberOfStripes());
+    monitorAttrs.add(ATTR_LOCK_TIMEOUTS, lockManager.getLockTimeouts());
+    monitorAttrs.add(ATTR_LOCK_CONFLICTS, lockManager.getLockConflicts());
+    for (int i = 0; i < lockWaits.length; i++)
+    {
+      monitorAttrs.add(ATTR_LOCK_WAITS[i], lockWaits[i]);
+    }
+    return monitorAttrs;
+  }
+}
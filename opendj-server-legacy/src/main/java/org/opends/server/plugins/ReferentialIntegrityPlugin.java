@@ -25,13 +25,8 @@ import static org.opends.server.protocols.internal.Requests.*;
 import static org.opends.server.schema.SchemaConstants.*;
 import static org.opends.server.util.StaticUtils.*;
 
-import java.io.BufferedReader;
-import java.io.BufferedWriter;
-import java.io.File;
-import java.io.FileReader;
-import java.io.FileWriter;
 import java.io.IOException;
-import java.util.Collections;
+import java.util.ArrayList;
 import java.util.HashSet;
 import java.util.LinkedHashMap;
 import java.util.LinkedHashSet;
@@ -39,9 +34,10 @@ import java.util.LinkedList;
 import java.util.List;
 import java.util.Map;
 import java.util.Set;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
 
 import org.forgerock.i18n.LocalizableMessage;
-import org.forgerock.i18n.LocalizedIllegalArgumentException;
 import org.forgerock.i18n.slf4j.LocalizedLogger;
 import org.forgerock.opendj.config.server.ConfigChangeResult;
 import org.forgerock.opendj.config.server.ConfigException;
@@ -55,10 +51,13 @@ import org.forgerock.opendj.ldap.SearchScope;
 import org.forgerock.opendj.ldap.schema.AttributeType;
 import org.forgerock.opendj.server.config.meta.PluginCfgDefn;
 import org.forgerock.opendj.server.config.meta.ReferentialIntegrityPluginCfgDefn.CheckReferencesScopeCriteria;
+import org.forgerock.opendj.server.config.server.MonitorProviderCfg;
 import org.forgerock.opendj.server.config.server.PluginCfg;
 import org.forgerock.opendj.server.config.server.ReferentialIntegrityPluginCfg;
 import org.opends.server.api.LocalBackend;
 import org.opends.server.api.DirectoryThread;
+import org.opends.server.api.MonitorData;
+import org.opends.server.api.MonitorProvider;
 import org.opends.server.api.ServerShutdownListener;
 import org.opends.server.api.plugin.DirectoryServerPlugin;
 import org.opends.server.api.plugin.PluginResult;
@@ -71,7 +70,7 @@ import org.opends.server.protocols.internal.InternalClientConnection;
 import org.opends.server.protocols.internal.InternalSearchOperation;
 import org.opends.server.protocols.internal.SearchRequest;
 import org.opends.server.types.Attribute;
-import org.opends.server.types.Attributes;
+import org.opends.server.types.AttributeBuilder;
 import org.opends.server.types.DirectoryException;
 import org.opends.server.types.Entry;
 import org.opends.server.types.IndexType;
@@ -96,6 +95,12 @@ import org.opends.server.types.operation.SubordinateModifyDNOperation;
  * The plugin also has an option to process changes in background using
  * a thread that wakes up periodically looking for change records in a log
  * file.
+ * <BR><BR>
+ * Changes are processed by batches: for each base DN, a single search per
+ * attribute type finds the entries referencing any of the deleted or renamed
+ * entries of a batch, then each referencing entry is updated by a single
+ * modify operation. The backlog and throughput of the processing are
+ * exposed by a monitor provider.
  */
 public class ReferentialIntegrityPlugin
         extends DirectoryServerPlugin<ReferentialIntegrityPluginCfg>
@@ -127,6 +132,9 @@ public class ReferentialIntegrityPlugin
   private static final String name =
       "Referential Integrity Background Update Thread";
 
+  /** The maximum number of deleted or renamed entries processed together. */
+  private static final int BATCH_SIZE = 256;
+
   /**
    * The name of the logfile that the update thread uses to process change
    * records. Defaults to "logs/referint", but can be changed in the
@@ -134,8 +142,20 @@ public class ReferentialIntegrityPlugin
    */
   private String logFileName;
 
-  /** The File class that logfile corresponds to. */
-  private File logFile;
+  /** The durable queue of the changes to process in background. */
+  private ReferentialIntegrityWorkLog workLog;
+
+  /** The monitor provider exposing the backlog and throughput of the processing. */
+  private ReferentialIntegrityMonitor monitor;
+
+  /** The number of deleted or renamed entries processed. */
+  private final AtomicLong processedChanges = new AtomicLong();
+  /** The number of batches processed. */
+  private final AtomicLong processedBatches = new AtomicLong();
+  /** The number of referencing entries modified. */
+  private final AtomicLong modifiedEntries = new AtomicLong();
+  /** The time spent processing batches, in nanoseconds. */
+  private final AtomicLong processingTime = new AtomicLong();
 
   /** The Thread class that the background thread corresponds to. */
   private Thread backGroundThread;
@@ -179,6 +199,9 @@ public class ReferentialIntegrityPlugin
     setUpLogFile(pluginCfg.getLogFile());
     interval=pluginCfg.getUpdateInterval();
 
+    monitor = new ReferentialIntegrityMonitor(pluginCfg.dn().rdn().getFirstAVA().getAttributeValue() + " Plugin");
+    DirectoryServer.registerMonitorProvider(monitor);
+
     //Set up background processing if interval > 0.
     if(interval > 0)
     {
@@ -521,28 +544,14 @@ public class ReferentialIntegrityPlugin
   {
     if(modDNMap != null)
     {
-      if(log)
-      {
-        writeLog(modDNMap);
-      }
-      else
-      {
-        for(DN baseDN : getBaseDNsToSearch())
-        {
-          doBaseDN(baseDN, modDNMap);
-        }
-      }
+      processChanges(modDNMap, log);
     }
   }
 
   /**
-   * Used by both the background thread and the delete post operation to
-   * process a delete operation on the specified entry DN.  The
-   * boolean "log" is used to determine if the DN is written to the log file
-   * for the background thread to pick up. This value is set to false if the
-   * background thread is processing changes. If this method is being called
-   * by a delete post operation, then setting the "log" value to false will
-   * cause the DN to be processed in foreground
+   * Process a delete post operation using the specified set of deleted entry
+   * DNs. The boolean "log" is used to determine if the DNs are written to the
+   * log file for the background thread to pick up, or processed in foreground.
    * <p>
    * If the DN is to be processed, than each base DN or public naming
    * context (if the base DN configuration is empty) is checked to see if
@@ -557,34 +566,46 @@ public class ReferentialIntegrityPlugin
    */
   private void processDelete(Set<DN> deleteDNset, boolean log)
   {
-    if(log)
-    {
-      writeLog(deleteDNset);
-    }
-    else
+    Map<DN, DN> changes = new LinkedHashMap<>();
+    for (DN deletedEntryDN : deleteDNset)
     {
-      for(DN baseDN : getBaseDNsToSearch())
-      {
-        doBaseDN(baseDN, deleteDNset);
-      }
+      changes.put(deletedEntryDN, null);
     }
+    processChanges(changes, log);
   }
 
   /**
-   * Used by the background thread to process the specified old entry DN and
-   * new entry DN. Each base DN or public naming context (if the base DN
-   * configuration is empty) is checked to see  if they contain entries with
-   * references to the old entry DN that need to be changed to the new entry DN.
+   * Either writes the specified changes to the log file, or processes them
+   * in foreground by batches.
    *
-   * @param oldEntryDN  The entry DN before the modify DN operation.
+   * @param changes The map of the old entry DNs to the new entry DNs, the new
+   *                entry DN being null for deleted entries.
    *
-   * @param newEntryDN The entry DN after the modify DN operation.
+   * @param log Set to <code>true</code> if the changes should be written to a
+   *            log file so that the background thread can process them at a
+   *            later time.
    */
-  private void processModifyDN(DN oldEntryDN, DN newEntryDN)
+  private void processChanges(Map<DN, DN> changes, boolean log)
   {
-    for(DN baseDN : getBaseDNsToSearch())
+    if (log)
     {
-      searchBaseDN(baseDN, oldEntryDN, newEntryDN);
+      writeLog(changes);
+      return;
+    }
+
+    Map<DN, DN> batch = new LinkedHashMap<>();
+    for (Map.Entry<DN, DN> change : changes.entrySet())
+    {
+      batch.put(change.getKey(), change.getValue());
+      if (batch.size() == BATCH_SIZE)
+      {
+        processBatch(batch);
+        batch = new LinkedHashMap<>();
+      }
+    }
+    if (!batch.isEmpty())
+    {
+      processBatch(batch);
     }
   }
 
@@ -606,27 +627,61 @@ public class ReferentialIntegrityPlugin
   }
 
   /**
-   * Search a base DN using a filter built from the configured attribute
-   * types and the specified old entry DN. For each entry that is found from
-   * the search, delete the old entry DN from the entry. If the new entry
-   * DN is not null, then add it to the entry.
+   * Removes or replaces the references to a batch of deleted or renamed
+   * entries. For each base DN, a single search per attribute type finds the
+   * entries referencing any entry of the batch, then each of these entries is
+   * updated by a single modify operation.
+   *
+   * @param changes The map of the old entry DNs to the new entry DNs, the new
+   *                entry DN being null for deleted entries. The old entry DNs
+   *                must not be new entry DNs of the same batch.
+   */
+  private void processBatch(Map<DN, DN> changes)
+  {
+    final long startTime = System.nanoTime();
+    // An entry may reference several changed entries, through several attribute types
+    Map<DN, Entry> referencingEntries = new LinkedHashMap<>();
+    for (DN baseDN : getBaseDNsToSearch())
+    {
+      for (AttributeType attributeType : attributeTypes)
+      {
+        searchReferencingEntries(baseDN, attributeType, changes.keySet(), referencingEntries);
+      }
+    }
+
+    for (Entry entry : referencingEntries.values())
+    {
+      if (deleteAddAttributesEntry(entry, changes))
+      {
+        modifiedEntries.incrementAndGet();
+      }
+    }
+
+    processedChanges.addAndGet(changes.size());
+    processedBatches.incrementAndGet();
+    processingTime.addAndGet(System.nanoTime() - startTime);
+  }
+
+  /**
+   * Search a base DN for the entries having a value of the specified
+   * attribute type equal to any of the specified entry DNs.
    *
    * @param baseDN  The DN to base the search at.
    *
-   * @param oldEntryDN The old entry DN that needs to be deleted or replaced.
+   * @param attributeType The attribute type which may reference the entries.
+   *
+   * @param entryDNs The DNs of the deleted or renamed entries.
    *
-   * @param newEntryDN The new entry DN that needs to be added. May be null
-   *                   if the original operation was a delete.
+   * @param referencingEntries The map where to add the entries found.
    */
-  private void searchBaseDN(DN baseDN, DN oldEntryDN, DN newEntryDN)
+  private void searchReferencingEntries(DN baseDN, AttributeType attributeType, Set<DN> entryDNs,
+      Map<DN, Entry> referencingEntries)
   {
-    //Build an equality search with all of the configured attribute types
-    //and the old entry DN.
-    HashSet<SearchFilter> componentFilters=new HashSet<>();
-    for(AttributeType attributeType : attributeTypes)
+    List<SearchFilter> componentFilters = new ArrayList<>(entryDNs.size());
+    for (DN entryDN : entryDNs)
     {
       componentFilters.add(SearchFilter.createEqualityFilter(attributeType,
-          ByteString.valueOfUtf8(oldEntryDN.toString())));
+          ByteString.valueOfUtf8(entryDN.toString())));
     }
 
     SearchFilter orFilter = SearchFilter.createORFilter(componentFilters);
@@ -649,81 +704,74 @@ public class ReferentialIntegrityPlugin
 
     for (SearchResultEntry entry : operation.getSearchEntries())
     {
-      deleteAddAttributesEntry(entry, oldEntryDN, newEntryDN);
-    }
-  }
-
-  /**
-   * This method is used in foreground processing of a modify DN operation.
-   * It uses the specified map to perform base DN searching for each map
-   * entry. The key is the old entry DN and the value is the
-   * new entry DN.
-   *
-   * @param baseDN The DN to base the search at.
-   *
-   * @param modifyDNmap The map containing the modify DN old and new entry DNs.
-   */
-  private void doBaseDN(DN baseDN, Map<DN,DN> modifyDNmap)
-  {
-    for(Map.Entry<DN,DN> mapEntry: modifyDNmap.entrySet())
-    {
-      searchBaseDN(baseDN, mapEntry.getKey(), mapEntry.getValue());
+      referencingEntries.put(entry.getName(), entry);
     }
   }
 
   /**
-   * This method is used in foreground processing of a delete operation.
-   * It uses the specified set to perform base DN searching for each
-   * element.
-   *
-   * @param baseDN The DN to base the search at.
-   *
-   * @param deleteDNset The set containing the delete DNs.
-   */
-  private void doBaseDN(DN baseDN, Set<DN> deleteDNset)
-  {
-    for(DN deletedEntryDN : deleteDNset)
-    {
-      searchBaseDN(baseDN, deletedEntryDN, null);
-    }
-  }
-
-  /**
-   * For each attribute type, delete the specified old entry DN and
-   * optionally add the specified new entry DN if the DN is not null.
-   * The specified entry is used to see if it contains each attribute type so
-   * those types that the entry contains can be modified. An internal modify
-   * is performed to change the entry.
+   * For each attribute type, delete the values of the specified entry
+   * referencing the old entry DNs and add the corresponding new entry DNs
+   * if they are not null. An internal modify is performed to change the
+   * entry.
    *
    * @param e The entry that contains the old references.
    *
-   * @param oldEntryDN The old entry DN to remove references to.
+   * @param changes The map of the old entry DNs to the new entry DNs, the new
+   *                entry DN being null for deleted entries.
    *
-   * @param newEntryDN The new entry DN to add a reference to, if it is not
-   *                   null.
+   * @return <code>true</code> if the entry has been modified.
    */
-  private void deleteAddAttributesEntry(Entry e, DN oldEntryDN, DN newEntryDN)
+  private boolean deleteAddAttributesEntry(Entry e, Map<DN, DN> changes)
   {
     LinkedList<Modification> mods = new LinkedList<>();
     DN entryDN=e.getName();
     for(AttributeType type : attributeTypes)
     {
-      if(e.hasAttribute(type))
+      if(!e.hasAttribute(type))
       {
-        ByteString value = ByteString.valueOfUtf8(oldEntryDN.toString());
+        continue;
+      }
+
+      AttributeBuilder deletedValues = new AttributeBuilder(type);
+      Set<DN> newEntryDNs = new LinkedHashSet<>();
+      for (Map.Entry<DN, DN> change : changes.entrySet())
+      {
+        ByteString value = ByteString.valueOfUtf8(change.getKey().toString());
         if (e.hasValue(type, value))
         {
-          mods.add(new Modification(ModificationType.DELETE, Attributes
-              .create(type, value)));
-
-          // If the new entry DN exists, create an ADD modification for it.
-          if(newEntryDN != null)
+          deletedValues.add(value);
+          if (change.getValue() != null)
           {
-            mods.add(new Modification(ModificationType.ADD, Attributes
-                .create(type, newEntryDN.toString())));
+            newEntryDNs.add(change.getValue());
           }
         }
       }
+      if (deletedValues.isEmpty())
+      {
+        continue;
+      }
+      mods.add(new Modification(ModificationType.DELETE, deletedValues.toAttribute()));
+
+      // Add the new entry DNs, unless the entry already references them
+      // through values which are not deleted
+      AttributeBuilder addedValues = new AttributeBuilder(type);
+      for (DN newEntryDN : newEntryDNs)
+      {
+        ByteString value = ByteString.valueOfUtf8(newEntryDN.toString());
+        if (!e.hasValue(type, value) || changes.containsKey(newEntryDN))
+        {
+          addedValues.add(value);
+        }
+      }
+      if (!addedValues.isEmpty())
+      {
+        mods.add(new Modification(ModificationType.ADD, addedValues.toAttribute()));
+      }
+    }
+
+    if (mods.isEmpty())
+    {
+      return false;
     }
 
     InternalClientConnection conn =
@@ -733,7 +781,9 @@ public class ReferentialIntegrityPlugin
     if(modifyOperation.getResultCode() != ResultCode.SUCCESS)
     {
       logger.error(ERR_PLUGIN_REFERENT_MODIFY_FAILED, entryDN, modifyOperation.getErrorMessage());
+      return false;
     }
+    return true;
   }
 
   /**
@@ -750,14 +800,10 @@ public class ReferentialIntegrityPlugin
           throws ConfigException
   {
     this.logFileName=logFileName;
-    logFile=getFileForPath(logFileName);
 
     try
     {
-      if(!logFile.exists())
-      {
-        logFile.createNewFile();
-      }
+      workLog = new ReferentialIntegrityWorkLog(getFileForPath(logFileName));
     }
     catch (IOException io)
     {
@@ -766,109 +812,43 @@ public class ReferentialIntegrityPlugin
     }
   }
 
-  /**
-   * Returns a buffered writer that the plugin can use to write update records with.
-   *
-   * @throws IOException If a new file writer cannot be created.
-   */
-  private BufferedWriter setupWriter() throws IOException {
-    return new BufferedWriter(new FileWriter(logFile, true));
-  }
-
   /**
    * Write the specified map of old entry and new entry DNs to the log
    * file. Each entry of the map is a line in the file, the key is the old
-   * entry normalized DN and the value is the new entry normalized DN.
-   * The DNs are separated by the tab character. This map is related to a
-   * modify DN operation.
+   * entry DN and the value is the new entry DN, if any. The DNs are
+   * separated by the tab character.
    *
-   * @param modDNmap The map of old entry and new entry DNs.
+   * @param changes The map of old entry and new entry DNs.
    */
-  private void writeLog(Map<DN,DN> modDNmap) {
-    synchronized(logFile)
+  private void writeLog(Map<DN,DN> changes) {
+    try
     {
-      try (BufferedWriter writer = setupWriter())
-      {
-        for(Map.Entry<DN,DN> mapEntry : modDNmap.entrySet())
-        {
-          writer.write(mapEntry.getKey() + "\t" + mapEntry.getValue());
-          writer.newLine();
-        }
-      }
-      catch (IOException io)
-      {
-        logger.error(ERR_PLUGIN_REFERENT_CLOSE_LOGFILE, io.getMessage());
-      }
+      workLog.append(changes);
     }
-  }
-
-  /**
-   * Write the specified entry DNs to the log file.
-   * These entry DNs are related to a delete operation.
-   *
-   * @param deletedEntryDN The DN of the deleted entry.
-   */
-  private void writeLog(Set<DN> deleteDNset) {
-    synchronized(logFile)
+    catch (IOException io)
     {
-      try (BufferedWriter writer = setupWriter())
-      {
-        for (DN deletedEntryDN : deleteDNset)
-        {
-          writer.write(deletedEntryDN.toString());
-          writer.newLine();
-        }
-      }
-      catch (IOException io)
-      {
-        logger.error(ERR_PLUGIN_REFERENT_CLOSE_LOGFILE, io.getMessage());
-      }
+      logger.error(ERR_PLUGIN_REFERENT_CLOSE_LOGFILE, io.getMessage());
     }
   }
 
   /**
-   * Process all of the records in the log file. Each line of the file is read
-   * and parsed to determine if it was a delete operation (a single normalized
-   * DN) or a modify DN operation (two normalized DNs separated by a tab). The
-   * corresponding operation method is called to perform the referential
-   * integrity processing as though the operation was just processed. After
-   * all of the records in log file have been processed, the log file is
-   * cleared so that new records can be added.
+   * Process the records of the log file by batches, until all of them have
+   * been processed or the background thread is asked to stop. Each batch is
+   * processed as though the operations were just processed, then the log
+   * records that it has been processed, so that it is not processed again
+   * after a restart.
    */
   private void processLog() {
-    synchronized(logFile) {
-      try {
-        if(logFile.length() == 0)
-        {
-          return;
+    try {
+      Map<DN, DN> batch;
+      while (!isShuttingDown() && (batch = workLog.readBatch(BATCH_SIZE)) != null) {
+        if (!batch.isEmpty()) {
+          processBatch(batch);
         }
-
-        try (BufferedReader reader = new BufferedReader(new FileReader(logFile)))
-        {
-          String line;
-          while((line=reader.readLine()) != null) {
-            try {
-              String[] a=line.split("[\t]");
-              DN origDn = DN.valueOf(a[0]);
-              //If there is only a single DN string than it must be a delete.
-              if(a.length == 1) {
-                processDelete(Collections.singleton(origDn), false);
-              } else {
-                DN movedDN=DN.valueOf(a[1]);
-                processModifyDN(origDn, movedDN);
-              }
-            } catch (LocalizedIllegalArgumentException e) {
-              //This exception should rarely happen since the plugin wrote the DN
-              //strings originally.
-              logger.error(ERR_PLUGIN_REFERENT_CANNOT_DECODE_STRING_AS_DN, e.getMessage());
-            }
-          }
-        }
-        logFile.delete();
-        logFile.createNewFile();
-      } catch (IOException io) {
-        logger.error(ERR_PLUGIN_REFERENT_REPLACE_LOGFILE, io.getMessage());
+        workLog.commitBatch();
       }
+    } catch (IOException io) {
+      logger.error(ERR_PLUGIN_REFERENT_REPLACE_LOGFILE, io.getMessage());
     }
   }
 
@@ -885,6 +865,7 @@ public class ReferentialIntegrityPlugin
   @Override
   public final void finalizePlugin() {
     currentConfiguration.removeReferentialIntegrityChangeListener(this);
+    DirectoryServer.deregisterMonitorProvider(monitor);
     if(interval > 0)
     {
       processServerShutdown(null);
@@ -979,6 +960,41 @@ public class ReferentialIntegrityPlugin
     }
   }
 
+  /**
+   * The monitor provider exposing the backlog and throughput of the
+   * referential integrity processing.
+   */
+  private class ReferentialIntegrityMonitor extends MonitorProvider<MonitorProviderCfg>
+  {
+    private final String instanceName;
+
+    private ReferentialIntegrityMonitor(String instanceName)
+    {
+      this.instanceName = instanceName;
+    }
+
+    @Override
+    public String getMonitorInstanceName()
+    {
+      return instanceName;
+    }
+
+    @Override
+    public MonitorData getMonitorData()
+    {
+      final long changes = processedChanges.get();
+      final long time = processingTime.get();
+
+      final MonitorData monitorAttrs = new MonitorData(5);
+      monitorAttrs.add("pendingChanges", workLog.getPendingRecords());
+      monitorAttrs.add("processedChanges", changes);
+      monitorAttrs.add("processedBatches", processedBatches.get());
+      monitorAttrs.add("modifiedEntries", modifiedEntries.get());
+      monitorAttrs.add("processedChangesPerSecond", time > 0 ? changes * TimeUnit.SECONDS.toNanos(1) / time : 0);
+      return monitorAttrs;
+    }
+  }
+
   @Override
   public PluginResult.PreOperation doPreOperation(
     PreOperationModifyOperation modifyOperation)
@@ -0,0 +1,300 @@
+/*
+ * The contents of this file are subject to the terms of the Common Development and
+ * Distribution License (the License). You may not use this file except in compliance with the
+ * License.
+ *
+ * You can obtain a copy of the License at legal/CDDLv1.0.txt. See the License for the
+ * specific language governing permission and limitations under the License.
+ *
+ * When distributing Covered Software, include this CDDL Header Notice in each file and include
+ * the License file at legal/CDDLv1.0.txt. If applicable, add the following below the CDDL
+ * Header, with the fields enclosed by brackets [] replaced by your own identifying
+ * information: "Portions Copyright [year] [name of copyright owner]".
+ *
+ * Copyright 2026 ForgeRock AS.
+ */
+package org.opends.server.plugins;
+
+import static java.nio.charset.StandardCharsets.*;
+import static java.nio.file.StandardCopyOption.*;
+
+import static org.opends.messages.PluginMessages.*;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedWriter;
+import java.io.ByteArrayOutputStream;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStreamWriter;
+import java.io.RandomAccessFile;
+import java.nio.file.Files;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.atomic.AtomicLong;
+
+import org.forgerock.i18n.LocalizedIllegalArgumentException;
+import org.forgerock.i18n.slf4j.LocalizedLogger;
+import org.forgerock.opendj.ldap.DN;
+
+/**
+ * The durable queue of the deleted and renamed entries whose references remain to be processed by the
+ * referential integrity plugin.
+ * <p>
+ * Changes are appended to a log file, one per line: a deleted entry is recorded as its DN, a renamed
+ * entry as its old and new DNs separated by a tab. The position of the first change which remains to
+ * be processed is recorded in a checkpoint file next to the log file, so that processed changes are
+ * neither read nor processed again, even after a restart. The log file is truncated once all the
+ * changes it contains have been processed.
+ * <p>
+ * Changes are read by batches with {@link #readBatch(int)}, and each batch must be acknowledged with
+ * {@link #commitBatch()} once processed. Appending changes is not blocked by the processing of a batch.
+ */
+final class ReferentialIntegrityWorkLog
+{
+  private static final LocalizedLogger logger = LocalizedLogger.getLoggerForThisClass();
+
+  /** The suffix appended to the log file name to obtain the name of the checkpoint file. */
+  static final String CHECKPOINT_FILE_SUFFIX = ".checkpoint";
+
+  private final File logFile;
+  private final File checkpointFile;
+  /** The position in the log file of the first change which remains to be processed. */
+  private long checkpoint;
+  /** The position in the log file following the last change of the current batch. */
+  private long batchEnd;
+  /** The number of changes read for the current batch, including the changes which could not be decoded. */
+  private long batchRecords;
+  /** The number of changes which remain to be processed. */
+  private final AtomicLong pendingRecords = new AtomicLong();
+
+  /**
+   * Opens the provided log file, creating it if needed.
+   *
+   * @param logFile
+   *          the log file
+   * @throws IOException
+   *           if the log file cannot be created or read
+   */
+  ReferentialIntegrityWorkLog(final File logFile) throws IOException
+  {
+    this.logFile = logFile;
+    this.checkpointFile = new File(logFile.getPath() + CHECKPOINT_FILE_SUFFIX);
+    if (!logFile.exists())
+    {
+      logFile.createNewFile();
+    }
+    checkpoint = readCheckpoint();
+    if (checkpoint > logFile.length())
+    {
+      // the log file was truncated after the checkpoint was written
+      checkpoint = 0;
+    }
+    batchEnd = checkpoint;
+    terminateLastLine();
+    pendingRecords.set(countRecords());
+  }
+
+  /**
+   * Appends the provided changes to this log.
+   *
+   * @param changes
+   *          the map of the old DNs to the new DNs of the changed entries, the new DN being {@code null} for
+   *          deleted entries
+   * @throws IOException
+   *           if the changes cannot be written
+   */
+  synchronized void append(final Map<DN, DN> changes) throws IOException
+  {
+    try (BufferedWriter writer =
+        new BufferedWriter(new OutputStreamWriter(new FileOutputStream(logFile, true), UTF_8)))
+    {
+      for (Map.Entry<DN, DN> change : changes.entrySet())
+      {
+        writer.write(change.getKey().toString());
+        if (change.getValue() != null)
+        {
+          writer.write('\t');
+          writer.write(change.getValue().toString());
+        }
+        writer.newLine();
+      }
+    }
+    pendingRecords.addAndGet(changes.size());
+  }
+
+  /**
+   * Reads the next batch of changes following the last committed batch.
+   * <p>
+   * A batch ends before a change which depends on a change of the same batch, for example the deletion of an
+   * entry which has just been renamed, so that all the changes of a batch can be processed together.
+   *
+   * @param maxRecords
+   *          the maximum number of changes to read
+   * @return the map of the old DNs to the new DNs of the changed entries, the new DN being {@code null} for
+   *         deleted entries, or {@code null} if there are no changes to process. The returned map may be empty
+   *         if none of the changes read could be decoded.
+   * @throws IOException
+   *           if the log file cannot be read
+   */
+  synchronized Map<DN, DN> readBatch(final int maxRecords) throws IOException
+  {
+    final Map<DN, DN> batch = new LinkedHashMap<>();
+    final Set<DN> newDNs = new HashSet<>();
+    long position = checkpoint;
+    long records = 0;
+    try (FileInputStream file = new FileInputStream(logFile))
+    {
+      file.getChannel().position(checkpoint);
+      final InputStream in = new BufferedInputStream(file);
+      final ByteArrayOutputStream line = new ByteArrayOutputStream();
+      while (records < maxRecords && readLine(in, line))
+      {
+        final String record = new String(line.toByteArray(), UTF_8).trim();
+        if (!record.isEmpty())
+        {
+          try
+          {
+            final String[] dns = record.split("\t");
+            final DN oldDN = DN.valueOf(dns[0]);
+            final DN newDN = dns.length > 1 ? DN.valueOf(dns[1]) : null;
+            if (batch.containsKey(oldDN) || newDNs.contains(oldDN))
+            {
+              break;
+            }
+            batch.put(oldDN, newDN);
+            if (newDN != null)
+            {
+              newDNs.add(newDN);
+            }
+          }
+          catch (LocalizedIllegalArgumentException e)
+          {
+            // This should rarely happen since the plugin wrote the DN strings originally.
+            logger.error(ERR_PLUGIN_REFERENT_CANNOT_DECODE_STRING_AS_DN, e.getMessage());
+          }
+          records++;
+        }
+        position += line.size() + 1;
+      }
+    }
+    batchEnd = position;
+    batchRecords = records;
+    return position != checkpoint ? batch : null;
+  }
+
+  /**
+   * Acknowledges that the changes of the last batch read have been processed.
+   *
+   * @throws IOException
+   *           if the checkpoint cannot be written
+   */
+  synchronized void commitBatch() throws IOException
+  {
+    checkpoint = batchEnd;
+    pendingRecords.addAndGet(-batchRecords);
+    batchRecords = 0;
+    if (checkpoint >= logFile.length())
+    {
+      try (RandomAccessFile file = new RandomAccessFile(logFile, "rw"))
+      {
+        file.setLength(0);
+      }
+      checkpoint = 0;
+      batchEnd = 0;
+      pendingRecords.set(0);
+    }
+    writeCheckpoint();
+  }
+
+  /**
+   * Returns the number of changes which remain to be processed.
+   *
+   * @return the number of changes which remain to be processed
+   */
+  long getPendingRecords()
+  {
+    return pendingRecords.get();
+  }
+
+  /** Reads the bytes of the next complete line, without its line separator, returns whether one was read. */
+  private static boolean readLine(final InputStream in, final ByteArrayOutputStream line) throws IOException
+  {
+    line.reset();
+    int b;
+    while ((b = in.read()) != -1)
+    {
+      if (b == '\n')
+      {
+        return true;
+      }
+      line.write(b);
+    }
+    // An incomplete line is still being written
+    return false;
+  }
+
+  private long countRecords() throws IOException
+  {
+    long count = 0;
+    try (FileInputStream file = new FileInputStream(logFile))
+    {
+      file.getChannel().position(checkpoint);
+      final InputStream in = new BufferedInputStream(file);
+      final ByteArrayOutputStream line = new ByteArrayOutputStream();
+      while (readLine(in, line))
+      {
+        if (!new String(line.toByteArray(), UTF_8).trim().isEmpty())
+        {
+          count++;
+        }
+      }
+    }
+    return count;
+  }
+
+  /** Completes the last change if the server stopped while writing it, so that the next changes are readable. */
+  private void terminateLastLine() throws IOException
+  {
+    try (RandomAccessFile file = new RandomAccessFile(logFile, "rw"))
+    {
+      final long length = file.length();
+      if (length > 0)
+      {
+        file.seek(length - 1);
+        if (file.read() != '\n')
+        {
+          file.write('\n');
+        }
+      }
+    }
+  }
+
+  private long readCheckpoint() throws IOException
+  {
+    if (!checkpointFile.exists())
+    {
+      return 0;
+    }
+    final String content = new String(Files.readAllBytes(checkpointFile.toPath()), UTF_8).trim();
+    try
+    {
+      return content.isEmpty() ? 0 : Long.parseLong(content);
+    }
+    catch (NumberFormatException e)
+    {
+      throw new IOException(e.getMessage(), e);
+    }
+  }
+
+  private void writeCheckpoint() throws IOException
+  {
+    final File tmpFile = new File(checkpointFile.getPath() + ".tmp");
+    Files.write(tmpFile.toPath(), Long.toString(checkpoint).getBytes(UTF_8));
+    Files.move(tmpFile.toPath(), checkpointFile.toPath(), REPLACE_EXISTING, ATOMIC_MOVE);
+  }
+}
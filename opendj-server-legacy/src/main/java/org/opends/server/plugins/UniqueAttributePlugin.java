@@ -17,6 +17,7 @@
 package org.opends.server.plugins;
 
 import java.util.ArrayList;
+import java.util.Collections;
 import java.util.LinkedHashMap;
 import java.util.LinkedHashSet;
 import java.util.LinkedList;
@@ -32,9 +33,11 @@ import org.forgerock.opendj.config.server.ConfigException;
 import org.forgerock.opendj.ldap.AVA;
 import org.forgerock.opendj.ldap.ByteString;
 import org.forgerock.opendj.ldap.DN;
+import org.forgerock.opendj.ldap.DecodeException;
 import org.forgerock.opendj.ldap.ResultCode;
 import org.forgerock.opendj.ldap.SearchScope;
 import org.forgerock.opendj.ldap.schema.AttributeType;
+import org.forgerock.opendj.ldap.schema.MatchingRule;
 import org.forgerock.opendj.config.server.ConfigurationChangeListener;
 import org.forgerock.opendj.server.config.meta.PluginCfgDefn;
 import org.forgerock.opendj.server.config.server.PluginCfg;
@@ -46,6 +49,7 @@ import org.opends.server.api.plugin.PluginResult;
 import org.opends.server.api.plugin.PluginResult.PostOperation;
 import org.opends.server.api.plugin.PluginResult.PreOperation;
 import org.opends.server.api.plugin.PluginType;
+import org.opends.server.backends.pluggable.BackendImpl;
 import org.opends.server.core.BackendConfigManager;
 import org.opends.server.core.DirectoryServer;
 import org.opends.server.protocols.internal.InternalClientConnection;
@@ -86,6 +90,9 @@ import static org.opends.server.util.ServerConstants.*;
  * will be rejected, unless that operation is being applied through
  * synchronization in which case an alert will be generated to notify
  * administrators of the problem.
+ * <BR><BR>
+ * Conflicts are looked up by internal searches, or directly in the equality
+ * indexes of the pluggable backends when the plugin is configured to do so.
  */
 public class UniqueAttributePlugin
         extends DirectoryServerPlugin<UniqueAttributePluginCfg>
@@ -115,8 +122,10 @@ public class UniqueAttributePlugin
 
 
   /**
-   * The data structure to store the mapping between the attribute value and the
-   * corresponding dn.
+   * The data structure to store the mapping between the normalized attribute
+   * value and the corresponding dn, while the operation adding the value is in
+   * progress. The concurrent map locks each of its bins separately, so that
+   * reserving distinct values does not contend.
    */
   private ConcurrentHashMap<ByteString,DN> uniqueAttrValue2Dn;
 
@@ -299,10 +308,11 @@ public class UniqueAttributePlugin
       //Raise an exception if a conflicting concurrent operation is
       //in progress. Otherwise, store this attribute value with its
       //corresponding DN and proceed.
-      DN conflictDN = uniqueAttrValue2Dn.putIfAbsent(v, entryDN);
+      ByteString key = getReservationKey(t, v);
+      DN conflictDN = uniqueAttrValue2Dn.putIfAbsent(key, entryDN);
       if (conflictDN == null)
       {
-        recordedValues.add(v);
+        recordedValues.add(key);
         conflictDN = getConflictingEntryDN(baseDNs, entryDN,
                                             config, v);
       }
@@ -376,6 +386,28 @@ public class UniqueAttributePlugin
     return PluginResult.PreOperation.continueOperationProcessing();
   }
 
+  /**
+   * Returns the key under which a value is reserved while the operation adding
+   * it is in progress: values which are equal according to the equality
+   * matching rule of the attribute type share the same key.
+   */
+  private static ByteString getReservationKey(AttributeType t, ByteString v)
+  {
+    MatchingRule rule = t.getEqualityMatchingRule();
+    if (rule != null)
+    {
+      try
+      {
+        return rule.normalizeAttributeValue(v);
+      }
+      catch (DecodeException e)
+      {
+        logger.traceException(e);
+      }
+    }
+    return v;
+  }
+
   private boolean isModifyingUniqueAttribute(AttributeType t, UniqueAttributePluginCfg config)
   {
     return config.getType().contains(t);
@@ -502,7 +534,7 @@ public class UniqueAttributePlugin
   {
     try
     {
-      DN conflictDN = uniqueAttrValue2Dn.get(v);
+      DN conflictDN = uniqueAttrValue2Dn.get(getReservationKey(t, v));
       if (conflictDN == null)
       {
         conflictDN = getConflictingEntryDN(baseDNs, entryDN, config, v);
@@ -613,6 +645,19 @@ public class UniqueAttributePlugin
     InternalClientConnection conn = getRootConnection();
     for (DN baseDN : baseDNs)
     {
+      if (config.isUseEqualityIndex())
+      {
+        List<DN> conflictDNs = getConflictingEntryDNsFromIndexes(baseDN, targetDN, attrTypes, value);
+        if (conflictDNs != null)
+        {
+          if (!conflictDNs.isEmpty())
+          {
+            return conflictDNs.get(0);
+          }
+          continue;
+        }
+      }
+
       final SearchRequest request = newSearchRequest(baseDN, SearchScope.WHOLE_SUBTREE, filter)
           .setSizeLimit(2)
           .addAttribute(SEARCH_ATTRS);
@@ -647,6 +692,51 @@ public class UniqueAttributePlugin
 
 
 
+  /**
+   * Retrieves the DN of the first entry below the provided base DN that
+   * conflicts with the provided value, by probing the equality index of each
+   * attribute type rather than by processing an internal search.
+   *
+   * @param  baseDN     The base DN below which conflicting entries are looked
+   *                    for.
+   * @param  targetDN   The DN of the entry at which the change is targeted.
+   * @param  attrTypes  The attribute types whose values must be unique.
+   * @param  value      The value for which to identify any conflicting entries.
+   *
+   * @return  A list containing the DN of the first conflicting entry, an empty
+   *          list if there is no conflict, or {@code null} if the indexes
+   *          cannot be used and an internal search must be processed instead.
+   *
+   * @throws  DirectoryException  If a problem occurred while attempting to
+   *                              make the determination.
+   */
+  private List<DN> getConflictingEntryDNsFromIndexes(DN baseDN, DN targetDN,
+      Set<AttributeType> attrTypes, ByteString value) throws DirectoryException
+  {
+    BackendConfigManager backendConfigManager =
+        DirectoryServer.getInstance().getServerContext().getBackendConfigManager();
+    LocalBackend<?> backend = backendConfigManager.findLocalBackendForEntry(baseDN);
+    // An internal search would also look for conflicts in the subordinate backends
+    if (!(backend instanceof BackendImpl)
+        || !backendConfigManager.getSubordinateBackends(backend).isEmpty())
+    {
+      return null;
+    }
+
+    BackendImpl<?> pluggableBackend = (BackendImpl<?>) backend;
+    for (AttributeType t : attrTypes)
+    {
+      List<DN> conflictDNs = pluggableBackend.getEntryDNsByEqualityIndex(baseDN, t, value, targetDN, 1);
+      if (conflictDNs == null || !conflictDNs.isEmpty())
+      {
+        return conflictDNs;
+      }
+    }
+    return Collections.<DN> emptyList();
+  }
+
+
+
   @Override
   public boolean isConfigurationAcceptable(PluginCfg configuration,
                                            List<LocalizableMessage> unacceptableReasons)
@@ -775,7 +865,7 @@ public class UniqueAttributePlugin
       {
         for (ByteString v : a)
         {
-          uniqueAttrValue2Dn.remove(v);
+          uniqueAttrValue2Dn.remove(getReservationKey(t, v));
         }
       }
     }
@@ -815,7 +905,7 @@ public class UniqueAttributePlugin
         case REPLACE:
           for (ByteString v : a)
           {
-            uniqueAttrValue2Dn.remove(v);
+            uniqueAttrValue2Dn.remove(getReservationKey(t, v));
           }
           break;
 
@@ -826,7 +916,7 @@ public class UniqueAttributePlugin
           {
             for (ByteString v : updatedAttr)
             {
-              uniqueAttrValue2Dn.remove(v);
+              uniqueAttrValue2Dn.remove(getReservationKey(t, v));
             }
           }
           break;
@@ -861,7 +951,7 @@ public class UniqueAttributePlugin
       AttributeType t = ava.getAttributeType();
       if (isModifyingUniqueAttribute(t, config))
       {
-        uniqueAttrValue2Dn.remove(ava.getAttributeValue());
+        uniqueAttrValue2Dn.remove(getReservationKey(t, ava.getAttributeValue()));
       }
     }
     return PostOperation.continueOperationProcessing();
@@ -31,7 +31,6 @@ import java.util.concurrent.BlockingQueue;
 import java.util.concurrent.ConcurrentHashMap;
 import java.util.concurrent.LinkedBlockingQueue;
 import java.util.concurrent.atomic.AtomicReference;
-import java.util.concurrent.locks.ReentrantLock;
 
 import org.forgerock.i18n.LocalizableMessage;
 import org.forgerock.i18n.slf4j.LocalizedLogger;
@@ -100,6 +99,8 @@ public class MultimasterReplication
   private static final DSRSShutdownSync dsrsShutdownSync = new DSRSShutdownSync();
   /** The queue of received update messages, to be treated by the ReplayThread threads. */
   private static final BlockingQueue<UpdateToReplay> updateToReplayQueue = new LinkedBlockingQueue<>(10000);
+  /** Partitions the received update messages between the ReplayThread threads. */
+  private static final ReplayScheduler replayScheduler = new ReplayScheduler(updateToReplayQueue);
   /** The list of ReplayThread threads. */
   private static final List<ReplayThread> replayThreads = new ArrayList<>();
   /** The configurable number of replay threads. */
@@ -301,15 +302,25 @@ public class MultimasterReplication
   {
     replayThreads.clear();
 
-    ReentrantLock switchQueueLock = new ReentrantLock();
+    replayScheduler.setNumberOfPartitions(replayThreadNumber);
     for (int i = 0; i < replayThreadNumber; i++)
     {
-      ReplayThread replayThread = new ReplayThread(updateToReplayQueue, switchQueueLock);
+      ReplayThread replayThread = new ReplayThread(replayScheduler);
       replayThread.start();
       replayThreads.add(replayThread);
     }
   }
 
+  /**
+   * Returns the scheduler distributing the received update messages between the replay threads.
+   *
+   * @return the replay scheduler
+   */
+  static ReplayScheduler getReplayScheduler()
+  {
+    return replayScheduler;
+  }
+
   /** Stop the threads that are waiting for incoming update messages. */
   private static synchronized void stopReplayThreads()
   {
@@ -0,0 +1,416 @@
+/*
+ * The contents of this file are subject to the terms of the Common Development and
+ * Distribution License (the License). You may not use this file except in compliance with the
+ * License.
+ *
+ * You can obtain a copy of the License at legal/CDDLv1.0.txt. See the License for the
+ * specific language governing permission and limitations under the License.
+ *
+ * When distributing Covered Software, include this CDDL Header Notice in each file and include
+ * the License file at legal/CDDLv1.0.txt. If applicable, add the following below the CDDL
+ * Header, with the fields enclosed by brackets [] replaced by your own identifying
+ * information: "Portions Copyright [year] [name of copyright owner]".
+ *
+ * Copyright 2026 ForgeRock AS.
+ */
+package org.opends.server.replication.plugin;
+
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+import java.util.SortedMap;
+import java.util.TreeMap;
+import java.util.TreeSet;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.locks.Condition;
+import java.util.concurrent.locks.ReentrantLock;
+
+import net.jcip.annotations.GuardedBy;
+
+import org.forgerock.i18n.LocalizedIllegalArgumentException;
+import org.forgerock.i18n.slf4j.LocalizedLogger;
+import org.forgerock.opendj.ldap.DN;
+import org.forgerock.opendj.ldap.RDN;
+import org.opends.server.api.MonitorData;
+import org.opends.server.replication.protocol.LDAPUpdateMsg;
+import org.opends.server.replication.protocol.ModifyDNMsg;
+import org.opends.server.replication.protocol.ModifyMsg;
+
+/**
+ * Schedules the updates received from the replication servers on the replay threads.
+ * <p>
+ * Updates are partitioned by the DNs they target: the DN of the entry for all the updates, plus the DN
+ * of its parent for adds, deletes and modify DNs, plus the new DN and the new parent for modify DNs.
+ * The updates of a partition are replayed one at a time, in the order they were received, whereas the
+ * updates of different partitions are replayed concurrently. An update spanning several partitions is
+ * replayed once it has reached the head of all of them, hence conflicting updates keep their CSN order.
+ * <p>
+ * Dependencies which cannot be expressed with partitions, like updates below an entry being renamed,
+ * are still detected by {@link RemotePendingChanges} when updates are replayed. To this end, updates
+ * are marked as in progress as soon as they are scheduled, in the order they were received.
+ */
+final class ReplayScheduler
+{
+  private static final LocalizedLogger logger = LocalizedLogger.getLoggerForThisClass();
+
+  /** The maximum number of updates taken from the queue of received updates and waiting in the partitions. */
+  static final int MAX_SCHEDULED_UPDATES = 1000;
+
+  /** The queue of received updates, filled by the replication domains. */
+  private final BlockingQueue<UpdateToReplay> updateToReplayQueue;
+
+  private final ReentrantLock lock = new ReentrantLock();
+  /** Signaled when updates are scheduled or replayed. */
+  private final Condition partitionsChanged = lock.newCondition();
+
+  @GuardedBy("lock")
+  private Partition[] partitions = new Partition[0];
+  /** The number of updates in the partitions, being replayed or waiting. */
+  @GuardedBy("lock")
+  private int nbScheduledUpdates;
+  /** Numbers the scheduled updates, so that their order is kept when they are partitioned again. */
+  @GuardedBy("lock")
+  private long nextSequenceNumber;
+  /** Whether a replay thread is waiting for updates on the queue of received updates. */
+  @GuardedBy("lock")
+  private boolean isPollingQueue;
+  /** The partition where to start looking for an update to replay, so that partitions are served in turn. */
+  @GuardedBy("lock")
+  private int nextPartition;
+
+  /** An update scheduled for replay. */
+  static final class ScheduledUpdate
+  {
+    private final UpdateToReplay updateToReplay;
+    private final long sequenceNumber;
+    /** The indexes of the partitions of this update, in ascending order. */
+    private int[] partitionIndexes;
+
+    private ScheduledUpdate(UpdateToReplay updateToReplay, long sequenceNumber)
+    {
+      this.updateToReplay = updateToReplay;
+      this.sequenceNumber = sequenceNumber;
+    }
+
+    /**
+     * Returns the update to replay.
+     *
+     * @return the update to replay
+     */
+    UpdateToReplay getUpdateToReplay()
+    {
+      return updateToReplay;
+    }
+
+    @Override
+    public String toString()
+    {
+      return getClass().getSimpleName() + "(csn=" + updateToReplay.getUpdateMessage().getCSN() + ")";
+    }
+  }
+
+  /** The updates of a partition, in the order they were received. */
+  private static final class Partition
+  {
+    private final ArrayDeque<ScheduledUpdate> updates = new ArrayDeque<>();
+    /** Whether the update at the head of this partition is being replayed. */
+    private boolean isReplaying;
+    private long nbReplayedUpdates;
+  }
+
+  /**
+   * Creates a new replay scheduler.
+   *
+   * @param updateToReplayQueue
+   *          The queue of updates received from the replication servers.
+   */
+  ReplayScheduler(BlockingQueue<UpdateToReplay> updateToReplayQueue)
+  {
+    this.updateToReplayQueue = updateToReplayQueue;
+  }
+
+  /**
+   * Sets the number of partitions, usually the number of replay threads. The updates already
+   * scheduled are partitioned again, keeping their order. Must only be called while no replay
+   * thread is running.
+   *
+   * @param nbPartitions
+   *          The number of partitions.
+   */
+  void setNumberOfPartitions(int nbPartitions)
+  {
+    lock.lock();
+    try
+    {
+      final SortedMap<Long, ScheduledUpdate> scheduledUpdates = new TreeMap<>();
+      for (Partition partition : partitions)
+      {
+        for (ScheduledUpdate update : partition.updates)
+        {
+          scheduledUpdates.put(update.sequenceNumber, update);
+        }
+      }
+
+      partitions = new Partition[Math.max(1, nbPartitions)];
+      for (int i = 0; i < partitions.length; i++)
+      {
+        partitions[i] = new Partition();
+      }
+      nextPartition = 0;
+      for (ScheduledUpdate update : scheduledUpdates.values())
+      {
+        addToPartitions(update);
+      }
+    }
+    finally
+    {
+      lock.unlock();
+    }
+  }
+
+  /**
+   * Takes the next update which can be replayed, waiting up to about one second for one.
+   * The update must be released with {@link #updateReplayed(ScheduledUpdate)} once replayed.
+   *
+   * @return the next update to replay, or {@code null} if none could be replayed in time
+   * @throws InterruptedException
+   *           If the current thread was interrupted while waiting
+   */
+  ScheduledUpdate takeUpdate() throws InterruptedException
+  {
+    lock.lock();
+    try
+    {
+      pollQueue();
+      final ScheduledUpdate update = takeReadyUpdate();
+      if (update != null)
+      {
+        return update;
+      }
+
+      if (!isPollingQueue && nbScheduledUpdates < MAX_SCHEDULED_UPDATES)
+      {
+        // Wait for new updates without holding the lock, so other threads can release their updates
+        isPollingQueue = true;
+        final UpdateToReplay received;
+        lock.unlock();
+        try
+        {
+          received = updateToReplayQueue.poll(1L, TimeUnit.SECONDS);
+        }
+        finally
+        {
+          lock.lock();
+          isPollingQueue = false;
+        }
+        if (received != null)
+        {
+          schedule(received);
+        }
+        // Let another thread take over polling the queue, or replay the new updates
+        partitionsChanged.signalAll();
+      }
+      else
+      {
+        partitionsChanged.await(1L, TimeUnit.SECONDS);
+      }
+      pollQueue();
+      return takeReadyUpdate();
+    }
+    finally
+    {
+      lock.unlock();
+    }
+  }
+
+  /**
+   * Releases an update taken with {@link #takeUpdate()}, once it has been replayed.
+   * The next updates of its partitions can then be replayed.
+   *
+   * @param update
+   *          The update which has been replayed.
+   */
+  void updateReplayed(ScheduledUpdate update)
+  {
+    lock.lock();
+    try
+    {
+      for (int index : update.partitionIndexes)
+      {
+        final Partition partition = partitions[index];
+        partition.updates.remove(update);
+        partition.isReplaying = false;
+        partition.nbReplayedUpdates++;
+      }
+      nbScheduledUpdates--;
+      partitionsChanged.signalAll();
+    }
+    finally
+    {
+      lock.unlock();
+    }
+  }
+
+  /**
+   * Adds the monitoring data of the partitions for the provided replication domain: for each partition,
+   * the number of updates of the domain waiting in the partition, and the replication delay in
+   * milliseconds of the oldest of these updates.
+   *
+   * @param attributes
+   *          The monitoring data where to add the partition data.
+   * @param domain
+   *          The replication domain for which partition data is computed.
+   */
+  void addMonitorData(MonitorData attributes, LDAPReplicationDomain domain)
+  {
+    final List<String> sizes = new ArrayList<>();
+    final List<String> lags = new ArrayList<>();
+    final List<String> replayedUpdates = new ArrayList<>();
+    final long now = System.currentTimeMillis();
+    lock.lock();
+    try
+    {
+      for (int i = 0; i < partitions.length; i++)
+      {
+        int size = 0;
+        long lag = 0;
+        for (ScheduledUpdate update : partitions[i].updates)
+        {
+          if (update.updateToReplay.getReplicationDomain() == domain)
+          {
+            if (size++ == 0)
+            {
+              lag = Math.max(0, now - update.updateToReplay.getUpdateMessage().getCSN().getTime());
+            }
+          }
+        }
+        sizes.add(i + ":" + size);
+        lags.add(i + ":" + lag);
+        replayedUpdates.add(i + ":" + partitions[i].nbReplayedUpdates);
+      }
+    }
+    finally
+    {
+      lock.unlock();
+    }
+    if (!sizes.isEmpty())
+    {
+      attributes.add("replay-partition-size", sizes);
+      attributes.add("replay-partition-lag", lags);
+      attributes.add("replay-partition-replayed-updates", replayedUpdates);
+    }
+  }
+
+  /** Moves the received updates to the partitions, as long as there is room for them. */
+  @GuardedBy("lock")
+  private void pollQueue()
+  {
+    while (nbScheduledUpdates < MAX_SCHEDULED_UPDATES)
+    {
+      final UpdateToReplay received = updateToReplayQueue.poll();
+      if (received == null)
+      {
+        return;
+      }
+      schedule(received);
+    }
+  }
+
+  @GuardedBy("lock")
+  private void schedule(UpdateToReplay updateToReplay)
+  {
+    final ScheduledUpdate update = new ScheduledUpdate(updateToReplay, nextSequenceNumber++);
+    updateToReplay.markInProgress();
+    addToPartitions(update);
+    nbScheduledUpdates++;
+  }
+
+  @GuardedBy("lock")
+  private void addToPartitions(ScheduledUpdate update)
+  {
+    final Set<Integer> indexes = new TreeSet<>();
+    for (DN dn : getTargetDNs(update.updateToReplay.getUpdateMessage()))
+    {
+      indexes.add((dn.hashCode() & Integer.MAX_VALUE) % partitions.length);
+    }
+    update.partitionIndexes = new int[indexes.size()];
+    int i = 0;
+    for (int index : indexes)
+    {
+      update.partitionIndexes[i++] = index;
+      partitions[index].updates.addLast(update);
+    }
+  }
+
+  /** Returns the DNs whose updates must be replayed in order with the provided update. */
+  private static Collection<DN> getTargetDNs(LDAPUpdateMsg msg)
+  {
+    final Set<DN> dns = new HashSet<>();
+    final DN dn = msg.getDN();
+    dns.add(dn);
+    if (!(msg instanceof ModifyMsg) && dn.parent() != null)
+    {
+      // adds, deletes and modify DNs also change the children of the parent entry
+      dns.add(dn.parent());
+    }
+    if (msg instanceof ModifyDNMsg)
+    {
+      final ModifyDNMsg modifyDNMsg = (ModifyDNMsg) msg;
+      try
+      {
+        final String newSuperior = modifyDNMsg.getNewSuperior();
+        final DN newParent = newSuperior != null ? DN.valueOf(newSuperior) : dn.parent();
+        if (newParent != null)
+        {
+          dns.add(newParent);
+          dns.add(newParent.child(RDN.valueOf(modifyDNMsg.getNewRDN())));
+        }
+      }
+      catch (LocalizedIllegalArgumentException e)
+      {
+        // The invalid DN will be reported when replaying the update
+        logger.traceException(e);
+      }
+    }
+    return dns;
+  }
+
+  /** Returns the first update at the head of all its partitions, none of them being replayed. */
+  @GuardedBy("lock")
+  private ScheduledUpdate takeReadyUpdate()
+  {
+    for (int i = 0; i < partitions.length; i++)
+    {
+      final int index = (nextPartition + i) % partitions.length;
+      final ScheduledUpdate update = partitions[index].updates.peekFirst();
+      if (update != null && isReady(update))
+      {
+        for (int partitionIndex : update.partitionIndexes)
+        {
+          partitions[partitionIndex].isReplaying = true;
+        }
+        nextPartition = (index + 1) % partitions.length;
+        return update;
+      }
+    }
+    return null;
+  }
+
+  @GuardedBy("lock")
+  private boolean isReady(ScheduledUpdate update)
+  {
+    for (int index : update.partitionIndexes)
+    {
+      final Partition partition = partitions[index];
+      if (partition.isReplaying || partition.updates.peekFirst() != update)
+      {
+        return false;
+      }
+    }
+    return true;
+  }
+}
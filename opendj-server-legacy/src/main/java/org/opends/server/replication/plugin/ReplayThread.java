@@ -19,42 +19,38 @@ package org.opends.server.replication.plugin;
 import static org.opends.messages.ReplicationMessages.*;
 import static org.opends.server.util.StaticUtils.*;
 
-import java.util.concurrent.BlockingQueue;
-import java.util.concurrent.TimeUnit;
 import java.util.concurrent.atomic.AtomicBoolean;
-import java.util.concurrent.locks.ReentrantLock;
 
 import org.opends.server.api.DirectoryThread;
 import org.forgerock.i18n.slf4j.LocalizedLogger;
-import org.opends.server.replication.protocol.LDAPUpdateMsg;
+import org.opends.server.replication.plugin.ReplayScheduler.ScheduledUpdate;
 
 /**
  * Thread that is used to get message from the replication servers (stored
  * in the updates queue) and replay them in the current server. A configurable
  * number of this thread is created for the whole MultimasterReplication object
  * (i.e: these threads are shared across the ReplicationDomain objects for
- * replaying the updates they receive)
+ * replaying the updates they receive). The updates are handed over to the
+ * threads by a {@link ReplayScheduler}, so that independent updates are replayed
+ * concurrently.
  */
 public class ReplayThread extends DirectoryThread
 {
   private static final LocalizedLogger logger = LocalizedLogger.getLoggerForThisClass();
 
-  private final BlockingQueue<UpdateToReplay> updateToReplayQueue;
-  private final ReentrantLock switchQueueLock;
+  private final ReplayScheduler replayScheduler;
   private AtomicBoolean shutdown = new AtomicBoolean(false);
   private static int count;
 
   /**
    * Constructor for the ReplayThread.
    *
-   * @param updateToReplayQueue The queue of update messages we have to replay
-   * @param switchQueueLock lock to ensure moving updates from one queue to another is atomic
+   * @param replayScheduler The scheduler providing the update messages we have to replay
    */
-  public ReplayThread(BlockingQueue<UpdateToReplay> updateToReplayQueue, ReentrantLock switchQueueLock)
+  ReplayThread(ReplayScheduler replayScheduler)
   {
     super("Replica replay thread " + count++);
-    this.updateToReplayQueue = updateToReplayQueue;
-    this.switchQueueLock = switchQueueLock;
+    this.replayScheduler = replayScheduler;
   }
 
   /**
@@ -80,31 +76,20 @@ public class ReplayThread extends DirectoryThread
     {
       try
       {
-        if (switchQueueLock.tryLock(1L, TimeUnit.SECONDS))
+        // The scheduler already marked the update as "in progress"
+        ScheduledUpdate update = replayScheduler.takeUpdate();
+        if (update == null)
         {
-          LDAPReplicationDomain domain;
-          LDAPUpdateMsg updateMsg;
-          try
-          {
-            if (shutdown.get())
-            {
-              break;
-            }
-            UpdateToReplay updateToreplay = updateToReplayQueue.poll(1L, TimeUnit.SECONDS);
-            if (updateToreplay == null)
-            {
-              continue;
-            }
-            // Find replication domain for that update message and mark it as "in progress"
-            updateMsg = updateToreplay.getUpdateMessage();
-            domain = updateToreplay.getReplicationDomain();
-            domain.markInProgress(updateMsg);
-          }
-          finally
-          {
-            switchQueueLock.unlock();
-          }
-          domain.replay(updateMsg, shutdown);
+          continue;
+        }
+        try
+        {
+          UpdateToReplay updateToReplay = update.getUpdateToReplay();
+          updateToReplay.getReplicationDomain().replay(updateToReplay.getUpdateMessage(), shutdown);
+        }
+        finally
+        {
+          replayScheduler.updateReplayed(update);
         }
       }
       catch (Exception e)
@@ -12,7 +12,7 @@
  * information: "Portions Copyright [year] [name of copyright owner]".
  *
  * Copyright 2006-2008 Sun Microsystems, Inc.
- * Portions Copyright 2015 ForgeRock AS.
+ * Portions Copyright 2015-2026 ForgeRock AS.
  */
 package org.opends.server.replication.plugin;
 
@@ -60,4 +60,13 @@ public class UpdateToReplay
   {
     return replicationDomain;
   }
+
+  /**
+   * Marks the update message as in progress in its replication domain, so that the
+   * dependencies of the updates received after it can be detected.
+   */
+  void markInProgress()
+  {
+    replicationDomain.markInProgress(updateMessage);
+  }
 }
@@ -26,6 +26,10 @@ import java.io.InputStream;
 import java.io.OutputStream;
 import java.net.Socket;
 import java.net.SocketException;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
 import java.util.concurrent.CountDownLatch;
 import java.util.concurrent.LinkedBlockingQueue;
 import java.util.concurrent.TimeUnit;
@@ -33,6 +37,8 @@ import java.util.concurrent.atomic.AtomicBoolean;
 import java.util.concurrent.locks.Lock;
 import java.util.concurrent.locks.ReentrantLock;
 import java.util.zip.DataFormatException;
+import java.util.zip.Deflater;
+import java.util.zip.Inflater;
 
 import javax.net.ssl.SSLSocket;
 
@@ -43,16 +49,39 @@ import org.opends.server.util.StaticUtils;
 
 /**
  * This class defines a replication session using TLS.
+ * <p>
+ * Each message is normally sent in its own frame, made of its length encoded
+ * as 8 hexadecimal characters followed by the message itself. Starting with
+ * {@link ProtocolVersion#REPLICATION_PROTOCOL_V9}, the session thread may
+ * instead send several queued messages in a single batch frame, optionally
+ * compressed. Batch frames start with a marker which is not an hexadecimal
+ * character, so that the receiving side can decode both kinds of frames
+ * whatever the step of the handshake it is in.
  */
 public final class Session extends DirectoryThread implements Closeable
 {
   private static final LocalizedLogger logger = LocalizedLogger.getLoggerForThisClass();
 
+  /** The length of the header of all the frames. */
+  private static final int FRAME_HEADER_LENGTH = 8;
+  /** The first byte of the header of batch frames, which can never start the length of a single message frame. */
+  private static final byte BATCH_FRAME_MARKER = '#';
+  /** The flag set in the header of batch frames which content is compressed. */
+  private static final byte BATCH_FRAME_COMPRESSED = 0x01;
+  /** The maximum number of messages in a batch frame. */
+  private static final int MAX_BATCH_MESSAGES = 0xFFFF;
+  /** The maximum size of the messages in a batch frame, larger messages are sent in their own frame. */
+  private static final int MAX_BATCH_BYTES = 1024 * 1024;
+  /** The maximum size of the content of a batch frame: the messages, each one prefixed with its length. */
+  private static final int MAX_BATCH_CONTENT_LENGTH = MAX_BATCH_BYTES + 4 * MAX_BATCH_MESSAGES;
+  /** The minimum size of the content of a batch frame for it to be worth compressing. */
+  private static final int MIN_COMPRESSED_BYTES = 512;
+
   private final Socket plainSocket;
   private final SSLSocket secureSocket;
   private final InputStream plainInput;
   private final OutputStream plainOutput;
-  private final byte[] rcvLengthBuf = new byte[8];
+  private final byte[] rcvLengthBuf = new byte[FRAME_HEADER_LENGTH];
   private final String readableRemoteAddress;
   private final HostPort remoteAddress;
   private final HostPort localUrl;
@@ -97,6 +126,15 @@ public final class Session extends DirectoryThread implements Closeable
   private BufferedOutputStream output;
 
   private final LinkedBlockingQueue<byte[]> sendQueue = new LinkedBlockingQueue<>(4000);
+  /**
+   * The maximum time in milliseconds a message may wait for other messages to be batched with it,
+   * or -1 if messages are never batched. Only read by the session thread.
+   */
+  private long batchMaxDelay = -1;
+  /** The deflater compressing batch frames, or {@code null} if they are not compressed. Guarded by publishLock. */
+  private Deflater deflater;
+  /** The messages decoded from the last batch frame received, and not returned yet by {@link #receive()}. */
+  private final ArrayDeque<byte[]> receivedBatch = new ArrayDeque<>();
   private AtomicBoolean isRunning = new AtomicBoolean(false);
   private final CountDownLatch latch = new CountDownLatch(1);
 
@@ -201,6 +239,7 @@ public final class Session extends DirectoryThread implements Closeable
     }
 
     StaticUtils.close(plainSocket, secureSocket);
+    endCompression();
   }
 
 
@@ -332,6 +371,10 @@ public final class Session extends DirectoryThread implements Closeable
         }
       }
     }
+    else if (isBatchFrameSupported())
+    {
+      sendBatch(Collections.singletonList(buffer));
+    }
     else
     {
       send(buffer);
@@ -371,6 +414,132 @@ public final class Session extends DirectoryThread implements Closeable
     lastPublishTime = System.currentTimeMillis();
   }
 
+  /**
+   * Sends several replication messages already encoded to the socket, in as
+   * few batch frames as possible, compressed if compression is enabled. A
+   * message is sent in its own single message frame when it is too large for
+   * a batch frame, or when it is alone and not worth compressing.
+   * <p>
+   * This method must only be called if the peer supports batch frames.
+   *
+   * @param buffers
+   *          the encoded buffers
+   * @throws IOException if the messages could not be sent
+   */
+  private void sendBatch(final List<byte[]> buffers) throws IOException
+  {
+    publishLock.lock();
+    try
+    {
+      int first = 0;
+      while (first < buffers.size())
+      {
+        int end = first;
+        int batchBytes = 0;
+        while (end < buffers.size()
+            && end - first < MAX_BATCH_MESSAGES
+            && batchBytes + buffers.get(end).length <= MAX_BATCH_BYTES)
+        {
+          batchBytes += buffers.get(end).length;
+          end++;
+        }
+
+        if (end == first || (end == first + 1 && (deflater == null || batchBytes < MIN_COMPRESSED_BYTES)))
+        {
+          send(buffers.get(first));
+          first++;
+        }
+        else
+        {
+          sendBatchFrame(buffers.subList(first, end));
+          first = end;
+        }
+      }
+    }
+    finally
+    {
+      publishLock.unlock();
+    }
+  }
+
+  /** Sends messages which fit in a batch frame, in a single batch frame. */
+  private void sendBatchFrame(final List<byte[]> buffers) throws IOException
+  {
+    publishLock.lock();
+    try
+    {
+      int contentLength = 0;
+      for (byte[] buffer : buffers)
+      {
+        contentLength += 4 + buffer.length;
+      }
+      byte[] content = new byte[contentLength];
+      int pos = 0;
+      for (byte[] buffer : buffers)
+      {
+        writeInt(content, pos, buffer.length);
+        System.arraycopy(buffer, 0, content, pos + 4, buffer.length);
+        pos += 4 + buffer.length;
+      }
+
+      byte flags = 0;
+      if (deflater != null && contentLength >= MIN_COMPRESSED_BYTES)
+      {
+        final byte[] compressed = compress(content, deflater);
+        if (compressed != null)
+        {
+          content = compressed;
+          flags |= BATCH_FRAME_COMPRESSED;
+        }
+      }
+
+      final byte[] header = new byte[FRAME_HEADER_LENGTH];
+      header[0] = BATCH_FRAME_MARKER;
+      header[1] = flags;
+      header[2] = (byte) (buffers.size() >>> 8);
+      header[3] = (byte) buffers.size();
+      writeInt(header, 4, content.length);
+
+      output.write(header);
+      output.write(content);
+      output.flush();
+    } catch (final IOException e) {
+      setSessionError(e);
+      throw e;
+    }
+    finally
+    {
+      publishLock.unlock();
+    }
+
+    lastPublishTime = System.currentTimeMillis();
+  }
+
+  /**
+   * Compresses the provided content, prefixed with its length.
+   * Returns {@code null} if compressing does not reduce its size.
+   */
+  private static byte[] compress(final byte[] content, final Deflater deflater)
+  {
+    deflater.reset();
+    deflater.setInput(content);
+    deflater.finish();
+    final byte[] compressed = new byte[content.length];
+    writeInt(compressed, 0, content.length);
+    int length = 4;
+    while (!deflater.finished())
+    {
+      if (length == compressed.length)
+      {
+        return null;
+      }
+      length += deflater.deflate(compressed, length, compressed.length - length);
+    }
+    final byte[] result = new byte[length];
+    System.arraycopy(compressed, 0, result, 0, length);
+    return result;
+  }
+
 
 
   /**
@@ -399,27 +568,27 @@ public final class Session extends DirectoryThread implements Closeable
        */
       lastReceiveTime = System.currentTimeMillis();
 
-      // Read the first 8 bytes containing the packet length.
-      read(rcvLengthBuf);
-      final int totalLength = Integer.parseInt(new String(rcvLengthBuf), 16);
-
-      try
-      {
-        final byte[] buffer = new byte[totalLength];
-        read(buffer);
-
-        /*
-         * We do not want the heartbeat to close the session when we are
-         * processing a message even a time consuming one.
-         */
-        lastReceiveTime = 0;
-        return ReplicationMsg.generateMsg(buffer, protocolVersion);
-      }
-      catch (final OutOfMemoryError e)
+      if (receivedBatch.isEmpty())
       {
-        throw new IOException("Packet too large, can't allocate "
-            + totalLength + " bytes.");
+        // Read the first 8 bytes containing the packet length, or the header of a batch frame.
+        read(rcvLengthBuf);
+        if (rcvLengthBuf[0] == BATCH_FRAME_MARKER)
+        {
+          readBatchFrame();
+        }
+        else
+        {
+          final int totalLength = Integer.parseInt(new String(rcvLengthBuf), 16);
+          receivedBatch.add(readFrame(totalLength));
+        }
       }
+
+      /*
+       * We do not want the heartbeat to close the session when we are
+       * processing a message even a time consuming one.
+       */
+      lastReceiveTime = 0;
+      return ReplicationMsg.generateMsg(receivedBatch.poll(), protocolVersion);
     }
     catch (final IOException | DataFormatException | NotSupportedOldVersionPDUException | RuntimeException e)
     {
@@ -428,6 +597,118 @@ public final class Session extends DirectoryThread implements Closeable
     }
   }
 
+  /** Reads the content of a frame of the provided length. */
+  private byte[] readFrame(final int totalLength) throws IOException
+  {
+    try
+    {
+      final byte[] buffer = new byte[totalLength];
+      read(buffer);
+      return buffer;
+    }
+    catch (final OutOfMemoryError e)
+    {
+      throw new IOException("Packet too large, can't allocate "
+          + totalLength + " bytes.");
+    }
+  }
+
+  /**
+   * Reads the content of a batch frame which header has just been read, and
+   * queues its messages so they are returned by the next calls to {@link #receive()}.
+   */
+  private void readBatchFrame() throws IOException, DataFormatException
+  {
+    // header: marker, flags, number of messages on 2 bytes, length of the content on 4 bytes
+    final byte flags = rcvLengthBuf[1];
+    final int nbMessages = readUnsignedShort(rcvLengthBuf, 2);
+    final int totalLength = readInt(rcvLengthBuf, 4);
+    if (nbMessages == 0 || totalLength < 4 || totalLength > MAX_BATCH_CONTENT_LENGTH)
+    {
+      throw new DataFormatException("Invalid batch frame of " + nbMessages + " messages and "
+          + totalLength + " bytes");
+    }
+    byte[] content = readFrame(totalLength);
+    if ((flags & BATCH_FRAME_COMPRESSED) != 0)
+    {
+      content = uncompress(content);
+    }
+
+    // content: length of each message on 4 bytes followed by the message
+    int pos = 0;
+    for (int i = 0; i < nbMessages; i++)
+    {
+      if (pos + 4 > content.length)
+      {
+        throw new DataFormatException("Truncated batch frame");
+      }
+      final int length = readInt(content, pos);
+      pos += 4;
+      if (length < 0 || length > content.length - pos)
+      {
+        throw new DataFormatException("Truncated batch frame");
+      }
+      final byte[] buffer = new byte[length];
+      System.arraycopy(content, pos, buffer, 0, length);
+      pos += length;
+      receivedBatch.add(buffer);
+    }
+    if (pos != content.length)
+    {
+      throw new DataFormatException("Batch frame content longer than its " + nbMessages + " messages");
+    }
+  }
+
+  private static byte[] uncompress(final byte[] compressed) throws DataFormatException
+  {
+    // compressed content: uncompressed length on 4 bytes followed by the deflated bytes
+    final int contentLength = readInt(compressed, 0);
+    if (contentLength < 0 || contentLength > MAX_BATCH_CONTENT_LENGTH)
+    {
+      throw new DataFormatException("Invalid uncompressed batch frame length " + contentLength);
+    }
+    final byte[] content = new byte[contentLength];
+    final Inflater inflater = new Inflater();
+    try
+    {
+      inflater.setInput(compressed, 4, compressed.length - 4);
+      int length = 0;
+      while (length < content.length)
+      {
+        final int inflated = inflater.inflate(content, length, content.length - length);
+        if (inflated == 0 && (inflater.finished() || inflater.needsInput() || inflater.needsDictionary()))
+        {
+          throw new DataFormatException("Truncated compressed batch frame");
+        }
+        length += inflated;
+      }
+      return content;
+    }
+    finally
+    {
+      inflater.end();
+    }
+  }
+
+  private static int readUnsignedShort(final byte[] bytes, final int pos)
+  {
+    return ((bytes[pos] & 0xFF) << 8) | (bytes[pos + 1] & 0xFF);
+  }
+
+  private static int readInt(final byte[] bytes, final int pos)
+  {
+    return ((bytes[pos] & 0xFF) << 24) | ((bytes[pos + 1] & 0xFF) << 16)
+        | ((bytes[pos + 2] & 0xFF) << 8) | (bytes[pos + 3] & 0xFF);
+  }
+
+  private static void writeInt(final byte[] bytes, final int pos, final int value)
+  {
+    bytes[pos] = (byte) (value >>> 24);
+    bytes[pos + 1] = (byte) (value >>> 16);
+    bytes[pos + 2] = (byte) (value >>> 8);
+    bytes[pos + 3] = (byte) value;
+  }
+
   private void read(byte[] buffer) throws IOException
   {
     final int totalLength = buffer.length;
@@ -456,6 +737,61 @@ public final class Session extends DirectoryThread implements Closeable
   }
 
 
+  /**
+   * Configures how the messages are framed, once the protocol version
+   * negotiated with the peer supports batch frames.
+   * <p>
+   * The session thread batches the messages queued for sending, whereas the
+   * messages published while the session thread is not running are sent one
+   * at a time, only compressing the large ones.
+   * This method must be called before the session thread is started.
+   *
+   * @param batchMaxDelay
+   *          the maximum time in milliseconds a message may wait for other
+   *          messages to be batched with it, zero to only batch the messages
+   *          already queued.
+   * @param isCompressionEnabled
+   *          whether batch frames are compressed.
+   */
+  public void setFraming(final long batchMaxDelay, final boolean isCompressionEnabled)
+  {
+    publishLock.lock();
+    try
+    {
+      this.batchMaxDelay = batchMaxDelay;
+      if (isCompressionEnabled && deflater == null)
+      {
+        deflater = new Deflater(Deflater.BEST_SPEED);
+      }
+      else if (!isCompressionEnabled)
+      {
+        endCompression();
+      }
+    }
+    finally
+    {
+      publishLock.unlock();
+    }
+  }
+
+  /** Releases the resources used to compress the frames, and stops compressing them. */
+  private void endCompression()
+  {
+    publishLock.lock();
+    try
+    {
+      if (deflater != null)
+      {
+        deflater.end();
+        deflater = null;
+      }
+    }
+    finally
+    {
+      publishLock.unlock();
+    }
+  }
+
   /**
    * Returns the version of the protocol that is currently used.
    *
@@ -533,26 +869,47 @@ public final class Session extends DirectoryThread implements Closeable
       logger.trace(getName() + " starting.");
     }
     boolean needClosing = false;
+    final List<byte[]> batch = new ArrayList<>();
     while (!closeInitiated)
     {
-      byte[] buffer;
       try
       {
-        buffer = sendQueue.take();
+        batch.add(sendQueue.take());
+        if (batchMaxDelay >= 0 && isBatchFrameSupported())
+        {
+          fillBatch(batch);
+        }
       }
       catch (InterruptedException ie)
       {
-        break;
+        if (batch.isEmpty())
+        {
+          break;
+        }
+        // send what was already dequeued before exiting
+        Thread.currentThread().interrupt();
       }
       try
       {
-        send(buffer);
+        if (isBatchFrameSupported())
+        {
+          sendBatch(batch);
+        }
+        else
+        {
+          send(batch.get(0));
+        }
       }
       catch (IOException e)
       {
         setSessionError(e);
         needClosing = true;
       }
+      batch.clear();
+      if (Thread.currentThread().isInterrupted())
+      {
+        break;
+      }
     }
     isRunning.set(false);
     if (needClosing)
@@ -565,6 +922,42 @@ public final class Session extends DirectoryThread implements Closeable
     }
   }
 
+  /** Returns whether the protocol version negotiated with the peer supports batch frames. */
+  private boolean isBatchFrameSupported()
+  {
+    return protocolVersion >= ProtocolVersion.REPLICATION_PROTOCOL_V9;
+  }
+
+  /**
+   * Adds to the batch the messages queued for sending, waiting for more
+   * messages until the maximum batch delay has elapsed since the first message
+   * was dequeued, or the batch is full.
+   */
+  private void fillBatch(final List<byte[]> batch) throws InterruptedException
+  {
+    final long deadline = System.nanoTime() + TimeUnit.MILLISECONDS.toNanos(batchMaxDelay);
+    int batchBytes = batch.get(0).length;
+    while (batch.size() < MAX_BATCH_MESSAGES && batchBytes < MAX_BATCH_BYTES)
+    {
+      byte[] buffer = sendQueue.poll();
+      if (buffer == null)
+      {
+        final long remaining = deadline - System.nanoTime();
+        if (remaining <= 0)
+        {
+          return;
+        }
+        buffer = sendQueue.poll(remaining, TimeUnit.NANOSECONDS);
+        if (buffer == null)
+        {
+          return;
+        }
+      }
+      batch.add(buffer);
+      batchBytes += buffer.length;
+    }
+  }
+
   /**
    * This method can be called to wait until the session thread is
    * properly started.
@@ -59,6 +59,12 @@ class MessageHandler extends MonitorProvider<MonitorProviderCfg>
 
   /** UpdateMsg queue. */
   private final MsgQueue msgQueue = new MsgQueue();
+  /**
+   * Whether the consumer may be waiting for messages in msgQueue, only set while holding its monitor.
+   * The consumer decides to wait from the content of msgQueue, so producers must not decide to wake
+   * it up from the message counts, which are updated separately.
+   */
+  private volatile boolean consumerWaiting;
   /**
    * Late queue. All access to the lateQueue in getNextMessage() is
    * single-threaded. However, reads from threads calling getOlderUpdateCN()
@@ -78,7 +84,7 @@ class MessageHandler extends MonitorProvider<MonitorProviderCfg>
   /** Specifies the max queue size in bytes for this handler. */
   private final int maxQueueBytesSize;
   /** Specifies whether the consumer is following the producer (is not late). */
-  private boolean following;
+  private volatile boolean following;
   /** Specifies the current serverState of this handler. */
   private ServerState serverState;
   /** Specifies the baseDN of the domain. */
@@ -114,24 +120,31 @@ class MessageHandler extends MonitorProvider<MonitorProviderCfg>
    */
   void add(UpdateMsg update)
   {
-    synchronized (msgQueue)
+    // the queue supports concurrent producers, the monitor is only needed to wake up or trim the queue
+    msgQueue.add(update);
+    if (consumerWaiting)
     {
       /*
-       * If queue was empty the writer thread was probably asleep
+       * The writer thread was probably asleep
        * waiting for some changes, wake it up
        */
-      if (msgQueue.isEmpty())
+      synchronized (msgQueue)
       {
         msgQueue.notify();
       }
+    }
 
-      msgQueue.add(update);
-
-      // TODO : size should be configurable and larger than max-receive-queue-size
-      while (isMsgQueueAboveThreshold())
+    // TODO : size should be configurable and larger than max-receive-queue-size
+    if (isMsgQueueAboveThreshold())
+    {
+      // trimming must not interleave with the consumer deciding whether it follows the queue
+      synchronized (msgQueue)
       {
-        following = false;
-        msgQueue.removeFirst();
+        while (isMsgQueueAboveThreshold())
+        {
+          following = false;
+          msgQueue.removeFirst();
+        }
       }
     }
   }
@@ -324,6 +337,8 @@ class MessageHandler extends MonitorProvider<MonitorProviderCfg>
       {
         if (following)
         {
+          // set before checking the queue content: a producer adding a message afterwards sees it
+          consumerWaiting = true;
           try
           {
             while (msgQueue.isEmpty() && following)
@@ -338,8 +353,12 @@ class MessageHandler extends MonitorProvider<MonitorProviderCfg>
           {
             return null;
           }
+          finally
+          {
+            consumerWaiting = false;
+          }
           UpdateMsg msg = msgQueue.removeFirst();
-          if (updateServerState(msg))
+          if (msg != null && updateServerState(msg))
           {
             /*
              * Only push the message if it has not yet been seen
@@ -18,7 +18,10 @@ package org.opends.server.replication.server;
 
 import static org.opends.messages.ReplicationMessages.*;
 
-import java.util.TreeMap;
+import java.util.Map;
+import java.util.concurrent.ConcurrentNavigableMap;
+import java.util.concurrent.ConcurrentSkipListMap;
+import java.util.concurrent.atomic.AtomicLong;
 
 import net.jcip.annotations.ThreadSafe;
 
@@ -29,36 +32,51 @@ import org.opends.server.replication.protocol.UpdateMsg;
 /**
  * This class is used to build ordered lists of UpdateMsg.
  * The order is defined by the order of the CSN of the UpdateMsg.
+ * <p>
+ * The queue does not rely on any lock: it supports any number of concurrent producers
+ * together with consumers removing the messages in CSN order.
+ * Each message is only accounted in the count and in the bytes count by the thread which
+ * added it or removed it from the queue, so these counters remain consistent with the queue content
+ * once all the concurrent operations have completed. Both counters are updated together in a single
+ * atomic value, so the bytes count must be zero whenever the count is.
  */
 @ThreadSafe
 public class MsgQueue
 {
   private static final LocalizedLogger logger = LocalizedLogger.getLoggerForThisClass();
 
-  private TreeMap<CSN, UpdateMsg> map = new TreeMap<>();
+  private final ConcurrentNavigableMap<CSN, UpdateMsg> map = new ConcurrentSkipListMap<>();
+
   /**
-   * FIXME JNR to be investigated:
-   * I strongly suspect that we could replace this field
-   * by using the synchronized keyword on each method.
-   * However, MessageHandler is weirdly synchronizing on msgQueue field
-   * even though it is touching the lateQueue field (?!?).
+   * The number of messages in the queue in the high 32 bits, maintained separately because counting the map elements
+   * is linear, and the total number of bytes for all the message in the queue in the low 32 bits.
    */
-  private final Object lock = new Object();
+  private final AtomicLong counts = new AtomicLong();
+
+  private static long counts(int count, int bytesCount)
+  {
+    return ((long) count << 32) + bytesCount;
+  }
 
-  /** The total number of bytes for all the message in the queue. */
-  private int bytesCount;
+  private static int count(long counts)
+  {
+    return (int) ((counts - bytesCount(counts)) >> 32);
+  }
+
+  private static int bytesCount(long counts)
+  {
+    return (int) counts;
+  }
 
   /**
    * Return the first UpdateMsg in the MsgQueue.
    *
-   * @return The first UpdateMsg in the MsgQueue.
+   * @return The first UpdateMsg in the MsgQueue, or {@code null} if the queue is empty.
    */
   public UpdateMsg first()
   {
-    synchronized (lock)
-    {
-      return map.get(map.firstKey());
-    }
+    final Map.Entry<CSN, UpdateMsg> first = map.firstEntry();
+    return first != null ? first.getValue() : null;
   }
 
   /**
@@ -68,10 +86,7 @@ public class MsgQueue
    */
   public int count()
   {
-    synchronized (lock)
-    {
-      return map.size();
-    }
+    return count(counts.get());
   }
 
   /**
@@ -81,10 +96,7 @@ public class MsgQueue
    */
   public int bytesCount()
   {
-    synchronized (lock)
-    {
-      return bytesCount;
-    }
+    return bytesCount(counts.get());
   }
 
   /**
@@ -94,10 +106,7 @@ public class MsgQueue
    */
   public boolean isEmpty()
   {
-    synchronized (lock)
-    {
-      return map.isEmpty();
-    }
+    return map.isEmpty();
   }
 
   /**
@@ -107,31 +116,26 @@ public class MsgQueue
    */
   public void add(UpdateMsg update)
   {
-    synchronized (lock)
+    // count before publishing the message, so the count never goes below zero when it is concurrently removed
+    counts.addAndGet(counts(1, update.size()));
+    final UpdateMsg msgSameCSN = map.put(update.getCSN(), update);
+    if (msgSameCSN != null)
     {
-      final UpdateMsg msgSameCSN = map.put(update.getCSN(), update);
-      if (msgSameCSN != null)
+      // the replaced message is no longer in the queue
+      counts.addAndGet(-counts(1, msgSameCSN.size()));
+      try
       {
-        try
-        {
-          if (msgSameCSN.getBytes().length != update.getBytes().length
-              || msgSameCSN.isAssured() != update.isAssured()
-              || msgSameCSN.getVersion() != update.getVersion())
-          {
-            // Adding 2 msgs with the same CSN is ok only when the 2 msgs are the same
-            bytesCount += update.size() - msgSameCSN.size();
-            logger.error(ERR_RSQUEUE_DIFFERENT_MSGS_WITH_SAME_CSN, msgSameCSN.getCSN(), msgSameCSN, update);
-          }
-        }
-        catch (Exception e)
+        if (msgSameCSN.getBytes().length != update.getBytes().length
+            || msgSameCSN.isAssured() != update.isAssured()
+            || msgSameCSN.getVersion() != update.getVersion())
         {
-          logger.traceException(e);
+          // Adding 2 msgs with the same CSN is ok only when the 2 msgs are the same
+          logger.error(ERR_RSQUEUE_DIFFERENT_MSGS_WITH_SAME_CSN, msgSameCSN.getCSN(), msgSameCSN, update);
         }
       }
-      else
+      catch (Exception e)
       {
-        // it is really an ADD
-        bytesCount += update.size();
+        logger.traceException(e);
       }
     }
   }
@@ -139,24 +143,29 @@ public class MsgQueue
   /**
    * Get and remove the first UpdateMsg in this MessageQueue.
    *
-   * @return The first UpdateMsg in this MessageQueue.
+   * @return The first UpdateMsg in this MessageQueue, or {@code null} if the queue is empty.
    */
   public UpdateMsg removeFirst()
   {
-    synchronized (lock)
+    final Map.Entry<CSN, UpdateMsg> first = map.pollFirstEntry();
+    if (first == null)
     {
-      // FIXME JNR replace next 2 lines with just that one:
-      // final UpdateMsg update = map.pollFirstEntry().getValue();
-      final UpdateMsg update = map.get(map.firstKey());
-      map.remove(update.getCSN());
-      bytesCount -= update.size();
-      if (map.isEmpty() && bytesCount != 0)
-      {
-        // should never happen
-        logger.error(ERR_BYTE_COUNT, bytesCount);
-        bytesCount = 0;
-      }
-      return update;
+      return null;
+    }
+    final UpdateMsg update = first.getValue();
+    removed(update);
+    return update;
+  }
+
+  private void removed(final UpdateMsg update)
+  {
+    final long remaining = counts.addAndGet(-counts(1, update.size()));
+    if (count(remaining) == 0 && bytesCount(remaining) != 0)
+    {
+      // should never happen
+      logger.error(ERR_BYTE_COUNT, bytesCount(remaining));
+      // unless messages were concurrently added meanwhile
+      counts.compareAndSet(remaining, 0);
     }
   }
 
@@ -171,19 +180,16 @@ public class MsgQueue
    */
   public boolean contains(UpdateMsg msg)
   {
-    synchronized (lock)
-    {
-      return map.containsKey(msg.getCSN());
-    }
+    return map.containsKey(msg.getCSN());
   }
 
   /** Removes all UpdateMsg form this queue. */
   public void clear()
   {
-    synchronized (lock)
+    // remove the messages one by one so that messages added concurrently are still accounted for
+    while (removeFirst() != null)
     {
-      map.clear();
-      bytesCount = 0;
+      // nothing to do
     }
   }
 
@@ -197,26 +203,18 @@ public class MsgQueue
    */
   public void consumeUpTo(UpdateMsg finalMsg)
   {
-    // FIXME this code could be more efficient if the msgQueue could call the
-    // following code (to be tested):
-    // if (!map.containsKey(finalMsg.getCSN())) {
-    // map.clear();
-    // } else {
-    // map.headMap(finalMsg.getCSN(), true).clear();
-    // }
-
     final CSN finalCSN = finalMsg.getCSN();
     UpdateMsg msg;
     do
     {
       msg = removeFirst();
     }
-    while (!finalCSN.equals(msg.getCSN()));
+    while (msg != null && !finalCSN.equals(msg.getCSN()));
   }
 
   @Override
   public String toString()
   {
-    return getClass().getSimpleName() + " bytesCount=" + bytesCount + " queue=" + map.values();
+    return getClass().getSimpleName() + " bytesCount=" + bytesCount() + " queue=" + map.values();
   }
 }
@@ -1348,6 +1348,33 @@ public class ReplicationServer
     return config.isComputeChangeNumber();
   }
 
+  /**
+   * Returns whether the changelog files are read through memory mapped regions for this RS.
+   * @return true if the changelog files are read through memory mapped regions for this RS.
+   */
+  public boolean isChangelogMemoryMappingEnabled()
+  {
+    return config.isChangelogMemoryMappingEnabled();
+  }
+
+  /**
+   * Returns the maximum time in milliseconds a message may wait to be batched with other messages on a session.
+   * @return the maximum time in milliseconds a message may wait to be batched with other messages on a session.
+   */
+  long getSessionBatchMaxDelay()
+  {
+    return config.getSessionBatchMaxDelay();
+  }
+
+  /**
+   * Returns whether the frames of messages sent on the sessions of this RS are compressed.
+   * @return true if the frames of messages sent on the sessions of this RS are compressed.
+   */
+  boolean isSessionCompressionEnabled()
+  {
+    return config.isSessionCompressionEnabled();
+  }
+
   /**
    * Returns whether the external change-log contains data from at least a domain.
    * @return whether the external change-log contains data from at least a domain
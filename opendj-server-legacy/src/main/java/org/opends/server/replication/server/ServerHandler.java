@@ -292,6 +292,8 @@ public abstract class ServerHandler extends MessageHandler
           replicationServer.getDSRSShutdownSync());
       reader = new ServerReader(session, this);
 
+      session.setFraming(replicationServer.getSessionBatchMaxDelay(),
+          replicationServer.isSessionCompressionEnabled());
       session.setName("Replication server RS(" + getReplicationServerId()
           + ") session thread to " + this + " at "
           + session.getReadableRemoteAddress());
@@ -69,10 +69,143 @@ class BlockLogReader<K extends Comparable<K>, V> implements Closeable
 
   private final RecordParser<K, V> parser;
 
-  private final RandomAccessFile reader;
+  private final LogInput reader;
 
   private final File file;
 
+  /**
+   * Random access to the bytes of a log file.
+   * <p>
+   * Implementations follow the contract of the corresponding {@link RandomAccessFile} methods,
+   * which allows to read a log file either through a file handle or through a memory mapped region.
+   */
+  interface LogInput extends Closeable
+  {
+    /**
+     * Returns the length of the log file.
+     *
+     * @return the length of the log file, in bytes
+     * @throws IOException
+     *           If an error occurs.
+     */
+    long length() throws IOException;
+
+    /**
+     * Returns the current position in the log file.
+     *
+     * @return the offset from the beginning of the file, in bytes
+     * @throws IOException
+     *           If an error occurs.
+     */
+    long getFilePointer() throws IOException;
+
+    /**
+     * Sets the current position in the log file.
+     *
+     * @param position
+     *          the offset from the beginning of the file, in bytes
+     * @throws IOException
+     *           If an error occurs.
+     */
+    void seek(long position) throws IOException;
+
+    /**
+     * Reads exactly {@code bytes.length} bytes from the current position.
+     *
+     * @param bytes
+     *          the buffer into which the bytes are read
+     * @throws EOFException
+     *           If the end of file is reached before reading all the bytes.
+     * @throws IOException
+     *           If an error occurs.
+     */
+    void readFully(byte[] bytes) throws IOException;
+
+    /**
+     * Skips up to {@code length} bytes from the current position, without going past the end of file.
+     *
+     * @param length
+     *          the number of bytes to skip
+     * @return the number of bytes actually skipped
+     * @throws IOException
+     *           If an error occurs.
+     */
+    int skipBytes(int length) throws IOException;
+
+    /**
+     * Appends exactly {@code length} bytes read from the current position to the provided builder.
+     *
+     * @param builder
+     *          the builder to append the bytes to
+     * @param length
+     *          the number of bytes to append
+     * @throws EOFException
+     *           If the end of file is reached before reading all the bytes.
+     * @throws IOException
+     *           If an error occurs.
+     */
+    void appendBytes(ByteStringBuilder builder, int length) throws IOException;
+  }
+
+  /** Reads a log file through a random access file. */
+  private static final class RandomAccessFileInput implements LogInput
+  {
+    private final RandomAccessFile file;
+
+    private RandomAccessFileInput(final RandomAccessFile file)
+    {
+      this.file = file;
+    }
+
+    @Override
+    public long length() throws IOException
+    {
+      return file.length();
+    }
+
+    @Override
+    public long getFilePointer() throws IOException
+    {
+      return file.getFilePointer();
+    }
+
+    @Override
+    public void seek(final long position) throws IOException
+    {
+      file.seek(position);
+    }
+
+    @Override
+    public void readFully(final byte[] bytes) throws IOException
+    {
+      file.readFully(bytes);
+    }
+
+    @Override
+    public int skipBytes(final int length) throws IOException
+    {
+      return file.skipBytes(length);
+    }
+
+    @Override
+    public void appendBytes(final ByteStringBuilder builder, final int length) throws IOException
+    {
+      builder.appendBytes(file, length);
+    }
+
+    @Override
+    public void close() throws IOException
+    {
+      file.close();
+    }
+
+    @Override
+    public String toString()
+    {
+      return file.toString();
+    }
+  }
+
   /**
    * Creates a reader for the provided file, file reader and parser.
    *
@@ -91,7 +224,28 @@ class BlockLogReader<K extends Comparable<K>, V> implements Closeable
   static <K extends Comparable<K>, V> BlockLogReader<K, V> newReader(
       final File file, final RandomAccessFile reader, final RecordParser<K, V> parser)
   {
-    return new BlockLogReader<>(file, reader, parser, BLOCK_SIZE);
+    return newReader(file, new RandomAccessFileInput(reader), parser);
+  }
+
+  /**
+   * Creates a reader for the provided file, file input and parser.
+   *
+   * @param <K>
+   *          Type of the key of a record, which must be comparable.
+   * @param <V>
+   *          Type of the value of a record.
+   * @param file
+   *          The log file to read.
+   * @param input
+   *          The random access input on the log file.
+   * @param parser
+   *          The parser to decode the records read.
+   * @return a new log reader
+   */
+  static <K extends Comparable<K>, V> BlockLogReader<K, V> newReader(
+      final File file, final LogInput input, final RecordParser<K, V> parser)
+  {
+    return new BlockLogReader<>(file, input, parser, BLOCK_SIZE);
   }
 
   /**
@@ -117,11 +271,11 @@ class BlockLogReader<K extends Comparable<K>, V> implements Closeable
   static <K extends Comparable<K>, V> BlockLogReader<K, V> newReaderForTests(
       final File file, final RandomAccessFile reader, final RecordParser<K, V> parser, int blockSize)
   {
-    return new BlockLogReader<>(file, reader, parser, blockSize);
+    return new BlockLogReader<>(file, reader != null ? new RandomAccessFileInput(reader) : null, parser, blockSize);
   }
 
   private BlockLogReader(
-      final File file, final RandomAccessFile reader, final RecordParser<K, V> parser, final int blockSize)
+      final File file, final LogInput reader, final RecordParser<K, V> parser, final int blockSize)
   {
     this.file = file;
     this.reader = reader;
@@ -305,7 +459,7 @@ class BlockLogReader<K extends Comparable<K>, V> implements Closeable
       {
         if (distanceToBlockStart != 0)
         {
-          recordBytes.appendBytes(reader, distanceToBlockStart);
+          reader.appendBytes(recordBytes, distanceToBlockStart);
         }
         // skip the offset
         reader.skipBytes(SIZE_OF_BLOCK_OFFSET);
@@ -318,7 +472,7 @@ class BlockLogReader<K extends Comparable<K>, V> implements Closeable
       if (remainingBytesToRead > 0)
       {
         // last bytes of the record
-        recordBytes.appendBytes(reader, remainingBytesToRead);
+        reader.appendBytes(recordBytes, remainingBytesToRead);
       }
       return recordBytes.toByteString();
     }
@@ -357,10 +511,10 @@ class BlockLogReader<K extends Comparable<K>, V> implements Closeable
     final ByteStringBuilder lengthBytes = new ByteStringBuilder(SIZE_OF_RECORD_SIZE);
     if (distanceToBlockStart > 0 && distanceToBlockStart < SIZE_OF_RECORD_SIZE)
     {
-      lengthBytes.appendBytes(reader, distanceToBlockStart);
+      reader.appendBytes(lengthBytes, distanceToBlockStart);
       // skip the offset
       reader.skipBytes(SIZE_OF_BLOCK_OFFSET);
-      lengthBytes.appendBytes(reader, SIZE_OF_RECORD_SIZE - distanceToBlockStart);
+      reader.appendBytes(lengthBytes, SIZE_OF_RECORD_SIZE - distanceToBlockStart);
     }
     else
     {
@@ -369,7 +523,7 @@ class BlockLogReader<K extends Comparable<K>, V> implements Closeable
         // skip the offset
         reader.skipBytes(SIZE_OF_BLOCK_OFFSET);
       }
-      lengthBytes.appendBytes(reader, SIZE_OF_RECORD_SIZE);
+      reader.appendBytes(lengthBytes, SIZE_OF_RECORD_SIZE);
     }
     return lengthBytes.toByteString().toInt();
   }
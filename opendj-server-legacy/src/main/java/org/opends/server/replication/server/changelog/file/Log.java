@@ -170,6 +170,9 @@ final class Log<K extends Comparable<K>, V> implements Closeable
   /** The last time a log file was rotated. */
   private long lastRotationTime;
 
+  /** Indicates if the log files are read through memory mapped regions rather than random access files. */
+  private final boolean isMemoryMappingEnabled;
+
   /**
    * The exclusive lock used for log rotation and lifecycle operations on this log:
    * initialize, clear, sync and close.
@@ -332,6 +335,7 @@ final class Log<K extends Comparable<K>, V> implements Closeable
     this.sizeLimitPerLogFileInBytes = rotationParams.sizeLimitPerFileInBytes;
     this.rotationIntervalInMillis = rotationParams.rotationInterval;
     this.lastRotationTime = rotationParams.lastRotationTime;
+    this.isMemoryMappingEnabled = replicationEnv != null && replicationEnv.isMemoryMappingEnabled();
 
     this.referenceCount = 1;
 
@@ -1087,13 +1091,14 @@ final class Log<K extends Comparable<K>, V> implements Closeable
 
   private void openHeadLogFile() throws ChangelogException
   {
-    final LogFile<K, V> head = LogFile.newAppendableLogFile(new File(logPath,  HEAD_LOG_FILE_NAME), recordParser);
+    final LogFile<K, V> head =
+        LogFile.newAppendableLogFile(new File(logPath,  HEAD_LOG_FILE_NAME), recordParser, isMemoryMappingEnabled);
     logFiles.put(recordParser.getMaxKey(), head);
   }
 
   private void openReadOnlyLogFile(final File logFilePath) throws ChangelogException
   {
-    final LogFile<K, V> logFile = LogFile.newReadOnlyLogFile(logFilePath, recordParser);
+    final LogFile<K, V> logFile = LogFile.newReadOnlyLogFile(logFilePath, recordParser, isMemoryMappingEnabled);
     final Pair<K, K> bounds = getKeyBounds(logFile);
     logFiles.put(bounds.getSecond(), logFile);
   }
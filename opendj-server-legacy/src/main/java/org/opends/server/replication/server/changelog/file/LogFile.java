@@ -94,11 +94,14 @@ final class LogFile<K extends Comparable<K>, V> implements Closeable
    * @param isWriteEnabled
    *          {@code true} if this changelog is write-enabled, {@code false}
    *          otherwise.
+   * @param isMemoryMapped
+   *          {@code true} if this log file must be read through memory mapped
+   *          regions, {@code false} if it must be read through random access files.
    * @throws ChangelogException
    *            If a problem occurs during initialization.
    */
-  private LogFile(final File logFilePath, final RecordParser<K, V> parser, boolean isWriteEnabled)
-      throws ChangelogException
+  private LogFile(final File logFilePath, final RecordParser<K, V> parser, boolean isWriteEnabled,
+      boolean isMemoryMapped) throws ChangelogException
   {
     Reject.ifNull(logFilePath, parser);
     this.logfile = logFilePath;
@@ -108,11 +111,13 @@ final class LogFile<K extends Comparable<K>, V> implements Closeable
     sharedLock = rwLock.readLock();
     createLogFileIfNotExists();
 
-    readerPool = new LogReaderPool<>(logfile, parser);
+    readerPool = isMemoryMapped ? LogReaderPool.newMappedPool(logfile, parser, isWriteEnabled)
+                                : new LogReaderPool<>(logfile, parser);
     if (isWriteEnabled)
     {
       ensureLogFileIsValid(parser);
       writer = BlockLogWriter.newWriter(new LogWriter(logfile), parser);
+      readerPool.setEndOfFile(writer.getBytesWritten());
       initializeNewestRecord();
     }
     else
@@ -141,7 +146,31 @@ final class LogFile<K extends Comparable<K>, V> implements Closeable
   static <K extends Comparable<K>, V> LogFile<K, V> newReadOnlyLogFile(final File logFilePath,
       final RecordParser<K, V> parser) throws ChangelogException
   {
-    return new LogFile<>(logFilePath, parser, false);
+    return newReadOnlyLogFile(logFilePath, parser, false);
+  }
+
+  /**
+   * Creates a read-only log file with the provided root path and record parser,
+   * optionally read through memory mapped regions.
+   *
+   * @param <K>
+   *            Type of the key of a record, which must be comparable.
+   * @param <V>
+   *            Type of the value of a record.
+   * @param logFilePath
+   *          Path of the log file.
+   * @param parser
+   *          Parser of records.
+   * @param isMemoryMapped
+   *          {@code true} if the log file must be read through memory mapped regions.
+   * @return a read-only log file
+   * @throws ChangelogException
+   *            If a problem occurs during initialization.
+   */
+  static <K extends Comparable<K>, V> LogFile<K, V> newReadOnlyLogFile(final File logFilePath,
+      final RecordParser<K, V> parser, final boolean isMemoryMapped) throws ChangelogException
+  {
+    return new LogFile<>(logFilePath, parser, false, isMemoryMapped);
   }
 
   /**
@@ -163,7 +192,32 @@ final class LogFile<K extends Comparable<K>, V> implements Closeable
   static <K extends Comparable<K>, V> LogFile<K, V> newAppendableLogFile(final File logFilePath,
       final RecordParser<K, V> parser) throws ChangelogException
   {
-    return new LogFile<>(logFilePath, parser, true);
+    return newAppendableLogFile(logFilePath, parser, false);
+  }
+
+  /**
+   * Creates a write-enabled log file that appends records to the end of file,
+   * with the provided root path and record parser, optionally read through
+   * memory mapped regions.
+   *
+   * @param <K>
+   *          Type of the key of a record, which must be comparable.
+   * @param <V>
+   *          Type of the value of a record.
+   * @param logFilePath
+   *          Path of the log file.
+   * @param parser
+   *          Parser of records.
+   * @param isMemoryMapped
+   *          {@code true} if the log file must be read through memory mapped regions.
+   * @return a write-enabled log file
+   * @throws ChangelogException
+   *            If a problem occurs during initialization.
+   */
+  static <K extends Comparable<K>, V> LogFile<K, V> newAppendableLogFile(final File logFilePath,
+      final RecordParser<K, V> parser, final boolean isMemoryMapped) throws ChangelogException
+  {
+    return new LogFile<>(logFilePath, parser, true, isMemoryMapped);
   }
 
   /**
@@ -256,6 +310,7 @@ final class LogFile<K extends Comparable<K>, V> implements Closeable
         return;
       }
       writer.write(record);
+      readerPool.setEndOfFile(writer.getBytesWritten());
       newestRecord = record;
     }
     finally
@@ -11,21 +11,51 @@
  * Header, with the fields enclosed by brackets [] replaced by your own identifying
  * information: "Portions Copyright [year] [name of copyright owner]".
  *
- * Copyright 2014 ForgeRock AS.
+ * Copyright 2014-2026 ForgeRock AS.
  */
 package org.opends.server.replication.server.changelog.file;
 
+import java.io.EOFException;
 import java.io.File;
+import java.io.IOException;
 import java.io.RandomAccessFile;
+import java.lang.reflect.Method;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.ClosedChannelException;
+import java.nio.channels.FileChannel;
+import java.nio.file.StandardOpenOption;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.atomic.AtomicInteger;
 
+import org.forgerock.i18n.slf4j.LocalizedLogger;
+import org.forgerock.opendj.ldap.ByteStringBuilder;
 import org.opends.server.replication.server.changelog.api.ChangelogException;
+import org.opends.server.replication.server.changelog.file.BlockLogReader.LogInput;
 import org.opends.server.util.StaticUtils;
 
 import static org.opends.messages.ReplicationMessages.*;
 
 /**
  * A Pool of readers to a log file.
-
+ * <p>
+ * By default, each reader opens its own random access file on the log file. When the pool
+ * is memory mapped, no file handle is opened per reader:
+ * <ul>
+ * <li>A read-only file is never modified, so all the readers share read-only mappings of the
+ * file by windows of fixed size. Records are copied straight from the mapped pages, without
+ * any system call.</li>
+ * <li>A file which may grow while it is read may also be truncated when it is recovered. Reading
+ * a mapped region beyond the end of a truncated file makes the JVM crash, so this file is read
+ * through a file channel shared by all the readers instead. Its end of file is published by the
+ * writer through {@link #setEndOfFile(long)} rather than read from the file system.</li>
+ * </ul>
+ * The mapped windows are explicitly unmapped once the pool has been shut down and the readers
+ * using them have been released, rather than when they are garbage collected. Hence the disk
+ * space of a log file purged after it has been closed is reclaimed as soon as its last cursor
+ * is closed, while a cursor still open on a purged file can keep reading the deleted file.
  *
  * @param <K>
  *          Type of the key of a record, which must be comparable.
@@ -35,11 +65,58 @@ import static org.opends.messages.ReplicationMessages.*;
 // TODO : implement a real pool - reusing readers instead of opening-closing them each time
 class LogReaderPool<K extends Comparable<K>, V>
 {
+  private static final LocalizedLogger logger = LocalizedLogger.getLoggerForThisClass();
+
+  /** The size of the mapped windows, a multiple of the size of the memory pages. */
+  static final int MAPPED_WINDOW_SIZE = 1 << 20;
+
+  private static final Method directBufferCleanerMethod;
+  private static final Method directBufferCleanerCleanMethod;
+
+  static
+  {
+    Method tmpDirectBufferCleanerMethod = null;
+    Method tmpDirectBufferCleanerCleanMethod = null;
+    try
+    {
+      tmpDirectBufferCleanerMethod = Class.forName("java.nio.DirectByteBuffer").getMethod("cleaner");
+      tmpDirectBufferCleanerMethod.setAccessible(true);
+      tmpDirectBufferCleanerCleanMethod = Class.forName("sun.misc.Cleaner").getMethod("clean");
+      tmpDirectBufferCleanerCleanMethod.setAccessible(true);
+    }
+    catch (Exception e)
+    {
+      // Windows will be unmapped when they are garbage collected
+      logger.traceException(e);
+      tmpDirectBufferCleanerMethod = null;
+    }
+    directBufferCleanerMethod = tmpDirectBufferCleanerMethod;
+    directBufferCleanerCleanMethod = tmpDirectBufferCleanerCleanMethod;
+  }
+
   /** The file to read. */
   private final File file;
 
   private final RecordParser<K, V> parser;
 
+  /** Indicates if readers share memory mapped windows of the file rather than opening a random access file. */
+  private final boolean isMemoryMapped;
+
+  /** Indicates if the file may grow while it is read. */
+  private final boolean isGrowable;
+
+  /** The number of bytes of the file which can be read, only used when the pool is memory mapped. */
+  private volatile long endOfFile;
+
+  /** The windows of a read-only file which have already been mapped, by index of window. */
+  private final ConcurrentMap<Long, MappedWindow> mappedWindows = new ConcurrentHashMap<>();
+
+  /** The channel to read a file which may grow, or {@code null} if not opened yet. */
+  private volatile FileChannel channel;
+
+  /** Indicates if this pool has been shutdown. */
+  private volatile boolean isShutdown;
+
   /**
    * Creates a pool of readers for provided file.
    *
@@ -49,9 +126,39 @@ class LogReaderPool<K extends Comparable<K>, V>
    *          The parser to decode the records read.
    */
   LogReaderPool(File file, RecordParser<K, V> parser)
+  {
+    this(file, parser, false, false);
+  }
+
+  private LogReaderPool(File file, RecordParser<K, V> parser, boolean isMemoryMapped, boolean isGrowable)
   {
     this.file = file;
     this.parser = parser;
+    this.isMemoryMapped = isMemoryMapped;
+    this.isGrowable = isGrowable;
+    this.endOfFile = isMemoryMapped ? file.length() : 0;
+  }
+
+  /**
+   * Creates a pool of readers sharing memory mapped windows of the provided file.
+   *
+   * @param <K>
+   *          Type of the key of a record, which must be comparable.
+   * @param <V>
+   *          Type of the value of a record.
+   * @param file
+   *          The file to read.
+   * @param parser
+   *          The parser to decode the records read.
+   * @param isGrowable
+   *          {@code true} if records may be appended to the file while it is read, in which case
+   *          the writer must publish the end of file with {@link #setEndOfFile(long)}.
+   * @return a new pool of readers
+   */
+  static <K extends Comparable<K>, V> LogReaderPool<K, V> newMappedPool(
+      File file, RecordParser<K, V> parser, boolean isGrowable)
+  {
+    return new LogReaderPool<>(file, parser, true, isGrowable);
   }
 
   /**
@@ -88,6 +195,10 @@ class LogReaderPool<K extends Comparable<K>, V>
   {
     try
     {
+      if (isMemoryMapped)
+      {
+        return BlockLogReader.newReader(file, new MappedInput(), parser);
+      }
       return BlockLogReader.newReader(file, new RandomAccessFile(file, "r"), parser) ;
     }
     catch (Exception e)
@@ -96,13 +207,340 @@ class LogReaderPool<K extends Comparable<K>, V>
     }
   }
 
+  /**
+   * Publishes the number of bytes of the file which can be read, once a record has been fully appended
+   * or the file has been truncated.
+   *
+   * @param length
+   *          The number of bytes of the file containing complete records.
+   */
+  void setEndOfFile(final long length)
+  {
+    if (isMemoryMapped)
+    {
+      // a file which may grow is never mapped, readers only need the new end of file even if it is truncated
+      endOfFile = length;
+    }
+  }
+
   /**
    * Shutdown this pool, releasing all files handles opened
    * on the file.
+   * <p>
+   * The mapped windows are unmapped right away, or as soon as the readers still using them are released.
    */
   void shutdown()
   {
-    // Nothing to do yet as no file handle is kept opened.
+    isShutdown = true;
+    for (Map.Entry<Long, MappedWindow> mapEntry : mappedWindows.entrySet())
+    {
+      if (mappedWindows.remove(mapEntry.getKey(), mapEntry.getValue()))
+      {
+        mapEntry.getValue().release();
+      }
+    }
+    StaticUtils.close(channel);
+  }
+
+  /**
+   * Returns the mapped window of the file with the provided index, mapping it if needed, or {@code null}
+   * if the file may grow and must be read through the channel.
+   * <p>
+   * The returned window is acquired for the caller, which must release it once done with it. Its buffer is
+   * shared: callers must only use duplicates of it.
+   */
+  private MappedWindow getMappedWindow(final long index, final long endOfFile) throws IOException
+  {
+    if (isGrowable)
+    {
+      return null;
+    }
+    while (true)
+    {
+      if (isShutdown)
+      {
+        throw new ClosedChannelException();
+      }
+      final MappedWindow window = mappedWindows.get(index);
+      if (window != null)
+      {
+        if (window.acquire())
+        {
+          return window;
+        }
+        // unmapped by a concurrent shutdown
+        continue;
+      }
+      final long windowStart = index * MAPPED_WINDOW_SIZE;
+      final long windowSize = Math.min(MAPPED_WINDOW_SIZE, endOfFile - windowStart);
+      // the channel can be closed right away, the mapping remains valid
+      final MappedWindow newWindow;
+      try (FileChannel channel = FileChannel.open(file.toPath(), StandardOpenOption.READ))
+      {
+        newWindow = new MappedWindow(channel.map(FileChannel.MapMode.READ_ONLY, windowStart, windowSize));
+      }
+      if (mappedWindows.putIfAbsent(index, newWindow) != null)
+      {
+        // mapped concurrently by another reader
+        newWindow.release();
+        continue;
+      }
+      newWindow.acquire();
+      if (isShutdown && mappedWindows.remove(index, newWindow))
+      {
+        // the pool has been shutdown before the new window was published
+        newWindow.release();
+      }
+      return newWindow;
+    }
+  }
+
+  /** Reads bytes at the provided position through the channel shared by all the readers of a file which may grow. */
+  private void readChannel(final ByteBuffer buffer, long position) throws IOException
+  {
+    while (buffer.hasRemaining())
+    {
+      final int read;
+      try
+      {
+        read = getChannel().read(buffer, position);
+      }
+      catch (ClosedChannelException e)
+      {
+        if (isShutdown || Thread.currentThread().isInterrupted())
+        {
+          throw e;
+        }
+        // closed because another reader has been interrupted, open it again
+        continue;
+      }
+      if (read < 0)
+      {
+        throw new EOFException();
+      }
+      position += read;
+    }
+  }
+
+  private FileChannel getChannel() throws IOException
+  {
+    final FileChannel currentChannel = channel;
+    if (currentChannel != null && currentChannel.isOpen())
+    {
+      return currentChannel;
+    }
+    return openChannel();
+  }
+
+  /**
+   * Opens the channel, or opens it again if it has been closed because a thread reading
+   * it has been interrupted.
+   */
+  private synchronized FileChannel openChannel() throws IOException
+  {
+    if (isShutdown || Thread.currentThread().isInterrupted())
+    {
+      throw new ClosedChannelException();
+    }
+    if (channel == null || !channel.isOpen())
+    {
+      channel = FileChannel.open(file.toPath(), StandardOpenOption.READ);
+    }
+    return channel;
+  }
+
+  /**
+   * A window of the file mapped in memory, unmapped once the pool and all the readers using it have
+   * released it.
+   */
+  private static final class MappedWindow
+  {
+    private final MappedByteBuffer buffer;
+    /** The number of readers using this window, plus one while the pool holds it, or 0 once unmapped. */
+    private final AtomicInteger references = new AtomicInteger(1);
+
+    private MappedWindow(final MappedByteBuffer buffer)
+    {
+      this.buffer = buffer;
+    }
+
+    /** Acquires this window for a reader, unless it has already been unmapped. */
+    private boolean acquire()
+    {
+      while (true)
+      {
+        final int count = references.get();
+        if (count == 0)
+        {
+          return false;
+        }
+        if (references.compareAndSet(count, count + 1))
+        {
+          return true;
+        }
+      }
+    }
+
+    /** Releases this window, unmapping it if it is not used anymore. */
+    private void release()
+    {
+      if (references.decrementAndGet() == 0 && directBufferCleanerMethod != null)
+      {
+        try
+        {
+          directBufferCleanerCleanMethod.invoke(directBufferCleanerMethod.invoke(buffer));
+        }
+        catch (Exception e)
+        {
+          // the window will be unmapped when it is garbage collected
+          logger.traceException(e);
+        }
+      }
+    }
+  }
+
+  /**
+   * Reads the log file through the windows mapped in memory, or through the shared channel if the file may grow.
+   * <p>
+   * Each reader owns a duplicate of the last window it read, so that readers never contend with each other.
+   */
+  private final class MappedInput implements LogInput
+  {
+    /** The index of the window which is currently read, or -1 if none. */
+    private long windowIndex = -1;
+
+    /** The window which is currently read, acquired by this reader, or {@code null} if none. */
+    private MappedWindow mappedWindow;
+
+    /** The duplicate of the window which is currently read, or {@code null} if none. */
+    private ByteBuffer window;
+
+    private long position;
+
+    @Override
+    public long length()
+    {
+      return endOfFile;
+    }
+
+    @Override
+    public long getFilePointer()
+    {
+      return position;
+    }
+
+    @Override
+    public void seek(final long position)
+    {
+      this.position = position;
+    }
+
+    @Override
+    public void readFully(final byte[] bytes) throws IOException
+    {
+      read(bytes.length, bytes, null);
+    }
+
+    @Override
+    public int skipBytes(final int length)
+    {
+      final int skipped = (int) Math.max(0, Math.min(length, endOfFile - position));
+      position += skipped;
+      return skipped;
+    }
+
+    @Override
+    public void appendBytes(final ByteStringBuilder builder, final int length) throws IOException
+    {
+      read(length, null, builder);
+    }
+
+    @Override
+    public void close()
+    {
+      releaseWindow();
+    }
+
+    @Override
+    public String toString()
+    {
+      return "MappedInput [file=" + file + ", position=" + position + "]";
+    }
+
+    /**
+     * Reads exactly the provided number of bytes from the current position,
+     * either into the provided array or to the provided builder.
+     */
+    private void read(final int length, final byte[] bytes, final ByteStringBuilder builder) throws IOException
+    {
+      final long endOfFile = LogReaderPool.this.endOfFile;
+      if (position + length > endOfFile)
+      {
+        throw new EOFException();
+      }
+      int done = 0;
+      while (done < length)
+      {
+        final long index = position / MAPPED_WINDOW_SIZE;
+        final int offsetInWindow = (int) (position % MAPPED_WINDOW_SIZE);
+        final int chunk = (int) Math.min(length - done, MAPPED_WINDOW_SIZE - offsetInWindow);
+        final ByteBuffer source = positionWindow(index, offsetInWindow, endOfFile);
+        if (source != null)
+        {
+          if (builder != null)
+          {
+            builder.appendBytes(source, chunk);
+          }
+          else
+          {
+            source.get(bytes, done, chunk);
+          }
+        }
+        else if (builder != null)
+        {
+          final byte[] chunkBytes = new byte[chunk];
+          readChannel(ByteBuffer.wrap(chunkBytes), position);
+          builder.appendBytes(chunkBytes);
+        }
+        else
+        {
+          readChannel(ByteBuffer.wrap(bytes, done, chunk), position);
+        }
+        position += chunk;
+        done += chunk;
+      }
+    }
+
+    /** Positions the window with the provided index, or returns {@code null} if it must be read through the channel. */
+    private ByteBuffer positionWindow(final long index, final int offsetInWindow, final long endOfFile)
+        throws IOException
+    {
+      if (index != windowIndex)
+      {
+        releaseWindow();
+        final MappedWindow sharedWindow = getMappedWindow(index, endOfFile);
+        if (sharedWindow == null)
+        {
+          return null;
+        }
+        mappedWindow = sharedWindow;
+        window = sharedWindow.buffer.duplicate();
+        windowIndex = index;
+      }
+      window.position(offsetInWindow);
+      return window;
+    }
+
+    private void releaseWindow()
+    {
+      if (mappedWindow != null)
+      {
+        mappedWindow.release();
+        mappedWindow = null;
+        window = null;
+        windowIndex = -1;
+      }
+    }
   }
 
 }
@@ -286,6 +286,17 @@ class ReplicationEnvironment implements ChangelogStateProvider
     }
   }
 
+  /**
+   * Indicates whether the log files are read through memory mapped regions.
+   *
+   * @return {@code true} if log readers must use memory mapped regions,
+   *         {@code false} if they must use random access files
+   */
+  boolean isMemoryMappingEnabled()
+  {
+    return replicationServer != null && replicationServer.isChangelogMemoryMappingEnabled();
+  }
+
   /**
    * Returns the state of the replication changelog.
    *
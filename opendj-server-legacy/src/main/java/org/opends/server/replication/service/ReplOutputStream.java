@@ -17,20 +17,52 @@
 package org.opends.server.replication.service;
 
 import java.io.IOException;
+import java.io.InterruptedIOException;
 import java.io.OutputStream;
+import java.util.Arrays;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.TimeUnit;
+
+import org.opends.server.api.DirectoryThread;
 
 /**
  * This class creates an output stream that can be used to export entries
  * to a synchronization domain.
+ * <p>
+ * The entries are streamed: the chunks written to this output stream are
+ * handed over to a sender thread, which publishes them to the remote servers
+ * while the export goes on producing the next chunks. This way, reading and
+ * formatting the entries in the exporting thread overlaps with the flow
+ * control, the encoding and the network transfer of the previous chunks.
  */
 class ReplOutputStream extends OutputStream
 {
+  /**
+   * The size of the chunks expected to be written to this output stream.
+   * Larger chunks mean fewer messages, and more data in flight within the initialization window.
+   */
+  static final int CHUNK_SIZE = 64 * 1024;
+  /** The maximum number of chunks waiting for the sender thread. */
+  private static final int MAX_PENDING_CHUNKS = 16;
+  /** The marker of the end of the stream for the sender thread. */
+  private static final byte[] END_OF_STREAM = new byte[0];
+
   /** The synchronization domain on which the export is done. */
   private final ReplicationDomain domain;
 
   /** The current number of entries exported. */
   private final long numExportedEntries = 0;
 
+  /** The chunks written and not yet published by the sender thread. */
+  private final BlockingQueue<byte[]> pendingChunks = new ArrayBlockingQueue<>(MAX_PENDING_CHUNKS);
+  /** The thread publishing the chunks, started on the first write. */
+  private DirectoryThread sender;
+  /** The error raised by the sender thread, if any. */
+  private volatile IOException senderError;
+  /** Whether this output stream has been closed. */
+  private boolean closed;
+
   /**
    * Creates a new ReplLDIFOutputStream related to a replication
    * domain.
@@ -53,7 +85,137 @@ class ReplOutputStream extends OutputStream
   @Override
   public void write(byte b[], int off, int len) throws IOException
   {
-    domain.exportLDIFEntry(b, off, len);
+    if (closed)
+    {
+      throw new IOException("Stream closed");
+    }
+    if (len == 0)
+    {
+      return;
+    }
+    if (sender == null)
+    {
+      sender = new DirectoryThread(new Runnable()
+      {
+        @Override
+        public void run()
+        {
+          sendChunks();
+        }
+      }, "Replication export sender for domain " + domain.getBaseDN());
+      sender.start();
+    }
+    // the caller may reuse its buffer as soon as this method returns
+    enqueue(Arrays.copyOfRange(b, off, off + len));
+  }
+
+  /**
+   * Waits until all the chunks written have been published and stops the sender thread.
+   *
+   * @throws IOException
+   *           if a chunk could not be published. This exception is thrown again
+   *           if this method is called again.
+   */
+  @Override
+  public void close() throws IOException
+  {
+    if (!closed)
+    {
+      closed = true;
+      if (sender != null)
+      {
+        enqueue(END_OF_STREAM);
+        try
+        {
+          sender.join();
+        }
+        catch (InterruptedException e)
+        {
+          Thread.currentThread().interrupt();
+          throw new InterruptedIOException(e.getMessage());
+        }
+      }
+    }
+    throwSenderError();
+  }
+
+  /**
+   * Stops publishing the chunks which are still pending, without waiting for the sender thread.
+   * Does nothing if this output stream has already been closed.
+   */
+  void abort()
+  {
+    if (!closed)
+    {
+      closed = true;
+      if (sender != null)
+      {
+        pendingChunks.clear();
+        // the sender thread stops once it is done with the chunk it may be publishing
+        pendingChunks.offer(END_OF_STREAM);
+      }
+    }
+  }
+
+  private void enqueue(final byte[] chunk) throws IOException
+  {
+    try
+    {
+      // do not wait forever for a sender thread which died
+      while (!pendingChunks.offer(chunk, 100, TimeUnit.MILLISECONDS))
+      {
+        throwSenderError();
+        if (!sender.isAlive())
+        {
+          throw new IOException("The sender thread for domain " + domain.getBaseDN() + " has stopped");
+        }
+      }
+    }
+    catch (InterruptedException e)
+    {
+      Thread.currentThread().interrupt();
+      throw new InterruptedIOException(e.getMessage());
+    }
+    throwSenderError();
+  }
+
+  private void throwSenderError() throws IOException
+  {
+    if (senderError != null)
+    {
+      throw senderError;
+    }
+  }
+
+  /** Publishes the chunks written to this output stream, until the end of the stream or an error. */
+  private void sendChunks()
+  {
+    try
+    {
+      byte[] chunk;
+      while ((chunk = pendingChunks.take()) != END_OF_STREAM)
+      {
+        domain.exportLDIFEntry(chunk, 0, chunk.length);
+      }
+    }
+    catch (IOException e)
+    {
+      senderError = e;
+    }
+    catch (InterruptedException e)
+    {
+      senderError = new InterruptedIOException(e.getMessage());
+    }
+    catch (RuntimeException e)
+    {
+      senderError = new IOException(e);
+    }
+    catch (Error e)
+    {
+      // record it first: the writers must not wait forever for chunks nobody takes anymore
+      senderError = new IOException(e);
+      throw e;
+    }
   }
 
   /**
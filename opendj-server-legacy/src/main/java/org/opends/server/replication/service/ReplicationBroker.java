@@ -1120,6 +1120,8 @@ public class ReplicationBroker
        */
       newSession.setProtocolVersion(
           getCompatibleVersion(replServerInfo.getProtocolVersion()));
+      // This session does not run its own thread, so messages are never batched
+      newSession.setFraming(0, config.isSessionCompressionEnabled());
 
       if (!isSslEncryption)
       {
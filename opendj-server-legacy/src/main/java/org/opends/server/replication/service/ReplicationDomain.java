@@ -21,6 +21,7 @@ import static org.opends.messages.ReplicationMessages.*;
 import static org.opends.server.replication.common.AssuredMode.*;
 import static org.opends.server.replication.common.StatusMachine.*;
 import static org.opends.server.util.CollectionUtils.*;
+import static org.opends.server.util.StaticUtils.*;
 
 import java.io.BufferedOutputStream;
 import java.io.IOException;
@@ -1513,7 +1514,7 @@ public abstract class ReplicationDomain
               ERR_INIT_NO_SUCCESS_START_FROM_SERVERS.get(getBaseDN(), ieCtx.failureList));
         }
 
-        exportBackend(new BufferedOutputStream(new ReplOutputStream(this)));
+        exportEntries();
 
         // Notify the peer of the success
         broker.publish(
@@ -2025,6 +2026,30 @@ public abstract class ReplicationDomain
     return entryCount;
   }
 
+  /**
+   * Exports the entries of the backend to the remote servers, publishing them
+   * from a dedicated thread while the export goes on.
+   */
+  private void exportEntries() throws DirectoryException
+  {
+    final ReplOutputStream output = new ReplOutputStream(this);
+    try
+    {
+      exportBackend(new BufferedOutputStream(output, ReplOutputStream.CHUNK_SIZE));
+      // waits for all the entries to be published, and reports the publishing errors
+      output.close();
+    }
+    catch (IOException e)
+    {
+      throw new DirectoryException(OTHER, ERR_INIT_EXPORT_FAILURE.get(stackTraceToSingleLineString(e)), e);
+    }
+    finally
+    {
+      // no-op if the export succeeded, otherwise stop publishing the entries
+      output.abort();
+    }
+  }
+
   /**
    * Exports an entry in LDIF format.
    *
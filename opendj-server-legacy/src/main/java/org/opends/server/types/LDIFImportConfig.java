@@ -64,6 +64,8 @@ public final class LDIFImportConfig extends OperationConfig
 {
   /** The default buffer size that will be used when reading LDIF data. */
   private static final int DEFAULT_BUFFER_SIZE = 8192;
+  /** The size of the blocks read from a compressed LDIF source, much larger than the default of the JDK. */
+  private static final int COMPRESSED_BLOCK_SIZE = 64 * 1024;
 
   /**
    * Indicates whether to include the objectclasses in the entries
@@ -243,7 +245,7 @@ public final class LDIFImportConfig extends OperationConfig
 
       if (isCompressed)
       {
-        inputStream = new GZIPInputStream(inputStream);
+        inputStream = new GZIPInputStream(inputStream, COMPRESSED_BLOCK_SIZE);
       }
 
       reader = new BufferedReader(new InputStreamReader(inputStream),
@@ -284,7 +286,7 @@ public final class LDIFImportConfig extends OperationConfig
 
     if (isCompressed)
     {
-      inputStream = new GZIPInputStream(inputStream);
+      inputStream = new GZIPInputStream(inputStream, COMPRESSED_BLOCK_SIZE);
     }
 
     reader = new BufferedReader(new InputStreamReader(inputStream), bufferSize);
@@ -15,10 +15,15 @@
  */
 package org.opends.server.types;
 
+import java.util.ArrayList;
+import java.util.Arrays;
 import java.util.Iterator;
 import java.util.LinkedList;
+import java.util.List;
 import java.util.concurrent.TimeUnit;
 import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.concurrent.locks.AbstractQueuedSynchronizer;
 import java.util.concurrent.locks.Lock;
 import java.util.concurrent.locks.ReentrantReadWriteLock;
 
@@ -44,9 +49,9 @@ import org.forgerock.util.Reject;
  * an implicit subtree read lock on the parent
  * <li>deleting an entry: client code must acquire a subtree write lock for the target entry using
  * {@link #tryWriteLockSubtree(DN)}
- * <li>renaming an entry: client code must acquire a subtree write lock for the old entry, and a
- * subtree write lock for the new entry using {@link #tryWriteLockSubtree(DN)}. Care should be taken
- * to avoid deadlocks, e.g. by locking the DN which sorts first.
+ * <li>renaming an entry: client code must acquire a subtree write lock for both the old entry and
+ * the new entry using {@link #tryWriteLockSubtrees(DN, DN)}, which takes care of avoiding deadlocks
+ * between concurrent renames.
  * </ul>
  * In addition, backend implementations may choose to use their own lock manager for enforcing
  * atomicity and isolation. This is typically the case for backends which cannot take advantage of
@@ -98,6 +103,25 @@ import org.forgerock.util.Reject;
  * Locks are dereferenced when they are unlocked, when they are evicted from a thread local cache,
  * and when a child lock's reference count reaches zero. A lock is completely removed from the lock
  * table once its reference count reaches zero.
+ * <p>
+ * <b>Striped lock table</b>
+ * <p>
+ * A lock manager created with {@link #newStripedLockManager(long, TimeUnit, int)} does not maintain
+ * any lock table or reference counts. Instead, DNs are hashed onto a fixed array of lightweight
+ * read-write locks, one array of "subtree" stripes and one array of "entry" stripes, which are
+ * allocated once and for all. The same locking protocol is followed, but all the stripes needed by
+ * a request are acquired in ascending stripe order, taking the strongest mode when several DNs
+ * hash to the same stripe, so that requests can never deadlock each other. When a thread already
+ * holds stripes, the stripes which do not sort after all of them, as well as upgrades from read to
+ * write, cannot be acquired in order: they are only acquired if they are immediately available,
+ * otherwise the request fails at once rather than waiting for the lock timeout, since the holder
+ * could be waiting for the stripes of this thread. The stripe locks allow a thread holding the only
+ * read locks on a stripe to write lock it, which prevents a thread from deadlocking itself when
+ * unrelated DNs collide. Collisions may however cause unrelated requests to wait for each other:
+ * the number of stripes should be large compared to the number of concurrent updates.
+ * <p>
+ * In both modes, the time spent waiting for locks is recorded in a histogram published by the lock
+ * manager monitor.
  */
 @org.opends.server.types.PublicAPI(stability = org.opends.server.types.StabilityLevel.UNCOMMITTED,
     mayInstantiate = false, mayExtend = false, mayInvoke = true)
@@ -109,6 +133,12 @@ public final class LockManager
     private final DNLockHolder lock;
     private final Lock subtreeLock;
     private final Lock entryLock;
+    /** The DN locked in the striped lock table. */
+    private final DN dn;
+    /** The stripes locked in the striped lock table, in ascending order, each encoded with its mode. */
+    private final int[] stripes;
+    /** The locks of several DNs locked together in the DN lock table, in the order they were locked. */
+    private final DNLock[] combinedLocks;
     private boolean isLocked = true;
 
     private DNLock(final DNLockHolder lock, final Lock subtreeLock, final Lock entryLock)
@@ -116,12 +146,39 @@ public final class LockManager
       this.lock = lock;
       this.subtreeLock = subtreeLock;
       this.entryLock = entryLock;
+      this.dn = null;
+      this.stripes = null;
+      this.combinedLocks = null;
+    }
+
+    private DNLock(final DN dn, final int[] stripes)
+    {
+      this.lock = null;
+      this.subtreeLock = null;
+      this.entryLock = null;
+      this.dn = dn;
+      this.stripes = stripes;
+      this.combinedLocks = null;
+    }
+
+    private DNLock(final DNLock... combinedLocks)
+    {
+      this.lock = null;
+      this.subtreeLock = null;
+      this.entryLock = null;
+      this.dn = null;
+      this.stripes = null;
+      this.combinedLocks = combinedLocks;
     }
 
     @Override
     public String toString()
     {
-      return lock.toString();
+      if (combinedLocks != null)
+      {
+        return Arrays.toString(combinedLocks);
+      }
+      return lock != null ? lock.toString() : "\"" + dn + "\"";
     }
 
     /**
@@ -136,17 +193,32 @@ public final class LockManager
       {
         throw new IllegalStateException("Already unlocked");
       }
-      lock.releaseParentSubtreeReadLock();
-      subtreeLock.unlock();
-      entryLock.unlock();
-      dereference(lock);
+      if (lock != null)
+      {
+        lock.releaseParentSubtreeReadLock();
+        subtreeLock.unlock();
+        entryLock.unlock();
+        dereference(lock);
+      }
+      else if (combinedLocks != null)
+      {
+        for (int i = combinedLocks.length - 1; i >= 0; i--)
+        {
+          combinedLocks[i].unlock();
+        }
+      }
+      else
+      {
+        stripedLockTable.unlock(stripes, stripes.length);
+        stripedLockTable.removeHeldStripes(stripes);
+      }
       isLocked = false;
     }
 
     /** For unit testing. */
     int refCount()
     {
-      return lock.refCount.get();
+      return lock != null ? lock.refCount.get() : 0;
     }
   }
 
@@ -240,31 +312,323 @@ public final class LockManager
       dereference(this);
       return null;
     }
+  }
+
+  /**
+   * A non-fair read-write lock guarding one stripe of the striped lock table.
+   * <p>
+   * The state holds the write hold count in its upper 16 bits and the read hold count in its lower
+   * 16 bits. Unlike {@link ReentrantReadWriteLock}, the write lock may be acquired by a thread which
+   * holds all the read locks of the stripe, because unrelated DNs locked by the same thread may hash
+   * to the same stripe. New readers do not overtake queued threads so that writers cannot starve.
+   */
+  private final class StripeLock extends AbstractQueuedSynchronizer
+  {
+    private static final long serialVersionUID = 1L;
+    private static final int SHARED_SHIFT = 16;
+    private static final int SHARED_MASK = (1 << SHARED_SHIFT) - 1;
+    private static final int EXCLUSIVE_UNIT = 1 << SHARED_SHIFT;
+
+    /** The index of this stripe, used for looking up the read locks held by the current thread. */
+    private final int index;
+
+    private StripeLock(final int index)
+    {
+      this.index = index;
+    }
 
-    private boolean tryLockWithTimeout(final Lock lock)
+    @Override
+    protected boolean tryAcquire(final int ignored)
     {
-      try
+      final Thread currentThread = Thread.currentThread();
+      final int state = getState();
+      if (state != 0)
       {
-        return lock.tryLock(lockTimeout, lockTimeoutUnits);
+        if ((state >>> SHARED_SHIFT) != 0)
+        {
+          if (getExclusiveOwnerThread() != currentThread)
+          {
+            return false;
+          }
+          // Reentrant write lock: only the owner can update the state.
+          setState(state + EXCLUSIVE_UNIT);
+          return true;
+        }
+        if ((state & SHARED_MASK) != stripedLockTable.getReadHolds()[index])
+        {
+          // Read locked by other threads.
+          return false;
+        }
       }
-      catch (final InterruptedException e)
+      if (compareAndSetState(state, state + EXCLUSIVE_UNIT))
       {
-        // Unable to handle interrupts here.
-        Thread.currentThread().interrupt();
-        return false;
+        setExclusiveOwnerThread(currentThread);
+        return true;
+      }
+      return false;
+    }
+
+    @Override
+    protected boolean tryRelease(final int ignored)
+    {
+      if (getExclusiveOwnerThread() != Thread.currentThread())
+      {
+        throw new IllegalMonitorStateException();
+      }
+      final int state = getState() - EXCLUSIVE_UNIT;
+      final boolean isFree = (state >>> SHARED_SHIFT) == 0;
+      if (isFree)
+      {
+        setExclusiveOwnerThread(null);
+      }
+      setState(state);
+      return isFree;
+    }
+
+    @Override
+    protected int tryAcquireShared(final int ignored)
+    {
+      final int[] readHolds = stripedLockTable.getReadHolds();
+      for (;;)
+      {
+        final int state = getState();
+        final boolean isWriteLocked = (state >>> SHARED_SHIFT) != 0;
+        if (isWriteLocked && getExclusiveOwnerThread() != Thread.currentThread())
+        {
+          return -1;
+        }
+        if (!isWriteLocked && readHolds[index] == 0 && hasQueuedPredecessors())
+        {
+          // Do not overtake queued writers, unless reentering which could otherwise deadlock.
+          return -1;
+        }
+        if ((state & SHARED_MASK) == SHARED_MASK)
+        {
+          throw new Error("Maximum lock count exceeded");
+        }
+        if (compareAndSetState(state, state + 1))
+        {
+          readHolds[index]++;
+          return 1;
+        }
+      }
+    }
+
+    @Override
+    protected boolean tryReleaseShared(final int ignored)
+    {
+      final int[] readHolds = stripedLockTable.getReadHolds();
+      if (readHolds[index] == 0)
+      {
+        throw new IllegalMonitorStateException();
+      }
+      readHolds[index]--;
+      for (;;)
+      {
+        final int state = getState();
+        if (compareAndSetState(state, state - 1))
+        {
+          return state - 1 == 0;
+        }
+      }
+    }
+
+    private boolean tryLock(final boolean isWrite) throws InterruptedException
+    {
+      final long timeoutNanos = lockTimeoutUnits.toNanos(lockTimeout);
+      return isWrite ? tryAcquireNanos(1, timeoutNanos) : tryAcquireSharedNanos(1, timeoutNanos);
+    }
+
+    /** Acquires the lock only if it is immediately available, without waiting. */
+    private boolean tryLockNow(final boolean isWrite)
+    {
+      return isWrite ? tryAcquire(1) : tryAcquireShared(1) >= 0;
+    }
+
+    private void unlock(final boolean isWrite)
+    {
+      if (isWrite)
+      {
+        release(1);
+      }
+      else
+      {
+        releaseShared(1);
       }
     }
   }
 
+  /** A fixed array of subtree stripes followed by entry stripes, shared by all the DNs. */
+  private final class StripedLockTable
+  {
+    private final int numberOfStripes;
+    private final StripeLock[] locks;
+    /** Read hold counts per stripe for the current thread. */
+    private final ThreadLocal<int[]> readHolds = new ThreadLocal<>();
+    /** The stripes of the DN locks held by the current thread. */
+    private final ThreadLocal<List<int[]>> heldStripes = new ThreadLocal<>();
+
+    private StripedLockTable(final int numberOfStripes)
+    {
+      this.numberOfStripes = numberOfStripes;
+      this.locks = new StripeLock[2 * numberOfStripes];
+      for (int i = 0; i < locks.length; i++)
+      {
+        locks[i] = new StripeLock(i);
+      }
+    }
+
+    private int[] getReadHolds()
+    {
+      int[] holds = readHolds.get();
+      if (holds == null)
+      {
+        holds = new int[locks.length];
+        readHolds.set(holds);
+      }
+      return holds;
+    }
+
+    private List<int[]> getHeldStripes()
+    {
+      List<int[]> held = heldStripes.get();
+      if (held == null)
+      {
+        held = new ArrayList<>(2);
+        heldStripes.set(held);
+      }
+      return held;
+    }
+
+    /** Forgets the stripes of a DN lock released by the current thread. */
+    private void removeHeldStripes(final int[] stripes)
+    {
+      final List<int[]> held = getHeldStripes();
+      for (int i = held.size() - 1; i >= 0; i--)
+      {
+        if (held.get(i) == stripes)
+        {
+          held.remove(i);
+          return;
+        }
+      }
+    }
+
+    /** Locks the stripes of the provided DNs together, the first DN naming the returned lock. */
+    private DNLock tryLock(final DN[] dns, final boolean isSubtreeWrite, final boolean isEntryWrite)
+    {
+      int maxStripes = 0;
+      for (final DN dn : dns)
+      {
+        for (DN parent = dn.parent(); parent != null; parent = parent.parent())
+        {
+          maxStripes++;
+        }
+        maxStripes += 2;
+      }
+      final int[] stripes = new int[maxStripes];
+      int nbStripes = 0;
+      for (final DN dn : dns)
+      {
+        for (DN parent = dn.parent(); parent != null; parent = parent.parent())
+        {
+          nbStripes = addStripe(stripes, nbStripes, getStripe(parent), false);
+        }
+        nbStripes = addStripe(stripes, nbStripes, getStripe(dn), isSubtreeWrite);
+        // Entry stripes sort after all the subtree stripes.
+        nbStripes = addStripe(stripes, nbStripes, numberOfStripes + getStripe(dn), isEntryWrite);
+      }
+
+      // Only the stripes sorting after all the stripes held by this thread may be waited for
+      final List<int[]> held = getHeldStripes();
+      int maxHeldStripe = -1;
+      for (final int[] heldLock : held)
+      {
+        maxHeldStripe = Math.max(maxHeldStripe, heldLock[heldLock.length - 1] >>> 1);
+      }
+      for (int i = 0; i < nbStripes; i++)
+      {
+        final StripeLock stripeLock = locks[stripes[i] >>> 1];
+        final boolean isLocked = stripeLock.index > maxHeldStripe
+            ? tryLockWithTimeout(stripeLock, isWrite(stripes[i]))
+            : tryLockOutOfOrder(stripeLock, isWrite(stripes[i]));
+        if (!isLocked)
+        {
+          unlock(stripes, i);
+          return null;
+        }
+      }
+      final int[] lockedStripes = nbStripes == stripes.length ? stripes : Arrays.copyOf(stripes, nbStripes);
+      held.add(lockedStripes);
+      return new DNLock(dns[0], lockedStripes);
+    }
+
+    /** Unlocks the provided number of stripes in the reverse order they were locked. */
+    private void unlock(final int[] stripes, final int nbStripes)
+    {
+      for (int i = nbStripes - 1; i >= 0; i--)
+      {
+        locks[stripes[i] >>> 1].unlock(isWrite(stripes[i]));
+      }
+    }
+
+    private int getStripe(final DN dn)
+    {
+      final int hashCode = dn.hashCode();
+      return (hashCode ^ (hashCode >>> 16)) & (numberOfStripes - 1);
+    }
+
+    /** Inserts a stripe keeping the stripes sorted and unique, returns the new number of stripes. */
+    private int addStripe(final int[] stripes, final int nbStripes, final int stripe, final boolean isWrite)
+    {
+      int i = nbStripes;
+      while (i > 0 && (stripes[i - 1] >>> 1) > stripe)
+      {
+        i--;
+      }
+      if (i > 0 && (stripes[i - 1] >>> 1) == stripe)
+      {
+        // Same stripe: keep the strongest mode.
+        if (isWrite)
+        {
+          stripes[i - 1] |= 1;
+        }
+        return nbStripes;
+      }
+      System.arraycopy(stripes, i, stripes, i + 1, nbStripes - i);
+      stripes[i] = encode(stripe, isWrite);
+      return nbStripes + 1;
+    }
+
+    private int encode(final int stripe, final boolean isWrite)
+    {
+      return stripe << 1 | (isWrite ? 1 : 0);
+    }
+
+    private boolean isWrite(final int encodedStripe)
+    {
+      return (encodedStripe & 1) != 0;
+    }
+  }
+
   private static final long DEFAULT_LOCK_TIMEOUT = 9;
   private static final TimeUnit DEFAULT_LOCK_TIMEOUT_UNITS = TimeUnit.SECONDS;
   private static final int MINIMUM_NUMBER_OF_BUCKETS = 64;
   private static final int THREAD_LOCAL_CACHE_SIZE = 8;
+  /** Upper bounds of the lock wait histogram buckets, the last bucket holding all the longer waits. */
+  private static final long[] LOCK_WAIT_BUCKET_BOUNDS_NANOS = {
+    TimeUnit.MICROSECONDS.toNanos(10), TimeUnit.MICROSECONDS.toNanos(100), TimeUnit.MILLISECONDS.toNanos(1),
+    TimeUnit.MILLISECONDS.toNanos(10), TimeUnit.MILLISECONDS.toNanos(100), TimeUnit.SECONDS.toNanos(1) };
 
   private final int numberOfBuckets;
   private final LinkedList<DNLockHolder>[] lockTable;
+  /** The striped lock table, or {@code null} if locks are kept in the DN lock table. */
+  private final StripedLockTable stripedLockTable;
   private final long lockTimeout;
   private final TimeUnit lockTimeoutUnits;
+  private final LongAdder[] lockWaits = new LongAdder[LOCK_WAIT_BUCKET_BOUNDS_NANOS.length + 1];
+  private final LongAdder lockTimeouts = new LongAdder();
+  private final LongAdder lockConflicts = new LongAdder();
 
   /** Avoid sub-classing in order to workaround class leaks in app servers. */
   private final ThreadLocal<LinkedList<DNLockHolder>> threadLocalCache = new ThreadLocal<>();
@@ -289,7 +653,39 @@ public final class LockManager
    */
   public LockManager(final long lockTimeout, final TimeUnit lockTimeoutUnit)
   {
-    this(lockTimeout, lockTimeoutUnit, Runtime.getRuntime().availableProcessors() * 8);
+    this(lockTimeout, lockTimeoutUnit, Runtime.getRuntime().availableProcessors() * 8, 0);
+  }
+
+  /**
+   * Creates a new lock manager with a lock timeout of 9 seconds, hashing DNs onto a fixed number of
+   * lock stripes instead of maintaining a lock per DN.
+   *
+   * @param numberOfStripes
+   *          The number of subtree and entry stripes, rounded up to a power of 2.
+   * @return The new striped lock manager.
+   */
+  public static LockManager newStripedLockManager(final int numberOfStripes)
+  {
+    return newStripedLockManager(DEFAULT_LOCK_TIMEOUT, DEFAULT_LOCK_TIMEOUT_UNITS, numberOfStripes);
+  }
+
+  /**
+   * Creates a new lock manager hashing DNs onto a fixed number of lock stripes instead of
+   * maintaining a lock per DN.
+   *
+   * @param lockTimeout
+   *          The lock timeout.
+   * @param lockTimeoutUnit
+   *          The lock timeout units.
+   * @param numberOfStripes
+   *          The number of subtree and entry stripes, rounded up to a power of 2.
+   * @return The new striped lock manager.
+   */
+  public static LockManager newStripedLockManager(final long lockTimeout, final TimeUnit lockTimeoutUnit,
+      final int numberOfStripes)
+  {
+    Reject.ifFalse(numberOfStripes > 0, "numberOfStripes must be a positive integer");
+    return new LockManager(lockTimeout, lockTimeoutUnit, MINIMUM_NUMBER_OF_BUCKETS, numberOfStripes);
   }
 
   /**
@@ -301,9 +697,12 @@ public final class LockManager
    *          The lock timeout units.
    * @param numberOfBuckets
    *          The number of buckets to use in the lock table. The minimum number of buckets is 64.
+   * @param numberOfStripes
+   *          The number of stripes of the striped lock table, or 0 to use the DN lock table.
    */
   @SuppressWarnings("unchecked")
-  private LockManager(final long lockTimeout, final TimeUnit lockTimeoutUnit, final int numberOfBuckets)
+  private LockManager(final long lockTimeout, final TimeUnit lockTimeoutUnit, final int numberOfBuckets,
+      final int numberOfStripes)
   {
     Reject.ifFalse(lockTimeout >= 0, "lockTimeout must be a non-negative integer");
     Reject.ifNull(lockTimeoutUnit, "lockTimeoutUnit must be non-null");
@@ -317,6 +716,11 @@ public final class LockManager
     {
       this.lockTable[i] = new LinkedList<>();
     }
+    this.stripedLockTable = numberOfStripes > 0 ? new StripedLockTable(roundUpToPowerOf2(numberOfStripes)) : null;
+    for (int i = 0; i < lockWaits.length; i++)
+    {
+      lockWaits[i] = new LongAdder();
+    }
   }
 
   @Override
@@ -348,6 +752,10 @@ public final class LockManager
    */
   public DNLock tryReadLockEntry(final DN entry)
   {
+    if (stripedLockTable != null)
+    {
+      return stripedLockTable.tryLock(new DN[] { entry }, false, false);
+    }
     return acquireLockFromCache(entry).tryReadLockEntry();
   }
 
@@ -361,6 +769,10 @@ public final class LockManager
    */
   public DNLock tryWriteLockEntry(final DN entry)
   {
+    if (stripedLockTable != null)
+    {
+      return stripedLockTable.tryLock(new DN[] { entry }, false, true);
+    }
     return acquireLockFromCache(entry).tryWriteLockEntry();
   }
 
@@ -375,9 +787,154 @@ public final class LockManager
    */
   public DNLock tryWriteLockSubtree(final DN subtree)
   {
+    if (stripedLockTable != null)
+    {
+      return stripedLockTable.tryLock(new DN[] { subtree }, true, true);
+    }
     return acquireLockFromCache(subtree).tryWriteLockSubtree();
   }
 
+  /**
+   * Acquires the write locks for two subtrees together, such as the old and new DNs of a renamed
+   * entry, in an order which cannot deadlock with other requests locking the same subtrees. This
+   * method will block as {@link #tryWriteLockSubtree(DN)} for each of the subtrees.
+   *
+   * @param subtree1
+   *          The first subtree whose write lock is required.
+   * @param subtree2
+   *          The second subtree whose write lock is required.
+   * @return The lock of both subtrees, or {@code null} if the lock attempt timed out.
+   */
+  public DNLock tryWriteLockSubtrees(final DN subtree1, final DN subtree2)
+  {
+    if (stripedLockTable != null)
+    {
+      return stripedLockTable.tryLock(new DN[] { subtree1, subtree2 }, true, true);
+    }
+    final boolean subtree1First = subtree1.compareTo(subtree2) <= 0;
+    final DNLock firstLock = tryWriteLockSubtree(subtree1First ? subtree1 : subtree2);
+    if (firstLock == null)
+    {
+      return null;
+    }
+    final DNLock secondLock = tryWriteLockSubtree(subtree1First ? subtree2 : subtree1);
+    if (secondLock == null)
+    {
+      firstLock.unlock();
+      return null;
+    }
+    return new DNLock(firstLock, secondLock);
+  }
+
+  /**
+   * Returns the number of stripes of the striped lock table.
+   *
+   * @return The number of stripes, or 0 if this lock manager maintains a lock per DN.
+   */
+  public int getNumberOfStripes()
+  {
+    return stripedLockTable != null ? stripedLockTable.numberOfStripes : 0;
+  }
+
+  /**
+   * Returns the histogram of the time spent acquiring locks. The buckets respectively count the
+   * locks acquired in less than 10us, 100us, 1ms, 10ms, 100ms, 1s, and in 1s or more.
+   *
+   * @return The number of locks acquired within each bucket.
+   */
+  public long[] getLockWaitHistogram()
+  {
+    final long[] histogram = new long[lockWaits.length];
+    for (int i = 0; i < lockWaits.length; i++)
+    {
+      histogram[i] = lockWaits[i].sum();
+    }
+    return histogram;
+  }
+
+  /**
+   * Returns the number of lock attempts which timed out.
+   *
+   * @return The number of lock attempts which timed out.
+   */
+  public long getLockTimeouts()
+  {
+    return lockTimeouts.sum();
+  }
+
+  /**
+   * Returns the number of lock attempts of the striped lock table which failed at once, because
+   * they needed a stripe which could not be waited for without risking a deadlock.
+   *
+   * @return The number of lock attempts which failed because of a lock ordering conflict.
+   */
+  public long getLockConflicts()
+  {
+    return lockConflicts.sum();
+  }
+
+  private boolean tryLockWithTimeout(final Lock lock)
+  {
+    final long startTime = System.nanoTime();
+    try
+    {
+      return recordLockWait(startTime, lock.tryLock(lockTimeout, lockTimeoutUnits));
+    }
+    catch (final InterruptedException e)
+    {
+      // Unable to handle interrupts here.
+      Thread.currentThread().interrupt();
+      return false;
+    }
+  }
+
+  private boolean tryLockWithTimeout(final StripeLock lock, final boolean isWrite)
+  {
+    final long startTime = System.nanoTime();
+    try
+    {
+      return recordLockWait(startTime, lock.tryLock(isWrite));
+    }
+    catch (final InterruptedException e)
+    {
+      // Unable to handle interrupts here.
+      Thread.currentThread().interrupt();
+      return false;
+    }
+  }
+
+  /**
+   * Acquires a stripe which the current thread cannot wait for without risking a deadlock with the
+   * holders of the stripe, failing at once if the stripe is not available.
+   */
+  private boolean tryLockOutOfOrder(final StripeLock lock, final boolean isWrite)
+  {
+    if (lock.tryLockNow(isWrite))
+    {
+      lockWaits[0].increment();
+      return true;
+    }
+    lockConflicts.increment();
+    return false;
+  }
+
+  private boolean recordLockWait(final long startTime, final boolean isLocked)
+  {
+    if (!isLocked)
+    {
+      lockTimeouts.increment();
+      return false;
+    }
+    final long waitTime = System.nanoTime() - startTime;
+    int bucket = 0;
+    while (bucket < LOCK_WAIT_BUCKET_BOUNDS_NANOS.length && waitTime >= LOCK_WAIT_BUCKET_BOUNDS_NANOS[bucket])
+    {
+      bucket++;
+    }
+    lockWaits[bucket].increment();
+    return true;
+  }
+
   /** For unit testing. */
   int getLockTableRefCountFor(final DN dn)
   {
@@ -520,9 +1077,13 @@ public final class LockManager
    */
   private int getNumberOfBuckets(final int buckets)
   {
-    final int roundedNumberOfBuckets = Math.min(buckets, MINIMUM_NUMBER_OF_BUCKETS);
+    return roundUpToPowerOf2(Math.min(buckets, MINIMUM_NUMBER_OF_BUCKETS));
+  }
+
+  private static int roundUpToPowerOf2(final int value)
+  {
     int powerOf2 = 1;
-    while (powerOf2 < roundedNumberOfBuckets)
+    while (powerOf2 < value)
     {
       powerOf2 <<= 1;
     }
@@ -520,6 +520,29 @@ public class LDIFReader implements Closeable
    *                         occurs while trying to parse it.
    */
   protected DN readDN(LinkedList<StringBuilder> lines) throws LDIFException
+  {
+    return readDN(lines, lastEntryHeaderLines, lastEntryLineNumber);
+  }
+
+
+
+  /**
+   * Reads the DN of the entry from the provided list of lines, without relying
+   * on the state of this reader, so that the DNs of distinct entries can be
+   * read concurrently.
+   *
+   * @param  lines            The set of lines from which the DN should be read.
+   * @param  headerLines      The list where the DN line is moved to.
+   * @param  entryLineNumber  The line number on which the entry starts.
+   *
+   * @return  The decoded entry DN.
+   *
+   * @throws  LDIFException  If DN is not the first element in the list (or the
+   *                         second after the LDIF version), or if a problem
+   *                         occurs while trying to parse it.
+   */
+  protected final DN readDN(LinkedList<StringBuilder> lines, List<StringBuilder> headerLines, long entryLineNumber)
+      throws LDIFException
   {
     if (lines.isEmpty())
     {
@@ -530,26 +553,26 @@ public class LDIFReader implements Closeable
     }
 
     StringBuilder line = lines.remove();
-    lastEntryHeaderLines.add(line);
+    headerLines.add(line);
     int colonPos = line.indexOf(":");
     if (colonPos <= 0)
     {
-      LocalizableMessage message = ERR_LDIF_NO_ATTR_NAME.get(lastEntryLineNumber, line);
+      LocalizableMessage message = ERR_LDIF_NO_ATTR_NAME.get(entryLineNumber, line);
       logToRejectWriter(lines, message);
-      throw new LDIFException(message, lastEntryLineNumber, true);
+      throw new LDIFException(message, entryLineNumber, true);
     }
 
     String attrName = toLowerCase(line.substring(0, colonPos));
     if (attrName.equals("version"))
     {
       // This is the version line, and we can skip it.
-      return readDN(lines);
+      return readDN(lines, headerLines, entryLineNumber);
     }
     else if (! attrName.equals("dn"))
     {
-      LocalizableMessage message = ERR_LDIF_NO_DN.get(lastEntryLineNumber, line);
+      LocalizableMessage message = ERR_LDIF_NO_DN.get(entryLineNumber, line);
       logToRejectWriter(lines, message);
-      throw new LDIFException(message, lastEntryLineNumber, true);
+      throw new LDIFException(message, entryLineNumber, true);
     }
 
 
@@ -561,18 +584,19 @@ public class LDIFReader implements Closeable
       return DN.rootDN();
     }
 
-    String dn = readValue(line, colonPos, lines);
-    return decodeDN(dn, lines, line);
+    String dn = readValue(line, colonPos, lines, entryLineNumber);
+    return decodeDN(dn, lines, line, entryLineNumber);
   }
 
-  private String readValue(StringBuilder line, int colonPos, List<StringBuilder> lines) throws LDIFException
+  private String readValue(StringBuilder line, int colonPos, List<StringBuilder> lines, long entryLineNumber)
+      throws LDIFException
   {
     if (line.charAt(colonPos + 1) == ':')
     {
       // The value is base64-encoded. Find the first non-blank character
       // and take the rest of the line, and base64-decode it.
       int pos = findFirstNonSpaceCharPosition(line, colonPos + 2);
-      return base64Decode(line.substring(pos), lines, line);
+      return base64Decode(line.substring(pos), lines, line, entryLineNumber);
     }
     else
     {
@@ -595,7 +619,7 @@ public class LDIFReader implements Closeable
   }
 
   private String base64Decode(String encodedStr, List<StringBuilder> lines,
-      StringBuilder line) throws LDIFException
+      StringBuilder line, long entryLineNumber) throws LDIFException
   {
     try
     {
@@ -613,14 +637,14 @@ public class LDIFReader implements Closeable
       }
 
       LocalizableMessage message = ERR_LDIF_COULD_NOT_BASE64_DECODE_DN.get(
-          lastEntryLineNumber, line, stackTrace);
+          entryLineNumber, line, stackTrace);
       logToRejectWriter(lines, message);
-      throw new LDIFException(message, lastEntryLineNumber, true, e);
+      throw new LDIFException(message, entryLineNumber, true, e);
     }
   }
 
   private DN decodeDN(String dnString, List<StringBuilder> lines,
-      StringBuilder line) throws LDIFException
+      StringBuilder line, long entryLineNumber) throws LDIFException
   {
     try
     {
@@ -629,9 +653,9 @@ public class LDIFReader implements Closeable
     catch (Exception e)
     {
       logger.trace("DN decode failed for: ", dnString, e);
-      LocalizableMessage message = ERR_LDIF_INVALID_DN.get(lastEntryLineNumber, line, getExceptionMessage(e));
+      LocalizableMessage message = ERR_LDIF_INVALID_DN.get(entryLineNumber, line, getExceptionMessage(e));
       logToRejectWriter(lines, message);
-      throw new LDIFException(message, lastEntryLineNumber, true, e);
+      throw new LDIFException(message, entryLineNumber, true, e);
     }
   }
 
@@ -686,7 +710,7 @@ public class LDIFReader implements Closeable
       throw new LDIFException(message, lastEntryLineNumber, false );
     }
 
-    return readValue(line, colonPos, lines);
+    return readValue(line, colonPos, lines, lastEntryLineNumber);
   }
 
   /**
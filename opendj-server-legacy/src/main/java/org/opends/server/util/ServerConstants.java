@@ -2885,6 +2885,17 @@ public final class ServerConstants
 
 
 
+  /**
+   * The name of the system property that can be used to specify the number of
+   * stripes of the server lock table.  When set to a positive value, DNs are
+   * hashed onto a fixed array of lock stripes instead of being allocated a lock
+   * each.
+   */
+  public static final String PROPERTY_LOCK_MANAGER_STRIPES =
+       "org.opends.server.LockManagerStripes";
+
+
+
   /**
    * The name of the system property that can be used to determine whether the
    * server should maintain an archive of previous configurations.  If this is
@@ -32,7 +32,6 @@ import org.opends.server.core.BackendConfigManager;
 import org.opends.server.core.DeleteOperation;
 import org.opends.server.core.DeleteOperationWrapper;
 import org.opends.server.core.DirectoryServer;
-import org.opends.server.core.PersistentSearch;
 import org.opends.server.types.CanceledOperationException;
 import org.opends.server.types.Control;
 import org.forgerock.opendj.ldap.DN;
@@ -166,10 +165,7 @@ public class LocalBackendDeleteOperation
         @Override
         public void run()
         {
-          for (PersistentSearch psearch : backend.getPersistentSearches())
-          {
-            psearch.processDelete(entry);
-          }
+          backend.getPersistentSearchNotifier().processDelete(entry);
         }
       });
     }
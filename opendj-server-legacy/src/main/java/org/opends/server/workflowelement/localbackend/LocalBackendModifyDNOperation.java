@@ -41,7 +41,6 @@ import org.opends.server.core.BackendConfigManager;
 import org.opends.server.core.DirectoryServer;
 import org.opends.server.core.ModifyDNOperation;
 import org.opends.server.core.ModifyDNOperationWrapper;
-import org.opends.server.core.PersistentSearch;
 import org.opends.server.types.Attribute;
 import org.opends.server.types.Attributes;
 import org.opends.server.types.CanceledOperationException;
@@ -206,10 +205,7 @@ public class LocalBackendModifyDNOperation
         @Override
         public void run()
         {
-          for (PersistentSearch psearch : backend.getPersistentSearches())
-          {
-            psearch.processModifyDN(newEntry, currentEntry.getName());
-          }
+          backend.getPersistentSearchNotifier().processModifyDN(newEntry, currentEntry.getName());
         }
       });
     }
@@ -291,32 +287,14 @@ public class LocalBackendModifyDNOperation
     checkIfCanceled(false);
 
     /*
-     * Acquire subtree write locks for the current and new DN. Be careful to avoid deadlocks by
-     * taking the locks in a well defined order.
+     * Acquire subtree write locks for the current and new DN together, which lets the lock manager
+     * take them in an order which cannot deadlock.
      */
-    DNLock currentLock = null;
-    DNLock newLock = null;
+    DNLock lock = null;
     try
     {
-      if (entryDN.compareTo(newDN) < 0)
-      {
-        currentLock = DirectoryServer.getLockManager().tryWriteLockSubtree(entryDN);
-        newLock = DirectoryServer.getLockManager().tryWriteLockSubtree(newDN);
-      }
-      else
-      {
-        newLock = DirectoryServer.getLockManager().tryWriteLockSubtree(newDN);
-        currentLock = DirectoryServer.getLockManager().tryWriteLockSubtree(entryDN);
-      }
-
-      if (currentLock == null)
-      {
-        setResultCode(ResultCode.BUSY);
-        appendErrorMessage(ERR_MODDN_CANNOT_LOCK_CURRENT_DN.get(entryDN));
-        return;
-      }
-
-      if (newLock == null)
+      lock = DirectoryServer.getLockManager().tryWriteLockSubtrees(entryDN, newDN);
+      if (lock == null)
       {
         setResultCode(ResultCode.BUSY);
         appendErrorMessage(ERR_MODDN_CANNOT_LOCK_NEW_DN.get(entryDN, newDN));
@@ -461,13 +439,9 @@ public class LocalBackendModifyDNOperation
     }
     finally
     {
-      if (currentLock != null)
-      {
-        currentLock.unlock();
-      }
-      if (newLock != null)
+      if (lock != null)
       {
-        newLock.unlock();
+        lock.unlock();
       }
       processSynchPostOperationPlugins();
     }
@@ -42,11 +42,13 @@ import org.forgerock.opendj.server.config.meta.BackendVLVIndexCfgDefn.Scope;
 import org.forgerock.opendj.server.config.server.BackendVLVIndexCfg;
 import org.forgerock.opendj.server.config.server.PDBBackendCfg;
 import org.opends.server.backends.pdb.PDBBackend;
+import org.opends.server.controls.PagedResultsControl;
 import org.opends.server.controls.ServerSideSortRequestControl;
 import org.opends.server.controls.ServerSideSortResponseControl;
 import org.opends.server.controls.VLVRequestControl;
 import org.opends.server.controls.VLVResponseControl;
 import org.opends.server.core.AddOperation;
+import org.opends.server.core.DeleteOperation;
 import org.opends.server.core.DirectoryServer;
 import org.opends.server.protocols.internal.InternalSearchOperation;
 import org.opends.server.protocols.internal.SearchRequest;
@@ -562,6 +564,45 @@ public class ControlsTestCase extends DirectoryServerTestCase
     vlvByOffset(sortOrder, beforeCount, afterCount, offset, expectedOrder);
   }
 
+  @Test
+  public void unindexedSortedPagesShouldSkipEntriesWhichAreNotReturned() throws Exception
+  {
+    // Sorted before all the users, but not returned as the search does not request subentries
+    final Entry subentry = makeEntry(
+        "dn: cn=Aardvark," + BACKEND_BASE_DN,
+        "objectClass: top",
+        "objectClass: subentry",
+        "objectClass: extensibleObject",
+        "cn: Aardvark",
+        "sn: Aardvark",
+        "subtreeSpecification: {}");
+    backend.addEntry(subentry, mock(AddOperation.class));
+    try
+    {
+      final List<DN> dns = new ArrayList<>();
+      ByteString cookie = ByteString.empty();
+      do
+      {
+        final SearchRequest request =
+            newSearchRequest(BACKEND_BASE_DN, SearchScope.WHOLE_SUBTREE, "(sn=*)").addControl(
+                new ServerSideSortRequestControl(mangleSortOrder(SORT_ORDER_3))).addControl(
+                new PagedResultsControl(true, 2, cookie));
+        final InternalSearchOperation internalSearch = getRootConnection().processSearch(request);
+        assertThat(internalSearch.getResultCode()).isEqualTo(ResultCode.SUCCESS);
+        assertThat(internalSearch.getSearchEntries().size()).isLessThanOrEqualTo(2);
+        dns.addAll(getDNs(internalSearch.getSearchEntries()));
+        cookie = getPagedResultsControl(internalSearch.getResponseControls()).getCookie();
+      }
+      while (cookie.length() != 0);
+
+      assertThat(dns).isEqualTo(getDNs(USERS_BY_SORT_ORDER_3));
+    }
+    finally
+    {
+      backend.deleteEntry(subentry.getName(), mock(DeleteOperation.class));
+    }
+  }
+
   @AfterClass
   public void afterClass() throws Exception
   {
@@ -679,6 +720,24 @@ public class ControlsTestCase extends DirectoryServerTestCase
     return null;
   }
 
+  private PagedResultsControl getPagedResultsControl(final List<Control> responseControls)
+      throws DirectoryException
+  {
+    for (final Control c : responseControls)
+    {
+      if (c.getOID().equals(OID_PAGED_RESULTS_CONTROL))
+      {
+        if (c instanceof LDAPControl)
+        {
+          return PagedResultsControl.DECODER.decode(c.isCritical(), ((LDAPControl) c).getValue());
+        }
+        return (PagedResultsControl) c;
+      }
+    }
+    fail("Expected to find PagedResultsControl");
+    return null;
+  }
+
   private void vlvByAssertion(final String sortOrder, final int beforeCount, final int afterCount,
       final String assertion, final List<Integer> expectedOrder, final int expectedPosition) throws Exception
   {
@@ -0,0 +1,160 @@
+/*
+ * The contents of this file are subject to the terms of the Common Development and
+ * Distribution License (the License). You may not use this file except in compliance with the
+ * License.
+ *
+ * You can obtain a copy of the License at legal/CDDLv1.0.txt. See the License for the
+ * specific language governing permission and limitations under the License.
+ *
+ * When distributing Covered Software, include this CDDL Header Notice in each file and include
+ * the License file at legal/CDDLv1.0.txt. If applicable, add the following below the CDDL
+ * Header, with the fields enclosed by brackets [] replaced by your own identifying
+ * information: "Portions Copyright [year] [name of copyright owner]".
+ *
+ * Copyright 2026 ForgeRock AS.
+ */
+package org.opends.server.backends.pluggable;
+
+import static org.assertj.core.api.Assertions.*;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+
+import org.forgerock.opendj.ldap.ByteStringBuilder;
+import org.opends.server.DirectoryServerTestCase;
+import org.testng.annotations.DataProvider;
+import org.testng.annotations.Test;
+
+@SuppressWarnings("javadoc")
+@Test(groups = { "precommit", "pluggablebackend", "unit" }, sequential=true)
+public class EntryCompressionCodecTest extends DirectoryServerTestCase
+{
+  @DataProvider
+  public Object[][] codecs()
+  {
+    return new Object[][] { { EntryCompressionCodec.DEFLATE }, { EntryCompressionCodec.LZ } };
+  }
+
+  @Test(dataProvider = "codecs")
+  public void testRoundTripWithoutDictionary(EntryCompressionCodec codec) throws Exception
+  {
+    for (byte[] sample : newSamples(50))
+    {
+      assertRoundTrip(codec, sample, null);
+    }
+    assertRoundTrip(codec, new byte[0], null);
+    assertRoundTrip(codec, new byte[] { 42 }, null);
+    assertRoundTrip(codec, randomBytes(new Random(0), 70000), null);
+    assertRoundTrip(codec, new byte[70000], null);
+  }
+
+  @Test(dataProvider = "codecs")
+  public void testRoundTripWithDictionary(EntryCompressionCodec codec) throws Exception
+  {
+    final CompressionDictionary dictionary = trainDictionary(newSamples(500));
+    for (byte[] sample : newSamples(50))
+    {
+      assertRoundTrip(codec, sample, dictionary);
+    }
+    assertRoundTrip(codec, new byte[0], dictionary);
+    assertRoundTrip(codec, randomBytes(new Random(0), 70000), dictionary);
+  }
+
+  @Test(dataProvider = "codecs")
+  public void testDictionaryImprovesCompression(EntryCompressionCodec codec) throws Exception
+  {
+    final CompressionDictionary dictionary = trainDictionary(newSamples(500));
+    long withoutDictionary = 0;
+    long withDictionary = 0;
+    for (byte[] sample : newSamples(100))
+    {
+      withoutDictionary += compress(codec, sample, null).length();
+      withDictionary += compress(codec, sample, dictionary).length();
+    }
+    assertThat(withDictionary).isLessThan(withoutDictionary / 2);
+  }
+
+  @Test(dataProvider = "codecs", expectedExceptions = IOException.class)
+  public void testDecompressWithoutDictionaryFails(EntryCompressionCodec codec) throws Exception
+  {
+    final CompressionDictionary dictionary = trainDictionary(newSamples(500));
+    final byte[] sample = newSamples(1).get(0);
+    final ByteStringBuilder compressed = compress(codec, sample, dictionary);
+    codec.decompress(compressed.getBackingArray(), 0, compressed.length(), null, new byte[sample.length]);
+  }
+
+  @Test(dataProvider = "codecs", expectedExceptions = IOException.class)
+  public void testDecompressTruncatedDataFails(EntryCompressionCodec codec) throws Exception
+  {
+    final byte[] sample = newSamples(1).get(0);
+    final ByteStringBuilder compressed = compress(codec, sample, null);
+    codec.decompress(compressed.getBackingArray(), 0, compressed.length() / 2, null, new byte[sample.length]);
+  }
+
+  @Test
+  public void testTrainerCompletesAfterSampleCount()
+  {
+    final CompressionDictionaryTrainer trainer = new CompressionDictionaryTrainer(10, 1024);
+    final List<byte[]> samples = newSamples(10);
+    for (int i = 0; i < samples.size(); i++)
+    {
+      assertThat(trainer.addSample(new ByteStringBuilder().appendBytes(samples.get(i)))).isEqualTo(i == 9);
+    }
+    final byte[] content = trainer.train();
+    assertThat(content.length).isGreaterThan(0).isLessThanOrEqualTo(1024);
+  }
+
+  private static CompressionDictionary trainDictionary(List<byte[]> samples)
+  {
+    final CompressionDictionaryTrainer trainer = new CompressionDictionaryTrainer(samples.size(), 8192);
+    for (byte[] sample : samples)
+    {
+      trainer.addSample(new ByteStringBuilder().appendBytes(sample));
+    }
+    return new CompressionDictionary(0, trainer.train());
+  }
+
+  private static void assertRoundTrip(EntryCompressionCodec codec, byte[] data, CompressionDictionary dictionary)
+      throws IOException
+  {
+    final ByteStringBuilder compressed = compress(codec, data, dictionary);
+    final byte[] decompressed = new byte[data.length];
+    codec.decompress(compressed.getBackingArray(), 0, compressed.length(), dictionary, decompressed);
+    assertThat(decompressed).isEqualTo(data);
+  }
+
+  private static ByteStringBuilder compress(EntryCompressionCodec codec, byte[] data,
+      CompressionDictionary dictionary) throws IOException
+  {
+    final ByteStringBuilder compressed = new ByteStringBuilder();
+    codec.compress(data, data.length, dictionary, compressed);
+    return compressed;
+  }
+
+  /** Generates LDIF like samples sharing most of their structure, as real entries do. */
+  private static List<byte[]> newSamples(int count)
+  {
+    final Random random = new Random(count);
+    final List<byte[]> samples = new ArrayList<>(count);
+    for (int i = 0; i < count; i++)
+    {
+      final int uid = random.nextInt(1000000);
+      final String sample = "dn: uid=user." + uid + ",ou=People,dc=example,dc=com\n"
+          + "objectClass: top\nobjectClass: person\nobjectClass: organizationalPerson\nobjectClass: inetOrgPerson\n"
+          + "uid: user." + uid + "\ncn: User " + uid + "\nsn: " + Long.toString(random.nextLong(), 36) + "\n"
+          + "mail: user." + uid + "@example.com\ntelephoneNumber: +1 " + random.nextInt(100000000) + "\n"
+          + "description: This is the description for User " + uid + ".\n";
+      samples.add(sample.getBytes());
+    }
+    return samples;
+  }
+
+  private static byte[] randomBytes(Random random, int length)
+  {
+    final byte[] bytes = new byte[length];
+    random.nextBytes(bytes);
+    return bytes;
+  }
+}
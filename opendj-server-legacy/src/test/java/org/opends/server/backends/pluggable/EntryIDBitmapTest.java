@@ -0,0 +1,154 @@
+/*
+ * The contents of this file are subject to the terms of the Common Development and
+ * Distribution License (the License). You may not use this file except in compliance with the
+ * License.
+ *
+ * You can obtain a copy of the License at legal/CDDLv1.0.txt. See the License for the
+ * specific language governing permission and limitations under the License.
+ *
+ * When distributing Covered Software, include this CDDL Header Notice in each file and include
+ * the License file at legal/CDDLv1.0.txt. If applicable, add the following below the CDDL
+ * Header, with the fields enclosed by brackets [] replaced by your own identifying
+ * information: "Portions Copyright [year] [name of copyright owner]".
+ *
+ * Copyright 2026 ForgeRock AS.
+ */
+package org.opends.server.backends.pluggable;
+
+import static org.assertj.core.api.Assertions.*;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+import java.util.TreeSet;
+
+import org.forgerock.opendj.ldap.ByteString;
+import org.forgerock.opendj.ldap.ByteStringBuilder;
+import org.opends.server.DirectoryServerTestCase;
+import org.testng.annotations.DataProvider;
+import org.testng.annotations.Test;
+
+@SuppressWarnings("javadoc")
+@Test(groups = { "precommit", "pluggablebackend", "unit" }, sequential=true)
+public class EntryIDBitmapTest extends DirectoryServerTestCase
+{
+  @DataProvider
+  public Object[][] idRanges()
+  {
+    // Sparse and dense chunks, within a single chunk and across many of them
+    return new Object[][] {
+      { 100L, 50 }, { 70000L, 3000 }, { 70000L, 50000 }, { 1L << 20, 20000 }, { 1L << 40, 5000 }
+    };
+  }
+
+  @Test(dataProvider = "idRanges")
+  public void testSetAlgebra(long range, int nbIDs)
+  {
+    final Random random = new Random(range);
+    final TreeSet<Long> ids1 = randomIDs(random, range, nbIDs);
+    final TreeSet<Long> ids2 = randomIDs(random, range, nbIDs);
+    final EntryIDBitmap bitmap1 = EntryIDBitmap.valueOf(toArray(ids1));
+    final EntryIDBitmap bitmap2 = EntryIDBitmap.valueOf(toArray(ids2));
+
+    assertBitmapEquals(bitmap1, ids1);
+    assertBitmapEquals(bitmap2, ids2);
+
+    final TreeSet<Long> intersection = new TreeSet<>(ids1);
+    intersection.retainAll(ids2);
+    assertBitmapEquals(EntryIDBitmap.and(bitmap1, bitmap2), intersection);
+
+    final TreeSet<Long> union = new TreeSet<>(ids1);
+    union.addAll(ids2);
+    assertBitmapEquals(EntryIDBitmap.or(bitmap1, bitmap2), union);
+
+    final TreeSet<Long> difference = new TreeSet<>(ids1);
+    difference.removeAll(ids2);
+    assertBitmapEquals(EntryIDBitmap.andNot(bitmap1, bitmap2), difference);
+
+    // Operands must not have been modified
+    assertBitmapEquals(bitmap1, ids1);
+    assertBitmapEquals(bitmap2, ids2);
+  }
+
+  @Test(dataProvider = "idRanges")
+  public void testAddRemoveContains(long range, int nbIDs)
+  {
+    final Random random = new Random(range);
+    final EntryIDBitmap bitmap = new EntryIDBitmap();
+    final TreeSet<Long> expected = new TreeSet<>();
+    for (int i = 0; i < nbIDs * 2; i++)
+    {
+      final long id = (long) (random.nextDouble() * range);
+      if (random.nextInt(3) != 0)
+      {
+        assertThat(bitmap.add(id)).isEqualTo(expected.add(id));
+      }
+      else
+      {
+        assertThat(bitmap.remove(id)).isEqualTo(expected.remove(id));
+      }
+      assertThat(bitmap.contains(id)).isEqualTo(expected.contains(id));
+    }
+    assertBitmapEquals(bitmap, expected);
+  }
+
+  @Test
+  public void testFullChunkIsSerializedCompactly()
+  {
+    final long[] ids = new long[1 << 16];
+    for (int i = 0; i < ids.length; i++)
+    {
+      ids[i] = (1 << 16) + i;
+    }
+    final EntryIDBitmap bitmap = EntryIDBitmap.valueOf(ids);
+    assertThat(bitmap.getSerializedSize()).isLessThan(8);
+    assertThat(readBack(bitmap).toArray()).isEqualTo(ids);
+  }
+
+  private static void assertBitmapEquals(EntryIDBitmap bitmap, TreeSet<Long> expected)
+  {
+    assertThat(bitmap.cardinality()).isEqualTo(expected.size());
+    assertThat(bitmap.toArray()).isEqualTo(toArray(expected));
+    if (!expected.isEmpty())
+    {
+      assertThat(bitmap.first()).isEqualTo(expected.first());
+      assertThat(bitmap.last()).isEqualTo(expected.last());
+    }
+
+    final List<Long> iterated = new ArrayList<>();
+    for (EntryID id : bitmap)
+    {
+      iterated.add(id.longValue());
+    }
+    assertThat(iterated).containsExactlyElementsOf(expected);
+    assertThat(readBack(bitmap).toArray()).isEqualTo(toArray(expected));
+  }
+
+  private static EntryIDBitmap readBack(EntryIDBitmap bitmap)
+  {
+    final ByteString serialized = bitmap.writeTo(new ByteStringBuilder()).toByteString();
+    assertThat(serialized.length()).isEqualTo(bitmap.getSerializedSize());
+    return EntryIDBitmap.readFrom(serialized.asReader());
+  }
+
+  private static TreeSet<Long> randomIDs(Random random, long range, int nbIDs)
+  {
+    final TreeSet<Long> ids = new TreeSet<>();
+    for (int i = 0; i < nbIDs; i++)
+    {
+      ids.add((long) (random.nextDouble() * range));
+    }
+    return ids;
+  }
+
+  private static long[] toArray(TreeSet<Long> ids)
+  {
+    final long[] array = new long[ids.size()];
+    int i = 0;
+    for (long id : ids)
+    {
+      array[i++] = id;
+    }
+    return array;
+  }
+}
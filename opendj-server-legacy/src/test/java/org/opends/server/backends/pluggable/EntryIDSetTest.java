@@ -290,9 +290,95 @@ public class EntryIDSetTest extends DirectoryServerTestCase
     assertIdsEquals(retained, 1, 3, 5, 7, 9);
   }
 
+  @Test
+  public void testCodecV4EncodesLargeSetsAsBitmap()
+  {
+    final long[] ids = range(1000, 200000);
+    final ByteString v2 = CODEC_V2.encode(newDefinedSet(ids));
+    final ByteString v4 = CODEC_V4.encode(newDefinedSet(ids));
+    assertThat(v4.length()).isLessThan(v2.length() / 4);
+    assertIdsEquals(CODEC_V4.decode(KEY, v4), ids);
+
+    // Re-encoding a decoded bitmap set must give the same value
+    assertThat(CODEC_V4.encode(CODEC_V4.decode(KEY, v4))).isEqualTo(v4);
+  }
+
+  @Test
+  public void testCodecV4DecodesCodecV2()
+  {
+    final long[] ids = range(1000, 200000);
+    assertIdsEquals(CODEC_V4.decode(KEY, CODEC_V2.encode(newDefinedSet(ids))), ids);
+    assertIdsEquals(CODEC_V4.decode(KEY, CODEC_V2.encode(newDefinedSet(4, 6, 8))), 4, 6, 8);
+    assertThat(CODEC_V4.decode(KEY, CODEC_V2.encode(newUndefinedSet())).isDefined()).isFalse();
+  }
+
+  @Test
+  public void testCodecV4SparseSetsAreEncodedAsV2()
+  {
+    final long[] ids = new long[1000];
+    for (int i = 0; i < ids.length; i++)
+    {
+      ids[i] = i * 100000L;
+    }
+    assertThat(CODEC_V4.encode(newDefinedSet(ids))).isEqualTo(CODEC_V2.encode(newDefinedSet(ids)));
+  }
+
+  @Test
+  public void testBitmapSetAlgebra()
+  {
+    final EntryIDSet bitmapSet = newBitmapSet(range(0, 100000));
+
+    final EntryIDSet retained = newDefinedSet(5, 99999, 100000, 100001);
+    retained.retainAll(bitmapSet);
+    assertIdsEquals(retained, 5, 99999);
+    assertThat(retained.size()).isEqualTo(2);
+
+    final EntryIDSet bitmapRetained = newBitmapSet(range(0, 100000));
+    bitmapRetained.retainAll(newBitmapSet(range(50000, 150000)));
+    assertThat(bitmapRetained.size()).isEqualTo(50000);
+    assertIdsEquals(bitmapRetained, range(50000, 100000));
+
+    final EntryIDSet added = newDefinedSet(100000, 100001);
+    added.addAll(bitmapSet);
+    assertIdsEquals(added, range(0, 100002));
+    assertThat(added.size()).isEqualTo(100002);
+
+    final EntryIDSet removed = newDefinedSet(5, 6, 100000);
+    removed.removeAll(bitmapSet);
+    assertIdsEquals(removed, 100000);
+    assertThat(removed.size()).isEqualTo(1);
+
+    final EntryIDSet bitmapRemoved = newBitmapSet(range(0, 100000));
+    bitmapRemoved.removeAll(newDefinedSet(0, 1, 2));
+    assertThat(bitmapRemoved.contains(id(2))).isFalse();
+    assertThat(bitmapRemoved.contains(id(3))).isTrue();
+    assertThat(bitmapRemoved.size()).isEqualTo(99997);
+
+    final EntryIDSet union = newSetFromUnion(Arrays.asList(newDefinedSet(200000), bitmapSet));
+    assertThat(union.size()).isEqualTo(100001);
+    assertThat(union.contains(id(200000))).isTrue();
+  }
+
+  private static EntryIDSet newBitmapSet(long... ids)
+  {
+    final EntryIDSet set = CODEC_V4.decode(KEY, CODEC_V4.encode(newDefinedSet(ids)));
+    assertThat(set.toString()).isEqualTo("[COUNT:" + ids.length + "]");
+    return set;
+  }
+
+  private static long[] range(long fromInclusive, long toExclusive)
+  {
+    final long[] ids = new long[(int) (toExclusive - fromInclusive)];
+    for (int i = 0; i < ids.length; i++)
+    {
+      ids[i] = fromInclusive + i;
+    }
+    return ids;
+  }
+
   @DataProvider(name = "codecs")
   public static Object[][] codecs() {
-     return new Object[][] { { CODEC_V1 }, { CODEC_V2 } };
+     return new Object[][] { { CODEC_V1 }, { CODEC_V2 }, { CODEC_V4 } };
   }
 
 }
@@ -0,0 +1,210 @@
+/*
+ * The contents of this file are subject to the terms of the Common Development and
+ * Distribution License (the License). You may not use this file except in compliance with the
+ * License.
+ *
+ * You can obtain a copy of the License at legal/CDDLv1.0.txt. See the License for the
+ * specific language governing permission and limitations under the License.
+ *
+ * When distributing Covered Software, include this CDDL Header Notice in each file and include
+ * the License file at legal/CDDLv1.0.txt. If applicable, add the following below the CDDL
+ * Header, with the fields enclosed by brackets [] replaced by your own identifying
+ * information: "Portions Copyright [year] [name of copyright owner]".
+ *
+ * Copyright 2026 ForgeRock AS.
+ */
+package org.opends.server.backends.pluggable;
+
+import static org.assertj.core.api.Assertions.*;
+
+import java.io.File;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import java.util.Random;
+
+import org.forgerock.opendj.ldap.ByteString;
+import org.forgerock.opendj.ldap.ByteStringBuilder;
+import org.opends.server.DirectoryServerTestCase;
+import org.opends.server.TestCaseUtils;
+import org.opends.server.backends.pluggable.EntryIDSorter.SortBuffer;
+import org.opends.server.backends.pluggable.EntryIDSorter.SortedKeys;
+import org.opends.server.util.StaticUtils;
+import org.testng.annotations.AfterClass;
+import org.testng.annotations.BeforeClass;
+import org.testng.annotations.DataProvider;
+import org.testng.annotations.Test;
+
+@SuppressWarnings("javadoc")
+@Test(groups = { "precommit", "pluggablebackend", "unit" }, sequential=true)
+public class EntryIDSorterTest extends DirectoryServerTestCase
+{
+  private static final int NB_KEYS = 10000;
+  private static final long NO_SPILL = 64 * 1024 * 1024;
+  private static final long SPILL = 16 * 1024;
+  /** Spills runs of about 50 keys, more than can be merged at once. */
+  private static final long MANY_RUNS = 4 * 1024;
+  /** Holds the minimum share of two sorts, but not all their keys. */
+  private static final long SHARED = 160 * 1024;
+
+  /** Keys made of a random sort value followed by the entry ID, in random order. */
+  private final List<ByteString> keys = new ArrayList<>();
+  /** The entry IDs in the order of their keys. */
+  private final long[] sortedEntryIDs = new long[NB_KEYS];
+  private File tempDir;
+
+  public EntryIDSorterTest()
+  {
+    final Random random = new Random(0);
+    for (int i = 0; i < NB_KEYS; i++)
+    {
+      keys.add(new ByteStringBuilder().appendInt(random.nextInt(100)).appendLong(i + 1).toByteString());
+    }
+    final List<ByteString> sortedKeys = new ArrayList<>(keys);
+    Collections.sort(sortedKeys);
+    for (int i = 0; i < NB_KEYS; i++)
+    {
+      sortedEntryIDs[i] = EntryIDSorter.toEntryID(sortedKeys.get(i));
+    }
+  }
+
+  @BeforeClass
+  public void setUp() throws Exception
+  {
+    tempDir = TestCaseUtils.createTemporaryDirectory("entryidsorter");
+  }
+
+  @AfterClass
+  public void tearDown()
+  {
+    StaticUtils.recursiveDelete(tempDir);
+  }
+
+  @DataProvider
+  public Object[][] sorts()
+  {
+    return new Object[][] {
+      { 0, NO_SPILL, false },
+      { 0, SPILL, true },
+      { 1, NO_SPILL, false },
+      { 51, NO_SPILL, false },
+      { 51, SPILL, false },
+      { 5000, SPILL, true },
+      { 0, MANY_RUNS, true },
+      { 5000, MANY_RUNS, true },
+      { NB_KEYS + 1, NO_SPILL, false },
+    };
+  }
+
+  @Test(dataProvider = "sorts")
+  public void testSort(int maxKeys, long memorySize, boolean expectSpill) throws Exception
+  {
+    final EntryIDSorter sorter = new EntryIDSorter(tempDir, memorySize);
+    final long[] entryIDs;
+    try (SortBuffer sortBuffer = sorter.newSortBuffer(maxKeys))
+    {
+      for (ByteString key : keys)
+      {
+        sortBuffer.add(key);
+      }
+      assertThat(sortBuffer.size()).isEqualTo(NB_KEYS);
+      entryIDs = sortBuffer.toEntryIDs();
+    }
+
+    final int expectedLength = maxKeys > 0 ? Math.min(maxKeys, NB_KEYS) : NB_KEYS;
+    assertThat(entryIDs).containsExactly(Arrays.copyOf(sortedEntryIDs, expectedLength));
+    assertThat(sorter.getSortCount()).isEqualTo(1);
+    assertThat(sorter.getTopKeysSortCount()).isEqualTo(maxKeys > 0 ? 1 : 0);
+    assertThat(sorter.getSpilledSortCount()).isEqualTo(expectSpill ? 1 : 0);
+    assertThat(sorter.getSpillFileCount() > 0).isEqualTo(expectSpill);
+    assertThat(sorter.getMemoryUsed()).isZero();
+    assertThat(tempDir.list()).isNullOrEmpty();
+  }
+
+  @Test
+  public void testConcurrentSortsShareTheMemoryBudget() throws Exception
+  {
+    final EntryIDSorter sorter = new EntryIDSorter(tempDir, SHARED);
+    try (SortBuffer sortBuffer1 = sorter.newSortBuffer(0);
+        SortBuffer sortBuffer2 = sorter.newSortBuffer(0))
+    {
+      // Each sort fits in the memory budget, but not both of them
+      for (int i = 0; i < 1500; i++)
+      {
+        sortBuffer1.add(keys.get(i));
+        sortBuffer2.add(keys.get(NB_KEYS - 1 - i));
+        assertThat(sorter.getMemoryUsed()).isLessThanOrEqualTo(SHARED);
+      }
+      assertThat(sorter.getSpilledSortCount()).isGreaterThan(0);
+      // Sorts keep their minimum share of the memory, so they do not spill a file per key
+      assertThat(sorter.getSpilledKeyCount() / sorter.getSpillFileCount()).isGreaterThan(500);
+      assertThat(tempDir.list()).isNotEmpty();
+    }
+    assertThat(sorter.getMemoryUsed()).isZero();
+    assertThat(tempDir.list()).isNullOrEmpty();
+  }
+
+  @Test
+  public void testSortedKeysAreMergedFromSpillFiles() throws Exception
+  {
+    final EntryIDSorter sorter = new EntryIDSorter(tempDir, SPILL);
+    try (SortBuffer sortBuffer = sorter.newSortBuffer(0))
+    {
+      for (ByteString key : keys)
+      {
+        sortBuffer.add(key);
+      }
+
+      ByteString previousKey = null;
+      int nbKeys = 0;
+      try (SortedKeys sortedKeys = sortBuffer.openSortedKeys())
+      {
+        while (sortedKeys.next())
+        {
+          if (previousKey != null)
+          {
+            assertThat(sortedKeys.getKey()).isGreaterThan(previousKey);
+          }
+          previousKey = sortedKeys.getKey();
+          nbKeys++;
+        }
+      }
+      assertThat(nbKeys).isEqualTo(NB_KEYS);
+    }
+    assertThat(sorter.getSpilledKeyCount()).isGreaterThan(0);
+  }
+
+  @Test
+  public void testManyRunsAreMergedInSeveralPasses() throws Exception
+  {
+    final EntryIDSorter sorter = new EntryIDSorter(tempDir, MANY_RUNS);
+    final long[] entryIDs;
+    try (SortBuffer sortBuffer = sorter.newSortBuffer(0))
+    {
+      for (ByteString key : keys)
+      {
+        sortBuffer.add(key);
+      }
+      final long nbRuns = sorter.getSpillFileCount();
+      assertThat(nbRuns).isGreaterThan(EntryIDSorter.MAX_MERGE_FAN_IN);
+
+      entryIDs = sortBuffer.toEntryIDs();
+      // The intermediate runs
+      assertThat(sorter.getSpillFileCount()).isGreaterThan(nbRuns);
+      assertThat(tempDir.list().length).isLessThan(EntryIDSorter.MAX_MERGE_FAN_IN);
+    }
+    assertThat(entryIDs).containsExactly(sortedEntryIDs);
+    assertThat(tempDir.list()).isNullOrEmpty();
+  }
+
+  @Test
+  public void testEmptySort() throws Exception
+  {
+    final EntryIDSorter sorter = new EntryIDSorter(tempDir, NO_SPILL);
+    try (SortBuffer sortBuffer = sorter.newSortBuffer(10))
+    {
+      assertThat(sortBuffer.toEntryIDs()).isEmpty();
+    }
+  }
+}
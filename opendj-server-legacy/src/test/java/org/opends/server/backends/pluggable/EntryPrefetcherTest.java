@@ -0,0 +1,167 @@
+/*
+ * The contents of this file are subject to the terms of the Common Development and
+ * Distribution License (the License). You may not use this file except in compliance with the
+ * License.
+ *
+ * You can obtain a copy of the License at legal/CDDLv1.0.txt. See the License for the
+ * specific language governing permission and limitations under the License.
+ *
+ * When distributing Covered Software, include this CDDL Header Notice in each file and include
+ * the License file at legal/CDDLv1.0.txt. If applicable, add the following below the CDDL
+ * Header, with the fields enclosed by brackets [] replaced by your own identifying
+ * information: "Portions Copyright [year] [name of copyright owner]".
+ *
+ * Copyright 2026 ForgeRock AS.
+ */
+package org.opends.server.backends.pluggable;
+
+import static org.assertj.core.api.Assertions.*;
+import static org.mockito.Matchers.*;
+import static org.mockito.Mockito.*;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+
+import org.forgerock.opendj.ldap.ByteString;
+import org.mockito.invocation.InvocationOnMock;
+import org.mockito.stubbing.Answer;
+import org.opends.server.DirectoryServerTestCase;
+import org.opends.server.api.EntryCache;
+import org.opends.server.backends.pluggable.spi.ReadableTransaction;
+import org.opends.server.backends.pluggable.spi.TreeName;
+import org.opends.server.types.Entry;
+import org.testng.annotations.AfterClass;
+import org.testng.annotations.BeforeClass;
+import org.testng.annotations.BeforeMethod;
+import org.testng.annotations.Test;
+
+@SuppressWarnings("javadoc")
+@Test(groups = { "precommit", "pluggablebackend", "unit" }, sequential=true)
+public class EntryPrefetcherTest extends DirectoryServerTestCase
+{
+  private static final String BACKEND_ID = "userRoot";
+  private static final int NB_ENTRIES = 500;
+
+  private ExecutorService executor;
+  private ReadableTransaction txn;
+  private ID2Entry id2entry;
+  private EntryCache<?> entryCache;
+  private final Map<Long, Entry> entries = new HashMap<>();
+  /** The entry IDs read from the storage, in read order. */
+  private List<Long> readEntryIDs;
+
+  @BeforeClass
+  public void startExecutor()
+  {
+    executor = Executors.newFixedThreadPool(4);
+  }
+
+  @AfterClass
+  public void stopExecutor()
+  {
+    executor.shutdownNow();
+  }
+
+  @BeforeMethod
+  public void setUp() throws Exception
+  {
+    readEntryIDs = Collections.synchronizedList(new ArrayList<Long>());
+    for (long id = 1; id <= NB_ENTRIES; id++)
+    {
+      entries.put(id, mock(Entry.class));
+    }
+
+    txn = mock(ReadableTransaction.class);
+    when(txn.read(any(TreeName.class), any(ByteString.class))).thenAnswer(new Answer<ByteString>()
+    {
+      @Override
+      public ByteString answer(InvocationOnMock invocation) throws Throwable
+      {
+        final ByteString key = (ByteString) invocation.getArguments()[1];
+        readEntryIDs.add(key.toLong());
+        return key;
+      }
+    });
+
+    id2entry = mock(ID2Entry.class);
+    when(id2entry.decode(any(EntryID.class), any(ByteString.class))).thenAnswer(new Answer<Entry>()
+    {
+      @Override
+      public Entry answer(InvocationOnMock invocation) throws Throwable
+      {
+        return entries.get(((ByteString) invocation.getArguments()[1]).toLong());
+      }
+    });
+
+    entryCache = mock(EntryCache.class);
+  }
+
+  @Test
+  public void testEntriesAreReturnedInCandidateOrder() throws Exception
+  {
+    final long[] entryIDs = new long[NB_ENTRIES];
+    for (int i = 0; i < NB_ENTRIES; i++)
+    {
+      entryIDs[i] = NB_ENTRIES - i;
+    }
+
+    try (EntryPrefetcher prefetcher = newPrefetcher(entryIDs, 0))
+    {
+      for (long entryID : entryIDs)
+      {
+        assertThat(prefetcher.next()).isSameAs(entries.get(entryID));
+      }
+    }
+    assertThat(readEntryIDs).hasSize(NB_ENTRIES);
+    verify(entryCache, times(NB_ENTRIES)).putEntryIfAbsent(any(Entry.class), eq(BACKEND_ID), anyLong());
+  }
+
+  @Test
+  public void testBatchesAreReadInKeyOrder() throws Exception
+  {
+    final long[] entryIDs = { 8, 3, 5, 1, 7, 2, 6, 4 };
+    try (EntryPrefetcher prefetcher = newPrefetcher(entryIDs, 0))
+    {
+      prefetcher.next();
+      // The first batch holds all the entries
+      assertThat(readEntryIDs).containsExactly(1L, 2L, 3L, 4L, 5L, 6L, 7L, 8L);
+    }
+  }
+
+  @Test
+  public void testCachedEntriesAreNotRead() throws Exception
+  {
+    final Entry cachedEntry = mock(Entry.class);
+    doReturn(cachedEntry).when(entryCache).getEntry(BACKEND_ID, 2L);
+
+    try (EntryPrefetcher prefetcher = newPrefetcher(new long[] { 1, 2, 3 }, 0))
+    {
+      assertThat(prefetcher.next()).isSameAs(entries.get(1L));
+      assertThat(prefetcher.next()).isSameAs(cachedEntry);
+      assertThat(prefetcher.next()).isSameAs(entries.get(3L));
+    }
+    assertThat(readEntryIDs).containsExactly(1L, 3L);
+    verify(entryCache, never()).putEntryIfAbsent(same(cachedEntry), anyString(), anyLong());
+  }
+
+  @Test
+  public void testMissingEntries() throws Exception
+  {
+    try (EntryPrefetcher prefetcher = newPrefetcher(new long[] { 1, NB_ENTRIES + 1, 2 }, 1))
+    {
+      assertThat(prefetcher.next()).isNull();
+      assertThat(prefetcher.next()).isSameAs(entries.get(2L));
+    }
+    assertThat(readEntryIDs).containsExactly(2L, NB_ENTRIES + 1L);
+  }
+
+  private EntryPrefetcher newPrefetcher(long[] entryIDs, int startIndex)
+  {
+    return new EntryPrefetcher(txn, id2entry, entryCache, BACKEND_ID, executor, entryIDs, startIndex);
+  }
+}
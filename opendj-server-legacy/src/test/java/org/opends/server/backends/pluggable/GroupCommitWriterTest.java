@@ -0,0 +1,215 @@
+/*
+ * The contents of this file are subject to the terms of the Common Development and
+ * Distribution License (the License). You may not use this file except in compliance with the
+ * License.
+ *
+ * You can obtain a copy of the License at legal/CDDLv1.0.txt. See the License for the
+ * specific language governing permission and limitations under the License.
+ *
+ * When distributing Covered Software, include this CDDL Header Notice in each file and include
+ * the License file at legal/CDDLv1.0.txt. If applicable, add the following below the CDDL
+ * Header, with the fields enclosed by brackets [] replaced by your own identifying
+ * information: "Portions Copyright [year] [name of copyright owner]".
+ *
+ * Copyright 2026 ForgeRock AS.
+ */
+package org.opends.server.backends.pluggable;
+
+import static org.assertj.core.api.Assertions.*;
+import static org.mockito.Matchers.*;
+import static org.mockito.Mockito.*;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import org.mockito.invocation.InvocationOnMock;
+import org.mockito.stubbing.Answer;
+import org.opends.server.DirectoryServerTestCase;
+import org.opends.server.backends.pluggable.spi.Storage;
+import org.opends.server.backends.pluggable.spi.StorageRuntimeException;
+import org.opends.server.backends.pluggable.spi.WriteOperation;
+import org.opends.server.backends.pluggable.spi.WriteableTransaction;
+import org.testng.annotations.BeforeMethod;
+import org.testng.annotations.Test;
+
+@SuppressWarnings("javadoc")
+@Test(groups = { "precommit", "pluggablebackend", "unit" }, sequential=true)
+public class GroupCommitWriterTest extends DirectoryServerTestCase
+{
+  private static final int NB_THREADS = 16;
+  private static final int NB_WRITES_PER_THREAD = 50;
+
+  private Storage storage;
+  /** Writes of the transactions which have been committed, in commit order. */
+  private List<Integer> committedWrites;
+  private AtomicInteger nbTransactions;
+  private List<Integer> currentTransaction;
+  /** Whether the failing write throws an {@link Error} rather than an exception. */
+  private boolean failWithError;
+
+  @BeforeMethod
+  public void setUp() throws Exception
+  {
+    committedWrites = Collections.synchronizedList(new ArrayList<Integer>());
+    nbTransactions = new AtomicInteger();
+    failWithError = false;
+    storage = mock(Storage.class);
+    doAnswer(new Answer<Void>()
+    {
+      @Override
+      public Void answer(InvocationOnMock invocation) throws Throwable
+      {
+        // Transactions are serialized, like a storage would do for conflicting writes.
+        synchronized (GroupCommitWriterTest.this)
+        {
+          nbTransactions.incrementAndGet();
+          currentTransaction = new ArrayList<>();
+          ((WriteOperation) invocation.getArguments()[0]).run(mock(WriteableTransaction.class));
+          // Simulate the durable commit.
+          Thread.sleep(2);
+          committedWrites.addAll(currentTransaction);
+          return null;
+        }
+      }
+    }).when(storage).write(any(WriteOperation.class));
+  }
+
+  @Test
+  public void testConcurrentWritesAreGrouped() throws Exception
+  {
+    final GroupCommitWriter writer = new GroupCommitWriter(storage, 64);
+    assertThat(writer.isEnabled()).isTrue();
+
+    runConcurrentWrites(writer, -1);
+
+    assertThat(committedWrites).hasSize(NB_THREADS * NB_WRITES_PER_THREAD);
+    assertThat(committedWrites).doesNotHaveDuplicates();
+    assertThat(nbTransactions.get()).isLessThan(NB_THREADS * NB_WRITES_PER_THREAD);
+    assertThat(writer.getGroupsCommitted()).isGreaterThan(0);
+    assertThat(writer.getGroupsRolledBack()).isEqualTo(0);
+  }
+
+  @Test
+  public void testFailingWriteDoesNotFailTheOthers() throws Exception
+  {
+    final GroupCommitWriter writer = new GroupCommitWriter(storage, 64);
+    final int failingWrite = 7 * NB_WRITES_PER_THREAD + 3;
+
+    final List<Throwable> errors = runConcurrentWrites(writer, failingWrite);
+
+    assertThat(errors).hasSize(1);
+    assertThat(errors.get(0)).hasMessage("write " + failingWrite);
+    assertThat(committedWrites).hasSize(NB_THREADS * NB_WRITES_PER_THREAD - 1);
+    assertThat(committedWrites).doesNotHaveDuplicates();
+    assertThat(committedWrites).doesNotContain(failingWrite);
+  }
+
+  @Test
+  public void testWriteFailingWithAnErrorDoesNotBlockTheOthers() throws Exception
+  {
+    final GroupCommitWriter writer = new GroupCommitWriter(storage, 64);
+    final int failingWrite = 7 * NB_WRITES_PER_THREAD + 3;
+    failWithError = true;
+
+    final List<Throwable> errors = runConcurrentWrites(writer, failingWrite);
+
+    // The other writes of the group of the failing write are reported as failed, the next groups are committed
+    assertThat(errors).isNotEmpty();
+    for (Throwable error : errors)
+    {
+      if (error instanceof StorageRuntimeException)
+      {
+        error = error.getCause();
+      }
+      assertThat(error).isInstanceOf(Error.class).hasMessage("write " + failingWrite);
+    }
+    assertThat(committedWrites).hasSize(NB_THREADS * NB_WRITES_PER_THREAD - errors.size());
+    assertThat(committedWrites).doesNotHaveDuplicates();
+    assertThat(committedWrites).doesNotContain(failingWrite);
+  }
+
+  @Test
+  public void testDisabledWritesAreNotGrouped() throws Exception
+  {
+    final GroupCommitWriter writer = new GroupCommitWriter(storage, 1);
+    assertThat(writer.isEnabled()).isFalse();
+
+    runConcurrentWrites(writer, -1);
+
+    assertThat(committedWrites).hasSize(NB_THREADS * NB_WRITES_PER_THREAD);
+    assertThat(nbTransactions.get()).isEqualTo(NB_THREADS * NB_WRITES_PER_THREAD);
+    assertThat(writer.getGroupsCommitted()).isEqualTo(0);
+  }
+
+  /** Runs all the writes and returns the errors they reported. */
+  private List<Throwable> runConcurrentWrites(final GroupCommitWriter writer, final int failingWrite) throws Exception
+  {
+    final ExecutorService executor = Executors.newFixedThreadPool(NB_THREADS);
+    try
+    {
+      final List<Future<List<Throwable>>> futures = new ArrayList<>();
+      for (int i = 0; i < NB_THREADS; i++)
+      {
+        final int threadIndex = i;
+        futures.add(executor.submit(new Callable<List<Throwable>>()
+        {
+          @Override
+          public List<Throwable> call() throws Exception
+          {
+            final List<Throwable> errors = new ArrayList<>();
+            for (int j = 0; j < NB_WRITES_PER_THREAD; j++)
+            {
+              try
+              {
+                writer.write(newWrite(threadIndex * NB_WRITES_PER_THREAD + j, failingWrite));
+              }
+              catch (Exception | Error e)
+              {
+                errors.add(e);
+              }
+            }
+            return errors;
+          }
+        }));
+      }
+
+      final List<Throwable> errors = new ArrayList<>();
+      for (Future<List<Throwable>> future : futures)
+      {
+        errors.addAll(future.get(60, TimeUnit.SECONDS));
+      }
+      return errors;
+    }
+    finally
+    {
+      executor.shutdownNow();
+    }
+  }
+
+  private WriteOperation newWrite(final int writeNumber, final int failingWrite)
+  {
+    return new WriteOperation()
+    {
+      @Override
+      public void run(WriteableTransaction txn) throws Exception
+      {
+        if (writeNumber == failingWrite)
+        {
+          if (failWithError)
+          {
+            throw new Error("write " + writeNumber);
+          }
+          throw new Exception("write " + writeNumber);
+        }
+        currentTransaction.add(writeNumber);
+      }
+    };
+  }
+}
@@ -0,0 +1,334 @@
+/*
+ * The contents of this file are subject to the terms of the Common Development and
+ * Distribution License (the License). You may not use this file except in compliance with the
+ * License.
+ *
+ * You can obtain a copy of the License at legal/CDDLv1.0.txt. See the License for the
+ * specific language governing permission and limitations under the License.
+ *
+ * When distributing Covered Software, include this CDDL Header Notice in each file and include
+ * the License file at legal/CDDLv1.0.txt. If applicable, add the following below the CDDL
+ * Header, with the fields enclosed by brackets [] replaced by your own identifying
+ * information: "Portions Copyright [year] [name of copyright owner]".
+ *
+ * Copyright 2026 ForgeRock AS.
+ */
+package org.opends.server.backends.pluggable;
+
+import static org.assertj.core.api.Assertions.*;
+import static org.mockito.Mockito.*;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.zip.GZIPOutputStream;
+
+import org.forgerock.opendj.ldap.DN;
+import org.mockito.invocation.InvocationOnMock;
+import org.mockito.stubbing.Answer;
+import org.opends.server.DirectoryServerTestCase;
+import org.opends.server.TestCaseUtils;
+import org.opends.server.backends.pluggable.ImportLDIFReader.EntryInformation;
+import org.opends.server.types.LDIFImportConfig;
+import org.opends.server.util.LDIFException;
+import org.testng.annotations.AfterClass;
+import org.testng.annotations.BeforeClass;
+import org.testng.annotations.BeforeMethod;
+import org.testng.annotations.Test;
+
+@SuppressWarnings("javadoc")
+@Test(groups = { "precommit", "pluggablebackend" }, sequential = true)
+public class ImportLDIFReaderTest extends DirectoryServerTestCase
+{
+  private static final DN BASE_DN = DN.valueOf("dc=example,dc=com");
+  private static final int NB_THREADS = 8;
+
+  private ExecutorService executor;
+  private RootContainer rootContainer;
+  private Map<DN, EntryContainer> suffixesMap;
+
+  @BeforeClass
+  public void startServer() throws Exception
+  {
+    TestCaseUtils.startServer();
+    executor = Executors.newFixedThreadPool(NB_THREADS);
+  }
+
+  @AfterClass
+  public void stopExecutor()
+  {
+    executor.shutdownNow();
+  }
+
+  @BeforeMethod
+  public void setUp()
+  {
+    final AtomicLong nextEntryID = new AtomicLong();
+    rootContainer = mock(RootContainer.class);
+    when(rootContainer.getNextEntryID()).thenAnswer(new Answer<EntryID>()
+    {
+      @Override
+      public EntryID answer(InvocationOnMock invocation)
+      {
+        return new EntryID(nextEntryID.getAndIncrement());
+      }
+    });
+    suffixesMap = Collections.singletonMap(BASE_DN, mock(EntryContainer.class));
+  }
+
+  @Test(timeOut = 60000)
+  public void testChildrenImmediatelyFollowingTheirParents() throws Exception
+  {
+    final List<DN> dns = newTree(300);
+    final Map<DN, EntryID> imported = importLDIF(new ByteArrayInputStream(toLDIF(dns).getBytes()), false);
+
+    assertThat(imported.keySet()).isEqualTo(new HashSet<>(dns));
+    assertEntryIDsFollowLDIFOrder(dns, imported);
+  }
+
+  @Test(timeOut = 60000)
+  public void testGzipInput() throws Exception
+  {
+    final List<DN> dns = newTree(300);
+    final ByteArrayOutputStream compressed = new ByteArrayOutputStream();
+    try (OutputStream out = new GZIPOutputStream(compressed))
+    {
+      out.write(toLDIF(dns).getBytes());
+    }
+
+    final Map<DN, EntryID> imported = importLDIF(new ByteArrayInputStream(compressed.toByteArray()), true);
+
+    assertThat(imported.keySet()).isEqualTo(new HashSet<>(dns));
+    assertEntryIDsFollowLDIFOrder(dns, imported);
+  }
+
+  @Test(timeOut = 60000)
+  public void testDuplicateDNsAcrossChunksAreRejected() throws Exception
+  {
+    final List<DN> dns = new ArrayList<>();
+    dns.add(BASE_DN);
+    for (int i = 0; i < 200; i++)
+    {
+      dns.add(DN.valueOf("ou=ou" + i + "," + BASE_DN));
+    }
+    final List<DN> ldifDNs = new ArrayList<>(dns);
+    // the chunks of records hold 64 records: add duplicates within the same chunk and in later chunks
+    ldifDNs.add(10, DN.valueOf("ou=ou5," + BASE_DN));
+    ldifDNs.add(DN.valueOf("ou=ou5," + BASE_DN));
+    ldifDNs.add(DN.valueOf("ou=ou70," + BASE_DN));
+
+    final LDIFImportConfig importConfig = new LDIFImportConfig(new ByteArrayInputStream(toLDIF(ldifDNs).getBytes()));
+    final ImportLDIFReader reader = new ImportLDIFReader(importConfig, rootContainer);
+    try
+    {
+      // the first entries stay pending, as if they were still being imported when their duplicates are read
+      final List<DN> keptPending = Arrays.asList(DN.valueOf("ou=ou5," + BASE_DN), DN.valueOf("ou=ou70," + BASE_DN));
+      final Map<DN, EntryID> imported = new ConcurrentHashMap<>();
+      for (Future<Void> future : readConcurrently(reader, imported, keptPending))
+      {
+        future.get();
+      }
+
+      assertThat(imported.keySet()).isEqualTo(new HashSet<>(dns));
+      assertThat(reader.getEntriesIgnored()).isEqualTo(3);
+      assertEntryIDsFollowLDIFOrder(dns, imported);
+    }
+    finally
+    {
+      reader.close();
+    }
+  }
+
+  @Test(timeOut = 60000)
+  public void testLateParseErrorFailsAllImportThreads() throws Exception
+  {
+    final List<DN> dns = newTree(300);
+    // a record cannot start with a continuation line
+    final String ldif = toLDIF(dns) + " invalid: leading space\n\n";
+
+    final LDIFImportConfig importConfig = new LDIFImportConfig(new ByteArrayInputStream(ldif.getBytes()));
+    final ImportLDIFReader reader = new ImportLDIFReader(importConfig, rootContainer);
+    try
+    {
+      final Map<DN, EntryID> imported = new ConcurrentHashMap<>();
+      for (Future<Void> future : readConcurrently(reader, imported, Collections.<DN> emptyList()))
+      {
+        try
+        {
+          future.get();
+          failBecauseExceptionWasNotThrown(LDIFException.class);
+        }
+        catch (ExecutionException e)
+        {
+          assertThat(e.getCause()).isInstanceOf(LDIFException.class);
+        }
+      }
+      assertThat(imported.keySet()).isEqualTo(new HashSet<>(dns));
+    }
+    finally
+    {
+      reader.close();
+    }
+  }
+
+  @Test(timeOut = 60000)
+  public void testParseErrorIsReportedWhenItsChunkIsRegistered() throws Exception
+  {
+    final List<DN> dns = newTree(3);
+    final String ldif = toLDIF(dns) + " invalid: leading space\n\n";
+
+    final LDIFImportConfig importConfig = new LDIFImportConfig(new ByteArrayInputStream(ldif.getBytes()));
+    final ImportLDIFReader reader = new ImportLDIFReader(importConfig, rootContainer);
+    try
+    {
+      try
+      {
+        reader.readEntry(suffixesMap);
+        failBecauseExceptionWasNotThrown(LDIFException.class);
+      }
+      catch (LDIFException expected)
+      {
+        // the records read before the failure have been registered
+      }
+      final List<DN> read = new ArrayList<>();
+      try
+      {
+        EntryInformation entryInfo;
+        while ((entryInfo = reader.readEntry(suffixesMap)) != null)
+        {
+          read.add(entryInfo.getEntry().getName());
+        }
+        failBecauseExceptionWasNotThrown(LDIFException.class);
+      }
+      catch (LDIFException expected)
+      {
+        // reported again at the end of data
+      }
+      assertThat(read).isEqualTo(dns);
+    }
+    finally
+    {
+      reader.close();
+    }
+  }
+
+  /** Imports the LDIF with concurrent import threads, and returns the entry IDs of the imported entries. */
+  private Map<DN, EntryID> importLDIF(InputStream ldif, boolean isCompressed) throws Exception
+  {
+    final LDIFImportConfig importConfig = new LDIFImportConfig(ldif);
+    importConfig.setCompressed(isCompressed);
+    final ImportLDIFReader reader = new ImportLDIFReader(importConfig, rootContainer);
+    try
+    {
+      final Map<DN, EntryID> imported = new ConcurrentHashMap<>();
+      for (Future<Void> future : readConcurrently(reader, imported, Collections.<DN> emptyList()))
+      {
+        future.get();
+      }
+      assertThat(reader.getEntriesIgnored()).isEqualTo(0);
+      assertThat(reader.getEntriesRejected()).isEqualTo(0);
+      return imported;
+    }
+    finally
+    {
+      reader.close();
+    }
+  }
+
+  /**
+   * Reads the entries from several threads, each of them waiting for the parent of an entry to be
+   * imported before importing it, like the import threads do. The provided entries are not removed
+   * from the pending entries once imported.
+   */
+  private List<Future<Void>> readConcurrently(final ImportLDIFReader reader, final Map<DN, EntryID> imported,
+      final Collection<DN> keptPending)
+  {
+    final List<Future<Void>> futures = new ArrayList<>();
+    for (int i = 0; i < NB_THREADS; i++)
+    {
+      futures.add(executor.submit(new Callable<Void>()
+      {
+        @Override
+        public Void call() throws Exception
+        {
+          EntryInformation entryInfo;
+          while ((entryInfo = reader.readEntry(suffixesMap)) != null)
+          {
+            final DN dn = entryInfo.getEntry().getName();
+            if (!dn.equals(BASE_DN))
+            {
+              reader.waitIfPending(dn.parent());
+              assertThat(imported).as("parent of " + dn).containsKey(dn.parent());
+            }
+            assertThat(imported.put(dn, entryInfo.getEntryID())).as("entry ID of " + dn).isNull();
+            if (!keptPending.contains(dn))
+            {
+              reader.removePending(dn);
+            }
+          }
+          return null;
+        }
+      }));
+    }
+    return futures;
+  }
+
+  private void assertEntryIDsFollowLDIFOrder(List<DN> dns, Map<DN, EntryID> imported)
+  {
+    for (int i = 1; i < dns.size(); i++)
+    {
+      assertThat(imported.get(dns.get(i)).compareTo(imported.get(dns.get(i - 1))))
+          .as("entry ID of " + dns.get(i)).isPositive();
+    }
+  }
+
+  /** Returns the DNs of a tree where each entry immediately follows its parent, in LDIF order. */
+  private List<DN> newTree(int nbBranches)
+  {
+    final List<DN> dns = new ArrayList<>();
+    dns.add(BASE_DN);
+    for (int i = 0; i < nbBranches; i++)
+    {
+      final DN branch = DN.valueOf("ou=branch" + i + "," + BASE_DN);
+      final DN child = DN.valueOf("ou=child," + branch);
+      dns.add(branch);
+      dns.add(child);
+      dns.add(DN.valueOf("ou=grandchild," + child));
+    }
+    return dns;
+  }
+
+  private String toLDIF(List<DN> dns)
+  {
+    final StringBuilder ldif = new StringBuilder();
+    for (DN dn : dns)
+    {
+      ldif.append("dn: ").append(dn).append('\n');
+      if (dn.equals(BASE_DN))
+      {
+        ldif.append("objectClass: top\nobjectClass: domain\ndc: example\n\n");
+      }
+      else
+      {
+        ldif.append("objectClass: top\nobjectClass: organizationalUnit\nou: ")
+            .append(dn.rdn().getFirstAVA().getAttributeValue()).append("\n\n");
+      }
+    }
+    return ldif.toString();
+  }
+}
@@ -0,0 +1,125 @@
+/*
+ * The contents of this file are subject to the terms of the Common Development and
+ * Distribution License (the License). You may not use this file except in compliance with the
+ * License.
+ *
+ * You can obtain a copy of the License at legal/CDDLv1.0.txt. See the License for the
+ * specific language governing permission and limitations under the License.
+ *
+ * When distributing Covered Software, include this CDDL Header Notice in each file and include
+ * the License file at legal/CDDLv1.0.txt. If applicable, add the following below the CDDL
+ * Header, with the fields enclosed by brackets [] replaced by your own identifying
+ * information: "Portions Copyright [year] [name of copyright owner]".
+ *
+ * Copyright 2026 ForgeRock AS.
+ */
+package org.opends.server.backends.pluggable;
+
+import static org.assertj.core.api.Assertions.*;
+import static org.mockito.Mockito.*;
+import static org.opends.server.backends.pluggable.EntryIDSet.*;
+
+import org.forgerock.opendj.ldap.ByteString;
+import org.opends.server.DirectoryServerTestCase;
+import org.opends.server.backends.pluggable.IndexStatistics.Statistics;
+import org.opends.server.backends.pluggable.IndexStatistics.StatisticsBuilder;
+import org.opends.server.backends.pluggable.spi.Cursor;
+import org.opends.server.backends.pluggable.spi.ReadableTransaction;
+import org.testng.annotations.Test;
+
+@SuppressWarnings("javadoc")
+@Test(groups = { "precommit", "pluggablebackend", "unit" }, sequential=true)
+public class IndexStatisticsTest extends DirectoryServerTestCase
+{
+  private static final int NB_ENTRIES = 10000;
+
+  @Test
+  public void testUniformKeys()
+  {
+    final Statistics stats = newUniformStatistics();
+
+    assertThat(stats.getKeyCount()).isEqualTo(NB_ENTRIES);
+    assertThat(stats.getIdCount()).isEqualTo(NB_ENTRIES);
+    assertThat(stats.getBucketCount()).isBetween(1, 64);
+    assertThat(stats.estimateExactMatch(key(5000))).isEqualTo(1);
+    assertThat(stats.estimateRange(key(1000), key(2000))).isBetween(500L, 2000L);
+    assertThat(stats.estimateRange(key(9000), ByteString.empty())).isBetween(500L, 2000L);
+    assertThat(stats.estimateRange(ByteString.empty(), ByteString.empty())).isEqualTo(NB_ENTRIES);
+    assertThat(stats.estimateRange(key(NB_ENTRIES * 2), ByteString.empty())).isEqualTo(0);
+  }
+
+  @Test
+  public void testFrequentKeysDoNotSkewOtherKeys()
+  {
+    final StatisticsBuilder builder = new StatisticsBuilder(NB_ENTRIES);
+    for (int i = 0; i < NB_ENTRIES / 2; i++)
+    {
+      builder.add(key(i), i == 2500 ? newUndefinedSet() : newDefinedSet(i));
+    }
+    final Statistics stats = builder.build();
+
+    assertThat(stats.getIdCount()).isEqualTo(NB_ENTRIES + NB_ENTRIES / 2 - 1);
+    assertThat(stats.estimateExactMatch(key(2500))).isEqualTo(NB_ENTRIES);
+    assertThat(stats.estimateExactMatch(key(2499))).isEqualTo(1);
+    assertThat(stats.estimateExactMatch(key(100))).isEqualTo(1);
+  }
+
+  @Test
+  public void testEmptyIndex()
+  {
+    final Statistics stats = new StatisticsBuilder(0).build();
+
+    assertThat(stats.getBucketCount()).isEqualTo(0);
+    assertThat(stats.estimateExactMatch(key(1))).isEqualTo(0);
+    assertThat(stats.estimateRange(ByteString.empty(), ByteString.empty())).isEqualTo(0);
+  }
+
+  @Test
+  public void testEncodeDecode()
+  {
+    final Statistics stats = newUniformStatistics();
+
+    final Statistics decoded = Statistics.decode(stats.encode());
+
+    assertThat(decoded.getEntryCount()).isEqualTo(stats.getEntryCount());
+    assertThat(decoded.getKeyCount()).isEqualTo(stats.getKeyCount());
+    assertThat(decoded.getIdCount()).isEqualTo(stats.getIdCount());
+    assertThat(decoded.getBucketCount()).isEqualTo(stats.getBucketCount());
+    assertThat(decoded.estimateRange(key(1000), key(2000))).isEqualTo(stats.estimateRange(key(1000), key(2000)));
+  }
+
+  @Test(timeOut = 10000)
+  @SuppressWarnings("unchecked")
+  public void testGatherStopsWhenRootContainerIsClosed()
+  {
+    final ReadableTransaction txn = mock(ReadableTransaction.class);
+    final Cursor<ByteString, EntryIDSet> cursor = mock(Cursor.class);
+    when(cursor.next()).thenReturn(true);
+    when(cursor.getKey()).thenReturn(key(1));
+    when(cursor.getValue()).thenReturn(newDefinedSet(1));
+    final Index index = mock(Index.class);
+    when(index.openCursor(txn)).thenReturn(cursor);
+    final RootContainer rootContainer = mock(RootContainer.class);
+    when(rootContainer.isIndexStatisticsStopped()).thenReturn(false, false, true);
+
+    // The cursor never ends: the scan only stops because the root container is closed
+    assertThat(IndexStatistics.gather(txn, index, NB_ENTRIES, rootContainer)).isNull();
+    verify(rootContainer, times(3)).isIndexStatisticsStopped();
+    verify(cursor).close();
+  }
+
+  private static Statistics newUniformStatistics()
+  {
+    final StatisticsBuilder builder = new StatisticsBuilder(NB_ENTRIES);
+    for (int i = 0; i < NB_ENTRIES; i++)
+    {
+      builder.add(key(i), newDefinedSet(i));
+    }
+    return builder.build();
+  }
+
+  private static ByteString key(int i)
+  {
+    return ByteString.valueOfInt(i);
+  }
+}
@@ -12,6 +12,7 @@
  * information: "Portions Copyright [year] [name of copyright owner]".
  *
  * Copyright 2015-2016 ForgeRock AS.
+ * Portions Copyright 2026 ForgeRock AS.
  */
 package org.opends.server.backends.pluggable;
 
@@ -35,6 +36,13 @@ import java.util.HashSet;
 import java.util.List;
 import java.util.Map;
 import java.util.Set;
+import java.util.concurrent.Callable;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
 
 import org.forgerock.opendj.ldap.ByteString;
 import org.forgerock.opendj.ldap.ConditionResult;
@@ -58,7 +66,10 @@ import org.opends.server.api.LocalBackend.BackendOperation;
 import org.opends.server.backends.RebuildConfig;
 import org.opends.server.backends.RebuildConfig.RebuildMode;
 import org.opends.server.backends.VerifyConfig;
+import org.opends.server.backends.pluggable.AttributeIndex.MatchingRuleIndex;
+import org.opends.server.backends.pluggable.State.IndexFlag;
 import org.opends.server.backends.pluggable.spi.AccessMode;
+import org.opends.server.backends.pluggable.spi.Cursor;
 import org.opends.server.backends.pluggable.spi.ReadOnlyStorageException;
 import org.opends.server.backends.pluggable.spi.ReadOperation;
 import org.opends.server.backends.pluggable.spi.ReadableTransaction;
@@ -154,6 +165,7 @@ public abstract class PluggableBackendImplTestCase<C extends PluggableBackendCfg
     when(backendCfg.getBaseDN()).thenReturn(newTreeSet(testBaseDN));
     when(backendCfg.listBackendIndexes()).thenReturn(backendIndexes.keySet().toArray(new String[0]));
     when(backendCfg.listBackendVLVIndexes()).thenReturn(backendVlvIndexes);
+    when(backendCfg.getIndexFilterParallelism()).thenReturn(2);
 
     for (Map.Entry<String, IndexType[]> index : backendIndexes.entrySet())
     {
@@ -843,6 +855,44 @@ public abstract class PluggableBackendImplTestCase<C extends PluggableBackendCfg
     assertThat(runSearch(request, false)).hasSize(numberOfEntries);
   }
 
+  @DataProvider
+  protected Object[][] andSearchFilter()
+  {
+    return new Object[][] {
+      // @formatter:off
+      { "(&(sn=Atp*)(uid=user.1))", 1},
+      { "(&(sn=Atp*)(telephoneNumber=547*))", 1},
+      { "(&(sn=Atp*)(cn=*Aar*)(objectClass=person))", 2},
+      { "(&(sn=Ab*)(uid=user.1))", 0}
+      // @formatter:on
+    };
+  }
+
+  @Test(dataProvider = "andSearchFilter")
+  public void testFilterUsingAndSearch(final String filter, int numberOfEntries) throws Exception
+  {
+    SearchRequest request = newSearchRequest(testBaseDN, SearchScope.WHOLE_SUBTREE, filter);
+    assertThat(runSearch(request, false)).hasSize(numberOfEntries);
+  }
+
+  @Test(dataProvider = "andSearchFilter")
+  public void testFilterUsingAndSearchWithIndexStatistics(final String filter, int numberOfEntries) throws Exception
+  {
+    // The plan is evaluated concurrently, the index filter parallelism being 2
+    final IndexStatistics statistics =
+        backend.getRootContainer().getEntryContainers().iterator().next().getIndexStatistics();
+    statistics.setEnabled(true);
+    try
+    {
+      SearchRequest request = newSearchRequest(testBaseDN, SearchScope.WHOLE_SUBTREE, filter);
+      assertThat(runSearch(request, false)).hasSize(numberOfEntries);
+    }
+    finally
+    {
+      statistics.setEnabled(false);
+    }
+  }
+
   @Test
   public void testSearchIsConsideredUnindexedBasedOnLookThroughLimit() throws DirectoryException {
     final int nbEntries = topEntries.size() + entries.size() + workEntries.size();
@@ -1138,6 +1188,326 @@ public abstract class PluggableBackendImplTestCase<C extends PluggableBackendCfg
     assertThat(backend.verifyBackend(config)).isEqualTo(1);
   }
 
+  @Test
+  public void testRebuildIndexOnlineWithConcurrentUpdates() throws Exception
+  {
+    final List<String> rebuiltIndexes = Arrays.asList("sn", "telephoneNumber");
+    final int nbUpdaters = 4;
+    final AtomicBoolean stopUpdates = new AtomicBoolean();
+    final CountDownLatch updatesStarted = new CountDownLatch(nbUpdaters);
+    final List<List<DN>> addedDNs = new ArrayList<>();
+    final ExecutorService executor = Executors.newFixedThreadPool(nbUpdaters);
+    try
+    {
+      final List<Future<Void>> updaters = new ArrayList<>();
+      for (int i = 0; i < nbUpdaters; i++)
+      {
+        final List<DN> dns = Collections.synchronizedList(new ArrayList<DN>());
+        addedDNs.add(dns);
+        updaters.add(executor.submit(newUpdater(i, dns, updatesStarted, stopUpdates)));
+      }
+      assertTrue(updatesStarted.await(30, TimeUnit.SECONDS), "Updates did not start");
+
+      // Each rebuild moves the indexes to their other tree
+      for (int i = 0; i < 3; i++)
+      {
+        rebuildIndexesOnline(rebuiltIndexes);
+      }
+      stopUpdates.set(true);
+      for (Future<Void> updater : updaters)
+      {
+        updater.get();
+      }
+
+      final Map<String, Map<ByteString, List<EntryID>>> rebuiltOnline = readIndexes(rebuiltIndexes);
+      verifyIndexes(rebuiltIndexes);
+
+      RebuildConfig rebuildConf = new RebuildConfig();
+      rebuildConf.setBaseDN(testBaseDN);
+      rebuildConf.setRebuildMode(RebuildMode.USER_DEFINED);
+      for (String indexName : rebuiltIndexes)
+      {
+        rebuildConf.addRebuildIndex(indexName);
+      }
+
+      backend.closeBackend();
+      backend.rebuildBackend(rebuildConf, TestCaseUtils.getServerContext());
+      backend.openBackend();
+
+      assertThat(readIndexes(rebuiltIndexes)).isEqualTo(rebuiltOnline);
+    }
+    finally
+    {
+      stopUpdates.set(true);
+      executor.shutdown();
+      executor.awaitTermination(30, TimeUnit.SECONDS);
+      for (List<DN> dns : addedDNs)
+      {
+        for (DN dn : dns)
+        {
+          backend.deleteEntry(dn, mock(DeleteOperation.class));
+        }
+      }
+    }
+  }
+
+  /** Adds, modifies and deletes its own entries until stopped. The entries which are still in the backend are kept. */
+  private Callable<Void> newUpdater(final int updaterID, final List<DN> addedDNs, final CountDownLatch updatesStarted,
+      final AtomicBoolean stopUpdates)
+  {
+    return new Callable<Void>()
+    {
+      @Override
+      public Void call() throws Exception
+      {
+        for (int i = 0; !stopUpdates.get(); i++)
+        {
+          final String uid = "online." + updaterID + "." + i;
+          final Entry entry = TestCaseUtils.makeEntry(
+              "dn: uid=" + uid + ",ou=People," + testBaseDN,
+              "objectClass: top",
+              "objectClass: person",
+              "objectClass: organizationalPerson",
+              "objectClass: inetOrgPerson",
+              "uid: " + uid,
+              "cn: Online User",
+              "sn: Online",
+              "telephoneNumber: 555-" + updaterID + "-" + i);
+          backend.addEntry(entry, mock(AddOperation.class));
+          addedDNs.add(entry.getName());
+
+          if (addedDNs.size() >= 2)
+          {
+            final Entry oldEntry = backend.getEntry(addedDNs.get(addedDNs.size() - 2));
+            final Entry newEntry = oldEntry.duplicate(false);
+            final List<Modification> mods = Arrays.asList(
+                new Modification(REPLACE, create("sn", "Modified " + i)),
+                new Modification(ADD, create("telephoneNumber", "555-" + updaterID + "-" + i + "-1")));
+            newEntry.applyModifications(mods);
+            final ModifyOperation modifyOp = mock(ModifyOperation.class);
+            when(modifyOp.getModifications()).thenReturn(mods);
+            backend.replaceEntry(oldEntry, newEntry, modifyOp);
+          }
+          if (i % 3 == 2)
+          {
+            backend.deleteEntry(addedDNs.get(0), mock(DeleteOperation.class));
+            addedDNs.remove(0);
+          }
+          if (i == 10)
+          {
+            updatesStarted.countDown();
+          }
+        }
+        return null;
+      }
+    };
+  }
+
+  @Test
+  public void testRebuildIndexOnlineAlternatesTrees() throws Exception
+  {
+    final List<String> rebuiltIndexes = Arrays.asList("sn");
+    final Map<String, Map<ByteString, List<EntryID>>> contents = readIndexes(rebuiltIndexes);
+    final Map<String, TreeName> treeNames = getIndexTreeNames(rebuiltIndexes);
+
+    rebuildIndexesOnline(rebuiltIndexes);
+    final Map<String, TreeName> otherTreeNames = getIndexTreeNames(rebuiltIndexes);
+    for (Map.Entry<String, TreeName> treeName : treeNames.entrySet())
+    {
+      assertThat(otherTreeNames.get(treeName.getKey())).isNotEqualTo(treeName.getValue());
+    }
+    assertThat(backend.getRootContainer().getStorage().listTrees()).doesNotContainAnyElementsOf(treeNames.values());
+    assertIndexLocations(rebuiltIndexes);
+    assertThat(readIndexes(rebuiltIndexes)).isEqualTo(contents);
+
+    // The location of the indexes is persisted
+    backend.closeBackend();
+    backend.openBackend();
+    assertThat(getIndexTreeNames(rebuiltIndexes)).isEqualTo(otherTreeNames);
+    assertIndexLocations(rebuiltIndexes);
+    assertThat(readIndexes(rebuiltIndexes)).isEqualTo(contents);
+    assertThat(runSearch(newSearchRequest(testBaseDN, SearchScope.WHOLE_SUBTREE, "sn=Amar"), false)).hasSize(1);
+
+    // The next rebuild moves the indexes back
+    rebuildIndexesOnline(rebuiltIndexes);
+    assertThat(getIndexTreeNames(rebuiltIndexes)).isEqualTo(treeNames);
+    assertThat(backend.getRootContainer().getStorage().listTrees())
+        .doesNotContainAnyElementsOf(otherTreeNames.values());
+    assertIndexLocations(rebuiltIndexes);
+    assertThat(readIndexes(rebuiltIndexes)).isEqualTo(contents);
+    verifyIndexes(rebuiltIndexes);
+  }
+
+  @Test
+  public void testRebuildIndexOnlineFailureLeavesIndexesUntouched() throws Exception
+  {
+    final List<String> rebuiltIndexes = Arrays.asList("sn");
+    final Map<String, Map<ByteString, List<EntryID>>> contents = readIndexes(rebuiltIndexes);
+    final Map<String, TreeName> treeNames = getIndexTreeNames(rebuiltIndexes);
+    final EntryContainer entryContainer = backend.getRootContainer().getEntryContainer(testBaseDN);
+    final Storage storage = backend.getRootContainer().getStorage();
+
+    // The rebuild fails when reading an entry which cannot be decoded
+    final TreeName id2EntryName = entryContainer.getID2Entry().getName();
+    final ByteString badEntryID = new EntryID(Long.MAX_VALUE).toByteString();
+    storage.write(new WriteOperation()
+    {
+      @Override
+      public void run(WriteableTransaction txn) throws Exception
+      {
+        txn.put(id2EntryName, badEntryID, ByteString.valueOfBytes(new byte[] { 0x7f }));
+      }
+    });
+    try
+    {
+      rebuildIndexesOnline(rebuiltIndexes);
+      fail("The rebuild should have failed");
+    }
+    catch (DirectoryException expected)
+    {
+      // Expected
+    }
+    finally
+    {
+      storage.write(new WriteOperation()
+      {
+        @Override
+        public void run(WriteableTransaction txn) throws Exception
+        {
+          txn.delete(id2EntryName, badEntryID);
+        }
+      });
+    }
+
+    assertThat(entryContainer.getOnlineIndexRebuilder()).isNull();
+    assertThat(getIndexTreeNames(rebuiltIndexes)).isEqualTo(treeNames);
+    assertIndexLocations(rebuiltIndexes);
+    assertThat(readIndexes(rebuiltIndexes)).isEqualTo(contents);
+    // The rebuilt copies have been deleted
+    for (TreeName treeName : storage.listTrees())
+    {
+      final String indexId = AttributeIndex.getIndexId(treeName);
+      if (treeName.getBaseDN().equals(entryContainer.getTreePrefix()) && treeNames.containsKey(indexId))
+      {
+        assertThat(treeName).isEqualTo(treeNames.get(indexId));
+      }
+    }
+
+    // Nothing prevents a new rebuild
+    rebuildIndexesOnline(rebuiltIndexes);
+    assertThat(readIndexes(rebuiltIndexes)).isEqualTo(contents);
+    verifyIndexes(rebuiltIndexes);
+  }
+
+  private void rebuildIndexesOnline(List<String> indexNames) throws Exception
+  {
+    RebuildConfig rebuildConf = new RebuildConfig();
+    rebuildConf.setBaseDN(testBaseDN);
+    rebuildConf.setRebuildMode(RebuildMode.USER_DEFINED);
+    rebuildConf.setOnline(true);
+    for (String indexName : indexNames)
+    {
+      rebuildConf.addRebuildIndex(indexName);
+    }
+    backend.rebuildBackend(rebuildConf, TestCaseUtils.getServerContext());
+  }
+
+  private void verifyIndexes(List<String> indexNames) throws Exception
+  {
+    VerifyConfig config = new VerifyConfig();
+    config.setBaseDN(testBaseDN);
+    for (String indexName : indexNames)
+    {
+      config.addCompleteIndex(indexName);
+    }
+    assertThat(backend.verifyBackend(config)).isEqualTo(0);
+
+    config = new VerifyConfig();
+    config.setBaseDN(testBaseDN);
+    for (String indexName : indexNames)
+    {
+      config.addCleanIndex(indexName);
+    }
+    assertThat(backend.verifyBackend(config)).isEqualTo(0);
+  }
+
+  private List<MatchingRuleIndex> getIndexes(List<String> attributeNames)
+  {
+    final List<MatchingRuleIndex> indexes = new ArrayList<>();
+    for (AttributeIndex attributeIndex : backend.getRootContainer().getEntryContainer(testBaseDN).getAttributeIndexes())
+    {
+      if (attributeNames.contains(attributeIndex.getAttributeType().getNameOrOID()))
+      {
+        indexes.addAll(attributeIndex.getNameToIndexes().values());
+      }
+    }
+    return indexes;
+  }
+
+  /** Returns the trees where the indexes of the provided attributes are stored, mapped to their index ID. */
+  private Map<String, TreeName> getIndexTreeNames(List<String> attributeNames)
+  {
+    final Map<String, TreeName> treeNames = new HashMap<>();
+    for (MatchingRuleIndex index : getIndexes(attributeNames))
+    {
+      treeNames.put(AttributeIndex.getIndexId(index.getName()), index.getName());
+    }
+    return treeNames;
+  }
+
+  /** Checks that the state of the indexes records the tree where they are stored. */
+  private void assertIndexLocations(List<String> attributeNames) throws Exception
+  {
+    final EntryContainer entryContainer = backend.getRootContainer().getEntryContainer(testBaseDN);
+    final State state = new State(new TreeName(entryContainer.getTreePrefix(), SuffixContainer.STATE_INDEX_NAME));
+    for (final MatchingRuleIndex index : getIndexes(attributeNames))
+    {
+      final Set<IndexFlag> flags = backend.getRootContainer().getStorage().read(new ReadOperation<Set<IndexFlag>>()
+      {
+        @Override
+        public Set<IndexFlag> run(ReadableTransaction txn) throws Exception
+        {
+          return state.getIndexFlags(txn, index.getPrimaryTreeName());
+        }
+      });
+      assertThat(flags.contains(IndexFlag.SHADOW)).isEqualTo(!index.getName().equals(index.getPrimaryTreeName()));
+      assertTrue(index.isTrusted(), index.getName() + " is not trusted");
+    }
+  }
+
+  /** Returns the content of the indexes of the provided attributes, mapped to their index ID. */
+  private Map<String, Map<ByteString, List<EntryID>>> readIndexes(List<String> attributeNames) throws Exception
+  {
+    final List<MatchingRuleIndex> indexes = getIndexes(attributeNames);
+    return backend.getRootContainer().getStorage().read(
+        new ReadOperation<Map<String, Map<ByteString, List<EntryID>>>>()
+    {
+      @Override
+      public Map<String, Map<ByteString, List<EntryID>>> run(ReadableTransaction txn) throws Exception
+      {
+        final Map<String, Map<ByteString, List<EntryID>>> contents = new HashMap<>();
+        for (MatchingRuleIndex index : indexes)
+        {
+          final Map<ByteString, List<EntryID>> content = new HashMap<>();
+          try (final Cursor<ByteString, EntryIDSet> cursor = index.openCursor(txn))
+          {
+            while (cursor.next())
+            {
+              final List<EntryID> entryIDs = new ArrayList<>();
+              for (EntryID entryID : cursor.getValue())
+              {
+                entryIDs.add(entryID);
+              }
+              content.put(cursor.getKey(), entryIDs);
+            }
+          }
+          contents.put(AttributeIndex.getIndexId(index.getName()), content);
+        }
+        return contents;
+      }
+    });
+  }
+
   @Test
   public void testBackupAndRestore() throws Exception
   {
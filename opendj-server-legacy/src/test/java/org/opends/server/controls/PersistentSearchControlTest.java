@@ -12,7 +12,7 @@
  * information: "Portions Copyright [year] [name of copyright owner]".
  *
  * Copyright 2006-2010 Sun Microsystems, Inc.
- * Portions Copyright 2014-2016 ForgeRock AS.
+ * Portions Copyright 2014-2026 ForgeRock AS.
  */
 package org.opends.server.controls;
 
@@ -26,11 +26,17 @@ import static org.opends.server.types.NullOutputStream.nullPrintStream;
 import static org.opends.server.util.ServerConstants.*;
 import static org.testng.Assert.*;
 
+import java.util.ArrayList;
 import java.util.EnumSet;
 import java.util.HashMap;
 import java.util.HashSet;
+import java.util.List;
 import java.util.Map;
 import java.util.Set;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.TimeUnit;
 
 import org.forgerock.i18n.LocalizableMessage;
 import org.forgerock.opendj.io.ASN1;
@@ -45,6 +51,8 @@ import org.forgerock.opendj.ldap.requests.ModifyRequest;
 import org.forgerock.util.Utils;
 import org.opends.server.TestCaseUtils;
 import org.opends.server.core.ModifyOperation;
+import org.opends.server.protocols.internal.InternalClientConnection;
+import org.opends.server.protocols.internal.InternalSearchListener;
 import org.opends.server.protocols.internal.InternalSearchOperation;
 import org.opends.server.protocols.internal.SearchRequest;
 import org.opends.server.protocols.ldap.LDAPControl;
@@ -53,6 +61,8 @@ import com.forgerock.opendj.ldap.tools.LDAPSearch;
 import org.opends.server.types.CancelRequest;
 import org.opends.server.types.DirectoryException;
 import org.opends.server.types.LDAPException;
+import org.opends.server.types.SearchResultEntry;
+import org.opends.server.types.SearchResultReference;
 import org.testng.annotations.DataProvider;
 import org.testng.annotations.Test;
 
@@ -555,4 +565,287 @@ public class PersistentSearchControlTest extends ControlsTestCase
     //cancel the persisting persistent search.
     search.cancel(new CancelRequest(true,LocalizableMessage.EMPTY));
   }
+
+  @DataProvider
+  public Object[][] psearchNotificationQueueSizes()
+  {
+    return new Object[][] { { "0" }, { "1000" } };
+  }
+
+  /**
+   * Tests that a persistent search is only notified of the changes in its
+   * scope and matching its filter, whether the changes are sent by the
+   * thread performing the update or by the notification threads.
+   */
+  @Test(dataProvider = "psearchNotificationQueueSizes")
+  public void testPSearchNotification(String queueSize) throws Exception
+  {
+    TestCaseUtils.initializeTestBackend(true);
+    setPSearchNotificationQueueSize(queueSize);
+
+    final BlockingQueue<SearchResultEntry> entries = new LinkedBlockingQueue<>();
+    SearchRequest request = newSearchRequest(DN.valueOf("o=test"), SearchScope.WHOLE_SUBTREE, "(uid=psearch.*)")
+        .addControl(new PersistentSearchControl(EnumSet.of(ADD, DELETE), true, true));
+    final InternalSearchOperation search = getRootConnection().processSearch(request, new InternalSearchListener()
+    {
+      @Override
+      public void handleInternalSearchEntry(InternalSearchOperation searchOperation, SearchResultEntry searchEntry)
+      {
+        entries.add(searchEntry);
+      }
+
+      @Override
+      public void handleInternalSearchReference(InternalSearchOperation searchOperation,
+          SearchResultReference searchReference)
+      {
+        // No implementation required.
+      }
+    });
+    try
+    {
+      TestCaseUtils.addEntries(
+          "dn: uid=other,o=test",
+          "objectClass: top",
+          "objectClass: person",
+          "objectClass: organizationalPerson",
+          "objectClass: inetOrgPerson",
+          "uid: other",
+          "cn: other",
+          "sn: other",
+          "",
+          "dn: uid=psearch.1,o=test",
+          "objectClass: top",
+          "objectClass: person",
+          "objectClass: organizationalPerson",
+          "objectClass: inetOrgPerson",
+          "uid: psearch.1",
+          "cn: psearch 1",
+          "sn: 1");
+      final DN entryDN = DN.valueOf("uid=psearch.1,o=test");
+      SearchResultEntry entry = entries.poll(10, TimeUnit.SECONDS);
+      assertNotNull(entry);
+      assertEquals(entry.getName(), entryDN);
+
+      TestCaseUtils.deleteEntry(entryDN);
+      entry = entries.poll(10, TimeUnit.SECONDS);
+      assertNotNull(entry);
+      assertEquals(entry.getName(), entryDN);
+      assertTrue(entries.isEmpty());
+    }
+    finally
+    {
+      search.cancel(new CancelRequest(true, LocalizableMessage.EMPTY));
+      setPSearchNotificationQueueSize("1000");
+    }
+  }
+
+  /**
+   * Tests that a client connection which does not read the changes sent to
+   * its persistent search delays neither the updates, even when its queue is
+   * full, nor the notifications of the persistent searches of other clients.
+   */
+  @Test(timeOut = 60000)
+  public void testSlowPSearchClientDoesNotDelayOtherClients() throws Exception
+  {
+    TestCaseUtils.initializeTestBackend(true);
+    setPSearchNotificationQueueSize("2");
+
+    final CountDownLatch stalledStarted = new CountDownLatch(1);
+    final CountDownLatch releaseStalled = new CountDownLatch(1);
+    final BlockingQueue<SearchResultEntry> stalledEntries = new LinkedBlockingQueue<>();
+    final BlockingQueue<SearchResultEntry> liveEntries = new LinkedBlockingQueue<>();
+    InternalClientConnection stalledConnection = new InternalClientConnection(DN.valueOf("cn=Directory Manager"));
+    InternalClientConnection liveConnection = new InternalClientConnection(DN.valueOf("cn=Directory Manager"));
+    InternalSearchOperation stalledSearch = stalledConnection.processSearch(
+        newSearchRequest(DN.valueOf("o=test"), SearchScope.WHOLE_SUBTREE, "(uid=stalled.*)")
+            .addControl(new PersistentSearchControl(EnumSet.of(ADD), true, false)),
+        new CollectingSearchListener(stalledEntries)
+        {
+          @Override
+          public void handleInternalSearchEntry(InternalSearchOperation searchOperation,
+              SearchResultEntry searchEntry) throws DirectoryException
+          {
+            stalledStarted.countDown();
+            try
+            {
+              releaseStalled.await();
+            }
+            catch (InterruptedException e)
+            {
+              Thread.currentThread().interrupt();
+            }
+            super.handleInternalSearchEntry(searchOperation, searchEntry);
+          }
+        });
+    InternalSearchOperation liveSearch = liveConnection.processSearch(
+        newSearchRequest(DN.valueOf("o=test"), SearchScope.WHOLE_SUBTREE, "(uid=*)")
+            .addControl(new PersistentSearchControl(EnumSet.of(ADD), true, false)),
+        new CollectingSearchListener(liveEntries));
+    try
+    {
+      // The first change is being sent to the stalled client, the next two fill its queue
+      addUser("stalled.1");
+      assertTrue(stalledStarted.await(10, TimeUnit.SECONDS));
+      addUser("stalled.2");
+      addUser("stalled.3");
+
+      // The queue of the stalled client is full: the change is queued anyway, the update does not wait
+      addUser("stalled.4");
+
+      // The other updates and the notifications of the live client proceed
+      for (int i = 1; i <= 10; i++)
+      {
+        addUser("live." + i);
+      }
+      Set<DN> received = new HashSet<>();
+      while (received.size() < 14)
+      {
+        SearchResultEntry entry = liveEntries.poll(10, TimeUnit.SECONDS);
+        assertNotNull(entry, "live client received " + received);
+        received.add(entry.getName());
+      }
+      for (int i = 1; i <= 10; i++)
+      {
+        assertThat(received).contains(DN.valueOf("uid=live." + i + ",o=test"));
+      }
+      assertThat(received).contains(DN.valueOf("uid=stalled.4,o=test"));
+      assertTrue(stalledEntries.isEmpty());
+
+      // Once the stalled client reads its changes, it receives all of them in order
+      releaseStalled.countDown();
+      for (int i = 1; i <= 4; i++)
+      {
+        SearchResultEntry entry = stalledEntries.poll(10, TimeUnit.SECONDS);
+        assertNotNull(entry);
+        assertEquals(entry.getName(), DN.valueOf("uid=stalled." + i + ",o=test"));
+      }
+    }
+    finally
+    {
+      releaseStalled.countDown();
+      stalledSearch.cancel(new CancelRequest(true, LocalizableMessage.EMPTY));
+      liveSearch.cancel(new CancelRequest(true, LocalizableMessage.EMPTY));
+      setPSearchNotificationQueueSize("1000");
+    }
+  }
+
+  /**
+   * Tests that client connections blocked while a change is sent to them do not hold the threads
+   * delivering the changes to the other client connections, whatever their number.
+   */
+  @Test(timeOut = 60000)
+  public void testStalledPSearchClientsDoNotHoldDeliveryOfOtherClients() throws Exception
+  {
+    TestCaseUtils.initializeTestBackend(true);
+
+    // More stalled clients than processors, so that they would hold every thread of a bounded pool
+    final int nbStalledClients = Runtime.getRuntime().availableProcessors() + 2;
+    final CountDownLatch stalledStarted = new CountDownLatch(nbStalledClients);
+    final CountDownLatch releaseStalled = new CountDownLatch(1);
+    final List<InternalSearchOperation> stalledSearches = new ArrayList<>();
+    final BlockingQueue<SearchResultEntry> liveEntries = new LinkedBlockingQueue<>();
+    InternalSearchOperation liveSearch = null;
+    try
+    {
+      for (int i = 0; i < nbStalledClients; i++)
+      {
+        InternalClientConnection stalledConnection = new InternalClientConnection(DN.valueOf("cn=Directory Manager"));
+        stalledSearches.add(stalledConnection.processSearch(
+            newSearchRequest(DN.valueOf("o=test"), SearchScope.WHOLE_SUBTREE, "(uid=*)")
+                .addControl(new PersistentSearchControl(EnumSet.of(ADD), true, false)),
+            new CollectingSearchListener(new LinkedBlockingQueue<SearchResultEntry>())
+            {
+              @Override
+              public void handleInternalSearchEntry(InternalSearchOperation searchOperation,
+                  SearchResultEntry searchEntry) throws DirectoryException
+              {
+                stalledStarted.countDown();
+                try
+                {
+                  releaseStalled.await();
+                }
+                catch (InterruptedException e)
+                {
+                  Thread.currentThread().interrupt();
+                }
+              }
+            }));
+      }
+      InternalClientConnection liveConnection = new InternalClientConnection(DN.valueOf("cn=Directory Manager"));
+      liveSearch = liveConnection.processSearch(
+          newSearchRequest(DN.valueOf("o=test"), SearchScope.WHOLE_SUBTREE, "(uid=live.*)")
+              .addControl(new PersistentSearchControl(EnumSet.of(ADD), true, false)),
+          new CollectingSearchListener(liveEntries));
+
+      // Every stalled client is blocked while the first change is sent to it
+      addUser("stalled.1");
+      assertTrue(stalledStarted.await(10, TimeUnit.SECONDS));
+
+      for (int i = 1; i <= 5; i++)
+      {
+        addUser("live." + i);
+        SearchResultEntry entry = liveEntries.poll(10, TimeUnit.SECONDS);
+        assertNotNull(entry);
+        assertEquals(entry.getName(), DN.valueOf("uid=live." + i + ",o=test"));
+      }
+    }
+    finally
+    {
+      releaseStalled.countDown();
+      for (InternalSearchOperation stalledSearch : stalledSearches)
+      {
+        stalledSearch.cancel(new CancelRequest(true, LocalizableMessage.EMPTY));
+      }
+      if (liveSearch != null)
+      {
+        liveSearch.cancel(new CancelRequest(true, LocalizableMessage.EMPTY));
+      }
+    }
+  }
+
+  private static void addUser(String uid) throws Exception
+  {
+    TestCaseUtils.addEntry(
+        "dn: uid=" + uid + ",o=test",
+        "objectClass: top",
+        "objectClass: person",
+        "objectClass: organizationalPerson",
+        "objectClass: inetOrgPerson",
+        "uid: " + uid,
+        "cn: " + uid,
+        "sn: " + uid);
+  }
+
+  /** Collects the entries returned by a persistent search. */
+  private static class CollectingSearchListener implements InternalSearchListener
+  {
+    private final BlockingQueue<SearchResultEntry> entries;
+
+    private CollectingSearchListener(BlockingQueue<SearchResultEntry> entries)
+    {
+      this.entries = entries;
+    }
+
+    @Override
+    public void handleInternalSearchEntry(InternalSearchOperation searchOperation, SearchResultEntry searchEntry)
+        throws DirectoryException
+    {
+      entries.add(searchEntry);
+    }
+
+    @Override
+    public void handleInternalSearchReference(InternalSearchOperation searchOperation,
+        SearchResultReference searchReference)
+    {
+      // No implementation required.
+    }
+  }
+
+  private void setPSearchNotificationQueueSize(String queueSize)
+  {
+    ModifyRequest modifyRequest = newModifyRequest("cn=config")
+        .addModification(ModificationType.REPLACE, "ds-cfg-psearch-notification-queue-size", queueSize);
+    ModifyOperation modifyOperation = getRootConnection().processModify(modifyRequest);
+    assertEquals(modifyOperation.getResultCode(), ResultCode.SUCCESS);
+  }
 }
@@ -12,7 +12,7 @@
  * information: "Portions Copyright [year] [name of copyright owner]".
  *
  * Copyright 2008-2010 Sun Microsystems, Inc.
- * Portions Copyright 2011-2016 ForgeRock AS.
+ * Portions Copyright 2011-2026 ForgeRock AS.
  */
 package org.opends.server.core;
 
@@ -50,6 +50,7 @@ import static org.forgerock.opendj.ldap.requests.Requests.*;
 import static org.opends.server.protocols.internal.InternalClientConnection.*;
 import static org.opends.server.protocols.internal.Requests.*;
 import static org.opends.server.types.NullOutputStream.nullPrintStream;
+import static org.opends.server.util.CollectionUtils.*;
 import static org.opends.server.util.ServerConstants.*;
 import static org.testng.Assert.*;
 
@@ -200,6 +201,153 @@ public class GroupManagerTestCase
     assertTrue(group1Instance.isMember(user5DN));
   }
 
+  /**
+   * Tests that the reverse membership index of the group manager returns
+   * the groups a user belongs to, directly or through nested static and
+   * dynamic groups, and that it follows the changes of the member lists.
+   *
+   * @throws  Exception  If an unexpected problem occurs.
+   */
+  @Test
+  public void testGroupInstancesForMember() throws Exception {
+    TestCaseUtils.initializeTestBackend(true);
+    GroupManager groupManager = DirectoryServer.getGroupManager();
+    groupManager.deregisterAllGroups();
+    addNestedGroupTestEntries();
+    DN group1DN = DN.valueOf("cn=group 1,ou=Groups,o=test");
+    DN group2DN = DN.valueOf("cn=group 2,ou=Groups,o=test");
+    DN group3DN = DN.valueOf("cn=group 3,ou=Groups,o=test");
+    DN group4DN = DN.valueOf("cn=group 4,ou=Groups,o=test");
+    DN user1DN = DN.valueOf("uid=user.1,ou=People,o=test");
+    DN user2DN = DN.valueOf("uid=user.2,ou=People,o=test");
+    DN user5DN = DN.valueOf("uid=user.5,ou=People,o=test");
+    Group group1Instance = groupManager.getGroupInstance(group1DN);
+    Group group2Instance = groupManager.getGroupInstance(group2DN);
+    Group group3Instance = groupManager.getGroupInstance(group3DN);
+    Group group4Instance = groupManager.getGroupInstance(group4DN);
+    group1Instance.addNestedGroup(group2DN);
+    group2Instance.addNestedGroup(group3DN);
+    //Dynamic group 4 is nested in group 3, user 5 matches its URL.
+    group3Instance.addNestedGroup(group4DN);
+    group1Instance.addMember(DirectoryServer.getEntry(user1DN));
+    group2Instance.addMember(DirectoryServer.getEntry(user2DN));
+
+    assertEquals(groupManager.getGroupInstancesForMember(user1DN),
+        newHashSet(group1Instance));
+    assertEquals(groupManager.getGroupInstancesForMember(user2DN),
+        newHashSet(group1Instance, group2Instance));
+    assertEquals(groupManager.getGroupInstancesForMember(user5DN),
+        newHashSet(group1Instance, group2Instance, group3Instance, group4Instance));
+    assertTrue(groupManager.getGroupInstancesForMember(DN.valueOf("uid=unknown,o=test")).isEmpty());
+
+    //Changes of the member lists are reflected in the index.
+    group1Instance.removeNestedGroup(group2DN);
+    assertEquals(groupManager.getGroupInstancesForMember(user2DN),
+        newHashSet(group2Instance));
+    final ModifyRequest modifyRequest = newModifyRequest(group2DN)
+        .addModification(DELETE, "member", user2DN.toString())
+        .addModification(ADD, "member", user1DN.toString());
+    ModifyOperation modifyOperation = getRootConnection().processModify(modifyRequest);
+    assertEquals(modifyOperation.getResultCode(), ResultCode.SUCCESS);
+    assertTrue(groupManager.getGroupInstancesForMember(user2DN).isEmpty());
+    assertEquals(groupManager.getGroupInstancesForMember(user1DN),
+        newHashSet(group1Instance, groupManager.getGroupInstance(group2DN)));
+
+    //Deleting a group removes it from the index.
+    DeleteOperation deleteOperation = getRootConnection().processDelete(group1DN);
+    assertEquals(deleteOperation.getResultCode(), ResultCode.SUCCESS);
+    assertEquals(groupManager.getGroupInstancesForMember(user1DN),
+        newHashSet(groupManager.getGroupInstance(group2DN)));
+  }
+
+  /**
+   * Tests that the group manager determines the membership of a single
+   * group from the reverse membership index for static groups, including
+   * through nested dynamic groups, and from the group itself otherwise.
+   *
+   * @throws  Exception  If an unexpected problem occurs.
+   */
+  @Test
+  public void testIsMember() throws Exception {
+    TestCaseUtils.initializeTestBackend(true);
+    GroupManager groupManager = DirectoryServer.getGroupManager();
+    groupManager.deregisterAllGroups();
+    addNestedGroupTestEntries();
+    DN group1DN = DN.valueOf("cn=group 1,ou=Groups,o=test");
+    DN group2DN = DN.valueOf("cn=group 2,ou=Groups,o=test");
+    DN group3DN = DN.valueOf("cn=group 3,ou=Groups,o=test");
+    DN group4DN = DN.valueOf("cn=group 4,ou=Groups,o=test");
+    DN user1DN = DN.valueOf("uid=user.1,ou=People,o=test");
+    DN user2DN = DN.valueOf("uid=user.2,ou=People,o=test");
+    DN user5DN = DN.valueOf("uid=user.5,ou=People,o=test");
+    Group group1Instance = groupManager.getGroupInstance(group1DN);
+    Group group2Instance = groupManager.getGroupInstance(group2DN);
+    Group group3Instance = groupManager.getGroupInstance(group3DN);
+    Group group4Instance = groupManager.getGroupInstance(group4DN);
+    group1Instance.addNestedGroup(group2DN);
+    group2Instance.addNestedGroup(group3DN);
+    group1Instance.addMember(DirectoryServer.getEntry(user1DN));
+    group2Instance.addMember(DirectoryServer.getEntry(user2DN));
+
+    assertTrue(groupManager.isMember(group1Instance, user1DN));
+    assertFalse(groupManager.isMember(group2Instance, user1DN));
+    assertTrue(groupManager.isMember(group1Instance, user2DN));
+    assertTrue(groupManager.isMember(group2Instance, DirectoryServer.getEntry(user2DN)));
+    assertFalse(groupManager.isMember(group3Instance, user2DN));
+    assertFalse(groupManager.isMember(group1Instance, (DN) null));
+
+    //User 5 matches the URL of the dynamic group 4, which is not nested yet.
+    assertTrue(groupManager.isMember(group4Instance, DirectoryServer.getEntry(user5DN)));
+    assertFalse(groupManager.isMember(group1Instance, user5DN));
+    group3Instance.addNestedGroup(group4DN);
+    assertTrue(groupManager.isMember(group1Instance, user5DN));
+    assertTrue(groupManager.isMember(group3Instance, DirectoryServer.getEntry(user5DN)));
+    assertFalse(groupManager.isMember(group4Instance, user1DN));
+  }
+
+  /**
+   * Tests that the reverse membership index follows the members of the group
+   * instances, whatever the member attribute values removed from the group
+   * entries.
+   *
+   * @throws  Exception  If an unexpected problem occurs.
+   */
+  @Test
+  public void testGroupInstancesForMemberWithIgnoredMemberValues() throws Exception {
+    TestCaseUtils.initializeTestBackend(true);
+    GroupManager groupManager = DirectoryServer.getGroupManager();
+    groupManager.deregisterAllGroups();
+    addNestedGroupTestEntries();
+    DN group2DN = DN.valueOf("cn=group 2,ou=Groups,o=test");
+    DN user1DN = DN.valueOf("uid=user.1,ou=People,o=test");
+    DN user2DN = DN.valueOf("uid=user.2,ou=People,o=test");
+    processModify(newModifyRequest(group2DN)
+        .addModification(ADD, "objectClass", "extensibleObject"));
+    processModify(newModifyRequest(group2DN)
+        .addModification(ADD, "member", user1DN.toString(), user2DN.toString())
+        .addModification(ADD, "uniqueMember", user1DN.toString(), user2DN + "#'0101'B"));
+    Group group2Instance = groupManager.getGroupInstance(group2DN);
+    assertEquals(groupManager.getGroupInstancesForMember(user1DN), newHashSet(group2Instance));
+    assertEquals(groupManager.getGroupInstancesForMember(user2DN), newHashSet(group2Instance));
+
+    //The unique members are not members of a group of names.
+    processModify(newModifyRequest(group2DN)
+        .addModification(DELETE, "uniqueMember", user1DN.toString(), user2DN + "#'0101'B"));
+    assertEquals(groupManager.getGroupInstancesForMember(user1DN), newHashSet(group2Instance));
+    assertEquals(groupManager.getGroupInstancesForMember(user2DN), newHashSet(group2Instance));
+
+    processModify(newModifyRequest(group2DN)
+        .addModification(REPLACE, "member", user2DN.toString()));
+    assertTrue(groupManager.getGroupInstancesForMember(user1DN).isEmpty());
+    assertEquals(groupManager.getGroupInstancesForMember(user2DN), newHashSet(group2Instance));
+  }
+
+  private void processModify(ModifyRequest modifyRequest)
+  {
+    ModifyOperation modifyOperation = getRootConnection().processModify(modifyRequest);
+    assertEquals(modifyOperation.getResultCode(), ResultCode.SUCCESS);
+  }
+
   /**
    * Invokes membership and nested group APIs using a group instance that has
    * been changed by the group manager via ldap modify.
@@ -0,0 +1,202 @@
+/*
+ * The contents of this file are subject to the terms of the Common Development and
+ * Distribution License (the License). You may not use this file except in compliance with the
+ * License.
+ *
+ * You can obtain a copy of the License at legal/CDDLv1.0.txt. See the License for the
+ * specific language governing permission and limitations under the License.
+ *
+ * When distributing Covered Software, include this CDDL Header Notice in each file and include
+ * the License file at legal/CDDLv1.0.txt. If applicable, add the following below the CDDL
+ * Header, with the fields enclosed by brackets [] replaced by your own identifying
+ * information: "Portions Copyright [year] [name of copyright owner]".
+ *
+ * Copyright 2026 ForgeRock AS.
+ */
+package org.opends.server.core;
+
+import static org.assertj.core.api.Assertions.*;
+import static org.mockito.Mockito.*;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+
+import org.forgerock.opendj.ldap.ByteString;
+import org.forgerock.opendj.ldap.DN;
+import org.forgerock.util.time.TimeService;
+import org.testng.annotations.BeforeMethod;
+import org.testng.annotations.Test;
+
+@SuppressWarnings("javadoc")
+public class VerifiedCredentialsCacheTest extends CoreTestCase
+{
+  private static final DN USER1 = DN.valueOf("uid=user.1,dc=example,dc=com");
+  private static final DN USER2 = DN.valueOf("uid=user.2,dc=example,dc=com");
+  private static final DN USER3 = DN.valueOf("uid=user.3,dc=example,dc=com");
+  private static final ByteString PASSWORD = ByteString.valueOfUtf8("password");
+  private static final ByteString STORED = ByteString.valueOfUtf8("{SSHA512}c2FsdGVkaGFzaA==");
+
+  private TimeService timeService;
+  private VerifiedCredentialsCache cache;
+
+  @BeforeMethod
+  public void setUp()
+  {
+    timeService = mock(TimeService.class);
+    when(timeService.now()).thenReturn(1000L);
+    // A single stripe makes the least recently used order deterministic
+    cache = new VerifiedCredentialsCache(timeService, 1);
+    cache.setConfiguration(2, 60000);
+  }
+
+  @Test
+  public void testDisabledByDefault()
+  {
+    final VerifiedCredentialsCache disabled = new VerifiedCredentialsCache(timeService, 1);
+    disabled.putVerified(USER1, PASSWORD, STORED);
+    assertThat(disabled.isEnabled()).isFalse();
+    assertThat(disabled.isVerified(USER1, PASSWORD, STORED)).isFalse();
+  }
+
+  @Test
+  public void testVerifiedPassword()
+  {
+    assertThat(cache.isVerified(USER1, PASSWORD, STORED)).isFalse();
+    cache.putVerified(USER1, PASSWORD, STORED);
+    assertThat(cache.isVerified(USER1, PASSWORD, STORED)).isTrue();
+    assertThat(cache.isVerified(USER2, PASSWORD, STORED)).isFalse();
+  }
+
+  @Test
+  public void testDifferentPasswordOrStoredValueIsNotVerified()
+  {
+    cache.putVerified(USER1, PASSWORD, STORED);
+    assertThat(cache.isVerified(USER1, ByteString.valueOfUtf8("wrong"), STORED)).isFalse();
+    assertThat(cache.isVerified(USER1, PASSWORD, ByteString.valueOfUtf8("{SSHA512}bmV3aGFzaA=="))).isFalse();
+    // the boundary between the password and the stored value must not be ambiguous
+    assertThat(cache.isVerified(USER1, ByteString.valueOfUtf8("passwor"), ByteString.valueOfUtf8("d" + STORED)))
+        .isFalse();
+  }
+
+  @Test
+  public void testExpiration()
+  {
+    cache.putVerified(USER1, PASSWORD, STORED);
+    when(timeService.now()).thenReturn(60999L);
+    assertThat(cache.isVerified(USER1, PASSWORD, STORED)).isTrue();
+    when(timeService.now()).thenReturn(61000L);
+    assertThat(cache.isVerified(USER1, PASSWORD, STORED)).isFalse();
+    assertThat(cache.size()).isEqualTo(0);
+  }
+
+  @Test
+  public void testLeastRecentlyUsedEviction()
+  {
+    cache.putVerified(USER1, PASSWORD, STORED);
+    cache.putVerified(USER2, PASSWORD, STORED);
+    assertThat(cache.isVerified(USER1, PASSWORD, STORED)).isTrue();
+    cache.putVerified(USER3, PASSWORD, STORED);
+
+    assertThat(cache.size()).isEqualTo(2);
+    assertThat(cache.isVerified(USER1, PASSWORD, STORED)).isTrue();
+    assertThat(cache.isVerified(USER2, PASSWORD, STORED)).isFalse();
+    assertThat(cache.isVerified(USER3, PASSWORD, STORED)).isTrue();
+  }
+
+  @Test
+  public void testInvalidate()
+  {
+    cache.putVerified(USER1, PASSWORD, STORED);
+    cache.putVerified(USER2, PASSWORD, STORED);
+    cache.invalidate(USER1);
+    assertThat(cache.isVerified(USER1, PASSWORD, STORED)).isFalse();
+    assertThat(cache.isVerified(USER2, PASSWORD, STORED)).isTrue();
+  }
+
+  @Test
+  public void testReconfiguration()
+  {
+    cache.putVerified(USER1, PASSWORD, STORED);
+    cache.putVerified(USER2, PASSWORD, STORED);
+    cache.setConfiguration(1, 60000);
+    assertThat(cache.size()).isEqualTo(1);
+    assertThat(cache.isVerified(USER2, PASSWORD, STORED)).isTrue();
+
+    cache.setConfiguration(0, 60000);
+    assertThat(cache.isEnabled()).isFalse();
+    assertThat(cache.size()).isEqualTo(0);
+  }
+
+  @Test
+  public void testStripedCacheIsBounded()
+  {
+    final VerifiedCredentialsCache striped = new VerifiedCredentialsCache(timeService, 16);
+    striped.setConfiguration(100, 60000);
+    final List<DN> userDNs = new ArrayList<>();
+    for (int i = 0; i < 1000; i++)
+    {
+      final DN userDN = DN.valueOf("uid=user." + i + ",dc=example,dc=com");
+      userDNs.add(userDN);
+      striped.putVerified(userDN, PASSWORD, STORED);
+      assertThat(striped.size()).isLessThanOrEqualTo(100);
+    }
+    // The last verified user is always kept
+    assertThat(striped.isVerified(userDNs.get(userDNs.size() - 1), PASSWORD, STORED)).isTrue();
+
+    // Fewer users than stripes
+    striped.setConfiguration(3, 60000);
+    assertThat(striped.size()).isLessThanOrEqualTo(3);
+    for (DN userDN : userDNs)
+    {
+      striped.putVerified(userDN, PASSWORD, STORED);
+      assertThat(striped.size()).isLessThanOrEqualTo(3);
+    }
+  }
+
+  @Test
+  public void testConcurrentBinds() throws Exception
+  {
+    final VerifiedCredentialsCache striped = new VerifiedCredentialsCache(timeService, 16);
+    striped.setConfiguration(50, 60000);
+    final ExecutorService executor = Executors.newFixedThreadPool(8);
+    try
+    {
+      final List<Future<Void>> futures = new ArrayList<>();
+      for (int t = 0; t < 8; t++)
+      {
+        final int thread = t;
+        futures.add(executor.submit(new Callable<Void>()
+        {
+          @Override
+          public Void call() throws Exception
+          {
+            for (int i = 0; i < 2000; i++)
+            {
+              final DN userDN = DN.valueOf("uid=user." + thread + "." + (i % 20) + ",dc=example,dc=com");
+              striped.putVerified(userDN, PASSWORD, STORED);
+              assertThat(striped.isVerified(userDN, ByteString.valueOfUtf8("wrong"), STORED)).isFalse();
+              if (i % 10 == 0)
+              {
+                striped.invalidate(userDN);
+              }
+            }
+            return null;
+          }
+        }));
+      }
+      for (Future<Void> future : futures)
+      {
+        future.get();
+      }
+    }
+    finally
+    {
+      executor.shutdown();
+    }
+    assertThat(striped.size()).isLessThanOrEqualTo(50);
+  }
+}
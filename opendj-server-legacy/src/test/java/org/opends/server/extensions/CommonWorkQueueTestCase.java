@@ -0,0 +1,130 @@
+/*
+ * The contents of this file are subject to the terms of the Common Development and
+ * Distribution License (the License). You may not use this file except in compliance with the
+ * License.
+ *
+ * You can obtain a copy of the License at legal/CDDLv1.0.txt. See the License for the
+ * specific language governing permission and limitations under the License.
+ *
+ * When distributing Covered Software, include this CDDL Header Notice in each file and include
+ * the License file at legal/CDDLv1.0.txt. If applicable, add the following below the CDDL
+ * Header, with the fields enclosed by brackets [] replaced by your own identifying
+ * information: "Portions Copyright [year] [name of copyright owner]".
+ *
+ * Copyright 2026 ForgeRock AS.
+ */
+package org.opends.server.extensions;
+
+import static org.assertj.core.api.Assertions.*;
+import static org.mockito.Mockito.*;
+
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+
+import org.forgerock.i18n.LocalizableMessage;
+import org.forgerock.opendj.server.config.server.MonitorProviderCfg;
+import org.mockito.invocation.InvocationOnMock;
+import org.mockito.stubbing.Answer;
+import org.opends.server.TestCaseUtils;
+import org.opends.server.api.MonitorProvider;
+import org.opends.server.core.DirectoryServer;
+import org.opends.server.types.CancelRequest;
+import org.opends.server.types.DirectoryException;
+import org.opends.server.types.Operation;
+import org.testng.annotations.AfterClass;
+import org.testng.annotations.BeforeClass;
+
+/** A common set of fixtures for the test cases of the work queue implementations. */
+@SuppressWarnings("javadoc")
+public abstract class CommonWorkQueueTestCase extends ExtensionsTestCase
+{
+  /** The monitor of the server work queue, replaced by the monitors of the work queues created by these tests. */
+  private MonitorProvider<? extends MonitorProviderCfg> serverWorkQueueMonitor;
+
+  @BeforeClass
+  public void startServer() throws Exception
+  {
+    TestCaseUtils.startServer();
+    serverWorkQueueMonitor = DirectoryServer.getMonitorProviders().get("work queue");
+  }
+
+  @AfterClass
+  public void restoreServerWorkQueueMonitor()
+  {
+    if (serverWorkQueueMonitor != null)
+    {
+      DirectoryServer.registerMonitorProvider(serverWorkQueueMonitor);
+    }
+  }
+
+  /**
+   * Returns an operation which counts down the provided latch when it starts running, then waits for the release
+   * latch before completing.
+   */
+  static Operation newOperation(final CountDownLatch started, final CountDownLatch release)
+  {
+    Operation operation = mock(Operation.class);
+    doAnswer(new Answer<Void>()
+    {
+      @Override
+      public Void answer(InvocationOnMock invocation) throws Throwable
+      {
+        started.countDown();
+        release.await();
+        return null;
+      }
+    }).when(operation).run();
+    return operation;
+  }
+
+  /** Returns an operation which counts down the provided latch when it runs, and completes immediately. */
+  static Operation newOperation(final CountDownLatch processed)
+  {
+    return newOperation(processed, new CountDownLatch(0));
+  }
+
+  /**
+   * Submits operations while the provided work queue is finalized, and checks that each of them has either been
+   * rejected, processed or aborted, none of them being left in the work queue.
+   */
+  static void assertFinalizeDoesNotStrandOperations(final AbstractWorkQueue<?, ?> workQueue) throws Exception
+  {
+    final int nbOperations = 2000;
+    final CountDownLatch handled = new CountDownLatch(nbOperations);
+    Thread submitter = new Thread()
+    {
+      @Override
+      public void run()
+      {
+        for (int i = 0; i < nbOperations; i++)
+        {
+          Operation operation = newOperation(handled);
+          doAnswer(new Answer<Void>()
+          {
+            @Override
+            public Void answer(InvocationOnMock invocation) throws Throwable
+            {
+              handled.countDown();
+              return null;
+            }
+          }).when(operation).abort(any(CancelRequest.class));
+          try
+          {
+            workQueue.submitOperation(operation);
+          }
+          catch (DirectoryException e)
+          {
+            handled.countDown();
+          }
+        }
+      }
+    };
+    submitter.start();
+    Thread.sleep(5);
+    workQueue.finalizeWorkQueue(LocalizableMessage.raw("test"));
+    submitter.join();
+
+    assertThat(handled.await(10, TimeUnit.SECONDS)).isTrue();
+    assertThat(workQueue.size()).isZero();
+  }
+}
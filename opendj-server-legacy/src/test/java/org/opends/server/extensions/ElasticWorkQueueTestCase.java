@@ -0,0 +1,185 @@
+/*
+ * The contents of this file are subject to the terms of the Common Development and
+ * Distribution License (the License). You may not use this file except in compliance with the
+ * License.
+ *
+ * You can obtain a copy of the License at legal/CDDLv1.0.txt. See the License for the
+ * specific language governing permission and limitations under the License.
+ *
+ * When distributing Covered Software, include this CDDL Header Notice in each file and include
+ * the License file at legal/CDDLv1.0.txt. If applicable, add the following below the CDDL
+ * Header, with the fields enclosed by brackets [] replaced by your own identifying
+ * information: "Portions Copyright [year] [name of copyright owner]".
+ *
+ * Copyright 2026 ForgeRock AS.
+ */
+package org.opends.server.extensions;
+
+import static org.assertj.core.api.Assertions.*;
+import static org.mockito.Mockito.*;
+
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+
+import org.forgerock.i18n.LocalizableMessage;
+import org.forgerock.opendj.config.ConfigurationMock;
+import org.forgerock.opendj.server.config.server.ElasticWorkQueueCfg;
+import org.testng.annotations.Test;
+
+/** A set of test cases for the elastic work queue. */
+@SuppressWarnings("javadoc")
+public class ElasticWorkQueueTestCase extends CommonWorkQueueTestCase
+{
+  private static ElasticWorkQueueCfg newConfiguration(int numWorkerThreads, int maxConcurrentOperations,
+      int maxCapacity)
+  {
+    ElasticWorkQueueCfg cfg = ConfigurationMock.mockCfg(ElasticWorkQueueCfg.class);
+    when(cfg.getNumWorkerThreads()).thenReturn(numWorkerThreads);
+    when(cfg.getMaxConcurrentOperations()).thenReturn(maxConcurrentOperations);
+    when(cfg.getWorkerThreadKeepAlive()).thenReturn(200L);
+    when(cfg.getMaxWorkQueueCapacity()).thenReturn(maxCapacity);
+    return cfg;
+  }
+
+  private static ElasticWorkQueue newWorkQueue(ElasticWorkQueueCfg cfg) throws Exception
+  {
+    ElasticWorkQueue workQueue = new ElasticWorkQueue();
+    workQueue.initializeWorkQueue(cfg);
+    return workQueue;
+  }
+
+  private static void waitForWorkerThreads(ElasticWorkQueue workQueue, int expected) throws InterruptedException
+  {
+    while (workQueue.getCurrentWorkerThreads() != expected)
+    {
+      Thread.sleep(10);
+    }
+  }
+
+  @Test(timeOut = 30000)
+  public void testBlockedOperationsDoNotStarveOtherOperations() throws Exception
+  {
+    ElasticWorkQueue workQueue = newWorkQueue(newConfiguration(2, 20, 1000));
+    CountDownLatch release = new CountDownLatch(1);
+    try
+    {
+      assertThat(workQueue.getCurrentWorkerThreads()).isEqualTo(2);
+
+      CountDownLatch blockedStarted = new CountDownLatch(10);
+      for (int i = 0; i < 10; i++)
+      {
+        workQueue.submitOperation(newOperation(blockedStarted, release));
+      }
+      assertThat(blockedStarted.await(10, TimeUnit.SECONDS)).isTrue();
+      assertThat(workQueue.getBusyWorkerThreads()).isEqualTo(10);
+
+      CountDownLatch processed = new CountDownLatch(100);
+      for (int i = 0; i < 100; i++)
+      {
+        workQueue.submitOperation(newOperation(processed));
+      }
+      assertThat(processed.await(10, TimeUnit.SECONDS)).isTrue();
+      assertThat(workQueue.getCurrentWorkerThreads()).isBetween(11, 20);
+      assertThat(workQueue.isIdle()).isFalse();
+
+      release.countDown();
+      assertThat(workQueue.waitUntilIdle(10000)).isTrue();
+
+      // Worker threads in excess exit after the keep alive time
+      waitForWorkerThreads(workQueue, 2);
+      assertThat(workQueue.getPeakWorkerThreads()).isBetween(11, 20);
+    }
+    finally
+    {
+      release.countDown();
+      workQueue.finalizeWorkQueue(LocalizableMessage.raw("test"));
+    }
+  }
+
+  @Test(timeOut = 30000)
+  public void testMaxConcurrentOperations() throws Exception
+  {
+    ElasticWorkQueue workQueue = newWorkQueue(newConfiguration(1, 3, 1000));
+    CountDownLatch release = new CountDownLatch(1);
+    try
+    {
+      CountDownLatch started = new CountDownLatch(5);
+      for (int i = 0; i < 5; i++)
+      {
+        workQueue.submitOperation(newOperation(started, release));
+      }
+      assertThat(started.await(500, TimeUnit.MILLISECONDS)).isFalse();
+      assertThat(started.getCount()).isEqualTo(2);
+      assertThat(workQueue.getCurrentWorkerThreads()).isEqualTo(3);
+      assertThat(workQueue.size()).isEqualTo(2);
+
+      release.countDown();
+      assertThat(started.await(10, TimeUnit.SECONDS)).isTrue();
+      assertThat(workQueue.waitUntilIdle(10000)).isTrue();
+      assertThat(workQueue.getOpsSubmitted()).isEqualTo(5);
+    }
+    finally
+    {
+      release.countDown();
+      workQueue.finalizeWorkQueue(LocalizableMessage.raw("test"));
+    }
+  }
+
+  @Test(timeOut = 30000)
+  public void testTrySubmitOperationWhenFull() throws Exception
+  {
+    ElasticWorkQueue workQueue = newWorkQueue(newConfiguration(1, 1, 1));
+    CountDownLatch started = new CountDownLatch(1);
+    CountDownLatch release = new CountDownLatch(1);
+    try
+    {
+      assertThat(workQueue.trySubmitOperation(newOperation(started, release))).isTrue();
+      assertThat(started.await(10, TimeUnit.SECONDS)).isTrue();
+      assertThat(workQueue.trySubmitOperation(newOperation(new CountDownLatch(1), release))).isTrue();
+
+      assertThat(workQueue.trySubmitOperation(newOperation(new CountDownLatch(1), release))).isFalse();
+      assertThat(workQueue.getOpsRejectedDueToQueueFull()).isEqualTo(1);
+
+      release.countDown();
+      assertThat(workQueue.waitUntilIdle(10000)).isTrue();
+    }
+    finally
+    {
+      release.countDown();
+      workQueue.finalizeWorkQueue(LocalizableMessage.raw("test"));
+    }
+  }
+
+  @Test(timeOut = 30000)
+  public void testFinalizeDoesNotStrandConcurrentlySubmittedOperations() throws Exception
+  {
+    assertFinalizeDoesNotStrandOperations(newWorkQueue(newConfiguration(2, 4, 0)));
+  }
+
+  @Test(timeOut = 30000)
+  public void testChangingNumWorkerThreads() throws Exception
+  {
+    ElasticWorkQueue workQueue = newWorkQueue(newConfiguration(2, 10, 1000));
+    try
+    {
+      workQueue.applyConfigurationChange(newConfiguration(6, 10, 1000));
+      assertThat(workQueue.getNumWorkerThreads()).isEqualTo(6);
+      assertThat(workQueue.getCurrentWorkerThreads()).isEqualTo(6);
+
+      workQueue.applyConfigurationChange(newConfiguration(3, 10, 1000));
+      assertThat(workQueue.getNumWorkerThreads()).isEqualTo(3);
+      waitForWorkerThreads(workQueue, 3);
+
+      CountDownLatch processed = new CountDownLatch(1000);
+      for (int i = 0; i < 1000; i++)
+      {
+        workQueue.submitOperation(newOperation(processed));
+      }
+      assertThat(processed.await(20, TimeUnit.SECONDS)).isTrue();
+    }
+    finally
+    {
+      workQueue.finalizeWorkQueue(LocalizableMessage.raw("test"));
+    }
+  }
+}
@@ -0,0 +1,212 @@
+/*
+ * The contents of this file are subject to the terms of the Common Development and
+ * Distribution License (the License). You may not use this file except in compliance with the
+ * License.
+ *
+ * You can obtain a copy of the License at legal/CDDLv1.0.txt. See the License for the
+ * specific language governing permission and limitations under the License.
+ *
+ * When distributing Covered Software, include this CDDL Header Notice in each file and include
+ * the License file at legal/CDDLv1.0.txt. If applicable, add the following below the CDDL
+ * Header, with the fields enclosed by brackets [] replaced by your own identifying
+ * information: "Portions Copyright [year] [name of copyright owner]".
+ *
+ * Copyright 2026 ForgeRock AS.
+ */
+package org.opends.server.extensions;
+
+import static org.assertj.core.api.Assertions.*;
+import static org.mockito.Mockito.*;
+
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+
+import org.forgerock.i18n.LocalizableMessage;
+import org.forgerock.opendj.config.ConfigurationMock;
+import org.forgerock.opendj.server.config.server.ShardedWorkQueueCfg;
+import org.opends.server.types.CancelRequest;
+import org.opends.server.types.DirectoryException;
+import org.opends.server.types.Operation;
+import org.testng.annotations.Test;
+
+/** A set of test cases for the sharded work queue. */
+@SuppressWarnings("javadoc")
+public class ShardedWorkQueueTestCase extends CommonWorkQueueTestCase
+{
+  private static ShardedWorkQueueCfg newConfiguration(int numWorkerThreads, int maxCapacity)
+  {
+    ShardedWorkQueueCfg cfg = ConfigurationMock.mockCfg(ShardedWorkQueueCfg.class);
+    when(cfg.getNumWorkerThreads()).thenReturn(numWorkerThreads);
+    when(cfg.getMaxWorkQueueCapacity()).thenReturn(maxCapacity);
+    return cfg;
+  }
+
+  private static ShardedWorkQueue newWorkQueue(ShardedWorkQueueCfg cfg) throws Exception
+  {
+    ShardedWorkQueue workQueue = new ShardedWorkQueue();
+    workQueue.initializeWorkQueue(cfg);
+    return workQueue;
+  }
+
+  @Test(timeOut = 30000)
+  public void testAllSubmittedOperationsAreProcessed() throws Exception
+  {
+    ShardedWorkQueue workQueue = newWorkQueue(newConfiguration(4, 0));
+    try
+    {
+      final int nbOperations = 10000;
+      CountDownLatch processed = new CountDownLatch(nbOperations);
+      for (int i = 0; i < nbOperations; i++)
+      {
+        workQueue.submitOperation(newOperation(processed));
+      }
+
+      assertThat(processed.await(20, TimeUnit.SECONDS)).isTrue();
+      assertThat(workQueue.getOpsSubmitted()).isEqualTo(nbOperations);
+      assertThat(workQueue.getOpsRejectedDueToQueueFull()).isZero();
+      assertThat(workQueue.waitUntilIdle(10000)).isTrue();
+      assertThat(workQueue.size()).isZero();
+    }
+    finally
+    {
+      workQueue.finalizeWorkQueue(LocalizableMessage.raw("test"));
+    }
+  }
+
+  @Test(timeOut = 30000)
+  public void testTrySubmitOperationWhenFull() throws Exception
+  {
+    ShardedWorkQueue workQueue = newWorkQueue(newConfiguration(1, 1));
+    CountDownLatch started = new CountDownLatch(1);
+    CountDownLatch release = new CountDownLatch(1);
+    try
+    {
+      // Keep the only worker thread busy, then fill the queue
+      assertThat(workQueue.trySubmitOperation(newOperation(started, release))).isTrue();
+      assertThat(started.await(10, TimeUnit.SECONDS)).isTrue();
+      assertThat(workQueue.trySubmitOperation(newOperation(new CountDownLatch(1), release))).isTrue();
+
+      assertThat(workQueue.trySubmitOperation(newOperation(new CountDownLatch(1), release))).isFalse();
+      assertThat(workQueue.getOpsRejectedDueToQueueFull()).isEqualTo(1);
+      assertThat(workQueue.size()).isEqualTo(1);
+      assertThat(workQueue.isIdle()).isFalse();
+
+      release.countDown();
+      assertThat(workQueue.waitUntilIdle(10000)).isTrue();
+      assertThat(workQueue.getOpsSubmitted()).isEqualTo(2);
+    }
+    finally
+    {
+      release.countDown();
+      workQueue.finalizeWorkQueue(LocalizableMessage.raw("test"));
+    }
+  }
+
+  @Test(timeOut = 30000)
+  public void testSubmitOperationBlocksWhenFull() throws Exception
+  {
+    ShardedWorkQueue workQueue = newWorkQueue(newConfiguration(1, 1));
+    CountDownLatch started = new CountDownLatch(1);
+    final CountDownLatch release = new CountDownLatch(1);
+    try
+    {
+      workQueue.submitOperation(newOperation(started, release));
+      assertThat(started.await(10, TimeUnit.SECONDS)).isTrue();
+      workQueue.submitOperation(newOperation(new CountDownLatch(1), release));
+
+      // The third operation can only be enqueued once the worker thread has picked up the second one
+      final CountDownLatch processed = new CountDownLatch(1);
+      new Thread()
+      {
+        @Override
+        public void run()
+        {
+          try
+          {
+            Thread.sleep(500);
+          }
+          catch (InterruptedException e)
+          {
+            Thread.currentThread().interrupt();
+          }
+          release.countDown();
+        }
+      }.start();
+      workQueue.submitOperation(newOperation(processed, release));
+
+      assertThat(processed.await(10, TimeUnit.SECONDS)).isTrue();
+      assertThat(workQueue.getOpsSubmitted()).isEqualTo(3);
+      assertThat(workQueue.getOpsRejectedDueToQueueFull()).isZero();
+    }
+    finally
+    {
+      release.countDown();
+      workQueue.finalizeWorkQueue(LocalizableMessage.raw("test"));
+    }
+  }
+
+  @Test(timeOut = 30000)
+  public void testFinalizeAbortsPendingOperations() throws Exception
+  {
+    ShardedWorkQueue workQueue = newWorkQueue(newConfiguration(1, 0));
+    CountDownLatch started = new CountDownLatch(1);
+    CountDownLatch release = new CountDownLatch(1);
+    try
+    {
+      workQueue.submitOperation(newOperation(started, release));
+      assertThat(started.await(10, TimeUnit.SECONDS)).isTrue();
+      Operation pending = newOperation(new CountDownLatch(1), release);
+      workQueue.submitOperation(pending);
+
+      workQueue.finalizeWorkQueue(LocalizableMessage.raw("test"));
+      verify(pending).abort(any(CancelRequest.class));
+      assertThat(workQueue.size()).isZero();
+    }
+    finally
+    {
+      release.countDown();
+    }
+
+    try
+    {
+      workQueue.submitOperation(newOperation(new CountDownLatch(1), release));
+      fail("Expected DirectoryException");
+    }
+    catch (DirectoryException expected)
+    {
+      assertThat(workQueue.getOpsSubmitted()).isEqualTo(2);
+    }
+  }
+
+  @Test(timeOut = 30000)
+  public void testFinalizeDoesNotStrandConcurrentlySubmittedOperations() throws Exception
+  {
+    assertFinalizeDoesNotStrandOperations(newWorkQueue(newConfiguration(2, 0)));
+  }
+
+  @Test(timeOut = 30000)
+  public void testChangingNumWorkerThreads() throws Exception
+  {
+    ShardedWorkQueue workQueue = newWorkQueue(newConfiguration(2, 0));
+    try
+    {
+      workQueue.applyConfigurationChange(newConfiguration(6, 0));
+      assertThat(workQueue.getNumWorkerThreads()).isEqualTo(6);
+      workQueue.applyConfigurationChange(newConfiguration(3, 0));
+      assertThat(workQueue.getNumWorkerThreads()).isEqualTo(3);
+
+      final int nbOperations = 1000;
+      CountDownLatch processed = new CountDownLatch(nbOperations);
+      for (int i = 0; i < nbOperations; i++)
+      {
+        workQueue.submitOperation(newOperation(processed));
+      }
+      assertThat(processed.await(20, TimeUnit.SECONDS)).isTrue();
+      assertThat(workQueue.getOpsSubmitted()).isEqualTo(nbOperations);
+    }
+    finally
+    {
+      workQueue.finalizeWorkQueue(LocalizableMessage.raw("test"));
+    }
+  }
+}
@@ -0,0 +1,138 @@
+/*
+ * The contents of this file are subject to the terms of the Common Development and
+ * Distribution License (the License). You may not use this file except in compliance with the
+ * License.
+ *
+ * You can obtain a copy of the License at legal/CDDLv1.0.txt. See the License for the
+ * specific language governing permission and limitations under the License.
+ *
+ * When distributing Covered Software, include this CDDL Header Notice in each file and include
+ * the License file at legal/CDDLv1.0.txt. If applicable, add the following below the CDDL
+ * Header, with the fields enclosed by brackets [] replaced by your own identifying
+ * information: "Portions Copyright [year] [name of copyright owner]".
+ *
+ * Copyright 2026 ForgeRock AS.
+ */
+package org.opends.server.plugins;
+
+import static org.assertj.core.api.Assertions.*;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+import org.forgerock.opendj.ldap.DN;
+import org.testng.annotations.AfterMethod;
+import org.testng.annotations.BeforeMethod;
+import org.testng.annotations.Test;
+
+@SuppressWarnings("javadoc")
+public class ReferentialIntegrityWorkLogTestCase extends PluginTestCase
+{
+  private static final DN USER1 = DN.valueOf("uid=user.1,ou=people,dc=example,dc=com");
+  private static final DN USER2 = DN.valueOf("uid=user.2,ou=people,dc=example,dc=com");
+  private static final DN USER3 = DN.valueOf("uid=user.3,ou=people,dc=example,dc=com");
+  private static final DN MOVED1 = DN.valueOf("uid=user.1,ou=moved,dc=example,dc=com");
+
+  private File logFile;
+
+  @BeforeMethod
+  public void createLogFile() throws IOException
+  {
+    logFile = File.createTempFile("referint", ".log");
+    logFile.delete();
+  }
+
+  @AfterMethod
+  public void deleteLogFile()
+  {
+    logFile.delete();
+    new File(logFile.getPath() + ReferentialIntegrityWorkLog.CHECKPOINT_FILE_SUFFIX).delete();
+  }
+
+  @Test
+  public void testEmptyLog() throws Exception
+  {
+    ReferentialIntegrityWorkLog workLog = new ReferentialIntegrityWorkLog(logFile);
+    assertThat(logFile).exists();
+    assertThat(workLog.getPendingRecords()).isEqualTo(0);
+    assertThat(workLog.readBatch(10)).isNull();
+  }
+
+  @Test
+  public void testReadBatches() throws Exception
+  {
+    ReferentialIntegrityWorkLog workLog = new ReferentialIntegrityWorkLog(logFile);
+    workLog.append(changes(USER1, MOVED1, USER2, null, USER3, null));
+    assertThat(workLog.getPendingRecords()).isEqualTo(3);
+
+    assertThat(workLog.readBatch(2)).isEqualTo(changes(USER1, MOVED1, USER2, null));
+    workLog.commitBatch();
+    assertThat(workLog.getPendingRecords()).isEqualTo(1);
+
+    assertThat(workLog.readBatch(2)).isEqualTo(changes(USER3, null));
+    workLog.commitBatch();
+    assertThat(workLog.getPendingRecords()).isEqualTo(0);
+    assertThat(workLog.readBatch(2)).isNull();
+    assertThat(logFile.length()).isEqualTo(0);
+  }
+
+  @Test
+  public void testUncommittedBatchIsReadAgain() throws Exception
+  {
+    ReferentialIntegrityWorkLog workLog = new ReferentialIntegrityWorkLog(logFile);
+    workLog.append(changes(USER1, null, USER2, null));
+    assertThat(workLog.readBatch(1)).isEqualTo(changes(USER1, null));
+    assertThat(workLog.readBatch(1)).isEqualTo(changes(USER1, null));
+  }
+
+  @Test
+  public void testCheckpointSurvivesRestart() throws Exception
+  {
+    ReferentialIntegrityWorkLog workLog = new ReferentialIntegrityWorkLog(logFile);
+    workLog.append(changes(USER1, null, USER2, null, USER3, null));
+    workLog.readBatch(1);
+    workLog.commitBatch();
+
+    workLog = new ReferentialIntegrityWorkLog(logFile);
+    assertThat(workLog.getPendingRecords()).isEqualTo(2);
+    assertThat(workLog.readBatch(10)).isEqualTo(changes(USER2, null, USER3, null));
+  }
+
+  @Test
+  public void testBatchEndsBeforeDependentChange() throws Exception
+  {
+    ReferentialIntegrityWorkLog workLog = new ReferentialIntegrityWorkLog(logFile);
+    workLog.append(changes(USER1, MOVED1, USER2, null));
+    workLog.append(changes(MOVED1, null));
+    workLog.append(changes(USER2, null));
+
+    assertThat(workLog.readBatch(10)).isEqualTo(changes(USER1, MOVED1, USER2, null));
+    workLog.commitBatch();
+    assertThat(workLog.readBatch(10)).isEqualTo(changes(MOVED1, null, USER2, null));
+  }
+
+  @Test
+  public void testReadLegacyLogWithIncompleteAndInvalidLines() throws Exception
+  {
+    Files.write(logFile.toPath(), (USER1 + "\n\nnot a DN\n" + USER2 + "\t" + MOVED1).getBytes("UTF-8"));
+
+    ReferentialIntegrityWorkLog workLog = new ReferentialIntegrityWorkLog(logFile);
+    assertThat(workLog.getPendingRecords()).isEqualTo(3);
+    assertThat(workLog.readBatch(10)).isEqualTo(changes(USER1, null, USER2, MOVED1));
+    workLog.commitBatch();
+    assertThat(workLog.getPendingRecords()).isEqualTo(0);
+  }
+
+  private static Map<DN, DN> changes(DN... dns)
+  {
+    Map<DN, DN> changes = new LinkedHashMap<>();
+    for (int i = 0; i < dns.length; i += 2)
+    {
+      changes.put(dns[i], dns[i + 1]);
+    }
+    return changes;
+  }
+}
@@ -41,9 +41,11 @@ import org.testng.annotations.Test;
 
 import static org.forgerock.opendj.ldap.ModificationType.*;
 import static org.forgerock.opendj.ldap.ResultCode.*;
+import static org.forgerock.opendj.ldap.controls.GenericControl.*;
 import static org.forgerock.opendj.ldap.requests.Requests.*;
 import static org.opends.server.core.DirectoryServer.*;
 import static org.opends.server.protocols.internal.InternalClientConnection.*;
+import static org.opends.server.util.ServerConstants.*;
 import static org.testng.Assert.*;
 
 /** Unit test to test the unique attribute plugin. */
@@ -54,6 +56,7 @@ public class UniqueAttributePluginTestCase extends PluginTestCase {
   private String testConfigDN;
   private String dsConfigAttrType="ds-cfg-type";
   private String dsConfigBaseDN="ds-cfg-base-dn";
+  private String dsConfigUseEqualityIndex="ds-cfg-use-equality-index";
 
   @BeforeClass
   public void startServer() throws Exception
@@ -73,6 +76,7 @@ public class UniqueAttributePluginTestCase extends PluginTestCase {
   public void clearConfigEntries() throws Exception {
     deleteAttrsFromEntry(uidConfigDN, dsConfigBaseDN);
     deleteAttrsFromEntry(testConfigDN, dsConfigBaseDN);
+    deleteAttrsFromEntry(uidConfigDN, dsConfigUseEqualityIndex);
     // Put an attribute type there that won't impact the rest of the unit tests.
     replaceAttrInEntry(uidConfigDN, dsConfigAttrType,"oncRpcNumber");
     replaceAttrInEntry(testConfigDN, dsConfigAttrType,"bootParameter");
@@ -481,6 +485,92 @@ public class UniqueAttributePluginTestCase extends PluginTestCase {
   }
 
 
+  /**
+   * Test attempting to add entries when conflicts are looked up in the
+   * equality indexes. The "dc=example,dc=com" naming context is stored in a
+   * pluggable backend, whose indexes are probed, while "o=test" is still
+   * searched.
+   *
+   * @throws Exception If an unexpected result occurs.
+   */
+  @Test
+  public void testAddOperationUsingEqualityIndex() throws Exception {
+    replaceAttrInEntry(uidConfigDN,dsConfigAttrType,"mail");
+    replaceAttrInEntry(uidConfigDN,dsConfigUseEqualityIndex,"true");
+    Entry e = makeEntry("cn=test user, ou=People,o=test");
+    addAttribute(e, "mail", "user77x@test");
+    //Fail because mail value "user77x@test" is in the equality index of
+    //the "dc=example,dc=com" naming context.
+    addEntry(e, CONSTRAINT_VIOLATION);
+    delAttribute(e, "mail");
+    //Fail because the equality index keys are normalized.
+    addAttribute(e, "mail", "USER77X@TEST");
+    addEntry(e, CONSTRAINT_VIOLATION);
+    delAttribute(e, "mail");
+    //Fail because mail value "user1t@test" is found by searching "o=test".
+    addAttribute(e, "mail", "user1t@test");
+    addEntry(e, CONSTRAINT_VIOLATION);
+    delAttribute(e, "mail");
+    //Pass because the mail value is not used in any naming context.
+    e = makeEntry("cn=test user, ou=People,dc=example,dc=com");
+    addAttribute(e, "mail", "unique.user@test");
+    addEntry(e, SUCCESS);
+    //Modifying the entry itself does not conflict with its own value.
+    doMods(newModifyRequest("cn=test user, ou=People,dc=example,dc=com")
+        .addModification(REPLACE, "mail", "unique.user@test"), SUCCESS);
+    //Fail because the value has just been added to the index.
+    Entry e2 = makeEntry("cn=test user2, ou=People,dc=example,dc=com");
+    addAttribute(e2, "mail", "unique.user@test");
+    addEntry(e2, CONSTRAINT_VIOLATION);
+    assertEquals(getRootConnection().processDelete("cn=test user, ou=People,dc=example,dc=com").getResultCode(),
+        SUCCESS);
+  }
+
+
+  /**
+   * Test that subentries and referral entries are not reported as conflicts
+   * when conflicts are looked up in the equality indexes, since the internal
+   * search does not return them either.
+   *
+   * @throws Exception If an unexpected result occurs.
+   */
+  @Test
+  public void testEqualityIndexIgnoresSubentriesAndReferrals() throws Exception {
+    replaceAttrInEntry(uidConfigDN,dsConfigAttrType,"mail");
+    replaceAttrInEntry(uidConfigDN,dsConfigUseEqualityIndex,"true");
+    addEntry(TestCaseUtils.makeEntry(
+        "dn: cn=unique subentry,dc=example,dc=com",
+        "objectClass: top",
+        "objectClass: ldapSubentry",
+        "objectClass: extensibleObject",
+        "cn: unique subentry",
+        "mail: subentry.user@test"), SUCCESS);
+    addEntry(TestCaseUtils.makeEntry(
+        "dn: cn=unique referral,dc=example,dc=com",
+        "objectClass: top",
+        "objectClass: referral",
+        "objectClass: extensibleObject",
+        "cn: unique referral",
+        "ref: ldap://example.com:389/dc=example,dc=com",
+        "mail: referral.user@test"), SUCCESS);
+    try
+    {
+      //Pass because neither the subentry nor the referral entry are returned by a search.
+      Entry e = makeEntry("cn=test user, ou=People,dc=example,dc=com");
+      addAttribute(e, "mail", "subentry.user@test", "referral.user@test");
+      addEntry(e, SUCCESS);
+      assertEquals(getRootConnection().processDelete("cn=test user, ou=People,dc=example,dc=com").getResultCode(),
+          SUCCESS);
+    }
+    finally
+    {
+      getRootConnection().processDelete("cn=unique subentry,dc=example,dc=com");
+      getRootConnection().processDelete(newDeleteRequest("cn=unique referral,dc=example,dc=com")
+          .addControl(newControl(OID_MANAGE_DSAIT_CONTROL, true)));
+    }
+  }
+
+
   /**
    * Create entries under the specified suffix and add them to the server.
    * The character argument is used to make the mail attribute unique.
@@ -12,7 +12,7 @@
  * information: "Portions Copyright [year] [name of copyright owner]".
  *
  * Copyright 2007-2010 Sun Microsystems, Inc.
- * Portions Copyright 2011-2016 ForgeRock AS.
+ * Portions Copyright 2011-2026 ForgeRock AS.
  */
 package org.opends.server.replication.plugin;
 
@@ -64,6 +64,7 @@ public class DomainFakeCfg implements ReplicationDomainCfg
   private ExternalChangelogDomainCfg eclCfg =
     new ExternalChangelogDomainFakeCfg(true, null, null);
   private int windowSize = 100;
+  private boolean sessionCompressionEnabled;
 
   /**
    * Creates a new Domain with the provided information
@@ -281,6 +282,18 @@ public class DomainFakeCfg implements ReplicationDomainCfg
     return 100;
   }
 
+  @Override
+  public boolean isSessionCompressionEnabled()
+  {
+    return sessionCompressionEnabled;
+  }
+
+  /** Set whether the messages published to the replication server are compressed. */
+  public void setSessionCompressionEnabled(boolean sessionCompressionEnabled)
+  {
+    this.sessionCompressionEnabled = sessionCompressionEnabled;
+  }
+
   /**
    * Gets the ECL Domain if it is present.
    *
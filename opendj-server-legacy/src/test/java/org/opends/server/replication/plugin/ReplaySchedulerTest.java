@@ -0,0 +1,296 @@
+/*
+ * The contents of this file are subject to the terms of the Common Development and
+ * Distribution License (the License). You may not use this file except in compliance with the
+ * License.
+ *
+ * You can obtain a copy of the License at legal/CDDLv1.0.txt. See the License for the
+ * specific language governing permission and limitations under the License.
+ *
+ * When distributing Covered Software, include this CDDL Header Notice in each file and include
+ * the License file at legal/CDDLv1.0.txt. If applicable, add the following below the CDDL
+ * Header, with the fields enclosed by brackets [] replaced by your own identifying
+ * information: "Portions Copyright [year] [name of copyright owner]".
+ *
+ * Copyright 2026 ForgeRock AS.
+ */
+package org.opends.server.replication.plugin;
+
+import static org.assertj.core.api.Assertions.*;
+import static org.opends.server.TestCaseUtils.*;
+import static org.opends.server.replication.plugin.ReplayScheduler.*;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.LinkedBlockingQueue;
+
+import org.forgerock.opendj.ldap.DN;
+import org.opends.server.replication.ReplicationTestCase;
+import org.opends.server.replication.common.CSN;
+import org.opends.server.replication.plugin.ReplayScheduler.ScheduledUpdate;
+import org.opends.server.replication.protocol.AddMsg;
+import org.opends.server.replication.protocol.DeleteMsg;
+import org.opends.server.replication.protocol.LDAPUpdateMsg;
+import org.opends.server.replication.protocol.ModifyDNMsg;
+import org.opends.server.replication.protocol.ModifyMsg;
+import org.opends.server.types.Entry;
+import org.opends.server.types.Modification;
+import org.testng.annotations.BeforeMethod;
+import org.testng.annotations.Test;
+
+/** Tests the ordering of the updates scheduled for replay by the {@link ReplayScheduler}. */
+@SuppressWarnings("javadoc")
+public class ReplaySchedulerTest extends ReplicationTestCase
+{
+  private BlockingQueue<UpdateToReplay> queue;
+  private ReplayScheduler scheduler;
+  /** The CSNs of the updates marked as in progress, in the order they were marked. */
+  private List<CSN> markedInProgress;
+  private int nextSeqNum;
+
+  /** An update which records when it is marked as in progress, instead of notifying its domain. */
+  private final class TestUpdateToReplay extends UpdateToReplay
+  {
+    private TestUpdateToReplay(LDAPUpdateMsg updateMessage)
+    {
+      super(updateMessage, null);
+    }
+
+    @Override
+    void markInProgress()
+    {
+      markedInProgress.add(getUpdateMessage().getCSN());
+    }
+  }
+
+  @BeforeMethod
+  public void createScheduler()
+  {
+    queue = new LinkedBlockingQueue<>();
+    scheduler = new ReplayScheduler(queue);
+    markedInProgress = Collections.synchronizedList(new ArrayList<CSN>());
+    nextSeqNum = 0;
+  }
+
+  @Test
+  public void testSameDNUpdatesReplayInCSNOrder() throws Exception
+  {
+    scheduler.setNumberOfPartitions(4);
+    final LDAPUpdateMsg modify1 = receive(modify("cn=entry,dc=example,dc=com"));
+    final LDAPUpdateMsg modify2 = receive(modify("cn=entry,dc=example,dc=com"));
+    final LDAPUpdateMsg modify3 = receive(modify("cn=entry,dc=example,dc=com"));
+
+    final ScheduledUpdate update1 = assertTakes(modify1);
+    assertThat(scheduler.takeUpdate()).as("must wait for the first modify").isNull();
+    scheduler.updateReplayed(update1);
+
+    final ScheduledUpdate update2 = assertTakes(modify2);
+    assertThat(scheduler.takeUpdate()).as("must wait for the second modify").isNull();
+    scheduler.updateReplayed(update2);
+
+    scheduler.updateReplayed(assertTakes(modify3));
+    assertThat(markedInProgress).containsExactly(modify1.getCSN(), modify2.getCSN(), modify3.getCSN());
+  }
+
+  @Test
+  public void testChildAddReplaysAfterParentAdd() throws Exception
+  {
+    scheduler.setNumberOfPartitions(4);
+    final LDAPUpdateMsg addParent = receive(add("ou=parent,dc=example,dc=com"));
+    final LDAPUpdateMsg addChild = receive(add("cn=child,ou=parent,dc=example,dc=com"));
+
+    final ScheduledUpdate parentUpdate = assertTakes(addParent);
+    assertThat(scheduler.takeUpdate()).as("must wait for the parent add").isNull();
+    scheduler.updateReplayed(parentUpdate);
+
+    scheduler.updateReplayed(assertTakes(addChild));
+  }
+
+  @Test
+  public void testModifyDNReplaysInOrderWithOldAndNewParents() throws Exception
+  {
+    scheduler.setNumberOfPartitions(4);
+    final LDAPUpdateMsg addUnderOldParent = receive(add("cn=a,ou=old,dc=example,dc=com"));
+    final LDAPUpdateMsg modifyDN = receive(new ModifyDNMsg(DN.valueOf("cn=entry,ou=old,dc=example,dc=com"),
+        nextCSN(), "entryUUID", "newParentUUID", true, "ou=new,dc=example,dc=com", "cn=renamed"));
+    final LDAPUpdateMsg deleteOldParent = receive(delete("ou=old,dc=example,dc=com"));
+    final LDAPUpdateMsg addUnderNewParent = receive(add("cn=b,ou=new,dc=example,dc=com"));
+    final LDAPUpdateMsg modifyRenamed = receive(modify("cn=renamed,ou=new,dc=example,dc=com"));
+
+    final ScheduledUpdate firstUpdate = assertTakes(addUnderOldParent);
+    assertThat(scheduler.takeUpdate()).as("must wait for the add below the old parent").isNull();
+    scheduler.updateReplayed(firstUpdate);
+
+    final ScheduledUpdate modifyDNUpdate = assertTakes(modifyDN);
+    assertThat(scheduler.takeUpdate()).as("must wait for the modify DN").isNull();
+    scheduler.updateReplayed(modifyDNUpdate);
+
+    final List<LDAPUpdateMsg> replayed = new ArrayList<>();
+    for (int i = 0; i < 3; i++)
+    {
+      final ScheduledUpdate update = scheduler.takeUpdate();
+      assertThat(update).isNotNull();
+      replayed.add(update.getUpdateToReplay().getUpdateMessage());
+      scheduler.updateReplayed(update);
+    }
+    assertThat(replayed).containsOnly(deleteOldParent, addUnderNewParent, modifyRenamed);
+  }
+
+  @Test
+  public void testIndependentUpdatesReplayConcurrently() throws Exception
+  {
+    final int nbPartitions = 4;
+    scheduler.setNumberOfPartitions(nbPartitions);
+    final DN[] dns = dnsInDistinctPartitions(nbPartitions, 2);
+    final LDAPUpdateMsg modify1 = receive(modify(dns[0].toString()));
+    final LDAPUpdateMsg modify2 = receive(modify(dns[1].toString()));
+
+    final ScheduledUpdate update1 = scheduler.takeUpdate();
+    final ScheduledUpdate update2 = scheduler.takeUpdate();
+    assertThat(update1).isNotNull();
+    assertThat(update2).isNotNull();
+    assertThat(asList(update1, update2)).containsOnly(modify1, modify2);
+    scheduler.updateReplayed(update1);
+    scheduler.updateReplayed(update2);
+  }
+
+  @Test
+  public void testScheduledUpdatesAreBounded() throws Exception
+  {
+    scheduler.setNumberOfPartitions(4);
+    final int nbUpdates = MAX_SCHEDULED_UPDATES + 500;
+    final List<LDAPUpdateMsg> modifies = new ArrayList<>();
+    for (int i = 0; i < nbUpdates; i++)
+    {
+      modifies.add(receive(modify("cn=entry,dc=example,dc=com")));
+    }
+
+    final ScheduledUpdate update = assertTakes(modifies.get(0));
+    assertThat(queue).hasSize(nbUpdates - MAX_SCHEDULED_UPDATES);
+    assertThat(markedInProgress).hasSize(MAX_SCHEDULED_UPDATES);
+    assertThat(scheduler.takeUpdate()).as("must wait for the first modify").isNull();
+    assertThat(queue).hasSize(nbUpdates - MAX_SCHEDULED_UPDATES);
+
+    scheduler.updateReplayed(update);
+    scheduler.updateReplayed(assertTakes(modifies.get(1)));
+    assertThat(queue).hasSize(nbUpdates - MAX_SCHEDULED_UPDATES - 1);
+
+    for (int i = 2; i < nbUpdates; i++)
+    {
+      scheduler.updateReplayed(assertTakes(modifies.get(i)));
+    }
+    assertThat(queue).isEmpty();
+    assertThat(markedInProgress).hasSize(nbUpdates);
+  }
+
+  @Test
+  public void testChangeNumberOfPartitionsKeepsOrder() throws Exception
+  {
+    final int nbPartitions = 4;
+    scheduler.setNumberOfPartitions(1);
+    final DN[] dns = dnsInDistinctPartitions(nbPartitions, 2);
+    final List<LDAPUpdateMsg> modifies1 = new ArrayList<>();
+    final List<LDAPUpdateMsg> modifies2 = new ArrayList<>();
+    for (int i = 0; i < 3; i++)
+    {
+      modifies1.add(receive(modify(dns[0].toString())));
+      modifies2.add(receive(modify(dns[1].toString())));
+    }
+
+    // A single partition replays one update at a time
+    final ScheduledUpdate first = assertTakes(modifies1.get(0));
+    assertThat(scheduler.takeUpdate()).as("must wait for the first modify").isNull();
+    scheduler.updateReplayed(first);
+
+    // Partitioning again the scheduled updates lets independent updates replay concurrently
+    scheduler.setNumberOfPartitions(nbPartitions);
+    final ScheduledUpdate update1 = scheduler.takeUpdate();
+    final ScheduledUpdate update2 = scheduler.takeUpdate();
+    assertThat(update1).isNotNull();
+    assertThat(update2).isNotNull();
+    assertThat(asList(update1, update2)).containsOnly(modifies1.get(1), modifies2.get(0));
+    assertThat(scheduler.takeUpdate()).as("must wait for the modifies of the same entries").isNull();
+    scheduler.updateReplayed(update1);
+    scheduler.updateReplayed(update2);
+
+    final List<LDAPUpdateMsg> replayed = new ArrayList<>();
+    for (int i = 0; i < 3; i++)
+    {
+      final ScheduledUpdate update = scheduler.takeUpdate();
+      assertThat(update).isNotNull();
+      replayed.add(update.getUpdateToReplay().getUpdateMessage());
+      scheduler.updateReplayed(update);
+    }
+    assertThat(replayed).containsOnly(modifies1.get(2), modifies2.get(1), modifies2.get(2));
+    assertThat(replayed.indexOf(modifies2.get(1))).isLessThan(replayed.indexOf(modifies2.get(2)));
+  }
+
+  private LDAPUpdateMsg receive(LDAPUpdateMsg msg)
+  {
+    queue.add(new TestUpdateToReplay(msg));
+    return msg;
+  }
+
+  private ScheduledUpdate assertTakes(LDAPUpdateMsg expected) throws InterruptedException
+  {
+    final ScheduledUpdate update = scheduler.takeUpdate();
+    assertThat(update).isNotNull();
+    assertThat(update.getUpdateToReplay().getUpdateMessage()).isSameAs(expected);
+    return update;
+  }
+
+  private List<LDAPUpdateMsg> asList(ScheduledUpdate... updates)
+  {
+    final List<LDAPUpdateMsg> msgs = new ArrayList<>();
+    for (ScheduledUpdate update : updates)
+    {
+      msgs.add(update.getUpdateToReplay().getUpdateMessage());
+    }
+    return msgs;
+  }
+
+  /** Returns DNs whose modifies are scheduled in distinct partitions. */
+  private DN[] dnsInDistinctPartitions(int nbPartitions, int nbDNs)
+  {
+    final DN[] dns = new DN[nbDNs];
+    final boolean[] usedPartitions = new boolean[nbPartitions];
+    int found = 0;
+    for (int i = 0; found < nbDNs; i++)
+    {
+      final DN dn = DN.valueOf("cn=entry" + i + ",dc=example,dc=com");
+      final int partition = (dn.hashCode() & Integer.MAX_VALUE) % nbPartitions;
+      if (!usedPartitions[partition])
+      {
+        usedPartitions[partition] = true;
+        dns[found++] = dn;
+      }
+    }
+    return dns;
+  }
+
+  private CSN nextCSN()
+  {
+    return new CSN(System.currentTimeMillis(), nextSeqNum++, 1);
+  }
+
+  private LDAPUpdateMsg modify(String dn)
+  {
+    return new ModifyMsg(nextCSN(), DN.valueOf(dn), Collections.<Modification> emptyList(), "entryUUID");
+  }
+
+  private LDAPUpdateMsg delete(String dn)
+  {
+    return new DeleteMsg(DN.valueOf(dn), nextCSN(), "entryUUID");
+  }
+
+  private LDAPUpdateMsg add(String dn) throws Exception
+  {
+    final Entry entry = makeEntry(
+        "dn: " + dn,
+        "objectClass: top",
+        "objectClass: extensibleObject");
+    return new AddMsg(nextCSN(), entry.getName(), "entryUUID", "parentUUID",
+        entry.getObjectClassAttribute(), entry.getAllAttributes(), null);
+  }
+}
@@ -0,0 +1,376 @@
+/*
+ * The contents of this file are subject to the terms of the Common Development and
+ * Distribution License (the License). You may not use this file except in compliance with the
+ * License.
+ *
+ * You can obtain a copy of the License at legal/CDDLv1.0.txt. See the License for the
+ * specific language governing permission and limitations under the License.
+ *
+ * When distributing Covered Software, include this CDDL Header Notice in each file and include
+ * the License file at legal/CDDLv1.0.txt. If applicable, add the following below the CDDL
+ * Header, with the fields enclosed by brackets [] replaced by your own identifying
+ * information: "Portions Copyright [year] [name of copyright owner]".
+ *
+ * Copyright 2026 ForgeRock AS.
+ */
+package org.opends.server.replication.protocol;
+
+import static org.assertj.core.api.Assertions.*;
+import static org.mockito.Mockito.*;
+import static org.opends.server.TestCaseUtils.*;
+
+import java.io.ByteArrayOutputStream;
+import java.io.Closeable;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.net.InetAddress;
+import java.net.ServerSocket;
+import java.net.Socket;
+import java.nio.ByteBuffer;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.zip.DataFormatException;
+import java.util.zip.Deflater;
+
+import javax.net.ssl.SSLSocket;
+
+import org.opends.server.replication.ReplicationTestCase;
+import org.opends.server.util.StaticUtils;
+import org.testng.annotations.AfterMethod;
+import org.testng.annotations.DataProvider;
+import org.testng.annotations.Test;
+
+/** Tests the framing of the messages sent and received by a {@link Session}. */
+@SuppressWarnings("javadoc")
+public class SessionTest extends ReplicationTestCase
+{
+  private static final int NB_MESSAGES = 20;
+
+  private final List<Closeable> closeables = new ArrayList<>();
+
+  /** The frames relayed from a sending session to a receiving session. */
+  private static final class Frame
+  {
+    private final byte[] header;
+
+    private Frame(byte[] header)
+    {
+      this.header = header;
+    }
+
+    private boolean isBatch()
+    {
+      return header[0] == '#';
+    }
+
+    private boolean isCompressed()
+    {
+      return isBatch() && (header[1] & 0x01) != 0;
+    }
+
+    private int getNbMessages()
+    {
+      return isBatch() ? ByteBuffer.wrap(header, 2, 2).getShort() & 0xFFFF : 1;
+    }
+
+    private int getLength()
+    {
+      return isBatch() ? ByteBuffer.wrap(header, 4, 4).getInt() : Integer.parseInt(new String(header), 16);
+    }
+  }
+
+  @AfterMethod
+  public void closeSessions()
+  {
+    StaticUtils.close(closeables);
+    closeables.clear();
+  }
+
+  @DataProvider
+  public Object[][] compression()
+  {
+    return new Object[][] { { false }, { true } };
+  }
+
+  @Test(dataProvider = "compression")
+  public void testBatchFrameRoundTrip(boolean isCompressionEnabled) throws Exception
+  {
+    final Socket[] senderSockets = newSocketPair();
+    final Socket[] receiverSockets = newSocketPair();
+    final Session sender = newSession(senderSockets[0]);
+    final Session receiver = newSession(receiverSockets[0]);
+    sender.setFraming(500, isCompressionEnabled);
+    sender.start();
+    sender.waitForStartup();
+
+    final List<ReplicationMsg> msgs = newMessages();
+    for (ReplicationMsg msg : msgs)
+    {
+      sender.publish(msg);
+    }
+
+    final List<Frame> frames = relayFrames(senderSockets[1], receiverSockets[1], NB_MESSAGES);
+    assertThat(frames.size()).isLessThan(NB_MESSAGES);
+    assertThat(frames.get(0).isBatch()).isTrue();
+    assertThat(frames.get(0).isCompressed()).isEqualTo(isCompressionEnabled);
+    assertReceived(receiver, msgs);
+  }
+
+  @Test
+  public void testLargeMessagesAreSentInTheirOwnFrame() throws Exception
+  {
+    final Socket[] senderSockets = newSocketPair();
+    final Socket[] receiverSockets = newSocketPair();
+    final Session sender = newSession(senderSockets[0]);
+    final Session receiver = newSession(receiverSockets[0]);
+    sender.setFraming(500, true);
+    sender.start();
+    sender.waitForStartup();
+
+    final byte[] largeEntry = new byte[2 * 1024 * 1024];
+    final List<ReplicationMsg> msgs = Arrays.<ReplicationMsg> asList(
+        new WindowMsg(1), new EntryMsg(1, 2, largeEntry, 2), new WindowMsg(3));
+    for (ReplicationMsg msg : msgs)
+    {
+      sender.publish(msg);
+    }
+
+    for (Frame frame : relayFrames(senderSockets[1], receiverSockets[1], msgs.size()))
+    {
+      if (frame.getLength() > largeEntry.length)
+      {
+        assertThat(frame.isBatch()).as("the large entry must be sent in its own frame").isFalse();
+      }
+    }
+    assertReceived(receiver, msgs);
+  }
+
+  @Test
+  public void testLegacyFramesWithV8Peer() throws Exception
+  {
+    final Socket[] senderSockets = newSocketPair();
+    final Socket[] receiverSockets = newSocketPair();
+    final Session sender = newSession(senderSockets[0]);
+    final Session receiver = newSession(receiverSockets[0]);
+    sender.setProtocolVersion(ProtocolVersion.REPLICATION_PROTOCOL_V8);
+    receiver.setProtocolVersion(ProtocolVersion.REPLICATION_PROTOCOL_V8);
+    sender.setFraming(500, true);
+    sender.start();
+    sender.waitForStartup();
+
+    final List<ReplicationMsg> msgs = newMessages();
+    for (ReplicationMsg msg : msgs)
+    {
+      sender.publish(msg);
+    }
+
+    final List<Frame> frames = relayFrames(senderSockets[1], receiverSockets[1], NB_MESSAGES);
+    assertThat(frames).hasSize(NB_MESSAGES);
+    for (Frame frame : frames)
+    {
+      assertThat(frame.isBatch()).isFalse();
+    }
+    assertReceived(receiver, msgs);
+  }
+
+  @Test
+  public void testReceiveLegacyAndBatchFrames() throws Exception
+  {
+    final Socket[] sockets = newSocketPair();
+    final Session receiver = newSession(sockets[0]);
+    final byte[] msg1 = new WindowMsg(1).getBytes(ProtocolVersion.getCurrentVersion());
+    final byte[] msg2 = new WindowMsg(2).getBytes(ProtocolVersion.getCurrentVersion());
+    final byte[] msg3 = new WindowMsg(3).getBytes(ProtocolVersion.getCurrentVersion());
+
+    final OutputStream out = sockets[1].getOutputStream();
+    out.write(String.format("%08x", msg1.length).getBytes());
+    out.write(msg1);
+    out.write(batchFrame(0, 2, messages(msg2, msg3)));
+    out.flush();
+
+    assertThat(((WindowMsg) receiver.receive()).getNumAck()).isEqualTo(1);
+    assertThat(((WindowMsg) receiver.receive()).getNumAck()).isEqualTo(2);
+    assertThat(((WindowMsg) receiver.receive()).getNumAck()).isEqualTo(3);
+  }
+
+  @DataProvider
+  public Object[][] invalidBatchFrames() throws Exception
+  {
+    final byte[] msg = new WindowMsg(1).getBytes(ProtocolVersion.getCurrentVersion());
+    final byte[] messages = messages(msg);
+    return new Object[][] {
+      { "no messages", batchFrame(0, 0, messages) },
+      { "negative length", header(0, 1, -1) },
+      { "oversized", header(0, 1, Integer.MAX_VALUE) },
+      { "oversized message", batchFrame(0, 1, concat(int32(Integer.MAX_VALUE), msg)) },
+      { "truncated message", batchFrame(0, 1, Arrays.copyOf(messages, messages.length - 1)) },
+      { "missing message", batchFrame(0, 2, messages) },
+      { "extra message", batchFrame(0, 1, messages(msg, msg)) },
+      { "oversized uncompressed", batchFrame(1, 1, concat(int32(Integer.MAX_VALUE), deflate(messages))) },
+      { "negative uncompressed", batchFrame(1, 1, concat(int32(-1), deflate(messages))) },
+      { "truncated compressed", batchFrame(1, 1, concat(int32(messages.length + 100), deflate(messages))) },
+    };
+  }
+
+  @Test(dataProvider = "invalidBatchFrames", expectedExceptions = DataFormatException.class)
+  public void testRejectInvalidBatchFrame(String description, byte[] frame) throws Exception
+  {
+    final Socket[] sockets = newSocketPair();
+    final Session receiver = newSession(sockets[0]);
+    final OutputStream out = sockets[1].getOutputStream();
+    out.write(frame);
+    out.flush();
+
+    receiver.receive();
+  }
+
+  @Test(expectedExceptions = IOException.class)
+  public void testRejectFrameTruncatedByPeer() throws Exception
+  {
+    final Socket[] sockets = newSocketPair();
+    final Session receiver = newSession(sockets[0]);
+    final OutputStream out = sockets[1].getOutputStream();
+    out.write(header(0, 1, 100));
+    out.write(new byte[10]);
+    out.flush();
+    sockets[1].shutdownOutput();
+
+    receiver.receive();
+  }
+
+  private List<ReplicationMsg> newMessages()
+  {
+    final List<ReplicationMsg> msgs = new ArrayList<>();
+    for (int i = 0; i < NB_MESSAGES / 2; i++)
+    {
+      final byte[] entry = new byte[1000];
+      Arrays.fill(entry, (byte) ('a' + i));
+      msgs.add(new WindowMsg(i));
+      msgs.add(new EntryMsg(1, 2, entry, i));
+    }
+    return msgs;
+  }
+
+  private void assertReceived(Session receiver, List<ReplicationMsg> expectedMsgs) throws Exception
+  {
+    for (ReplicationMsg expected : expectedMsgs)
+    {
+      final ReplicationMsg received = receiver.receive();
+      assertThat(received).isInstanceOf(expected.getClass());
+      if (expected instanceof WindowMsg)
+      {
+        assertThat(((WindowMsg) received).getNumAck()).isEqualTo(((WindowMsg) expected).getNumAck());
+      }
+      else
+      {
+        final EntryMsg expectedEntry = (EntryMsg) expected;
+        final EntryMsg receivedEntry = (EntryMsg) received;
+        assertThat(receivedEntry.getMsgId()).isEqualTo(expectedEntry.getMsgId());
+        assertThat(receivedEntry.getEntryBytes()).isEqualTo(expectedEntry.getEntryBytes());
+      }
+    }
+  }
+
+  /** Forwards the frames read from the sending side to the receiving side, until it got all the messages. */
+  private List<Frame> relayFrames(Socket from, Socket to, int nbMessages) throws IOException
+  {
+    final DataInputStream in = new DataInputStream(from.getInputStream());
+    final OutputStream out = to.getOutputStream();
+    final List<Frame> frames = new ArrayList<>();
+    int nbRelayedMessages = 0;
+    while (nbRelayedMessages < nbMessages)
+    {
+      final byte[] header = new byte[8];
+      in.readFully(header);
+      final Frame frame = new Frame(header);
+      final byte[] content = new byte[frame.getLength()];
+      in.readFully(content);
+      out.write(header);
+      out.write(content);
+      frames.add(frame);
+      nbRelayedMessages += frame.getNbMessages();
+    }
+    out.flush();
+    return frames;
+  }
+
+  private Socket[] newSocketPair() throws IOException
+  {
+    try (ServerSocket serverSocket = bindFreePort())
+    {
+      final Socket client = new Socket(InetAddress.getLoopbackAddress(), serverSocket.getLocalPort());
+      closeables.add(client);
+      final Socket server = serverSocket.accept();
+      closeables.add(server);
+      client.setSoTimeout(10000);
+      server.setSoTimeout(10000);
+      return new Socket[] { client, server };
+    }
+  }
+
+  /** Creates a session on the provided socket, as if the security layer had already been stopped. */
+  private Session newSession(Socket socket) throws IOException
+  {
+    final SSLSocket secureSocket = mock(SSLSocket.class);
+    when(secureSocket.getInputStream()).thenReturn(socket.getInputStream());
+    when(secureSocket.getOutputStream()).thenReturn(socket.getOutputStream());
+    final Session session = new Session(socket, secureSocket);
+    closeables.add(session);
+    return session;
+  }
+
+  private static byte[] header(int flags, int nbMessages, int length)
+  {
+    return ByteBuffer.allocate(8).put((byte) '#').put((byte) flags).putShort((short) nbMessages).putInt(length).array();
+  }
+
+  private static byte[] batchFrame(int flags, int nbMessages, byte[] content)
+  {
+    return concat(header(flags, nbMessages, content.length), content);
+  }
+
+  /** Returns the content of a batch frame holding the provided messages. */
+  private static byte[] messages(byte[]... msgs) throws IOException
+  {
+    final ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+    final DataOutputStream out = new DataOutputStream(bytes);
+    for (byte[] msg : msgs)
+    {
+      out.writeInt(msg.length);
+      out.write(msg);
+    }
+    return bytes.toByteArray();
+  }
+
+  private static byte[] deflate(byte[] content)
+  {
+    final Deflater deflater = new Deflater();
+    try
+    {
+      deflater.setInput(content);
+      deflater.finish();
+      final byte[] buffer = new byte[content.length + 64];
+      final int length = deflater.deflate(buffer);
+      return Arrays.copyOf(buffer, length);
+    }
+    finally
+    {
+      deflater.end();
+    }
+  }
+
+  private static byte[] int32(int value)
+  {
+    return ByteBuffer.allocate(4).putInt(value).array();
+  }
+
+  private static byte[] concat(byte[] first, byte[] second)
+  {
+    final byte[] result = Arrays.copyOf(first, first.length + second.length);
+    System.arraycopy(second, 0, result, first.length, second.length);
+    return result;
+  }
+}
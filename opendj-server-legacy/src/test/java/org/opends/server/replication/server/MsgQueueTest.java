@@ -0,0 +1,150 @@
+/*
+ * The contents of this file are subject to the terms of the Common Development and
+ * Distribution License (the License). You may not use this file except in compliance with the
+ * License.
+ *
+ * You can obtain a copy of the License at legal/CDDLv1.0.txt. See the License for the
+ * specific language governing permission and limitations under the License.
+ *
+ * When distributing Covered Software, include this CDDL Header Notice in each file and include
+ * the License file at legal/CDDLv1.0.txt. If applicable, add the following below the CDDL
+ * Header, with the fields enclosed by brackets [] replaced by your own identifying
+ * information: "Portions Copyright [year] [name of copyright owner]".
+ *
+ * Copyright 2026 ForgeRock AS.
+ */
+package org.opends.server.replication.server;
+
+import static org.assertj.core.api.Assertions.*;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+
+import org.opends.server.DirectoryServerTestCase;
+import org.opends.server.replication.common.CSN;
+import org.opends.server.replication.protocol.UpdateMsg;
+import org.testng.annotations.Test;
+
+@SuppressWarnings("javadoc")
+public class MsgQueueTest extends DirectoryServerTestCase
+{
+  private static UpdateMsg newUpdateMsg(int timestamp, int serverId)
+  {
+    return new UpdateMsg(new CSN(timestamp, 0, serverId), new byte[timestamp % 7]);
+  }
+
+  @Test
+  public void testOrderingAndAccounting() throws Exception
+  {
+    final MsgQueue queue = new MsgQueue();
+    final UpdateMsg msg1 = newUpdateMsg(1, 1);
+    final UpdateMsg msg2 = newUpdateMsg(2, 1);
+    final UpdateMsg msg3 = newUpdateMsg(3, 2);
+
+    queue.add(msg3);
+    queue.add(msg1);
+    queue.add(msg2);
+    // adding the same message again does not change the queue
+    queue.add(msg2);
+
+    assertThat(queue.count()).isEqualTo(3);
+    assertThat(queue.bytesCount()).isEqualTo(msg1.size() + msg2.size() + msg3.size());
+    assertThat(queue.first()).isSameAs(msg1);
+    assertThat(queue.contains(msg2)).isTrue();
+
+    queue.consumeUpTo(msg2);
+    assertThat(queue.count()).isEqualTo(1);
+    assertThat(queue.bytesCount()).isEqualTo(msg3.size());
+    assertThat(queue.removeFirst()).isSameAs(msg3);
+
+    assertThat(queue.isEmpty()).isTrue();
+    assertThat(queue.removeFirst()).isNull();
+    assertThat(queue.first()).isNull();
+    assertThat(queue.count()).isZero();
+    assertThat(queue.bytesCount()).isZero();
+  }
+
+  @Test
+  public void testConsumeUpToAbsentMessageRemovesAllMessages() throws Exception
+  {
+    final MsgQueue queue = new MsgQueue();
+    final UpdateMsg msg1 = newUpdateMsg(1, 1);
+    final UpdateMsg msg3 = newUpdateMsg(3, 1);
+    queue.add(msg1);
+    queue.add(msg3);
+
+    queue.consumeUpTo(newUpdateMsg(2, 1));
+    assertThat(queue.isEmpty()).isTrue();
+    assertThat(queue.count()).isZero();
+    assertThat(queue.bytesCount()).isZero();
+
+    // consuming an empty queue does nothing
+    queue.consumeUpTo(msg1);
+    assertThat(queue.isEmpty()).isTrue();
+  }
+
+  @Test
+  public void testConcurrentProducersSingleConsumer() throws Exception
+  {
+    final int nbProducers = 8;
+    final int nbMsgsPerProducer = 5000;
+    final MsgQueue queue = new MsgQueue();
+    final ExecutorService executor = Executors.newFixedThreadPool(nbProducers);
+    try
+    {
+      final List<Future<Void>> producers = new ArrayList<>();
+      for (int i = 1; i <= nbProducers; i++)
+      {
+        final int serverId = i;
+        producers.add(executor.submit(new Callable<Void>()
+        {
+          @Override
+          public Void call() throws Exception
+          {
+            for (int t = 1; t <= nbMsgsPerProducer; t++)
+            {
+              queue.add(newUpdateMsg(t, serverId));
+            }
+            return null;
+          }
+        }));
+      }
+
+      final CSN[] lastCSNs = new CSN[nbProducers + 1];
+      int nbConsumed = 0;
+      while (nbConsumed < nbProducers * nbMsgsPerProducer)
+      {
+        final UpdateMsg msg = queue.removeFirst();
+        if (msg == null)
+        {
+          Thread.yield();
+          continue;
+        }
+        nbConsumed++;
+        // each producer adds its messages in CSN order, so they must be consumed in the same order
+        final int serverId = msg.getCSN().getServerId();
+        if (lastCSNs[serverId] != null)
+        {
+          assertThat(msg.getCSN()).isGreaterThan(lastCSNs[serverId]);
+        }
+        lastCSNs[serverId] = msg.getCSN();
+      }
+      for (Future<Void> producer : producers)
+      {
+        producer.get();
+      }
+
+      assertThat(queue.isEmpty()).isTrue();
+      assertThat(queue.count()).isZero();
+      assertThat(queue.bytesCount()).isZero();
+    }
+    finally
+    {
+      executor.shutdownNow();
+    }
+  }
+}
@@ -12,7 +12,7 @@
  * information: "Portions Copyright [year] [name of copyright owner]".
  *
  * Copyright 2007-2009 Sun Microsystems, Inc.
- * Portions Copyright 2013-2016 ForgeRock AS.
+ * Portions Copyright 2013-2026 ForgeRock AS.
  */
 package org.opends.server.replication.server;
 
@@ -60,6 +60,8 @@ public class ReplServerFakeConfiguration implements ReplicationServerCfg
   /** The monitoring publisher period. */
   private long monitoringPeriod = 3000;
   private boolean computeChangenumber;
+  private boolean changelogMemoryMappingEnabled;
+  private boolean sessionCompressionEnabled;
 
   /** Constructor without group id, assured info and weight. */
   public ReplServerFakeConfiguration(
@@ -272,6 +274,34 @@ public class ReplServerFakeConfiguration implements ReplicationServerCfg
     this.computeChangenumber = computeChangenumber;
   }
 
+  @Override
+  public boolean isChangelogMemoryMappingEnabled()
+  {
+    return changelogMemoryMappingEnabled;
+  }
+
+  public void setChangelogMemoryMappingEnabled(boolean changelogMemoryMappingEnabled)
+  {
+    this.changelogMemoryMappingEnabled = changelogMemoryMappingEnabled;
+  }
+
+  @Override
+  public long getSessionBatchMaxDelay()
+  {
+    return 0;
+  }
+
+  @Override
+  public boolean isSessionCompressionEnabled()
+  {
+    return sessionCompressionEnabled;
+  }
+
+  public void setSessionCompressionEnabled(boolean sessionCompressionEnabled)
+  {
+    this.sessionCompressionEnabled = sessionCompressionEnabled;
+  }
+
   public void setConfidentialityEnabled(boolean confidentialityEnabled)
   {
     this.confidentialityEnabled = confidentialityEnabled;
@@ -11,13 +11,19 @@
  * Header, with the fields enclosed by brackets [] replaced by your own identifying
  * information: "Portions Copyright [year] [name of copyright owner]".
  *
- * Copyright 2014-2016 ForgeRock AS.
+ * Copyright 2014-2026 ForgeRock AS.
  */
 package org.opends.server.replication.server.changelog.file;
 
 import java.io.File;
 import java.io.IOException;
 import java.io.RandomAccessFile;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
 
 import org.forgerock.i18n.LocalizableMessage;
 import org.forgerock.opendj.ldap.ByteSequenceReader;
@@ -189,6 +195,159 @@ public class LogFileTest extends DirectoryServerTestCase
     }
   }
 
+  @Test(dataProvider="cursorPositionTo")
+  public void testMemoryMappedCursorPositionTo(String key, KeyMatchingStrategy matchingStrategy,
+      PositionStrategy positionStrategy, boolean positionShouldBeFound, int cursorShouldStartAt,
+      int cursorShouldEndAt) throws Exception
+  {
+    try (LogFile<String, String> changelog = LogFile.newReadOnlyLogFile(TEST_LOG_FILE, RECORD_PARSER, true);
+        LogFileCursor<String, String> cursor = changelog.getCursor())
+    {
+      boolean success = cursor.positionTo(key, matchingStrategy, positionStrategy);
+
+      assertThat(success).isEqualTo(positionShouldBeFound);
+      if (cursorShouldStartAt >= 0)
+      {
+        assertThatCursorCanBeFullyRead(cursor, cursorShouldStartAt, cursorShouldEndAt);
+      }
+      else
+      {
+        assertThatCursorIsExhausted(cursor);
+      }
+    }
+  }
+
+  /** Test that a memory mapped cursor sees the records appended after it reached the end of the log file. */
+  @Test
+  public void testMemoryMappedCursorReadsAppendedRecords() throws Exception
+  {
+    try (LogFile<String, String> changelog = LogFile.newAppendableLogFile(TEST_LOG_FILE, RECORD_PARSER, true);
+        DBCursor<Record<String, String>> cursor = changelog.getCursor())
+    {
+      assertThatCursorCanBeFullyRead(cursor, 1, 10);
+
+      for (int i = 11; i <= 50; i++)
+      {
+        changelog.append(Record.from(String.format("key%02d", i), "value" + i));
+      }
+
+      for (int i = 11; i <= 50; i++)
+      {
+        assertThat(cursor.next()).as("next() value when i=" + i).isTrue();
+        assertThat(cursor.getRecord()).isEqualTo(Record.from(String.format("key%02d", i), "value" + i));
+      }
+      assertThatCursorIsExhausted(cursor);
+      assertThat(changelog.getNewestRecord()).isEqualTo(Record.from("key50", "value50"));
+    }
+  }
+
+  /**
+   * Test that memory mapped cursors tailing the log file concurrently read all the records appended
+   * while they read, across several mapped windows.
+   */
+  @Test(timeOut = 60000)
+  public void testMemoryMappedCursorsTailAppendedRecords() throws Exception
+  {
+    final int nbRecords = 20000;
+    final int nbReaders = 4;
+    ExecutorService executor = Executors.newFixedThreadPool(nbReaders);
+    try (LogFile<String, String> changelog = LogFile.newAppendableLogFile(TEST_LOG_FILE, RECORD_PARSER, true))
+    {
+      List<Future<Void>> readers = new ArrayList<>();
+      for (int r = 0; r < nbReaders; r++)
+      {
+        final DBCursor<Record<String, String>> cursor = changelog.getCursor();
+        assertThatCursorCanBeFullyRead(cursor, 1, 10);
+        readers.add(executor.submit(new Callable<Void>()
+        {
+          @Override
+          public Void call() throws Exception
+          {
+            try
+            {
+              int i = 1;
+              while (i <= nbRecords)
+              {
+                if (cursor.next())
+                {
+                  assertThat(cursor.getRecord()).isEqualTo(tailRecord(i));
+                  i++;
+                }
+                else
+                {
+                  Thread.sleep(1);
+                }
+              }
+              assertThatCursorIsExhausted(cursor);
+            }
+            finally
+            {
+              cursor.close();
+            }
+            return null;
+          }
+        }));
+      }
+
+      for (int i = 1; i <= nbRecords; i++)
+      {
+        changelog.append(tailRecord(i));
+      }
+      assertThat(changelog.getSizeInBytes()).isGreaterThan(2L * LogReaderPool.MAPPED_WINDOW_SIZE);
+
+      for (Future<Void> reader : readers)
+      {
+        reader.get();
+      }
+    }
+    finally
+    {
+      executor.shutdownNow();
+    }
+  }
+
+  /**
+   * Test that a memory mapped cursor keeps reading the window it holds after its read-only log file has been
+   * closed, and that the log file can then be purged.
+   */
+  @Test
+  public void testMemoryMappedCursorOnClosedReadOnlyLogFile() throws Exception
+  {
+    final int nbRecords = 20000;
+    try (LogFile<String, String> changelog = LogFile.newAppendableLogFile(TEST_LOG_FILE, RECORD_PARSER, false))
+    {
+      for (int i = 1; i <= nbRecords; i++)
+      {
+        changelog.append(tailRecord(i));
+      }
+    }
+
+    LogFile<String, String> changelog = LogFile.newReadOnlyLogFile(TEST_LOG_FILE, RECORD_PARSER, true);
+    try (DBCursor<Record<String, String>> cursor = changelog.getCursor())
+    {
+      for (int i = 1; i <= 10; i++)
+      {
+        assertThat(cursor.next()).isTrue();
+        assertThat(cursor.getRecord()).isEqualTo(Record.from(String.format("key%02d", i), "value" + i));
+      }
+      changelog.close();
+
+      // The records still come from the first mapped window, which is only unmapped once the cursor is closed
+      for (int i = 1; i <= 100; i++)
+      {
+        assertThat(cursor.next()).isTrue();
+        assertThat(cursor.getRecord()).isEqualTo(tailRecord(i));
+      }
+    }
+    changelog.delete();
+    assertThat(TEST_LOG_FILE.exists()).isFalse();
+  }
+
+  private Record<String, String> tailRecord(int i)
+  {
+    return Record.from(String.format("tail%06d", i), String.format("value%0120d", i));
+  }
+
   @Test
   public void testGetOldestRecord() throws Exception
   {
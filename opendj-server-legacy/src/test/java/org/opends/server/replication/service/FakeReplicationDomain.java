@@ -12,7 +12,7 @@
  * information: "Portions Copyright [year] [name of copyright owner]".
  *
  * Copyright 2008-2010 Sun Microsystems, Inc.
- * Portions Copyright 2013-2016 ForgeRock AS.
+ * Portions Copyright 2013-2026 ForgeRock AS.
  */
 package org.opends.server.replication.service;
 
@@ -50,18 +50,31 @@ public class FakeReplicationDomain extends ReplicationDomain
       SortedSet<String> replicationServers, int window, long heartbeatInterval,
       long generationId) throws ConfigException
   {
-    super(newConfig(baseDN, serverID, replicationServers, window, heartbeatInterval), generationId);
+    this(newConfig(baseDN, serverID, replicationServers, window, heartbeatInterval), generationId);
+  }
+
+  private FakeReplicationDomain(DomainFakeCfg config, long generationId) throws ConfigException
+  {
+    super(config, generationId);
     startPublishService();
     startListenService();
   }
 
   private static DomainFakeCfg newConfig(DN baseDN, int serverID,
       SortedSet<String> replicationServers, int window, long heartbeatInterval)
+  {
+    return newConfig(baseDN, serverID, replicationServers, window, heartbeatInterval, false);
+  }
+
+  private static DomainFakeCfg newConfig(DN baseDN, int serverID,
+      SortedSet<String> replicationServers, int window, long heartbeatInterval,
+      boolean isSessionCompressionEnabled)
   {
     DomainFakeCfg fakeCfg = new DomainFakeCfg(baseDN, serverID, replicationServers);
     fakeCfg.setHeartbeatInterval(heartbeatInterval);
     fakeCfg.setChangetimeHeartbeatInterval(500);
     fakeCfg.setWindowSize(window);
+    fakeCfg.setSessionCompressionEnabled(isSessionCompressionEnabled);
     return fakeCfg;
   }
 
@@ -85,7 +98,16 @@ public class FakeReplicationDomain extends ReplicationDomain
       String exportString, StringBuilder importString, int exportedEntryCount)
       throws ConfigException
   {
-    this(baseDN, serverID, replicationServers, 100, heartbeatInterval, 1);
+    this(baseDN, serverID, replicationServers, heartbeatInterval, exportString, importString, exportedEntryCount,
+        false);
+  }
+
+  FakeReplicationDomain(DN baseDN, int serverID,
+      SortedSet<String> replicationServers, long heartbeatInterval,
+      String exportString, StringBuilder importString, int exportedEntryCount,
+      boolean isSessionCompressionEnabled) throws ConfigException
+  {
+    this(newConfig(baseDN, serverID, replicationServers, 100, heartbeatInterval, isSessionCompressionEnabled), 1);
     this.exportString = exportString;
     this.importString = importString;
     this.exportedEntryCount = exportedEntryCount;
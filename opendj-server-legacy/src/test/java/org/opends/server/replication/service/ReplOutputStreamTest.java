@@ -0,0 +1,173 @@
+/*
+ * The contents of this file are subject to the terms of the Common Development and
+ * Distribution License (the License). You may not use this file except in compliance with the
+ * License.
+ *
+ * You can obtain a copy of the License at legal/CDDLv1.0.txt. See the License for the
+ * specific language governing permission and limitations under the License.
+ *
+ * When distributing Covered Software, include this CDDL Header Notice in each file and include
+ * the License file at legal/CDDLv1.0.txt. If applicable, add the following below the CDDL
+ * Header, with the fields enclosed by brackets [] replaced by your own identifying
+ * information: "Portions Copyright [year] [name of copyright owner]".
+ *
+ * Copyright 2026 ForgeRock AS.
+ */
+package org.opends.server.replication.service;
+
+import static org.assertj.core.api.Assertions.*;
+import static org.mockito.Matchers.*;
+import static org.mockito.Mockito.*;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicReference;
+
+import org.mockito.invocation.InvocationOnMock;
+import org.mockito.stubbing.Answer;
+import org.opends.server.replication.ReplicationTestCase;
+import org.testng.annotations.Test;
+
+/** Tests the {@link ReplOutputStream} publishing the exported chunks from its sender thread. */
+@SuppressWarnings("javadoc")
+public class ReplOutputStreamTest extends ReplicationTestCase
+{
+  @Test
+  public void testChunksArePublishedInOrder() throws Exception
+  {
+    final ReplicationDomain domain = mock(ReplicationDomain.class);
+    final List<String> published = Collections.synchronizedList(new ArrayList<String>());
+    doAnswer(new Answer<Void>()
+    {
+      @Override
+      public Void answer(InvocationOnMock invocation) throws Throwable
+      {
+        final Object[] args = invocation.getArguments();
+        published.add(new String((byte[]) args[0], (Integer) args[1], (Integer) args[2]));
+        return null;
+      }
+    }).when(domain).exportLDIFEntry(any(byte[].class), anyInt(), anyInt());
+
+    final ReplOutputStream output = new ReplOutputStream(domain);
+    final List<String> written = new ArrayList<>();
+    final byte[] buffer = new byte[32];
+    for (int i = 0; i < 100; i++)
+    {
+      final byte[] chunk = ("chunk" + i).getBytes();
+      // the buffer is reused as soon as write() returns
+      System.arraycopy(chunk, 0, buffer, 1, chunk.length);
+      output.write(buffer, 1, chunk.length);
+      written.add("chunk" + i);
+    }
+    output.close();
+
+    assertThat(published).isEqualTo(written);
+  }
+
+  @Test(timeOut = 10000)
+  public void testSenderErrorSurfacesFromWrite() throws Exception
+  {
+    final ReplicationDomain domain = mock(ReplicationDomain.class);
+    final IOException error = new IOException("lost the replication server");
+    doThrow(error).when(domain).exportLDIFEntry(any(byte[].class), anyInt(), anyInt());
+
+    final ReplOutputStream output = new ReplOutputStream(domain);
+    final byte[] chunk = "chunk".getBytes();
+    try
+    {
+      // the error is raised by the sender thread, and reported by one of the next writes
+      while (true)
+      {
+        output.write(chunk, 0, chunk.length);
+      }
+    }
+    catch (IOException e)
+    {
+      assertThat(e).isSameAs(error);
+    }
+
+    try
+    {
+      output.close();
+      failBecauseExceptionWasNotThrown(IOException.class);
+    }
+    catch (IOException e)
+    {
+      assertThat(e).isSameAs(error);
+    }
+  }
+
+  @Test(timeOut = 10000)
+  public void testSenderErrorSurfacesFromClose() throws Exception
+  {
+    final ReplicationDomain domain = mock(ReplicationDomain.class);
+    final IOException error = new IOException("lost the replication server");
+    doThrow(error).when(domain).exportLDIFEntry(any(byte[].class), anyInt(), anyInt());
+
+    final ReplOutputStream output = new ReplOutputStream(domain);
+    final byte[] chunk = "chunk".getBytes();
+    output.write(chunk, 0, chunk.length);
+    for (int i = 0; i < 2; i++)
+    {
+      try
+      {
+        output.close();
+        failBecauseExceptionWasNotThrown(IOException.class);
+      }
+      catch (IOException e)
+      {
+        assertThat(e).isSameAs(error);
+      }
+    }
+  }
+
+  @Test(timeOut = 10000)
+  public void testAbortDropsPendingChunks() throws Exception
+  {
+    final ReplicationDomain domain = mock(ReplicationDomain.class);
+    final CountDownLatch publishing = new CountDownLatch(1);
+    final CountDownLatch releasePublishing = new CountDownLatch(1);
+    final AtomicReference<Thread> sender = new AtomicReference<>();
+    doAnswer(new Answer<Void>()
+    {
+      @Override
+      public Void answer(InvocationOnMock invocation) throws Throwable
+      {
+        sender.set(Thread.currentThread());
+        publishing.countDown();
+        releasePublishing.await();
+        return null;
+      }
+    }).when(domain).exportLDIFEntry(any(byte[].class), anyInt(), anyInt());
+
+    final ReplOutputStream output = new ReplOutputStream(domain);
+    final byte[] chunk = "chunk".getBytes();
+    output.write(chunk, 0, chunk.length);
+    assertThat(publishing.await(5, TimeUnit.SECONDS)).isTrue();
+    // fill the queue of pending chunks while the sender thread is stuck publishing the first one
+    for (int i = 0; i < 16; i++)
+    {
+      output.write(chunk, 0, chunk.length);
+    }
+
+    // as done when the export failed: must not wait for the sender thread
+    output.abort();
+    releasePublishing.countDown();
+    sender.get().join();
+
+    verify(domain, times(1)).exportLDIFEntry(any(byte[].class), anyInt(), anyInt());
+    try
+    {
+      output.write(chunk, 0, chunk.length);
+      failBecauseExceptionWasNotThrown(IOException.class);
+    }
+    catch (IOException expected)
+    {
+      // the stream is closed
+    }
+  }
+}
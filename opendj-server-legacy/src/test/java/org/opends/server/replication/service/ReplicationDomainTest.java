@@ -12,7 +12,7 @@
  * information: "Portions Copyright [year] [name of copyright owner]".
  *
  * Copyright 2008-2010 Sun Microsystems, Inc.
- * Portions Copyright 2011-2016 ForgeRock AS.
+ * Portions Copyright 2011-2026 ForgeRock AS.
  */
 package org.opends.server.replication.service;
 
@@ -366,6 +366,48 @@ public class ReplicationDomainTest extends ReplicationTestCase
     }
   }
 
+  /**
+   * Test that a ReplicationDomain is able to export and import its database
+   * when the sessions to the replication server are compressed.
+   */
+  @Test
+  public void exportAndImportWithCompression() throws Exception
+  {
+    final int ENTRYCOUNT = 20000;
+    DN testService = DN.valueOf("o=test");
+    ReplicationServer replServer = null;
+    FakeReplicationDomain domain1 = null;
+    FakeReplicationDomain domain2 = null;
+
+    try
+    {
+      int replServerPort = TestCaseUtils.findFreePort();
+      ReplServerFakeConfiguration replServerConfig = new ReplServerFakeConfiguration(
+          replServerPort, "exportAndImportWithCompression", 0, 11, 0, 100, null);
+      replServerConfig.setSessionCompressionEnabled(true);
+      replServer = new ReplicationServer(replServerConfig);
+      SortedSet<String> servers = newTreeSet("localhost:" + replServerPort);
+
+      String exportedData = buildExportedData(ENTRYCOUNT);
+      domain1 = new FakeReplicationDomain(
+          testService, 1, servers, 0, exportedData, null, ENTRYCOUNT, true);
+
+      StringBuilder importedData = new StringBuilder();
+      domain2 = new FakeReplicationDomain(
+          testService, 2, servers, 0, null, importedData, 0, true);
+
+      domain2.initializeFromRemote(1, NO_INIT_TASK);
+
+      waitEndExport(exportedData, importedData);
+      assertExportSucessful(domain1, domain2, exportedData, importedData);
+    }
+    finally
+    {
+      disable(domain1, domain2);
+      remove(replServer);
+    }
+  }
+
   private boolean initializeFromRemote(ReplicationDomain domain) throws DirectoryException
   {
     for (DSInfo remoteDS : domain.getReplicaInfos().values())
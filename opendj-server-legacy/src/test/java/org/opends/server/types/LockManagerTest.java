@@ -17,7 +17,9 @@ package org.opends.server.types;
 
 import static org.assertj.core.api.Assertions.*;
 
+import java.util.ArrayList;
 import java.util.LinkedList;
+import java.util.List;
 import java.util.Random;
 import java.util.concurrent.Callable;
 import java.util.concurrent.ExecutorService;
@@ -299,6 +301,209 @@ public class LockManagerTest extends TypesTestCase
     assertThat(threadPool.awaitTermination(60, TimeUnit.SECONDS)).as("Deadlock detected during stress test").isTrue();
   }
 
+  @Test(dataProvider = "multiThreadedLockCombinationsWhichShouldBlock")
+  public void testStripedMultiThreadedLockCombinationsWhichShouldBlock(final LockType lock1Type, final DN dn1,
+      final LockType lock2Type, final DN dn2) throws Exception
+  {
+    final LockManager lockManager = LockManager.newStripedLockManager(1024);
+    final DNLock lock1 = lockUsingThread(thread1, lockManager, lock1Type, dn1).get();
+    final Future<DNLock> lock2Future = lockUsingThread(thread2, lockManager, lock2Type, dn2);
+
+    try
+    {
+      lock2Future.get(10, TimeUnit.MILLISECONDS);
+    }
+    catch (final TimeoutException e)
+    {
+      // Ignore: we'll check the state of the future instead.
+    }
+    assertThat(lock2Future.isDone()).isFalse();
+    unlockUsingThread(thread1, lock1);
+    final DNLock lock2 = lock2Future.get();
+    unlockUsingThread(thread2, lock2);
+  }
+
+  @Test(dataProvider = "multiThreadedLockCombinationsWhichShouldNotBlock")
+  public void testStripedMultiThreadedLockCombinationsWhichShouldNotBlock(final LockType lock1Type, final DN dn1,
+      final LockType lock2Type, final DN dn2) throws Exception
+  {
+    final LockManager lockManager = LockManager.newStripedLockManager(1024);
+    final DNLock lock1 = lockUsingThread(thread1, lockManager, lock1Type, dn1).get();
+    final DNLock lock2 = lockUsingThread(thread2, lockManager, lock2Type, dn2).get();
+
+    assertThat(lock1).isNotNull();
+    assertThat(lock2).isNotNull();
+    unlockUsingThread(thread1, lock1);
+    unlockUsingThread(thread2, lock2);
+  }
+
+  @Test(dataProvider = "reentrantLockCombinationsWhichShouldNotBlock")
+  public void testStripedReentrantLockCombinationsWhichShouldNotBlock(final LockType lock1Type,
+      final LockType lock2Type)
+  {
+    final LockManager lockManager = LockManager.newStripedLockManager(100, TimeUnit.MILLISECONDS, 1024);
+    final DNLock lock1 = lock1Type.lock(lockManager, dnA);
+    final DNLock lock2 = lock2Type.lock(lockManager, dnA);
+
+    assertThat(lock1).isNotNull();
+    assertThat(lock2).isNotNull();
+    lock2.unlock();
+    lock1.unlock();
+    assertThat(lockManager.getLockTimeouts()).isEqualTo(0);
+  }
+
+  @Test
+  public void testStripeCollisionsDoNotSelfDeadlock() throws Exception
+  {
+    // A single stripe: all the DNs collide.
+    final LockManager lockManager = LockManager.newStripedLockManager(100, TimeUnit.MILLISECONDS, 1);
+    final DNLock lock1 = LockType.WRITE_SUBTREE.lock(lockManager, dnABC);
+    final DNLock lock2 = LockType.WRITE_SUBTREE.lock(lockManager, dnABD);
+    assertThat(lock1).isNotNull();
+    assertThat(lock2).isNotNull();
+
+    // Unrelated DNs now wait for each other.
+    assertThat(lockUsingThread(thread1, lockManager, LockType.READ_ENTRY, dn(0)).get()).isNull();
+    assertThat(lockManager.getLockTimeouts()).isEqualTo(1);
+
+    lock2.unlock();
+    lock1.unlock();
+    final DNLock lock3 = lockUsingThread(thread1, lockManager, LockType.WRITE_ENTRY, dn(0)).get();
+    assertThat(lock3).isNotNull();
+    unlockUsingThread(thread1, lock3);
+  }
+
+  @Test
+  public void testStripedLocksTakenOutOfOrderFailFast() throws Exception
+  {
+    final LockManager lockManager = LockManager.newStripedLockManager(10, TimeUnit.SECONDS, 1024);
+    final DNLock lock1 = lockUsingThread(thread1, lockManager, LockType.WRITE_SUBTREE, dnABC).get();
+    final DNLock lock2 = lockUsingThread(thread2, lockManager, LockType.WRITE_SUBTREE, dnABD).get();
+    assertThat(lock1).isNotNull();
+    assertThat(lock2).isNotNull();
+
+    // Each thread needs the stripes held by the other: waiting for them would deadlock.
+    assertThat(lockUsingThread(thread1, lockManager, LockType.WRITE_SUBTREE, dnABD).get(1, TimeUnit.SECONDS))
+        .isNull();
+    assertThat(lockUsingThread(thread2, lockManager, LockType.WRITE_SUBTREE, dnABC).get(1, TimeUnit.SECONDS))
+        .isNull();
+    assertThat(lockManager.getLockConflicts()).isEqualTo(2);
+    assertThat(lockManager.getLockTimeouts()).isEqualTo(0);
+
+    unlockUsingThread(thread2, lock2);
+    final DNLock lock3 = lockUsingThread(thread1, lockManager, LockType.WRITE_SUBTREE, dnABD).get();
+    assertThat(lock3).isNotNull();
+    unlockUsingThread(thread1, lock3);
+    unlockUsingThread(thread1, lock1);
+  }
+
+  @Test
+  public void testStripeUpgradesFailFast() throws Exception
+  {
+    // A single stripe: all the DNs collide.
+    final LockManager lockManager = LockManager.newStripedLockManager(10, TimeUnit.SECONDS, 1);
+    final DNLock lock1 = lockUsingThread(thread1, lockManager, LockType.READ_ENTRY, dn(1)).get();
+    final DNLock lock2 = lockUsingThread(thread2, lockManager, LockType.READ_ENTRY, dn(2)).get();
+    assertThat(lock1).isNotNull();
+    assertThat(lock2).isNotNull();
+
+    // Both threads share the read lock of the entry stripe, neither can upgrade it.
+    assertThat(lockUsingThread(thread1, lockManager, LockType.WRITE_ENTRY, dn(3)).get(1, TimeUnit.SECONDS)).isNull();
+    assertThat(lockUsingThread(thread2, lockManager, LockType.WRITE_ENTRY, dn(4)).get(1, TimeUnit.SECONDS)).isNull();
+    assertThat(lockManager.getLockConflicts()).isEqualTo(2);
+    assertThat(lockManager.getLockTimeouts()).isEqualTo(0);
+
+    unlockUsingThread(thread2, lock2);
+    final DNLock lock3 = lockUsingThread(thread1, lockManager, LockType.WRITE_ENTRY, dn(3)).get();
+    assertThat(lock3).isNotNull();
+    unlockUsingThread(thread1, lock3);
+    unlockUsingThread(thread1, lock1);
+  }
+
+  @DataProvider
+  private Object[][] lockManagers()
+  {
+    return new Object[][] {
+      { new LockManager(100, TimeUnit.MILLISECONDS) },
+      { LockManager.newStripedLockManager(100, TimeUnit.MILLISECONDS, 1024) },
+    };
+  }
+
+  @Test(dataProvider = "lockManagers")
+  public void testWriteLockSubtrees(final LockManager lockManager) throws Exception
+  {
+    final DNLock lock1 = lockManager.tryWriteLockSubtrees(dnABD, dnABC);
+    assertThat(lock1).isNotNull();
+    assertThat(lockUsingThread(thread1, lockManager, LockType.READ_ENTRY, dnABC).get()).isNull();
+    assertThat(lockUsingThread(thread1, lockManager, LockType.READ_ENTRY, dnABD).get()).isNull();
+    lock1.unlock();
+
+    final DNLock lock2 = lockUsingThread(thread1, lockManager, LockType.WRITE_SUBTREE, dnABC).get();
+    final DNLock lock3 = lockUsingThread(thread2, lockManager, LockType.WRITE_SUBTREE, dnABD).get();
+    assertThat(lock2).isNotNull();
+    assertThat(lock3).isNotNull();
+    unlockUsingThread(thread1, lock2);
+    unlockUsingThread(thread2, lock3);
+  }
+
+  @Test
+  public void testLockWaitHistogram() throws Exception
+  {
+    final LockManager lockManager = LockManager.newStripedLockManager(1024);
+    final DNLock lock1 = lockUsingThread(thread1, lockManager, LockType.WRITE_ENTRY, dnAB).get();
+    final Future<DNLock> lock2Future = lockUsingThread(thread2, lockManager, LockType.WRITE_ENTRY, dnAB);
+    Thread.sleep(20);
+    unlockUsingThread(thread1, lock1);
+    unlockUsingThread(thread2, lock2Future.get());
+
+    final long[] histogram = lockManager.getLockWaitHistogram();
+    long total = 0;
+    for (long count : histogram)
+    {
+      total += count;
+    }
+    // Two subtree read locks and one entry write lock per lock request.
+    assertThat(total).isEqualTo(6);
+    assertThat(histogram[4] + histogram[5]).isEqualTo(1);
+    assertThat(lockManager.getLockTimeouts()).isEqualTo(0);
+  }
+
+  @Test
+  public void stressTestStripedLockManagerForDeadlocks() throws Exception
+  {
+    final LockManager lockManager = LockManager.newStripedLockManager(16);
+    final int threadCount = Runtime.getRuntime().availableProcessors();
+    final ExecutorService threadPool = Executors.newFixedThreadPool(threadCount);
+    final List<Future<?>> futures = new ArrayList<>();
+    for (int i = 0; i < threadCount; i++)
+    {
+      futures.add(threadPool.submit(new Runnable()
+      {
+        @Override
+        public void run()
+        {
+          final Random rng = new Random();
+          final LockType[] lockTypes = LockType.values();
+          for (int j = 0; j < 100000; j++)
+          {
+            final DN dn = DN.valueOf("uid=" + rng.nextInt(100) + ",ou=" + rng.nextInt(10) + ",dc=example,dc=com");
+            final DNLock lock = lockTypes[rng.nextInt(lockTypes.length)].lock(lockManager, dn);
+            assertThat(lock).isNotNull();
+            lock.unlock();
+          }
+        }
+      }));
+    }
+
+    threadPool.shutdown();
+    assertThat(threadPool.awaitTermination(60, TimeUnit.SECONDS)).as("Deadlock detected during stress test").isTrue();
+    for (final Future<?> future : futures)
+    {
+      future.get();
+    }
+    assertThat(lockManager.getLockTimeouts()).isEqualTo(0);
+  }
+
   private DN dn(final int i) throws DirectoryException
   {
     return DN.valueOf(String.format("uid=user.%d,ou=people,dc=example,dc=com", i));